@@ -227,11 +227,12 @@ public class BindingsArray extends Bindings {
 	 */
 	public void addAll(final BindingsArray other) {
 		// add or overwrite all values of the other bindings object
-		for (int i = 0; i < other.literals.length; i++) {
+		final Literal[] otherLiterals = other.getLiterals();
+		for (int i = 0; i < otherLiterals.length; i++) {
 			// a null value must not be added (it could overwrite)
 			// a valid value
-			if (other.literals[i] != null) {
-				this.literals[i] = other.literals[i];
+			if (otherLiterals[i] != null) {
+				this.literals[i] = otherLiterals[i];
 			}
 		}
 	}
@@ -0,0 +1,453 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.datastructures.bindings;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LazyLiteral;
+import lupos.datastructures.items.literal.Literal;
+import lupos.misc.util.ImmutableIterator;
+
+/**
+ * Instances of this class store bindings as primitive integer codes of
+ * LazyLiteral objects (i.e., as dictionary ids) instead of Literal objects.<br>
+ * The position of a variable is determined by the BindingsFactory like for
+ * {@link lupos.datastructures.bindings.BindingsArray}, and the code 0 marks an
+ * unbound variable (the codes of LazyLiteral objects start with 1).<br>
+ * <br>
+ * Joins, duplicate elimination and sorting according to the codes
+ * (see {@link #joinCodes(BindingsArrayCodes)}, {@link #equals(Object)},
+ * {@link #hashCode()}, {@link #compareTo(Bindings)} and {@link #getCode(Variable)})
+ * work directly on the codes without creating any Literal objects.
+ * LazyLiteral objects are only created when {@link #get(Variable)} is called,
+ * e.g., for evaluating filters or formatting the result.<br>
+ * <br>
+ * Literals, which are not plain LazyLiteral objects (e.g., computed by a BIND
+ * or stemming from another data source), are stored in the array of literals
+ * of the super class, which is only allocated if such a literal is added.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class BindingsArrayCodes extends BindingsArray {
+
+	private static final long serialVersionUID = 6028435262733839247L;
+
+	/** The array storing the codes of the bound LazyLiteral objects, 0 if unbound or bound to a literal of the array of literals */
+	protected int[] codes;
+
+	/**
+	 * Constructor
+	 *
+	 * @param bindingsFactory a {@link lupos.datastructures.bindings.BindingsFactory} object.
+	 */
+	protected BindingsArrayCodes(final BindingsFactory bindingsFactory){
+		super(bindingsFactory, null);
+		this.codes = new int[this.bindingsFactory.posVariables.size()];
+	}
+
+	/**
+	 * Constructor. Be careful: only use this constructor if you know what you are doing!
+	 * The given array of codes is not copied.
+	 *
+	 * @param bindingsFactory a {@link lupos.datastructures.bindings.BindingsFactory} object.
+	 * @param codes an array of int (0 for unbound variables).
+	 */
+	public BindingsArrayCodes(final BindingsFactory bindingsFactory, final int[] codes){
+		super(bindingsFactory, null);
+		this.codes = codes;
+	}
+
+	/**
+	 * <p>Getter for the field <code>codes</code>.</p>
+	 *
+	 * @return the codes
+	 */
+	public int[] getCodes() {
+		return this.codes;
+	}
+
+	/**
+	 * Returns whether or not there are bound literals, which are not stored as codes
+	 *
+	 * @return <code>true</code> if all bound variables are stored as codes
+	 */
+	public boolean isOnlyCodes() {
+		if (this.literals != null) {
+			for (final Literal literal : this.literals) {
+				if (literal != null) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The returned array is newly created and contains LazyLiteral objects for
+	 * the bound codes.
+	 */
+	@Override
+	public Literal[] getLiterals() {
+		final Literal[] result = new Literal[this.codes.length];
+		for (int i = 0; i < this.codes.length; i++) {
+			result[i] = this.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the literal stored at a position
+	 *
+	 * @param i the position
+	 * @return the literal, null if unbound
+	 */
+	protected Literal get(final int i) {
+		final int code = this.codes[i];
+		if (code != 0) {
+			return new LazyLiteral(code);
+		}
+		return (this.literals == null) ? null : this.literals[i];
+	}
+
+	/**
+	 * Returns whether or not something is bound at a position
+	 *
+	 * @param i the position
+	 * @return <code>true</code> if a code or a literal is stored at the given position
+	 */
+	protected boolean isBound(final int i) {
+		return this.codes[i] != 0 || (this.literals != null && this.literals[i] != null);
+	}
+
+	/**
+	 * Stores a literal at a position: plain LazyLiteral objects are stored as codes, all other literals in the array of literals
+	 *
+	 * @param i the position
+	 * @param literal the literal to be stored (or null for unbinding)
+	 */
+	protected void set(final int i, final Literal literal) {
+		if (literal != null && literal.getClass() == LazyLiteral.class) {
+			this.codes[i] = ((LazyLiteral) literal).getCode();
+			if (this.literals != null) {
+				this.literals[i] = null;
+			}
+		} else {
+			this.codes[i] = 0;
+			if (literal != null && this.literals == null) {
+				this.literals = new Literal[this.codes.length];
+			}
+			if (this.literals != null) {
+				this.literals[i] = literal;
+			}
+		}
+	}
+
+	/**
+	 * Returns the position of a variable
+	 *
+	 * @param var the variable
+	 * @return the position or -1 if the variable is not known
+	 */
+	protected int getPosition(final Variable var) {
+		final Integer i = this.bindingsFactory.posVariables.get(var);
+		return (i == null) ? -1 : i;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Sets the literals.
+	 */
+	@Override
+	protected void cloneLiterals(final Literal[] otherLiterals) {
+		for (int i = 0; i < otherLiterals.length; i++) {
+			this.set(i, otherLiterals[i]);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public BindingsArrayCodes clone() {
+		final BindingsArrayCodes other = new BindingsArrayCodes(this.bindingsFactory, this.codes.clone());
+		if (this.literals != null) {
+			other.literals = this.literals.clone();
+		}
+		return other;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void add(final Variable var, final Literal literal) {
+		final int i = this.getPosition(var);
+		if (i >= 0) {
+			this.set(i, literal);
+		}
+	}
+
+	/**
+	 * Binds a variable to the code of a LazyLiteral object
+	 *
+	 * @param var the variable
+	 * @param code the code of the LazyLiteral object (0 for unbinding)
+	 */
+	public void addCode(final Variable var, final int code) {
+		final int i = this.getPosition(var);
+		if (i >= 0) {
+			this.codes[i] = code;
+			if (this.literals != null) {
+				this.literals[i] = null;
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Literal get(final Variable var) {
+		final int i = this.getPosition(var);
+		if (i >= 0) {
+			return this.get(i);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the code of the LazyLiteral object a variable is bound to
+	 *
+	 * @param var the variable
+	 * @return the code, or 0 if the variable is unbound or bound to a literal not stored as code
+	 */
+	public int getCode(final Variable var) {
+		final int i = this.getPosition(var);
+		if (i >= 0) {
+			return this.codes[i];
+		}
+		return 0;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Set<Variable> getVariableSet() {
+		final HashSet<Variable> hs = new HashSet<Variable>();
+		for (final Entry<Variable, Integer> entry : this.bindingsFactory.posVariables.entrySet()) {
+			if (this.isBound(entry.getValue())) {
+				hs.add(entry.getKey());
+			}
+		}
+		return hs;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Iterator<Variable> getVariables() {
+		final Iterator<Entry<Variable, Integer>> it_var = this.bindingsFactory.posVariables.entrySet().iterator();
+		return new ImmutableIterator<Variable>(){
+
+			Variable var = null;
+
+			@Override
+			public boolean hasNext() {
+				if(this.var == null){
+					this.var = this.next();
+				}
+				return (this.var!=null);
+			}
+
+			@Override
+			public Variable next() {
+				if(this.var != null){
+					final Variable result = this.var;
+					this.var = null;
+					return result;
+				}
+				while(it_var.hasNext()){
+					final Entry<Variable, Integer> entry = it_var.next();
+					if(BindingsArrayCodes.this.isBound(entry.getValue())){
+						return entry.getKey();
+					}
+				}
+				return null;
+			}
+		};
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void addAll(final BindingsArray other) {
+		if (other instanceof BindingsArrayCodes) {
+			final BindingsArrayCodes otherCodes = (BindingsArrayCodes) other;
+			for (int i = 0; i < otherCodes.codes.length; i++) {
+				if (otherCodes.codes[i] != 0) {
+					this.codes[i] = otherCodes.codes[i];
+					if (this.literals != null) {
+						this.literals[i] = null;
+					}
+				} else if (otherCodes.literals != null && otherCodes.literals[i] != null) {
+					this.set(i, otherCodes.literals[i]);
+				}
+			}
+		} else {
+			final Literal[] otherLiterals = other.getLiterals();
+			for (int i = 0; i < otherLiterals.length; i++) {
+				if (otherLiterals[i] != null) {
+					this.set(i, otherLiterals[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether or not the given bindings use the same positions for the variables
+	 *
+	 * @param other the other bindings
+	 * @return <code>true</code> if the variables of both bindings are stored at the same positions
+	 */
+	public boolean hasSamePositions(final BindingsArrayCodes other) {
+		final Map<Variable, Integer> posVariables = this.bindingsFactory.posVariables;
+		final Map<Variable, Integer> otherPosVariables = other.bindingsFactory.posVariables;
+		return posVariables == otherPosVariables || posVariables.equals(otherPosVariables);
+	}
+
+	/**
+	 * Joins the given bindings into these bindings by comparing the codes.<br>
+	 * Like {@link lupos.engine.operators.multiinput.join.Join#joinBindings(lupos.datastructures.queryresult.QueryResult, Bindings, Bindings)},
+	 * these bindings are altered if the other bindings contain additional bindings.
+	 * Both bindings must use the same positions for the variables (see {@link #hasSamePositions(BindingsArrayCodes)}).
+	 *
+	 * @param other the other bindings
+	 * @return <code>false</code> if an unsolvable conflict was detected, <code>true</code> otherwise
+	 */
+	public boolean joinCodes(final BindingsArrayCodes other) {
+		for (int i = 0; i < other.codes.length; i++) {
+			final int otherCode = other.codes[i];
+			if (otherCode == 0 && (other.literals == null || other.literals[i] == null)) {
+				continue;
+			}
+			final int code = this.codes[i];
+			if (code != 0 && otherCode != 0) {
+				if (code != otherCode) {
+					return false;
+				}
+			} else if (this.isBound(i)) {
+				if (!this.get(i).valueEquals(other.get(i))) {
+					return false;
+				}
+			} else if (otherCode != 0) {
+				this.codes[i] = otherCode;
+			} else {
+				this.set(i, other.literals[i]);
+			}
+		}
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void init() {
+		this.codes = new int[this.bindingsFactory.posVariables.size()];
+		this.literals = null;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public BindingsArrayCodes createInstance(){
+		return new BindingsArrayCodes(this.bindingsFactory);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int hashCode() {
+		// the hash code of a LazyLiteral object is its code
+		int hashCode = 0;
+		for (final Entry<Variable, Integer> entry : this.bindingsFactory.posVariables.entrySet()) {
+			final int i = entry.getValue();
+			if (this.codes[i] != 0) {
+				hashCode += entry.getKey().hashCode() + this.codes[i];
+			} else if (this.literals != null && this.literals[i] != null) {
+				hashCode += entry.getKey().hashCode() + this.literals[i].hashCode();
+			}
+		}
+		return hashCode;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean equals(final Object other) {
+		if (other instanceof BindingsArrayCodes) {
+			final BindingsArrayCodes otherCodes = (BindingsArrayCodes) other;
+			if (this.isOnlyCodes() && otherCodes.isOnlyCodes() && this.hasSamePositions(otherCodes)) {
+				return Arrays.equals(this.codes, otherCodes.codes);
+			}
+		}
+		return super.equals(other);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int compareTo(final Bindings other) {
+		if (other instanceof BindingsArrayCodes) {
+			final BindingsArrayCodes otherCodes = (BindingsArrayCodes) other;
+			if (this.isOnlyCodes() && otherCodes.isOnlyCodes() && this.hasSamePositions(otherCodes)) {
+				// same order as in Bindings.compareTo(...), but without creating Literal objects
+				int size = 0;
+				int otherSize = 0;
+				boolean sameVariables = true;
+				for (int i = 0; i < this.codes.length; i++) {
+					if (this.codes[i] != 0) {
+						size++;
+					}
+					if (otherCodes.codes[i] != 0) {
+						otherSize++;
+					}
+					if ((this.codes[i] == 0) != (otherCodes.codes[i] == 0)) {
+						sameVariables = false;
+					}
+				}
+				if (size > otherSize) {
+					return 1;
+				} else if (otherSize > size) {
+					return -1;
+				}
+				if (sameVariables) {
+					for (final Integer i : this.bindingsFactory.posVariables.values()) {
+						final int compare = this.codes[i] - otherCodes.codes[i];
+						if (compare != 0) {
+							return compare;
+						}
+					}
+					return 0;
+				}
+			}
+		}
+		return super.compareTo(other);
+	}
+}
@@ -0,0 +1,292 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.datastructures.bindings;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LazyLiteral;
+import lupos.datastructures.items.literal.Literal;
+
+/**
+ * A block of a fixed maximum number of solutions, which are stored column-wise
+ * as integer codes of LazyLiteral objects (i.e., as dictionary ids).<br>
+ * Each column belongs to one variable, and the code 0 marks an unbound
+ * variable (the codes of LazyLiteral objects start with 1).<br>
+ * <br>
+ * Blocks are used to process intermediate results batch-at-a-time and avoid
+ * the creation of Bindings and Literal objects for every single solution.
+ * Bindings objects are only created (by {@link #toBindings(int, BindingsFactory)})
+ * when an operator requires them.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class BindingsBlock implements Serializable {
+
+	private static final long serialVersionUID = -3415735580254913298L;
+
+	/** the default maximum number of solutions stored in a block */
+	public static int BLOCKSIZE = 1024;
+
+	/** the variables of the columns */
+	protected final Variable[] variables;
+
+	/** the columns of this block, columns[i][row] is the code of variables[i] in the given row */
+	protected final int[][] columns;
+
+	/** the current number of solutions in this block */
+	protected int size = 0;
+
+	/**
+	 * Constructor for an empty block with the default maximum number of solutions
+	 *
+	 * @param variables the variables of the columns
+	 */
+	public BindingsBlock(final Variable[] variables) {
+		this(variables, BindingsBlock.BLOCKSIZE);
+	}
+
+	/**
+	 * Constructor for an empty block
+	 *
+	 * @param variables the variables of the columns
+	 * @param capacity the maximum number of solutions in this block
+	 */
+	public BindingsBlock(final Variable[] variables, final int capacity) {
+		this.variables = variables;
+		this.columns = new int[variables.length][capacity];
+	}
+
+	/**
+	 * Constructor for a block sharing already existing columns. Be careful: only use this constructor if you know what you are doing!
+	 *
+	 * @param variables the variables of the columns
+	 * @param columns the columns
+	 * @param size the number of solutions in the given columns
+	 */
+	public BindingsBlock(final Variable[] variables, final int[][] columns, final int size) {
+		this.variables = variables;
+		this.columns = columns;
+		this.size = size;
+	}
+
+	/**
+	 * <p>Getter for the field <code>variables</code>.</p>
+	 *
+	 * @return the variables of the columns
+	 */
+	public Variable[] getVariables() {
+		return this.variables;
+	}
+
+	/**
+	 * <p>getColumn.</p>
+	 *
+	 * @param column the index of the column
+	 * @return the codes of the column, only the first {@link #size()} entries are valid
+	 */
+	public int[] getColumn(final int column) {
+		return this.columns[column];
+	}
+
+	/**
+	 * Returns the index of the column of a variable
+	 *
+	 * @param var the variable
+	 * @return the index of the column or -1 if the variable does not occur in this block
+	 */
+	public int getColumnIndex(final Variable var) {
+		return BindingsBlock.getColumnIndex(this.variables, var);
+	}
+
+	/**
+	 * Returns the index of a variable in an array of variables
+	 *
+	 * @param variables the array of variables
+	 * @param var the variable to be searched for
+	 * @return the index of the variable or -1 if the variable does not occur in the array
+	 */
+	public static int getColumnIndex(final Variable[] variables, final Variable var) {
+		for (int i = 0; i < variables.length; i++) {
+			if (variables[i].equals(var)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * <p>getCode.</p>
+	 *
+	 * @param row the row
+	 * @param column the column
+	 * @return the code at the given row and column (0 if unbound)
+	 */
+	public int getCode(final int row, final int column) {
+		return this.columns[column][row];
+	}
+
+	/**
+	 * <p>size.</p>
+	 *
+	 * @return the number of solutions in this block
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * <p>capacity.</p>
+	 *
+	 * @return the maximum number of solutions in this block
+	 */
+	public int capacity() {
+		return (this.columns.length == 0) ? Integer.MAX_VALUE : this.columns[0].length;
+	}
+
+	/**
+	 * <p>isEmpty.</p>
+	 *
+	 * @return true if this block does not contain any solution
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * <p>isFull.</p>
+	 *
+	 * @return true if no further solution can be added to this block
+	 */
+	public boolean isFull() {
+		return this.size >= this.capacity();
+	}
+
+	/**
+	 * Adds a solution given as codes in the order of the variables of this block
+	 *
+	 * @param row the codes of the solution
+	 */
+	public void addRow(final int[] row) {
+		for (int i = 0; i < this.columns.length; i++) {
+			this.columns[i][this.size] = row[i];
+		}
+		this.size++;
+	}
+
+	/**
+	 * Copies a solution from another block with the same variables
+	 *
+	 * @param other the other block
+	 * @param row the row of the solution in the other block
+	 */
+	public void addRow(final BindingsBlock other, final int row) {
+		for (int i = 0; i < this.columns.length; i++) {
+			this.columns[i][this.size] = other.columns[i][row];
+		}
+		this.size++;
+	}
+
+	/**
+	 * Copies a solution of this block into an array
+	 *
+	 * @param row the row of the solution
+	 * @return the codes of the solution in the order of the variables of this block
+	 */
+	public int[] getRow(final int row) {
+		final int[] result = new int[this.columns.length];
+		for (int i = 0; i < this.columns.length; i++) {
+			result[i] = this.columns[i][row];
+		}
+		return result;
+	}
+
+	/**
+	 * Projects this block to the given variables. The columns are shared and not copied!
+	 *
+	 * @param projectedVariables the variables to project to, all of them must occur in this block
+	 * @return the projected block
+	 */
+	public BindingsBlock project(final Variable[] projectedVariables) {
+		final int[][] projectedColumns = new int[projectedVariables.length][];
+		for (int i = 0; i < projectedVariables.length; i++) {
+			projectedColumns[i] = this.columns[this.getColumnIndex(projectedVariables[i])];
+		}
+		return new BindingsBlock(projectedVariables, projectedColumns, this.size);
+	}
+
+	/**
+	 * Creates a Bindings object for a solution of this block
+	 *
+	 * @param row the row of the solution
+	 * @param bindingsFactory the factory for creating the Bindings object
+	 * @return the Bindings object with LazyLiteral objects for all bound variables
+	 */
+	public Bindings toBindings(final int row, final BindingsFactory bindingsFactory) {
+		final Bindings result = bindingsFactory.createInstance();
+		if (result instanceof BindingsArrayCodes) {
+			// just copy the codes, no LazyLiteral objects are created
+			final BindingsArrayCodes resultCodes = (BindingsArrayCodes) result;
+			for (int i = 0; i < this.columns.length; i++) {
+				resultCodes.addCode(this.variables[i], this.columns[i][row]);
+			}
+			return result;
+		}
+		for (int i = 0; i < this.columns.length; i++) {
+			final int code = this.columns[i][row];
+			if (code != 0) {
+				result.add(this.variables[i], new LazyLiteral(code));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the code of a literal to be stored in a block
+	 *
+	 * @param literal the literal
+	 * @return the code of the literal, 0 if the literal is null
+	 * @throws ClassCastException if the literal is not a LazyLiteral
+	 */
+	public static int getCode(final Literal literal) {
+		if (literal == null) {
+			return 0;
+		}
+		return ((LazyLiteral) literal).getCode();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(Arrays.toString(this.variables));
+		for (int row = 0; row < this.size; row++) {
+			sb.append("\n");
+			sb.append(Arrays.toString(this.getRow(row)));
+		}
+		return sb.toString();
+	}
+}
@@ -90,6 +90,8 @@ public class BindingsFactory {
 			return new ArrayVarMinMaxBindingsFactory();
 		} else if(Bindings.instanceClass==BindingsArrayPresortingNumbers.class){
 			return new ArrayPresortingNumbersBindingsFactory();
+		} else if(Bindings.instanceClass==BindingsArrayCodes.class){
+			return new ArrayCodesBindingsFactory();
 		} else {
 			return new BindingsFactory();
 		}
@@ -110,6 +112,8 @@ public class BindingsFactory {
 			return new ArrayVarMinMaxBindingsFactory(variables);
 		} else if(Bindings.instanceClass==BindingsArrayPresortingNumbers.class){
 			return new ArrayPresortingNumbersBindingsFactory(variables);
+		} else if(Bindings.instanceClass==BindingsArrayCodes.class){
+			return new ArrayCodesBindingsFactory(variables);
 		} else {
 			return new BindingsFactory(variables);
 		}
@@ -130,6 +134,8 @@ public class BindingsFactory {
 			return new ArrayVarMinMaxBindingsFactory(variables);
 		} else if(Bindings.instanceClass==BindingsArrayPresortingNumbers.class){
 			return new ArrayPresortingNumbersBindingsFactory(variables);
+		} else if(Bindings.instanceClass==BindingsArrayCodes.class){
+			return new ArrayCodesBindingsFactory(variables);
 		} else {
 			return new BindingsFactory(variables);
 		}
@@ -150,6 +156,8 @@ public class BindingsFactory {
 			return new ArrayVarMinMaxBindingsFactory(posVariables);
 		} else if(Bindings.instanceClass==BindingsArrayPresortingNumbers.class){
 			return new ArrayPresortingNumbersBindingsFactory(posVariables);
+		} else if(Bindings.instanceClass==BindingsArrayCodes.class){
+			return new ArrayCodesBindingsFactory(posVariables);
 		} else {
 			return new BindingsFactory(posVariables);
 		}
@@ -24,6 +24,7 @@
 package lupos.datastructures.buffermanager;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * This abstract super class specifies the basic methods to be implemented by concrete buffer manager implementations.
@@ -113,6 +114,22 @@ public abstract class BufferManager {
 	 */
 	public abstract byte[] getPage(final int pagesize, final PageAddress pageaddress) throws IOException;
 
+	/**
+	 * This method returns a read-only view of a page. If the page is not in the buffer, it is
+	 * loaded from disk and added to the buffer.
+	 * Buffer managers, which can hand out the page without copying it (e.g. from memory mapped files), override this method.
+	 * The returned buffer starts at position 0 and its limit is the page size.
+	 *
+	 * @param pagesize the size of the page
+	 * @param pageaddress
+	 *            The address of the page to be retrieved.
+	 * @return a read-only view of the content of the page
+	 * @throws java.io.IOException if any.
+	 */
+	public ByteBuffer getPageAsByteBuffer(final int pagesize, final PageAddress pageaddress) throws IOException {
+		return ByteBuffer.wrap(this.getPage(pagesize, pageaddress)).asReadOnlyBuffer();
+	}
+
 	/**
 	 * This method modifies a page in the buffer. If the page does not exist so
 	 * far in the buffer it is added to the buffer and marked as modified.
@@ -253,7 +253,7 @@ public abstract class BufferManager_CachedFiles extends BufferManager {
 			if(this.bufferedFiles.size()>=MAXOPENEDFILES){
 				filenameToBeClosed = this.replacementStrategyOpenedFiles.getToBeReplaced();
 				final RandomAccessFile oldFile=this.bufferedFiles.remove(filenameToBeClosed);
-				oldFile.close();
+				this.closeFile(filenameToBeClosed, oldFile);
 			}
 			file = new RandomAccessFile(new File(newFilename), "rw");
 			this.bufferedFiles.put(newFilename, file);
@@ -262,6 +262,17 @@ public abstract class BufferManager_CachedFiles extends BufferManager {
 		return new Quadruple<String, RandomAccessFile, Integer, String>(newFilename, file, (pageaddress.pagenumber - newFile * javalimitfilesize) * pagesize, filenameToBeClosed);
 	}
 
+	/**
+	 * Closes a buffered file. This method is called while holding the lock of the buffer manager.
+	 *
+	 * @param filename the name of the file
+	 * @param file the file to be closed
+	 * @throws java.io.IOException if any.
+	 */
+	protected void closeFile(final String filename, final RandomAccessFile file) throws IOException {
+		file.close();
+	}
+
 	/**
 	 * <p>Getter for the field <code>replacementStrategyOpenedFiles</code>.</p>
 	 *
@@ -308,8 +319,8 @@ public abstract class BufferManager_CachedFiles extends BufferManager {
 	public void close() throws IOException {
 		BufferManager_CachedFiles.lock.lock();
 		try {
-			for(final RandomAccessFile file: this.bufferedFiles.values()){
-				file.close();
+			for(final Entry<String, RandomAccessFile> entry: this.bufferedFiles.entrySet()){
+				this.closeFile(entry.getKey(), entry.getValue());
 			}
 			this.bufferedFiles.clear();
 			this.replacementStrategyOpenedFiles.releaseAll();
@@ -332,7 +343,7 @@ public abstract class BufferManager_CachedFiles extends BufferManager {
 			for(final Entry<String, RandomAccessFile> entry: this.bufferedFiles.entrySet()){
 				if(entry.getKey().startsWith(filenamePrefix)){
 					files.add(entry.getKey());
-					entry.getValue().close();
+					this.closeFile(entry.getKey(), entry.getValue());
 				}
 			}
 			for(final String file: files){
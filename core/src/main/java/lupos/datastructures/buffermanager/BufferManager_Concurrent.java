@@ -0,0 +1,750 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.datastructures.buffermanager;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lupos.misc.Quadruple;
+
+/**
+ * This buffer manager is designed for many concurrent readers of the same files.
+ * In contrast to BufferManager_RandomAccess, which serializes all page accesses by one lock,
+ * the page table is split into stripes, each of which has its own lock.
+ * A buffer hit only locks the stripe of the page and sets a reference bit,
+ * only buffer misses and evictions lock the replacement strategy.
+ * Pages are read from disk without holding the lock of the stripe or the lock of all files,
+ * only the file of the page is locked, such that misses of different files do not wait for each other.
+ *
+ * The replacement strategy is scan resistant (2Q):
+ * Newly loaded pages are put into a FIFO queue (A1in).
+ * The addresses of pages evicted from A1in are remembered in a ghost queue (A1out).
+ * Pages loaded again while their address is still in A1out are considered to be hot and are put into the main queue (Am),
+ * which is managed by the CLOCK algorithm. Large scans hence only replace pages in A1in and do not flush the hot pages.
+ *
+ * Evicting a page does not invalidate its content already returned by getPage (a modification replaces the content by a new array),
+ * such that getPage does not pin pages while they are used.
+ * Pages, which should stay in the buffer (e.g. the root and inner nodes of a B+-tree during a scan), can be pinned explicitly
+ * (see pinPage and unpinPage): Pinned pages are not evicted.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class BufferManager_Concurrent extends BufferManager_CachedFiles {
+
+	/**
+	 * The number of stripes of the page table (must be a power of 2)
+	 */
+	protected static int NUMBEROFSTRIPES = 64;
+
+	/**
+	 * The max. number of bytes in the buffer
+	 */
+	protected static long MAXBYTESINBUFFER = BufferManager_RandomAccess.getMaxBytesInBuffer();
+
+	/**
+	 * The percentage of the buffer, which is used for the FIFO queue A1in of newly loaded pages
+	 */
+	protected static int PERCENTAGEA1IN = 25;
+
+	/**
+	 * The number of page addresses remembered in the ghost queue A1out in percentage of the pages fitting into the buffer
+	 */
+	protected static int PERCENTAGEA1OUT = 50;
+
+	/**
+	 * This class contains the content of a single page plus its administration data.
+	 * The fields pins and removed are guarded by the lock of the stripe of the page, the field hot by the lock of the replacement strategy.
+	 */
+	public static class Frame {
+		public final PageAddress pageaddress;
+		public final int pagesize;
+		public volatile byte[] page;
+		public volatile boolean modified;
+		public volatile boolean referenced;
+		protected int pins = 0;
+		protected boolean removed = false;
+		protected boolean hot = false;
+
+		public Frame(final int pagesize, final PageAddress pageaddress, final byte[] page, final boolean modified) {
+			this.pageaddress = pageaddress;
+			this.pagesize = pagesize;
+			this.page = page;
+			this.modified = modified;
+		}
+
+		@Override
+		public String toString(){
+			return "(" + this.pageaddress + ", Size: " + this.pagesize + ", Pins: " + this.pins + ")" + ((this.modified)? "m" : "");
+		}
+	}
+
+	/**
+	 * One stripe of the page table
+	 */
+	protected static class Stripe {
+		protected final ReentrantLock lock = new ReentrantLock();
+		protected final HashMap<PageAddress, Frame> frames = new HashMap<PageAddress, Frame>();
+		/**
+		 * is incremented whenever a frame is removed from this stripe,
+		 * such that a page read from disk without holding the lock can be detected to be outdated
+		 */
+		protected long version = 0;
+	}
+
+	/**
+	 * the locks of the opened files (a file is read or written only while holding its lock)
+	 */
+	protected final ConcurrentHashMap<String, ReentrantLock> fileLocks = new ConcurrentHashMap<String, ReentrantLock>();
+
+	/**
+	 * the stripes of the page table
+	 */
+	protected final Stripe[] stripes;
+
+	/**
+	 * The lock for the data structures of the replacement strategy
+	 */
+	protected final ReentrantLock replacementLock = new ReentrantLock();
+
+	/**
+	 * the FIFO queue of newly loaded pages
+	 */
+	protected final ArrayDeque<Frame> a1in = new ArrayDeque<Frame>();
+
+	/**
+	 * the current number of bytes of the pages in A1in
+	 */
+	protected long bytesInA1in = 0;
+
+	/**
+	 * the ghost queue with the addresses of pages recently evicted from A1in
+	 */
+	protected final LinkedHashMap<PageAddress, Boolean> a1out = new LinkedHashMap<PageAddress, Boolean>();
+
+	/**
+	 * the main queue of hot pages managed by the CLOCK algorithm:
+	 * the head of the queue is the position of the clock hand
+	 */
+	protected final ArrayDeque<Frame> am = new ArrayDeque<Frame>();
+
+	/**
+	 * the current number of bytes in the buffer
+	 */
+	protected final AtomicLong currentNumberOfBytesInBuffer = new AtomicLong(0);
+
+	/**
+	 * Constructor using NUMBEROFSTRIPES stripes in the page table
+	 */
+	public BufferManager_Concurrent() {
+		this(BufferManager_Concurrent.NUMBEROFSTRIPES);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param numberOfStripes the number of stripes of the page table (rounded up to the next power of 2)
+	 */
+	public BufferManager_Concurrent(final int numberOfStripes) {
+		int size = 1;
+		while(size < numberOfStripes){
+			size <<= 1;
+		}
+		this.stripes = new Stripe[size];
+		for(int i=0; i<size; i++){
+			this.stripes[i] = new Stripe();
+		}
+	}
+
+	/**
+	 * determines the stripe of a page
+	 *
+	 * @param pageaddress the address of the page
+	 * @return the stripe of the page
+	 */
+	protected final Stripe getStripe(final PageAddress pageaddress){
+		int h = pageaddress.hashCode();
+		h ^= (h >>> 16);
+		h ^= (h >>> 7);
+		return this.stripes[h & (this.stripes.length - 1)];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * This method returns a page. If the page is not in the buffer, it is
+	 * loaded from disk and added to the buffer.
+	 */
+	@Override
+	public byte[] getPage(final int pagesize, final PageAddress pageaddress) throws IOException {
+		return this.getPage(pagesize, pageaddress, false);
+	}
+
+	/**
+	 * This method returns a page and pins it, i.e., the page is not evicted from the buffer until unpinPage is called for it.
+	 * If the page is not in the buffer, it is loaded from disk and added to the buffer.
+	 *
+	 * @param pagesize the size of the page
+	 * @param pageaddress the address of the page to be retrieved
+	 * @return the content of the page
+	 * @throws java.io.IOException if any.
+	 */
+	public byte[] pinPage(final int pagesize, final PageAddress pageaddress) throws IOException {
+		return this.getPage(pagesize, pageaddress, true);
+	}
+
+	/**
+	 * This method unpins a page, which has been pinned before by pinPage.
+	 *
+	 * @param pageaddress the address of the page
+	 */
+	public void unpinPage(final PageAddress pageaddress){
+		final Stripe stripe = this.getStripe(pageaddress);
+		stripe.lock.lock();
+		try {
+			final Frame frame = stripe.frames.get(pageaddress);
+			if(frame!=null && frame.pins>0){
+				frame.pins--;
+			}
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * returns a page (and optionally pins it). If the page is not in the buffer, it is
+	 * loaded from disk and added to the buffer.
+	 *
+	 * @param pagesize the size of the page
+	 * @param pageaddress the address of the page to be retrieved
+	 * @param pin whether or not the page is pinned
+	 * @return the content of the page
+	 * @throws java.io.IOException if any.
+	 */
+	protected byte[] getPage(final int pagesize, final PageAddress pageaddress, final boolean pin) throws IOException {
+		final Stripe stripe = this.getStripe(pageaddress);
+		while(true){
+			final long version;
+			stripe.lock.lock();
+			try {
+				final Frame frame = stripe.frames.get(pageaddress);
+				if(frame!=null){
+					if(pin){
+						frame.pins++;
+					}
+					frame.referenced = true;
+					return frame.page;
+				}
+				version = stripe.version;
+			} finally {
+				stripe.lock.unlock();
+			}
+			// load page (the stripe is not blocked meanwhile)
+			final byte[] pageContent = new byte[pagesize];
+			this.readPage(pagesize, pageaddress, pageContent);
+			final Frame newFrame;
+			stripe.lock.lock();
+			try {
+				final Frame frame = stripe.frames.get(pageaddress);
+				if(frame!=null){
+					// the page has been loaded or modified by another thread meanwhile
+					if(pin){
+						frame.pins++;
+					}
+					frame.referenced = true;
+					return frame.page;
+				}
+				if(stripe.version!=version){
+					// the page may have been modified and written to disk meanwhile => read it again
+					newFrame = null;
+				} else {
+					newFrame = new Frame(pagesize, pageaddress, pageContent, false);
+					if(pin){
+						// pin the page before it is admitted such that it cannot be evicted by admitting it
+						newFrame.pins = 1;
+					}
+					stripe.frames.put(pageaddress, newFrame);
+				}
+			} finally {
+				stripe.lock.unlock();
+			}
+			if(newFrame!=null){
+				this.admit(newFrame);
+				return newFrame.page;
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * This method modifies a page in the buffer. If the page does not exist so
+	 * far in the buffer it is added to the buffer and marked as modified.
+	 */
+	@Override
+	public void modifyPage(final int pagesize, final PageAddress pageaddress, final byte[] pageContent) throws IOException {
+		final Stripe stripe = this.getStripe(pageaddress);
+		final Frame newFrame;
+		stripe.lock.lock();
+		try {
+			final Frame frame = stripe.frames.get(pageaddress);
+			if(frame!=null){
+				frame.page = pageContent;
+				frame.modified = true;
+				frame.referenced = true;
+				return;
+			}
+			newFrame = new Frame(pagesize, pageaddress, pageContent, true);
+			stripe.frames.put(pageaddress, newFrame);
+		} finally {
+			stripe.lock.unlock();
+		}
+		this.admit(newFrame);
+	}
+
+	/**
+	 * inserts a newly added frame into the queues of the replacement strategy and evicts pages if the buffer is full
+	 *
+	 * @param frame the newly added frame
+	 * @throws IOException
+	 */
+	protected void admit(final Frame frame) throws IOException {
+		this.currentNumberOfBytesInBuffer.addAndGet(frame.pagesize);
+		this.replacementLock.lock();
+		try {
+			if(this.a1out.remove(frame.pageaddress)!=null){
+				frame.hot = true;
+				this.am.addLast(frame);
+			} else {
+				this.a1in.addLast(frame);
+				this.bytesInA1in += frame.pagesize;
+			}
+			this.handleFullBuffer();
+		} finally {
+			this.replacementLock.unlock();
+		}
+	}
+
+	/**
+	 * This method evicts pages according to the 2Q replacement strategy as long as the buffer is full.
+	 * If all pages are pinned, the buffer may temporarily contain more bytes than MAXBYTESINBUFFER.
+	 * This method must be called while holding the lock of the replacement strategy.
+	 *
+	 * @throws IOException
+	 */
+	protected void handleFullBuffer() throws IOException {
+		int tries = 2 * (this.a1in.size() + this.am.size());
+		while(this.currentNumberOfBytesInBuffer.get() > BufferManager_Concurrent.MAXBYTESINBUFFER && tries>0){
+			tries--;
+			final boolean fromA1in = !this.a1in.isEmpty() && (this.am.isEmpty() || this.bytesInA1in * 100 > BufferManager_Concurrent.MAXBYTESINBUFFER * BufferManager_Concurrent.PERCENTAGEA1IN);
+			final Frame candidate = (fromA1in)? this.a1in.pollFirst() : this.am.pollFirst();
+			if(candidate==null){
+				return;
+			}
+			if(fromA1in){
+				this.bytesInA1in -= candidate.pagesize;
+			} else if(candidate.referenced){
+				// second chance
+				candidate.referenced = false;
+				this.am.addLast(candidate);
+				continue;
+			}
+			switch(this.evict(candidate)){
+				case PINNED:
+					if(fromA1in){
+						this.a1in.addLast(candidate);
+						this.bytesInA1in += candidate.pagesize;
+					} else {
+						this.am.addLast(candidate);
+					}
+					break;
+				case EVICTED:
+					if(fromA1in){
+						this.a1out.put(candidate.pageaddress, Boolean.TRUE);
+						final long maxA1out = (BufferManager_Concurrent.MAXBYTESINBUFFER / PageManager.getDefaultPageSize()) * BufferManager_Concurrent.PERCENTAGEA1OUT / 100;
+						final Iterator<PageAddress> it = this.a1out.keySet().iterator();
+						while(this.a1out.size() > maxA1out && it.hasNext()){
+							it.next();
+							it.remove();
+						}
+					}
+					break;
+				default:
+					// already released
+					break;
+			}
+		}
+	}
+
+	protected static enum EVICTIONRESULT {
+		EVICTED, PINNED, ALREADYREMOVED
+	}
+
+	/**
+	 * evicts a page from the buffer (after writing it to disk if it has been modified)
+	 *
+	 * @param frame the frame of the page
+	 * @return whether the page has been evicted, is pinned (and hence not evicted) or has been already released before
+	 * @throws IOException
+	 */
+	protected EVICTIONRESULT evict(final Frame frame) throws IOException {
+		final Stripe stripe = this.getStripe(frame.pageaddress);
+		stripe.lock.lock();
+		try {
+			if(frame.removed){
+				return EVICTIONRESULT.ALREADYREMOVED;
+			}
+			if(frame.pins>0){
+				return EVICTIONRESULT.PINNED;
+			}
+			this.writeModifiedPage(frame);
+			stripe.frames.remove(frame.pageaddress);
+			stripe.version++;
+			frame.removed = true;
+			this.currentNumberOfBytesInBuffer.addAndGet(-frame.pagesize);
+			return EVICTIONRESULT.EVICTED;
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * reads a page from disk.
+	 * Only the file of the page is locked while reading, the lock of all files is only held for determining the file.
+	 *
+	 * @param pagesize the size of the page
+	 * @param pageaddress the address of the page
+	 * @param pageContent the array into which the page is read
+	 * @throws IOException
+	 */
+	protected void readPage(final int pagesize, final PageAddress pageaddress, final byte[] pageContent) throws IOException {
+		while(true){
+			final Quadruple<String, RandomAccessFile, Integer, String> fileData;
+			BufferManager_CachedFiles.lock.lock();
+			try {
+				fileData = this.getFile(pagesize, pageaddress);
+			} finally {
+				BufferManager_CachedFiles.lock.unlock();
+			}
+			final ReentrantLock fileLock = this.getFileLock(fileData.getFirst());
+			fileLock.lock();
+			try {
+				// a file is closed only while holding its lock, such that it stays open while reading if it is still open now
+				if(fileData.getSecond().getChannel().isOpen()){
+					fileData.getSecond().seek(fileData.getThird());
+					fileData.getSecond().read(pageContent);
+					return;
+				}
+			} finally {
+				fileLock.unlock();
+			}
+			// the file has been closed meanwhile because of too many opened files => determine (and open) it again
+		}
+	}
+
+	/**
+	 * returns the lock of a file
+	 *
+	 * @param filename the name of the file
+	 * @return the lock of the file
+	 */
+	protected ReentrantLock getFileLock(final String filename){
+		final ReentrantLock fileLock = this.fileLocks.get(filename);
+		if(fileLock!=null){
+			return fileLock;
+		}
+		final ReentrantLock newFileLock = new ReentrantLock();
+		final ReentrantLock previous = this.fileLocks.putIfAbsent(filename, newFileLock);
+		return (previous==null)? newFileLock : previous;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The file is closed while holding its lock, such that it is not closed while a page is read from it.
+	 */
+	@Override
+	protected void closeFile(final String filename, final RandomAccessFile file) throws IOException {
+		final ReentrantLock fileLock = this.getFileLock(filename);
+		fileLock.lock();
+		try {
+			file.close();
+		} finally {
+			fileLock.unlock();
+		}
+	}
+
+	/**
+	 * This method writes a page on disk if it has been modified.
+	 * It must be called while holding the lock of the stripe of the page.
+	 *
+	 * @param frame the frame of the page
+	 * @throws IOException
+	 */
+	protected void writeModifiedPage(final Frame frame) throws IOException {
+		if(frame.modified){
+			BufferManager_CachedFiles.lock.lock();
+			try {
+				final Quadruple<String, RandomAccessFile, Integer, String> fileData = this.getFile(frame.pagesize, frame.pageaddress);
+				final ReentrantLock fileLock = this.getFileLock(fileData.getFirst());
+				fileLock.lock();
+				try {
+					fileData.getSecond().seek(fileData.getThird());
+					fileData.getSecond().write(frame.page);
+				} finally {
+					fileLock.unlock();
+				}
+				frame.modified = false;
+			} finally {
+				BufferManager_CachedFiles.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * This method releases a page, i.e., its content does not need to be stored
+	 * on disk.
+	 */
+	@Override
+	public void releasePage(final PageAddress pageaddress) {
+		final Stripe stripe = this.getStripe(pageaddress);
+		stripe.lock.lock();
+		try {
+			final Frame frame = stripe.frames.remove(pageaddress);
+			if(frame!=null){
+				stripe.version++;
+				frame.removed = true;
+				frame.modified = false;
+				this.currentNumberOfBytesInBuffer.addAndGet(-frame.pagesize);
+			}
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * This method releases all pages, i.e., their contents do not need to be stored
+	 * on disk.
+	 */
+	@Override
+	public void releaseAllPages() {
+		this.replacementLock.lock();
+		try {
+			for(final Stripe stripe: this.stripes){
+				stripe.lock.lock();
+				try {
+					for(final Frame frame: stripe.frames.values()){
+						frame.removed = true;
+						frame.modified = false;
+						this.currentNumberOfBytesInBuffer.addAndGet(-frame.pagesize);
+					}
+					stripe.frames.clear();
+					stripe.version++;
+				} finally {
+					stripe.lock.unlock();
+				}
+			}
+			this.a1in.clear();
+			this.bytesInA1in = 0;
+			this.a1out.clear();
+			this.am.clear();
+		} finally {
+			this.replacementLock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * This method releases all pages of a basis filename, i.e., their contents do not need to be stored
+	 * on disk.
+	 */
+	@Override
+	public void releaseAllPages(final String filename) {
+		for(final Stripe stripe: this.stripes){
+			stripe.lock.lock();
+			try {
+				final LinkedList<PageAddress> pageAddresses = new LinkedList<PageAddress>();
+				for(final Map.Entry<PageAddress, Frame> entry: stripe.frames.entrySet()){
+					if(entry.getKey().filename.compareTo(filename)==0){
+						pageAddresses.add(entry.getKey());
+						entry.getValue().removed = true;
+						entry.getValue().modified = false;
+						this.currentNumberOfBytesInBuffer.addAndGet(-entry.getValue().pagesize);
+					}
+				}
+				for(final PageAddress pageAddress: pageAddresses){
+					stripe.frames.remove(pageAddress);
+				}
+				if(!pageAddresses.isEmpty()){
+					stripe.version++;
+				}
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+		// remove the released frames also from the queues of the replacement strategy
+		this.replacementLock.lock();
+		try {
+			final Iterator<Frame> it = this.a1in.iterator();
+			while(it.hasNext()){
+				final Frame frame = it.next();
+				if(frame.pageaddress.filename.compareTo(filename)==0){
+					it.remove();
+					this.bytesInA1in -= frame.pagesize;
+				}
+			}
+			final Iterator<Frame> itAm = this.am.iterator();
+			while(itAm.hasNext()){
+				if(itAm.next().pageaddress.filename.compareTo(filename)==0){
+					itAm.remove();
+				}
+			}
+			final Iterator<PageAddress> itA1out = this.a1out.keySet().iterator();
+			while(itA1out.hasNext()){
+				if(itA1out.next().filename.compareTo(filename)==0){
+					itA1out.remove();
+				}
+			}
+		} finally {
+			this.replacementLock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * This method writes all modified pages (in the buffer) to disk for a specific basis filename
+	 */
+	@Override
+	public void writeAllModifiedPages(final String filename) throws IOException {
+		for(final Stripe stripe: this.stripes){
+			stripe.lock.lock();
+			try {
+				for(final Frame frame: stripe.frames.values()){
+					if(frame.pageaddress.filename.compareTo(filename)==0){
+						this.writeModifiedPage(frame);
+					}
+				}
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * This method writes all modified pages (in the buffer) to disk
+	 */
+	@Override
+	public void writeAllModifiedPages() throws IOException {
+		for(final Stripe stripe: this.stripes){
+			stripe.lock.lock();
+			try {
+				for(final Frame frame: stripe.frames.values()){
+					this.writeModifiedPage(frame);
+				}
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * <p>getCurrentNumberOfBytesInBuffer.</p>
+	 *
+	 * @return the current number of bytes in the buffer
+	 */
+	public long getCurrentNumberOfBytesInBuffer() {
+		return this.currentNumberOfBytesInBuffer.get();
+	}
+
+	/**
+	 * <p>getMaxBytesInBuffer.</p>
+	 *
+	 * @return the max number of bytes in the buffer
+	 */
+	public static long getMaxBytesInBuffer() {
+		return BufferManager_Concurrent.MAXBYTESINBUFFER;
+	}
+
+	/**
+	 * <p>setMaxBytesInBuffer.</p>
+	 *
+	 * @param maxBytesInBuffer the max number of bytes in the buffer
+	 */
+	public static void setMaxBytesInBuffer(final long maxBytesInBuffer) {
+		BufferManager_Concurrent.MAXBYTESINBUFFER = maxBytesInBuffer;
+	}
+
+	/**
+	 * <p>getNumberOfStripes.</p>
+	 *
+	 * @return the number of stripes used for newly created buffer managers
+	 */
+	public static int getNumberOfStripes() {
+		return BufferManager_Concurrent.NUMBEROFSTRIPES;
+	}
+
+	/**
+	 * <p>setNumberOfStripes.</p>
+	 *
+	 * @param numberOfStripes the number of stripes used for newly created buffer managers
+	 */
+	public static void setNumberOfStripes(final int numberOfStripes) {
+		BufferManager_Concurrent.NUMBEROFSTRIPES = numberOfStripes;
+	}
+
+	/**
+	 * <p>setPercentageA1in.</p>
+	 *
+	 * @param percentageA1in the percentage of the buffer used for newly loaded pages (A1in queue of 2Q)
+	 */
+	public static void setPercentageA1in(final int percentageA1in) {
+		BufferManager_Concurrent.PERCENTAGEA1IN = percentageA1in;
+	}
+
+	/**
+	 * <p>setPercentageA1out.</p>
+	 *
+	 * @param percentageA1out the number of remembered page addresses (A1out queue of 2Q) in percentage of the pages fitting into the buffer
+	 */
+	public static void setPercentageA1out(final int percentageA1out) {
+		BufferManager_Concurrent.PERCENTAGEA1OUT = percentageA1out;
+	}
+}
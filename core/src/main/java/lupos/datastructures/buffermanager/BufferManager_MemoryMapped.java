@@ -25,36 +25,104 @@ package lupos.datastructures.buffermanager;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 import lupos.misc.Quadruple;
-import lupos.misc.Tuple;
 
 /**
  * This class is a buffer manager, which uses memory mapped files.
- * However, it seems to be that there is no advantage in comparison to BufferManager_RandomAccess
+ * Each file is mapped in regions of fixed size (see REGIONSIZE_IN_BYTES), such that the buffering is done by the page cache of the operating system.
+ * A region is mapped again only if a page behind the end of its current mapping is accessed, and its mapping then grows geometrically,
+ * such that appending pages to a file does not remap the whole file for each new page.
+ * The method getPageAsByteBuffer hands out read-only slices of the mapped files without copying the page,
+ * such that readers like PageInputStream decode their entries directly from the mapped file.
  *
  * @author groppe
  * @version $Id: $Id
  */
 public class BufferManager_MemoryMapped extends BufferManager_CachedFiles {
 
-	private Tuple<MappedByteBuffer, Integer> getByteBufferAndOffset(final int pagesize, final PageAddress pageaddress) throws IOException{
-		final Quadruple<String, RandomAccessFile, Integer, String> fileData = this.getFile(pagesize, pageaddress);
-		final MappedByteBuffer mbb = fileData.getSecond().getChannel().map(FileChannel.MapMode.READ_WRITE, fileData.getThird(), pagesize);
-		return new Tuple<MappedByteBuffer, Integer>(mbb, fileData.getThird());
+	/**
+	 * the maximum size of a mapped region of a file (should be a multiple of the page sizes, such that a page does not span two regions)
+	 */
+	public static int REGIONSIZE_IN_BYTES = 64 * 1024 * 1024;
+
+	/**
+	 * the mapped regions of the files (key is the filename as determined by getFile, the list contains the regions in the order of their offsets)
+	 */
+	protected final Map<String, ArrayList<MappedByteBuffer>> mappedFiles = new HashMap<String, ArrayList<MappedByteBuffer>>();
+
+	/**
+	 * Returns the mapped region of the file containing the given page and sets the position of the returned buffer to the beginning of the page.
+	 * The region is mapped again (with at least double size up to the region size) if the page is behind the end of its current mapping.
+	 * Mappings remain valid even if the file is closed by getFile because of too many opened files.
+	 * This method must be called while holding the lock.
+	 *
+	 * @param pagesize the size of a page
+	 * @param fileData the filename, file and offset of the page as determined by getFile
+	 * @return a duplicate of the mapped region, its position is the beginning of the page
+	 * @throws IOException
+	 */
+	private ByteBuffer getMappedRegion(final int pagesize, final Quadruple<String, RandomAccessFile, Integer, String> fileData) throws IOException {
+		ArrayList<MappedByteBuffer> regions = this.mappedFiles.get(fileData.getFirst());
+		if(regions==null){
+			regions = new ArrayList<MappedByteBuffer>();
+			this.mappedFiles.put(fileData.getFirst(), regions);
+		}
+		final int regionIndex = fileData.getThird() / BufferManager_MemoryMapped.REGIONSIZE_IN_BYTES;
+		final long regionStart = (long) regionIndex * BufferManager_MemoryMapped.REGIONSIZE_IN_BYTES;
+		final int offsetInRegion = (int) (fileData.getThird() - regionStart);
+		final int end = offsetInRegion + pagesize;
+		while(regions.size() <= regionIndex){
+			regions.add(null);
+		}
+		MappedByteBuffer mbb = regions.get(regionIndex);
+		if(mbb==null || mbb.capacity() < end){
+			final FileChannel channel = fileData.getSecond().getChannel();
+			// the last page of a region may exceed the region size if the region size is not a multiple of the page size
+			final int maxSize = Math.max(BufferManager_MemoryMapped.REGIONSIZE_IN_BYTES, end);
+			final long size;
+			if(mbb==null){
+				size = Math.min(maxSize, Math.max(end, channel.size() - regionStart));
+			} else {
+				size = Math.min(maxSize, Math.max(end, 2L * mbb.capacity()));
+			}
+			mbb = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, size);
+			regions.set(regionIndex, mbb);
+		}
+		final ByteBuffer result = mbb.duplicate();
+		result.position(offsetInRegion);
+		return result;
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public byte[] getPage(final int pagesize, final PageAddress pageaddress) throws IOException {
+		final ByteBuffer page = this.getPageAsByteBuffer(pagesize, pageaddress);
+		final byte result[] = new byte[pagesize];
+		page.get(result);
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The returned page is a read-only slice of the mapped file, i.e., the page is not copied.
+	 */
+	@Override
+	public ByteBuffer getPageAsByteBuffer(final int pagesize, final PageAddress pageaddress) throws IOException {
 		BufferManager_CachedFiles.lock.lock();
 		try {
-			final Tuple<MappedByteBuffer, Integer> bbao = this.getByteBufferAndOffset(pagesize, pageaddress);
-			final byte result[] = new byte[pagesize];
-			bbao.getFirst().get(result);
-			return result;
+			final Quadruple<String, RandomAccessFile, Integer, String> fileData = this.getFile(pagesize, pageaddress);
+			final ByteBuffer page = this.getMappedRegion(pagesize, fileData).asReadOnlyBuffer();
+			page.limit(page.position() + pagesize);
+			return page.slice();
 		} finally {
 			BufferManager_CachedFiles.lock.unlock();
 		}
@@ -65,8 +133,47 @@ public class BufferManager_MemoryMapped extends BufferManager_CachedFiles {
 	public void modifyPage(final int pagesize, final PageAddress pageaddress, final byte[] pageContent) throws IOException {
 		BufferManager_CachedFiles.lock.lock();
 		try {
-			final Tuple<MappedByteBuffer, Integer> bbao = this.getByteBufferAndOffset(pagesize, pageaddress);
-			bbao.getFirst().put(pageContent);
+			final Quadruple<String, RandomAccessFile, Integer, String> fileData = this.getFile(pagesize, pageaddress);
+			final ByteBuffer page = this.getMappedRegion(pagesize, fileData);
+			page.put(pageContent, 0, Math.min(pagesize, pageContent.length));
+		} finally {
+			BufferManager_CachedFiles.lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The mappings of the files are dropped, too.
+	 */
+	@Override
+	public void close() throws IOException {
+		BufferManager_CachedFiles.lock.lock();
+		try {
+			this.mappedFiles.clear();
+			super.close();
+		} finally {
+			BufferManager_CachedFiles.lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The mappings of the files are dropped, too.
+	 */
+	@Override
+	public void close(final String filename) throws IOException {
+		final String filenamePrefix = filename + "_";
+		BufferManager_CachedFiles.lock.lock();
+		try {
+			final Iterator<String> it = this.mappedFiles.keySet().iterator();
+			while(it.hasNext()){
+				if(it.next().startsWith(filenamePrefix)){
+					it.remove();
+				}
+			}
+			super.close(filename);
 		} finally {
 			BufferManager_CachedFiles.lock.unlock();
 		}
@@ -25,11 +25,15 @@ package lupos.datastructures.buffermanager;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 public class ContinousPagesInputStream extends InputStream {
 
 	protected final PageManager pageManager;
 
-	protected byte[] currentPage;
+	/**
+	 * the current page, which is a read-only view without copying in case of memory mapped files
+	 */
+	protected ByteBuffer currentPage;
 	protected int index;
 	protected int currentPageNumber;
 
@@ -56,19 +60,19 @@ public class ContinousPagesInputStream extends InputStream {
 	public ContinousPagesInputStream(final int pagenumber, final PageManager pageManager, final int index) throws IOException {
 		this.currentPageNumber = pagenumber;
 		this.pageManager = pageManager;
-		this.currentPage = pageManager.getPage(pagenumber);
+		this.currentPage = pageManager.getPageAsByteBuffer(pagenumber);
 		this.index = index;
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public int read() throws IOException {
-		if (this.index >= this.currentPage.length) {
+		if (this.index >= this.currentPage.limit()) {
 			this.currentPageNumber++;
-			this.currentPage = this.pageManager.getPage(this.currentPageNumber);
+			this.currentPage = this.pageManager.getPageAsByteBuffer(this.currentPageNumber);
 			this.index = 0;
 		}
-		return (0xFF & this.currentPage[this.index++]);
+		return (0xFF & this.currentPage.get(this.index++));
 	}
 
 
@@ -57,22 +57,22 @@ public class PageInputStream extends ContinousPagesInputStream {
 	}
 
 	private final void setMaxOnThisPage() {
-		this.maxOnThisPage = ((0xFF & this.currentPage[4]) << 8) | (0xFF & this.currentPage[5]);
+		this.maxOnThisPage = ((0xFF & this.currentPage.get(4)) << 8) | (0xFF & this.currentPage.get(5));
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public int read() throws IOException {
 		if (this.index >= this.maxOnThisPage) {
-			final int nextPage = (((0xFF & this.currentPage[0]) << 8 | (0xFF & this.currentPage[1])) << 8 | (0xFF & this.currentPage[2])) << 8 | (0xFF & this.currentPage[3]);
+			final int nextPage = (((0xFF & this.currentPage.get(0)) << 8 | (0xFF & this.currentPage.get(1))) << 8 | (0xFF & this.currentPage.get(2))) << 8 | (0xFF & this.currentPage.get(3));
 			if (nextPage == 0) {
 				return -1;
 			}
 			this.currentPageNumber = nextPage;
-			this.currentPage = this.pageManager.getPage(nextPage);
+			this.currentPage = this.pageManager.getPageAsByteBuffer(nextPage);
 			this.index = PageInputStream.DEFAULTSTARTINDEX;
 			this.setMaxOnThisPage();
 		}
-		return (0xFF & this.currentPage[this.index++]);
+		return (0xFF & this.currentPage.get(this.index++));
 	}
 }
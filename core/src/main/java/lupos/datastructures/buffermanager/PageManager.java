@@ -25,6 +25,7 @@ package lupos.datastructures.buffermanager;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import lupos.datastructures.buffermanager.BufferManager.PageAddress;
 
@@ -184,6 +185,19 @@ public class PageManager {
 		return this.bufferManager.getPage(this.pagesize, new PageAddress(pagenumber, this.filename));
 	}
 
+	/**
+	 * This method returns a read-only view of a page, which is not copied if the underlying buffer manager supports it
+	 * (see BufferManager_MemoryMapped). If the page is not in the buffer, it is loaded from disk and added to the buffer.
+	 *
+	 * @param pagenumber
+	 *            The number of the page to be retrieved.
+	 * @return a read-only view of the content of the page
+	 * @throws java.io.IOException if any.
+	 */
+	public ByteBuffer getPageAsByteBuffer(final int pagenumber) throws IOException {
+		return this.bufferManager.getPageAsByteBuffer(this.pagesize, new PageAddress(pagenumber, this.filename));
+	}
+
 	/**
 	 * This method modifies a page in the buffer. If the page does not exist so
 	 * far in the buffer it is added to the buffer and marked as modified.
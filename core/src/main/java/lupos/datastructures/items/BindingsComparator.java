@@ -27,6 +27,7 @@ import java.util.Collection;
 import java.util.Comparator;
 
 import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsArrayCodes;
 import lupos.datastructures.items.literal.Literal;
 public class BindingsComparator implements Comparator<Bindings>{
 	
@@ -44,6 +45,9 @@ public class BindingsComparator implements Comparator<Bindings>{
 	/** {@inheritDoc} */
 	@Override
 	public int compare(Bindings o1, Bindings o2) {
+		if (o1 instanceof BindingsArrayCodes && o2 instanceof BindingsArrayCodes) {
+			return this.compareCodes((BindingsArrayCodes) o1, (BindingsArrayCodes) o2);
+		}
 		for (final Variable var : this.variables) {
 			final Literal l1 = o1.get(var);
 			final Literal l2 = o2.get(var);
@@ -59,4 +63,36 @@ public class BindingsComparator implements Comparator<Bindings>{
 		return 0;
 	}
 
+	/**
+	 * Compares two bindings storing codes without creating Literal objects.
+	 * The result is the same as of {@link #compare(Bindings, Bindings)}, as LazyLiteral objects are compared according to their codes.
+	 *
+	 * @param o1 the first bindings
+	 * @param o2 the second bindings
+	 * @return the comparison result
+	 */
+	protected int compareCodes(final BindingsArrayCodes o1, final BindingsArrayCodes o2) {
+		for (final Variable var : this.variables) {
+			final int c1 = o1.getCode(var);
+			final int c2 = o2.getCode(var);
+			if (c1 != 0 && c2 != 0) {
+				if (c1 != c2) {
+					return Integer.compare(c1, c2);
+				}
+			} else {
+				// at least one of the variables is unbound or not stored as code
+				final Literal l1 = o1.get(var);
+				final Literal l2 = o2.get(var);
+				if (l1 != null && l2 != null) {
+					final int compare = l1.compareToNotNecessarilySPARQLSpecificationConform(l2);
+					if (compare != 0)
+						return compare;
+				} else if (l1 != null)
+					return -1;
+				else if (l2 != null)
+					return 1;
+			}
+		}
+		return 0;
+	}
 }
@@ -28,12 +28,21 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.net.URISyntaxException;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 import lupos.datastructures.buffermanager.BufferManager_CachedFiles;
 import lupos.datastructures.buffermanager.BufferManager_CachedFiles.REPLACEMENTSTRATEGY;
 import lupos.datastructures.items.literal.codemap.IntegerStringMap;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
 import lupos.datastructures.items.literal.codemap.StringIntegerMap;
+import lupos.datastructures.items.literal.codemap.StringIntegerMapJava;
+import lupos.datastructures.paged_dbbptree.DBBPTree;
+import lupos.datastructures.queryresult.ParallelIterator;
+import lupos.datastructures.queryresult.SIPParallelIterator;
 import lupos.io.helper.InputHelper;
 import lupos.io.helper.OutHelper;
 import lupos.sparql1_1.ASTBlankNode;
@@ -94,16 +103,21 @@ public class LazyLiteral extends Literal {
 		if (codeFromHashMap != null && codeFromHashMap != 0) {
 			this.code = codeFromHashMap.intValue();
 		} else {
-			lock.lock();
-			try {
-				this.code = v.size() + 1;
-				hm.put(content, new Integer(this.code));
-				if (this.code == Integer.MAX_VALUE) {
-					System.err.println("Literal code overflow! Not good!");
+			// literals already in the dictionary keep their codes (e.g. of indices constructed in bulk), such that each literal has a unique code
+			final int inlinedCode = OrderPreservingCodes.encode(content);
+			if (inlinedCode != 0) {
+				this.code = inlinedCode;
+			} else {
+				lock.lock();
+				try {
+					this.code = v.size() + 1;
+					// the dictionary must not be modified in the case of an overflow
+					OrderPreservingCodes.checkDictionaryCode(this.code);
+					hm.put(content, new Integer(this.code));
+					v.put(new Integer(this.code), content);
+				} finally{
+					lock.unlock();
 				}
-				v.put(new Integer(this.code), content);
-			} finally{
-				lock.unlock();
 			}
 		}
 	}
@@ -158,7 +172,7 @@ public class LazyLiteral extends Literal {
 		if (this.materializedLiteral == null) {
 			this.materializedLiteral = cache.get(this.code);
 			if(this.materializedLiteral==null){
-				this.materializedLiteral = getLiteral(lookup? v.get(this.code) : this.originalString());
+				this.materializedLiteral = getLiteral(lookup? getStringRepresentation(this.code) : this.originalString());
 				if(cache.size()>MAX_LITERALS_IN_CACHE){
 					final Integer r = replacementstrategy.getToBeReplaced();
 					cache.remove(r);
@@ -233,6 +247,19 @@ public class LazyLiteral extends Literal {
 	/** Constant <code>v</code> */
 	protected static IntegerStringMap v = null;
 
+	/**
+	 * Determines the string representation of a code, which is either decoded from an inlined literal or looked up in the dictionary
+	 *
+	 * @param code the code
+	 * @return the string representation of the literal with the given code
+	 */
+	public static String getStringRepresentation(final int code) {
+		if (OrderPreservingCodes.isInlined(code)) {
+			return OrderPreservingCodes.decode(code);
+		}
+		return v.get(code);
+	}
+
 	/**
 	 * <p>maxID.</p>
 	 *
@@ -278,6 +305,63 @@ public class LazyLiteral extends Literal {
 		LazyLiteral.v = v;
 	}
 
+	/**
+	 * Determines the smallest and the largest code of all string representations in the dictionary starting with a given prefix.
+	 * The dictionary is scanned in its sorted order beginning at the prefix, such that the returned range is exact independent
+	 * of whether or not the codes have been assigned in the sorted order of the string representations.
+	 *
+	 * @param prefix the prefix of the string representations
+	 * @param maxEntries the maximum number of matching dictionary entries to be scanned
+	 * @return the array { smallest code, largest code }, an empty array if no string representation starts with the prefix,
+	 * or null if the range cannot be determined (dictionary is not sorted or more than maxEntries entries match)
+	 */
+	@SuppressWarnings("unchecked")
+	public static int[] getCodeRangeOfPrefix(final String prefix, final int maxEntries) {
+		if (!(hm instanceof StringIntegerMapJava)) {
+			return null;
+		}
+		final Map<String, Integer> synchronizedMap = ((StringIntegerMapJava) hm).getMap();
+		final Map<String, Integer> original = ((StringIntegerMapJava) hm).getOriginalMap();
+		synchronized (synchronizedMap) {
+			final Iterator<Entry<String, Integer>> it;
+			Entry<String, Integer> entry;
+			if (original instanceof DBBPTree) {
+				final SIPParallelIterator<Entry<String, Integer>, String> sipIt = ((DBBPTree<String, Integer>) original).iterator();
+				entry = sipIt.next(prefix);
+				it = sipIt;
+			} else if (original instanceof SortedMap) {
+				it = ((SortedMap<String, Integer>) original).tailMap(prefix).entrySet().iterator();
+				entry = it.hasNext() ? it.next() : null;
+			} else {
+				return null;
+			}
+			try {
+				int min = Integer.MAX_VALUE;
+				int max = Integer.MIN_VALUE;
+				int number = 0;
+				while (entry != null && entry.getKey().startsWith(prefix)) {
+					number++;
+					if (number > maxEntries) {
+						return null;
+					}
+					final int code = entry.getValue();
+					entry = it.hasNext() ? it.next() : null;
+					if (code < min) {
+						min = code;
+					}
+					if (code > max) {
+						max = code;
+					}
+				}
+				return (min > max) ? new int[0] : new int[] { min, max };
+			} finally {
+				if (it instanceof ParallelIterator) {
+					((ParallelIterator<Entry<String, Integer>>) it).close();
+				}
+			}
+		}
+	}
+
 	/**
 	 * <p>getLiteral.</p>
 	 *
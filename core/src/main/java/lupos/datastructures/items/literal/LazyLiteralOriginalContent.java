@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
 import lupos.io.helper.InputHelper;
 import lupos.io.helper.OutHelper;
 
@@ -72,10 +73,9 @@ public class LazyLiteralOriginalContent extends LazyLiteral {
 			lock.lock();
 			try{
 				this.codeOriginalContent = v.size() + 1;
+				// the dictionary must not be modified in the case of an overflow
+				OrderPreservingCodes.checkDictionaryCode(this.codeOriginalContent);
 				hm.put(originalContent, new Integer(this.codeOriginalContent));
-				if (this.codeOriginalContent == Integer.MAX_VALUE) {
-					System.err.println("Literal code overflow! Not good!");
-				}
 				v.put(new Integer(this.codeOriginalContent), originalContent);
 			} finally{
 				lock.unlock();
@@ -99,10 +99,9 @@ public class LazyLiteralOriginalContent extends LazyLiteral {
 			lock.lock();
 			try{
 				this.codeOriginalContent = v.size() + 1;
+				// the dictionary must not be modified in the case of an overflow
+				OrderPreservingCodes.checkDictionaryCode(this.codeOriginalContent);
 				hm.put(originalContent, new Integer(this.codeOriginalContent));
-				if (this.codeOriginalContent == Integer.MAX_VALUE) {
-					System.err.println("Literal code overflow! Not good!");
-				}
 				v.put(new Integer(this.codeOriginalContent), originalContent);
 			} finally{
 				lock.unlock();
@@ -90,10 +90,11 @@ public class CodeMapLiteral extends Literal implements Item,
 				this.code = codeFromHashMap.intValue();
 			} else {
 				this.code = v.size() + 1;
-				hm.put(content, new Integer(this.code));
+				// the dictionary must not be modified in the case of an overflow
 				if (this.code == Integer.MAX_VALUE) {
-					System.err.println("Literal code overflow! Not good!");
+					throw new IllegalStateException("Literal code overflow!");
 				}
+				hm.put(content, new Integer(this.code));
 				v.put(new Integer(this.code), content);
 			}
 		}finally{
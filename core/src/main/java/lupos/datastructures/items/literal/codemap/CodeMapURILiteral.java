@@ -84,10 +84,11 @@ public class CodeMapURILiteral extends URILiteral implements Externalizable {
 				code = codeFromHashMap.intValue();
 			} else {
 				code = v.size() + 1;
-				hm.put(stringPrefix, new Integer(code));
+				// the dictionary must not be modified in the case of an overflow
 				if (code == Integer.MAX_VALUE) {
-					System.err.println("Literal code overflow! Not good!");
+					throw new IllegalStateException("Literal code overflow!");
 				}
+				hm.put(stringPrefix, new Integer(code));
 				v.put(new Integer(code), stringPrefix);
 			}
 		}finally{
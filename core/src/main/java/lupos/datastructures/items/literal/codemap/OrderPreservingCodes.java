@@ -0,0 +1,350 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.datastructures.items.literal.codemap;
+
+/**
+ * Order-preserving codes for typed literals, which are inlined directly into the code instead of being stored in the dictionary.
+ *
+ * The upper part of the code space (codes from FIRSTINLINEDCODE on) is reserved for inlined literals and is divided into one ID space per type:
+ * xsd:integer literals in the range [MININTEGER, MAXINTEGER] and xsd:dateTime literals in UTC (i.e., with time zone Z) without fractional seconds
+ * within about 17 years after DATETIMEEPOCH.
+ * Within the same ID space, the order of the codes is the order of the values,
+ * such that joins, ORDER BY and comparisons in filters on these literals are evaluated on their codes without decoding them.
+ * Only literals in their canonical lexical representation are inlined, such that different codes always represent different values.
+ * All other literals (including those, which are already contained in the dictionary) still get their codes from the dictionary.
+ *
+ * @author groppe
+ *
+ */
+public class OrderPreservingCodes {
+
+	/**
+	 * whether or not literals are inlined into their codes (must not be changed for existing indices containing inlined codes).
+	 * Inlining is disabled by default, as indices constructed without inlining may contain dictionary codes from FIRSTINLINEDCODE on.
+	 */
+	public static boolean INLINING = false;
+
+	/**
+	 * the point in time (in seconds since 1970-01-01T00:00:00Z), from which on xsd:dateTime literals are inlined
+	 * (must not be changed for existing indices containing inlined codes)
+	 */
+	public static long DATETIMEEPOCH = 1577836800L; // 2020-01-01T00:00:00Z
+
+	/**
+	 * the smallest code of an inlined literal (the codes of the dictionary must be smaller)
+	 */
+	public final static int FIRSTINLINEDCODE = 1 << 30;
+
+	/**
+	 * the bit distinguishing the ID space of xsd:integer (bit not set) from the one of xsd:dateTime (bit set)
+	 */
+	protected final static int DATETIMEBIT = 1 << 29;
+
+	/**
+	 * the smallest inlined xsd:integer value
+	 */
+	public final static int MININTEGER = -(1 << 28);
+
+	/**
+	 * the largest inlined xsd:integer value
+	 */
+	public final static int MAXINTEGER = (1 << 28) - 1;
+
+	/**
+	 * the largest inlined number of seconds after DATETIMEEPOCH (the largest code Integer.MAX_VALUE is not used)
+	 */
+	protected final static int MAXSECONDS = OrderPreservingCodes.DATETIMEBIT - 2;
+
+	/**
+	 * the string representation of an xsd:integer literal ends with this suffix
+	 */
+	protected final static String INTEGERSUFFIX = "\"^^<http://www.w3.org/2001/XMLSchema#integer>";
+
+	/**
+	 * the string representation of an xsd:dateTime literal ends with this suffix
+	 */
+	protected final static String DATETIMESUFFIX = "\"^^<http://www.w3.org/2001/XMLSchema#dateTime>";
+
+	/**
+	 * Checks whether or not a code is an inlined literal
+	 *
+	 * @param code the code to be checked
+	 * @return true if the literal is inlined into the code, false if it is a code of the dictionary
+	 */
+	public static boolean isInlined(final int code){
+		return OrderPreservingCodes.INLINING && code >= OrderPreservingCodes.FIRSTINLINEDCODE;
+	}
+
+	/**
+	 * Checks whether or not a new code of the dictionary can be used, i.e., it is positive (0 is an error code in the dictionary),
+	 * smaller than Integer.MAX_VALUE and does not collide with the codes of inlined literals
+	 *
+	 * @param code the new code of the dictionary
+	 * @return true if the code can be used, false in the case of an overflow of the codes of the dictionary
+	 */
+	public static boolean isValidDictionaryCode(final int code){
+		return code > 0 && code < Integer.MAX_VALUE && !OrderPreservingCodes.isInlined(code);
+	}
+
+	/**
+	 * Checks a new code of the dictionary before it is used
+	 *
+	 * @param code the new code of the dictionary
+	 * @throws IllegalStateException in the case of an overflow of the codes of the dictionary
+	 */
+	public static void checkDictionaryCode(final int code){
+		if(!OrderPreservingCodes.isValidDictionaryCode(code)){
+			throw new IllegalStateException("Literal code overflow: The dictionary code " + code + " is " + ((OrderPreservingCodes.INLINING)? "reserved for inlined literals!" : "out of range!"));
+		}
+	}
+
+	/**
+	 * Checks the codes 1 to size of a dictionary constructed in bulk before they are used
+	 *
+	 * @param size the number of entries of the dictionary
+	 * @throws IllegalStateException in the case of an overflow of the codes of the dictionary
+	 */
+	public static void checkDictionarySize(final int size){
+		if(size > 0){
+			OrderPreservingCodes.checkDictionaryCode(size);
+		}
+	}
+
+	/**
+	 * Checks whether or not the order of two codes is the order of the values of their literals
+	 *
+	 * @param code1 the first code
+	 * @param code2 the second code
+	 * @return true if both codes are inlined literals of the same ID space
+	 */
+	public static boolean isOrderPreserving(final int code1, final int code2){
+		return OrderPreservingCodes.isInlined(code1) && OrderPreservingCodes.isInlined(code2) && ((code1 ^ code2) & OrderPreservingCodes.DATETIMEBIT) == 0;
+	}
+
+	/**
+	 * Checks whether or not the lexical representation of an inlined literal may start with a given prefix
+	 *
+	 * @param prefix the prefix
+	 * @return true if there may be inlined literals the lexical representation of which starts with the given prefix
+	 */
+	public static boolean mayBeInlined(final String prefix){
+		if(!OrderPreservingCodes.INLINING){
+			return false;
+		}
+		if(prefix.length() == 0){
+			return true;
+		}
+		final char c = prefix.charAt(0);
+		return c == '-' || (c >= '0' && c <= '9');
+	}
+
+	/**
+	 * Determines the inlined code of a literal
+	 *
+	 * @param rdfTerm the string representation of the literal
+	 * @return the inlined code, or 0 if the literal cannot be inlined
+	 */
+	public static int encode(final String rdfTerm){
+		if(!OrderPreservingCodes.INLINING || rdfTerm.length() < 2 || rdfTerm.charAt(0) != '"'){
+			return 0;
+		}
+		if(rdfTerm.endsWith(OrderPreservingCodes.INTEGERSUFFIX)){
+			return OrderPreservingCodes.encodeInteger(rdfTerm.substring(1, rdfTerm.length() - OrderPreservingCodes.INTEGERSUFFIX.length()));
+		}
+		if(rdfTerm.endsWith(OrderPreservingCodes.DATETIMESUFFIX)){
+			return OrderPreservingCodes.encodeDateTime(rdfTerm.substring(1, rdfTerm.length() - OrderPreservingCodes.DATETIMESUFFIX.length()));
+		}
+		return 0;
+	}
+
+	/**
+	 * Determines the string representation of an inlined literal
+	 *
+	 * @param code the inlined code
+	 * @return the string representation of the literal
+	 */
+	public static String decode(final int code){
+		final int payload = code - OrderPreservingCodes.FIRSTINLINEDCODE;
+		if((payload & OrderPreservingCodes.DATETIMEBIT) == 0){
+			return "\"" + (payload + OrderPreservingCodes.MININTEGER) + OrderPreservingCodes.INTEGERSUFFIX;
+		} else {
+			return "\"" + OrderPreservingCodes.toDateTime(OrderPreservingCodes.DATETIMEEPOCH + (payload & ~OrderPreservingCodes.DATETIMEBIT)) + OrderPreservingCodes.DATETIMESUFFIX;
+		}
+	}
+
+	/**
+	 * Checks whether or not a code is an inlined xsd:integer literal
+	 *
+	 * @param code the code to be checked
+	 * @return true if the code is an inlined xsd:integer literal
+	 */
+	public static boolean isInlinedInteger(final int code){
+		return OrderPreservingCodes.isInlined(code) && ((code - OrderPreservingCodes.FIRSTINLINEDCODE) & OrderPreservingCodes.DATETIMEBIT) == 0;
+	}
+
+	/**
+	 * Determines the value of an inlined xsd:integer literal without materializing it
+	 *
+	 * @param code the inlined code of an xsd:integer literal (see isInlinedInteger(...))
+	 * @return the integer value
+	 */
+	public static long decodeInteger(final int code){
+		return (long) (code - OrderPreservingCodes.FIRSTINLINEDCODE) + OrderPreservingCodes.MININTEGER;
+	}
+
+	/**
+	 * Determines the inlined code of an xsd:integer value
+	 *
+	 * @param value the integer value
+	 * @return the inlined code, or 0 if inlining is switched off or the value is out of range
+	 */
+	public static int encodeInteger(final long value){
+		if(!OrderPreservingCodes.INLINING || value < OrderPreservingCodes.MININTEGER || value > OrderPreservingCodes.MAXINTEGER){
+			return 0;
+		}
+		return OrderPreservingCodes.FIRSTINLINEDCODE + (int) (value - OrderPreservingCodes.MININTEGER);
+	}
+
+	/**
+	 * @param lexical the lexical representation of an xsd:integer literal
+	 * @return the inlined code, or 0 if the value is out of range or the lexical representation is not the canonical one
+	 */
+	protected static int encodeInteger(final String lexical){
+		final int length = lexical.length();
+		if(length == 0 || length > 10){
+			return 0;
+		}
+		for(int i = (lexical.charAt(0) == '-') ? 1 : 0; i < length; i++){
+			final char c = lexical.charAt(i);
+			if(c < '0' || c > '9'){
+				return 0;
+			}
+		}
+		final long value;
+		try {
+			value = Long.parseLong(lexical);
+		} catch(final NumberFormatException e){
+			return 0;
+		}
+		if(value < OrderPreservingCodes.MININTEGER || value > OrderPreservingCodes.MAXINTEGER || !Long.toString(value).equals(lexical)){
+			return 0;
+		}
+		return OrderPreservingCodes.FIRSTINLINEDCODE + (int) (value - OrderPreservingCodes.MININTEGER);
+	}
+
+	/**
+	 * @param lexical the lexical representation of an xsd:dateTime literal
+	 * @return the inlined code, or 0 if the value is out of range or the lexical representation is not of the form YYYY-MM-DDThh:mm:ssZ
+	 */
+	protected static int encodeDateTime(final String lexical){
+		if(lexical.length() != 20 || lexical.charAt(4) != '-' || lexical.charAt(7) != '-' || lexical.charAt(10) != 'T' || lexical.charAt(13) != ':' || lexical.charAt(16) != ':' || lexical.charAt(19) != 'Z'){
+			return 0;
+		}
+		final int year = OrderPreservingCodes.parseDigits(lexical, 0, 4);
+		final int month = OrderPreservingCodes.parseDigits(lexical, 5, 7);
+		final int day = OrderPreservingCodes.parseDigits(lexical, 8, 10);
+		final int hour = OrderPreservingCodes.parseDigits(lexical, 11, 13);
+		final int minute = OrderPreservingCodes.parseDigits(lexical, 14, 16);
+		final int second = OrderPreservingCodes.parseDigits(lexical, 17, 19);
+		if(year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0){
+			return 0;
+		}
+		final long seconds = OrderPreservingCodes.daysFromCivil(year, month, day) * 86400L + hour * 3600L + minute * 60L + second - OrderPreservingCodes.DATETIMEEPOCH;
+		if(seconds < 0 || seconds > OrderPreservingCodes.MAXSECONDS){
+			return 0;
+		}
+		// invalid dates like 2021-02-30 or hours like 24 are not represented in their original form
+		if(!OrderPreservingCodes.toDateTime(OrderPreservingCodes.DATETIMEEPOCH + seconds).equals(lexical)){
+			return 0;
+		}
+		return OrderPreservingCodes.FIRSTINLINEDCODE + OrderPreservingCodes.DATETIMEBIT + (int) seconds;
+	}
+
+	/**
+	 * @return the value of the decimal digits between start (inclusive) and end (exclusive), or -1 if there is any other character
+	 */
+	private static int parseDigits(final String s, final int start, final int end){
+		int result = 0;
+		for(int i = start; i < end; i++){
+			final char c = s.charAt(i);
+			if(c < '0' || c > '9'){
+				return -1;
+			}
+			result = result * 10 + (c - '0');
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of days since 1970-01-01 of the given date of the proleptic gregorian calendar
+	 */
+	private static long daysFromCivil(final int year, final int month, final int day){
+		final long y = (month <= 2) ? year - 1 : year;
+		final long era = ((y >= 0) ? y : y - 399) / 400;
+		final long yearOfEra = y - era * 400;
+		final long dayOfYear = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+		final long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * @param seconds the seconds since 1970-01-01T00:00:00Z
+	 * @return the lexical representation YYYY-MM-DDThh:mm:ssZ of the given point in time
+	 */
+	private static String toDateTime(final long seconds){
+		final long days = Math.floorDiv(seconds, 86400L);
+		final int secondsOfDay = (int) Math.floorMod(seconds, 86400L);
+		final long z = days + 719468;
+		final long era = ((z >= 0) ? z : z - 146096) / 146097;
+		final long dayOfEra = z - era * 146097;
+		final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		final long mp = (5 * dayOfYear + 2) / 153;
+		final int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+		final int month = (int) ((mp < 10) ? mp + 3 : mp - 9);
+		final long year = yearOfEra + era * 400 + ((month <= 2) ? 1 : 0);
+		final StringBuilder sb = new StringBuilder(20);
+		OrderPreservingCodes.appendDigits(sb, year, 4);
+		sb.append('-');
+		OrderPreservingCodes.appendDigits(sb, month, 2);
+		sb.append('-');
+		OrderPreservingCodes.appendDigits(sb, day, 2);
+		sb.append('T');
+		OrderPreservingCodes.appendDigits(sb, secondsOfDay / 3600, 2);
+		sb.append(':');
+		OrderPreservingCodes.appendDigits(sb, (secondsOfDay / 60) % 60, 2);
+		sb.append(':');
+		OrderPreservingCodes.appendDigits(sb, secondsOfDay % 60, 2);
+		sb.append('Z');
+		return sb.toString();
+	}
+
+	private static void appendDigits(final StringBuilder sb, final long value, final int digits){
+		final String s = Long.toString(value);
+		for(int i = s.length(); i < digits; i++){
+			sb.append('0');
+		}
+		sb.append(s);
+	}
+}
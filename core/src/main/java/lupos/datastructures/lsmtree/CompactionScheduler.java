@@ -0,0 +1,219 @@
+package lupos.datastructures.lsmtree;
+
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Scheduler for flushing memory levels and merging disk levels of LSM trees in the background.
+ * All LSM trees share the same pool of compaction threads, such that the compactions of different LSM trees (e.g. the six collation orders of the evaluation indices) run concurrently.
+ *
+ * Structural modifications of the levels (i.e., publishing a new run or releasing already merged runs) are protected by a write lock,
+ * while point lookups and each step of iterators hold the corresponding read lock.
+ * Each acquisition of the write lock increments the structure version, such that iterators detect that runs they have read from might have been released meanwhile.
+ * Runs under construction are not visible to readers, such that the write lock is only held for a short time.
+ *
+ * @author groppe
+ *
+ */
+public class CompactionScheduler {
+
+	/**
+	 * The number of threads compacting LSM trees in the background
+	 */
+	public static int NUMBEROFTHREADS = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The maximum number of entries per second written by all compaction threads together into disk runs (0 for no rate limit)
+	 */
+	public static long MAXENTRIESPERSECOND = 0;
+
+	/**
+	 * The number of entries after which the rate limit is checked
+	 */
+	protected final static int ENTRIESPERCHECK = 1024;
+
+	/**
+	 * The lock protecting the structure of the levels of all LSM trees
+	 */
+	protected final static ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * The number of acquisitions of the write lock, i.e., the version of the structure of the levels of all LSM trees
+	 */
+	private static volatile long structureVersion = 0;
+
+	/**
+	 * The write lock, which increments the structure version whenever it is acquired
+	 */
+	protected final static Lock writeLock = new Lock(){
+
+		@Override
+		public void lock() {
+			CompactionScheduler.lock.writeLock().lock();
+			CompactionScheduler.structureVersion++;
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException {
+			CompactionScheduler.lock.writeLock().lockInterruptibly();
+			CompactionScheduler.structureVersion++;
+		}
+
+		@Override
+		public boolean tryLock() {
+			if(CompactionScheduler.lock.writeLock().tryLock()){
+				CompactionScheduler.structureVersion++;
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public boolean tryLock(final long time, final TimeUnit unit) throws InterruptedException {
+			if(CompactionScheduler.lock.writeLock().tryLock(time, unit)){
+				CompactionScheduler.structureVersion++;
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public void unlock() {
+			CompactionScheduler.lock.writeLock().unlock();
+		}
+
+		@Override
+		public Condition newCondition() {
+			return CompactionScheduler.lock.writeLock().newCondition();
+		}
+	};
+
+	/**
+	 * The point in time (in nanoseconds) from which on the next entries may be written according to the rate limit
+	 */
+	private static long nextFreeTime = 0;
+
+	/**
+	 * the executor running the compactions (lazily created)
+	 */
+	private static ExecutorService executor = null;
+
+	/**
+	 * Submits a compaction task to be executed in the background
+	 *
+	 * @param task the compaction task
+	 * @return the future of the compaction task, which can be used to wait for finishing the compaction
+	 */
+	public static synchronized Future<?> submit(final Runnable task){
+		if(CompactionScheduler.executor==null){
+			CompactionScheduler.executor = Executors.newFixedThreadPool(Math.max(1, CompactionScheduler.NUMBEROFTHREADS), new ThreadFactory(){
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new CompactionThread(runnable);
+					// do not prevent the program from exiting
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return CompactionScheduler.executor.submit(task);
+	}
+
+	/**
+	 * @return the lock to be held during reading the levels of LSM trees
+	 */
+	public static Lock readLock(){
+		return CompactionScheduler.lock.readLock();
+	}
+
+	/**
+	 * @return the lock to be held during modifying the structure of the levels of LSM trees
+	 */
+	public static Lock writeLock(){
+		return CompactionScheduler.writeLock;
+	}
+
+	/**
+	 * @return the version of the structure of the levels of all LSM trees (to be read while holding the read lock)
+	 */
+	public static long getStructureVersion(){
+		return CompactionScheduler.structureVersion;
+	}
+
+	/**
+	 * Limits the rate of the entries returned by the given iterator according to MAXENTRIESPERSECOND,
+	 * if it is called by a compaction thread (i.e., inserts in the foreground are never throttled)
+	 *
+	 * @param iterator the iterator the entries of which are written into a disk run
+	 * @return the iterator returning the same entries as the given one, but with limited rate
+	 */
+	public static<E> Iterator<E> throttle(final Iterator<E> iterator){
+		if(CompactionScheduler.MAXENTRIESPERSECOND<=0 || !(Thread.currentThread() instanceof CompactionThread)){
+			return iterator;
+		}
+		return new Iterator<E>(){
+
+			private int counter = 0;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public E next() {
+				this.counter++;
+				if(this.counter==CompactionScheduler.ENTRIESPERCHECK){
+					this.counter = 0;
+					CompactionScheduler.acquire(CompactionScheduler.ENTRIESPERCHECK);
+				}
+				return iterator.next();
+			}
+		};
+	}
+
+	/**
+	 * Waits until the given number of entries may be written according to the rate limit
+	 *
+	 * @param entries the number of entries to be written
+	 */
+	protected static void acquire(final int entries){
+		final long maxEntriesPerSecond = CompactionScheduler.MAXENTRIESPERSECOND;
+		if(maxEntriesPerSecond<=0){
+			return;
+		}
+		final long waitingTime;
+		synchronized(CompactionScheduler.class){
+			final long now = System.nanoTime();
+			if(CompactionScheduler.nextFreeTime<now){
+				CompactionScheduler.nextFreeTime = now;
+			}
+			waitingTime = CompactionScheduler.nextFreeTime - now;
+			CompactionScheduler.nextFreeTime += (entries * 1000000000L) / maxEntriesPerSecond;
+		}
+		if(waitingTime>0){
+			try {
+				Thread.sleep(waitingTime / 1000000, (int) (waitingTime % 1000000));
+			} catch (final InterruptedException e) {
+				// the compaction continues without waiting, but the interruption is not lost
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * The threads running the compactions
+	 */
+	private static class CompactionThread extends Thread {
+		public CompactionThread(final Runnable runnable){
+			super(runnable, "LSM tree compaction");
+		}
+	}
+}
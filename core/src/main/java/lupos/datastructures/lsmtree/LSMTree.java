@@ -1,6 +1,7 @@
 package lupos.datastructures.lsmtree;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -8,9 +9,15 @@ import java.net.URISyntaxException;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
+import lupos.datastructures.buffermanager.BufferManager;
 import lupos.datastructures.lsmtree.debug.IKeyValuePrinter;
 import lupos.datastructures.lsmtree.level.Container;
+import lupos.datastructures.lsmtree.level.ILevel;
 import lupos.datastructures.lsmtree.level.factory.DiskLevelFactory;
 import lupos.datastructures.lsmtree.level.factory.ILevelFactory;
 import lupos.datastructures.lsmtree.level.factory.MemoryLevelFactory;
@@ -42,10 +49,10 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	protected final String name;
 
 	/**
-	 * the first level, which is a memory level
-	 *
+	 * the first level, which is a memory level.
+	 * It is replaced only while holding the write lock of the CompactionScheduler.
 	 */
-	protected IMemoryLevel<K,V,R> level0;
+	protected volatile IMemoryLevel<K,V,R> level0;
 
 	/**
 	 * level factory creating new levels
@@ -53,6 +60,25 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	 */
 	protected final ILevelFactory<K,V,R> levelFactory;
 
+	/**
+	 * Whether or not full memory levels are flushed and the disk levels are merged in the background by the CompactionScheduler.
+	 * Otherwise the inserting thread flushes and merges the levels.
+	 */
+	public static boolean BACKGROUNDCOMPACTION = true;
+
+	/**
+	 * the currently running compaction in the background (or null if there is none)
+	 */
+	protected final AtomicReference<Future<?>> compaction = new AtomicReference<Future<?>>();
+
+	/**
+	 * the failure of a compaction in the background (or null if no compaction has failed).
+	 * After a failed flush, the memory level, which could not be flushed, is still the next level of the first level.
+	 * Hence, this LSM tree cannot be modified anymore (as otherwise the memory level would be treated like a disk level),
+	 * and each further modification rethrows the failure.
+	 */
+	protected final AtomicReference<Throwable> compactionFailure = new AtomicReference<Throwable>();
+
 	/**
 	 * Constructor setting the level factory and creating the first level
 	 *
@@ -91,14 +117,115 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	* @param K the key
 	* @param V the value
 	* @return boolean if insert was successful
+	* @throws java.io.IOException also if a previous compaction in the background has failed
 	* @throws java.io.IOException
 	* @throws java.lang.ClassNotFoundException
 	* @throws java.net.URISyntaxException
 	*/
 	public boolean put(final K key, final V value) throws ClassNotFoundException, IOException, URISyntaxException{
+		this.prepareInsertion();
 		return this.level0.put(key,new Container<V>(value,false));
 	}
 
+	/**
+	 * If the memory level is full and background compaction is enabled, a new memory level replaces the full one, which is flushed in the background.
+	 * The full memory level remains searchable until its entries are published in the disk levels.
+	 * At most one memory level is flushed at the same time: If the previous flush has not been finished yet, this method waits for it (write stall).
+	 * The new memory level is published under the write lock of the CompactionScheduler, such that readers either see the old or the new level structure.
+	 */
+	protected void prepareInsertion() throws IOException {
+		this.checkCompactionFailure();
+		if(!LSMTree.BACKGROUNDCOMPACTION || !this.level0.isFull()){
+			return;
+		}
+		synchronized(this){
+			if(!this.level0.isFull()){
+				return;
+			}
+			this.waitForCompaction();
+			final IMemoryLevel<K,V,R> fullLevel0 = this.level0;
+			final ILevel<K,V,R> oldNextLevel = fullLevel0.getNextLevel();
+			final ILevel<K,V,R> diskLevels = (oldNextLevel==null)? this.levelFactory.createLevel(1) : oldNextLevel;
+			final IMemoryLevel<K,V,R> newLevel0 = this.levelFactory.createLevel0();
+			newLevel0.setNextLevel(fullLevel0);
+			CompactionScheduler.writeLock().lock();
+			try {
+				fullLevel0.setNextLevel(diskLevels);
+				this.level0 = newLevel0;
+			} finally {
+				CompactionScheduler.writeLock().unlock();
+			}
+			this.compaction.set(CompactionScheduler.submit(new Runnable(){
+				@Override
+				public void run() {
+					try {
+						diskLevels.receiveRunFromLowerLevel(fullLevel0.rollOut());
+						CompactionScheduler.writeLock().lock();
+						try {
+							newLevel0.setNextLevel(diskLevels);
+						} finally {
+							CompactionScheduler.writeLock().unlock();
+						}
+						fullLevel0.release();
+					} catch (ClassNotFoundException | IOException | URISyntaxException | RuntimeException e) {
+						// the full memory level remains searchable, but it is rethrown by the next modification
+						LSMTree.this.compactionFailure.compareAndSet(null, e);
+					}
+				}
+			}));
+		}
+	}
+
+	/**
+	 * Throws an IOException if a compaction in the background has failed
+	 *
+	 * @throws IOException if a compaction in the background has failed
+	 */
+	protected void checkCompactionFailure() throws IOException {
+		final Throwable failure = this.compactionFailure.get();
+		if(failure!=null){
+			throw new IOException("Compaction of the LSM tree " + this.name + " in the background failed", failure);
+		}
+	}
+
+	/**
+	 * Waits until the compaction running in the background (if there is any) is finished.
+	 * This is done before operations needing a quiescent level structure (e.g. clearing or writing this LSM tree to disk).
+	 * Iterators do not need to wait, as they detect modifications of the level structure (see ReopeningSIPIterator).
+	 *
+	 * @throws IOException if the compaction has failed (now or before) or the current thread has been interrupted while waiting
+	 */
+	public void waitForCompaction() throws IOException {
+		final Future<?> currentCompaction = this.compaction.get();
+		if(currentCompaction!=null){
+			try {
+				currentCompaction.get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				final InterruptedIOException interruptedIOException = new InterruptedIOException("Interrupted while waiting for the compaction of the LSM tree " + this.name);
+				interruptedIOException.initCause(e);
+				throw interruptedIOException;
+			} catch (final ExecutionException e) {
+				this.compactionFailure.compareAndSet(null, e.getCause());
+			}
+			// do not forget a compaction started meanwhile
+			this.compaction.compareAndSet(currentCompaction, null);
+		}
+		this.checkCompactionFailure();
+	}
+
+	/**
+	 * Waits until the compaction running in the background (if there is any) is finished
+	 * for methods, which cannot throw checked exceptions
+	 */
+	protected void waitForCompactionUnchecked(){
+		try {
+			this.waitForCompaction();
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	* Returns the value that belongs to the key
 	* Checks if value was removed in which case it will return null
@@ -110,7 +237,13 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	* @throws java.net.URISyntaxException
 	*/
 	public V get(final K key) throws ClassNotFoundException, IOException, URISyntaxException {
-		final Container<V> container = this.level0.get(key);
+		final Container<V> container;
+		CompactionScheduler.readLock().lock();
+		try {
+			container = this.level0.get(key);
+		} finally {
+			CompactionScheduler.readLock().unlock();
+		}
 		if(container==null || container.isDeleted()){
 			return null;
 		} else {
@@ -126,7 +259,7 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	 * @return the result of the prefix search in form of a ISIPIterator
 	 */
 	public ISIPIterator<K, V> prefixSearch(final Comparator<K> prefixComparator, final K prefixkey){
-		return new RemoveDeletedEntriesSIPIterator<K, V>(this.levelFactory.getComparator(), this.level0.prefixSearch(prefixComparator, prefixkey));
+		return new RemoveDeletedEntriesSIPIterator<K, V>(this.levelFactory.getComparator(), new ReopeningSIPIterator(prefixComparator, prefixkey));
 	}
 
 	/**
@@ -137,7 +270,7 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	 * @return the result of the prefix search in form of a SIPParallelIterator
 	 */
 	public SIPParallelIterator<java.util.Map.Entry<K, V>, K> prefixSearchSIPParallelIterator(final Comparator<K> prefixComparator, final K prefixkey){
-		return new RemoveDeletedEntriesSIPIterator<K, V>(this.levelFactory.getComparator(), this.level0.prefixSearch(prefixComparator, prefixkey));
+		return new RemoveDeletedEntriesSIPIterator<K, V>(this.levelFactory.getComparator(), new ReopeningSIPIterator(prefixComparator, prefixkey));
 	}
 
 	/**
@@ -147,7 +280,7 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	 */
 	public ISIPIterator<K, V> isipIterator(){
 		final Comparator<K> ordinaryComparator = this.levelFactory.getComparator();
-		return new RemoveDeletedEntriesSIPIterator<K, V>(ordinaryComparator, this.level0.prefixSearch(getPrefixComparatorForNullPrefixKeys(ordinaryComparator), null));
+		return new RemoveDeletedEntriesSIPIterator<K, V>(ordinaryComparator, new ReopeningSIPIterator(getPrefixComparatorForNullPrefixKeys(ordinaryComparator), null));
 	}
 
 	/**
@@ -158,7 +291,146 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	@Override
 	public SIPParallelIterator<java.util.Map.Entry<K, V>, K> iterator(){
 		final Comparator<K> ordinaryComparator = this.levelFactory.getComparator();
-		return new RemoveDeletedEntriesSIPIterator<K, V>(ordinaryComparator, this.level0.prefixSearch(getPrefixComparatorForNullPrefixKeys(ordinaryComparator), null));
+		return new RemoveDeletedEntriesSIPIterator<K, V>(ordinaryComparator, new ReopeningSIPIterator(getPrefixComparatorForNullPrefixKeys(ordinaryComparator), null));
+	}
+
+	/**
+	 * Iterator over all levels of this LSM tree, each step of which is done while holding the read lock of the CompactionScheduler,
+	 * such that no run read by this iterator is released during a step.
+	 * If the level structure has been modified since the last step (e.g. a flushed memory level or merged runs have been published and the old runs released),
+	 * the iterator is created again over the current levels and continues after the last returned key.
+	 * Hence, iterators do not block until pending compactions are finished.
+	 */
+	protected class ReopeningSIPIterator implements ISIPIterator<K, Container<V>> {
+
+		/**
+		 * the comparator used during the prefix search
+		 */
+		protected final Comparator<K> prefixComparator;
+
+		/**
+		 * the prefix key
+		 */
+		protected final K prefixkey;
+
+		/**
+		 * the iterator over the levels of the structure version this.structureVersion
+		 */
+		protected ISIPIterator<K, Container<V>> iterator;
+
+		/**
+		 * the structure version of the levels this.iterator has been created for
+		 */
+		protected long structureVersion;
+
+		/**
+		 * the key of the last returned entry (or null if no entry has been returned so far)
+		 */
+		protected K lastKey = null;
+
+		/**
+		 * Just to intermediately store an entry if needed
+		 */
+		protected Entry<K, Container<V>> nextEntry = null;
+
+		/**
+		 * Constructor
+		 *
+		 * @param prefixComparator the comparator used during the prefix search
+		 * @param prefixkey the prefix key
+		 */
+		public ReopeningSIPIterator(final Comparator<K> prefixComparator, final K prefixkey){
+			this.prefixComparator = prefixComparator;
+			this.prefixkey = prefixkey;
+			CompactionScheduler.readLock().lock();
+			try {
+				this.open();
+			} finally {
+				CompactionScheduler.readLock().unlock();
+			}
+		}
+
+		/**
+		 * Creates the iterator over the current levels (the read lock must be held)
+		 */
+		private void open(){
+			this.structureVersion = CompactionScheduler.getStructureVersion();
+			this.iterator = LSMTree.this.level0.prefixSearch(this.prefixComparator, this.prefixkey);
+		}
+
+		@Override
+		public boolean hasNext() {
+			if(this.nextEntry==null){
+				this.nextEntry = this.next();
+			}
+			return (this.nextEntry!=null);
+		}
+
+		@Override
+		public Entry<K, Container<V>> next() {
+			if(this.nextEntry!=null){
+				final Entry<K, Container<V>> result = this.nextEntry;
+				this.nextEntry = null;
+				return result;
+			}
+			return this.step(null);
+		}
+
+		@Override
+		public Entry<K, Container<V>> next(final K k) {
+			if(this.nextEntry!=null){
+				final Entry<K, Container<V>> result = this.nextEntry;
+				this.nextEntry = null;
+				if(LSMTree.this.levelFactory.getComparator().compare(result.getKey(), k)>=0){
+					return result;
+				}
+			}
+			return this.step(k);
+		}
+
+		/**
+		 * Determines the next entry under the read lock, such that the iterated runs cannot be released meanwhile
+		 *
+		 * @param k the next returned entry must contain a key, which is equal to or greater than k (or null for the next entry)
+		 * @return the next entry
+		 */
+		private Entry<K, Container<V>> step(final K k){
+			final Comparator<K> comparator = LSMTree.this.levelFactory.getComparator();
+			CompactionScheduler.readLock().lock();
+			try {
+				Entry<K, Container<V>> result;
+				if(this.structureVersion!=CompactionScheduler.getStructureVersion()){
+					this.open();
+					if(this.lastKey!=null){
+						// continue after the last returned key
+						result = this.iterator.next(this.lastKey);
+						if(result!=null && comparator.compare(result.getKey(), this.lastKey)==0){
+							result = this.iterator.next();
+						}
+						if(result!=null && k!=null && comparator.compare(result.getKey(), k)<0){
+							result = this.iterator.next(k);
+						}
+						return this.remember(result);
+					}
+				}
+				return this.remember((k==null)? this.iterator.next() : this.iterator.next(k));
+			} finally {
+				CompactionScheduler.readLock().unlock();
+			}
+		}
+
+		/**
+		 * Remembers the key of the given entry to be returned
+		 *
+		 * @param entry the entry to be returned
+		 * @return the given entry
+		 */
+		private Entry<K, Container<V>> remember(final Entry<K, Container<V>> entry){
+			if(entry!=null){
+				this.lastKey = entry.getKey();
+			}
+			return entry;
+		}
 	}
 
 	/**
@@ -190,6 +462,7 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	* @throws java.net.URISyntaxException
 	*/
 	public boolean remove(final K key) throws ClassNotFoundException, IOException, URISyntaxException{
+		this.prepareInsertion();
 		return this.level0.put(key,new Container<V>(null, true));
 	}
 
@@ -200,6 +473,7 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	* @param printer the printer to be used to print the keys and values
 	*/
 	public void printLevels(final IKeyValuePrinter<K, V> printer){
+		this.waitForCompactionUnchecked();
 		this.level0.printLevels(printer);
 	}
 
@@ -209,6 +483,7 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	*
 	*/
 	public void printLevels(){
+		this.waitForCompactionUnchecked();
 		this.level0.printLevels(new IKeyValuePrinter<K, V>(){});
 	}
 
@@ -216,6 +491,7 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	 * clears the LSM tree
 	 */
 	public void clear() {
+		this.waitForCompactionUnchecked();
 		this.level0.clear();
 	}
 
@@ -228,6 +504,7 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	 * @throws URISyntaxException
 	 */
 	public void addRun(final Generator<K, V> generator) throws ClassNotFoundException, IOException, URISyntaxException {
+		this.waitForCompaction();
 		this.level0.addRun(generator);
 	}
 
@@ -241,15 +518,19 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	 */
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public void writeLuposObject(final OutputStream loos) throws IOException, ClassNotFoundException, URISyntaxException {
+		this.waitForCompaction();
 		LSMTree.writeTypeOfObject(loos, levelFactoryClasses, (Class<ILevelFactory>) this.levelFactory.getClass());
 		this.levelFactory.writeLuposObject(loos);
 		this.level0.writeLuposObject(loos);
+		// the disk runs (including the one just written for the memory level) must be persistent before the program exits
+		BufferManager.getBufferManager().writeAllModifiedPages();
 	}
 
 	/**
 	 * @return the number of bytes, which are used on disk (without wasted bytes to complete pages)
 	 */
 	public long numberOfUsedBytesOnDisk() throws IOException {
+		this.waitForCompaction();
 		return this.level0.numberOfUsedBytesOnDisk();
 	}
 
@@ -257,6 +538,7 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	 * @return the number of bytes, which are used on disk (with wasted bytes to complete pages)
 	 */
 	public long numberOfBytesOnDisk(){
+		this.waitForCompactionUnchecked();
 		return this.level0.numberOfBytesOnDisk();
 	}
 
@@ -264,6 +546,7 @@ public class LSMTree<K, V, R> implements MapIteratorProvider<K, V> {
 	 * @return information about structure (number of entries/runs) in this and succeeding levels as string
 	 */
 	public String getStructureInfo() throws IOException {
+		this.waitForCompaction();
 		return this.level0.getStructureInfo();
 	}
 
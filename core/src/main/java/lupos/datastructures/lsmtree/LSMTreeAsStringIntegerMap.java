@@ -1,12 +1,20 @@
 package lupos.datastructures.lsmtree;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Map;
 
 import lupos.datastructures.items.literal.codemap.StringIntegerMap;
 import lupos.datastructures.lsmtree.level.Container;
+import lupos.datastructures.lsmtree.level.disk.store.StoreKeyValue;
+import lupos.datastructures.lsmtree.level.factory.DiskLevelFactory;
+import lupos.datastructures.lsmtree.level.factory.IMemoryLevelFactory;
+import lupos.io.helper.InputHelper;
+import lupos.io.helper.OutHelper;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,4 +76,44 @@ public class LSMTreeAsStringIntegerMap implements StringIntegerMap {
 	public LSMTree<String, Integer, Iterator<Map.Entry<String,Container<Integer>>>> getLSMTree(){
 		return this.lsmtree;
 	}
+
+	/**
+	 * Creates a new empty LSM tree for a dictionary
+	 *
+	 * @param dir the directory in which the disk runs are stored
+	 * @return the new LSM tree
+	 */
+	public static LSMTree<String, Integer, Iterator<Map.Entry<String,Container<Integer>>>> createLSMTree(final String dir){
+		return new LSMTree<String, Integer, Iterator<Map.Entry<String,Container<Integer>>>>("Dictionary", new DiskLevelFactory<String, Integer>(Comparator.<String>naturalOrder(), new StoreKeyValue<String, Integer>(String.class, Integer.class), dir, PrefixSearchFromLSMTree.MEMORYSIZE, PrefixSearchFromLSMTree.NUMBEROFDISKRUNSFOREACHLEVEL, IMemoryLevelFactory.<String, Integer>createMemoryLevelLazySortingFactory()));
+	}
+
+	/**
+	 * Writes all information of this map to disk such that it can be loaded from disk after exiting the program
+	 *
+	 * @param loos the output stream to which the map is written...
+	 * @throws IOException
+	 */
+	public void writeLuposObject(final OutputStream loos) throws IOException {
+		OutHelper.writeLuposInt(this.size, loos);
+		try {
+			this.lsmtree.writeLuposObject(loos);
+		} catch (final ClassNotFoundException | URISyntaxException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Reads in a map written by writeLuposObject
+	 *
+	 * @param lois the input stream from which the map is read
+	 * @return the read map
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @throws URISyntaxException
+	 */
+	public static LSMTreeAsStringIntegerMap readLuposObject(final InputStream lois) throws IOException, ClassNotFoundException, URISyntaxException {
+		final int size = InputHelper.readLuposInt(lois);
+		final LSMTree<String, Integer, Iterator<Map.Entry<String,Container<Integer>>>> lsmtree = LSMTree.readLuposObject(lois);
+		return new LSMTreeAsStringIntegerMap(lsmtree, size);
+	}
 }
@@ -0,0 +1,549 @@
+package lupos.datastructures.lsmtree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lupos.datastructures.dbmergesortedds.MapEntry;
+import lupos.datastructures.items.Triple;
+import lupos.datastructures.items.TripleKey;
+import lupos.datastructures.items.literal.LazyLiteral;
+import lupos.datastructures.items.literal.Literal;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
+import lupos.datastructures.lsmtree.level.Container;
+import lupos.datastructures.lsmtree.level.disk.store.StoreIntTriple;
+import lupos.datastructures.lsmtree.level.disk.store.StoreIntTriple.IntTripleComparator;
+import lupos.datastructures.lsmtree.level.factory.DiskLevelFactory;
+import lupos.datastructures.lsmtree.level.factory.IMemoryLevelFactory;
+import lupos.datastructures.lsmtree.sip.ISIPIterator;
+import lupos.datastructures.paged_dbbptree.DBBPTree;
+import lupos.datastructures.paged_dbbptree.PrefixSearchMinMax;
+import lupos.datastructures.queryresult.SIPParallelIterator;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan.CollationOrder;
+import lupos.io.helper.InputHelper;
+import lupos.io.helper.OutHelper;
+
+
+/**
+ * Evaluation index of a collation order, which stores the triples (as codes of lazy literals) in an LSM tree.
+ * Insertions and deletions are first collected in the memory level of the LSM tree and later merged into disk runs,
+ * such that the evaluation index is suitable for write-heavy workloads.
+ *
+ * Insertions and deletions are blind writes (i.e., without looking up the triple before), such that ingesting triples does not become
+ * more expensive with a growing memory level. Hence, put and remove do not return the old triple and the size is only an estimation
+ * (inserting an already contained triple or deleting a not contained triple is also counted).
+ *
+ * The evaluation indices are accessed by prefix searches (see {@link lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan}
+ * and {@link lupos.engine.operators.index.adaptedRDF3X.SixIndices}). Like for {@link lupos.datastructures.paged_dbbptree.DBBPTree},
+ * the navigation methods of sorted maps (subMap, headMap, tailMap, lastKey and getClosestElements) are not supported:
+ * the maximum for merge join ranges is only determined for B+-trees and the sorted map views are never used by the evaluators.
+ *
+ * Note: The LSM tree just stores the codes of the literals, such that the original content of typed literals is not maintained.
+ */
+public class PrefixSearchFromLSMTree implements PrefixSearchMinMax<TripleKey, Triple> {
+
+	/**
+	 * the maximum number of triples stored in the memory level
+	 */
+	public static int MEMORYSIZE = 500000;
+
+	/**
+	 * the maximum number of disk runs for each level
+	 */
+	public static int NUMBEROFDISKRUNSFOREACHLEVEL = 8;
+
+	/**
+	 * for determining unique directories for the disk runs of the LSM trees
+	 */
+	private static final AtomicInteger instancecounter = new AtomicInteger(0);
+
+	/**
+	 * the underlying LSM tree
+	 */
+	protected final LSMTree<int[], int[], Iterator<Map.Entry<int[],Container<int[]>>>> lsmtree;
+
+	/**
+	 * the collation order of this evaluation index
+	 */
+	protected final CollationOrder order;
+
+	/**
+	 * the comparator for int-triples according to the collation order
+	 */
+	protected final IntTripleComparator comparator;
+
+	/**
+	 * the (estimated) number of triples stored in this evaluation index
+	 */
+	protected int size;
+
+	/**
+	 * Constructor creating a new empty evaluation index, the disk runs of which are stored in the temporary directory of the B+-trees
+	 *
+	 * @param order the collation order of this evaluation index
+	 */
+	public PrefixSearchFromLSMTree(final CollationOrder order){
+		this(order, DBBPTree.getMainFolder() + "lsm-tree" + File.separator + order.name() + "_" + PrefixSearchFromLSMTree.instancecounter.incrementAndGet() + File.separator);
+	}
+
+	/**
+	 * Constructor creating a new empty evaluation index
+	 *
+	 * @param order the collation order of this evaluation index
+	 * @param dir the directory in which the disk runs are stored
+	 */
+	public PrefixSearchFromLSMTree(final CollationOrder order, final String dir){
+		this(order, new LSMTree<int[], int[], Iterator<Map.Entry<int[],Container<int[]>>>>(order.name(), new DiskLevelFactory<int[], int[]>(new IntTripleComparator(order), new StoreIntTriple(order), dir, PrefixSearchFromLSMTree.MEMORYSIZE, PrefixSearchFromLSMTree.NUMBEROFDISKRUNSFOREACHLEVEL, IMemoryLevelFactory.<int[], int[]>createMemoryLevelLazySortingFactory())), 0);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param order the collation order of this evaluation index
+	 * @param lsmtree the underlying LSM tree
+	 * @param size the number of triples stored in the LSM tree
+	 */
+	public PrefixSearchFromLSMTree(final CollationOrder order, final LSMTree<int[], int[], Iterator<Map.Entry<int[],Container<int[]>>>> lsmtree, final int size){
+		this.order = order;
+		this.comparator = new IntTripleComparator(order);
+		this.lsmtree = lsmtree;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the underlying LSM tree
+	 *
+	 * @return the underlying LSM tree
+	 */
+	public LSMTree<int[], int[], Iterator<Map.Entry<int[],Container<int[]>>>> getLSMTree(){
+		return this.lsmtree;
+	}
+
+	/**
+	 * Determines the code of a literal
+	 *
+	 * @param literal the literal
+	 * @return the code of the literal, -1 for a literal being null (i.e., the position is not bound in a prefix key), or null if the literal is neither in the dictionary nor can be inlined
+	 */
+	protected static Integer getCode(final Literal literal){
+		if(literal == null){
+			return -1;
+		}
+		if(literal instanceof LazyLiteral){
+			return ((LazyLiteral) literal).getCode();
+		}
+		final String rdfTerm = literal.toString();
+		final Integer code = LazyLiteral.getHm().get(rdfTerm);
+		if(code == null || code == 0){
+			final int inlinedCode = OrderPreservingCodes.encode(rdfTerm);
+			return (inlinedCode != 0) ? inlinedCode : null;
+		}
+		return code;
+	}
+
+	/**
+	 * Transforms a triple into an int-triple consisting of the codes of the literals
+	 *
+	 * @param triple the triple to be transformed
+	 * @return the int-triple, or null if a literal of the triple is not in the dictionary (and thus the triple cannot be contained)
+	 */
+	protected static int[] toIntTriple(final Triple triple){
+		final int[] result = new int[3];
+		for(int i=0; i<3; i++){
+			final Integer code = PrefixSearchFromLSMTree.getCode(triple.getPos(i));
+			if(code == null){
+				return null;
+			}
+			result[i] = code;
+		}
+		return result;
+	}
+
+	/**
+	 * Transforms an int-triple into a triple of lazy literals
+	 *
+	 * @param intTriple the int-triple
+	 * @return the triple consisting of lazy literals
+	 */
+	protected static Triple toTriple(final int[] intTriple){
+		return new Triple(new LazyLiteral(intTriple[0]), new LazyLiteral(intTriple[1]), new LazyLiteral(intTriple[2]));
+	}
+
+	@Override
+	public Iterator<Triple> prefixSearch(final TripleKey arg0) {
+		return this.prefixSearch(arg0, null, null);
+	}
+
+	@Override
+	public Iterator<Triple> prefixSearch(final TripleKey arg0, final TripleKey min) {
+		return this.prefixSearch(arg0, min, null);
+	}
+
+	@Override
+	public Iterator<Triple> prefixSearchMax(final TripleKey arg0, final TripleKey max) {
+		return this.prefixSearch(arg0, null, max);
+	}
+
+	@Override
+	public Iterator<Triple> prefixSearch(final TripleKey arg0, final TripleKey min, final TripleKey max) {
+		final int[] prefixKey = PrefixSearchFromLSMTree.toIntTriple(arg0.getTriple());
+		if(prefixKey == null){
+			return new TripleIterator(null, null, null);
+		}
+		final int[] minKey = (min == null)? null : PrefixSearchFromLSMTree.toIntTriple(min.getTriple());
+		final int[] maxKey = (max == null)? null : PrefixSearchFromLSMTree.toIntTriple(max.getTriple());
+		if((min != null && minKey == null) || (max != null && maxKey == null)){
+			// the minimum or maximum contains unknown literals => ignore it
+			return new TripleIterator(this.lsmtree.prefixSearch(this.comparator, prefixKey), null, null);
+		}
+		return new TripleIterator(this.lsmtree.prefixSearch(this.comparator, prefixKey), minKey, maxKey);
+	}
+
+	/**
+	 * Transforms the entries of the LSM tree into triples and considers the minimum and maximum of the prefix search
+	 */
+	public class TripleIterator implements SIPParallelIterator<Triple, TripleKey> {
+
+		private final ISIPIterator<int[], int[]> it;
+		private int[] min;
+		private final int[] max;
+		private boolean finished;
+		private Triple nextTriple = null;
+
+		public TripleIterator(final ISIPIterator<int[], int[]> it, final int[] min, final int[] max){
+			this.it = it;
+			this.min = min;
+			this.max = max;
+			this.finished = (it == null);
+		}
+
+		private Triple transform(final Entry<int[], int[]> entry){
+			if(entry == null || (this.max != null && PrefixSearchFromLSMTree.this.comparator.compare(entry.getKey(), this.max) > 0)){
+				this.finished = true;
+				return null;
+			}
+			return PrefixSearchFromLSMTree.toTriple(entry.getKey());
+		}
+
+		@Override
+		public boolean hasNext() {
+			if(this.finished){
+				return false;
+			}
+			if(this.min != null){
+				// jump to the minimum first
+				final Entry<int[], int[]> entry = this.it.next(this.min);
+				this.min = null;
+				this.nextTriple = this.transform(entry);
+				return this.nextTriple != null;
+			}
+			if(this.nextTriple == null){
+				this.nextTriple = this.transform(this.it.next());
+			}
+			return this.nextTriple != null;
+		}
+
+		@Override
+		public Triple next() {
+			if(!this.hasNext()){
+				return null;
+			}
+			final Triple result = this.nextTriple;
+			this.nextTriple = null;
+			return result;
+		}
+
+		@Override
+		public Triple next(final TripleKey k) {
+			final int[] key = PrefixSearchFromLSMTree.toIntTriple(k.getTriple());
+			if(key == null){
+				// unknown literal in k => continue with next triple
+				return this.next();
+			}
+			if(this.min != null && PrefixSearchFromLSMTree.this.comparator.compare(this.min, key) > 0){
+				return this.next();
+			}
+			this.min = null;
+			if(this.nextTriple != null){
+				final Triple result = this.nextTriple;
+				this.nextTriple = null;
+				if(k.compareTo(result) <= 0){
+					return result;
+				}
+			}
+			if(this.finished){
+				return null;
+			}
+			return this.transform(this.it.next(key));
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() {
+			this.finished = true;
+		}
+	}
+
+	@Override
+	public Object[] getClosestElements(final TripleKey arg0) {
+		throw new UnsupportedOperationException("getClosestElements is not supported.");
+	}
+
+	@Override
+	public Comparator<? super TripleKey> comparator() {
+		return null;
+	}
+
+	@Override
+	public SortedMap<TripleKey, Triple> subMap(final TripleKey fromKey, final TripleKey toKey) {
+		throw new UnsupportedOperationException("subMap is not supported.");
+	}
+
+	@Override
+	public SortedMap<TripleKey, Triple> headMap(final TripleKey toKey) {
+		throw new UnsupportedOperationException("headMap is not supported.");
+	}
+
+	@Override
+	public SortedMap<TripleKey, Triple> tailMap(final TripleKey fromKey) {
+		throw new UnsupportedOperationException("tailMap is not supported.");
+	}
+
+	@Override
+	public TripleKey firstKey() {
+		final Iterator<Triple> it = this.prefixSearch(new TripleKey(new Triple(), this.order));
+		return it.hasNext() ? new TripleKey(it.next(), this.order) : null;
+	}
+
+	@Override
+	public TripleKey lastKey() {
+		// the LSM tree cannot be scanned backwards, determining the last key would require scanning the whole evaluation index
+		throw new UnsupportedOperationException("lastKey is not supported.");
+	}
+
+	/**
+	 * Returns the estimated number of triples: Blind insertions of already contained triples and blind deletions of not contained triples are also counted.
+	 * The size is used only for logging and statistics, the evaluators never rely on it for correctness.
+	 *
+	 * @return the estimated number of triples
+	 */
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return !this.prefixSearch(new TripleKey(new Triple(), this.order)).hasNext();
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return this.get(key) != null;
+	}
+
+	@Override
+	public boolean containsValue(final Object value) {
+		return (value instanceof Triple) && this.get(new TripleKey((Triple) value, this.order)) != null;
+	}
+
+	@Override
+	public Triple get(final Object key) {
+		final int[] intTriple = PrefixSearchFromLSMTree.toIntTriple(((TripleKey) key).getTriple());
+		if(intTriple == null){
+			return null;
+		}
+		try {
+			final int[] result = this.lsmtree.get(intTriple);
+			return (result == null)? null : PrefixSearchFromLSMTree.toTriple(result);
+		} catch (ClassNotFoundException | IOException | URISyntaxException e) {
+			throw new RuntimeException("Looking up the triple " + Arrays.toString(intTriple) + " in the LSM tree failed: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Inserts the triple blindly into the LSM tree.
+	 *
+	 * @return always null as the old triple is not looked up
+	 * @throws RuntimeException if the memory level could not be flushed to disk or a compaction in the background failed
+	 */
+	@Override
+	public Triple put(final TripleKey key, final Triple value) {
+		final int[] intTriple = PrefixSearchFromLSMTree.toIntTriple(value);
+		if(intTriple == null){
+			throw new IllegalArgumentException("The literals of triples to be inserted into an LSM tree must be in the dictionary: " + value);
+		}
+		try {
+			this.lsmtree.put(intTriple, intTriple);
+			this.size++;
+			return null;
+		} catch (ClassNotFoundException | IOException | URISyntaxException e) {
+			throw new RuntimeException("Inserting the triple " + Arrays.toString(intTriple) + " into the LSM tree failed: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Deletes the triple blindly from the LSM tree (by inserting a tombstone).
+	 *
+	 * @return always null as the old triple is not looked up
+	 * @throws RuntimeException if the memory level could not be flushed to disk or a compaction in the background failed
+	 */
+	@Override
+	public Triple remove(final Object key) {
+		final int[] intTriple = PrefixSearchFromLSMTree.toIntTriple(((TripleKey) key).getTriple());
+		if(intTriple == null){
+			// a triple with a literal not in the dictionary cannot be contained
+			return null;
+		}
+		try {
+			this.lsmtree.remove(intTriple);
+			if(this.size > 0){
+				this.size--;
+			}
+			return null;
+		} catch (ClassNotFoundException | IOException | URISyntaxException e) {
+			throw new RuntimeException("Deleting the triple " + Arrays.toString(intTriple) + " from the LSM tree failed: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public void putAll(final Map<? extends TripleKey, ? extends Triple> m) {
+		for(final Entry<? extends TripleKey, ? extends Triple> entry: m.entrySet()){
+			this.put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public void clear() {
+		this.lsmtree.clear();
+		this.size = 0;
+	}
+
+	@Override
+	public Set<TripleKey> keySet() {
+		return new AbstractSet<TripleKey>(){
+			@Override
+			public Iterator<TripleKey> iterator() {
+				final Iterator<Triple> it = PrefixSearchFromLSMTree.this.prefixSearch(new TripleKey(new Triple(), PrefixSearchFromLSMTree.this.order));
+				return new Iterator<TripleKey>(){
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public TripleKey next() {
+						return new TripleKey(it.next(), PrefixSearchFromLSMTree.this.order);
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return PrefixSearchFromLSMTree.this.size;
+			}
+		};
+	}
+
+	@Override
+	public Collection<Triple> values() {
+		return new AbstractCollection<Triple>(){
+			@Override
+			public Iterator<Triple> iterator() {
+				return PrefixSearchFromLSMTree.this.prefixSearch(new TripleKey(new Triple(), PrefixSearchFromLSMTree.this.order));
+			}
+
+			@Override
+			public int size() {
+				return PrefixSearchFromLSMTree.this.size;
+			}
+		};
+	}
+
+	@Override
+	public Set<Entry<TripleKey, Triple>> entrySet() {
+		return new AbstractSet<Entry<TripleKey, Triple>>(){
+			@Override
+			public Iterator<Entry<TripleKey, Triple>> iterator() {
+				final Iterator<Triple> it = PrefixSearchFromLSMTree.this.prefixSearch(new TripleKey(new Triple(), PrefixSearchFromLSMTree.this.order));
+				return new Iterator<Entry<TripleKey, Triple>>(){
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public Entry<TripleKey, Triple> next() {
+						final Triple t = it.next();
+						return new MapEntry<TripleKey, Triple>(new TripleKey(t, PrefixSearchFromLSMTree.this.order), t);
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return PrefixSearchFromLSMTree.this.size;
+			}
+		};
+	}
+
+	/**
+	 * Writes all information of this evaluation index to disk such that it can be loaded from disk after exiting the program
+	 *
+	 * @param loos the output stream to which the evaluation index is written...
+	 * @throws IOException
+	 */
+	public void writeLuposObject(final OutputStream loos) throws IOException {
+		OutHelper.writeLuposByte((byte) this.order.ordinal(), loos);
+		OutHelper.writeLuposInt(this.size, loos);
+		try {
+			this.lsmtree.writeLuposObject(loos);
+		} catch (final ClassNotFoundException | URISyntaxException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Reads in an evaluation index written by writeLuposObject
+	 *
+	 * @param lois the input stream from which the evaluation index is read
+	 * @return the read evaluation index
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @throws URISyntaxException
+	 */
+	public static PrefixSearchFromLSMTree readLuposObject(final InputStream lois) throws IOException, ClassNotFoundException, URISyntaxException {
+		IntTripleComparator.register();
+		final CollationOrder order = CollationOrder.values()[InputHelper.readLuposByte(lois)];
+		final int size = InputHelper.readLuposInt(lois);
+		final LSMTree<int[], int[], Iterator<Map.Entry<int[],Container<int[]>>>> lsmtree = LSMTree.readLuposObject(lois);
+		return new PrefixSearchFromLSMTree(order, lsmtree, size);
+	}
+}
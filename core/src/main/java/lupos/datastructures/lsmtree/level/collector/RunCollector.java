@@ -5,6 +5,7 @@ import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.util.Comparator;
 
+import lupos.datastructures.lsmtree.CompactionScheduler;
 import lupos.datastructures.lsmtree.debug.IKeyValuePrinter;
 import lupos.datastructures.lsmtree.level.Container;
 import lupos.datastructures.lsmtree.level.ILevel;
@@ -62,6 +63,31 @@ public abstract class RunCollector<K,V,R> implements ILevel<K,V,R>{
 	 */
 	protected final long maximumRunLength;
 
+	/**
+	 * The policies for merging runs:
+	 * TIERED collects up to k runs in a level and merges all of them into one run of the next level,
+	 * LEVELED keeps only one run in a level into which the incoming runs are merged, and which is merged into the next level after k incoming runs.
+	 * TIERED has a lower write amplification, while LEVELED has a lower number of runs to be searched.
+	 */
+	public enum CompactionPolicy {
+		TIERED, LEVELED
+	}
+
+	/**
+	 * The policy used for new run collectors
+	 */
+	public static CompactionPolicy COMPACTIONPOLICY = CompactionPolicy.TIERED;
+
+	/**
+	 * The policy of this run collector
+	 */
+	protected final CompactionPolicy policy = RunCollector.COMPACTIONPOLICY;
+
+	/**
+	 * The number of incoming runs already merged into the run of this level (only used for the policy LEVELED)
+	 */
+	protected int numberOfMergedRuns = 0;
+
 	/**
 	 * Constructor sets parameters and creates a new array of the size k
 	 *
@@ -85,35 +111,107 @@ public abstract class RunCollector<K,V,R> implements ILevel<K,V,R>{
 	 *
 	 * new run is created by level factory and run iterator passed on to it, as well as counter increased
 	 * if run doesn't fit into this run collector, next level is created if it doesn't exit yet and run collector is rolled out to it
-	 * run collector is cleared and run is inserted
+	 * run collector is cleared and run is inserted.
+	 * New runs are constructed before they are published, such that readers only need to be locked out for publishing new and releasing merged runs.
 	 */
 	@Override
 	public boolean receiveRunFromLowerLevel(final R run) throws ClassNotFoundException, IOException, URISyntaxException{
+		if(this.policy==CompactionPolicy.LEVELED && this.counter>0){
+			return this.receiveRunLeveled(run);
+		}
 		if(this.counter==this.k) {
+			// a failure must be propagated to the caller, as otherwise the runs of this level would be overwritten
+			this.getOrCreateNextLevel().receiveRunFromLowerLevel(this.rollOut());
+			CompactionScheduler.writeLock().lock();
 			try {
-					if(this.nextLevel==null){
-						this.nextLevel=this.levelFactory.createLevel(this.level+1);
-					}
-					this.nextLevel.receiveRunFromLowerLevel(this.rollOut());
-					this.release();
-			} catch (final Exception e) {
-				System.err.println(e);
-				e.printStackTrace();
+				this.release();
+			} finally {
+				CompactionScheduler.writeLock().unlock();
 			}
 		}
 
+		final ILevel<K,V,R> newRun = this.levelFactory.createRun(this.level, this.counter);
+		newRun.receiveRunFromLowerLevel(run);
+		CompactionScheduler.writeLock().lock();
 		try {
-			this.runs[this.counter] = this.levelFactory.createRun(this.level, this.counter);
-		} catch (final Exception e) {
-			System.err.println(e);
-			e.printStackTrace();
+			this.runs[this.counter] = newRun;
+			this.counter++;
+		} finally {
+			CompactionScheduler.writeLock().unlock();
 		}
-		this.runs[this.counter].receiveRunFromLowerLevel(run);
-		this.counter++;
+		this.numberOfMergedRuns = 1;
 
 		return true;
 	}
 
+	/**
+	 * Merges the given run into the run of this level according to the policy LEVELED.
+	 * If already k runs have been merged into the run of this level, the run of this level together with the given run is merged into the next level.
+	 *
+	 * @param run the incoming run
+	 * @return true
+	 * @throws ClassNotFoundException
+	 * @throws IOException
+	 * @throws URISyntaxException
+	 */
+	protected boolean receiveRunLeveled(final R run) throws ClassNotFoundException, IOException, URISyntaxException{
+		if(this.numberOfMergedRuns>=this.k || this.counter==this.k) {
+			this.getOrCreateNextLevel().receiveRunFromLowerLevel(this.merge(run));
+			CompactionScheduler.writeLock().lock();
+			try {
+				this.release();
+			} finally {
+				CompactionScheduler.writeLock().unlock();
+			}
+			this.numberOfMergedRuns = 0;
+			return true;
+		}
+		// the merged run is constructed in the next free slot...
+		final int oldCounter = this.counter;
+		final ILevel<K,V,R> newRun = this.levelFactory.createRun(this.level, oldCounter);
+		newRun.receiveRunFromLowerLevel(this.merge(run));
+		// ... and replaces the old runs afterwards
+		CompactionScheduler.writeLock().lock();
+		try {
+			this.release();
+			this.runs[0] = this.levelFactory.moveRun(newRun, this.level, 0);
+			this.counter = 1;
+		} finally {
+			CompactionScheduler.writeLock().unlock();
+		}
+		this.numberOfMergedRuns++;
+		return true;
+	}
+
+	/**
+	 * Returns the next level, which is created if it does not exist yet
+	 *
+	 * @return the next level
+	 */
+	protected ILevel<K,V,R> getOrCreateNextLevel(){
+		if(this.nextLevel==null){
+			final ILevel<K,V,R> newLevel = this.levelFactory.createLevel(this.level+1);
+			CompactionScheduler.writeLock().lock();
+			try {
+				this.nextLevel = newLevel;
+			} finally {
+				CompactionScheduler.writeLock().unlock();
+			}
+		}
+		return this.nextLevel;
+	}
+
+	/**
+	 * Merges all runs of this level together with the given run (which is younger than the runs of this level)
+	 *
+	 * @param run the given run
+	 * @return the merged run
+	 * @throws ClassNotFoundException
+	 * @throws IOException
+	 * @throws URISyntaxException
+	 */
+	protected abstract R merge(R run) throws ClassNotFoundException, IOException, URISyntaxException;
+
 	/**
 	 * releases the higher levels, and releases all runs in run collector and sets the array runs to null and counter to zero
 	 */
@@ -207,6 +305,8 @@ public abstract class RunCollector<K,V,R> implements ILevel<K,V,R>{
 	@Override
 	public void readLuposObject(final InputStream lois) throws IOException, ClassNotFoundException, URISyntaxException {
 		this.counter = InputHelper.readLuposIntVariableBytes(lois);
+		// only an estimation for the policy LEVELED
+		this.numberOfMergedRuns = this.counter;
 		for(int i=0; i<this.counter; i++){
 			this.runs[i] = this.levelFactory.createRun(this.level, i);
 			this.runs[i].readLuposObject(lois);
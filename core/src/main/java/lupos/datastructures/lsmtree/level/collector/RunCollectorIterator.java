@@ -36,6 +36,25 @@ public class RunCollectorIterator<K,V> extends RunCollector<K,V,Iterator<Map.Ent
 		return new MergeIterator<K, Container<V>>(iterators, this.comp);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * returns a MergeIterator to merge the entries of all runs and the given run with merge sort into one new run
+	 *
+	 * @see MergeIterator<K,V>
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected Iterator<Map.Entry<K, Container<V>>> merge(final Iterator<Map.Entry<K, Container<V>>> run) throws ClassNotFoundException, IOException, URISyntaxException {
+		final Iterator<Map.Entry<K,Container<V>>>[] iterators = new Iterator[this.counter + 1];
+		for(int i=0;i<this.counter;i++){
+			iterators[i] = this.runs[i].rollOut();
+		}
+		// the given run is the youngest one and must therefore be the last one
+		iterators[this.counter] = run;
+		return new MergeIterator<K, Container<V>>(iterators, this.comp);
+	}
+
 	@Override
 	public void addRun(final Generator<K, V> generator) throws ClassNotFoundException, IOException, URISyntaxException {
 		if(this.maximumRunLength < generator.size()){
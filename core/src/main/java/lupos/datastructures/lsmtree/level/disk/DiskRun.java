@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Map;
@@ -13,6 +14,7 @@ import lupos.datastructures.buffermanager.BufferManager;
 import lupos.datastructures.buffermanager.BufferManager.PageAddress;
 import lupos.datastructures.buffermanager.PageManager;
 import lupos.datastructures.dbmergesortedds.MapEntry;
+import lupos.datastructures.lsmtree.CompactionScheduler;
 import lupos.datastructures.lsmtree.debug.IKeyValuePrinter;
 import lupos.datastructures.lsmtree.level.Container;
 import lupos.datastructures.lsmtree.level.ILevel;
@@ -95,6 +97,16 @@ public class DiskRun<K, V> implements ILevel<K, V, Iterator<Map.Entry<K,Containe
 	*/
 	protected IBloomFilter<K> bloomFilter;
 
+	/**
+	* Whether or not the first keys of the pages are kept in main memory (fence pointers) in order to determine the page of a key without reading the summary
+	*/
+	public static boolean USEFENCEPOINTERS = true;
+
+	/**
+	* The fence pointers, i.e., the first keys of the pages 1, 2, ... of the disk run (fencePointers.get(i) is the first key of page i+1).
+	* It is null if no fence pointers are used or if the disk run does not have a summary.
+	*/
+	protected ArrayList<K> fencePointers;
 
 	/**
 	 * Constructor sets parameters and the filename according to the level and number
@@ -116,11 +128,83 @@ public class DiskRun<K, V> implements ILevel<K, V, Iterator<Map.Entry<K,Containe
 		this.bloomFilter = this.storeKeyValue.createBloomFilter(maximumRunLength);
 	}
 
+	/**
+	 * Constructor taking over the bloom filter, summaries and fence pointers of the given disk run for a new number of the run
+	 *
+	 * @param diskRun the disk run the files of which have been moved to the given number
+	 * @param number the new number of the run in the level
+	 * @throws java.io.IOException if any.
+	 */
+	protected DiskRun(final DiskRun<K, V> diskRun, final int number) throws IOException {
+		this.levelFactory = diskRun.levelFactory;
+		this.level = diskRun.level;
+		this.number = number;
+		this.filename = this.levelFactory.getPathToDiskRuns()+"Run_" + this.level + "_" + this.number;
+		this.storeKeyValue = diskRun.storeKeyValue;
+		this.comp = diskRun.comp;
+		this.bloomFilter = diskRun.bloomFilter;
+		this.fencePointers = diskRun.fencePointers;
+		this.maxSummaryLevel = diskRun.maxSummaryLevel;
+		if(diskRun.summary!=null){
+			this.summary = new Summary(this.comp, this.storeKeyValue, this.level, this.number, 0);
+			ISummary<K> currentSummary = this.summary;
+			for(int i=1; i<=this.maxSummaryLevel; i++){
+				currentSummary = currentSummary.createSummaryOfTheSummary();
+			}
+		}
+	}
+
+	/**
+	 * Moves this disk run (including its summaries) to another number in the same level by renaming its files.
+	 * This disk run must not be used any more afterwards.
+	 *
+	 * @param newNumber the new number of the run
+	 * @return the disk run with the new number
+	 * @throws IOException
+	 */
+	public DiskRun<K, V> moveTo(final int newNumber) throws IOException {
+		final String newFilename = this.levelFactory.getPathToDiskRuns()+"Run_" + this.level + "_" + newNumber;
+		this.moveFiles(this.filename, newFilename);
+		if(this.summary!=null){
+			final String newSummaryFilename = this.levelFactory.getPathToDiskRuns()+"Summary_" + this.level + "_" + newNumber + "_";
+			for(int i=0; i<=this.maxSummaryLevel; i++){
+				this.moveFiles(this.summary.getFilename()+i, newSummaryFilename+i);
+			}
+		}
+		return new DiskRun<K, V>(this, newNumber);
+	}
+
+	/**
+	 * Renames all files of the buffer manager starting with the given filename
+	 *
+	 * @param filename the old filename
+	 * @param newFilename the new filename
+	 * @throws IOException
+	 */
+	protected void moveFiles(final String filename, final String newFilename) throws IOException {
+		this.bufferManager.writeAllModifiedPages(filename);
+		this.bufferManager.releaseAllPages(filename);
+		this.bufferManager.close(filename);
+		// the buffer manager must not use any opened file of a released run with the new filename
+		this.bufferManager.releaseAllPages(newFilename);
+		this.bufferManager.close(newFilename);
+		DiskRun.deleteFiles(newFilename);
+		int i = 0;
+		File file;
+		while((file = new File(filename+"_"+i)).exists()){
+			if(!file.renameTo(new File(newFilename+"_"+i))){
+				throw new IOException("Could not rename "+file+" to "+newFilename+"_"+i);
+			}
+			i++;
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 *
 	 * First bloom filter is checked, then the summaries are searched for the key to find the pagenumber where it is stored
-	 * afterwards a DiskRunIterator is created starting from that pagenumber or from 0 if no summary exists to compare their entries to the key that is searched for
+	 * afterwards a DiskRunIterator is created starting from that pagenumber or from 0 if no summary exists to compare their entries to the key that is searched for.
+	 * If fence pointers are available, the page is determined by a binary search in the fence pointers and only this page is read.
 	 */
 	@Override
 	public Container<V> get(final K key) throws ClassNotFoundException, IOException, URISyntaxException {
@@ -129,6 +213,10 @@ public class DiskRun<K, V> implements ILevel<K, V, Iterator<Map.Entry<K,Containe
 			return null;
 		}
 
+		if(this.fencePointers!=null){
+			return this.getFromPage(key, this.getPagenumberFromFencePointers(this.comp, key, true, 0));
+		}
+
 		int pagenumber = 0;
 		int maxLevel = this.maxSummaryLevel;
 
@@ -154,6 +242,84 @@ public class DiskRun<K, V> implements ILevel<K, V, Iterator<Map.Entry<K,Containe
 		return null;
 	}
 
+	/**
+	 * Searches for the key only in the given page (and not in the following pages)
+	 *
+	 * @param key the key to be searched for
+	 * @param pagenumber the page which contains the key if the key is stored in this disk run
+	 * @return the container of the key or null if the key is not stored in the given page
+	 * @throws ClassNotFoundException
+	 * @throws IOException
+	 * @throws URISyntaxException
+	 */
+	protected Container<V> getFromPage(final K key, final int pagenumber) throws ClassNotFoundException, IOException, URISyntaxException {
+		final DiskRunIterator it = new DiskRunIterator(false, pagenumber);
+		while(true){
+			final Entry<K, Container<V>> entry = it.next();
+			if(entry==null){
+				if(it.offset >= it.maxNumberInPage){
+					// end of page reached
+					return null;
+				}
+				it.getNextIterator();
+				continue;
+			}
+			final int comparison = this.comp.compare(key, entry.getKey());
+			if (comparison < 0){
+				return null;
+			}
+			if (comparison == 0) {
+				return entry.getValue();
+			}
+		}
+	}
+
+	/**
+	 * Determines the page of a key by a binary search in the fence pointers
+	 *
+	 * @param comparator the comparator used for comparing the given key with the fence pointers
+	 * @param key the key to be searched for
+	 * @param inclusive whether or not also a page starting with a key equal to the given key is returned
+	 * @param fromPage the page from which on the search starts
+	 * @return the last page (not before fromPage) starting with a key smaller than the given key (or equal to the given key if inclusive is true), or fromPage if no such page exists
+	 */
+	protected int getPagenumberFromFencePointers(final Comparator<K> comparator, final K key, final boolean inclusive, final int fromPage){
+		int low = fromPage;
+		int high = this.fencePointers.size();
+		while(low<high){
+			final int middle = (low + high + 1) >>> 1;
+			final int comparison = comparator.compare(key, this.fencePointers.get(middle - 1));
+			if(comparison>0 || (inclusive && comparison==0)){
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Reads the fence pointers from the lowest level of the summary
+	 *
+	 * @throws ClassNotFoundException
+	 * @throws IOException
+	 * @throws URISyntaxException
+	 */
+	protected void readFencePointers() throws ClassNotFoundException, IOException, URISyntaxException {
+		this.fencePointers = new ArrayList<K>();
+		int summaryPage = 0;
+		while(true){
+			final SummaryIterator it = new SummaryIterator(summaryPage, 0);
+			while(it.hasNext()){
+				this.fencePointers.add(it.next().getKey());
+			}
+			if((it.page[1] & 0x80) != 0){ // last bit is set => last page!
+				return;
+			}
+			summaryPage++;
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 *
@@ -174,7 +340,7 @@ public class DiskRun<K, V> implements ILevel<K, V, Iterator<Map.Entry<K,Containe
 	 */
 	@Override
 	public boolean receiveRunFromLowerLevel(final Iterator<Entry<K, Container<V>>> originalrun) throws ClassNotFoundException, URISyntaxException {
-		final Iterator<Entry<K, Container<V>>> run = this.storeKeyValue.getBloomFilterIterator(originalrun, this.bloomFilter);
+		final Iterator<Entry<K, Container<V>>> run = this.storeKeyValue.getBloomFilterIterator(CompactionScheduler.throttle(originalrun), this.bloomFilter);
 		try {
 			final int pagesize = PageManager.getDefaultPageSize();
 			int pagenumber = 0;
@@ -205,10 +371,16 @@ public class DiskRun<K, V> implements ILevel<K, V, Iterator<Map.Entry<K,Containe
 					// first key of next page for summary
 					if(pagenumber==1){
 						this.summary = new Summary(this.comp, this.storeKeyValue, this.level, this.number, 0);
+						if(DiskRun.USEFENCEPOINTERS){
+							this.fencePointers = new ArrayList<K>();
+						}
 					}
 					if(this.summary!=null){
 						this.summary.addEntry(entry.getKey(), pagenumber);
 					}
+					if(this.fencePointers!=null){
+						this.fencePointers.add(entry.getKey());
+					}
 				} else {
 					offset = result.getFirst();
 				}
@@ -238,6 +410,7 @@ public class DiskRun<K, V> implements ILevel<K, V, Iterator<Map.Entry<K,Containe
 	public void release() {
 		this.bufferManager.releaseAllPages(this.filename);
 		DiskRun.deleteFiles(this.filename);
+		this.fencePointers = null;
 		if(this.summary!=null){
 			this.summary.release();
 		}
@@ -828,6 +1001,11 @@ public class DiskRun<K, V> implements ILevel<K, V, Iterator<Map.Entry<K,Containe
 			// the following currentSummaries structure is used to optimize a SIP search by logging the current path through the summary, which can be reused for succeeding searches (i.e., a following search path can be only right to this logged path through the summary)
 			@SuppressWarnings("unchecked")
 			final Triple<Integer, Entry<K, Integer>, Iterator<Entry<K, Integer>>>[] currentSummaries = new Triple[maxLevel+1];
+			if(this.fencePointers!=null){
+				// the fence pointers directly determine the correct leaf node...
+				pagenumber = this.getPagenumberFromFencePointers(prefixComparator, prefixkey, false, 0);
+				maxLevel = -1;
+			}
 			// search through the summary to find the correct leaf node...
 			while (maxLevel>=0 && this.summary!=null){
 				currentSummaries[maxLevel] = this.summary.prefixSearch(prefixComparator, prefixkey, pagenumber, maxLevel);
@@ -854,21 +1032,38 @@ public class DiskRun<K, V> implements ILevel<K, V, Iterator<Map.Entry<K,Containe
 				DiskRunIterator it;
 				{
 					this.it = new DiskRunIterator(false, finalpagenumber);
-					while(this.it.hasNext()) {
-						this.currentEntry = this.it.next();
-						final int comparison = prefixComparator.compare(prefixkey, this.currentEntry.getKey());
+					// skip the entries before the prefix key (which might also be stored in the following chunks or pages)
+					this.finished = true;
+					Entry<K, Container<V>> entry;
+					while((entry = this.nextEntryOfRun()) != null) {
+						final int comparison = prefixComparator.compare(prefixkey, entry.getKey());
 						if (comparison < 0){
-							this.finished = true;
 							break;
 						}
 						if (comparison == 0) {
+							this.currentEntry = entry;
 							this.finished = false;
 							break;
 						}
 					}
-					if(!this.it.hasNext()){
-						this.finished = true;
+				}
+
+				/**
+				 * @return the next entry of the disk run (also considering the following chunks and pages) or null if the end of the disk run is reached
+				 */
+				private Entry<K, Container<V>> nextEntryOfRun(){
+					final Entry<K, Container<V>> result = this.it.next();
+					if(result!=null){
+						return result;
 					}
+					try {
+						this.it.getNextIterator();
+					} catch (ClassNotFoundException | IOException | URISyntaxException e) {
+						System.err.println(e);
+						e.printStackTrace();
+						return null;
+					}
+					return this.it.next();
 				}
 
 				@Override
@@ -988,6 +1183,11 @@ public class DiskRun<K, V> implements ILevel<K, V, Iterator<Map.Entry<K,Containe
 							}
 						}
 					} while(DiskRun.this.comp.compare(result.getKey(), k)<0);
+					if(prefixComparator.compare(prefixkey, result.getKey())!=0){
+						// the entry is already right of the prefix key
+						this.finished = true;
+						return null;
+					}
 					return result;
 				}
 
@@ -995,6 +1195,7 @@ public class DiskRun<K, V> implements ILevel<K, V, Iterator<Map.Entry<K,Containe
 				 * Find the leaf node for a given key (or the leaf node with the next-closest larger key).
 				 * First the summary is going up (in order to avoid every time to go to the whole summary from the top level to the lowest level)...
 				 * After finding the right summary level, the summary is traversed to the lower ones to finally find the correct leaf node.
+				 * If fence pointers are available, the leaf node is just determined by a binary search in the fence pointers right to the current leaf node.
 				 *
 				 * @param k
 				 * @return
@@ -1003,6 +1204,9 @@ public class DiskRun<K, V> implements ILevel<K, V, Iterator<Map.Entry<K,Containe
 				 * @throws URISyntaxException
 				 */
 				private final int getPageNumberForSIP(final K k) throws ClassNotFoundException, IOException, URISyntaxException{
+					if(DiskRun.this.fencePointers!=null){
+						return DiskRun.this.getPagenumberFromFencePointers(DiskRun.this.comp, k, true, this.it.pagenumber);
+					}
 					int level = 0;
 					while(level<currentSummaries.length){
 						final Iterator<Entry<K, Integer>> currentIterator = currentSummaries[level].getThird();
@@ -1161,6 +1365,9 @@ public class DiskRun<K, V> implements ILevel<K, V, Iterator<Map.Entry<K,Containe
 			for(int i=1; i<this.maxSummaryLevel; i++){
 				currentSummary = currentSummary.createSummaryOfTheSummary();
 			}
+			if(DiskRun.USEFENCEPOINTERS){
+				this.readFencePointers();
+			}
 		}
 		this.bloomFilter.readLuposObject(lois);
 	}
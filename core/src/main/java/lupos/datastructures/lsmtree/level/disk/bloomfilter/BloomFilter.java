@@ -3,6 +3,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import lupos.io.helper.InputHelper;
+import lupos.io.helper.OutHelper;
 import lupos.misc.BitVector;
 /**
 * Bloomfilter used to speed up finding keys in Run
@@ -19,6 +21,21 @@ public class BloomFilter<K> implements IBloomFilter<K>{
 	*/
 	public static final int MAXNUMBEROFBITSFORBLOOMFILTER = 4882 * 1024;
 
+	/**
+	* The maximum number of hash functions used for setting and probing a key
+	*/
+	public static final int MAXNUMBEROFHASHFUNCTIONS = 6;
+
+	/**
+	 * Marks the header of a bloom filter on disk (the bit vectors of older bloom filters were written without header and were set by a single hash function)
+	 */
+	public static final int FORMATMARKER = 0x424C4F4F;
+
+	/**
+	 * The version of the format of bloom filters on disk
+	 */
+	public static final byte FORMATVERSION = 2;
+
 	/**
 	* The bit vector used for the Bloomfilter
 	*/
@@ -29,11 +46,124 @@ public class BloomFilter<K> implements IBloomFilter<K>{
 	 */
 	protected final int size;
 
+	/**
+	 * the number of hash functions used for setting and probing a key (read from disk for a bloom filter on disk)
+	 */
+	protected int numberOfHashFunctions;
+
 	public BloomFilter(final long maximumRunLength){
 		this.size = (int) Math.min(8*maximumRunLength, MAXNUMBEROFBITSFORBLOOMFILTER);
+		this.numberOfHashFunctions = BloomFilter.getNumberOfHashFunctions(this.size, maximumRunLength);
 		this.bitvector = new BitVector(this.size);
 	}
 
+	/**
+	 * Determines the number of hash functions minimizing the false positive rate (i.e., ln 2 * bits per key),
+	 * which is at least 1 for bit vectors being too small for the maximum run length.
+	 *
+	 * @param size the size of the bit vector
+	 * @param maximumRunLength the maximum number of keys to be inserted
+	 * @return the number of hash functions
+	 */
+	public final static int getNumberOfHashFunctions(final int size, final long maximumRunLength){
+		final int optimal = (int) Math.round(Math.log(2) * size / Math.max(1, maximumRunLength));
+		return Math.max(1, Math.min(optimal, MAXNUMBEROFHASHFUNCTIONS));
+	}
+
+	/**
+	 * Writes the header of a bloom filter, which is written before its bit vectors
+	 *
+	 * @param loos the output stream
+	 * @param size the size of the bit vectors
+	 * @param numberOfHashFunctions the number of hash functions with which the bit vectors are set
+	 * @throws IOException
+	 */
+	public final static void writeHeader(final OutputStream loos, final int size, final int numberOfHashFunctions) throws IOException {
+		OutHelper.writeLuposInt(BloomFilter.FORMATMARKER, loos);
+		OutHelper.writeLuposByte(BloomFilter.FORMATVERSION, loos);
+		OutHelper.writeLuposInt(size, loos);
+		OutHelper.writeLuposByte((byte) numberOfHashFunctions, loos);
+	}
+
+	/**
+	 * Reads the header of a bloom filter and checks whether or not its bit vectors can be read in
+	 *
+	 * @param lois the input stream
+	 * @param size the expected size of the bit vectors
+	 * @return the number of hash functions with which the bit vectors have been set
+	 * @throws IOException if the bloom filter has been written in another format or with another size
+	 */
+	public final static int readHeader(final InputStream lois, final int size) throws IOException {
+		if(InputHelper.readLuposInt(lois) != BloomFilter.FORMATMARKER){
+			throw new IOException("The bloom filter has been written in an old format, the index must be constructed again!");
+		}
+		final byte version = InputHelper.readLuposByte(lois);
+		if(version != BloomFilter.FORMATVERSION){
+			throw new IOException("The bloom filter has been written in format version " + version + ", but version " + BloomFilter.FORMATVERSION + " is expected!");
+		}
+		final int storedSize = InputHelper.readLuposInt(lois);
+		if(storedSize != size){
+			throw new IOException("The bloom filter has been written with " + storedSize + " bits, but " + size + " bits are expected!");
+		}
+		final int numberOfHashFunctions = InputHelper.readLuposByte(lois);
+		if(numberOfHashFunctions < 1){
+			throw new IOException("Invalid number of hash functions of the bloom filter: " + numberOfHashFunctions);
+		}
+		return numberOfHashFunctions;
+	}
+
+	/**
+	 * Scrambles the bits of the given hash code (finalizer of MurmurHash3),
+	 * such that also hash codes of neighboring values are spread over the whole bit vector
+	 *
+	 * @param h the hash code
+	 * @return the scrambled hash code
+	 */
+	public final static int mix(int h){
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * Sets the bits for the given hash code, where the positions of the hash functions are derived by double hashing
+	 *
+	 * @param bitvector the bit vector to be modified
+	 * @param size the size of the bit vector
+	 * @param numberOfHashFunctions the number of hash functions
+	 * @param hashCode the hash code of the key
+	 */
+	public final static void set(final BitVector bitvector, final int size, final int numberOfHashFunctions, final int hashCode){
+		final int h1 = BloomFilter.mix(hashCode);
+		final int h2 = BloomFilter.mix(h1) | 1;
+		for(int i=0; i<numberOfHashFunctions; i++){
+			bitvector.set(Math.abs((h1 + i * h2) % size));
+		}
+	}
+
+	/**
+	 * Checks the bits for the given hash code, where the positions of the hash functions are derived by double hashing
+	 *
+	 * @param bitvector the bit vector to be checked
+	 * @param size the size of the bit vector
+	 * @param numberOfHashFunctions the number of hash functions
+	 * @param hashCode the hash code of the key
+	 * @return true if all bits are set, otherwise false
+	 */
+	public final static boolean get(final BitVector bitvector, final int size, final int numberOfHashFunctions, final int hashCode){
+		final int h1 = BloomFilter.mix(hashCode);
+		final int h2 = BloomFilter.mix(h1) | 1;
+		for(int i=0; i<numberOfHashFunctions; i++){
+			if(!bitvector.get(Math.abs((h1 + i * h2) % size))){
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 *{@inheritDoc}
 	 *
@@ -42,7 +172,7 @@ public class BloomFilter<K> implements IBloomFilter<K>{
 	 */
 	@Override
 	public void set(final K k){
-		this.bitvector.set(Math.abs(k.hashCode() % this.size));
+		BloomFilter.set(this.bitvector, this.size, this.numberOfHashFunctions, k.hashCode());
 	}
 
 	/**
@@ -53,7 +183,7 @@ public class BloomFilter<K> implements IBloomFilter<K>{
 	 */
 	@Override
 	public boolean get(final K k){
-		return this.bitvector.get(Math.abs(k.hashCode() % this.size));
+		return BloomFilter.get(this.bitvector, this.size, this.numberOfHashFunctions, k.hashCode());
 	}
 
 	/**
@@ -76,11 +206,14 @@ public class BloomFilter<K> implements IBloomFilter<K>{
 
 	@Override
 	public void writeLuposObject(final OutputStream loos) throws IOException {
+		BloomFilter.writeHeader(loos, this.size, this.numberOfHashFunctions);
 		this.bitvector.writeWithoutSize(loos);
 	}
 
 	@Override
 	public void readLuposObject(final InputStream lois) throws IOException {
+		// the bits must be probed with the same hash functions with which they have been set
+		this.numberOfHashFunctions = BloomFilter.readHeader(lois, this.size);
 		this.bitvector.readWithoutSize(lois, this.size);
 	}
 }
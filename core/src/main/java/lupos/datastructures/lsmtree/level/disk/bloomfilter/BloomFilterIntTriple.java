@@ -55,6 +55,11 @@ public class BloomFilterIntTriple implements IBloomFilter<int[]>{
 	 */
 	protected final int size;
 
+	/**
+	 * the number of hash functions used for setting and probing a key (read from disk for a bloom filter on disk)
+	 */
+	protected int numberOfHashFunctions;
+
 	/**
 	 * Constructor
 	 *
@@ -66,6 +71,7 @@ public class BloomFilterIntTriple implements IBloomFilter<int[]>{
 		this.pos1 = this.collationOrder.getSortCriterium(1);
 		this.pos2 = this.collationOrder.getSortCriterium(2);
 		this.size = (int) Math.min(8*maximumRunLength, BloomFilter.MAXNUMBEROFBITSFORBLOOMFILTER);
+		this.numberOfHashFunctions = BloomFilter.getNumberOfHashFunctions(this.size, maximumRunLength);
 		this.bitvectorAll = new BitVector(this.size);
 		this.bitvectorFirst = new BitVector(this.size);
 		this.bitvectorFirstSecond = new BitVector(this.size);
@@ -79,9 +85,9 @@ public class BloomFilterIntTriple implements IBloomFilter<int[]>{
 	 */
 	@Override
 	public void set(final int[] k){
-		this.bitvectorAll.set(Math.abs(BloomFilterIntTriple.getHashCode(k) % this.size));
-		this.bitvectorFirst.set(Math.abs(k[this.pos0] % this.size));
-		this.bitvectorFirstSecond.set(Math.abs((k[this.pos0]+k[this.pos1]) % this.size));
+		BloomFilter.set(this.bitvectorAll, this.size, this.numberOfHashFunctions, BloomFilterIntTriple.getHashCode(k));
+		BloomFilter.set(this.bitvectorFirst, this.size, this.numberOfHashFunctions, k[this.pos0]);
+		BloomFilter.set(this.bitvectorFirstSecond, this.size, this.numberOfHashFunctions, this.getHashCodeFirstSecond(k));
 	}
 
 	/**
@@ -92,7 +98,7 @@ public class BloomFilterIntTriple implements IBloomFilter<int[]>{
 	 */
 	@Override
 	public boolean get(final int[] k){
-		return this.bitvectorAll.get(Math.abs(BloomFilterIntTriple.getHashCode(k) % this.size));
+		return BloomFilter.get(this.bitvectorAll, this.size, this.numberOfHashFunctions, BloomFilterIntTriple.getHashCode(k));
 	}
 
 	/**
@@ -102,7 +108,17 @@ public class BloomFilterIntTriple implements IBloomFilter<int[]>{
 	 * @return hash code of the given int-triple
 	 */
 	public final static int getHashCode(final int[] k){
-		return k[0]+k[1]+k[2];
+		return (31 * (31 * k[0] + k[1])) + k[2];
+	}
+
+	/**
+	 * Calculates and returns the hash code of the first and second components of the given int-triple according to the collation order
+	 *
+	 * @param k the int-triple the hash code of which is to be determined
+	 * @return hash code of the first and second components of the given int-triple
+	 */
+	protected final int getHashCodeFirstSecond(final int[] k){
+		return 31 * k[this.pos0] + k[this.pos1];
 	}
 
 	@Override
@@ -116,11 +132,11 @@ public class BloomFilterIntTriple implements IBloomFilter<int[]>{
 		}
 		if(prefixKey[this.pos1]<0){
 			// only first position is fixed in the prefix key...
-			return this.bitvectorFirst.get(Math.abs(prefixKey[this.pos0] % this.size));
+			return BloomFilter.get(this.bitvectorFirst, this.size, this.numberOfHashFunctions, prefixKey[this.pos0]);
 		}
 		if(prefixKey[this.pos2]<0){
 			// first and second positions are fixed in the prefix key...
-			return this.bitvectorFirstSecond.get(Math.abs((prefixKey[this.pos0] + prefixKey[this.pos1]) % this.size));
+			return BloomFilter.get(this.bitvectorFirstSecond, this.size, this.numberOfHashFunctions, this.getHashCodeFirstSecond(prefixKey));
 		}
 		// all positions in the prefix key are fixed: Hence do a "normal" lookup in the bloom filter
 		return this.get(prefixKey);
@@ -128,6 +144,7 @@ public class BloomFilterIntTriple implements IBloomFilter<int[]>{
 
 	@Override
 	public void writeLuposObject(final OutputStream loos) throws IOException {
+		BloomFilter.writeHeader(loos, this.size, this.numberOfHashFunctions);
 		this.bitvectorAll.writeWithoutSize(loos);
 		this.bitvectorFirst.writeWithoutSize(loos);
 		this.bitvectorFirstSecond.writeWithoutSize(loos);
@@ -135,6 +152,8 @@ public class BloomFilterIntTriple implements IBloomFilter<int[]>{
 
 	@Override
 	public void readLuposObject(final InputStream lois) throws IOException {
+		// the bits must be probed with the same hash functions with which they have been set
+		this.numberOfHashFunctions = BloomFilter.readHeader(lois, this.size);
 		this.bitvectorAll.readWithoutSize(lois, this.size);
 		this.bitvectorFirst.readWithoutSize(lois, this.size);
 		this.bitvectorFirstSecond.readWithoutSize(lois, this.size);
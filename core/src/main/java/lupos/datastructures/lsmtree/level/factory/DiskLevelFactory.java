@@ -231,6 +231,16 @@ public class DiskLevelFactory<K,V> implements ILevelFactory<K, V, Iterator<Map.E
 		return new DiskRun<K,V>(this, level, number, this.comp, this.storeKeyValue, (long) (this.memorysize*Math.pow(this.numberOfDiskRunsForEachLevel, level-1)));
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * the files of the disk run are renamed
+	 */
+	@Override
+	public ILevel<K, V, Iterator<Map.Entry<K,Container<V>>>> moveRun(final ILevel<K, V, Iterator<Map.Entry<K,Container<V>>>> run, final int level, final int number) throws IOException {
+		return ((DiskRun<K,V>) run).moveTo(number);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 *
@@ -39,6 +39,17 @@ public interface ILevelFactory<K,V,R> {
 	*/
 	public ILevel<K,V,R> createRun(int level, int number) throws IOException;
 
+	/**
+	*  moves a run created by createRun to another number in the same level
+	*
+	* @param run the run to be moved
+	* @param level the number of the level
+	* @param number the new number of the run
+	* @return the run with the new number (which replaces the given run)
+	* @throws java.io.IOException if any.
+	*/
+	public ILevel<K,V,R> moveRun(ILevel<K,V,R> run, int level, int number) throws IOException;
+
 	/**
 	 * returns the comparator for comparing the keys...
 	 *
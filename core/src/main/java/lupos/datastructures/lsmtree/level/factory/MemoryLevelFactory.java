@@ -97,6 +97,17 @@ public class MemoryLevelFactory<K,V> implements ILevelFactory<K,V,Iterator<Map.E
 		return new MemoryLevelTreeMap<K,V>(this, level, (int) Math.pow(this.memorysize, level), this.comp);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Runs in memory do not need to be moved
+	 *
+	 */
+	@Override
+	public ILevel<K,V,Iterator<Map.Entry<K,Container<V>>>> moveRun(final ILevel<K,V,Iterator<Map.Entry<K,Container<V>>>> run, final int level, final int number) {
+		return run;
+	}
+
 	@Override
 	public String getPathToDiskRuns() {
 		return "default";
@@ -25,4 +25,25 @@ public interface IMemoryLevel<K,V,R> extends ILevel<K,V,R> {
 	* @throws java.net.URISyntaxException
 	*/
 	public boolean put(K key, Container<V> container) throws ClassNotFoundException, IOException, URISyntaxException;
+
+	/**
+	 * Returns whether or not the memory level reached its maximum number of entries
+	 *
+	 * @return true if the memory level is full
+	 */
+	public boolean isFull();
+
+	/**
+	 * Returns the next level
+	 *
+	 * @return the next level or null if the next level has not been created yet
+	 */
+	public ILevel<K,V,R> getNextLevel();
+
+	/**
+	 * Sets the next level (used for flushing memory levels in the background)
+	 *
+	 * @param nextLevel the next level
+	 */
+	public void setNextLevel(ILevel<K,V,R> nextLevel);
 }
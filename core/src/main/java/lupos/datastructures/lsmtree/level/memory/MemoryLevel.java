@@ -91,6 +91,21 @@ public abstract class MemoryLevel<K,V,R> implements IMemoryLevel<K,V,R> {
 		return this.putIntoMemory(key, value);
 	}
 
+	@Override
+	public boolean isFull() {
+		return this.size()>=this.THRESHOLD;
+	}
+
+	@Override
+	public ILevel<K, V, R> getNextLevel() {
+		return this.nextLevel;
+	}
+
+	@Override
+	public void setNextLevel(final ILevel<K, V, R> nextLevel) {
+		this.nextLevel = nextLevel;
+	}
+
 	@Override
 	public void clear() {
 		this.release();
@@ -60,7 +60,7 @@ public abstract class MemoryLevelIterator<K,V> extends MemoryLevel<K,V,Iterator<
 	@Override
 	public ISIPIterator<K, Container<V>> prefixSearch(final Comparator<K> prefixComparator, final K prefixkey) {
 		try {
-			final Iterator<Entry<K, Container<V>>> originaliterator = this.rollOut();
+			final Iterator<Entry<K, Container<V>>> originaliterator = this.rollOutForPrefixSearch(prefixComparator, prefixkey);
 			final ISIPIterator<K, Container<V>> iterator = new ISIPIterator<K, Container<V>>(){
 
 				Entry<K, Container<V>> currentEntry = null;
@@ -127,6 +127,21 @@ public abstract class MemoryLevelIterator<K,V> extends MemoryLevel<K,V,Iterator<
 			};
 		}
 	}
+	/**
+	 * Returns the sorted entries of this memory level to be searched in by a prefix search.
+	 * The returned iterator may already be restricted to the entries matching the prefix key.
+	 *
+	 * @param prefixComparator the comparator used during the prefix search
+	 * @param prefixkey the prefix key
+	 * @return the sorted entries of this memory level (at least the ones matching the prefix key)
+	 * @throws ClassNotFoundException
+	 * @throws IOException
+	 * @throws URISyntaxException
+	 */
+	protected Iterator<Entry<K, Container<V>>> rollOutForPrefixSearch(final Comparator<K> prefixComparator, final K prefixkey) throws ClassNotFoundException, IOException, URISyntaxException {
+		return this.rollOut();
+	}
+
 	@Override
 	public void readLuposObject(final InputStream lois) throws IOException, ClassNotFoundException, URISyntaxException {
 		final byte empty = InputHelper.readLuposByte(lois);
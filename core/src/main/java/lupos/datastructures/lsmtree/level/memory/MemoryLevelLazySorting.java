@@ -2,8 +2,10 @@ package lupos.datastructures.lsmtree.level.memory;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Semaphore;
@@ -78,9 +80,11 @@ public class MemoryLevelLazySorting<K,V> extends MemoryLevelIterator<K, V> imple
 
 	/**
 	 * {@inheritDoc}
+	 *
+	 * This method is synchronized as the memory level is searched in while inserting into it.
 	 */
 	@Override
-	protected boolean putIntoMemory(final K key, final Container<V> value) {
+	protected synchronized boolean putIntoMemory(final K key, final Container<V> value) {
 		this.keys[this.size] = key;
 		this.values[this.size] = value;
 		this.size++;
@@ -90,25 +94,26 @@ public class MemoryLevelLazySorting<K,V> extends MemoryLevelIterator<K, V> imple
 	/**
 	 * {@inheritDoc}
 	 *
-	 * if key can't be found in the memory, the next level is searched for it on condition that it exists
+	 * if key can't be found in the memory, the next level is searched for it on condition that it exists.
+	 * This method is synchronized as also lookups sort the entries, and a full memory level is rolled out by a compaction thread while still being searched in.
 	 */
 	@Override
-	public Container<V> get(final K key) throws ClassNotFoundException, IOException, URISyntaxException {
+	public synchronized Container<V> get(final K key) throws ClassNotFoundException, IOException, URISyntaxException {
 		// only sort if there are at least M unsorted entries
 		if(this.size-this.alreadySorted>MemoryLevelLazySorting.M){
 			this.sort();
 		}
+		// search sequentially in the remaining unsorted fragment (beginning with the youngest entry)
+		for(int i=this.size-1; i>=this.alreadySorted; i--){
+			if(this.comparator.compare(this.keys[i], key)==0){
+				return this.values[i];
+			}
+		}
 		// search in the sorted fragment
 		final Container<V> result = this.binarySearch(0, this.alreadySorted-1, key);
 		if(result!=null){
 			return result;
 		}
-		// search sequentially in the remaining unsorted fragment
-		for(int i=this.alreadySorted; i<this.size; i++){
-			if(this.comparator.compare(this.keys[i], key)==0){
-				return this.values[i];
-			}
-		}
 		// search in the upper levels
 		if(this.nextLevel!=null){
 			return this.nextLevel.get(key);
@@ -128,21 +133,11 @@ public class MemoryLevelLazySorting<K,V> extends MemoryLevelIterator<K, V> imple
 		if(end<start){
 			return null;
 		}
-		if(end==start){
-			if(this.comparator.compare(this.keys[start], key)==0){
-				return this.values[start];
-			}
-			return null;
-		}
 		final int middle = (start + end) / 2;
-		final int compare = this.comparator.compare(this.keys[start], key);
+		final int compare = this.comparator.compare(this.keys[middle], key);
 		if(compare==0){
-			// check if there are younger entries with the same key...
-			int index = middle;
-			while(index-1>=start && this.comparator.compare(this.keys[index-1], key)==0){
-				index--;
-			}
-			return this.values[index];
+			// the sorted fragment does not contain duplicates (see sort())
+			return this.values[middle];
 		} else if(compare<0){
 			return this.binarySearch(middle+1, end, key);
 		} else {
@@ -154,7 +149,7 @@ public class MemoryLevelLazySorting<K,V> extends MemoryLevelIterator<K, V> imple
 	 * {@inheritDoc}
 	 */
 	@Override
-	public Iterator<Map.Entry<K,Container<V>>> rollOut(){
+	public synchronized Iterator<Map.Entry<K,Container<V>>> rollOut(){
 		this.sort();
 		return new ImmutableIterator<Map.Entry<K,Container<V>>>(){
 
@@ -177,8 +172,39 @@ public class MemoryLevelLazySorting<K,V> extends MemoryLevelIterator<K, V> imple
 		};
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The entries matching the prefix key are copied, such that the returned iterator is not affected by later insertions into this memory level.
+	 */
+	@Override
+	protected synchronized Iterator<Map.Entry<K,Container<V>>> rollOutForPrefixSearch(final Comparator<K> prefixComparator, final K prefixkey){
+		this.sort();
+		// binary search for the first entry matching the prefix key
+		int start = 0;
+		int end = this.size;
+		while(start<end){
+			final int middle = (start + end) >>> 1;
+			if(prefixComparator.compare(this.keys[middle], prefixkey)<0){
+				start = middle + 1;
+			} else {
+				end = middle;
+			}
+		}
+		end = start;
+		while(end<this.size && prefixComparator.compare(this.keys[end], prefixkey)==0){
+			end++;
+		}
+		final List<Map.Entry<K,Container<V>>> entries = new ArrayList<Map.Entry<K,Container<V>>>(end - start);
+		for(int i=start; i<end; i++){
+			entries.add(new MapEntry<K, Container<V>>(this.keys[i], this.values[i]));
+		}
+		return entries.iterator();
+	}
+
 	/**
 	 * sorts the entries...
+	 * Afterwards, only the youngest entry of several entries with the same key is kept.
 	 */
 	private void sort(){
 		if(this.alreadySorted!=this.size){
@@ -187,15 +213,38 @@ public class MemoryLevelLazySorting<K,V> extends MemoryLevelIterator<K, V> imple
 			if(this.alreadySorted>0){
 				this.merge(0, this.alreadySorted, this.size-this.alreadySorted);
 			}
+			this.removeDuplicates();
 			this.alreadySorted = this.size;
 		}
 	}
 
+	/**
+	 * removes all entries with the same key except of the youngest one.
+	 * The sorting algorithm and merging is stable, such that the youngest entry is the last one of several entries with the same key.
+	 */
+	private void removeDuplicates(){
+		int newSize = 0;
+		for(int i=0; i<this.size; i++){
+			if(newSize>0 && this.comparator.compare(this.keys[newSize-1], this.keys[i])==0){
+				// overwrite older entry
+				newSize--;
+			}
+			this.keys[newSize] = this.keys[i];
+			this.values[newSize] = this.values[i];
+			newSize++;
+		}
+		for(int i=newSize; i<this.size; i++){
+			this.keys[i] = null;
+			this.values[i] = null;
+		}
+		this.size = newSize;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void release() {
+	public synchronized void release() {
 		this.size = 0;
 		this.alreadySorted = 0;
 	}
@@ -296,11 +345,11 @@ public class MemoryLevelLazySorting<K,V> extends MemoryLevelIterator<K, V> imple
 		 */
 		private void insertionSort(final int min, final int length) {
 			// insertion sort on the original sequence!
-			for (int i = 0 + 1; i < length; ++i) {
+			for (int i = min + 1; i < min + length; ++i) {
 				final K tmp2 = MemoryLevelLazySorting.this.keys[i];
 				final Container<V> tmp2_v = MemoryLevelLazySorting.this.values[i];
 				int j;
-				for (j = i - 1; j >= 0
+				for (j = i - 1; j >= min
 						&& MemoryLevelLazySorting.this.comparator.compare(tmp2, MemoryLevelLazySorting.this.keys[j]) < 0; --j) {
 					MemoryLevelLazySorting.this.keys[j + 1] = MemoryLevelLazySorting.this.keys[j];
 					MemoryLevelLazySorting.this.values[j + 1] = MemoryLevelLazySorting.this.values[j];
@@ -6,6 +6,8 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import lupos.datastructures.lsmtree.level.Container;
 import lupos.datastructures.lsmtree.level.factory.ILevelFactory;
@@ -21,9 +23,15 @@ import lupos.datastructures.lsmtree.level.factory.ILevelFactory;
 public class MemoryLevelTreeMap<K,V> extends MemoryLevelIterator<K, V> implements IMemoryLevelIterator<K ,V>,IMemoryLevel<K,V,Iterator<Map.Entry<K,Container<V>>>> {
 
 	/**
-	 * A tree map is used to store key-value pairs
+	 * A tree map is used to store key-value pairs.
+	 * A concurrent skip list map is used, such that the memory level can be searched in while inserting into it.
 	 */
-	protected final TreeMap<K,Container<V>> tm;
+	protected final ConcurrentSkipListMap<K,Container<V>> tm;
+
+	/**
+	 * the number of entries in the tree map (as determining the size of a concurrent skip list map requires to traverse all entries)
+	 */
+	protected final AtomicInteger size = new AtomicInteger(0);
 
 	/**
 	 * Constructor sets parameters and creates a new tree map
@@ -35,7 +43,7 @@ public class MemoryLevelTreeMap<K,V> extends MemoryLevelIterator<K, V> implement
 	 */
 	public MemoryLevelTreeMap(final ILevelFactory<K,V,Iterator<Map.Entry<K,Container<V>>>> levelFactory, final int level, final int THRESHOLD, final Comparator<K> comp){
 		super(levelFactory, level, THRESHOLD);
-		this.tm = new TreeMap<K,Container<V>>(comp);
+		this.tm = new ConcurrentSkipListMap<K,Container<V>>(comp);
 	}
 
 	/**
@@ -43,7 +51,9 @@ public class MemoryLevelTreeMap<K,V> extends MemoryLevelIterator<K, V> implement
 	 */
 	@Override
 	protected final boolean putIntoMemory(final K key, final Container<V> value) {
-		this.tm.put(key,value);
+		if(this.tm.put(key,value)==null){
+			this.size.incrementAndGet();
+		}
 		return true;
 	}
 
@@ -81,10 +91,11 @@ public class MemoryLevelTreeMap<K,V> extends MemoryLevelIterator<K, V> implement
 	@Override
 	public void release() {
 		this.tm.clear();
+		this.size.set(0);
 	}
 
 	@Override
 	public int size() {
-		return this.tm.size();
+		return this.size.get();
 	}
 }
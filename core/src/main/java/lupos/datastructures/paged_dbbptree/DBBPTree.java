@@ -1046,6 +1046,23 @@ public class DBBPTree<K extends Serializable, V extends Serializable> implements
 		this.firstLeafPage = -1;
 	}
 
+	/**
+	 * Releases the pages of this B+-tree in the buffer manager and deletes its files.
+	 * The B+-tree must not be used any more afterwards (e.g. after it has been replaced by a new B+-tree).
+	 */
+	public void release() {
+		try {
+			this.pageManager.release();
+		} catch (final IOException e) {
+			System.err.println(e);
+			e.printStackTrace();
+		}
+		FileHelper.deleteFilesStartingWithPattern(DBBPTree.mainFolder, this.currentID + ".dbbptree_");
+		this.size = 0;
+		this.rootPage = -1;
+		this.firstLeafPage = -1;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public boolean containsKey(final Object arg0) {
@@ -2569,6 +2586,11 @@ public class DBBPTree<K extends Serializable, V extends Serializable> implements
 		InputStream currentLeafIn;
 		V lastTriple;
 		K lastKey;
+		/**
+		 * true if the current leaf node has been reached by descending from the inner nodes stored in innerNodes,
+		 * false if it has been reached by following the link from its preceding leaf node
+		 */
+		boolean currentLeafCoveredByInnerNodes = false;
 
 		private V getFirst(final int filename) {
 			if (filename < 0) {
@@ -2579,6 +2601,7 @@ public class DBBPTree<K extends Serializable, V extends Serializable> implements
 				final InputStream in = new PageInputStream(filename, DBBPTree.this.pageManager);
 				final boolean leaf = InputHelper.readLuposBoolean(in);
 				if (leaf) { // leaf node reached!
+					this.currentLeafCoveredByInnerNodes = true;
 					while (true) {
 						final DBBPTreeEntry<K, V> e = DBBPTree.this.nodeDeSerializer
 						.getNextLeafEntry(in, this.lastKey, this.lastTriple);
@@ -2643,6 +2666,7 @@ public class DBBPTree<K extends Serializable, V extends Serializable> implements
 				this.lastTriple = null;
 				this.lastKey = null;
 				if (leaf) { // leaf node reached!
+					this.currentLeafCoveredByInnerNodes = true;
 					while (true) {
 						final DBBPTreeEntry<K, V> e = DBBPTree.this.nodeDeSerializer
 						.getNextLeafEntry(in, this.lastKey, this.lastTriple);
@@ -2778,6 +2802,7 @@ public class DBBPTree<K extends Serializable, V extends Serializable> implements
 						this.lastTriple = null;
 						this.lastKey = null;
 						this.currentLeafIn = new PageInputStream(e.filenameOfNextLeafNode, DBBPTree.this.pageManager);
+						this.currentLeafCoveredByInnerNodes = false;
 						// read over the leaf flag!
 						InputHelper.readLuposBoolean(this.currentLeafIn);
 						e = DBBPTree.this.nodeDeSerializer.getNextLeafEntry(this.currentLeafIn,
@@ -2856,6 +2881,13 @@ public class DBBPTree<K extends Serializable, V extends Serializable> implements
 
 		protected V getNext(final K k) {
 			try {
+				if (this.isBehindCurrentLeaf(k)) {
+					// all remaining entries of the current leaf node are smaller than k
+					// => use SIP information to jump to the right B+-tree leaf node directly
+					// without reading the remaining entries of the current leaf node!
+					this.currentLeafIn.close();
+					return this.getFirstUsingCache(0, k);
+				}
 				DBBPTreeEntry<K, V> e = DBBPTree.this.nodeDeSerializer.getNextLeafEntry(
 						this.currentLeafIn, this.lastKey, this.lastTriple);
 				if (e == null) {
@@ -2869,6 +2901,7 @@ public class DBBPTree<K extends Serializable, V extends Serializable> implements
 						this.lastTriple = null;
 						this.lastKey = null;
 						this.currentLeafIn = new PageInputStream(e.filenameOfNextLeafNode, DBBPTree.this.pageManager);
+						this.currentLeafCoveredByInnerNodes = false;
 						// read over the leaf flag!
 						InputHelper.readLuposBoolean(this.currentLeafIn);
 						e = DBBPTree.this.nodeDeSerializer.getNextLeafEntry(this.currentLeafIn, this.lastKey, this.lastTriple);
@@ -2925,6 +2958,21 @@ public class DBBPTree<K extends Serializable, V extends Serializable> implements
 			return null;
 		}
 
+		/**
+		 * Checks whether or not the given key is larger than the separator key of the inner node pointing to the current leaf node,
+		 * i.e., whether or not all entries of the current leaf node are smaller than the given key.
+		 *
+		 * @param k the key to be searched for
+		 * @return true if the current leaf node cannot contain the given key
+		 */
+		protected boolean isBehindCurrentLeaf(final K k) {
+			if (!this.currentLeafCoveredByInnerNodes || this.innerNodes.isEmpty()) {
+				return false;
+			}
+			final K separator = this.innerNodes.get(this.innerNodes.size() - 1).getFirst();
+			return separator != null && DBBPTree.this.comparator.compare(separator, k) < 0;
+		}
+
 		@Override
 		public V next(final K k) {
 			V result = this.next;
@@ -83,6 +83,30 @@ public class BoundedBuffer<E> {
 		}
 	}
 
+	/**
+	 * Puts an element into the buffer only if this is possible without waiting.
+	 *
+	 * @param bindings the element to be put into the buffer
+	 * @return true if the element has been put into the buffer (or the buffer has been stopped), false if the buffer is currently full
+	 */
+	public boolean offer(final E bindings) {
+		this.lock.lock();
+		try {
+			if (this.count == this.maxBufferLocal) {
+				return this.stop;
+			}
+			this.buffer[this.putptr] = bindings;
+			if (++this.putptr == this.maxBufferLocal) {
+				this.putptr = 0;
+			}
+			++this.count;
+			this.notEmpty.signalAll();
+			return true;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
 	/**
 	 * <p>put.</p>
 	 *
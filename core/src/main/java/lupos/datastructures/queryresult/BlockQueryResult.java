@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.datastructures.queryresult;
+
+import java.util.Iterator;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsBlock;
+import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.items.Variable;
+
+/**
+ * A query result, the solutions of which are delivered in columnar blocks
+ * (see {@link lupos.datastructures.bindings.BindingsBlock}).<br>
+ * Operators implementing {@link lupos.engine.operators.BlockOperator} consume
+ * the blocks directly via {@link #blockIterator()}, all other operators just
+ * use this query result like any other one, in which case the solutions are
+ * decoded into Bindings objects on demand.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class BlockQueryResult extends IteratorQueryResult {
+
+	protected final Iterator<BindingsBlock> blocks;
+	protected final Variable[] variables;
+	protected final BindingsFactory bindingsFactory;
+
+	/**
+	 * is set to true as soon as solutions are decoded into Bindings objects,
+	 * afterwards the blocks cannot be consumed any more
+	 */
+	protected boolean decoded = false;
+
+	/**
+	 * <p>Constructor for BlockQueryResult.</p>
+	 *
+	 * @param blocks the blocks of this query result, all of them with the given variables
+	 * @param variables the variables of the blocks
+	 * @param bindingsFactory the factory used to decode solutions into Bindings objects
+	 */
+	public BlockQueryResult(final Iterator<BindingsBlock> blocks, final Variable[] variables, final BindingsFactory bindingsFactory) {
+		super(null);
+		this.blocks = blocks;
+		this.variables = variables;
+		this.bindingsFactory = bindingsFactory;
+		this.itb = new ParallelIterator<Bindings>() {
+
+			BindingsBlock currentBlock = null;
+			int currentRow = 0;
+
+			@Override
+			public boolean hasNext() {
+				BlockQueryResult.this.decoded = true;
+				while (this.currentBlock == null || this.currentRow >= this.currentBlock.size()) {
+					if (!blocks.hasNext()) {
+						return false;
+					}
+					this.currentBlock = blocks.next();
+					this.currentRow = 0;
+				}
+				return true;
+			}
+
+			@Override
+			public Bindings next() {
+				if (!this.hasNext()) {
+					return null;
+				}
+				final Bindings result = this.currentBlock.toBindings(this.currentRow, bindingsFactory);
+				this.currentRow++;
+				return result;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+				if (blocks instanceof ParallelIterator) {
+					((ParallelIterator<BindingsBlock>) blocks).close();
+				}
+			}
+		};
+	}
+
+	/**
+	 * <p>isBlockwise.</p>
+	 *
+	 * @return true if the blocks can still be consumed, i.e., no solution has been decoded into a Bindings object before
+	 */
+	public boolean isBlockwise() {
+		return !this.decoded;
+	}
+
+	/**
+	 * Returns the iterator over the blocks of this query result. This method
+	 * must be called only once and only if {@link #isBlockwise()} returns true.
+	 *
+	 * @return the iterator over the blocks
+	 */
+	public Iterator<BindingsBlock> blockIterator() {
+		return this.blocks;
+	}
+
+	/**
+	 * <p>Getter for the field <code>variables</code>.</p>
+	 *
+	 * @return the variables of the blocks
+	 */
+	public Variable[] getVariables() {
+		return this.variables;
+	}
+
+	/**
+	 * <p>Getter for the field <code>bindingsFactory</code>.</p>
+	 *
+	 * @return the factory used to decode solutions into Bindings objects
+	 */
+	public BindingsFactory getBindingsFactory() {
+		return this.bindingsFactory;
+	}
+
+	/**
+	 * Returns an iterator over blocks, which skips empty blocks and determines
+	 * the next block already before it is requested. This is used by block
+	 * operators to check whether or not any solution is delivered at all.
+	 *
+	 * @param blocks the blocks, some of them maybe empty
+	 * @return an iterator over the non-empty blocks or null if there are no non-empty blocks at all
+	 */
+	public static Iterator<BindingsBlock> nonEmptyBlocks(final Iterator<BindingsBlock> blocks) {
+		final ParallelIterator<BindingsBlock> result = new ParallelIterator<BindingsBlock>() {
+
+			BindingsBlock next = this.computeNext();
+
+			@Override
+			public boolean hasNext() {
+				return this.next != null;
+			}
+
+			@Override
+			public BindingsBlock next() {
+				final BindingsBlock znext = this.next;
+				if (znext != null) {
+					this.next = this.computeNext();
+				}
+				return znext;
+			}
+
+			private BindingsBlock computeNext() {
+				while (blocks.hasNext()) {
+					final BindingsBlock block = blocks.next();
+					if (block != null && !block.isEmpty()) {
+						return block;
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+				if (blocks instanceof ParallelIterator) {
+					((ParallelIterator<BindingsBlock>) blocks).close();
+				}
+			}
+		};
+		if (result.hasNext()) {
+			return result;
+		}
+		// the underlying iterator (e.g. of an index scan) is not used any more
+		result.close();
+		return null;
+	}
+}
@@ -57,6 +57,8 @@ import lupos.engine.operators.index.Dataset;
 import lupos.engine.operators.index.Dataset.ONTOLOGY;
 import lupos.engine.operators.index.Indices;
 import lupos.engine.operators.index.Root;
+import lupos.engine.operators.index.adaptedRDF3X.DeltaStore;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan;
 import lupos.engine.operators.messages.BindingsFactoryMessage;
 import lupos.engine.operators.messages.BoundVariablesMessage;
 import lupos.engine.operators.messages.EndOfEvaluationMessage;
@@ -74,6 +76,7 @@ import lupos.optimizations.logical.rules.generated.AfterPhysicalOptimizationRule
 import lupos.optimizations.logical.rules.generated.CorrectOperatorgraphRulePackage;
 import lupos.optimizations.logical.rules.generated.LogicalOptimizationRulePackage;
 import lupos.optimizations.physical.PhysicalOptimizations;
+import lupos.optimizations.physical.PushRangeFilterIntoIndexScanRule;
 import lupos.optimizations.sparql2core_sparql.SPARQL2CoreSPARQLParserVisitorImplementationDumper;
 import lupos.rdf.Prefix;
 import lupos.sparql1_1.ASTPrefixDecl;
@@ -748,9 +751,15 @@ public abstract class BasicIndexQueryEvaluator extends CommonCoreQueryEvaluator<
 		}
 
 		final Date a = new Date();
-		this.root.sendMessage(new StartOfEvaluationMessage());
-		this.root.startProcessing();
-		this.root.sendMessage(new EndOfEvaluationMessage());
+		// all index scans of this query see the same snapshot of the data (the snapshot is passed to the operators with the start message)
+		final DeltaStore.Snapshot snapshot = DeltaStore.pinSnapshot();
+		try {
+			this.root.sendMessage(new StartOfEvaluationMessage(snapshot));
+			this.root.startProcessing();
+			this.root.sendMessage(new EndOfEvaluationMessage());
+		} finally {
+			snapshot.release();
+		}
 		final long time = ((new Date()).getTime() - a.getTime());
 
 //		System.out.println("Number of results:" + cr.getNumberResults());
@@ -809,11 +818,16 @@ public abstract class BasicIndexQueryEvaluator extends CommonCoreQueryEvaluator<
 		}
 
 		final Date a = new Date();
-		this.root.sendMessageDebug(new StartOfEvaluationMessage(),
-				debugstep);
-		this.root.startProcessingDebug(debugstep);
-		this.root.sendMessageDebug(new EndOfEvaluationMessage(),
-				debugstep);
+		final DeltaStore.Snapshot snapshot = DeltaStore.pinSnapshot();
+		try {
+			this.root.sendMessageDebug(new StartOfEvaluationMessage(snapshot),
+					debugstep);
+			this.root.startProcessingDebug(debugstep);
+			this.root.sendMessageDebug(new EndOfEvaluationMessage(),
+					debugstep);
+		} finally {
+			snapshot.release();
+		}
 		final long time = ((new Date()).getTime() - a.getTime());
 
 		if (instanceClass != null) {
@@ -944,6 +958,9 @@ public abstract class BasicIndexQueryEvaluator extends CommonCoreQueryEvaluator<
 			case PARALLELHASH:
 				to = "parallel.HashParallelJoin";
 				break;
+			case RADIXHASH:
+				to = "RadixHashJoin";
+				break;
 			}
 			PhysicalOptimizations
 			.addReplacement("multiinput.join.", "Join", to);
@@ -1073,6 +1090,12 @@ public abstract class BasicIndexQueryEvaluator extends CommonCoreQueryEvaluator<
 		this.root.detectCycles();
 		final AfterPhysicalOptimizationRulePackage refie = new AfterPhysicalOptimizationRulePackage();
 		refie.applyRules(this.root);
+		if(RDF3XIndexScan.pushDownRangeFilters){
+			final PushRangeFilterIntoIndexScanRule pushRangeFilters = new PushRangeFilterIntoIndexScanRule();
+			while(pushRangeFilters.apply(this.root)){
+				// apply the rule until no index scan can be further restricted
+			}
+		}
 		this.setBindingsVariablesBasedOnOperatorgraph();
 		return ((new Date()).getTime() - a.getTime());
 	}
@@ -31,6 +31,7 @@ import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -49,12 +50,17 @@ import lupos.datastructures.queryresult.QueryResult;
 import lupos.engine.operators.BasicOperator;
 import lupos.engine.operators.OperatorIDTuple;
 import lupos.engine.operators.SimpleOperatorGraphVisitor;
+import lupos.engine.operators.application.Application;
 import lupos.engine.operators.application.CollectAllResults;
 import lupos.engine.operators.index.BasicIndexScan;
+import lupos.engine.operators.index.Root;
 import lupos.engine.operators.messages.BindingsFactoryMessage;
+import lupos.engine.operators.multiinput.join.HashJoin;
 import lupos.engine.operators.multiinput.join.parallel.ParallelJoin;
+import lupos.engine.operators.singleinput.HashGroup;
 import lupos.engine.operators.singleinput.Projection;
 import lupos.engine.operators.singleinput.Result;
+import lupos.engine.operators.singleinput.filter.Filter;
 import lupos.engine.operators.singleinput.parallel.ParallelOperand;
 import lupos.engine.operators.tripleoperator.TripleConsumer;
 import lupos.engine.operators.tripleoperator.TriplePattern;
@@ -64,8 +70,10 @@ import lupos.optimizations.logical.rules.DebugContainer;
 import lupos.optimizations.logical.rules.parallel.RuleEngineForParallelOperator;
 import lupos.optimizations.logical.rules.parallel.RuleJoinWithParallelOperands;
 import lupos.rdf.Prefix;
+import lupos.rdf.parser.ChunkedParallelParser;
 import lupos.rdf.parser.Parser;
 import lupos.rdf.parser.YagoParser;
+import lupos.sparql1_1.SimpleNode;
 import lupos.sparql1_1.operatorgraph.helper.IndexScanCreatorInterface;
 
 import org.slf4j.Logger;
@@ -95,7 +103,7 @@ public abstract class CommonCoreQueryEvaluator<A> extends QueryEvaluator<A> {
 	protected Enum defaultOptimization;
 
 	public enum JOIN {
-		DEFAULT, NESTEDLOOP, HASHMAPINDEX, PAGEDMAPINDEX, DBBPTREEINDEX, SMALLERINHASHMAPLARGERINDBBPTREEINDEX, MERGE, DBMERGE, DBMERGEITERATIONS, HASH, PARALLELNESTEDLOOP, PARALLELHASHMAPINDEX, PARALLELDBBPTREEINDEX, PARALLELSMALLERINHASHMAPLARGERINDBBPTREEINDEX, PARALLELMERGE, PARALLELDBMERGE, PARALLELHASH;
+		DEFAULT, NESTEDLOOP, HASHMAPINDEX, PAGEDMAPINDEX, DBBPTREEINDEX, SMALLERINHASHMAPLARGERINDBBPTREEINDEX, MERGE, DBMERGE, DBMERGEITERATIONS, HASH, PARALLELNESTEDLOOP, PARALLELHASHMAPINDEX, PARALLELDBBPTREEINDEX, PARALLELSMALLERINHASHMAPLARGERINDBBPTREEINDEX, PARALLELMERGE, PARALLELDBMERGE, PARALLELHASH, RADIXHASH;
 	}
 
 	protected enum SORT {
@@ -450,6 +458,14 @@ public abstract class CommonCoreQueryEvaluator<A> extends QueryEvaluator<A> {
 				"inmemoryexternalontologyinference",
 				"specifies if the inference computations in external ontologies are done in memory (or disks are used for temporary data)",
 				false);
+		this.args.addBooleanOption(
+				"hashgroup",
+				"specifies if GROUP BY is evaluated by hash aggregation (if applicable) instead of sorting the solutions",
+				false);
+		this.args.addBooleanOption(
+				"paralleljoin",
+				"specifies if hash joins are computed by several threads in main memory (if there is enough free memory and the smaller operand is not too large)",
+				false);
 		this.args.addStringOption("encoding",
 				"specifies the used encoding for reading in data files...",
 				encoding);
@@ -506,6 +522,8 @@ public abstract class CommonCoreQueryEvaluator<A> extends QueryEvaluator<A> {
 				(DISTINCT) this.args.getEnum("distinct"),
 				(MERGE_JOIN_OPTIONAL) this.args.getEnum("merge_join_optional"),
 				this.args.getString("encoding"));
+		HashGroup.setUseHashAggregation(this.args.getBool("hashgroup"));
+		HashJoin.parallel = this.args.getBool("paralleljoin");
 	}
 
 	/**
@@ -593,12 +611,31 @@ public abstract class CommonCoreQueryEvaluator<A> extends QueryEvaluator<A> {
 	/**
 	 * <p>getTriplePatternsOfQuery.</p>
 	 *
+	 * Besides the triple patterns of the index scans directly under the root node,
+	 * also the triple patterns of the (possibly nested) FILTER (NOT) EXISTS subqueries
+	 * are returned, as these have their own root nodes.
+	 *
 	 * @return a {@link java.util.List} object.
 	 */
 	public List<TriplePattern> getTriplePatternsOfQuery(){
 		final List<TriplePattern> result = new LinkedList<TriplePattern>();
+		CommonCoreQueryEvaluator.collectTriplePatterns(this.rootNode, result);
+		return result;
+	}
 
-		for(final OperatorIDTuple child: this.rootNode.getSucceedingOperators()){
+	/**
+	 * Adds the triple patterns of the index scans directly under the given root
+	 * as well as the ones of the roots of FILTER (NOT) EXISTS subqueries in the
+	 * operator graph of the given root to the given list.
+	 *
+	 * @param root the root node of the (sub-) query
+	 * @param result the list to which the triple patterns are added
+	 */
+	private static void collectTriplePatterns(final BasicOperator root, final List<TriplePattern> result){
+		if(root == null){
+			return;
+		}
+		for(final OperatorIDTuple child: root.getSucceedingOperators()){
 			final BasicOperator op = child.getOperator();
 			if(op instanceof BasicIndexScan){
 				result.addAll(((BasicIndexScan)op).getTriplePattern());
@@ -606,8 +643,22 @@ public abstract class CommonCoreQueryEvaluator<A> extends QueryEvaluator<A> {
 				result.add((TriplePattern) op);
 			}
 		}
+		root.visit(new SimpleOperatorGraphVisitor() {
+			private static final long serialVersionUID = 1L;
 
-		return result;
+			@Override
+			public Object visit(final BasicOperator basicOperator) {
+				if(basicOperator instanceof Filter){
+					final Map<SimpleNode, Root> existRoots = ((Filter) basicOperator).getCollectionForExistNodes();
+					if(existRoots != null){
+						for(final Root existRoot: existRoots.values()){
+							CommonCoreQueryEvaluator.collectTriplePatterns(existRoot, result);
+						}
+					}
+				}
+				return null;
+			}
+		});
 	}
 
 	/** {@inheritDoc} */
@@ -681,6 +732,23 @@ public abstract class CommonCoreQueryEvaluator<A> extends QueryEvaluator<A> {
 		return this.getResult(oneTime);
 	}
 
+	/**
+	 * Evaluates the given query and pushes its results to the given application as soon as they are determined,
+	 * i.e., the results are not collected before being processed by the application.
+	 *
+	 * @param query a {@link java.lang.String} object.
+	 * @param application the application, to which the results are pushed
+	 * @return the time needed for evaluating the query (see evaluateQuery())
+	 * @throws java.lang.Exception if any.
+	 */
+	public long evaluateQuery(final String query, final Application application) throws Exception {
+		this.compileQuery(query);
+		this.logicalOptimization();
+		this.physicalOptimization();
+		this.result.addApplication(application);
+		return this.evaluateQuery();
+	}
+
 	/**
 	 * <p>getResults.</p>
 	 *
@@ -886,6 +954,12 @@ public abstract class CommonCoreQueryEvaluator<A> extends QueryEvaluator<A> {
 					}
 				}
 			}
+		} else if (type.startsWith("PARALLEL")) {
+			// split line-based data into chunks, which are parsed in parallel
+			final int number = ChunkedParallelParser.parseRDFData(type.substring("PARALLEL".length()), input, tc, encoding);
+			if(CommonCoreQueryEvaluator.printNumberOfTriples){
+				log.debug("Number of read triples: {}", number);
+			}
 		} else {
 			readTriplesWithoutMultipleFiles(type, input, tc);
 		}
@@ -927,6 +1001,21 @@ public abstract class CommonCoreQueryEvaluator<A> extends QueryEvaluator<A> {
 	public static void readTriplesWithoutMultipleFilesUncompressed(
 			final String type,
 			final InputStream input, final TripleConsumer tc) throws Exception {
+		readTriplesWithoutMultipleFilesUncompressed(type, input, tc, encoding);
+	}
+
+	/**
+	 * <p>readTriplesWithoutMultipleFilesUncompressed.</p>
+	 *
+	 * @param type a {@link java.lang.String} object.
+	 * @param input a {@link java.io.InputStream} object.
+	 * @param tc a {@link lupos.engine.operators.tripleoperator.TripleConsumer} object.
+	 * @param encoding the encoding of the input
+	 * @throws java.lang.Exception if any.
+	 */
+	public static void readTriplesWithoutMultipleFilesUncompressed(
+			final String type,
+			final InputStream input, final TripleConsumer tc, final String encoding) throws Exception {
 		final int length=type.length();
 		if(length>0){
 			String className=type.substring(0, 1).toUpperCase();
@@ -35,18 +35,24 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.LinkedList;
 
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsArray;
+import lupos.datastructures.bindings.BindingsArrayCodes;
 import lupos.datastructures.dbmergesortedds.heap.Heap;
 import lupos.datastructures.dbmergesortedds.tosort.ToSort;
 import lupos.datastructures.items.literal.LazyLiteral;
 import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
 import lupos.datastructures.items.literal.URILiteral;
 import lupos.datastructures.queryresult.QueryResult;
 import lupos.engine.operators.index.BasicIndexScan;
 import lupos.engine.operators.index.Dataset;
 import lupos.engine.operators.index.Indices;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan;
 import lupos.engine.operators.index.adaptedRDF3X.RDF3XRoot;
 import lupos.engine.operators.index.adaptedRDF3X.SixIndices;
 import lupos.misc.Tuple;
+import lupos.optimizations.physical.joinorder.worstcaseoptimal.LeapfrogTriejoinOptimizer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -186,6 +192,26 @@ public class RDF3XQueryEvaluator extends BasicIndexQueryEvaluator {
 						"writeindexinfo",
 						"Information about the used indices are written to a given file. This file can be later used to directly use the previously constructed indices instead of importing the data again. See also --readindexinfo.",
 						"");
+		this.args.addBooleanOption(
+						"leapfrogtriejoin",
+						"Cyclic basic graph patterns (like triangles or cliques) are evaluated by the worst-case optimal Leapfrog Triejoin operator instead of trees of binary or n-ary joins.",
+						false);
+		this.args.addBooleanOption(
+						"blockwiseindexscans",
+						"The index scans deliver their solutions in columnar blocks of codes, which are directly processed by merge joins, filters and projections. All other operators decode the blocks into single solutions. Only used for the code maps LAZYLITERAL and LAZYLITERALWITHOUTINITIALPREFIXCODEMAP.",
+						false);
+		this.args.addBooleanOption(
+						"codebindings",
+						"Intermediate solutions store the codes of the literals in a primitive int array instead of literal objects, such that joins, duplicate elimination and sorting compare the codes directly. Only used for the code maps LAZYLITERAL and LAZYLITERALWITHOUTINITIALPREFIXCODEMAP.",
+						false);
+		this.args.addBooleanOption(
+						"pushdownrangefilters",
+						"Filters restricting a variable of a triple pattern to a prefix of its string representation (like STRSTARTS or anchored regular expressions) or to an interval of integer or decimal values are translated into code ranges of the index scan of the triple pattern. Only used for the code maps LAZYLITERAL and LAZYLITERALWITHOUTINITIALPREFIXCODEMAP.",
+						false);
+		this.args.addBooleanOption(
+						"inlining",
+						"xsd:integer and xsd:dateTime literals are inlined into order-preserving codes instead of being stored in the dictionary during index construction, such that comparisons, joins and sorting on them do not need to decode them. Indices constructed with inlining must be queried with inlining (and vice versa).",
+						false);
 		super.setupArguments();
 	}
 
@@ -196,6 +222,16 @@ public class RDF3XQueryEvaluator extends BasicIndexQueryEvaluator {
 		this.init(this.args.getBool("loadindexinfo"), this.args
 				.getString("writeindexinfo"),
 				(Optimizations) this.args.getEnum("optimization"));
+		LeapfrogTriejoinOptimizer.enabled = this.args.getBool("leapfrogtriejoin");
+		RDF3XIndexScan.blockwise = this.args.getBool("blockwiseindexscans");
+		RDF3XIndexScan.pushDownRangeFilters = this.args.getBool("pushdownrangefilters");
+		final LiteralFactory.MapType mapType = LiteralFactory.getMapType();
+		if(this.args.getBool("codebindings") && (mapType == LiteralFactory.MapType.LAZYLITERAL || mapType == LiteralFactory.MapType.LAZYLITERALWITHOUTINITIALPREFIXCODEMAP)){
+			Bindings.instanceClass = BindingsArrayCodes.class;
+		} else if(Bindings.instanceClass == BindingsArrayCodes.class){
+			Bindings.instanceClass = BindingsArray.class;
+		}
+		OrderPreservingCodes.INLINING = this.args.getBool("inlining");
 	}
 
 	/**
@@ -205,6 +241,17 @@ public class RDF3XQueryEvaluator extends BasicIndexQueryEvaluator {
 	 * @throws java.lang.Exception if any.
 	 */
 	public void loadLargeScaleIndices(final String dir) throws Exception{
+		this.loadLargeScaleIndices(dir, Indices.DATA_STRUCT.DBBPTREE);
+	}
+
+	/**
+	 * <p>loadLargeScaleIndices.</p>
+	 *
+	 * @param dir a {@link java.lang.String} object.
+	 * @param datastructure the data structure of the evaluation indices (DBBPTREE or LSMTREE), with which the indices have been written
+	 * @throws java.lang.Exception if any.
+	 */
+	public void loadLargeScaleIndices(final String dir, final Indices.DATA_STRUCT datastructure) throws Exception{
 		final String datafile=dir+File.separator+INDICESINFOFILE;
 
 		this.setupArguments();
@@ -214,10 +261,12 @@ public class RDF3XQueryEvaluator extends BasicIndexQueryEvaluator {
 		this.getArgs().set("distinct", CommonCoreQueryEvaluator.DISTINCT.FASTPAGEDHASHSET);
 		this.getArgs().set("optional", CommonCoreQueryEvaluator.JOIN.HASH);
 		this.getArgs().set("join", CommonCoreQueryEvaluator.JOIN.HASH);
-		this.getArgs().set("datastructure", Indices.DATA_STRUCT.DBBPTREE);
+		this.getArgs().set("datastructure", datastructure);
 		this.getArgs().set("tmpDir", dir);
 		this.getArgs().set("sortduringindexconstruction", Dataset.SORT.STRINGSEARCHTREE);
 		this.getArgs().set("loadindexinfo", true);
+		// the indices are queried with the same setting for inlining literals as they have been constructed with by the bulk loader
+		this.getArgs().set("inlining", OrderPreservingCodes.INLINING);
 		this.init();
 
 		// load indices!
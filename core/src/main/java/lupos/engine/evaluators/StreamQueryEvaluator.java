@@ -643,6 +643,9 @@ public class StreamQueryEvaluator extends CommonCoreQueryEvaluator<Node> {
 			case PARALLELHASH:
 				to = "parallel.HashParallelJoin";
 				break;
+			case RADIXHASH:
+				to = "RadixHashJoin";
+				break;
 			}
 			PhysicalOptimizations
 					.addReplacement("multiinput.join.", "Join", to);
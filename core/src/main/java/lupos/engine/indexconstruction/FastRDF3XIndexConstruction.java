@@ -32,9 +32,14 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -42,6 +47,8 @@ import java.util.Map.Entry;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import lupos.compression.Compression;
 import lupos.datastructures.buffermanager.BufferManager;
@@ -57,6 +64,7 @@ import lupos.datastructures.items.literal.LazyLiteral;
 import lupos.datastructures.items.literal.Literal;
 import lupos.datastructures.items.literal.LiteralFactory;
 import lupos.datastructures.items.literal.URILiteral;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
 import lupos.datastructures.items.literal.codemap.StringIntegerMapJava;
 import lupos.datastructures.paged_dbbptree.DBBPTree.Generator;
 import lupos.datastructures.paged_dbbptree.node.nodedeserializer.StringIntegerNodeDeSerializer;
@@ -79,6 +87,7 @@ import lupos.io.helper.OutHelper;
 import lupos.misc.FileHelper;
 import lupos.misc.TimeInterval;
 import lupos.misc.util.ImmutableIterator;
+import lupos.rdf.parser.ChunkedParallelParser;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -98,7 +107,7 @@ public class FastRDF3XIndexConstruction {
 	protected static final int k = 1000;
 	protected static final int k_ = 1000;
 
-	private static final int NUMBER_OF_THREADS = 8;
+	private static final int NUMBER_OF_THREADS = Runtime.getRuntime().availableProcessors();
 
 	// how many triples are loaded into main memory to be sorted in the initial runs?
 	/** Constant <code>LIMIT_TRIPLES_IN_MEMORY=50000000</code> */
@@ -107,6 +116,13 @@ public class FastRDF3XIndexConstruction {
 	public static int NUMBER_OF_PARALLEL_TRIES = 1;
 	public static int NUMBER_OF_PARALLEL_INPUT = 2;
 
+	// should parsing, building the local dictionaries, sorting and writing the initial runs and generating the global dictionary run concurrently as stages of a pipeline?
+	public static boolean PIPELINED = true;
+	// how many triples (or strings) are handed over at once from one stage of the pipeline to the next one?
+	public static int PIPELINE_BATCH_SIZE = 10000;
+	// how many batches may wait between two stages of the pipeline?
+	public static int PIPELINE_BUFFER_SIZE = 16;
+
 	// just for mapping from 0 to 2 to S, P and O
 	/** Constant <code>map="new String[]{S, P, O}"</code> */
 	protected final static String[] map = new String[]{"S", "P", "O"};
@@ -116,6 +132,12 @@ public class FastRDF3XIndexConstruction {
 	public static long totalCountingSortTime = 0;
 	public static long totalMappingToTempIDsTime = 0;
 
+	// statistics about the stages of the pipeline
+	public static final AtomicLong totalParsedTriples = new AtomicLong();
+	public static final AtomicLong totalParserWaitingTime = new AtomicLong();
+	public static final AtomicLong totalDictionaryStageTime = new AtomicLong();
+	public static final AtomicLong totalRunGenerationTime = new AtomicLong();
+
 	private FastRDF3XIndexConstruction() {
 	}
 
@@ -125,6 +147,7 @@ public class FastRDF3XIndexConstruction {
 	 * The command line arguments are
 	 * datafile dataformat encoding NONE|BZIP2|HUFFMAN|GZIP directory_for_indices [LIMIT_TRIPLES_IN_MEMORY [PARALLEL_TRIES [PARALLEL_INPUT [datafile2 [datafile3 ...]]]]]
 	 * If you want to import more than one file you can use the additional parameters datafilei!
+	 * Line-based data (like N-Triples) can be parsed in parallel chunks by using the dataformat PARALLEL&lt;format&gt; (e.g. PARALLELN3).
 	 *
 	 * @param args
 	 *            command line arguments
@@ -146,6 +169,10 @@ public class FastRDF3XIndexConstruction {
 
 	public static void main(final GenerateIndicesAndWriteOut generateIndicesAndWriteOut, final String[] args) {
 		try {
+			FastRDF3XIndexConstruction.resetStatistics();
+			// such that several indices can be constructed one after the other in the same program
+			CreateLocalDictionaryAndLocalIds.reset();
+			GlobalIdsMapper.reset();
 			// analyze command line parameters
 			final long start = System.currentTimeMillis();
 			log.debug("Starting time: {}", (new Date()).toString() + " ("+start+")");
@@ -207,6 +234,8 @@ public class FastRDF3XIndexConstruction {
 				runGenerators[i] = new CreateLocalDictionaryAndLocalIds(dir);
 			}
 
+			// an error during reading the input data aborts the index construction (otherwise the index would be incomplete)
+			Exception readError = null;
 			for(final URILiteral uri: defaultGraphs) {
 				try {
 					if(dataFormat.startsWith("MULTIPLE")){ // read input in parallel!
@@ -225,9 +254,16 @@ public class FastRDF3XIndexConstruction {
 						}
 						filenamesBB.endOfData();
 						final Thread[] threads = new Thread[FastRDF3XIndexConstruction.NUMBER_OF_PARALLEL_INPUT*FastRDF3XIndexConstruction.NUMBER_OF_PARALLEL_TRIES];
+						final PipelinedTripleConsumer[] pipelinedTCs = new PipelinedTripleConsumer[FastRDF3XIndexConstruction.NUMBER_OF_PARALLEL_TRIES];
 						for(int j = 0; j<FastRDF3XIndexConstruction.NUMBER_OF_PARALLEL_TRIES; j++){
 							final int index = j;
-							final TripleConsumer synchronizedTC = (FastRDF3XIndexConstruction.NUMBER_OF_PARALLEL_INPUT==1)? // synchronized triple consumer is not necessary for CreateParallelLocalDictionaryAndLocalIds (synchronization is done in its bounded buffer!)
+							final TripleConsumer synchronizedTC;
+							if(FastRDF3XIndexConstruction.PIPELINED){
+								// the parsers only synchronize for adding to the current batch, the local dictionary is built in an own thread
+								pipelinedTCs[index] = new PipelinedTripleConsumer(runGenerators[index]);
+								synchronizedTC = pipelinedTCs[index];
+							} else {
+								synchronizedTC = (FastRDF3XIndexConstruction.NUMBER_OF_PARALLEL_INPUT==1)? // synchronized triple consumer is not necessary for CreateParallelLocalDictionaryAndLocalIds (synchronization is done in its bounded buffer!)
 									runGenerators[index]:
 									new TripleConsumer() {
 										@Override
@@ -235,8 +271,9 @@ public class FastRDF3XIndexConstruction {
 											runGenerators[index].consume(triple);
 										}
 									};
+							}
 							for (int i = 0; i < FastRDF3XIndexConstruction.NUMBER_OF_PARALLEL_INPUT; i++) {
-								threads[j*FastRDF3XIndexConstruction.NUMBER_OF_PARALLEL_TRIES+i] = new Thread() {
+								threads[j*FastRDF3XIndexConstruction.NUMBER_OF_PARALLEL_INPUT+i] = new Thread() {
 									@Override
 									public void run() {
 										try {
@@ -267,7 +304,7 @@ public class FastRDF3XIndexConstruction {
 										}
 									}
 								};
-								threads[j*FastRDF3XIndexConstruction.NUMBER_OF_PARALLEL_TRIES+i].start();
+								threads[j*FastRDF3XIndexConstruction.NUMBER_OF_PARALLEL_INPUT+i].start();
 							}
 						}
 						for (int i = 0; i < threads.length; i++) {
@@ -277,16 +314,39 @@ public class FastRDF3XIndexConstruction {
 								log.error(e.getMessage(), e);
 							}
 						}
+						for(final PipelinedTripleConsumer pipelinedTC: pipelinedTCs){
+							if(pipelinedTC!=null){
+								pipelinedTC.close();
+							}
+						}
 					} else {
-						CommonCoreQueryEvaluator.readTriples(dataFormat, uri.openStream(), runGenerators[0]);
+						final PipelinedTripleConsumer pipelinedTC = (FastRDF3XIndexConstruction.PIPELINED)? new PipelinedTripleConsumer(runGenerators[0]) : null;
+						final TripleConsumer tc = (FastRDF3XIndexConstruction.PIPELINED)? pipelinedTC : runGenerators[0];
+						try {
+							final File file = FastRDF3XIndexConstruction.getFile(uri);
+							if(dataFormat.startsWith("PARALLEL") && file!=null && !dataFormat.startsWith("PARALLELBZIP2") && !dataFormat.startsWith("PARALLELGZIP") && !dataFormat.startsWith("PARALLELHUFFMAN")){
+								// parse chunks of the memory-mapped file in parallel
+								ChunkedParallelParser.parseRDFData(dataFormat.substring("PARALLEL".length()), file, tc, CommonCoreQueryEvaluator.encoding);
+							} else {
+								CommonCoreQueryEvaluator.readTriples(dataFormat, uri.openStream(), tc);
+							}
+						} finally {
+							if(pipelinedTC!=null){
+								pipelinedTC.close();
+							}
+						}
 					}
 				} catch (final Exception e) {
-					log.error(e.getMessage(), e);
+					readError = new IOException("Reading " + uri + " failed!", e);
+					break;
 				}
 			}
 			for(final DictionaryAndLocalIDsGenerator runGenerator: runGenerators){
 				runGenerator.endOfBlock();
 			}
+			if(readError!=null){
+				throw readError;
+			}
 
 			log.debug("Start merging tries...");
 			final long startMergeTries = System.currentTimeMillis();
@@ -302,13 +362,22 @@ public class FastRDF3XIndexConstruction {
 			log.debug("Start creating dictionary...");
 			final long startCreateDictionary = System.currentTimeMillis();
 			// create real dictionary
+			// the disk-based trie can only be read sequentially by one iterator at a time:
+			// In the pipelined mode, the trie is read only once and its strings are distributed to the B+-tree and string array generation running concurrently
+			final int sizeOfDictionary = final_trie.size();
+			// the global ids are the positions in the final trie and must not collide with the codes of inlined literals
+			if(sizeOfDictionary > 0 && !OrderPreservingCodes.isValidDictionaryCode(sizeOfDictionary)){
+				throw new IOException("Literal code overflow: The dictionary with " + sizeOfDictionary + " entries is too large!");
+			}
+			final BoundedBuffer<String[]> stringsForMap = (FastRDF3XIndexConstruction.PIPELINED)? new BoundedBuffer<String[]>(FastRDF3XIndexConstruction.PIPELINE_BUFFER_SIZE) : null;
+			final BoundedBuffer<String[]> stringsForArray = (FastRDF3XIndexConstruction.PIPELINED)? new BoundedBuffer<String[]>(FastRDF3XIndexConstruction.PIPELINE_BUFFER_SIZE) : null;
 			final Generator<String, Integer> smsi = new Generator<String, Integer>() {
 
 				@Override
 				public Iterator<java.util.Map.Entry<String, Integer>> iterator() {
 					return new ImmutableIterator<java.util.Map.Entry<String, Integer>>() {
 
-						Iterator<String> it = final_trie.iterator();
+						Iterator<String> it = (FastRDF3XIndexConstruction.PIPELINED)? new IteratorFromBatches(stringsForMap) : final_trie.iterator();
 						int index = 1;
 
 						@Override
@@ -325,7 +394,7 @@ public class FastRDF3XIndexConstruction {
 
 				@Override
 				public int size() {
-					return final_trie.size();
+					return sizeOfDictionary;
 				}
 			};
 
@@ -334,6 +403,9 @@ public class FastRDF3XIndexConstruction {
 						k_,
 						new StringIntegerNodeDeSerializer());
 
+			// the first error of the threads generating the dictionary:
+			// A failing thread stops its buffer, such that the main thread distributing the strings does not wait forever for it
+			final AtomicReference<Throwable> dictionaryError = new AtomicReference<Throwable>();
 			final Thread thread0 = new Thread() {
 				@Override
 				public void run() {
@@ -341,8 +413,11 @@ public class FastRDF3XIndexConstruction {
 					try {
 						simap.generateDBBPTree(smsi);
 						LazyLiteral.setHm(new StringIntegerMapJava(simap));
-					} catch (final IOException e) {
-						log.error(e.getMessage(), e);
+					} catch (final Throwable e) {
+						dictionaryError.compareAndSet(null, e);
+						if(stringsForMap!=null){
+							stringsForMap.stopIt();
+						}
 					}
 				}
 			};
@@ -352,22 +427,61 @@ public class FastRDF3XIndexConstruction {
 					StringArray ismap;
 					try {
 						ismap = new StringArray();
-						ismap.generate(final_trie.iterator());
+						ismap.generate((FastRDF3XIndexConstruction.PIPELINED)? new IteratorFromBatches(stringsForArray) : final_trie.iterator());
 						LazyLiteral.setV(ismap);
-					} catch (final IOException e) {
-						log.error(e.getMessage(), e);
+					} catch (final Throwable e) {
+						dictionaryError.compareAndSet(null, e);
+						if(stringsForArray!=null){
+							stringsForArray.stopIt();
+						}
 					}
 				}
 			};
-			// TODO make thread-safe!
 			LiteralFactory.setTypeWithoutInitializing(LiteralFactory.MapType.LAZYLITERALWITHOUTINITIALPREFIXCODEMAP);
-			thread0.run();
-			thread1.run();
+			if(FastRDF3XIndexConstruction.PIPELINED){
+				// Both threads may run concurrently, as
+				// - the trie is iterated only once here by the main thread (and not concurrently by both threads),
+				// - the B+-tree and the string array are stored in different files and the buffer manager synchronizes accessing its pages, and
+				// - the threads set different static fields of LazyLiteral, which are read only after joining the threads.
+				thread0.start();
+				thread1.start();
+				try {
+					String[] batch = new String[FastRDF3XIndexConstruction.PIPELINE_BATCH_SIZE];
+					int indexInBatch = 0;
+					for(final String entry: final_trie){
+						batch[indexInBatch++] = entry;
+						if(indexInBatch == batch.length){
+							if(dictionaryError.get()!=null){
+								break;
+							}
+							stringsForMap.put(batch);
+							stringsForArray.put(batch);
+							batch = new String[FastRDF3XIndexConstruction.PIPELINE_BATCH_SIZE];
+							indexInBatch = 0;
+						}
+					}
+					if(indexInBatch > 0 && dictionaryError.get()==null){
+						final String[] lastBatch = Arrays.copyOf(batch, indexInBatch);
+						stringsForMap.put(lastBatch);
+						stringsForArray.put(lastBatch);
+					}
+				} finally {
+					stringsForMap.endOfData();
+					stringsForArray.endOfData();
+				}
+			} else {
+				// the trie can only be read by one iterator at a time, which is used by both threads => run them one after the other
+				thread0.run();
+				thread1.run();
+			}
 			try {
 				thread0.join();
 				thread1.join();
 			} catch (final InterruptedException e) {
-				log.error(e.getMessage(), e);
+				throw FastRDF3XIndexConstruction.interrupted("Interrupted while generating the dictionary!", e);
+			}
+			if(dictionaryError.get()!=null){
+				throw new IOException("Generating the dictionary failed!", dictionaryError.get());
 			}
 			final_trie.release();
 
@@ -376,7 +490,7 @@ public class FastRDF3XIndexConstruction {
 			final long startMappingToGlobalIDs = System.currentTimeMillis();
 			GlobalIdsMapper.setData(listOfTries, simap, dir);
 
-			final GlobalIdsMapper[] mappers = new GlobalIdsMapper[8];
+			final GlobalIdsMapper[] mappers = new GlobalIdsMapper[FastRDF3XIndexConstruction.NUMBER_OF_THREADS];
 			for(int i=0; i<mappers.length; i++){
 				mappers[i] = new GlobalIdsMapper();
 				mappers[i].start();
@@ -449,11 +563,71 @@ public class FastRDF3XIndexConstruction {
 			log.debug("  for merging initial runs: {}", new TimeInterval(endMappingToGlobalIDs, endMergeInitialRuns) + " (" + (endMergeInitialRuns-endMappingToGlobalIDs) + " msec)");
 			log.debug("  for generating evaluation indices: {}", new TimeInterval(endMergeInitialRuns, end) + " (" + (end-endMergeInitialRuns) + " msec)");
 			log.debug("Number of imported triples: {}", size);
+			if(FastRDF3XIndexConstruction.PIPELINED){
+				final long parsedTriples = FastRDF3XIndexConstruction.totalParsedTriples.get();
+				log.debug("Throughput of the stages (pipelined):");
+				log.debug("  parsing: {}", FastRDF3XIndexConstruction.throughput(parsedTriples, startMergeTries - start) + " (parsers blocked by the next stage for " + FastRDF3XIndexConstruction.totalParserWaitingTime.get() + " msec)");
+				log.debug("  building local dictionaries: {}", FastRDF3XIndexConstruction.throughput(parsedTriples, FastRDF3XIndexConstruction.totalDictionaryStageTime.get()));
+				log.debug("  sorting and writing initial runs: {}", FastRDF3XIndexConstruction.throughput(parsedTriples, FastRDF3XIndexConstruction.totalRunGenerationTime.get()));
+				log.debug("  merging initial runs: {}", FastRDF3XIndexConstruction.throughput(size, endMergeInitialRuns - endMappingToGlobalIDs));
+				log.debug("  generating evaluation indices: {}", FastRDF3XIndexConstruction.throughput(size, end - endMergeInitialRuns));
+			}
 		} catch (final Exception e) {
 			log.error(e.getMessage(), e);
 		}
 	}
 
+	/**
+	 * Restores the interrupt flag of the current thread, which has been interrupted while waiting for another stage of the index construction,
+	 * and creates the exception failing the index construction (otherwise the constructed indices would be incomplete)
+	 *
+	 * @param message the message of the exception
+	 * @param e the caught exception
+	 * @return the exception to be thrown
+	 */
+	protected static InterruptedIOException interrupted(final String message, final InterruptedException e){
+		Thread.currentThread().interrupt();
+		final InterruptedIOException result = new InterruptedIOException(message);
+		result.initCause(e);
+		return result;
+	}
+
+	/**
+	 * Resets the statistics about the times and the throughput of the phases, such that they are reported per run
+	 */
+	public static void resetStatistics(){
+		FastRDF3XIndexConstruction.totalCountingSortTime = 0;
+		FastRDF3XIndexConstruction.totalMappingToTempIDsTime = 0;
+		FastRDF3XIndexConstruction.totalParsedTriples.set(0);
+		FastRDF3XIndexConstruction.totalParserWaitingTime.set(0);
+		FastRDF3XIndexConstruction.totalDictionaryStageTime.set(0);
+		FastRDF3XIndexConstruction.totalRunGenerationTime.set(0);
+	}
+
+	/**
+	 * Determines the file of a file uri
+	 *
+	 * @param uri the uri
+	 * @return the file, or null if the uri is not an absolute, hierarchical file uri (such uris are read as stream)
+	 */
+	private static File getFile(final URILiteral uri){
+		try {
+			final URI u = new URI(uri.getString());
+			if("file".equals(u.getScheme()) && !u.isOpaque()){
+				return new File(u);
+			}
+		} catch (final URISyntaxException e) {
+			// e.g. not encoded characters in the path
+		} catch (final IllegalArgumentException e) {
+			// e.g. authority or query component
+		}
+		return null;
+	}
+
+	private static String throughput(final long numberOfTriples, final long msec){
+		return ((msec>0)? (numberOfTriples * 1000 / msec) : numberOfTriples) + " triples/sec (" + numberOfTriples + " triples in " + msec + " msec)";
+	}
+
 	public static interface GenerateIndicesAndWriteOut {
 		public int generateIndicesAndWriteOut(final Collection<URILiteral> defaultGraphs, final int size, final String dir, final String writeindexinfo) throws IOException;
 	}
@@ -544,6 +718,13 @@ public class FastRDF3XIndexConstruction {
 			GlobalIdsMapper.dir = dir;
 		}
 
+		/**
+		 * resets the number of the next initial run to be mapped (before constructing further indices)
+		 */
+		public static synchronized void reset(){
+			GlobalIdsMapper.index = 0;
+		}
+
 		public static synchronized int getNextIndex(){
 			final int result = index;
 			GlobalIdsMapper.index++;
@@ -555,8 +736,16 @@ public class FastRDF3XIndexConstruction {
 			int runNumber = GlobalIdsMapper.getNextIndex();
 			while(runNumber<tries.size()){
 				final TrieSet trie = tries.get(runNumber);
+				// the literals inlined into their codes follow the literals of the local dictionary (see CreateLocalDictionaryAndLocalIds.createInitialRuns(...))
+				final int[] inlinedCodes;
+				try {
+					inlinedCodes = FastRDF3XIndexConstruction.readInlinedCodes(dir, runNumber);
+				} catch (final IOException e) {
+					log.error(e.getMessage(), e);
+					return;
+				}
 				// determine mapping
-				final int[] mapping = new int[trie.size()];
+				final int[] mapping = new int[trie.size() + inlinedCodes.length];
 				final SIPParallelIterator<java.util.Map.Entry<String, Integer>, String> iterator = (SIPParallelIterator<java.util.Map.Entry<String, Integer>, String>) simap.entrySet().iterator();
 
 				int local_id =0;
@@ -571,6 +760,8 @@ public class FastRDF3XIndexConstruction {
 				}
 
 				iterator.close();
+				// the dictionary codes are smaller than the inlined codes, such that the mapping remains monotone
+				System.arraycopy(inlinedCodes, 0, mapping, local_id, inlinedCodes.length);
 
 				// local trie is not needed any more!
 				trie.release();
@@ -600,6 +791,48 @@ public class FastRDF3XIndexConstruction {
 		}
 	}
 
+	/**
+	 * Writes out the sorted inlined codes of an initial run (in a compressed way as differences to their predecessors)
+	 *
+	 * @param dir the directory in which the initial runs are stored
+	 * @param runNumber the number of the initial run
+	 * @param inlinedCodes the sorted inlined codes
+	 * @throws IOException if any.
+	 */
+	protected static void writeInlinedCodes(final String dir, final int runNumber, final int[] inlinedCodes) throws IOException {
+		try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(dir + "Inlined_" + runNumber))) {
+			OutHelper.writeLuposIntVariableBytes(inlinedCodes.length, out);
+			int previousCode = 0;
+			for(final int code: inlinedCodes){
+				OutHelper.writeLuposIntVariableBytes(code - previousCode, out);
+				previousCode = code;
+			}
+		}
+	}
+
+	/**
+	 * Reads the sorted inlined codes of an initial run (and deletes them on disk)
+	 *
+	 * @param dir the directory in which the initial runs are stored
+	 * @param runNumber the number of the initial run
+	 * @return the sorted inlined codes
+	 * @throws IOException if any.
+	 */
+	protected static int[] readInlinedCodes(final String dir, final int runNumber) throws IOException {
+		final String filename = dir + "Inlined_" + runNumber;
+		final int[] inlinedCodes;
+		try (final InputStream in = new BufferedInputStream(new FileInputStream(filename))) {
+			inlinedCodes = new int[InputHelper.readLuposIntVariableBytes(in)];
+			int previousCode = 0;
+			for(int i=0; i<inlinedCodes.length; i++){
+				previousCode += InputHelper.readLuposIntVariableBytes(in);
+				inlinedCodes[i] = previousCode;
+			}
+		}
+		FileHelper.deleteFile(filename);
+		return inlinedCodes;
+	}
+
 	/**
 	 * merges the initial runs into a final run...
 	 *
@@ -658,18 +891,39 @@ public class FastRDF3XIndexConstruction {
 
 	/**
 	 * for creating a 'local' dictionary for each initial run and creating id-triples of the initial runs according to the local dictionary
+	 *
+	 * In the pipelined mode, a filled block is handed over to an own thread sorting and writing out the initial runs,
+	 * such that the next block can already be filled meanwhile.
+	 * For keeping the memory consumption the same, two blocks of half the size are used in this case.
 	 */
 	public static class CreateLocalDictionaryAndLocalIds implements DictionaryAndLocalIDsGenerator{
 
-		private final RBTrieMap<Integer> map = new RBTrieMap<Integer>();
-		private final int[][] blockOfIdTriples = new int[FastRDF3XIndexConstruction.LIMIT_TRIPLES_IN_MEMORY][];
+		private RBTrieMap<Integer> map = new RBTrieMap<Integer>();
+		// the literals inlined into their codes are not added to the local dictionary, but are mapped from their inlined codes to their preliminary ids
+		private HashMap<Integer, Integer> inlined = new HashMap<Integer, Integer>();
+		private int[][] blockOfIdTriples;
 		private int index = 0;
 		private static int runNumber = 0;
 		private static final List<TrieSet> listOfTries = new LinkedList<TrieSet>();
 		private final String dir;
 
+		// only used in the pipelined mode: the blocks, which can be filled again, and the thread writing out the initial runs
+		private final BoundedBuffer<int[][]> freeBlocks;
+		private final RunWriter runWriter;
+		private int numberOfAllocatedBlocks = 1;
+
 		public CreateLocalDictionaryAndLocalIds(final String dir){
 			this.dir = dir;
+			if(FastRDF3XIndexConstruction.PIPELINED){
+				this.blockOfIdTriples = new int[Math.max(1, FastRDF3XIndexConstruction.LIMIT_TRIPLES_IN_MEMORY / 2)][];
+				this.freeBlocks = new BoundedBuffer<int[][]>(2);
+				this.runWriter = new RunWriter(dir, this.freeBlocks);
+				this.runWriter.start();
+			} else {
+				this.blockOfIdTriples = new int[FastRDF3XIndexConstruction.LIMIT_TRIPLES_IN_MEMORY][];
+				this.freeBlocks = null;
+				this.runWriter = null;
+			}
 		}
 
 		@Override
@@ -685,36 +939,136 @@ public class FastRDF3XIndexConstruction {
 			}
 			this.blockOfIdTriples[this.index] = idtriple;
 			this.index++;
-			if(this.index>=FastRDF3XIndexConstruction.LIMIT_TRIPLES_IN_MEMORY){
-				this.endOfBlock();
+			if(this.index>=this.blockOfIdTriples.length){
+				if(this.runWriter==null){
+					this.endOfBlock();
+				} else {
+					this.handOverBlock();
+				}
 			}
 		}
 
 		private int insertIntoMap(final String value) {
+			final int inlinedCode = OrderPreservingCodes.encode(value);
+			if(inlinedCode!=0){
+				Integer code = this.inlined.get(inlinedCode);
+				if(code==null) {
+					code = this.map.size() + this.inlined.size();
+					this.inlined.put(inlinedCode, code);
+				}
+				return code;
+			}
 			Integer code = this.map.get(value);
 			if(code==null) {
-				code = this.map.size();
+				code = this.map.size() + this.inlined.size();
 				this.map.put(value, code);
 			}
 			return code;
 		}
 
+		/**
+		 * hands over the current block to the run writer and continues with a free block (pipelined mode)
+		 */
+		private void handOverBlock(){
+			if(this.index==0){
+				return;
+			}
+			try {
+				this.runWriter.put(new Block(this.blockOfIdTriples, this.index, this.map, this.inlined));
+				if(this.numberOfAllocatedBlocks<2){
+					// the second block is only allocated if really needed...
+					this.numberOfAllocatedBlocks++;
+					this.blockOfIdTriples = new int[this.blockOfIdTriples.length][];
+				} else {
+					this.blockOfIdTriples = this.freeBlocks.get();
+				}
+			} catch (final InterruptedException e) {
+				throw new RuntimeException("Writing the initial runs failed!", FastRDF3XIndexConstruction.interrupted("Interrupted while handing over a block to the run writer!", e));
+			}
+			if(this.runWriter.getError()!=null){
+				throw new RuntimeException("Writing the initial runs failed!", this.runWriter.getError());
+			}
+			this.map = new RBTrieMap<Integer>();
+			this.inlined = new HashMap<Integer, Integer>();
+			this.index = 0;
+		}
+
 		@Override
 		public void endOfBlock(){
+			if(this.runWriter!=null){
+				// write out the last block and wait until all initial runs are written
+				this.handOverBlock();
+				this.runWriter.endOfData();
+				try {
+					this.runWriter.join();
+				} catch (final InterruptedException e) {
+					throw new RuntimeException("Writing the initial runs failed!", FastRDF3XIndexConstruction.interrupted("Interrupted while waiting for the run writer!", e));
+				}
+				if(this.runWriter.getError()!=null){
+					throw new RuntimeException("Writing the initial runs failed!", this.runWriter.getError());
+				}
+				// the blocks are not needed any more
+				this.blockOfIdTriples = new int[0][];
+				this.freeBlocks.endOfData();
+				return;
+			}
 			if(this.index==0){
 				return;
 			}
+			CreateLocalDictionaryAndLocalIds.createInitialRuns(this.blockOfIdTriples, this.index, this.map, this.inlined, this.dir);
+			this.index = 0;
+		}
+
+		@Override
+		public List<TrieSet> getTries(){
+			return listOfTries;
+		}
+
+		/**
+		 * forgets the local dictionaries and initial runs of previously constructed indices (before constructing further indices)
+		 */
+		public static void reset(){
+			synchronized(listOfTries){
+				listOfTries.clear();
+				runNumber = 0;
+			}
+		}
+
+		/**
+		 * creates the initial runs of the given block of id-triples with preliminary ids of the given map and writes out the local dictionary
+		 *
+		 * The local ids of the literals inlined into their codes follow the ones of the local dictionary in the order of their inlined codes,
+		 * such that the mapping from local to global ids is monotone (as the dictionary codes are smaller than the inlined codes).
+		 *
+		 * @param blockOfIdTriples the id-triples (the entries of the id-triples are overwritten with the local ids)
+		 * @param size the number of id-triples in the block
+		 * @param map the map from the strings to the preliminary ids (is cleared afterwards)
+		 * @param inlined the map from the inlined codes to the preliminary ids (is cleared afterwards)
+		 * @param dir the directory in which the initial runs and the local dictionary are stored
+		 */
+		protected static void createInitialRuns(final int[][] blockOfIdTriples, final int size, final RBTrieMap<Integer> map, final HashMap<Integer, Integer> inlined, final String dir){
 			final long startMappingToTempIds = System.currentTimeMillis();
 			// create mapping preliminary id of triples => local id of triples, which reflects the order
-			final int[] mapping = new int[this.map.size()];
+			final int[] mapping = new int[map.size() + inlined.size()];
 			int local_id = 0;
-			for(final Entry<String, Integer> entry: this.map) {
+			for(final Entry<String, Integer> entry: map) {
 				mapping[entry.getValue()] = local_id;
 				local_id++;
 			}
+			final int[] inlinedCodes = new int[inlined.size()];
+			int index_inlined = 0;
+			for(final Integer inlinedCode: inlined.keySet()){
+				inlinedCodes[index_inlined++] = inlinedCode;
+			}
+			Arrays.sort(inlinedCodes);
+			for(final int inlinedCode: inlinedCodes){
+				mapping[inlined.get(inlinedCode)] = local_id;
+				local_id++;
+			}
+			inlined.clear();
 			// apply mapping to id triples
-			for(int i=0; i<this.index; i++) {
-				final int[] triple = this.blockOfIdTriples[i];
+			for(int i=0; i<size; i++) {
+				final int[] triple = blockOfIdTriples[i];
 				for(int j=0; j<3; j++) {
 					triple[j] = mapping[triple[j]];
 				}
@@ -725,27 +1079,32 @@ public class FastRDF3XIndexConstruction {
 			synchronized(listOfTries){
 				localRunNumber = runNumber;
 				runNumber++;
-				disk_set = new DBSeqTrieSet(this.dir+"Set_"+localRunNumber);
+				disk_set = new DBSeqTrieSet(dir+"Set_"+localRunNumber);
 				listOfTries.add(disk_set);
 			}
 
 			final long startCountingSort = System.currentTimeMillis();
 			// sort id triples according to six collation orders and write them out as runs (in parallel)...
-			final CountingSorter threadS = new CountingSorter(this.blockOfIdTriples, this.index, 0, this.dir + "S_Run_"+localRunNumber+"_", mapping.length);
+			final CountingSorter threadS = new CountingSorter(blockOfIdTriples, size, 0, dir + "S_Run_"+localRunNumber+"_", mapping.length);
 			threadS.start();
-			final CountingSorter threadP = new CountingSorter(this.blockOfIdTriples, this.index, 1, this.dir + "P_Run_"+localRunNumber+"_", mapping.length);
+			final CountingSorter threadP = new CountingSorter(blockOfIdTriples, size, 1, dir + "P_Run_"+localRunNumber+"_", mapping.length);
 			threadP.start();
-			final CountingSorter threadO = new CountingSorter(this.blockOfIdTriples, this.index, 2, this.dir + "O_Run_"+localRunNumber+"_", mapping.length);
+			final CountingSorter threadO = new CountingSorter(blockOfIdTriples, size, 2, dir + "O_Run_"+localRunNumber+"_", mapping.length);
 			threadO.start();
 
 			// write out patricia trie
 			try {
-				disk_set.copy(this.map);
+				disk_set.copy(map);
 			} catch (final TrieNotCopyableException e) {
 				log.error(e.getMessage(), e);
 			}
+			try {
+				FastRDF3XIndexConstruction.writeInlinedCodes(dir, localRunNumber, inlinedCodes);
+			} catch (final IOException e) {
+				throw new RuntimeException("Writing the inlined codes failed!", e);
+			}
 			// free resources of map in main memory
-			this.map.clear();
+			map.clear();
 
 			try {
 				threadS.join();
@@ -755,15 +1114,205 @@ public class FastRDF3XIndexConstruction {
 				log.error(e.getMessage(), e);
 			}
 
-			FastRDF3XIndexConstruction.totalCountingSortTime += (System.currentTimeMillis() - startCountingSort);
-			FastRDF3XIndexConstruction.totalMappingToTempIDsTime += (startCountingSort - startMappingToTempIds);
+			final long endCountingSort = System.currentTimeMillis();
+			synchronized(listOfTries){
+				FastRDF3XIndexConstruction.totalCountingSortTime += (endCountingSort - startCountingSort);
+				FastRDF3XIndexConstruction.totalMappingToTempIDsTime += (startCountingSort - startMappingToTempIds);
+			}
+			FastRDF3XIndexConstruction.totalRunGenerationTime.addAndGet(endCountingSort - startMappingToTempIds);
+		}
+	}
+
+	/**
+	 * a filled block of id-triples together with its local dictionary, which is handed over to the run writer
+	 */
+	public static class Block {
+		protected final int[][] blockOfIdTriples;
+		protected final int size;
+		protected final RBTrieMap<Integer> map;
+		protected final HashMap<Integer, Integer> inlined;
+
+		public Block(final int[][] blockOfIdTriples, final int size, final RBTrieMap<Integer> map, final HashMap<Integer, Integer> inlined){
+			this.blockOfIdTriples = blockOfIdTriples;
+			this.size = size;
+			this.map = map;
+			this.inlined = inlined;
+		}
+	}
 
-			this.index = 0;
+	/**
+	 * Thread for sorting and writing out the initial runs of the handed over blocks (pipelined mode).
+	 * After a block is processed, it is given back to be filled again.
+	 */
+	public static class RunWriter extends Thread {
+
+		// at most one filled block is waiting such that at most two blocks are in main memory
+		private final BoundedBuffer<Block> blocks = new BoundedBuffer<Block>(1);
+		private final BoundedBuffer<int[][]> freeBlocks;
+		private final String dir;
+		private volatile Throwable error = null;
+
+		public RunWriter(final String dir, final BoundedBuffer<int[][]> freeBlocks){
+			this.dir = dir;
+			this.freeBlocks = freeBlocks;
+		}
+
+		public void put(final Block block) throws InterruptedException {
+			this.blocks.put(block);
+		}
+
+		public void endOfData(){
+			this.blocks.endOfData();
 		}
 
 		@Override
-		public List<TrieSet> getTries(){
-			return listOfTries;
+		public void run(){
+			try {
+				Block block;
+				while((block = this.blocks.get())!=null){
+					CreateLocalDictionaryAndLocalIds.createInitialRuns(block.blockOfIdTriples, block.size, block.map, block.inlined, this.dir);
+					// the id-triples are not referenced any more in the block (to free main memory)
+					Arrays.fill(block.blockOfIdTriples, 0, block.size, null);
+					this.freeBlocks.put(block.blockOfIdTriples);
+				}
+			} catch (final Throwable e) {
+				// stop the buffers such that the thread building the local dictionary does not wait forever
+				this.error = e;
+				this.blocks.stopIt();
+				this.freeBlocks.stopIt();
+			}
+		}
+
+		/**
+		 * @return the error, because of which writing the initial runs has been aborted, or null if no error occurred
+		 */
+		public Throwable getError(){
+			return this.error;
+		}
+	}
+
+	/**
+	 * Decouples parsing from building the local dictionaries:
+	 * The consumed triples are collected in batches, which are handed over via a bounded buffer to an own thread
+	 * feeding the underlying triple consumer. This way, the parser(s) and the construction of the local dictionaries run concurrently.
+	 * The method consume is synchronized such that several parsers can feed the same instance.
+	 */
+	public static class PipelinedTripleConsumer extends Thread implements TripleConsumer {
+
+		private final BoundedBuffer<Triple[]> batches = new BoundedBuffer<Triple[]>(FastRDF3XIndexConstruction.PIPELINE_BUFFER_SIZE);
+		private final TripleConsumer tripleConsumer;
+		private Triple[] batch = new Triple[FastRDF3XIndexConstruction.PIPELINE_BATCH_SIZE];
+		private int index = 0;
+		private volatile Throwable error = null;
+
+		public PipelinedTripleConsumer(final TripleConsumer tripleConsumer){
+			this.tripleConsumer = tripleConsumer;
+			this.start();
+		}
+
+		@Override
+		public synchronized void consume(final Triple triple) {
+			if(this.error!=null){
+				// stop the parser
+				throw new RuntimeException("Building the local dictionary failed!", this.error);
+			}
+			this.batch[this.index] = triple;
+			this.index++;
+			if(this.index==this.batch.length){
+				this.handOverBatch(this.batch);
+				this.batch = new Triple[FastRDF3XIndexConstruction.PIPELINE_BATCH_SIZE];
+				this.index = 0;
+			}
+		}
+
+		private void handOverBatch(final Triple[] triples){
+			final long startWaiting = System.currentTimeMillis();
+			try {
+				this.batches.put(triples);
+			} catch (final InterruptedException e) {
+				throw new RuntimeException("Building the local dictionary failed!", FastRDF3XIndexConstruction.interrupted("Interrupted while handing over a batch of triples!", e));
+			}
+			FastRDF3XIndexConstruction.totalParserWaitingTime.addAndGet(System.currentTimeMillis() - startWaiting);
+			FastRDF3XIndexConstruction.totalParsedTriples.addAndGet(triples.length);
+		}
+
+		/**
+		 * hands over the remaining triples and waits until all triples are consumed by the underlying triple consumer
+		 *
+		 * @throws IOException if the underlying triple consumer failed
+		 */
+		public synchronized void close() throws IOException {
+			if(this.index>0 && this.error==null){
+				this.handOverBatch(Arrays.copyOf(this.batch, this.index));
+				this.index = 0;
+			}
+			this.batches.endOfData();
+			try {
+				this.join();
+			} catch (final InterruptedException e) {
+				throw FastRDF3XIndexConstruction.interrupted("Interrupted while waiting for building the local dictionary!", e);
+			}
+			if(this.error!=null){
+				throw new IOException("Building the local dictionary failed!", this.error);
+			}
+		}
+
+		@Override
+		public void run(){
+			try {
+				Triple[] triples;
+				while((triples = this.batches.get())!=null){
+					final long startConsuming = System.currentTimeMillis();
+					for(final Triple triple: triples){
+						this.tripleConsumer.consume(triple);
+					}
+					FastRDF3XIndexConstruction.totalDictionaryStageTime.addAndGet(System.currentTimeMillis() - startConsuming);
+				}
+			} catch (final Throwable e) {
+				// stop the buffer such that the parsers do not wait forever
+				this.error = e;
+				this.batches.stopIt();
+			}
+		}
+	}
+
+	/**
+	 * Iterator over the strings of batches, which are read from a bounded buffer (used for distributing the strings of the final trie in the pipelined mode)
+	 */
+	public static class IteratorFromBatches extends ImmutableIterator<String> {
+
+		private final BoundedBuffer<String[]> batches;
+		private String[] batch = null;
+		private int index = 0;
+
+		public IteratorFromBatches(final BoundedBuffer<String[]> batches){
+			this.batches = batches;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while(this.batch==null || this.index>=this.batch.length){
+				try {
+					this.batch = this.batches.get();
+				} catch (final InterruptedException e) {
+					// otherwise the dictionary would be generated only from a part of the strings
+					throw new RuntimeException("Generating the dictionary failed!", FastRDF3XIndexConstruction.interrupted("Interrupted while reading a batch of strings!", e));
+				}
+				if(this.batch==null){
+					return false;
+				}
+				this.index = 0;
+			}
+			return true;
+		}
+
+		@Override
+		public String next() {
+			if(this.hasNext()){
+				return this.batch[this.index++];
+			} else {
+				return null;
+			}
 		}
 	}
 
@@ -31,6 +31,7 @@ import lupos.datastructures.items.literal.LiteralFactory;
 import lupos.datastructures.items.literal.URILiteral;
 import lupos.datastructures.items.literal.codemap.StringIntegerMapJava;
 import lupos.datastructures.items.literal.string.StringURILiteral;
+import lupos.datastructures.lsmtree.LSMTreeAsStringIntegerMap;
 import lupos.datastructures.paged_dbbptree.node.nodedeserializer.StringIntegerNodeDeSerializer;
 import lupos.datastructures.stringarray.StringArray;
 import lupos.engine.evaluators.RDF3XQueryEvaluator;
@@ -69,7 +70,7 @@ public class RDF3XEmptyIndexConstruction {
 	/**
 	 * Entry point to create an empty RDF3X disk-based index
 	 *
-	 * @param args the first command line argument should contain the directory in which the index is created...
+	 * @param args the first command line argument should contain the directory in which the index is created, the optional second one the data structure of the indices (DBBPTREE or LSMTREE)...
 	 */
 	public static void main(final String[] args) {
 		try {
@@ -79,7 +80,7 @@ public class RDF3XEmptyIndexConstruction {
 			log.debug("_______________________________________________________________");
 
 			if (args.length < 1) {
-				log.error("Usage: java -Xmx768M lupos.engine.indexconstruction.RDF3XEmptyIndexConstruction <directory for indices>");
+				log.error("Usage: java -Xmx768M lupos.engine.indexconstruction.RDF3XEmptyIndexConstruction <directory for indices> [DBBPTREE|LSMTREE]");
 				log.error("Example: java -Xmx768M lupos.engine.indexconstruction.RDF3XEmptyIndexConstruction /luposdateindex");
 				return;
 			}
@@ -87,8 +88,10 @@ public class RDF3XEmptyIndexConstruction {
 			final Date start = new Date();
 			log.debug("Starting time: {}", start);
 
+			final DATA_STRUCT datastructure = (args.length > 1) ? DATA_STRUCT.valueOf(args[1].toUpperCase()) : DATA_STRUCT.DBBPTREE;
+
 			LiteralFactory.setType(LiteralFactory.MapType.LAZYLITERALWITHOUTINITIALPREFIXCODEMAP);
-			Indices.setUsedDatastructure(DATA_STRUCT.DBBPTREE);
+			Indices.setUsedDatastructure(datastructure);
 
 			final String[] dir = new String[] { args[0] };
 			final String writeindexinfo = dir[0]+File.separator+RDF3XQueryEvaluator.INDICESINFOFILE;
@@ -96,9 +99,13 @@ public class RDF3XEmptyIndexConstruction {
 			DiskCollection.setTmpDir(dir);
 			lupos.datastructures.paged_dbbptree.DBBPTree.setTmpDir(dir[0], true);
 
-			final lupos.datastructures.paged_dbbptree.DBBPTree<String, Integer> simap =
-					new lupos.datastructures.paged_dbbptree.DBBPTree<String, Integer>(k, k_, new StringIntegerNodeDeSerializer(), String.class, Integer.class);
-			LazyLiteral.setHm(new StringIntegerMapJava(simap));
+			if (datastructure == DATA_STRUCT.LSMTREE) {
+				LazyLiteral.setHm(new LSMTreeAsStringIntegerMap(LSMTreeAsStringIntegerMap.createLSMTree(lupos.datastructures.paged_dbbptree.DBBPTree.getMainFolder() + "lsm-tree" + File.separator + "dict" + File.separator), 0));
+			} else {
+				final lupos.datastructures.paged_dbbptree.DBBPTree<String, Integer> simap =
+						new lupos.datastructures.paged_dbbptree.DBBPTree<String, Integer>(k, k_, new StringIntegerNodeDeSerializer(), String.class, Integer.class);
+				LazyLiteral.setHm(new StringIntegerMapJava(simap));
+			}
 
 			final StringArray ismap = new StringArray();
 			LazyLiteral.setV(ismap);
@@ -117,7 +124,11 @@ public class RDF3XEmptyIndexConstruction {
 
 			OutHelper.writeLuposInt(lupos.datastructures.paged_dbbptree.DBBPTree.getCurrentFileID(), out);
 
-			((lupos.datastructures.paged_dbbptree.DBBPTree) ((StringIntegerMapJava) LazyLiteral.getHm()).getOriginalMap()).writeLuposObject(out);
+			if (datastructure == DATA_STRUCT.LSMTREE) {
+				((LSMTreeAsStringIntegerMap) LazyLiteral.getHm()).writeLuposObject(out);
+			} else {
+				((lupos.datastructures.paged_dbbptree.DBBPTree) ((StringIntegerMapJava) LazyLiteral.getHm()).getOriginalMap()).writeLuposObject(out);
+			}
 			((StringArray) LazyLiteral.getV()).writeLuposStringArray(out);
 			OutHelper.writeLuposInt(1, out);
 			LiteralFactory.writeLuposLiteral(defaultGraph, out);
@@ -34,6 +34,7 @@ import lupos.datastructures.dbmergesortedds.DBMergeSortedBag;
 import lupos.datastructures.dbmergesortedds.DiskCollection;
 import lupos.datastructures.items.literal.LiteralFactory;
 import lupos.datastructures.items.literal.URILiteral;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
 import lupos.datastructures.paged_dbbptree.DBBPTree;
 import lupos.datastructures.paged_dbbptree.IntArrayDBBPTreeStatistics;
 import lupos.datastructures.queryresult.SIPParallelIterator;
@@ -88,10 +89,18 @@ public class RDF3XIntArrayContainer {
 	}
 
 	public Integer lookup(final String rdfTerm){
-		return this.dictionaryStringInteger.get(rdfTerm);
+		final Integer code = this.dictionaryStringInteger.get(rdfTerm);
+		if(code == null){
+			final int inlinedCode = OrderPreservingCodes.encode(rdfTerm);
+			return (inlinedCode != 0) ? inlinedCode : null;
+		}
+		return code;
 	}
 
 	public String lookup(final int code){
+		if(OrderPreservingCodes.isInlined(code)){
+			return OrderPreservingCodes.decode(code);
+		}
 		return this.dictionaryIntegerString.get(code);
 	}
 
@@ -38,6 +38,7 @@ import lupos.datastructures.dbmergesortedds.DBMergeSortedBag;
 import lupos.datastructures.dbmergesortedds.DiskCollection;
 import lupos.datastructures.items.literal.LiteralFactory;
 import lupos.datastructures.items.literal.URILiteral;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
 import lupos.datastructures.lsmtree.LSMTree;
 import lupos.datastructures.lsmtree.level.Container;
 import lupos.datastructures.lsmtree.level.disk.store.StoreIntTriple.IntTripleComparator;
@@ -100,7 +101,12 @@ public class RDF3XIntArrayLSMTreeContainer {
 
 	public Integer lookup(final String rdfTerm){
 		try {
-			return this.dictionaryStringInteger.get(rdfTerm);
+			final Integer code = this.dictionaryStringInteger.get(rdfTerm);
+			if(code == null){
+				final int inlinedCode = OrderPreservingCodes.encode(rdfTerm);
+				return (inlinedCode != 0) ? inlinedCode : null;
+			}
+			return code;
 		} catch (ClassNotFoundException | IOException | URISyntaxException e) {
 			System.err.println(e);
 			e.printStackTrace();
@@ -109,6 +115,9 @@ public class RDF3XIntArrayLSMTreeContainer {
 	}
 
 	public String lookup(final int code){
+		if(OrderPreservingCodes.isInlined(code)){
+			return OrderPreservingCodes.decode(code);
+		}
 		return this.dictionaryIntegerString.get(code);
 	}
 
@@ -8,6 +8,7 @@ import java.util.Map.Entry;
 import lupos.datastructures.dbmergesortedds.MapEntry;
 import lupos.datastructures.items.literal.LazyLiteral;
 import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
 import lupos.datastructures.items.literal.codemap.StringIntegerMapJava;
 import lupos.datastructures.paged_dbbptree.DBBPTree.Generator;
 import lupos.datastructures.paged_dbbptree.node.nodedeserializer.StringIntegerNodeDeSerializer;
@@ -40,6 +41,8 @@ public class StringIntegerDBBPTreeDictionaryGenerator implements IDictionaryGene
 
 	@Override
 	public void generateDictionary(final TrieSet final_trie){
+		// the global ids are the positions in the final trie
+		OrderPreservingCodes.checkDictionarySize(final_trie.size());
 		this.start = System.currentTimeMillis();
 		// create real dictionary
 		final Generator<String, Integer> smsi = new Generator<String, Integer>() {
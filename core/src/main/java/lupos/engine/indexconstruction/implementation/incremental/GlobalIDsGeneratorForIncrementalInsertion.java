@@ -3,6 +3,7 @@ package lupos.engine.indexconstruction.implementation.incremental;
 import java.util.List;
 import java.util.Map.Entry;
 
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
 import lupos.datastructures.patriciatrie.ram.RBTrieMap;
 import lupos.datastructures.queryresult.SIPParallelIterator;
 import lupos.datastructures.stringarray.StringArray;
@@ -54,14 +55,22 @@ public class GlobalIDsGeneratorForIncrementalInsertion implements IConsumeTriple
 				if(entry!=null && entry.getKey().compareTo(key)==0){
 					mapping[toBeMappedEntry.getValue()] = entry.getValue();
 				} else {
-					mapping[toBeMappedEntry.getValue()] = next_id;
-					next_id++;
+					// new literals are inlined into their codes if possible (and thus are not added to the dictionary)
+					final int inlinedCode = OrderPreservingCodes.encode(key);
+					if(inlinedCode != 0){
+						mapping[toBeMappedEntry.getValue()] = inlinedCode;
+					} else {
+						mapping[toBeMappedEntry.getValue()] = next_id;
+						next_id++;
+					}
 				}
 			} catch (final Exception e) {
 				log.error(e.getMessage(), e);
 			}
 		}
 		iterator.close();
+		// the new global ids must not collide with the codes of inlined literals
+		OrderPreservingCodes.checkDictionarySize(next_id - 1);
 		for(int i=0; i<index; i++){
 			final int[] triple = triples[i];
 			triple[0] = mapping[triple[0]];
@@ -78,7 +87,7 @@ public class GlobalIDsGeneratorForIncrementalInsertion implements IConsumeTriple
 			public void run(){
 				for(final Entry<String, Integer> toBeMappedEntry: trieMap) {
 					final int mapping_index = toBeMappedEntry.getValue();
-					if(mapping[mapping_index]>=max_old_id){
+					if(mapping[mapping_index]>=max_old_id && !OrderPreservingCodes.isInlined(mapping[mapping_index])){
 						final String key = toBeMappedEntry.getKey();
 						try {
 							GlobalIDsGeneratorForIncrementalInsertion.this.dictionary.put(key, GlobalIDsGeneratorForIncrementalInsertion.this.dictionary.size() + 1); // start with index 1, as 0 is an error code in the dictionary
@@ -95,7 +104,7 @@ public class GlobalIDsGeneratorForIncrementalInsertion implements IConsumeTriple
 			public void run(){
 				for(final Entry<String, Integer> toBeMappedEntry: trieMap) {
 					final int mapping_index = toBeMappedEntry.getValue();
-					if(mapping[mapping_index]>=max_old_id){
+					if(mapping[mapping_index]>=max_old_id && !OrderPreservingCodes.isInlined(mapping[mapping_index])){
 						final String key = toBeMappedEntry.getKey();
 						try {
 							GlobalIDsGeneratorForIncrementalInsertion.this.stringArray.add(key);
@@ -12,6 +12,7 @@ import java.util.Map.Entry;
 import lupos.datastructures.dbmergesortedds.MapEntry;
 import lupos.datastructures.items.literal.LazyLiteral;
 import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
 import lupos.datastructures.lsmtree.LSMTree;
 import lupos.datastructures.lsmtree.LSMTreeAsStringIntegerMap;
 import lupos.datastructures.lsmtree.level.Container;
@@ -50,6 +51,8 @@ public class StringIntegerLSMTreeDictionaryGenerator implements IDictionaryGener
 
 	@Override
 	public void generateDictionary(final TrieSet final_trie){
+		// the global ids are the positions in the final trie
+		OrderPreservingCodes.checkDictionarySize(final_trie.size());
 		this.start = System.currentTimeMillis();
 		// create real dictionary
 		final Generator<String, Integer> smsi = new Generator<String, Integer>() {
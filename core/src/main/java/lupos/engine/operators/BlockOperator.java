@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.engine.operators;
+
+import lupos.datastructures.queryresult.BlockQueryResult;
+import lupos.datastructures.queryresult.QueryResult;
+
+/**
+ * This interface is implemented by operators, which can process their input
+ * batch-at-a-time in columnar blocks of codes (see
+ * {@link lupos.datastructures.bindings.BindingsBlock}) instead of
+ * processing single Bindings objects.<br>
+ * {@link Operator#processAll(QueryResult, int)} calls
+ * {@link #processBlocks(BlockQueryResult, int)} instead of
+ * {@link Operator#process(QueryResult, int)} whenever the received query
+ * result still delivers blocks. Operators not implementing this interface
+ * receive the same query result and just iterate over its (decoded)
+ * Bindings objects.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public interface BlockOperator {
+
+	/**
+	 * Processes a received query result consisting of blocks. The returned
+	 * query result should again be a BlockQueryResult whenever possible such
+	 * that the succeeding operators can also work on blocks.
+	 *
+	 * @param blocks the received query result, the blocks of which can still be consumed
+	 * @param operandID the operand number
+	 * @return the result of this operator (or null if there is none at the moment)
+	 */
+	public QueryResult processBlocks(final BlockQueryResult blocks, final int operandID);
+}
@@ -25,6 +25,7 @@ package lupos.engine.operators;
 
 import java.util.List;
 
+import lupos.datastructures.queryresult.BlockQueryResult;
 import lupos.datastructures.queryresult.QueryResult;
 import lupos.datastructures.queryresult.QueryResultDebug;
 import lupos.misc.debug.DebugStep;
@@ -123,7 +124,7 @@ public class Operator extends BasicOperator {
 	 *            the operand number
 	 */
 	public void processAll(final QueryResult queryResult, final int operandID) {
-		final QueryResult opp = this.process(queryResult, operandID);
+		final QueryResult opp = this.processPossiblyBlockwise(queryResult, operandID);
 		if (opp == null) {
 			return;
 		}
@@ -135,6 +136,25 @@ public class Operator extends BasicOperator {
 		}
 	}
 
+	/**
+	 * This method processes a received QueryResult with operand number. If
+	 * this operator is a BlockOperator and the received QueryResult still
+	 * delivers its solutions in blocks, the blocks are processed directly,
+	 * otherwise the normal process method is called.
+	 *
+	 * @param queryResult
+	 *            the received QueryResult
+	 * @param operandID
+	 *            the operand number
+	 * @return the result of this operator
+	 */
+	protected QueryResult processPossiblyBlockwise(final QueryResult queryResult, final int operandID) {
+		if (this instanceof BlockOperator && queryResult instanceof BlockQueryResult && ((BlockQueryResult) queryResult).isBlockwise()) {
+			return ((BlockOperator) this).processBlocks((BlockQueryResult) queryResult, operandID);
+		}
+		return this.process(queryResult, operandID);
+	}
+
 	/**
 	 * This method processes a received QueryResult with operand number and
 	 * forwards the result to the succeeding operators.
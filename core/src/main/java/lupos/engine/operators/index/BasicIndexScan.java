@@ -711,7 +711,9 @@ public abstract class BasicIndexScan extends RootChild {
 			}
 		}
 		// System.out.println("No hit for " + tp + " with key " + key);
-		histograms.put(key, vba);
+		if (histograms != null) {
+			histograms.put(key, vba);
+		}
 	}
 
 	/**
@@ -735,7 +737,8 @@ public abstract class BasicIndexScan extends RootChild {
 		joinPartnersTP.retainAll(tp.getVariables());
 		Map<Variable, VarBucket> intermediate = null;
 		String key = null;
-		if (Indices.usedDatastructure == Indices.DATA_STRUCT.DBBPTREE) {
+		// the histogram cache is not created if this class is initialized while another data structure is used
+		if (Indices.usedDatastructure == Indices.DATA_STRUCT.DBBPTREE && histograms != null) {
 			key = getKey(tp);
 			// System.out.println(key);
 			final VarBucket[] vba = histograms.get(key);
@@ -23,6 +23,7 @@
  */
 package lupos.engine.operators.index;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -37,6 +38,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicReference;
 
 import lupos.datastructures.dbmergesortedds.DBMergeSortedSet;
 import lupos.datastructures.dbmergesortedds.DBMergeSortedSetUsingTrie;
@@ -51,10 +53,14 @@ import lupos.datastructures.items.literal.URILiteral;
 import lupos.datastructures.items.literal.codemap.CodeMapLiteral;
 import lupos.datastructures.items.literal.codemap.CodeMapURILiteral;
 import lupos.datastructures.items.literal.codemap.IntegerStringMap;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
 import lupos.datastructures.items.literal.codemap.StringIntegerMap;
 import lupos.datastructures.items.literal.codemap.StringIntegerMapJava;
 import lupos.datastructures.items.literal.codemap.TProcedureEntry;
 import lupos.datastructures.items.literal.string.StringURILiteral;
+import lupos.datastructures.lsmtree.LSMTree;
+import lupos.datastructures.lsmtree.LSMTreeAsStringIntegerMap;
+import lupos.datastructures.lsmtree.level.Container;
 import lupos.datastructures.paged_dbbptree.DBBPTree.Generator;
 import lupos.datastructures.paged_dbbptree.node.nodedeserializer.StringIntegerNodeDeSerializer;
 import lupos.datastructures.stringarray.StringArray;
@@ -110,6 +116,8 @@ public class Dataset {
 	private int opt;
 
 	private Thread codeMapConstructionThread = null;
+	// the first error during constructing the dictionary (thrown by waitForCodeMapConstruction())
+	private final AtomicReference<Throwable> codeMapConstructionError = new AtomicReference<Throwable>();
 
 	/**
 	 * <p>Getter for the field <code>indicesFactory</code>.</p>
@@ -180,7 +188,11 @@ public class Dataset {
 									for (final Literal l : triple) {
 										// rdftermsRepresentations.add(l.
 										// originalString());
-										rdftermsRepresentations.add(l.toString());
+										final String rdfTerm = l.toString();
+										// literals inlined into their codes are not stored in the dictionary
+										if (OrderPreservingCodes.encode(rdfTerm) == 0) {
+											rdftermsRepresentations.add(rdfTerm);
+										}
 										if (l.originalStringDiffers()) {
 											rdftermsRepresentations.add(l
 													.originalString());
@@ -258,6 +270,17 @@ public class Dataset {
 							final Thread thread0 = new Thread() {
 								@Override
 								public void run() {
+									if (Indices.usedDatastructure == Indices.DATA_STRUCT.LSMTREE) {
+										// the dictionary is also stored in an LSM tree
+										try {
+											final LSMTree<String, Integer, Iterator<Map.Entry<String, Container<Integer>>>> lsmtree = LSMTreeAsStringIntegerMap.createLSMTree(lupos.datastructures.paged_dbbptree.DBBPTree.getMainFolder() + "lsm-tree" + File.separator + "dict" + File.separator);
+											lsmtree.addRun(smsi);
+											LazyLiteral.setHm(new LSMTreeAsStringIntegerMap(lsmtree, smsi.size()));
+										} catch (final IOException | ClassNotFoundException | URISyntaxException e) {
+											Dataset.this.codeMapConstructionError.compareAndSet(null, e);
+										}
+										return;
+									}
 									lupos.datastructures.paged_dbbptree.DBBPTree<String, Integer> simap;
 									try {
 										simap = new lupos.datastructures.paged_dbbptree.DBBPTree<String, Integer>(
@@ -270,8 +293,7 @@ public class Dataset {
 										.setHm(new StringIntegerMapJava(
 												simap));
 									} catch (final IOException e) {
-										System.err.println(e);
-										e.printStackTrace();
+										Dataset.this.codeMapConstructionError.compareAndSet(null, e);
 									}
 								}
 							};
@@ -284,8 +306,7 @@ public class Dataset {
 										ismap.generate(rdftermsRepresentations.iterator());
 										LazyLiteral.setV(ismap);
 									} catch (final IOException e) {
-										System.err.println(e);
-										e.printStackTrace();
+										Dataset.this.codeMapConstructionError.compareAndSet(null, e);
 									}
 								}
 							};
@@ -744,9 +765,13 @@ public class Dataset {
 		lupos.datastructures.paged_dbbptree.DBBPTree.setCurrentFileID(InputHelper.readLuposInt(in));
 		if (LiteralFactory.getMapType() == MapType.LAZYLITERAL
 				|| LiteralFactory.getMapType() == MapType.LAZYLITERALWITHOUTINITIALPREFIXCODEMAP) {
-			final lupos.datastructures.paged_dbbptree.DBBPTree<String, Integer> dbbptreeSI =lupos.datastructures.paged_dbbptree.DBBPTree.readLuposObject(in);
+			if (Indices.usedDatastructure == Indices.DATA_STRUCT.LSMTREE) {
+				LazyLiteral.setHm(LSMTreeAsStringIntegerMap.readLuposObject(in));
+			} else {
+				final lupos.datastructures.paged_dbbptree.DBBPTree<String, Integer> dbbptreeSI =lupos.datastructures.paged_dbbptree.DBBPTree.readLuposObject(in);
 				dbbptreeSI.setName("Dictionary: String->Integer");
 				LazyLiteral.setHm(new StringIntegerMapJava(dbbptreeSI));
+			}
 
 				//lupos.datastructures.paged_dbbptree.DBBPTree<Integer, String> dbbptreeIS = lupos.datastructures.paged_dbbptree.DBBPTree.readLuposObject(in);
 				//dbbptreeIS.setName("Dictionary: Integer->String");
@@ -820,8 +845,12 @@ public class Dataset {
 
 		if (LiteralFactory.getMapType() == MapType.LAZYLITERAL
 				|| LiteralFactory.getMapType() == MapType.LAZYLITERALWITHOUTINITIALPREFIXCODEMAP) {
-				((lupos.datastructures.paged_dbbptree.DBBPTree) ((StringIntegerMapJava) LazyLiteral
-						.getHm()).getOriginalMap()).writeLuposObject(out);
+				if (LazyLiteral.getHm() instanceof LSMTreeAsStringIntegerMap) {
+					((LSMTreeAsStringIntegerMap) LazyLiteral.getHm()).writeLuposObject(out);
+				} else {
+					((lupos.datastructures.paged_dbbptree.DBBPTree) ((StringIntegerMapJava) LazyLiteral
+							.getHm()).getOriginalMap()).writeLuposObject(out);
+				}
 				//((lupos.datastructures.paged_dbbptree.DBBPTree) ((IntegerStringMapJava) LazyLiteral
 				//		.getV()).getOriginalMap()).writeLuposObject(out);
 				((StringArray)LazyLiteral.getV()).writeLuposStringArray(out);
@@ -870,8 +899,10 @@ public class Dataset {
 
 	/**
 	 * <p>waitForCodeMapConstruction.</p>
+	 *
+	 * @throws java.io.IOException if the dictionary could not be constructed (the lazy literals cannot be used then)
 	 */
-	public void waitForCodeMapConstruction() {
+	public void waitForCodeMapConstruction() throws IOException {
 		if (this.codeMapConstructionThread != null) {
 			try {
 				this.codeMapConstructionThread.join();
@@ -880,5 +911,9 @@ public class Dataset {
 				e.printStackTrace();
 			}
 		}
+		final Throwable error = this.codeMapConstructionError.get();
+		if (error != null) {
+			throw new IOException("Constructing the dictionary failed!", error);
+		}
 	}
 }
@@ -158,7 +158,7 @@ public abstract class Indices implements TripleConsumer {
 	 * maps
 	 */
 	public enum DATA_STRUCT {
-		DBBPTREE, HASHMAP, BPTREE, DEFAULT
+		DBBPTREE, HASHMAP, BPTREE, LSMTREE, DEFAULT
 	}
 
 	/**
@@ -31,6 +31,9 @@ import lupos.datastructures.items.Item;
 import lupos.engine.operators.Operator;
 import lupos.engine.operators.OperatorIDTuple;
 import lupos.engine.operators.RootChild;
+import lupos.engine.operators.index.adaptedRDF3X.DeltaStore;
+import lupos.engine.operators.messages.Message;
+import lupos.engine.operators.messages.StartOfEvaluationMessage;
 import lupos.engine.operators.tripleoperator.TriplePattern;
 import lupos.misc.debug.DebugStep;
 import lupos.optimizations.physical.joinorder.costbasedoptimizer.MemoryIndexCostBasedOptimizer;
@@ -43,6 +46,9 @@ public abstract class Root extends Operator {
 	public List<String> namedGraphs;
 	public Dataset dataset;
 
+	// the snapshot of the data seen by the index scans of the current evaluation
+	private volatile DeltaStore.Snapshot snapshot = null;
+
 	/**
 	 * <p>Constructor for Root.</p>
 	 */
@@ -82,6 +88,23 @@ public abstract class Root extends Operator {
 	}
 
 
+	/** {@inheritDoc} */
+	@Override
+	public Message preProcessMessage(final StartOfEvaluationMessage msg) {
+		// the index scans (also those evaluated in other threads) read the snapshot from here
+		this.snapshot = msg.getSnapshot();
+		return msg;
+	}
+
+	/**
+	 * <p>Getter for the field <code>snapshot</code>.</p>
+	 *
+	 * @return the snapshot of the data seen by the index scans of the current evaluation (or null for reading the last committed version)
+	 */
+	public DeltaStore.Snapshot getSnapshot() {
+		return this.snapshot;
+	}
+
 	/**
 	 * <p>physicalOptimization.</p>
 	 */
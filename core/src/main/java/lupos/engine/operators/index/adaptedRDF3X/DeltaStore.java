@@ -0,0 +1,884 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.engine.operators.index.adaptedRDF3X;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lupos.datastructures.dbmergesortedds.MapEntry;
+import lupos.datastructures.items.Triple;
+import lupos.datastructures.items.TripleComparator;
+import lupos.datastructures.items.TripleKey;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.paged_dbbptree.DBBPTree;
+import lupos.datastructures.paged_dbbptree.DBBPTree.Generator;
+import lupos.datastructures.paged_dbbptree.LazyLiteralTripleKeyDBBPTreeStatistics;
+import lupos.datastructures.paged_dbbptree.PrefixSearchMinMax;
+import lupos.datastructures.paged_dbbptree.node.nodedeserializer.LazyLiteralNodeDeSerializer;
+import lupos.datastructures.paged_dbbptree.node.nodedeserializer.NodeDeSerializer;
+import lupos.datastructures.paged_dbbptree.node.nodedeserializer.StandardNodeDeSerializer;
+import lupos.datastructures.queryresult.ParallelIterator;
+import lupos.datastructures.queryresult.SIPParallelIterator;
+import lupos.engine.operators.index.Indices;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan.CollationOrder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The delta store collects the updates (insertions and deletions of triples) of a SixIndices object
+ * without modifying its evaluation indices, such that queries reading the evaluation indices are not disturbed.
+ *
+ * Each update is stamped with the version, which becomes visible with the next commit.
+ * Update operations are serialized and commit their updates on their own when they are finished
+ * (see {@link #beginUpdate()} and {@link #endUpdate()}).
+ * A reader sees the snapshot of a committed version: its scans merge the evaluation indices with the updates
+ * of the delta store up to this version.
+ * The snapshot of a query is pinned by the evaluator and passed explicitly to the operators
+ * (see {@link lupos.engine.operators.messages.StartOfEvaluationMessage} and {@link lupos.engine.operators.index.Root#getSnapshot()}),
+ * such that also the threads evaluating parts of the query see the same snapshot.
+ * Large delta stores are merged in the background into new versions of the evaluation indices,
+ * the old versions are kept as long as readers with older snapshots need them.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class DeltaStore {
+
+	private static final Logger log = LoggerFactory.getLogger(DeltaStore.class);
+
+	/** Constant <code>MERGE_THRESHOLD=100000</code>: the number of updated triples after which the delta store is merged into new evaluation indices */
+	public static int MERGE_THRESHOLD = 100000;
+
+	// the last committed version (shared by all delta stores such that a snapshot is consistent over all graphs)
+	private static final AtomicLong committedVersion = new AtomicLong(0);
+
+	// serializes the update operations such that the updates of each operation are committed on their own
+	private static final ReentrantLock updateLock = new ReentrantLock();
+
+	// are there updates not committed yet?
+	private static volatile boolean pendingUpdates = false;
+
+	// the pinned snapshots together with the number of readers using them
+	private static final TreeMap<Long, Integer> pinnedSnapshots = new TreeMap<Long, Integer>();
+
+	// the executor running the merges in the background and creating the new evaluation indices of a merge in parallel (lazily created)
+	private static ExecutorService executor = null;
+
+	private final SixIndices sixIndices;
+
+	// the newest version of the evaluation indices together with its delta
+	private volatile Version current;
+
+	// is the delta currently merged into new evaluation indices?
+	private final AtomicInteger merging = new AtomicInteger(0);
+
+	/**
+	 * <p>Constructor for DeltaStore.</p>
+	 *
+	 * @param sixIndices the indices, the updates of which are collected in this delta store
+	 */
+	public DeltaStore(final SixIndices sixIndices) {
+		this.sixIndices = sixIndices;
+		@SuppressWarnings("unchecked")
+		final PrefixSearchMinMax<TripleKey, Triple>[] indices = new PrefixSearchMinMax[CollationOrder.values().length];
+		for (final CollationOrder order : CollationOrder.values()) {
+			indices[order.ordinal()] = sixIndices.getIndex(order);
+		}
+		// the initial evaluation indices are valid for all snapshots
+		this.current = new Version(Long.MIN_VALUE, indices, false, null);
+	}
+
+	/**
+	 * Pins the snapshot of the current committed version such that all scans during the evaluation of a query see the same snapshot.
+	 * The snapshot must be released after the evaluation.
+	 *
+	 * @return the pinned snapshot
+	 */
+	public static Snapshot pinSnapshot() {
+		synchronized (DeltaStore.pinnedSnapshots) {
+			final long version = DeltaStore.committedVersion.get();
+			DeltaStore.addPinnedSnapshot(version);
+			return new Snapshot(version);
+		}
+	}
+
+	private static void addPinnedSnapshot(final long snapshot) {
+		final Integer readers = DeltaStore.pinnedSnapshots.get(snapshot);
+		DeltaStore.pinnedSnapshots.put(snapshot, (readers == null) ? 1 : readers + 1);
+	}
+
+	private static void removePinnedSnapshot(final long snapshot) {
+		final Integer readers = DeltaStore.pinnedSnapshots.get(snapshot);
+		if (readers == null || readers <= 1) {
+			DeltaStore.pinnedSnapshots.remove(snapshot);
+		} else {
+			DeltaStore.pinnedSnapshots.put(snapshot, readers - 1);
+		}
+	}
+
+	/**
+	 * @param snapshot the snapshot (or null for the last committed version)
+	 * @return the version of the given snapshot or otherwise the last committed version
+	 */
+	private static long getVersion(final Snapshot snapshot) {
+		return (snapshot == null) ? DeltaStore.committedVersion.get() : snapshot.version;
+	}
+
+	private static long getOldestPinnedSnapshot() {
+		synchronized (DeltaStore.pinnedSnapshots) {
+			return DeltaStore.pinnedSnapshots.isEmpty() ? DeltaStore.committedVersion.get() : DeltaStore.pinnedSnapshots.firstKey();
+		}
+	}
+
+	/**
+	 * Must be called before an update operation inserts or deletes triples:
+	 * The updates of an update operation are not committed before the update operation is finished.
+	 * Update operations of other threads wait until this update operation is finished (see {@link #endUpdate()}).
+	 */
+	public static void beginUpdate() {
+		DeltaStore.updateLock.lock();
+	}
+
+	/**
+	 * Must be called after an update operation has inserted or deleted its triples:
+	 * Commits the updates of the operation, such that its query can move its snapshot to them afterwards (see {@link Snapshot#advance()}),
+	 * and lets the next update operation begin.
+	 */
+	public static void endUpdate() {
+		try {
+			if (DeltaStore.updateLock.getHoldCount() == 1) {
+				DeltaStore.commitPendingUpdates();
+			}
+		} finally {
+			DeltaStore.updateLock.unlock();
+		}
+	}
+
+	/**
+	 * Commits all pending updates, i.e., they become visible for new snapshots.
+	 * If an update operation of another thread is running, this method waits until the operation has committed its updates.
+	 * Nothing is done if called during an update operation of the current thread, its updates are committed at its end.
+	 */
+	public static void commit() {
+		DeltaStore.updateLock.lock();
+		try {
+			if (DeltaStore.updateLock.getHoldCount() == 1) {
+				DeltaStore.commitPendingUpdates();
+			}
+		} finally {
+			DeltaStore.updateLock.unlock();
+		}
+	}
+
+	private static void commitPendingUpdates() {
+		synchronized (DeltaStore.pinnedSnapshots) {
+			if (!DeltaStore.pendingUpdates) {
+				return;
+			}
+			DeltaStore.pendingUpdates = false;
+			DeltaStore.committedVersion.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Commits the pending updates and starts merging the delta store into new evaluation indices in the background
+	 * if the delta store has become too large.
+	 */
+	public void commitAndMergeIfNecessary() {
+		DeltaStore.commit();
+		this.pruneOldVersions();
+		if (this.current.numberOfEntries >= DeltaStore.MERGE_THRESHOLD && this.merging.compareAndSet(0, 1)) {
+			DeltaStore.getExecutor().submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						DeltaStore.this.merge();
+					} finally {
+						DeltaStore.this.merging.set(0);
+					}
+				}
+			});
+		}
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (DeltaStore.executor == null) {
+			// a merge waits for the creation of its new evaluation indices in the same executor, thus the number of threads is not bounded
+			DeltaStore.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "DeltaStore merger");
+					// do not prevent the program from exiting
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return DeltaStore.executor;
+	}
+
+	/**
+	 * inserts a triple (its literals must already be in the format of the evaluation indices).
+	 * Outside of an update operation the insertion is committed with the next commit.
+	 *
+	 * @param t the triple to be inserted
+	 */
+	public void add(final Triple t) {
+		this.update(t, true);
+	}
+
+	/**
+	 * deletes a triple (its literals must already be in the format of the evaluation indices).
+	 * Outside of an update operation the deletion is committed with the next commit.
+	 *
+	 * @param t the triple to be deleted
+	 */
+	public void remove(final Triple t) {
+		this.update(t, false);
+	}
+
+	private void update(final Triple t, final boolean present) {
+		// the pending version belongs to the running update operation (if any)
+		DeltaStore.updateLock.lock();
+		try {
+			synchronized (this) {
+				this.updatePendingVersion(t, present);
+			}
+		} finally {
+			DeltaStore.updateLock.unlock();
+		}
+	}
+
+	private void updatePendingVersion(final Triple t, final boolean present) {
+		final Version version = this.current;
+		final long pendingVersion = DeltaStore.committedVersion.get() + 1;
+		final Stamp stamp = version.delta[0].get(t);
+		final boolean currentlyPresent = (stamp == null) ? version.containedInIndices(t) : stamp.present;
+		if (currentlyPresent == present) {
+			return;
+		}
+		final Stamp newStamp = (stamp != null && stamp.version == pendingVersion) ?
+				new Stamp(pendingVersion, present, stamp.older)
+				: new Stamp(pendingVersion, present, stamp);
+		for (final ConcurrentSkipListMap<Triple, Stamp> delta : version.delta) {
+			delta.put(t, newStamp);
+		}
+		if (stamp == null) {
+			version.numberOfEntries++;
+		}
+		version.sizeDifference += present ? 1 : -1;
+		DeltaStore.pendingUpdates = true;
+	}
+
+	/**
+	 * checks whether or not the given triple is contained in the last committed version
+	 *
+	 * @param t the triple to be checked
+	 * @return true if the triple is contained
+	 */
+	public boolean contains(final Triple t) {
+		final long snapshot = DeltaStore.getVersion(null);
+		final Version version = this.getVersion(snapshot);
+		final Stamp stamp = version.getStamp(t, snapshot);
+		return (stamp == null) ? version.containedInIndices(t) : stamp.present;
+	}
+
+	/**
+	 * <p>size.</p>
+	 *
+	 * @return the number of triples including the pending updates (an estimation for evaluation indices in LSM trees, see {@link lupos.datastructures.lsmtree.PrefixSearchFromLSMTree#size()})
+	 */
+	public int size() {
+		final Version version = this.current;
+		return version.indices[CollationOrder.SPO.ordinal()].size() + version.sizeDifference;
+	}
+
+	/**
+	 * Returns an iterator over the triples matching the given key in the given snapshot
+	 *
+	 * @param key the triple with the constants of the prefix search
+	 * @param collationOrder the collation order of the evaluation index to be used
+	 * @param keyMinimum the triple with the minimum values (or null)
+	 * @param keyMaximum the triple with the maximum values (or null)
+	 * @param pinnedSnapshot the snapshot of the query (or null for the last committed version)
+	 * @return the iterator over the matching triples
+	 */
+	public Iterator<Triple> getIterator(final Triple key, final CollationOrder collationOrder, final Triple keyMinimum, final Triple keyMaximum, final Snapshot pinnedSnapshot) {
+		final long snapshot = DeltaStore.getVersion(pinnedSnapshot);
+		return this.getVersion(snapshot).getIterator(key, collationOrder, keyMinimum, keyMaximum, snapshot);
+	}
+
+	/**
+	 * Returns the evaluation index of the version seen by the given snapshot
+	 * (which may be older than the current evaluation index of the SixIndices object).
+	 *
+	 * @param collationOrder the collation order of the evaluation index
+	 * @param pinnedSnapshot the snapshot of the query (or null for the last committed version)
+	 * @return the evaluation index of the version seen by the given snapshot
+	 */
+	public PrefixSearchMinMax<TripleKey, Triple> getIndex(final CollationOrder collationOrder, final Snapshot pinnedSnapshot) {
+		return this.getVersion(DeltaStore.getVersion(pinnedSnapshot)).indices[collationOrder.ordinal()];
+	}
+
+	/**
+	 * Determines the maximum triple matching the given key, which has been inserted into the delta store and is visible in the given snapshot.
+	 * The maximum of the whole data is the maximum of this triple and the maximum of the evaluation index of the same snapshot (see {@link #getIndex(CollationOrder, Snapshot)})
+	 * (deletions are ignored, such that the determined maximum may be larger than the real one).
+	 *
+	 * @param key the triple with the constants of the prefix search
+	 * @param collationOrder the collation order to be used
+	 * @param pinnedSnapshot the snapshot of the query (or null for the last committed version)
+	 * @return the maximum inserted triple or null if there is no such triple
+	 */
+	public Triple getMaximum(final Triple key, final CollationOrder collationOrder, final Snapshot pinnedSnapshot) {
+		final long snapshot = DeltaStore.getVersion(pinnedSnapshot);
+		final ConcurrentSkipListMap<Triple, Stamp> delta = this.getVersion(snapshot).delta[collationOrder.ordinal()];
+		final TripleComparator comparator = new TripleComparator(collationOrder);
+		// the unbound positions of the key are wildcards for the comparator, such that all matching triples are considered to be equal to the key:
+		// headMap(key) would just end at the first matching triple, thus the range of matching triples is scanned instead
+		Triple maximum = null;
+		for (final Entry<Triple, Stamp> entry : delta.tailMap(key, true).entrySet()) {
+			if (comparator.compare(key, entry.getKey()) != 0) {
+				break;
+			}
+			final Stamp stamp = entry.getValue().getStamp(snapshot);
+			if (stamp != null && stamp.present) {
+				maximum = entry.getKey();
+			}
+		}
+		return maximum;
+	}
+
+	/**
+	 * @param snapshot the snapshot
+	 * @return the newest version of the evaluation indices, which is not newer than the given snapshot
+	 */
+	protected Version getVersion(final long snapshot) {
+		Version version = this.current;
+		while (version.version > snapshot && version.previous != null) {
+			version = version.previous;
+		}
+		return version;
+	}
+
+	/**
+	 * releases the old versions of the evaluation indices, which are not needed any more by readers of pinned snapshots.
+	 * The pages of the B+-trees created by merging for the released versions are freed.
+	 */
+	protected void pruneOldVersions() {
+		final long oldestSnapshot = DeltaStore.getOldestPinnedSnapshot();
+		Version pruned = null;
+		synchronized (this) {
+			Version version = this.current;
+			while (version != null) {
+				if (version.version <= oldestSnapshot) {
+					pruned = version.previous;
+					version.previous = null;
+					break;
+				}
+				version = version.previous;
+			}
+		}
+		while (pruned != null) {
+			pruned.releaseIndices();
+			pruned = pruned.previous;
+		}
+	}
+
+	/**
+	 * frees the pages of an evaluation index or the statistics of an evaluation index, which is not used any more
+	 */
+	private static void release(final PrefixSearchMinMax<TripleKey, Triple> index) {
+		if (index instanceof DBBPTree) {
+			((DBBPTree<TripleKey, Triple>) index).release();
+		}
+	}
+
+	/**
+	 * Merges the committed updates into new versions of the evaluation indices.
+	 * Updates, which are committed during merging, are kept in the delta store of the new version.
+	 */
+	public void merge() {
+		synchronized (this.merging) {
+			final long snapshot = DeltaStore.committedVersion.get();
+			final Version version = this.current;
+			if (version.numberOfEntries == 0) {
+				return;
+			}
+			final long start = System.currentTimeMillis();
+			@SuppressWarnings("unchecked")
+			final PrefixSearchMinMax<TripleKey, Triple>[] newIndices = new PrefixSearchMinMax[CollationOrder.values().length];
+			final LazyLiteralTripleKeyDBBPTreeStatistics[] newStatistics = (this.sixIndices.statisticsIndicesForFastHistogramComputation == null) ? null : new LazyLiteralTripleKeyDBBPTreeStatistics[CollationOrder.values().length];
+			final LinkedList<Future<?>> futures = new LinkedList<Future<?>>();
+			for (final CollationOrder order : CollationOrder.values()) {
+				futures.add(DeltaStore.getExecutor().submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						newIndices[order.ordinal()] = DeltaStore.this.createIndex(version, order, snapshot);
+						if (newStatistics != null) {
+							newStatistics[order.ordinal()] = new LazyLiteralTripleKeyDBBPTreeStatistics(null, 1500, 1500, order);
+							newStatistics[order.ordinal()].generateDBBPTree(newIndices[order.ordinal()].entrySet());
+						}
+						return null;
+					}
+				}));
+			}
+			boolean failed = false;
+			boolean interrupted = false;
+			for (final Future<?> future : futures) {
+				// all tasks must be finished before the created indices can be freed in case of a failure
+				while (true) {
+					try {
+						future.get();
+						break;
+					} catch (final ExecutionException e) {
+						log.error(e.getMessage(), e);
+						failed = true;
+						break;
+					} catch (final InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+				failed = true;
+			}
+			if (failed) {
+				log.error("Merging the delta store failed, the updates remain in the delta store!");
+				for (int i = 0; i < newIndices.length; i++) {
+					DeltaStore.release(newIndices[i]);
+					if (newStatistics != null) {
+						DeltaStore.release(newStatistics[i]);
+					}
+				}
+				return;
+			}
+			synchronized (this) {
+				// the updates after the snapshot must remain in the delta store of the new version
+				final Version newVersion = new Version(snapshot, newIndices, true, version);
+				for (final Entry<Triple, Stamp> entry : version.delta[0].entrySet()) {
+					final Stamp newerStamps = entry.getValue().getNewerStamps(snapshot);
+					if (newerStamps != null) {
+						for (final ConcurrentSkipListMap<Triple, Stamp> delta : newVersion.delta) {
+							delta.put(entry.getKey(), newerStamps);
+						}
+						newVersion.numberOfEntries++;
+						final boolean presentInNewIndices = version.getPresence(entry.getKey(), snapshot);
+						if (presentInNewIndices != newerStamps.present) {
+							newVersion.sizeDifference += newerStamps.present ? 1 : -1;
+						}
+					}
+				}
+				this.current = newVersion;
+				this.sixIndices.setIndices(newIndices, newStatistics);
+			}
+			this.pruneOldVersions();
+			log.debug("Merged {} updated triples into new evaluation indices in {} msec", version.numberOfEntries, System.currentTimeMillis() - start);
+		}
+	}
+
+	/**
+	 * Merges the committed updates synchronously into the evaluation indices (e.g. before writing out the evaluation indices).
+	 */
+	public void mergeCompletely() {
+		DeltaStore.commit();
+		this.merge();
+	}
+
+	/**
+	 * creates a new evaluation index of the given collation order with the content of the given version in the given snapshot
+	 */
+	@SuppressWarnings("unchecked")
+	private PrefixSearchMinMax<TripleKey, Triple> createIndex(final Version version, final CollationOrder order, final long snapshot) throws IOException {
+		final Triple all = new Triple();
+		if (Indices.usedDatastructure == Indices.DATA_STRUCT.DBBPTREE) {
+			// the size must be known for generating the B+-tree
+			int size = 0;
+			final Iterator<Triple> it = version.getIterator(all, order, null, null, snapshot);
+			while (it.hasNext()) {
+				it.next();
+				size++;
+			}
+			final int finalSize = size;
+			final NodeDeSerializer<TripleKey, Triple> nodeDeSerializer = (LiteralFactory.getMapType() == LiteralFactory.MapType.LAZYLITERAL || LiteralFactory.getMapType() == LiteralFactory.MapType.LAZYLITERALWITHOUTINITIALPREFIXCODEMAP) ? new LazyLiteralNodeDeSerializer(order) : new StandardNodeDeSerializer<TripleKey, Triple>(TripleKey.class, Triple.class);
+			final DBBPTree<TripleKey, Triple> tree = new DBBPTree<TripleKey, Triple>(SixIndices.k, SixIndices.k_, nodeDeSerializer, TripleKey.class, Triple.class);
+			tree.setName(order.toString());
+			tree.generateDBBPTree(new Generator<TripleKey, Triple>() {
+
+				@Override
+				public int size() {
+					return finalSize;
+				}
+
+				@Override
+				public Iterator<Entry<TripleKey, Triple>> iterator() {
+					final Iterator<Triple> triples = version.getIterator(all, order, null, null, snapshot);
+					return new Iterator<Entry<TripleKey, Triple>>() {
+						@Override
+						public boolean hasNext() {
+							return triples.hasNext();
+						}
+
+						@Override
+						public Entry<TripleKey, Triple> next() {
+							final Triple t = triples.next();
+							return new MapEntry<TripleKey, Triple>(new TripleKey(t, order), t);
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+			});
+			return tree;
+		} else {
+			final PrefixSearchMinMax<TripleKey, Triple> index = this.sixIndices.getDatastructure(order);
+			final Iterator<Triple> it = version.getIterator(all, order, null, null, snapshot);
+			while (it.hasNext()) {
+				final Triple t = it.next();
+				index.put(new TripleKey(t, new TripleComparator(order)), t);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * The snapshot of a query: the committed version seen by all scans of the query.
+	 * It is passed explicitly to the operators of the query and is thus independent of the threads evaluating the query.
+	 */
+	public static class Snapshot {
+		private volatile long version;
+		private boolean released = false;
+
+		private Snapshot(final long version) {
+			this.version = version;
+		}
+
+		/**
+		 * <p>Getter for the field <code>version</code>.</p>
+		 *
+		 * @return the committed version seen by this snapshot
+		 */
+		public long getVersion() {
+			return this.version;
+		}
+
+		/**
+		 * Moves this snapshot to the last committed version, e.g., such that an update operation sees its own committed updates.
+		 */
+		public void advance() {
+			synchronized (DeltaStore.pinnedSnapshots) {
+				if (this.released) {
+					return;
+				}
+				final long newVersion = DeltaStore.committedVersion.get();
+				if (newVersion != this.version) {
+					DeltaStore.removePinnedSnapshot(this.version);
+					DeltaStore.addPinnedSnapshot(newVersion);
+					this.version = newVersion;
+				}
+			}
+		}
+
+		/**
+		 * Releases this snapshot such that the versions of the evaluation indices only needed by this snapshot can be dropped.
+		 */
+		public void release() {
+			synchronized (DeltaStore.pinnedSnapshots) {
+				if (!this.released) {
+					this.released = true;
+					DeltaStore.removePinnedSnapshot(this.version);
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "Snapshot of version " + this.version;
+		}
+	}
+
+	/**
+	 * The stamps of a triple in the delta store: the newest stamp comes first.
+	 */
+	protected static class Stamp {
+		protected final long version;
+		protected final boolean present;
+		protected final Stamp older;
+
+		public Stamp(final long version, final boolean present, final Stamp older) {
+			this.version = version;
+			this.present = present;
+			this.older = older;
+		}
+
+		/**
+		 * @param snapshot the snapshot
+		 * @return the newest stamp visible in the given snapshot or null if there is no such stamp
+		 */
+		public Stamp getStamp(final long snapshot) {
+			Stamp stamp = this;
+			while (stamp != null && stamp.version > snapshot) {
+				stamp = stamp.older;
+			}
+			return stamp;
+		}
+
+		/**
+		 * @param snapshot the snapshot
+		 * @return a copy of the stamps newer than the given snapshot (or null if there are no such stamps)
+		 */
+		public Stamp getNewerStamps(final long snapshot) {
+			if (this.version <= snapshot) {
+				return null;
+			}
+			return new Stamp(this.version, this.present, (this.older == null) ? null : this.older.getNewerStamps(snapshot));
+		}
+	}
+
+	/**
+	 * A version of the evaluation indices together with the updates after this version
+	 */
+	protected static class Version {
+		protected final long version;
+		protected final PrefixSearchMinMax<TripleKey, Triple>[] indices;
+		// the indices loaded or constructed before the delta store has been created are not freed (they may still be written out)
+		protected final boolean createdByMerging;
+		protected final ConcurrentSkipListMap<Triple, Stamp>[] delta;
+		protected volatile Version previous;
+		protected volatile int numberOfEntries = 0;
+		protected volatile int sizeDifference = 0;
+
+		@SuppressWarnings("unchecked")
+		public Version(final long version, final PrefixSearchMinMax<TripleKey, Triple>[] indices, final boolean createdByMerging, final Version previous) {
+			this.version = version;
+			this.indices = indices;
+			this.createdByMerging = createdByMerging;
+			this.previous = previous;
+			this.delta = new ConcurrentSkipListMap[CollationOrder.values().length];
+			for (final CollationOrder order : CollationOrder.values()) {
+				this.delta[order.ordinal()] = new ConcurrentSkipListMap<Triple, Stamp>(new TripleComparator(order));
+			}
+		}
+
+		/**
+		 * frees the evaluation indices of this version after it has been pruned
+		 */
+		public void releaseIndices() {
+			if (this.createdByMerging) {
+				for (final PrefixSearchMinMax<TripleKey, Triple> index : this.indices) {
+					DeltaStore.release(index);
+				}
+			}
+		}
+
+		public boolean containedInIndices(final Triple t) {
+			return this.indices[CollationOrder.SPO.ordinal()].get(new TripleKey(t, CollationOrder.SPO)) != null;
+		}
+
+		public Stamp getStamp(final Triple t, final long snapshot) {
+			final Stamp stamp = this.delta[0].get(t);
+			return (stamp == null) ? null : stamp.getStamp(snapshot);
+		}
+
+		public boolean getPresence(final Triple t, final long snapshot) {
+			final Stamp stamp = this.getStamp(t, snapshot);
+			return (stamp == null) ? this.containedInIndices(t) : stamp.present;
+		}
+
+		public Iterator<Triple> getIterator(final Triple key, final CollationOrder order, final Triple keyMinimum, final Triple keyMaximum, final long snapshot) {
+			final Iterator<Triple> it = RDF3XIndexScan.getIterator(this.indices[order.ordinal()], key, order, keyMinimum, keyMaximum);
+			final ConcurrentSkipListMap<Triple, Stamp> deltaOfOrder = this.delta[order.ordinal()];
+			if (deltaOfOrder.isEmpty()) {
+				return it;
+			}
+			return new MergingIterator(it, deltaOfOrder, new TripleComparator(order), key, keyMinimum, keyMaximum, snapshot);
+		}
+	}
+
+	/**
+	 * Merges the triples of an evaluation index with the updates of the delta store visible in a snapshot
+	 */
+	protected static class MergingIterator implements SIPParallelIterator<Triple, TripleKey> {
+
+		private final Iterator<Triple> it;
+		private final ConcurrentSkipListMap<Triple, Stamp> delta;
+		private final TripleComparator comparator;
+		private final Triple key;
+		private final Triple keyMaximum;
+		private final long snapshot;
+
+		private Iterator<Entry<Triple, Stamp>> deltaIterator;
+		private Triple nextFromIndex = null;
+		private Entry<Triple, Stamp> nextFromDelta = null;
+		private Triple next = null;
+
+		public MergingIterator(final Iterator<Triple> it, final ConcurrentSkipListMap<Triple, Stamp> delta, final TripleComparator comparator, final Triple key, final Triple keyMinimum, final Triple keyMaximum, final long snapshot) {
+			this.it = it;
+			this.delta = delta;
+			this.comparator = comparator;
+			this.key = key;
+			this.keyMaximum = keyMaximum;
+			this.snapshot = snapshot;
+			final Triple start = (keyMinimum != null) ? keyMinimum : key;
+			this.deltaIterator = (start == null) ? delta.entrySet().iterator() : delta.tailMap(start, true).entrySet().iterator();
+		}
+
+		private Entry<Triple, Stamp> nextDeltaEntry() {
+			if (this.deltaIterator.hasNext()) {
+				final Entry<Triple, Stamp> entry = this.deltaIterator.next();
+				if ((this.key != null && this.comparator.compare(this.key, entry.getKey()) != 0)
+						|| (this.keyMaximum != null && this.comparator.compare(entry.getKey(), this.keyMaximum) > 0)) {
+					// out of the range of the scan
+					this.deltaIterator = Collections.<Entry<Triple, Stamp>> emptyIterator();
+					return null;
+				}
+				return entry;
+			}
+			return null;
+		}
+
+		private Triple computeNext() {
+			while (true) {
+				if (this.nextFromIndex == null && this.it.hasNext()) {
+					this.nextFromIndex = this.it.next();
+				}
+				if (this.nextFromDelta == null) {
+					this.nextFromDelta = this.nextDeltaEntry();
+				}
+				if (this.nextFromDelta == null) {
+					final Triple result = this.nextFromIndex;
+					this.nextFromIndex = null;
+					return result;
+				}
+				final Stamp stamp = this.nextFromDelta.getValue().getStamp(this.snapshot);
+				final int compare = (this.nextFromIndex == null) ? 1 : this.comparator.compare(this.nextFromIndex, this.nextFromDelta.getKey());
+				if (compare < 0) {
+					final Triple result = this.nextFromIndex;
+					this.nextFromIndex = null;
+					return result;
+				}
+				final Triple fromDelta = this.nextFromDelta.getKey();
+				this.nextFromDelta = null;
+				if (compare > 0) {
+					// only in the delta store
+					if (stamp != null && stamp.present) {
+						return fromDelta;
+					}
+				} else {
+					// in the evaluation index and in the delta store
+					final Triple result = this.nextFromIndex;
+					this.nextFromIndex = null;
+					if (stamp == null || stamp.present) {
+						return result;
+					}
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.next == null) {
+				this.next = this.computeNext();
+			}
+			return this.next != null;
+		}
+
+		@Override
+		public Triple next() {
+			if (this.next == null) {
+				return this.computeNext();
+			}
+			final Triple result = this.next;
+			this.next = null;
+			return result;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public Triple next(final TripleKey k) {
+			if (this.next != null) {
+				// put back the already computed next triple
+				if (k.compareTo(this.next) <= 0) {
+					final Triple result = this.next;
+					this.next = null;
+					return result;
+				}
+				this.next = null;
+			}
+			if (this.nextFromIndex == null || k.compareTo(this.nextFromIndex) > 0) {
+				this.nextFromIndex = null;
+				if (this.it instanceof SIPParallelIterator) {
+					this.nextFromIndex = ((SIPParallelIterator<Triple, TripleKey>) this.it).next(k);
+				} else {
+					while (this.it.hasNext()) {
+						final Triple t = this.it.next();
+						if (k.compareTo(t) <= 0) {
+							this.nextFromIndex = t;
+							break;
+						}
+					}
+				}
+			}
+			if (this.nextFromDelta == null) {
+				this.nextFromDelta = this.nextDeltaEntry();
+			}
+			if (this.nextFromDelta != null && k.compareTo(this.nextFromDelta.getKey()) > 0) {
+				this.deltaIterator = this.delta.tailMap(k.getTriple(), true).entrySet().iterator();
+				this.nextFromDelta = this.nextDeltaEntry();
+			}
+			return this.computeNext();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() {
+			if (this.it instanceof ParallelIterator) {
+				((ParallelIterator<Triple>) this.it).close();
+			}
+		}
+	}
+}
@@ -0,0 +1,615 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.engine.operators.index.adaptedRDF3X;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.items.Item;
+import lupos.datastructures.items.Triple;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LazyLiteral;
+import lupos.datastructures.items.literal.Literal;
+import lupos.datastructures.queryresult.ParallelIterator;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.engine.operators.OperatorIDTuple;
+import lupos.engine.operators.index.Indices;
+import lupos.engine.operators.tripleoperator.TriplePattern;
+
+/**
+ * This index scan operator joins all its triple patterns at once with the worst-case optimal
+ * Leapfrog Triejoin algorithm (see T. L. Veldhuizen: Leapfrog Triejoin: A Simple, Worst-Case Optimal Join Algorithm, ICDT 2014).
+ *
+ * The variables of the triple patterns are joined one after the other in a global variable order.
+ * Each triple pattern is accessed as trie over the one of the six indices, the collation order of which
+ * first sorts according to the constants of the triple pattern and afterwards according to its variables in the global variable order.
+ * Seeks in the tries are done by a few linear steps in the current index iterator, and otherwise by a new prefix search in the index.
+ *
+ * In comparison to a tree of binary joins, intermediate results are never materialized, which
+ * makes a big difference for cyclic queries like triangles or cliques.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class LeapfrogTriejoinIndexScan extends RDF3XIndexScan {
+
+	private static final long serialVersionUID = 4170262437880766125L;
+
+	/**
+	 * the number of linear steps in the current index iterator before a seek is done by a new prefix search in the index
+	 */
+	public static int linearSeekSteps = 8;
+
+	/**
+	 * <p>Constructor for LeapfrogTriejoinIndexScan.</p>
+	 *
+	 * @param succeedingOperators a {@link java.util.List} object.
+	 * @param triplePatterns a {@link java.util.Collection} object.
+	 * @param rdfGraph a {@link lupos.datastructures.items.Item} object.
+	 * @param root a lupos$engine$operators$index$Root object.
+	 */
+	public LeapfrogTriejoinIndexScan(final List<OperatorIDTuple> succeedingOperators,
+			final Collection<TriplePattern> triplePatterns, final Item rdfGraph, final lupos.engine.operators.index.Root root) {
+		super(succeedingOperators, triplePatterns, rdfGraph, root);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public LeapfrogTriejoinIndexScan clone() {
+		final LeapfrogTriejoinIndexScan clone = new LeapfrogTriejoinIndexScan(this.succeedingOperators, this.triplePatterns, this.rdfGraph, this.root);
+		clone.bindingsFactory = this.bindingsFactory;
+		return clone;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public QueryResult join(final Indices indices, final Bindings bindings) {
+		final SixIndices sixIndices = (SixIndices) indices;
+		final List<Variable> variableOrder = LeapfrogTriejoinIndexScan.getVariableOrder(this.triplePatterns, bindings);
+
+		// the tries of the triple patterns and for each variable the tries participating in the join of this variable
+		final TrieIterator[] tries = new TrieIterator[this.triplePatterns.size()];
+		final LeapfrogJoin[] leapfrogJoins = new LeapfrogJoin[variableOrder.size()];
+		final List<List<TrieIterator>> participants = new ArrayList<List<TrieIterator>>(variableOrder.size());
+		for(int i=0; i<variableOrder.size(); i++){
+			participants.add(new LinkedList<TrieIterator>());
+		}
+		final Map<Variable, Literal> alreadyBound = new HashMap<Variable, Literal>();
+		int index = 0;
+		for(final TriplePattern tp: this.triplePatterns){
+			final Triple key = RDF3XIndexScan.getKey(tp, bindings);
+			final List<Variable> orderOfTriplePattern = new LinkedList<Variable>();
+			final List<Integer> levelsOfTriplePattern = new LinkedList<Integer>();
+			for(int pos=0; pos<3; pos++){
+				if(tp.getPos(pos).isVariable() && key.getPos(pos)!=null){
+					orderOfTriplePattern.add((Variable) tp.getPos(pos));
+					alreadyBound.put((Variable) tp.getPos(pos), key.getPos(pos));
+				}
+			}
+			for(int level=0; level<variableOrder.size(); level++){
+				final Variable var = variableOrder.get(level);
+				final int pos = tp.getPos(var);
+				if(pos>=0 && key.getPos(pos)==null){
+					orderOfTriplePattern.add(var);
+					levelsOfTriplePattern.add(level);
+				}
+			}
+			final int[] positions = new int[levelsOfTriplePattern.size()];
+			int i = 0;
+			for(final Integer level: levelsOfTriplePattern){
+				positions[i] = tp.getPos(variableOrder.get(level));
+				i++;
+			}
+			final TrieIterator trie = new TrieIterator(sixIndices, key, CollationOrder.getCollationOrder(tp, orderOfTriplePattern), positions, this.getSnapshot());
+			tries[index] = trie;
+			index++;
+			if(positions.length == 0){
+				// triple pattern without any unbound variables: just check if it is matched at all
+				trie.open();
+				if(trie.atEnd()){
+					// close also the tries of the already checked triple patterns without unbound variables
+					for(int j=0; j<index; j++){
+						tries[j].close();
+					}
+					return null;
+				}
+			} else {
+				for(final Integer level: levelsOfTriplePattern){
+					participants.get(level).add(trie);
+				}
+			}
+		}
+		for(int level=0; level<variableOrder.size(); level++){
+			leapfrogJoins[level] = new LeapfrogJoin(participants.get(level).toArray(new TrieIterator[participants.get(level).size()]));
+		}
+
+		final ParallelIterator<Bindings> it = new ParallelIterator<Bindings>(){
+
+			private int depth = -1;
+			private Bindings next = null;
+			private boolean finished = false;
+
+			@Override
+			public boolean hasNext() {
+				if(this.next == null && !this.finished){
+					this.next = this.computeNext();
+				}
+				return this.next != null;
+			}
+
+			@Override
+			public Bindings next() {
+				if(this.hasNext()){
+					final Bindings result = this.next;
+					this.next = null;
+					return result;
+				} else {
+					return null;
+				}
+			}
+
+			private Bindings computeNext() {
+				if(this.depth < 0){
+					if(leapfrogJoins.length == 0){
+						// all variables are already bound
+						final Bindings result = this.createBindings();
+						this.close();
+						return result;
+					}
+					this.depth = 0;
+					leapfrogJoins[0].open();
+				} else {
+					// continue after the last result
+					leapfrogJoins[this.depth].next();
+				}
+				while(true){
+					if(leapfrogJoins[this.depth].atEnd()){
+						leapfrogJoins[this.depth].up();
+						this.depth--;
+						if(this.depth < 0){
+							this.close();
+							return null;
+						}
+						leapfrogJoins[this.depth].next();
+					} else if(this.depth == leapfrogJoins.length - 1){
+						return this.createBindings();
+					} else {
+						this.depth++;
+						leapfrogJoins[this.depth].open();
+					}
+				}
+			}
+
+			private Bindings createBindings(){
+				final Bindings result = LeapfrogTriejoinIndexScan.this.bindingsFactory.createInstance();
+				for(final Map.Entry<Variable, Literal> entry: alreadyBound.entrySet()){
+					result.add(entry.getKey(), entry.getValue());
+				}
+				for(int level=0; level<leapfrogJoins.length; level++){
+					result.add(variableOrder.get(level), leapfrogJoins[level].key());
+				}
+				for(final TrieIterator trie: tries){
+					result.addTriple(trie.getTriple());
+				}
+				return result;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+				if(!this.finished){
+					this.finished = true;
+					for(final TrieIterator trie: tries){
+						trie.close();
+					}
+				}
+			}
+
+			@Override
+			protected void finalize() throws Throwable {
+				try {
+					this.close();
+				} finally {
+					super.finalize();
+				}
+			}
+		};
+
+		if (!it.hasNext()) {
+			return null;
+		}
+		return QueryResult.createInstance(it);
+	}
+
+	/**
+	 * Determines the global variable order used for the Leapfrog Triejoin:
+	 * Variables occurring in many triple patterns are joined first, and if several variables occur equally often,
+	 * the ones are preferred, which are connected via a triple pattern to the already chosen variables.
+	 * Variables bound by the given bindings are not considered.
+	 *
+	 * @param triplePatterns the triple patterns to be joined
+	 * @param bindings the already bound variables (may be null)
+	 * @return the global variable order
+	 */
+	public static List<Variable> getVariableOrder(final Collection<TriplePattern> triplePatterns, final Bindings bindings) {
+		final HashMap<Variable, Integer> occurrences = new HashMap<Variable, Integer>();
+		final LinkedList<Variable> remaining = new LinkedList<Variable>();
+		for(final TriplePattern tp: triplePatterns){
+			for(final Variable var: tp.getVariables()){
+				if(bindings != null && bindings.getVariableSet().contains(var)){
+					continue;
+				}
+				final Integer number = occurrences.get(var);
+				if(number == null){
+					occurrences.put(var, 1);
+					remaining.add(var);
+				} else {
+					occurrences.put(var, number + 1);
+				}
+			}
+		}
+		final List<Variable> order = new ArrayList<Variable>(remaining.size());
+		final Set<Variable> chosen = new HashSet<Variable>();
+		while(!remaining.isEmpty()){
+			Variable best = null;
+			boolean bestConnected = false;
+			for(final Variable var: remaining){
+				final boolean connected = LeapfrogTriejoinIndexScan.isConnected(var, chosen, triplePatterns);
+				if(best == null || occurrences.get(var) > occurrences.get(best) || (occurrences.get(var).equals(occurrences.get(best)) && connected && !bestConnected)){
+					best = var;
+					bestConnected = connected;
+				}
+			}
+			remaining.remove(best);
+			chosen.add(best);
+			order.add(best);
+		}
+		return order;
+	}
+
+	private static boolean isConnected(final Variable var, final Set<Variable> chosen, final Collection<TriplePattern> triplePatterns){
+		for(final TriplePattern tp: triplePatterns){
+			if(tp.getVariables().contains(var)){
+				for(final Variable other: tp.getVariables()){
+					if(chosen.contains(other)){
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compares two values of the tries according to the order of the indices
+	 *
+	 * @param l0 the first value
+	 * @param l1 the second value
+	 * @return a negative number, zero or a positive number if l0 is smaller, equal or greater than l1
+	 */
+	protected static int compare(final Literal l0, final Literal l1){
+		return l0.compareToNotNecessarilySPARQLSpecificationConform(l1);
+	}
+
+	/**
+	 * The leapfrog join of the tries participating in the join of one variable.
+	 */
+	protected static class LeapfrogJoin {
+
+		private final TrieIterator[] tries;
+		private int p;
+		private boolean atEnd;
+		private Literal key;
+
+		private final static Comparator<TrieIterator> COMPARATOR = new Comparator<TrieIterator>(){
+			@Override
+			public int compare(final TrieIterator o1, final TrieIterator o2) {
+				return LeapfrogTriejoinIndexScan.compare(o1.key(), o2.key());
+			}
+		};
+
+		/**
+		 * <p>Constructor for LeapfrogJoin.</p>
+		 *
+		 * @param tries the tries participating in the join of the variable
+		 */
+		public LeapfrogJoin(final TrieIterator[] tries){
+			this.tries = tries;
+		}
+
+		/**
+		 * opens the next level of all participating tries and searches for the first common value
+		 */
+		public void open(){
+			for(final TrieIterator trie: this.tries){
+				trie.open();
+			}
+			for(final TrieIterator trie: this.tries){
+				if(trie.atEnd()){
+					this.atEnd = true;
+					return;
+				}
+			}
+			this.atEnd = false;
+			Arrays.sort(this.tries, LeapfrogJoin.COMPARATOR);
+			this.p = 0;
+			this.search();
+		}
+
+		/**
+		 * goes back to the previous level of all participating tries
+		 */
+		public void up(){
+			for(final TrieIterator trie: this.tries){
+				trie.up();
+			}
+		}
+
+		private void search(){
+			final int k = this.tries.length;
+			Literal max = this.tries[(this.p + k - 1) % k].key();
+			while(true){
+				final TrieIterator trie = this.tries[this.p];
+				if(LeapfrogTriejoinIndexScan.compare(trie.key(), max) == 0){
+					this.key = max;
+					return;
+				}
+				trie.seek(max);
+				if(trie.atEnd()){
+					this.atEnd = true;
+					return;
+				}
+				max = trie.key();
+				this.p = (this.p + 1) % k;
+			}
+		}
+
+		/**
+		 * searches for the next common value
+		 */
+		public void next(){
+			this.tries[this.p].next();
+			if(this.tries[this.p].atEnd()){
+				this.atEnd = true;
+				return;
+			}
+			this.p = (this.p + 1) % this.tries.length;
+			this.search();
+		}
+
+		/**
+		 * <p>atEnd.</p>
+		 *
+		 * @return true if there are no further common values
+		 */
+		public boolean atEnd(){
+			return this.atEnd;
+		}
+
+		/**
+		 * <p>Getter for the field <code>key</code>.</p>
+		 *
+		 * @return the current common value
+		 */
+		public Literal key(){
+			return this.key;
+		}
+	}
+
+	/**
+	 * A triple pattern accessed as trie: Level i of the trie contains the values of the i-th (unbound) variable of the triple pattern
+	 * for the values of the previous levels.
+	 * Each level is realized by its own prefix search in the index with the right collation order.
+	 */
+	protected static class TrieIterator {
+
+		private final SixIndices sixIndices;
+		private final DeltaStore.Snapshot snapshot;
+		private final Triple prefix;
+		private final CollationOrder collationOrder;
+		private final int[] positions;
+		private final Iterator<Triple>[] iterators;
+		private final Triple[] currents;
+		private int depth = -1;
+		private boolean atEnd = false;
+
+		/**
+		 * <p>Constructor for TrieIterator.</p>
+		 *
+		 * @param sixIndices the indices to be accessed
+		 * @param prefix the constants and bound variables of the triple pattern (unbound variables are null)
+		 * @param collationOrder the collation order sorting first according to the constants and bound variables, and then according to the positions of the levels
+		 * @param positions the positions in the triple of the levels of the trie
+		 * @param snapshot the snapshot of the data seen by the query (or null for reading the last committed version)
+		 */
+		@SuppressWarnings("unchecked")
+		public TrieIterator(final SixIndices sixIndices, final Triple prefix, final CollationOrder collationOrder, final int[] positions, final DeltaStore.Snapshot snapshot){
+			this.sixIndices = sixIndices;
+			this.snapshot = snapshot;
+			this.prefix = prefix;
+			this.collationOrder = collationOrder;
+			this.positions = positions;
+			// a triple pattern without levels is opened once for checking its existence
+			final int levels = Math.max(1, positions.length);
+			this.iterators = new Iterator[levels];
+			this.currents = new Triple[levels];
+		}
+
+		private Triple getPrefix(final int level){
+			final Triple key = new Triple(this.prefix.getSubject(), this.prefix.getPredicate(), this.prefix.getObject());
+			for(int i=0; i<level; i++){
+				key.setPos(this.positions[i], this.currents[i].getPos(this.positions[i]));
+			}
+			return key;
+		}
+
+		private void fetch(){
+			final Iterator<Triple> it = this.iterators[this.depth];
+			if(it.hasNext()){
+				this.currents[this.depth] = it.next();
+				this.atEnd = false;
+			} else {
+				this.currents[this.depth] = null;
+				this.atEnd = true;
+			}
+		}
+
+		private void closeIterator(final int level){
+			if(this.iterators[level] instanceof ParallelIterator){
+				((ParallelIterator<Triple>) this.iterators[level]).close();
+			}
+			this.iterators[level] = null;
+		}
+
+		/**
+		 * opens the next level of the trie
+		 */
+		public void open(){
+			this.depth++;
+			this.iterators[this.depth] = RDF3XIndexScan.getIterator(this.sixIndices, this.getPrefix(this.depth), this.collationOrder, null, null, this.snapshot);
+			this.fetch();
+		}
+
+		/**
+		 * goes back to the previous level of the trie
+		 */
+		public void up(){
+			this.closeIterator(this.depth);
+			this.currents[this.depth] = null;
+			this.depth--;
+			this.atEnd = false;
+		}
+
+		/**
+		 * <p>key.</p>
+		 *
+		 * @return the current value of the current level
+		 */
+		public Literal key(){
+			return this.currents[this.depth].getPos(this.positions[this.depth]);
+		}
+
+		/**
+		 * <p>atEnd.</p>
+		 *
+		 * @return true if there are no further values at the current level
+		 */
+		public boolean atEnd(){
+			return this.atEnd;
+		}
+
+		/**
+		 * <p>getTriple.</p>
+		 *
+		 * @return the current triple of the deepest level
+		 */
+		public Triple getTriple(){
+			return this.currents[this.currents.length - 1];
+		}
+
+		/**
+		 * moves to the first value at the current level, which is greater than or equal to the given value
+		 *
+		 * @param value the value to seek for
+		 */
+		public void seek(final Literal value){
+			for(int i=0; !this.atEnd && i<=LeapfrogTriejoinIndexScan.linearSeekSteps; i++){
+				if(LeapfrogTriejoinIndexScan.compare(this.key(), value) >= 0){
+					return;
+				}
+				if(i<LeapfrogTriejoinIndexScan.linearSeekSteps){
+					this.fetch();
+				}
+			}
+			if(this.atEnd){
+				return;
+			}
+			// too many linear steps: do a new prefix search starting from the given value
+			this.closeIterator(this.depth);
+			final Triple key = this.getPrefix(this.depth);
+			final Triple keyMinimum = this.getPrefix(this.depth);
+			keyMinimum.setPos(this.positions[this.depth], value);
+			this.iterators[this.depth] = RDF3XIndexScan.getIterator(this.sixIndices, key, this.collationOrder, keyMinimum, null, this.snapshot);
+			// not all indices consider the minimum (e.g. the in-memory ones), such that we still have to skip smaller values
+			do {
+				this.fetch();
+			} while(!this.atEnd && LeapfrogTriejoinIndexScan.compare(this.key(), value) < 0);
+		}
+
+		/**
+		 * moves to the next value at the current level
+		 */
+		public void next(){
+			final Literal current = this.key();
+			for(int i=0; i<LeapfrogTriejoinIndexScan.linearSeekSteps; i++){
+				this.fetch();
+				if(this.atEnd || LeapfrogTriejoinIndexScan.compare(this.key(), current) > 0){
+					return;
+				}
+			}
+			if(current instanceof LazyLiteral){
+				this.seek(new LazyLiteral(((LazyLiteral) current).getCode() + 1));
+			} else {
+				do {
+					this.fetch();
+				} while(!this.atEnd && LeapfrogTriejoinIndexScan.compare(this.key(), current) <= 0);
+			}
+		}
+
+		/**
+		 * closes all open index iterators
+		 */
+		public void close(){
+			while(this.depth >= 0){
+				this.up();
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString() {
+		return "LeapfrogTriejoin" + super.toString();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString(final lupos.rdf.Prefix prefixInstance) {
+		return "LeapfrogTriejoin " + super.toString(prefixInstance);
+	}
+}
@@ -24,6 +24,7 @@
 package lupos.engine.operators.index.adaptedRDF3X;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -33,8 +34,12 @@ import java.util.List;
 import java.util.Map;
 
 import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsArray;
+import lupos.datastructures.bindings.BindingsArrayCodes;
+import lupos.datastructures.bindings.BindingsBlock;
 import lupos.datastructures.items.Item;
 import lupos.datastructures.items.Triple;
+import lupos.datastructures.items.TripleComparator;
 import lupos.datastructures.items.TripleKey;
 import lupos.datastructures.items.Variable;
 import lupos.datastructures.items.literal.Literal;
@@ -43,8 +48,10 @@ import lupos.datastructures.items.literal.URILiteral;
 import lupos.datastructures.paged_dbbptree.DBBPTree;
 import lupos.datastructures.paged_dbbptree.OptimizedDBBPTreeGeneration;
 import lupos.datastructures.paged_dbbptree.PrefixSearchMinMax;
+import lupos.datastructures.queryresult.BlockQueryResult;
 import lupos.datastructures.queryresult.ParallelIterator;
 import lupos.datastructures.queryresult.QueryResult;
+import lupos.datastructures.queryresult.SIPParallelIterator;
 import lupos.engine.operators.BasicOperator;
 import lupos.engine.operators.OperatorIDTuple;
 import lupos.engine.operators.index.BasicIndexScan;
@@ -232,8 +239,32 @@ public class RDF3XIndexScan extends BasicIndexScan {
 		}
 	}
 
+	/**
+	 * if true, the solutions of the index scans are delivered in columnar blocks of codes
+	 * (see {@link lupos.datastructures.bindings.BindingsBlock}) whenever possible
+	 * (set by the option --blockwiseindexscans of the RDF3X query evaluator)
+	 */
+	public static boolean blockwise = false;
+
+	/**
+	 * if true, filters restricting a variable of a triple pattern to a prefix of its string representation
+	 * (like STRSTARTS or anchored regular expressions) or to a numeric interval are translated into code ranges of the index scan
+	 * (see {@link lupos.optimizations.physical.PushRangeFilterIntoIndexScanRule}, set by the option --pushdownrangefilters of the RDF3X query evaluator)
+	 */
+	public static boolean pushDownRangeFilters = false;
+
+	/**
+	 * the maximum number of dictionary entries, which are scanned for determining the code range of a prefix filter or of the numeric literals
+	 */
+	public static int maxDictionaryEntriesForRangeFilters = 100000;
+
 	protected CollationOrder collationOrder = CollationOrder.SPO;
 
+	/**
+	 * true if a succeeding operator (like a merge join) relies on the current collation order
+	 */
+	protected boolean sortedResultRequired = false;
+
 	protected Map<Variable, Literal> minima;
 	protected Map<Variable, Literal> maxima;
 
@@ -277,6 +308,7 @@ public class RDF3XIndexScan extends BasicIndexScan {
 	public RDF3XIndexScan clone() {
 		final RDF3XIndexScan clone = new RDF3XIndexScan(this.succeedingOperators, this.triplePatterns, this.rdfGraph, this.root);
 		clone.collationOrder = this.collationOrder;
+		clone.sortedResultRequired = this.sortedResultRequired;
 		clone.bindingsFactory = this.bindingsFactory;
 		return clone;
 	}
@@ -487,7 +519,16 @@ public class RDF3XIndexScan extends BasicIndexScan {
 	protected Iterator<Triple> getIterator(final SixIndices sixIndices,
 			final Triple key, final Triple keyMinimum, final Triple keyMaximum) {
 		return RDF3XIndexScan.getIterator(sixIndices, key, this.collationOrder,
-				keyMinimum, keyMaximum);
+				keyMinimum, keyMaximum, this.getSnapshot());
+	}
+
+	/**
+	 * <p>Getter for the snapshot.</p>
+	 *
+	 * @return the snapshot of the data seen by the current evaluation (or null for reading the last committed version)
+	 */
+	protected DeltaStore.Snapshot getSnapshot() {
+		return (this.root == null) ? null : this.root.getSnapshot();
 	}
 
 	/**
@@ -498,150 +539,48 @@ public class RDF3XIndexScan extends BasicIndexScan {
 	 * @param collationOrder a {@link lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan.CollationOrder} object.
 	 * @param keyMinimum a {@link lupos.datastructures.items.Triple} object.
 	 * @param keyMaximum a {@link lupos.datastructures.items.Triple} object.
+	 * @param snapshot the snapshot of the data seen by the query (or null for reading the last committed version)
 	 * @return a {@link java.util.Iterator} object.
 	 */
 	protected static Iterator<Triple> getIterator(final SixIndices sixIndices,
+			final Triple key, final CollationOrder collationOrder,
+			final Triple keyMinimum, final Triple keyMaximum, final DeltaStore.Snapshot snapshot) {
+		final DeltaStore deltaStore = sixIndices.getDeltaStore();
+		if (deltaStore != null) {
+			// merge the base index with the not yet merged updates visible in the given snapshot
+			return deltaStore.getIterator(key, collationOrder, keyMinimum, keyMaximum, snapshot);
+		}
+		return RDF3XIndexScan.getIterator(sixIndices.getIndex(collationOrder), key, collationOrder, keyMinimum, keyMaximum);
+	}
+
+	/**
+	 * <p>getIterator.</p>
+	 *
+	 * @param index the evaluation index of the given collation order
+	 * @param key a {@link lupos.datastructures.items.Triple} object.
+	 * @param collationOrder a {@link lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan.CollationOrder} object.
+	 * @param keyMinimum a {@link lupos.datastructures.items.Triple} object.
+	 * @param keyMaximum a {@link lupos.datastructures.items.Triple} object.
+	 * @return a {@link java.util.Iterator} object.
+	 */
+	protected static Iterator<Triple> getIterator(final PrefixSearchMinMax<TripleKey, Triple> index,
 			final Triple key, final CollationOrder collationOrder,
 			final Triple keyMinimum, final Triple keyMaximum) {
 		if (keyMinimum == null) {
 			if (keyMaximum == null) {
-				switch (collationOrder) {
-				case SPO:
-					return sixIndices.SPO.prefixSearch(new TripleKey(key,
-							CollationOrder.SPO));
-				case SOP:
-					return sixIndices.SOP.prefixSearch(new TripleKey(key,
-							CollationOrder.SOP));
-				case PSO:
-					return sixIndices.PSO.prefixSearch(new TripleKey(key,
-							CollationOrder.PSO));
-				case POS:
-					return sixIndices.POS.prefixSearch(new TripleKey(key,
-							CollationOrder.POS));
-				case OSP:
-					return sixIndices.OSP.prefixSearch(new TripleKey(key,
-							CollationOrder.OSP));
-				default:
-				case OPS:
-					return sixIndices.OPS.prefixSearch(new TripleKey(key,
-							CollationOrder.OPS));
-				}
+				return index.prefixSearch(new TripleKey(key, collationOrder));
 			} else {
-				switch (collationOrder) {
-				case SPO:
-					return sixIndices.SPO.prefixSearchMax(new TripleKey(key,
-							CollationOrder.SPO),
-							new TripleKey(keyMaximum,
-									CollationOrder.SPO));
-				case SOP:
-					return sixIndices.SOP.prefixSearchMax(new TripleKey(key,
-							CollationOrder.SOP),
-							new TripleKey(keyMaximum,
-									CollationOrder.SOP));
-				case PSO:
-					return sixIndices.PSO.prefixSearchMax(new TripleKey(key,
-							CollationOrder.PSO),
-							new TripleKey(keyMaximum,
-									CollationOrder.PSO));
-				case POS:
-					return sixIndices.POS.prefixSearchMax(new TripleKey(key,
-							CollationOrder.POS),
-							new TripleKey(keyMaximum,
-									CollationOrder.POS));
-				case OSP:
-					return sixIndices.OSP.prefixSearchMax(new TripleKey(key,
-							CollationOrder.OSP),
-							new TripleKey(keyMaximum,
-									CollationOrder.OSP));
-				default:
-				case OPS:
-					return sixIndices.OPS.prefixSearchMax(new TripleKey(key,
-							CollationOrder.OPS),
-							new TripleKey(keyMaximum,
-									CollationOrder.OPS));
-				}
+				return index.prefixSearchMax(new TripleKey(key, collationOrder),
+						new TripleKey(keyMaximum, collationOrder));
 			}
 		} else {
 			if (keyMaximum == null) {
-				switch (collationOrder) {
-				case SPO:
-					return sixIndices.SPO.prefixSearch(new TripleKey(key,
-							CollationOrder.SPO),
-							new TripleKey(keyMinimum,
-									CollationOrder.SPO));
-				case SOP:
-					return sixIndices.SOP.prefixSearch(new TripleKey(key,
-							CollationOrder.SOP),
-							new TripleKey(keyMinimum,
-									CollationOrder.SOP));
-				case PSO:
-					return sixIndices.PSO.prefixSearch(new TripleKey(key,
-							CollationOrder.PSO),
-							new TripleKey(keyMinimum,
-									CollationOrder.PSO));
-				case POS:
-					return sixIndices.POS.prefixSearch(new TripleKey(key,
-							CollationOrder.POS),
-							new TripleKey(keyMinimum,
-									CollationOrder.POS));
-				case OSP:
-					return sixIndices.OSP.prefixSearch(new TripleKey(key,
-							CollationOrder.OSP),
-							new TripleKey(keyMinimum,
-									CollationOrder.OSP));
-				default:
-				case OPS:
-					return sixIndices.OPS.prefixSearch(new TripleKey(key,
-							CollationOrder.OPS),
-							new TripleKey(keyMinimum,
-									CollationOrder.OPS));
-				}
+				return index.prefixSearch(new TripleKey(key, collationOrder),
+						new TripleKey(keyMinimum, collationOrder));
 			} else {
-				switch (collationOrder) {
-				case SPO:
-					return sixIndices.SPO.prefixSearch(new TripleKey(key,
-							CollationOrder.SPO),
-							new TripleKey(keyMinimum,
-									CollationOrder.SPO),
-							new TripleKey(keyMaximum,
-									CollationOrder.SPO));
-				case SOP:
-					return sixIndices.SOP.prefixSearch(new TripleKey(key,
-							CollationOrder.SOP),
-							new TripleKey(keyMinimum,
-									CollationOrder.SOP),
-							new TripleKey(keyMaximum,
-									CollationOrder.SOP));
-				case PSO:
-					return sixIndices.PSO.prefixSearch(new TripleKey(key,
-							CollationOrder.PSO),
-							new TripleKey(keyMinimum,
-									CollationOrder.PSO),
-							new TripleKey(keyMaximum,
-									CollationOrder.PSO));
-				case POS:
-					return sixIndices.POS.prefixSearch(new TripleKey(key,
-							CollationOrder.POS),
-							new TripleKey(keyMinimum,
-									CollationOrder.POS),
-							new TripleKey(keyMaximum,
-									CollationOrder.POS));
-				case OSP:
-					return sixIndices.OSP.prefixSearch(new TripleKey(key,
-							CollationOrder.OSP),
-							new TripleKey(keyMinimum,
-									CollationOrder.OSP),
-							new TripleKey(keyMaximum,
-									CollationOrder.OSP));
-				default:
-				case OPS:
-					return sixIndices.OPS.prefixSearch(new TripleKey(key,
-							CollationOrder.OPS),
-							new TripleKey(keyMinimum,
-									CollationOrder.OPS),
-							new TripleKey(keyMaximum,
-									CollationOrder.OPS));
-				}
+				return index.prefixSearch(new TripleKey(key, collationOrder),
+						new TripleKey(keyMinimum, collationOrder),
+						new TripleKey(keyMaximum, collationOrder));
 			}
 		}
 	}
@@ -664,10 +603,133 @@ public class RDF3XIndexScan extends BasicIndexScan {
 			return null;
 		}
 
+		if (RDF3XIndexScan.blockwise && RDF3XIndexScan.isBlockwisePossible(tp)) {
+			return this.createBlockQueryResult(it, tp);
+		}
+
 		return QueryResult.createInstance(it, tp, this.collationOrder, tp
 				.getBloomFilters() != null);
 	}
 
+	/**
+	 * Checks whether or not the result of a triple pattern can be delivered in blocks of codes.
+	 * This is only possible if the literals are LazyLiteral objects without original content and
+	 * if the bindings do not need to store additional information like the read triples.
+	 *
+	 * @param tp the triple pattern
+	 * @return true if the result of the triple pattern can be delivered in blocks
+	 */
+	public static boolean isBlockwisePossible(final TriplePattern tp) {
+		final LiteralFactory.MapType mapType = LiteralFactory.getMapType();
+		return (mapType == LiteralFactory.MapType.LAZYLITERAL || mapType == LiteralFactory.MapType.LAZYLITERALWITHOUTINITIALPREFIXCODEMAP)
+				&& !LiteralFactory.semanticInterpretationOfLiterals
+				&& (Bindings.instanceClass == BindingsArray.class || Bindings.instanceClass == BindingsArrayCodes.class)
+				&& tp.getBloomFilters() == null;
+	}
+
+	/**
+	 * Creates a query result, which delivers the solutions of a triple pattern in blocks of codes.
+	 *
+	 * @param it the iterator over the matching triples
+	 * @param tp the triple pattern
+	 * @return the query result delivering the solutions in blocks
+	 */
+	protected BlockQueryResult createBlockQueryResult(final Iterator<Triple> it, final TriplePattern tp) {
+		final LinkedList<Variable> variablesList = new LinkedList<Variable>();
+		final int[] columns = new int[3];
+		final Item[] items = tp.getItems();
+		for (int i = 0; i < 3; i++) {
+			if (items[i].isVariable()) {
+				int index = variablesList.indexOf(items[i]);
+				if (index < 0) {
+					index = variablesList.size();
+					variablesList.add((Variable) items[i]);
+				}
+				columns[i] = index;
+			} else {
+				columns[i] = -1;
+			}
+		}
+		final Variable[] variables = variablesList.toArray(new Variable[variablesList.size()]);
+		final CollationOrder order = this.collationOrder;
+		final Iterator<BindingsBlock> blocks = new SIPParallelIterator<BindingsBlock, Bindings>() {
+
+			final int[] row = new int[variables.length];
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public BindingsBlock next() {
+				return this.fill(new BindingsBlock(variables));
+			}
+
+			// returns the next block starting with the first solution greater than or equal to k,
+			// the solutions before are skipped by using the SIP information of the index
+			@Override
+			@SuppressWarnings("unchecked")
+			public BindingsBlock next(final Bindings k) {
+				if (!(it instanceof SIPParallelIterator)) {
+					return this.next();
+				}
+				final BindingsBlock block = new BindingsBlock(variables);
+				final TripleKey key = tp.getKey(k, order);
+				Triple t;
+				do {
+					t = ((SIPParallelIterator<Triple, TripleKey>) it).next(key);
+				} while (t != null && key.compareTo(t) > 0);
+				if (t != null && this.fillRow(t)) {
+					block.addRow(this.row);
+				}
+				return this.fill(block);
+			}
+
+			private BindingsBlock fill(final BindingsBlock block) {
+				while (!block.isFull() && it.hasNext()) {
+					final Triple t = it.next();
+					if (t != null && this.fillRow(t)) {
+						block.addRow(this.row);
+					}
+				}
+				if (!it.hasNext()) {
+					this.close();
+				}
+				return block;
+			}
+
+			private boolean fillRow(final Triple t) {
+				Arrays.fill(this.row, 0);
+				for (int i = 0; i < 3; i++) {
+					if (columns[i] >= 0) {
+						final int code = BindingsBlock.getCode(t.getPos(i));
+						if (this.row[columns[i]] == 0) {
+							this.row[columns[i]] = code;
+						} else if (this.row[columns[i]] != code) {
+							// join within triple pattern like ?a ?a ?b failed
+							return false;
+						}
+					}
+				}
+				return true;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+				if (it instanceof ParallelIterator) {
+					((ParallelIterator<Triple>) it).close();
+				}
+			}
+		};
+		return new BlockQueryResult(blocks, variables, this.bindingsFactory);
+	}
+
 	/**
 	 * <p>Getter for the field <code>collationOrder</code>.</p>
 	 *
@@ -738,6 +800,24 @@ public class RDF3XIndexScan extends BasicIndexScan {
 		this.collationOrder = getCollationOrder(this.triplePatterns.iterator().next(), sortCriterium);
 	}
 
+	/**
+	 * <p>isSortedResultRequired.</p>
+	 *
+	 * @return true if a succeeding operator relies on the current collation order, such that it must not be changed anymore
+	 */
+	public boolean isSortedResultRequired() {
+		return this.sortedResultRequired;
+	}
+
+	/**
+	 * <p>Setter for the field <code>sortedResultRequired</code>.</p>
+	 *
+	 * @param sortedResultRequired true if a succeeding operator relies on the current collation order
+	 */
+	public void setSortedResultRequired(final boolean sortedResultRequired) {
+		this.sortedResultRequired = sortedResultRequired;
+	}
+
 	/**
 	 * <p>getBinaryJoin.</p>
 	 *
@@ -834,6 +914,8 @@ public class RDF3XIndexScan extends BasicIndexScan {
 				final CollationOrder co2 = getCollationOrder(collationOrder2);
 				index1.setCollationOrder(co1);
 				index2.setCollationOrder(co2);
+				index1.setSortedResultRequired(true);
+				index2.setSortedResultRequired(true);
 				final Join join = new MergeJoinWithoutSorting();
 				join.setIntersectionVariables(hsv);
 				join.setUnionVariables(new HashSet<Variable>());
@@ -1221,14 +1303,25 @@ public class RDF3XIndexScan extends BasicIndexScan {
 	private Literal getMaxLiteral(final SixIndices sixIndices,
 			final Triple key, final int pos) {
 		DBBPTree<TripleKey, Triple> dbbptree = null;
-		final PrefixSearchMinMax<TripleKey, Triple> index = sixIndices.getIndex(this.collationOrder);
+		final DeltaStore.Snapshot snapshot = this.getSnapshot();
+		final DeltaStore deltaStore = sixIndices.getDeltaStore();
+		// the evaluation index and the delta must belong to the same snapshot (the evaluation index may have been replaced by merging the delta store in the meantime)
+		final PrefixSearchMinMax<TripleKey, Triple> index = (deltaStore==null)? sixIndices.getIndex(this.collationOrder) : deltaStore.getIndex(this.collationOrder, snapshot);
 		if(index instanceof OptimizedDBBPTreeGeneration){
 			dbbptree = ((OptimizedDBBPTreeGeneration<TripleKey, Triple>) index).getDBBPTree();
 		} else if(index instanceof DBBPTree){
 			dbbptree = (DBBPTree<TripleKey, Triple>) index;
 		}
 		if(dbbptree!=null){
-			return dbbptree.getMaximum(new TripleKey(key, this.collationOrder)).getPos(pos);
+			final Triple maximum = dbbptree.getMaximum(new TripleKey(key, this.collationOrder));
+			if(deltaStore!=null){
+				// inserted triples may be beyond the maximum of the evaluation index
+				final Triple maximumOfDelta = deltaStore.getMaximum(key, this.collationOrder, snapshot);
+				if(maximumOfDelta!=null && (maximum==null || new TripleComparator(this.collationOrder).compare(maximum, maximumOfDelta)<0)){
+					return maximumOfDelta.getPos(pos);
+				}
+			}
+			return (maximum==null)? null : maximum.getPos(pos);
 		}
 		return null;
 	}
@@ -1253,7 +1346,7 @@ public class RDF3XIndexScan extends BasicIndexScan {
 		joinPartnersTP.retainAll(tp.getVariables());
 		Map<Variable, VarBucket> intermediate = null;
 		String keyHistogram = null;
-		if (Indices.usedDatastructure == Indices.DATA_STRUCT.DBBPTREE) {
+		if (Indices.usedDatastructure == Indices.DATA_STRUCT.DBBPTREE && histograms != null) {
 			keyHistogram = getKey(tp);
 			// System.out.println(key);
 			final VarBucket[] vba = histograms.get(keyHistogram);
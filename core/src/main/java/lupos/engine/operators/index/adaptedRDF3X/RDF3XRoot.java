@@ -33,6 +33,7 @@ import lupos.engine.operators.index.BasicIndexScan;
 import lupos.engine.operators.index.Dataset;
 import lupos.engine.operators.tripleoperator.TriplePattern;
 import lupos.optimizations.physical.joinorder.costbasedoptimizer.RDF3XCostBasedOptimizer;
+import lupos.optimizations.physical.joinorder.worstcaseoptimal.LeapfrogTriejoinOptimizer;
 public class RDF3XRoot extends
 		lupos.engine.operators.index.Root {
 
@@ -92,7 +93,9 @@ public class RDF3XRoot extends
 			if (oit.getOperator() instanceof RDF3XIndexScan) {
 				final RDF3XIndexScan indexScan = (RDF3XIndexScan) oit.getOperator();
 
-				final lupos.engine.operators.index.Root root = RDF3XCostBasedOptimizer.rearrangeJoinOrder(indexScan, opt == BasicIndexScan.MERGEJOINSORT, opt==BasicIndexScan.NARYMERGEJOIN);
+				final lupos.engine.operators.index.Root root = (LeapfrogTriejoinOptimizer.isApplicable(indexScan))?
+						LeapfrogTriejoinOptimizer.rearrangeJoinOrder(indexScan)
+						: RDF3XCostBasedOptimizer.rearrangeJoinOrder(indexScan, opt == BasicIndexScan.MERGEJOINSORT, opt==BasicIndexScan.NARYMERGEJOIN);
 				c.addAll(root.getSucceedingOperators());
 			} else {
 				c.add(oit);
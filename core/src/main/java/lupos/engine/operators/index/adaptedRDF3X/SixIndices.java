@@ -46,7 +46,9 @@ import lupos.datastructures.items.literal.LazyLiteralOriginalContent;
 import lupos.datastructures.items.literal.LiteralFactory;
 import lupos.datastructures.items.literal.LiteralFactory.MapType;
 import lupos.datastructures.items.literal.URILiteral;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
 import lupos.datastructures.items.literal.codemap.StringIntegerMapJava;
+import lupos.datastructures.lsmtree.PrefixSearchFromLSMTree;
 import lupos.datastructures.paged_dbbptree.DBBPTree;
 import lupos.datastructures.paged_dbbptree.DBBPTree.Generator;
 import lupos.datastructures.paged_dbbptree.OptimizedDBBPTreeGeneration;
@@ -82,6 +84,15 @@ public class SixIndices extends Indices {
     /** Constant <code>k_=500</code> */
     protected static final int k_ = 500;
 
+    /** Constant <code>useDeltaStore=true</code>: whether or not updates after the construction of the evaluation indices are collected in a delta store (providing snapshot isolation for queries) */
+    public static boolean useDeltaStore = true;
+
+    // the delta store for the updates after the construction of the evaluation indices
+    protected volatile DeltaStore deltaStore = null;
+
+    // are the evaluation indices constructed (such that further updates are collected in the delta store)?
+    protected volatile boolean sealed = false;
+
     /**
      * <p>Constructor for SixIndices.</p>
      */
@@ -116,6 +127,9 @@ public class SixIndices extends Indices {
                 dbbptree.setName(order.toString());
 
                 return new OptimizedDBBPTreeGeneration<TripleKey, Triple>(new DBMergeSortedMap<TripleKey, Triple>(new SortConfiguration(), (Class<lupos.datastructures.dbmergesortedds.MapEntry<TripleKey, Triple>>) (new lupos.datastructures.dbmergesortedds.MapEntry<TripleKey, Triple>(null, null)).getClass()), dbbptree);
+            } else if (Indices.usedDatastructure == DATA_STRUCT.LSMTREE) {
+            	// insertions are collected in the memory level of the LSM tree, such that no bulk generation is necessary
+            	return new PrefixSearchFromLSMTree(order);
             } else {
 				return new PrefixSearchFromSortedMap<TripleKey, Triple>(new TreeMap<TripleKey, Triple>(new TripleKeyComparator(new TripleComparator(order))));
 			}
@@ -258,10 +272,72 @@ public class SixIndices extends Indices {
 		}
     }
 
+    /**
+     * <p>Getter for the field <code>deltaStore</code>.</p>
+     *
+     * @return the delta store with the updates not yet merged into the evaluation indices (or null if there is no delta store)
+     */
+    public DeltaStore getDeltaStore() {
+    	return this.deltaStore;
+    }
+
+    /**
+     * replaces the evaluation indices (and statistics) with new versions (after merging the delta store)
+     *
+     * @param indices the new evaluation indices in the order of CollationOrder.values()
+     * @param statistics the new statistics in the order of CollationOrder.values() (or null for not replacing the statistics)
+     */
+    protected void setIndices(final PrefixSearchMinMax<TripleKey, Triple>[] indices, final lupos.datastructures.paged_dbbptree.LazyLiteralTripleKeyDBBPTreeStatistics[] statistics) {
+    	this.SPO = indices[CollationOrder.SPO.ordinal()];
+    	this.SOP = indices[CollationOrder.SOP.ordinal()];
+    	this.PSO = indices[CollationOrder.PSO.ordinal()];
+    	this.POS = indices[CollationOrder.POS.ordinal()];
+    	this.OSP = indices[CollationOrder.OSP.ordinal()];
+    	this.OPS = indices[CollationOrder.OPS.ordinal()];
+    	if(statistics!=null){
+    		this.statisticsIndicesForFastHistogramComputation = statistics;
+    	}
+    }
+
+    /**
+     * @return true if updates are collected in the delta store
+     */
+    private boolean useDeltaStore() {
+    	// LSM trees already collect updates in their memory level without disturbing the disk runs
+    	return this.sealed && SixIndices.useDeltaStore && Indices.usedDatastructure != DATA_STRUCT.LSMTREE;
+    }
+
+    private DeltaStore getOrCreateDeltaStore() {
+    	if(this.deltaStore==null){
+    		synchronized(this){
+    			if(this.deltaStore==null){
+    				this.deltaStore = new DeltaStore(this);
+    			}
+    		}
+    	}
+    	return this.deltaStore;
+    }
+
+    private void makeLazyLiterals(final Triple t) {
+    	if(LiteralFactory.getMapType().equals(MapType.LAZYLITERAL)
+    			|| LiteralFactory.getMapType().equals(MapType.LAZYLITERALWITHOUTINITIALPREFIXCODEMAP)){
+    		for(int i=0; i<3; i++){
+    			if(!(t.getPos(i) instanceof LazyLiteral)){
+    				t.setPos(i, t.getPos(i).createThisLiteralNew());
+    			}
+    		}
+    	}
+    }
+
     /** {@inheritDoc} */
     @Override
     public void add(final Triple t) {
-        this.addTriple(t);
+    	if(this.useDeltaStore()){
+    		this.makeLazyLiterals(t);
+    		this.getOrCreateDeltaStore().add(t);
+    	} else {
+    		this.addTriple(t);
+    	}
     }
 
     protected Adder[] adders = null;
@@ -272,14 +348,7 @@ public class SixIndices extends Indices {
     protected final static boolean parallel = true;
 
     private void addTriple(final Triple t) {
-    	if(LiteralFactory.getMapType().equals(MapType.LAZYLITERAL)
-    			|| LiteralFactory.getMapType().equals(MapType.LAZYLITERALWITHOUTINITIALPREFIXCODEMAP)){
-    		for(int i=0; i<3; i++){
-    			if(!(t.getPos(i) instanceof LazyLiteral)){
-    				t.setPos(i, t.getPos(i).createThisLiteralNew());
-    			}
-    		}
-    	}
+    	this.makeLazyLiterals(t);
         if (parallel) {
             if (this.boundedBuffersForAdders == null) {
             	this.boundedBuffersForAdders = new BoundedBuffer[6];
@@ -346,15 +415,23 @@ public class SixIndices extends Indices {
     @Override
     public boolean contains(final Triple t) {
     	this.waitForAdderThreads();
+    	final DeltaStore delta = this.deltaStore;
+    	if(delta!=null){
+    		return delta.contains(t);
+    	}
         return (this.SPO.get(new TripleKey(t, new TripleComparator(CollationOrder.SPO))) != null);
     }
 
     /**
      * <p>size.</p>
      *
-     * @return a int.
+     * @return the number of triples, which is only an estimation for evaluation indices in LSM trees (see {@link PrefixSearchFromLSMTree#size()})
      */
     public int size(){
+    	final DeltaStore delta = this.deltaStore;
+    	if(delta!=null){
+    		return delta.size();
+    	}
     	return this.SPO.size();
     }
 
@@ -370,11 +447,19 @@ public class SixIndices extends Indices {
         this.POS = this.getDatastructure(CollationOrder.POS);
         this.OSP = this.getDatastructure(CollationOrder.OSP);
         this.OPS = this.getDatastructure(CollationOrder.OPS);
+        this.deltaStore = null;
+        this.sealed = false;
     }
 
     /** {@inheritDoc} */
     @Override
     public void remove(final Triple t) {
+    	if(this.useDeltaStore()){
+    		this.makeLazyLiterals(t);
+    		this.getOrCreateDeltaStore().remove(t);
+    		return;
+    	}
+    	this.waitForAdderThreads();
     	this.SPO.remove(new TripleKey(t, new TripleComparator(CollationOrder.SPO)));
     	this.SOP.remove(new TripleKey(t, new TripleComparator(CollationOrder.SOP)));
     	this.PSO.remove(new TripleKey(t, new TripleComparator(CollationOrder.PSO)));
@@ -390,12 +475,21 @@ public class SixIndices extends Indices {
      * @return a {@link java.util.Iterator} object.
      */
     public Iterator<Triple> evaluateTriplePattern(final TriplePattern tp) {
-        return RDF3XIndexScan.getIterator(this, RDF3XIndexScan.getKey(tp, null), RDF3XIndexScan.getCollationOrder(tp, null), null, null);
+        return RDF3XIndexScan.getIterator(this, RDF3XIndexScan.getKey(tp, null), RDF3XIndexScan.getCollationOrder(tp, null), null, null, null);
     }
 
     /** {@inheritDoc} */
     @Override
     public void constructCompletely() {
+    	this.constructEvaluationIndicesCompletely();
+    	if(this.deltaStore!=null){
+    		// make the updates visible for the next queries
+    		this.deltaStore.commitAndMergeIfNecessary();
+    	}
+    	this.sealed = true;
+    }
+
+    private void constructEvaluationIndicesCompletely() {
         this.waitForAdderThreads();
         if (this.SPO instanceof OptimizedDBBPTreeGeneration) {
             if (((OptimizedDBBPTreeGeneration) this.SPO).generatedCompletely() && ((OptimizedDBBPTreeGeneration) this.SOP).generatedCompletely() && ((OptimizedDBBPTreeGeneration) this.PSO).generatedCompletely() && ((OptimizedDBBPTreeGeneration) this.POS).generatedCompletely() && ((OptimizedDBBPTreeGeneration) this.OSP).generatedCompletely() && ((OptimizedDBBPTreeGeneration) this.OPS).generatedCompletely()) {
@@ -539,6 +633,17 @@ public class SixIndices extends Indices {
         java.util.Map.Entry<String, Integer> current = iterator.next();
         for (final Triple t : dsst_current) {
             try {
+                // inlined literals are not stored in the dictionary
+                final int inlinedCode = OrderPreservingCodes.encode(t.getPos(pos).toString());
+                if (inlinedCode != 0) {
+                    if (t.getPos(pos).originalStringDiffers()) {
+                        t.setPos(pos, new LazyLiteralOriginalContent(inlinedCode, t.getPos(pos).originalString()));
+                    } else {
+                        t.setPos(pos, new LazyLiteral(inlinedCode));
+                    }
+                    next.consume(t);
+                    continue;
+                }
                 if (iterator instanceof SIPParallelIterator) {
                     while (t.getPos(pos).toString().compareTo(current.getKey()) != 0) {
                         current = ((SIPParallelIterator<java.util.Map.Entry<String, Integer>, String>) iterator).next(t.getPos(pos).toString());
@@ -621,9 +726,30 @@ public class SixIndices extends Indices {
 		}
     }
 
+    /**
+     * merges the updates of the delta store into the evaluation indices (e.g. before the evaluation indices are written out)
+     */
+    public void mergeDeltaStore() {
+    	final DeltaStore delta = this.deltaStore;
+    	if(delta!=null){
+    		delta.mergeCompletely();
+    	}
+    }
+
     /** {@inheritDoc} */
     @Override
     public void readIndexInfo(final InputStream in) throws IOException, ClassNotFoundException, URISyntaxException {
+    	if (SixIndices.usedDatastructure == DATA_STRUCT.LSMTREE) {
+    		this.SPO = PrefixSearchFromLSMTree.readLuposObject(in);
+    		this.SOP = PrefixSearchFromLSMTree.readLuposObject(in);
+    		this.PSO = PrefixSearchFromLSMTree.readLuposObject(in);
+    		this.POS = PrefixSearchFromLSMTree.readLuposObject(in);
+    		this.OSP = PrefixSearchFromLSMTree.readLuposObject(in);
+    		this.OPS = PrefixSearchFromLSMTree.readLuposObject(in);
+    		this.deltaStore = null;
+    		this.sealed = true;
+    		return;
+    	}
         this.SPO = DBBPTree.readLuposObject(in);
         ((DBBPTree) this.SPO).setName("SPO");
         this.SOP = DBBPTree.readLuposObject(in);
@@ -642,11 +768,14 @@ public class SixIndices extends Indices {
                 this.statisticsIndicesForFastHistogramComputation[i] = lupos.datastructures.paged_dbbptree.LazyLiteralTripleKeyDBBPTreeStatistics.readLuposObject(in);
             }
         }
+        this.deltaStore = null;
+        this.sealed = true;
     }
 
     /** {@inheritDoc} */
     @Override
     public void writeIndexInfo(final OutputStream out) throws IOException {
+    	this.mergeDeltaStore();
         if (SixIndices.usedDatastructure == DATA_STRUCT.DBBPTREE) {
             if (this.SPO instanceof OptimizedDBBPTreeGeneration) {
                 (((OptimizedDBBPTreeGeneration) this.SPO).getDBBPTree()).writeLuposObject(out);
@@ -668,6 +797,14 @@ public class SixIndices extends Indices {
                     this.statisticsIndicesForFastHistogramComputation[i].writeLuposObject(out);
                 }
             }
+        } else if (SixIndices.usedDatastructure == DATA_STRUCT.LSMTREE) {
+        	this.waitForAdderThreads();
+        	((PrefixSearchFromLSMTree) this.SPO).writeLuposObject(out);
+        	((PrefixSearchFromLSMTree) this.SOP).writeLuposObject(out);
+        	((PrefixSearchFromLSMTree) this.PSO).writeLuposObject(out);
+        	((PrefixSearchFromLSMTree) this.POS).writeLuposObject(out);
+        	((PrefixSearchFromLSMTree) this.OSP).writeLuposObject(out);
+        	((PrefixSearchFromLSMTree) this.OPS).writeLuposObject(out);
         } else {
 			System.err.println("Cannot write the index info: It is only a main memory index!");
 		}
@@ -676,6 +813,7 @@ public class SixIndices extends Indices {
     /** {@inheritDoc} */
     @Override
     public void writeOutAllModifiedPages() throws IOException {
+    	this.mergeDeltaStore();
         if (SixIndices.usedDatastructure == DATA_STRUCT.DBBPTREE) {
         	if (this.SPO instanceof OptimizedDBBPTreeGeneration) {
                 (((OptimizedDBBPTreeGeneration) this.SPO).getDBBPTree()).writeAllModifiedPages();
@@ -26,6 +26,7 @@ package lupos.engine.operators.messages;
 import java.util.Collection;
 
 import lupos.engine.operators.BasicOperator;
+import lupos.engine.operators.index.adaptedRDF3X.DeltaStore;
 import lupos.misc.debug.DebugStep;
 public class StartOfEvaluationMessage extends Message {
 
@@ -34,6 +35,34 @@ public class StartOfEvaluationMessage extends Message {
 	 */
 	private static final long serialVersionUID = 148925743153694571L;
 
+	// the snapshot of the data seen by the query (or null for always reading the last committed version)
+	private final transient DeltaStore.Snapshot snapshot;
+
+	/**
+	 * <p>Constructor for StartOfEvaluationMessage.</p>
+	 */
+	public StartOfEvaluationMessage() {
+		this(null);
+	}
+
+	/**
+	 * <p>Constructor for StartOfEvaluationMessage.</p>
+	 *
+	 * @param snapshot the snapshot of the data seen by the query (or null for always reading the last committed version)
+	 */
+	public StartOfEvaluationMessage(final DeltaStore.Snapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * <p>Getter for the field <code>snapshot</code>.</p>
+	 *
+	 * @return the snapshot of the data seen by the query (or null for always reading the last committed version)
+	 */
+	public DeltaStore.Snapshot getSnapshot() {
+		return this.snapshot;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public Message postProcess(final BasicOperator op) {
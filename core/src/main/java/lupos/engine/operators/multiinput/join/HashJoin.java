@@ -23,13 +23,23 @@
  */
 package lupos.engine.operators.multiinput.join;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 
 import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsArrayCodes;
+import lupos.datastructures.items.Variable;
 import lupos.datastructures.items.literal.Literal;
+import lupos.datastructures.parallel.BoundedBuffer;
+import lupos.datastructures.queryresult.ParallelIterator;
 import lupos.datastructures.queryresult.ParallelIteratorMultipleQueryResults;
 import lupos.datastructures.queryresult.QueryResult;
 import lupos.datastructures.queryresult.QueryResultDebug;
@@ -41,6 +51,27 @@ import lupos.engine.operators.multiinput.optional.OptionalResult;
 import lupos.misc.debug.DebugStep;
 public class HashJoin extends Join {
 
+	/**
+	 * whether or not the join is computed in main memory by several threads
+	 * (if there is enough free memory, otherwise the partitions are built as usual, possibly on disk)
+	 */
+	public static boolean parallel = false;
+
+	/** the number of partitions into which both operands are split when computing the join in parallel */
+	public static int numberOfParallelPartitions = 4 * Runtime.getRuntime().availableProcessors();
+
+	/** the maximum size of the smaller operand for computing the join in parallel in main memory */
+	public static int maxSizeOfSmallerOperandForParallelJoin = 2000000;
+
+	/** the minimum ratio of free memory (relative to the maximum memory) for computing the join in parallel in main memory */
+	public static double minFreeMemoryRatioForParallelJoin = 0.3;
+
+	/** the number of join results, which are put at once into the buffer for the succeeding operators */
+	protected static final int CHUNKSIZE = 256;
+
+	/** the pool of threads shared among all hash joins computed in parallel */
+	private static ForkJoinPool pool = null;
+
 	protected ParallelIteratorMultipleQueryResults[] operands = {	new ParallelIteratorMultipleQueryResults(),
 																	new ParallelIteratorMultipleQueryResults()};
 
@@ -87,9 +118,23 @@ public class HashJoin extends Join {
 	@Override
 	public Message preProcessMessage(final EndOfEvaluationMessage msg) {
 		if (!this.operands[0].isEmpty() && !this.operands[1].isEmpty()) {
-			final QueryResult qr = this.join(this.operands[0].getQueryResult(), this.operands[1].getQueryResult());
+			final QueryResult left = this.operands[0].getQueryResult();
+			final QueryResult right = this.operands[1].getQueryResult();
+			final QueryResult qr;
+			if (this.isParallelJoinPossible(left, right)) {
+				// the result is consumed by the succeeding operators while it is computed,
+				// the real cardinality is determined after the result has been consumed
+				qr = this.parallelJoin(left, right);
+				if (qr != null && this.succeedingOperators.size() > 1) {
+					qr.materialize();
+				}
+			} else {
+				qr = this.join(left, right);
+				if (qr != null) {
+					this.realCardinality = qr.size();
+				}
+			}
 			if (qr != null) {
-				this.realCardinality = qr.size();
 				for (final OperatorIDTuple opId : this.succeedingOperators) {
 					opId.processAll(qr);
 				}
@@ -110,6 +155,13 @@ public class HashJoin extends Join {
 	 * @return a {@link lupos.datastructures.queryresult.QueryResult} object.
 	 */
 	public QueryResult join(final QueryResult left, final QueryResult right) {
+		if (this.isParallelJoinPossible(left, right)) {
+			final QueryResult result = this.parallelJoin(left, right);
+			if (result != null) {
+				result.materialize();
+			}
+			return result;
+		}
 		final QueryResult smaller;
 		final QueryResult larger;
 		if (left.size() < right.size()) {
@@ -140,6 +192,381 @@ public class HashJoin extends Join {
 		}
 	}
 
+	/**
+	 * <p>Getter for the field <code>pool</code>.</p>
+	 *
+	 * @return the pool of threads used for computing hash joins in parallel
+	 */
+	public static synchronized ForkJoinPool getPool() {
+		if (HashJoin.pool == null) {
+			HashJoin.pool = new ForkJoinPool();
+		}
+		return HashJoin.pool;
+	}
+
+	/**
+	 * <p>Setter for the field <code>pool</code>.</p>
+	 *
+	 * @param pool the pool of threads to be used for computing hash joins in parallel
+	 */
+	public static synchronized void setPool(final ForkJoinPool pool) {
+		HashJoin.pool = pool;
+	}
+
+	/**
+	 * Checks whether or not the join of the given operands can be computed in
+	 * parallel in main memory. This is the case if the parallel mode is
+	 * switched on, there are join variables, the smaller operand is not too
+	 * large and there is enough free memory.
+	 *
+	 * @param left the left operand
+	 * @param right the right operand
+	 * @return <code>true</code> if the join can be computed in parallel
+	 */
+	protected boolean isParallelJoinPossible(final QueryResult left, final QueryResult right) {
+		if (!HashJoin.parallel || this.intersectionVariables == null || this.intersectionVariables.isEmpty()) {
+			return false;
+		}
+		if (Math.min(left.size(), right.size()) > HashJoin.maxSizeOfSmallerOperandForParallelJoin) {
+			return false;
+		}
+		final Runtime runtime = Runtime.getRuntime();
+		final long freeMemory = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		return freeMemory >= runtime.maxMemory() * HashJoin.minFreeMemoryRatioForParallelJoin;
+	}
+
+	/**
+	 * Computes the join in parallel in main memory:
+	 * Both operands are partitioned according to the hash values of their join
+	 * variables by several tasks, and for each partition a hash table of the
+	 * smaller operand is built and probed with the larger operand in its own
+	 * task. The join results are delivered to the returned query result while
+	 * they are computed.
+	 *
+	 * @param left the left operand
+	 * @param right the right operand
+	 * @return the result of the join, or null if the result is empty
+	 */
+	protected QueryResult parallelJoin(final QueryResult left, final QueryResult right) {
+		final QueryResult smaller;
+		final QueryResult larger;
+		if (left.size() < right.size()) {
+			smaller = left;
+			larger = right;
+		} else {
+			smaller = right;
+			larger = left;
+		}
+		final int numberOfPartitions = Math.max(1, HashJoin.numberOfParallelPartitions);
+		final BoundedBuffer<List<Bindings>> buffer = new BoundedBuffer<List<Bindings>>();
+		// the error of a task (if any), which is thrown again when consuming the join result
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		HashJoin.getPool().execute(new RecursiveAction() {
+			private static final long serialVersionUID = 7000316283659209406L;
+
+			@Override
+			protected void compute() {
+				try {
+					// I) partitioning phase
+					final List<Bindings>[][] partitionsOfSmaller = HashJoin.this.partitionInParallel(smaller, numberOfPartitions);
+					final List<Bindings>[][] partitionsOfLarger = HashJoin.this.partitionInParallel(larger, numberOfPartitions);
+					// II) building and probing phase for each partition
+					final List<RecursiveAction> tasks = new ArrayList<RecursiveAction>(numberOfPartitions + 2);
+					for (int i = 0; i < numberOfPartitions; i++) {
+						tasks.add(HashJoin.this.createBuildAndProbeTask(partitionsOfSmaller, partitionsOfLarger, i, buffer));
+					}
+					// the solutions with unbound join variables (stored in the last partition) must be joined with all solutions of the other operand
+					tasks.add(HashJoin.this.createNestedLoopTask(partitionsOfSmaller, numberOfPartitions, numberOfPartitions, partitionsOfLarger, 0, numberOfPartitions, buffer));
+					tasks.add(HashJoin.this.createNestedLoopTask(partitionsOfSmaller, 0, numberOfPartitions - 1, partitionsOfLarger, numberOfPartitions, numberOfPartitions, buffer));
+					ForkJoinTask.invokeAll(tasks);
+				} catch(final Throwable e){
+					failure.set(e);
+				} finally {
+					buffer.endOfData();
+				}
+			}
+		});
+		final ParallelIterator<Bindings> it = new ParallelIterator<Bindings>() {
+
+			private Iterator<Bindings> currentChunk = null;
+			private int cardinality = 0;
+
+			@Override
+			public boolean hasNext() {
+				while (this.currentChunk == null || !this.currentChunk.hasNext()) {
+					try {
+						final List<Bindings> chunk = buffer.get();
+						if (chunk == null) {
+							HashJoin.rethrow(failure.get());
+							HashJoin.this.realCardinality = this.cardinality;
+							return false;
+						}
+						this.currentChunk = chunk.iterator();
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						// the tasks computing the join need not to deliver further results
+						buffer.stopIt();
+						throw new RuntimeException("Interrupted while waiting for the results of the parallel hash join!", e);
+					}
+				}
+				return true;
+			}
+
+			@Override
+			public Bindings next() {
+				if (this.hasNext()) {
+					this.cardinality++;
+					return this.currentChunk.next();
+				}
+				return null;
+			}
+
+			@Override
+			public void close() {
+				buffer.stopIt();
+			}
+		};
+		if (!it.hasNext()) {
+			this.realCardinality = 0;
+			return null;
+		}
+		return QueryResult.createInstance(it);
+	}
+
+	/**
+	 * Partitions the solutions of an operand according to the hash values of
+	 * their join variables. The operand is split into segments, which are
+	 * partitioned in parallel.
+	 *
+	 * @param operand the operand to be partitioned
+	 * @param numberOfPartitions the number of partitions
+	 * @return the partitions, where result[segment][partition] contains the
+	 *         solutions of a segment in a partition, and
+	 *         result[segment][numberOfPartitions] contains the solutions of
+	 *         the segment with unbound join variables
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<Bindings>[][] partitionInParallel(final QueryResult operand, final int numberOfPartitions) {
+		final Bindings[] solutions = new Bindings[operand.size()];
+		int index = 0;
+		for (final Bindings b : operand) {
+			solutions[index++] = b;
+		}
+		final int numberOfSegments = Math.max(1, Math.min(HashJoin.getPool().getParallelism(), index / CHUNKSIZE));
+		final int segmentSize = (index + numberOfSegments - 1) / numberOfSegments;
+		final List<Bindings>[][] result = new List[numberOfSegments][];
+		final List<RecursiveAction> tasks = new ArrayList<RecursiveAction>(numberOfSegments);
+		for (int i = 0; i < numberOfSegments; i++) {
+			final int segment = i;
+			final int start = i * segmentSize;
+			final int end = Math.min(index, start + segmentSize);
+			tasks.add(new RecursiveAction() {
+				private static final long serialVersionUID = -6447326453519758432L;
+
+				@Override
+				protected void compute() {
+					final List<Bindings>[] partitions = new List[numberOfPartitions + 1];
+					for (int j = 0; j <= numberOfPartitions; j++) {
+						partitions[j] = new ArrayList<Bindings>();
+					}
+					for (int j = start; j < end; j++) {
+						final int hash = HashJoin.this.hashOfJoinVariables(solutions[j]);
+						partitions[(hash < 0) ? numberOfPartitions : hash % numberOfPartitions].add(solutions[j]);
+					}
+					result[segment] = partitions;
+				}
+			});
+		}
+		ForkJoinTask.invokeAll(tasks);
+		return result;
+	}
+
+	/**
+	 * Determines the hash value of the join variables of a solution.
+	 *
+	 * @param b the solution
+	 * @return a non-negative hash value or -1 if a join variable is unbound
+	 */
+	protected int hashOfJoinVariables(final Bindings b) {
+		int hash = 0;
+		for (final Variable v : this.intersectionVariables) {
+			final int hashOfLiteral;
+			final int code = (b instanceof BindingsArrayCodes) ? ((BindingsArrayCodes) b).getCode(v) : 0;
+			if (code != 0) {
+				// the hash code of a LazyLiteral is its code, avoid to create the LazyLiteral
+				hashOfLiteral = code;
+			} else {
+				final Literal literal = b.get(v);
+				if (literal == null) {
+					return -1;
+				}
+				hashOfLiteral = literal.hashCode();
+			}
+			hash = 31 * hash + hashOfLiteral;
+		}
+		return hash & Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Creates a task, which builds a hash table for a partition of the
+	 * smaller operand and probes it with the same partition of the larger
+	 * operand.
+	 *
+	 * @param partitionsOfSmaller the partitions of the smaller operand
+	 * @param partitionsOfLarger the partitions of the larger operand
+	 * @param partition the partition to be joined
+	 * @param buffer the buffer for the join results
+	 * @return the task
+	 */
+	protected RecursiveAction createBuildAndProbeTask(final List<Bindings>[][] partitionsOfSmaller, final List<Bindings>[][] partitionsOfLarger, final int partition, final BoundedBuffer<List<Bindings>> buffer) {
+		return new RecursiveAction() {
+			private static final long serialVersionUID = -4311404788744565442L;
+
+			@Override
+			protected void compute() {
+				final HashMap<Integer, List<Bindings>> hashTable = new HashMap<Integer, List<Bindings>>();
+				for (final List<Bindings>[] segment : partitionsOfSmaller) {
+					for (final Bindings b : segment[partition]) {
+						final Integer hash = HashJoin.this.hashOfJoinVariables(b);
+						List<Bindings> bucket = hashTable.get(hash);
+						if (bucket == null) {
+							bucket = new LinkedList<Bindings>();
+							hashTable.put(hash, bucket);
+						}
+						bucket.add(b);
+					}
+				}
+				if (hashTable.isEmpty()) {
+					return;
+				}
+				List<Bindings> chunk = new ArrayList<Bindings>(CHUNKSIZE);
+				for (final List<Bindings>[] segment : partitionsOfLarger) {
+					for (final Bindings b1 : segment[partition]) {
+						final List<Bindings> bucket = hashTable.get(HashJoin.this.hashOfJoinVariables(b1));
+						if (bucket != null) {
+							for (final Bindings b2 : bucket) {
+								// the literals are finally compared when joining (different literals may have the same hash value)
+								final Bindings joined = Join.joinBindingsAndReturnBindings(b1.clone(), b2);
+								if (joined != null) {
+									chunk.add(joined);
+									if (chunk.size() >= CHUNKSIZE) {
+										HashJoin.putIntoBuffer(buffer, chunk);
+										chunk = new ArrayList<Bindings>(CHUNKSIZE);
+									}
+								}
+							}
+						}
+					}
+				}
+				HashJoin.putIntoBuffer(buffer, chunk);
+			}
+		};
+	}
+
+	/**
+	 * Creates a task, which joins the solutions of some partitions of the
+	 * smaller operand with the solutions of some partitions of the larger
+	 * operand in a nested loop.
+	 * This is used for the solutions with unbound join variables.
+	 *
+	 * @param partitionsOfSmaller the partitions of the smaller operand
+	 * @param fromSmaller the first partition of the smaller operand to be joined
+	 * @param toSmaller the last partition (inclusive) of the smaller operand to be joined
+	 * @param partitionsOfLarger the partitions of the larger operand
+	 * @param fromLarger the first partition of the larger operand to be joined
+	 * @param toLarger the last partition (inclusive) of the larger operand to be joined
+	 * @param buffer the buffer for the join results
+	 * @return the task
+	 */
+	protected RecursiveAction createNestedLoopTask(final List<Bindings>[][] partitionsOfSmaller, final int fromSmaller, final int toSmaller, final List<Bindings>[][] partitionsOfLarger, final int fromLarger, final int toLarger, final BoundedBuffer<List<Bindings>> buffer) {
+		return new RecursiveAction() {
+			private static final long serialVersionUID = 2399010466003312452L;
+
+			@Override
+			protected void compute() {
+				List<Bindings> chunk = new ArrayList<Bindings>(CHUNKSIZE);
+				for (final List<Bindings>[] segmentOfLarger : partitionsOfLarger) {
+					for (int i = fromLarger; i <= toLarger; i++) {
+						for (final Bindings b1 : segmentOfLarger[i]) {
+							for (final List<Bindings>[] segmentOfSmaller : partitionsOfSmaller) {
+								for (int j = fromSmaller; j <= toSmaller; j++) {
+									for (final Bindings b2 : segmentOfSmaller[j]) {
+										final Bindings joined = Join.joinBindingsAndReturnBindings(b1.clone(), b2);
+										if (joined != null) {
+											chunk.add(joined);
+											if (chunk.size() >= CHUNKSIZE) {
+												HashJoin.putIntoBuffer(buffer, chunk);
+												chunk = new ArrayList<Bindings>(CHUNKSIZE);
+											}
+										}
+									}
+								}
+							}
+						}
+					}
+				}
+				HashJoin.putIntoBuffer(buffer, chunk);
+			}
+		};
+	}
+
+	/**
+	 * Puts a chunk of join results into the buffer.
+	 * If the buffer is full, the pool is informed about the blocked task (such that it can activate another thread meanwhile).
+	 *
+	 * @param buffer the buffer for the join results
+	 * @param chunk the join results to be put into the buffer
+	 */
+	private static void putIntoBuffer(final BoundedBuffer<List<Bindings>> buffer, final List<Bindings> chunk) {
+		if (!chunk.isEmpty()) {
+			try {
+				ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+
+					private boolean done = false;
+
+					@Override
+					public boolean block() throws InterruptedException {
+						if (!this.done) {
+							buffer.put(chunk);
+							this.done = true;
+						}
+						return true;
+					}
+
+					@Override
+					public boolean isReleasable() {
+						if (!this.done) {
+							this.done = buffer.offer(chunk);
+						}
+						return this.done;
+					}
+				});
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				// the task fails and the consumer of the join result gets the error
+				throw new RuntimeException("Interrupted while delivering the results of the parallel hash join!", e);
+			}
+		}
+	}
+
+	/**
+	 * Throws again the error of a task computing the join in parallel, such that the join result is not silently truncated.
+	 *
+	 * @param failure the error of the task or null if all tasks succeeded
+	 */
+	private static void rethrow(final Throwable failure) {
+		if (failure == null) {
+			return;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		throw new RuntimeException(failure);
+	}
+
 	/**
 	 * <p>buildPartitionsOfSmallerBag.</p>
 	 *
@@ -26,6 +26,7 @@ package lupos.engine.operators.multiinput.join;
 import java.util.Iterator;
 
 import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsArrayCodes;
 import lupos.datastructures.items.Variable;
 import lupos.datastructures.items.literal.Literal;
 import lupos.datastructures.queryresult.QueryResult;
@@ -154,6 +155,14 @@ public class Join extends MultiInputOperator {
 	public static boolean joinBindings(final QueryResult result,
 			final Bindings bindings1, final Bindings bindings2) {
 
+		if (Join.isJoinOfCodesPossible(bindings1, bindings2)) {
+			if (!((BindingsArrayCodes) bindings1).joinCodes((BindingsArrayCodes) bindings2)) {
+				return false;
+			}
+			result.add(bindings1);
+			return true;
+		}
+
 		// only the keys of the second bindings object have to be
 		// checked since the the first bindings object is updated
 		for (final Variable b2key : bindings2.getVariableSet()) {
@@ -188,6 +197,18 @@ public class Join extends MultiInputOperator {
 		return true;
 	}
 
+	/**
+	 * Checks whether or not two bindings objects can be joined by just comparing the codes of their LazyLiteral objects
+	 *
+	 * @param bindings1 the first bindings object
+	 * @param bindings2 the second bindings object
+	 * @return <code>true</code> if both bindings objects store codes at the same positions
+	 */
+	protected static boolean isJoinOfCodesPossible(final Bindings bindings1, final Bindings bindings2) {
+		return bindings1 instanceof BindingsArrayCodes && bindings2 instanceof BindingsArrayCodes
+				&& ((BindingsArrayCodes) bindings1).hasSamePositions((BindingsArrayCodes) bindings2);
+	}
+
 	/**
 	 * <p>joinBindingsAndReturnBindings.</p>
 	 *
@@ -197,6 +218,10 @@ public class Join extends MultiInputOperator {
 	 */
 	public static Bindings joinBindingsAndReturnBindings(final Bindings bindings1, final Bindings bindings2) {
 
+		if (Join.isJoinOfCodesPossible(bindings1, bindings2)) {
+			return ((BindingsArrayCodes) bindings1).joinCodes((BindingsArrayCodes) bindings2) ? bindings1 : null;
+		}
+
 		// only the keys of the second bindings object have to be
 		// checked since the the first bindings object is updated
 		for (final Variable b2key : bindings2.getVariableSet()) {
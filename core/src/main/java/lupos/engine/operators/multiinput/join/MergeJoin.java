@@ -23,15 +23,19 @@
  */
 package lupos.engine.operators.multiinput.join;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
 
 import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsBlock;
 import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.bindings.BindingsMap;
 import lupos.datastructures.dbmergesortedds.DBMergeSortedBag;
 import lupos.datastructures.items.BindingsComparator;
 import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LazyLiteral;
 import lupos.datastructures.queryresult.ParallelIterator;
 import lupos.datastructures.queryresult.QueryResult;
 import lupos.datastructures.queryresult.QueryResultDebug;
@@ -478,24 +482,8 @@ public class MergeJoin extends Join {
 					return this.currentBinding.next();
 				}
 				if (this.processFurther) {
-					if (ssb1it instanceof SIPParallelIterator) {
-						while (comp.compare(this.b1, k) < 0) {
-							this.b1 = ((SIPParallelIterator<Bindings, Bindings>) ssb1it).next(k);
-						}
-					} else {
-						while (comp.compare(this.b1, k) < 0) {
-							this.b1 = ssb1it.next();
-						}
-					}
-					if (ssb2it instanceof SIPParallelIterator) {
-						while (comp.compare(this.b2, k) < 0) {
-							this.b2 = ((SIPParallelIterator<Bindings, Bindings>) ssb1it).next(k);
-						}
-					} else {
-						while (comp.compare(this.b2, k) < 0) {
-							this.b2 = ssb1it.next();
-						}
-					}
+					this.b1 = MergeJoin.skipTo(ssb1it, this.b1, k, comp);
+					this.b2 = MergeJoin.skipTo(ssb2it, this.b2, k, comp);
 					if (this.b1 == null || this.b2 == null) {
 						this.processFurther = false;
 						return null;
@@ -510,6 +498,367 @@ public class MergeJoin extends Join {
 		};
 	}
 
+	/**
+	 * Skips the solutions of an operand, which are smaller than the given key.
+	 * If the operand supports sideways information passing (like the index scans of the RDF3X query evaluator),
+	 * the key is passed to the operand, such that it can skip whole ranges of solutions.
+	 *
+	 * @param it the iterator over the sorted solutions of the operand
+	 * @param current the current solution of the operand
+	 * @param k the key to skip to
+	 * @param comp the comparator according to which the solutions are sorted
+	 * @return the first solution greater than or equal to k, or null if there is no such solution
+	 */
+	@SuppressWarnings("unchecked")
+	public static Bindings skipTo(final Iterator<Bindings> it, final Bindings current, final Bindings k, final Comparator<Bindings> comp) {
+		Bindings result = current;
+		while (result != null && comp.compare(result, k) < 0) {
+			if (!it.hasNext()) {
+				return null;
+			}
+			if (it instanceof SIPParallelIterator) {
+				result = ((SIPParallelIterator<Bindings, Bindings>) it).next(k);
+			} else {
+				result = it.next();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the merge join of two inputs, which are delivered in blocks and
+	 * are sorted according to the codes of the join variables (in the order of
+	 * the join variables). The codes of the join variables are directly compared,
+	 * such that no Bindings or Literal objects are created.
+	 *
+	 * @param leftBlocks the blocks of the left operand
+	 * @param leftVariables the variables of the blocks of the left operand
+	 * @param rightBlocks the blocks of the right operand
+	 * @param rightVariables the variables of the blocks of the right operand
+	 * @param joinVariables the join variables according to which both operands are sorted
+	 * @return the blocks of the join result, the variables of which are those of the left operand followed by the other ones of the right operand
+	 */
+	public static ParallelIterator<BindingsBlock> mergeJoinBlockIterator(final Iterator<BindingsBlock> leftBlocks, final Variable[] leftVariables, final Iterator<BindingsBlock> rightBlocks, final Variable[] rightVariables, final Collection<Variable> joinVariables) {
+		final Variable[] resultVariables = MergeJoin.getResultVariablesOfBlockJoin(leftVariables, rightVariables);
+		final Variable[] joinVariablesArray = joinVariables.toArray(new Variable[joinVariables.size()]);
+		final int[] leftJoinColumns = new int[joinVariables.size()];
+		final int[] rightJoinColumns = new int[joinVariables.size()];
+		int i = 0;
+		for (final Variable var : joinVariables) {
+			leftJoinColumns[i] = BindingsBlock.getColumnIndex(leftVariables, var);
+			rightJoinColumns[i] = BindingsBlock.getColumnIndex(rightVariables, var);
+			i++;
+		}
+		// for each column of the right operand: column in the result or -1 if the variable is also bound in the left operand
+		final int[] rightColumnsInResult = new int[rightVariables.length];
+		// for each column of the right operand: column in the left operand or -1 if the variable is not bound in the left operand
+		final int[] rightColumnsInLeft = new int[rightVariables.length];
+		for (int j = 0; j < rightVariables.length; j++) {
+			rightColumnsInLeft[j] = BindingsBlock.getColumnIndex(leftVariables, rightVariables[j]);
+			rightColumnsInResult[j] = (rightColumnsInLeft[j] >= 0) ? -1 : BindingsBlock.getColumnIndex(resultVariables, rightVariables[j]);
+		}
+
+		return new ParallelIterator<BindingsBlock>() {
+
+			final BlockCursor left = new BlockCursor(leftBlocks);
+			final BlockCursor right = new BlockCursor(rightBlocks);
+
+			// the solutions of both operands with the same codes of the join variables
+			final ArrayList<int[]> leftRun = new ArrayList<int[]>();
+			final ArrayList<int[]> rightRun = new ArrayList<int[]>();
+			int leftRunIndex = 0;
+			int rightRunIndex = 0;
+
+			BindingsBlock next = this.computeNext();
+
+			@Override
+			public boolean hasNext() {
+				return this.next != null;
+			}
+
+			@Override
+			public BindingsBlock next() {
+				final BindingsBlock znext = this.next;
+				if (znext != null) {
+					this.next = this.computeNext();
+				}
+				return znext;
+			}
+
+			private BindingsBlock computeNext() {
+				final BindingsBlock result = new BindingsBlock(resultVariables);
+				while (!result.isFull()) {
+					if (this.leftRunIndex < this.leftRun.size()) {
+						// continue the cartesian product of the current runs
+						final int[] joined = this.join(this.leftRun.get(this.leftRunIndex), this.rightRun.get(this.rightRunIndex));
+						if (joined != null) {
+							result.addRow(joined);
+						}
+						this.rightRunIndex++;
+						if (this.rightRunIndex >= this.rightRun.size()) {
+							this.rightRunIndex = 0;
+							this.leftRunIndex++;
+						}
+						continue;
+					}
+					if (!this.left.isValid() || !this.right.isValid()) {
+						break;
+					}
+					final int compare = this.compare();
+					if (compare < 0) {
+						this.left.skipTo(leftJoinColumns, this.right.getCodes(rightJoinColumns), joinVariablesArray);
+					} else if (compare > 0) {
+						this.right.skipTo(rightJoinColumns, this.left.getCodes(leftJoinColumns), joinVariablesArray);
+					} else {
+						this.leftRun.clear();
+						this.rightRun.clear();
+						this.leftRunIndex = 0;
+						this.rightRunIndex = 0;
+						final int[] key = this.left.getCodes(leftJoinColumns);
+						do {
+							this.leftRun.add(this.left.getRow());
+							this.left.advance();
+						} while (this.left.isValid() && this.left.hasCodes(leftJoinColumns, key));
+						do {
+							this.rightRun.add(this.right.getRow());
+							this.right.advance();
+						} while (this.right.isValid() && this.right.hasCodes(rightJoinColumns, key));
+					}
+				}
+				if (result.isEmpty()) {
+					this.close();
+					return null;
+				}
+				return result;
+			}
+
+			private int compare() {
+				for (int j = 0; j < leftJoinColumns.length; j++) {
+					final int leftCode = this.left.getCode(leftJoinColumns[j]);
+					final int rightCode = this.right.getCode(rightJoinColumns[j]);
+					if (leftCode != rightCode) {
+						return (leftCode < rightCode) ? -1 : 1;
+					}
+				}
+				return 0;
+			}
+
+			private int[] join(final int[] leftRow, final int[] rightRow) {
+				final int[] joined = new int[resultVariables.length];
+				System.arraycopy(leftRow, 0, joined, 0, leftRow.length);
+				for (int j = 0; j < rightRow.length; j++) {
+					if (rightColumnsInResult[j] >= 0) {
+						joined[rightColumnsInResult[j]] = rightRow[j];
+					} else {
+						// variable also occurs in the left operand: check compatibility
+						final int leftCode = joined[rightColumnsInLeft[j]];
+						if (leftCode == 0) {
+							joined[rightColumnsInLeft[j]] = rightRow[j];
+						} else if (rightRow[j] != 0 && rightRow[j] != leftCode) {
+							return null;
+						}
+					}
+				}
+				return joined;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+				if (leftBlocks instanceof ParallelIterator) {
+					((ParallelIterator<BindingsBlock>) leftBlocks).close();
+				}
+				if (rightBlocks instanceof ParallelIterator) {
+					((ParallelIterator<BindingsBlock>) rightBlocks).close();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Determines the variables of the result of a join of two inputs delivered in blocks
+	 *
+	 * @param leftVariables the variables of the blocks of the left operand
+	 * @param rightVariables the variables of the blocks of the right operand
+	 * @return the variables of the left operand followed by the other ones of the right operand
+	 */
+	public static Variable[] getResultVariablesOfBlockJoin(final Variable[] leftVariables, final Variable[] rightVariables) {
+		final ArrayList<Variable> result = new ArrayList<Variable>(leftVariables.length + rightVariables.length);
+		for (final Variable var : leftVariables) {
+			result.add(var);
+		}
+		for (final Variable var : rightVariables) {
+			if (!result.contains(var)) {
+				result.add(var);
+			}
+		}
+		return result.toArray(new Variable[result.size()]);
+	}
+
+	/**
+	 * A cursor over the solutions of blocks
+	 */
+	public static class BlockCursor {
+
+		protected final Iterator<BindingsBlock> blocks;
+		protected BindingsBlock block = null;
+		protected int row = 0;
+
+		/**
+		 * <p>Constructor for BlockCursor.</p>
+		 *
+		 * @param blocks the blocks to iterate over
+		 */
+		public BlockCursor(final Iterator<BindingsBlock> blocks) {
+			this.blocks = blocks;
+			this.nextBlock();
+		}
+
+		private void nextBlock() {
+			this.nextBlock(null);
+		}
+
+		private void nextBlock(final BindingsBlock candidate) {
+			this.row = 0;
+			this.block = null;
+			if (candidate != null && !candidate.isEmpty()) {
+				this.block = candidate;
+				return;
+			}
+			while (this.blocks.hasNext()) {
+				final BindingsBlock nextBlock = this.blocks.next();
+				if (nextBlock != null && !nextBlock.isEmpty()) {
+					this.block = nextBlock;
+					return;
+				}
+			}
+		}
+
+		/**
+		 * <p>isValid.</p>
+		 *
+		 * @return true if the cursor points to a solution
+		 */
+		public boolean isValid() {
+			return this.block != null;
+		}
+
+		/**
+		 * Moves the cursor to the next solution
+		 */
+		public void advance() {
+			this.row++;
+			if (this.row >= this.block.size()) {
+				this.nextBlock();
+			}
+		}
+
+		/**
+		 * Moves the cursor to the first solution, the codes of which in the given columns are greater than or equal to the given codes.
+		 * Blocks with only smaller codes are skipped completely. If the blocks are delivered by an index scan
+		 * supporting sideways information passing, the skipped solutions are not even read from the index.
+		 *
+		 * @param columns the columns (according to which the solutions are sorted)
+		 * @param codes the codes to skip to
+		 * @param variables the variables of the columns
+		 */
+		@SuppressWarnings("unchecked")
+		public void skipTo(final int[] columns, final int[] codes, final Variable[] variables) {
+			while (this.block != null) {
+				final int lastRow = this.block.size() - 1;
+				if (this.compareRow(lastRow, columns, codes) < 0) {
+					// all remaining solutions of the current block are smaller
+					if (this.blocks instanceof SIPParallelIterator) {
+						final Bindings key = new BindingsMap();
+						for (int i = 0; i < variables.length; i++) {
+							key.add(variables[i], new LazyLiteral(codes[i]));
+						}
+						this.nextBlock(this.blocks.hasNext() ? ((SIPParallelIterator<BindingsBlock, Bindings>) this.blocks).next(key) : null);
+					} else {
+						this.nextBlock();
+					}
+				} else {
+					// binary search for the first solution in the current block, which is not smaller
+					int low = this.row;
+					int high = lastRow;
+					while (low < high) {
+						final int middle = (low + high) >>> 1;
+						if (this.compareRow(middle, columns, codes) < 0) {
+							low = middle + 1;
+						} else {
+							high = middle;
+						}
+					}
+					this.row = low;
+					return;
+				}
+			}
+		}
+
+		private int compareRow(final int row, final int[] columns, final int[] codes) {
+			for (int i = 0; i < columns.length; i++) {
+				final int code = this.block.getCode(row, columns[i]);
+				if (code != codes[i]) {
+					return (code < codes[i]) ? -1 : 1;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * <p>getCode.</p>
+		 *
+		 * @param column the column
+		 * @return the code of the current solution in the given column
+		 */
+		public int getCode(final int column) {
+			return this.block.getCode(this.row, column);
+		}
+
+		/**
+		 * <p>getCodes.</p>
+		 *
+		 * @param columns the columns
+		 * @return the codes of the current solution in the given columns
+		 */
+		public int[] getCodes(final int[] columns) {
+			final int[] result = new int[columns.length];
+			for (int i = 0; i < columns.length; i++) {
+				result[i] = this.getCode(columns[i]);
+			}
+			return result;
+		}
+
+		/**
+		 * <p>hasCodes.</p>
+		 *
+		 * @param columns the columns
+		 * @param codes the codes to compare with
+		 * @return true if the current solution has the given codes in the given columns
+		 */
+		public boolean hasCodes(final int[] columns, final int[] codes) {
+			for (int i = 0; i < columns.length; i++) {
+				if (this.getCode(columns[i]) != codes[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * <p>getRow.</p>
+		 *
+		 * @return a copy of the codes of the current solution
+		 */
+		public int[] getRow() {
+			return this.block.getRow(this.row);
+		}
+	}
+
 	/**
 	 * <p>mergeJoinIterator.</p>
 	 *
@@ -714,15 +1063,7 @@ public class MergeJoin extends Join {
 				}
 				if (this.processFurther) {
 					for (int i = 0; i < b.length; i++) {
-						if (ssbit[i] instanceof SIPParallelIterator) {
-							while (comp.compare(b[i], k) < 0) {
-								b[i] = ((SIPParallelIterator<Bindings, Bindings>) ssbit[i]).next(k);
-							}
-						} else {
-							while (comp.compare(b[i], k) < 0) {
-								b[i] = ssbit[i].next();
-							}
-						}
+						b[i] = MergeJoin.skipTo(ssbit[i], b[i], k, comp);
 						if (b[i] == null) {
 							this.processFurther = false;
 							return null;
@@ -960,24 +1301,8 @@ public class MergeJoin extends Join {
 				}
 				if (this.processFurther) {
 					for (int i = 0; i < b.length; i++) {
-						if (ssbit[i] instanceof SIPParallelIterator) {
-							while (comp.compare(b[i], k) < 0) {
-								b[i] = ((SIPParallelIterator<Bindings, Bindings>) ssbit[i]).next(k);
-								if (comp.compare(b[i], maximum2) > 0) {
-									this.processFurther = false;
-									return null;
-								}
-							}
-						} else {
-							while (comp.compare(b[i], k) < 0) {
-								b[i] = ssbit[i].next();
-							}
-							if (comp.compare(b[i], maximum2) > 0) {
-								this.processFurther = false;
-								return null;
-							}
-						}
-						if (b[i] == null) {
+						b[i] = MergeJoin.skipTo(ssbit[i], b[i], k, comp);
+						if (b[i] == null || comp.compare(b[i], maximum2) > 0) {
 							this.processFurther = false;
 							return null;
 						}
@@ -24,15 +24,19 @@
 package lupos.engine.operators.multiinput.join;
 
 import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsBlock;
 import lupos.datastructures.bindings.BindingsFactory;
 import lupos.datastructures.items.BindingsComparator;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.queryresult.BlockQueryResult;
 import lupos.datastructures.queryresult.ParallelIterator;
 import lupos.datastructures.queryresult.QueryResult;
 import lupos.datastructures.queryresult.SIPParallelIterator;
+import lupos.engine.operators.BlockOperator;
 import lupos.engine.operators.messages.BindingsFactoryMessage;
 import lupos.engine.operators.messages.Message;
 import lupos.engine.operators.messages.StartOfEvaluationMessage;
-public class MergeJoinWithoutSorting extends Join {
+public class MergeJoinWithoutSorting extends Join implements BlockOperator {
 
 	private static final long serialVersionUID = 5051512203278340771L;
 
@@ -160,4 +164,69 @@ public class MergeJoinWithoutSorting extends Join {
 			return null;
 		}
 	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * If both operands are delivered in blocks, the merge join directly
+	 * compares the codes of the join variables in the blocks and delivers
+	 * its result again in blocks. Otherwise the operands are processed as
+	 * usual.
+	 */
+	@Override
+	public QueryResult processBlocks(final BlockQueryResult bindings, final int operandID) {
+		final QueryResult other = (operandID == 0) ? this.right : this.left;
+		if (this.intersectionVariables.isEmpty() || !(other instanceof BlockQueryResult) || !((BlockQueryResult) other).isBlockwise()) {
+			return this.process(bindings, operandID);
+		}
+		for (final Variable var : this.intersectionVariables) {
+			if (BindingsBlock.getColumnIndex(bindings.getVariables(), var) < 0 || BindingsBlock.getColumnIndex(((BlockQueryResult) other).getVariables(), var) < 0) {
+				return this.process(bindings, operandID);
+			}
+		}
+		if (operandID == 0) {
+			this.left = bindings;
+		} else {
+			this.right = bindings;
+		}
+		final BlockQueryResult leftBlocks = (BlockQueryResult) this.left;
+		final BlockQueryResult rightBlocks = (BlockQueryResult) this.right;
+		final ParallelIterator<BindingsBlock> currentResult = MergeJoin.mergeJoinBlockIterator(leftBlocks.blockIterator(), leftBlocks.getVariables(), rightBlocks.blockIterator(), rightBlocks.getVariables(), this.intersectionVariables);
+		if (!currentResult.hasNext()) {
+			this.realCardinality = 0;
+			return null;
+		}
+		final Variable[] resultVariables = MergeJoin.getResultVariablesOfBlockJoin(leftBlocks.getVariables(), rightBlocks.getVariables());
+		return new BlockQueryResult(new ParallelIterator<BindingsBlock>() {
+			int number = 0;
+
+			@Override
+			public boolean hasNext() {
+				if (!currentResult.hasNext()) {
+					MergeJoinWithoutSorting.this.realCardinality = this.number;
+					return false;
+				}
+				return true;
+			}
+
+			@Override
+			public BindingsBlock next() {
+				final BindingsBlock block = currentResult.next();
+				if (block != null) {
+					this.number += block.size();
+				}
+				return block;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+				currentResult.close();
+			}
+		}, resultVariables, this.bindingsFactory);
+	}
 }
@@ -0,0 +1,328 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.engine.operators.multiinput.join;
+
+import java.util.Arrays;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsArrayCodes;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LazyLiteral;
+import lupos.datastructures.items.literal.Literal;
+import lupos.datastructures.queryresult.QueryResult;
+
+/**
+ * This hash join works on the integer codes of LazyLiteral objects (i.e., on
+ * the dictionary ids) bound to the join variables.<br>
+ * Both operands are radix-partitioned according to the hash values of these
+ * codes, such that each partition of the smaller operand is small enough for
+ * its hash table to fit into the cache. For each partition, an open addressing
+ * hash table consisting only of primitive int arrays is built for the smaller
+ * operand and probed with the corresponding partition of the larger operand.
+ * No Literal objects and boxed hash codes are used during partitioning,
+ * building and probing.<br>
+ * <br>
+ * If a join variable is unbound or not bound to a LazyLiteral object in any
+ * solution, the join is computed like in {@link HashJoin}.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class RadixHashJoin extends HashJoin {
+
+	/**
+	 * the maximum number of solutions of the smaller operand in one partition
+	 * (such that the hash table of a partition fits into the cache)
+	 */
+	public static int maxSolutionsPerPartition = 2048;
+
+	/** the maximum number of bits used for radix partitioning, i.e., there are at most 2^maxRadixBits partitions */
+	public static int maxRadixBits = 14;
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The radix join is always computed by one thread.
+	 */
+	@Override
+	protected boolean isParallelJoinPossible(final QueryResult left, final QueryResult right) {
+		return false;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public QueryResult join(final QueryResult left, final QueryResult right) {
+		if (this.intersectionVariables == null || this.intersectionVariables.isEmpty()) {
+			return super.join(left, right);
+		}
+		final QueryResult smaller;
+		final QueryResult larger;
+		if (left.size() < right.size()) {
+			smaller = left;
+			larger = right;
+		} else {
+			smaller = right;
+			larger = left;
+		}
+		final Variable[] joinVariables = this.intersectionVariables.toArray(new Variable[this.intersectionVariables.size()]);
+		// check both operands before reading them into arrays, such that the operands are still complete for the fallback
+		smaller.materialize();
+		larger.materialize();
+		if (!Operand.isCreatable(smaller, joinVariables) || !Operand.isCreatable(larger, joinVariables)) {
+			return super.join(left, right);
+		}
+		final Operand smallerOperand = Operand.create(smaller, joinVariables);
+		final Operand largerOperand = Operand.create(larger, joinVariables);
+		// I) partitioning phase
+		int radixBits = 0;
+		while (radixBits < RadixHashJoin.maxRadixBits && (smallerOperand.solutions.length >> radixBits) > RadixHashJoin.maxSolutionsPerPartition) {
+			radixBits++;
+		}
+		smallerOperand.partition(radixBits);
+		largerOperand.partition(radixBits);
+		// II) building and probing phase for each partition
+		final QueryResult result = QueryResult.createInstance();
+		int maxPartitionSize = 0;
+		for (int p = 0; p < (1 << radixBits); p++) {
+			maxPartitionSize = Math.max(maxPartitionSize, smallerOperand.partitionStart[p + 1] - smallerOperand.partitionStart[p]);
+		}
+		final int[] table = new int[RadixHashJoin.tableSize(maxPartitionSize)];
+		final int[] next = new int[smallerOperand.solutions.length];
+		for (int p = 0; p < (1 << radixBits); p++) {
+			final int start = smallerOperand.partitionStart[p];
+			final int end = smallerOperand.partitionStart[p + 1];
+			if (start == end || largerOperand.partitionStart[p] == largerOperand.partitionStart[p + 1]) {
+				continue;
+			}
+			final int mask = RadixHashJoin.tableSize(end - start) - 1;
+			Arrays.fill(table, 0, mask + 1, 0);
+			// build the hash table for the partition of the smaller operand:
+			// the table contains (position in partitioned order + 1) of the first solution with a key,
+			// the other solutions with the same key are chained by the next array
+			for (int j = start; j < end; j++) {
+				final int solution = smallerOperand.order[j];
+				final int hash = smallerOperand.hashes[solution];
+				int slot = (hash >>> radixBits) & mask;
+				while (true) {
+					final int entry = table[slot];
+					if (entry == 0) {
+						table[slot] = j + 1;
+						next[j] = -1;
+						break;
+					}
+					final int other = smallerOperand.order[entry - 1];
+					if (smallerOperand.hashes[other] == hash && smallerOperand.keyEquals(other, smallerOperand, solution)) {
+						next[j] = entry - 1;
+						table[slot] = j + 1;
+						break;
+					}
+					slot = (slot + 1) & mask;
+				}
+			}
+			// probe the hash table with the partition of the larger operand
+			for (int j = largerOperand.partitionStart[p]; j < largerOperand.partitionStart[p + 1]; j++) {
+				final int solution = largerOperand.order[j];
+				final int hash = largerOperand.hashes[solution];
+				int slot = (hash >>> radixBits) & mask;
+				while (true) {
+					final int entry = table[slot];
+					if (entry == 0) {
+						break;
+					}
+					final int other = smallerOperand.order[entry - 1];
+					if (smallerOperand.hashes[other] == hash && smallerOperand.keyEquals(other, largerOperand, solution)) {
+						final Bindings b1 = largerOperand.solutions[solution];
+						for (int m = entry - 1; m >= 0; m = next[m]) {
+							// the other variables (not being join variables) may still conflict...
+							final Bindings joined = Join.joinBindingsAndReturnBindings(b1.clone(), smallerOperand.solutions[smallerOperand.order[m]]);
+							if (joined != null) {
+								result.add(joined);
+							}
+						}
+						break;
+					}
+					slot = (slot + 1) & mask;
+				}
+			}
+		}
+		if (result.isEmpty()) {
+			return null;
+		}
+		return result;
+	}
+
+	private static int tableSize(final int entries) {
+		// use a load factor of at most 0.5
+		int size = 2;
+		while (size < 2 * entries) {
+			size <<= 1;
+		}
+		return size;
+	}
+
+	/**
+	 * An operand of the join, where the codes of the join variables and the
+	 * hash values of all solutions are stored in primitive arrays.
+	 */
+	protected static class Operand {
+
+		/** the solutions of this operand */
+		protected final Bindings[] solutions;
+
+		/** the codes of the join variables, keys[i * numberOfJoinVariables + j] is the code of the j-th join variable of the i-th solution */
+		protected final int[] keys;
+
+		/** the hash values of the codes of the join variables of the solutions */
+		protected final int[] hashes;
+
+		/** the number of join variables */
+		protected final int numberOfJoinVariables;
+
+		/** the positions of the solutions ordered by their partitions */
+		protected int[] order;
+
+		/** partitionStart[p] is the first position in order of the partition p, partitionStart[number of partitions] the number of solutions */
+		protected int[] partitionStart;
+
+		private Operand(final Bindings[] solutions, final int[] keys, final int[] hashes, final int numberOfJoinVariables) {
+			this.solutions = solutions;
+			this.keys = keys;
+			this.hashes = hashes;
+			this.numberOfJoinVariables = numberOfJoinVariables;
+		}
+
+		/**
+		 * Checks whether or not all join variables are bound to LazyLiteral objects in all solutions of an operand
+		 *
+		 * @param operand the (materialized) operand
+		 * @param joinVariables the join variables
+		 * @return <code>true</code> if {@link #create(QueryResult, Variable[])} can be called for the operand
+		 */
+		protected static boolean isCreatable(final QueryResult operand, final Variable[] joinVariables) {
+			for (final Bindings b : operand) {
+				for (final Variable joinVariable : joinVariables) {
+					if (Operand.getCode(b, joinVariable) == 0) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Reads the solutions of an operand and determines the codes of their join variables
+		 *
+		 * @param operand the operand, for which {@link #isCreatable(QueryResult, Variable[])} has been checked before
+		 * @param joinVariables the join variables
+		 * @return the operand
+		 */
+		protected static Operand create(final QueryResult operand, final Variable[] joinVariables) {
+			final int size = operand.size();
+			final Bindings[] solutions = new Bindings[size];
+			final int[] keys = new int[size * joinVariables.length];
+			final int[] hashes = new int[size];
+			int i = 0;
+			for (final Bindings b : operand) {
+				solutions[i] = b;
+				int hash = 0;
+				for (int j = 0; j < joinVariables.length; j++) {
+					final int code = Operand.getCode(b, joinVariables[j]);
+					keys[i * joinVariables.length + j] = code;
+					hash = 31 * hash + code;
+				}
+				hashes[i] = Operand.mix(hash);
+				i++;
+			}
+			return new Operand(solutions, keys, hashes, joinVariables.length);
+		}
+
+		private static int getCode(final Bindings b, final Variable var) {
+			if (b instanceof BindingsArrayCodes) {
+				final int code = ((BindingsArrayCodes) b).getCode(var);
+				if (code != 0) {
+					return code;
+				}
+			}
+			final Literal literal = b.get(var);
+			if (literal instanceof LazyLiteral) {
+				return ((LazyLiteral) literal).getCode();
+			}
+			return 0;
+		}
+
+		/**
+		 * spreads the bits of a hash value, such that the lower bits used for radix partitioning and the higher bits used for the hash tables are well distributed
+		 */
+		private static int mix(int hash) {
+			hash ^= hash >>> 16;
+			hash *= 0x85ebca6b;
+			hash ^= hash >>> 13;
+			hash *= 0xc2b2ae35;
+			hash ^= hash >>> 16;
+			return hash;
+		}
+
+		/**
+		 * Partitions the solutions according to the lowest bits of their hash values.
+		 * The partitions are determined by a histogram and its prefix sums, such that the solutions are only copied once.
+		 *
+		 * @param radixBits the number of bits used for partitioning
+		 */
+		protected void partition(final int radixBits) {
+			final int numberOfPartitions = 1 << radixBits;
+			final int mask = numberOfPartitions - 1;
+			this.partitionStart = new int[numberOfPartitions + 1];
+			for (final int hash : this.hashes) {
+				this.partitionStart[(hash & mask) + 1]++;
+			}
+			for (int p = 0; p < numberOfPartitions; p++) {
+				this.partitionStart[p + 1] += this.partitionStart[p];
+			}
+			final int[] position = Arrays.copyOf(this.partitionStart, numberOfPartitions);
+			this.order = new int[this.hashes.length];
+			for (int i = 0; i < this.hashes.length; i++) {
+				this.order[position[this.hashes[i] & mask]++] = i;
+			}
+		}
+
+		/**
+		 * Checks whether or not the codes of the join variables of a solution of this operand are the same as of a solution of another operand
+		 *
+		 * @param solution the solution of this operand
+		 * @param other the other operand
+		 * @param otherSolution the solution of the other operand
+		 * @return <code>true</code> if the codes of all join variables are equal
+		 */
+		protected boolean keyEquals(final int solution, final Operand other, final int otherSolution) {
+			final int offset = solution * this.numberOfJoinVariables;
+			final int otherOffset = otherSolution * this.numberOfJoinVariables;
+			for (int j = 0; j < this.numberOfJoinVariables; j++) {
+				if (this.keys[offset + j] != other.keys[otherOffset + j]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
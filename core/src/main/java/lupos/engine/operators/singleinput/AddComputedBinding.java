@@ -121,10 +121,7 @@ public class AddComputedBinding extends SingleInputOperator {
 							if (bind != null) {
 								for (final Map.Entry<Variable, Filter> entry: AddComputedBinding.this.projections.entrySet()) {
 									bind.add(entry.getKey(), Helper
-											.getLiteral(Filter.staticEvalTree(
-													bind, entry.getValue()
-															.getNodePointer(),
-													null)));
+											.getLiteral(entry.getValue().getCompiledExpression().evaluate(bind, null)));
 								}
 								return bind;
 							}
@@ -217,10 +214,7 @@ public class AddComputedBinding extends SingleInputOperator {
 									.entrySet()) {
 								final HashMap<lupos.sparql1_1.Node, Object> resultsOfAggregationFunctions = resultsOfAggregationFunctionsIterator.next();
 								bindNew.add(entry.getKey(),
-										Helper.getLiteral(Filter.staticEvalTree(
-												bind,
-												entry.getValue().getNodePointer(),
-												resultsOfAggregationFunctions, entry.getValue().getUsedEvaluationVisitor())));
+										Helper.getLiteral(entry.getValue().getCompiledExpression().evaluate(bind, resultsOfAggregationFunctions)));
 							}
 							return bindNew;
 						}
@@ -98,7 +98,7 @@ public class Bind extends AddComputedBinding {
 									.entrySet()) {
 								final HashMap<lupos.sparql1_1.Node, Object> resultsOfAggregationFunctions = resultsOfAggregationFunctionsIterator.next();
 								final Literal boundValue = bind.get(Bind.this.var);
-								final Literal toBound = Helper.getLiteral(Filter.staticEvalTree(bind, entry.getValue().getNodePointer(), resultsOfAggregationFunctions, entry.getValue().getUsedEvaluationVisitor()));
+								final Literal toBound = Helper.getLiteral(entry.getValue().getCompiledExpression().evaluate(bind, resultsOfAggregationFunctions));
 
 								if(boundValue==null){ // variable is not bound => bound with computed value
 									final Bindings bindNew = bind.clone();
@@ -0,0 +1,1053 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.engine.operators.singleinput;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.dbmergesortedds.DiskCollection;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.Literal;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.datastructures.queryresult.QueryResultDebug;
+import lupos.engine.operators.Operator;
+import lupos.engine.operators.OperatorIDTuple;
+import lupos.engine.operators.messages.BindingsFactoryMessage;
+import lupos.engine.operators.messages.BoundVariablesMessage;
+import lupos.engine.operators.messages.ComputeIntermediateResultMessage;
+import lupos.engine.operators.messages.EndOfEvaluationMessage;
+import lupos.engine.operators.messages.Message;
+import lupos.engine.operators.singleinput.filter.Filter;
+import lupos.engine.operators.singleinput.filter.expressionevaluation.CompiledExpression;
+import lupos.engine.operators.singleinput.filter.expressionevaluation.EvaluationVisitor;
+import lupos.engine.operators.singleinput.filter.expressionevaluation.ExpressionCompiler;
+import lupos.engine.operators.singleinput.filter.expressionevaluation.Helper;
+import lupos.engine.operators.singleinput.sort.comparator.ComparatorAST;
+import lupos.misc.debug.DebugStep;
+import lupos.misc.util.ImmutableIterator;
+import lupos.sparql1_1.ASTAggregation;
+import lupos.sparql1_1.ASTAs;
+import lupos.sparql1_1.ASTGroup;
+import lupos.sparql1_1.ASTHaving;
+import lupos.sparql1_1.ASTSelectQuery;
+import lupos.sparql1_1.ASTStream;
+import lupos.sparql1_1.ASTStringLiteral;
+import lupos.sparql1_1.ASTVar;
+import lupos.sparql1_1.Node;
+
+/**
+ * This operator evaluates GROUP BY by hashing the group keys and computes the aggregation functions of the
+ * select clause and of the HAVING clause on the fly. For each group only the values of the group expressions
+ * and the running states of the aggregation functions are kept, such that neither sorting the input nor
+ * materializing the groups is necessary (as for the combination of the operators Sort, Group, GroupByAddComputedBinding and Having).
+ * This operator emits one solution per group, which is equivalent to the results of the sort-based operators
+ * after projection and duplicate elimination as long as the select clause and the HAVING clause only use
+ * variables of the group keys outside of the aggregation functions (see {@link #isApplicable(Node)}).
+ *
+ * Each incoming query result is first aggregated into a local hash table by the calling thread.
+ * These partial aggregates are merged into the global hash table in blocks of {@link #getPartialAggregationBlockSize()} groups.
+ * If the global hash table already contains {@link #getMaxGroupsInMemory()} groups, the partial aggregates of further groups are
+ * spilled to disk, partitioned by their hash values, and the partitions are aggregated one after the other after the whole input has been consumed.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class HashGroup extends SingleInputOperator {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 4402893176412880313L;
+
+	/**
+	 * whether or not GROUP BY is evaluated by this operator (if applicable) instead of the sort-based operators (see evaluator option --hashgroup)
+	 */
+	protected static boolean useHashAggregation = false;
+
+	/**
+	 * the max. number of groups kept in main memory, the aggregates of further groups are spilled to disk
+	 */
+	protected static int maxGroupsInMemory = 1000000;
+
+	/**
+	 * the max. number of groups aggregated locally by a thread before merging them into the global hash table
+	 */
+	protected static int partialAggregationBlockSize = 4096;
+
+	/**
+	 * the number of partitions in which the aggregates of groups not fitting into main memory are spilled
+	 */
+	protected static int numberOfSpillPartitions = 16;
+
+	/**
+	 * the expressions of the group keys
+	 */
+	protected final Node[] groupExpressions;
+
+	/**
+	 * the compiled expressions of the group keys (compiled when needed)
+	 */
+	protected transient CompiledExpression[] compiledGroupExpressions = null;
+
+	/**
+	 * the variables to be bound to the values of the group expressions (null for expressions without AS)
+	 */
+	protected final Variable[] groupVariables;
+
+	/**
+	 * the computed bindings of the select clause (in the order of their evaluation)
+	 */
+	protected final List<AddComputedBinding> projections = new LinkedList<AddComputedBinding>();
+
+	/**
+	 * the constraints of the HAVING clause
+	 */
+	protected final List<Filter> havings = new LinkedList<Filter>();
+
+	/**
+	 * all aggregation functions used in the select clause and in the HAVING clause
+	 */
+	protected final List<ASTAggregation> aggregations = new ArrayList<ASTAggregation>();
+
+	/**
+	 * the evaluation visitors of the filters containing the aggregation functions
+	 */
+	protected final List<EvaluationVisitor<Map<Node, Object>, Object>> evaluationVisitors = new ArrayList<EvaluationVisitor<Map<Node, Object>, Object>>();
+
+	/**
+	 * the compiled arguments of the aggregation functions (compiled when needed, null for aggregation functions without argument)
+	 */
+	protected transient CompiledExpression[] compiledAggregationArguments = null;
+
+	/**
+	 * the groups in main memory
+	 */
+	protected HashMap<GroupKey, GroupState> groups = new HashMap<GroupKey, GroupState>();
+
+	/**
+	 * the partitions of spilled groups (null if no group has been spilled so far)
+	 */
+	protected SpillPartition[] spillPartitions = null;
+
+	private BindingsFactory bindingsFactory = null;
+
+	private Bindings bindingsTemplate = null;
+
+	/**
+	 * Constructor
+	 *
+	 * @param groupNode the group clause
+	 */
+	public HashGroup(final ASTGroup groupNode) {
+		final int number = groupNode.jjtGetNumChildren();
+		this.groupExpressions = new Node[number];
+		this.groupVariables = new Variable[number];
+		for(int i=0; i<number; i++){
+			final Node n = groupNode.jjtGetChild(i);
+			if(n instanceof ASTAs){
+				this.groupExpressions[i] = n.jjtGetChild(0);
+				this.groupVariables[i] = new Variable(((ASTVar) n.jjtGetChild(1)).getName());
+			} else if(n instanceof ASTVar){
+				this.groupExpressions[i] = n;
+				this.groupVariables[i] = new Variable(((ASTVar) n).getName());
+			} else {
+				this.groupExpressions[i] = n;
+			}
+		}
+	}
+
+	/**
+	 * <p>Getter for the field <code>useHashAggregation</code>.</p>
+	 *
+	 * @return whether or not GROUP BY is evaluated by hash aggregation if applicable
+	 */
+	public static boolean isUseHashAggregation() {
+		return HashGroup.useHashAggregation;
+	}
+
+	/**
+	 * <p>Setter for the field <code>useHashAggregation</code>.</p>
+	 *
+	 * @param useHashAggregation whether or not GROUP BY is evaluated by hash aggregation if applicable
+	 */
+	public static void setUseHashAggregation(final boolean useHashAggregation) {
+		HashGroup.useHashAggregation = useHashAggregation;
+	}
+
+	/**
+	 * <p>Getter for the field <code>maxGroupsInMemory</code>.</p>
+	 *
+	 * @return the max. number of groups kept in main memory
+	 */
+	public static int getMaxGroupsInMemory() {
+		return HashGroup.maxGroupsInMemory;
+	}
+
+	/**
+	 * <p>Setter for the field <code>maxGroupsInMemory</code>.</p>
+	 *
+	 * @param maxGroupsInMemory the max. number of groups kept in main memory
+	 */
+	public static void setMaxGroupsInMemory(final int maxGroupsInMemory) {
+		HashGroup.maxGroupsInMemory = maxGroupsInMemory;
+	}
+
+	/**
+	 * <p>Getter for the field <code>partialAggregationBlockSize</code>.</p>
+	 *
+	 * @return the max. number of groups aggregated locally before merging them
+	 */
+	public static int getPartialAggregationBlockSize() {
+		return HashGroup.partialAggregationBlockSize;
+	}
+
+	/**
+	 * <p>Setter for the field <code>partialAggregationBlockSize</code>.</p>
+	 *
+	 * @param partialAggregationBlockSize the max. number of groups aggregated locally before merging them
+	 */
+	public static void setPartialAggregationBlockSize(final int partialAggregationBlockSize) {
+		HashGroup.partialAggregationBlockSize = partialAggregationBlockSize;
+	}
+
+	/**
+	 * <p>Getter for the field <code>numberOfSpillPartitions</code>.</p>
+	 *
+	 * @return the number of partitions for spilled groups
+	 */
+	public static int getNumberOfSpillPartitions() {
+		return HashGroup.numberOfSpillPartitions;
+	}
+
+	/**
+	 * <p>Setter for the field <code>numberOfSpillPartitions</code>.</p>
+	 *
+	 * @param numberOfSpillPartitions the number of partitions for spilled groups
+	 */
+	public static void setNumberOfSpillPartitions(final int numberOfSpillPartitions) {
+		HashGroup.numberOfSpillPartitions = numberOfSpillPartitions;
+	}
+
+	/**
+	 * Checks whether or not the group clause of the given query can be evaluated by this operator:
+	 * The select clause must not be SELECT *, and outside of aggregation functions the select clause may only use
+	 * variables of the group keys (or variables computed before in the select clause) and the HAVING clause only variables of the group keys.
+	 * Aggregation functions without variables as well as COUNT(DISTINCT *) are evaluated by the sort-based operators.
+	 *
+	 * @param query the query node
+	 * @return true if this operator can be used for the group clause of the query
+	 */
+	public static boolean isApplicable(final Node query){
+		if(!HashGroup.useHashAggregation || !(query instanceof ASTSelectQuery) || ((ASTSelectQuery) query).isSelectAll()){
+			return false;
+		}
+		final Set<String> groupVariables = new HashSet<String>();
+		boolean group = false;
+		for(int i=0; i<query.jjtGetNumChildren(); i++){
+			final Node child = query.jjtGetChild(i);
+			if(child instanceof ASTStream){
+				// stream queries delete results, which is not supported by running aggregates
+				return false;
+			}
+			if(child instanceof ASTGroup){
+				group = true;
+				for(int j=0; j<child.jjtGetNumChildren(); j++){
+					final Node groupChild = child.jjtGetChild(j);
+					if(groupChild instanceof ASTVar){
+						groupVariables.add(((ASTVar) groupChild).getName());
+					} else if(groupChild instanceof ASTAs){
+						groupVariables.add(((ASTVar) groupChild.jjtGetChild(1)).getName());
+					}
+				}
+			}
+		}
+		if(!group){
+			return false;
+		}
+		for(int i=0; i<query.jjtGetNumChildren(); i++){
+			final Node child = query.jjtGetChild(i);
+			if(child instanceof ASTHaving){
+				for(int j=0; j<child.jjtGetNumChildren(); j++){
+					if(!HashGroup.isApplicable(child.jjtGetChild(j), groupVariables)){
+						return false;
+					}
+				}
+			}
+		}
+		final Set<String> allowedVariables = new HashSet<String>(groupVariables);
+		for(int i=0; i<query.jjtGetNumChildren(); i++){
+			final Node child = query.jjtGetChild(i);
+			if(child instanceof ASTVar){
+				if(!groupVariables.contains(((ASTVar) child).getName())){
+					return false;
+				}
+			} else if(child instanceof ASTAs){
+				if(!HashGroup.isApplicable(child.jjtGetChild(0), allowedVariables)){
+					return false;
+				}
+				allowedVariables.add(((ASTVar) child.jjtGetChild(1)).getName());
+			}
+		}
+		return true;
+	}
+
+	private static boolean isApplicable(final Node node, final Set<String> allowedVariables){
+		if(node instanceof ASTVar){
+			return allowedVariables.contains(((ASTVar) node).getName());
+		}
+		if(node instanceof ASTAggregation){
+			if(node.jjtGetNumChildren()==0){
+				// COUNT(*)
+				return !((ASTAggregation) node).isDistinct();
+			}
+			return HashGroup.containsVariable(node.jjtGetChild(0));
+		}
+		for(int i=0; i<node.jjtGetNumChildren(); i++){
+			if(!HashGroup.isApplicable(node.jjtGetChild(i), allowedVariables)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean containsVariable(final Node node){
+		if(node instanceof ASTVar){
+			return true;
+		}
+		for(int i=0; i<node.jjtGetNumChildren(); i++){
+			if(HashGroup.containsVariable(node.jjtGetChild(i))){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * adds computed bindings of the select clause, which are evaluated for each group in the order they are added
+	 *
+	 * @param acb the computed bindings
+	 */
+	public void addProjection(final AddComputedBinding acb){
+		this.projections.add(acb);
+		for(final Filter filter: acb.getProjections().values()){
+			this.addAggregations(filter);
+		}
+	}
+
+	/**
+	 * adds a constraint of the HAVING clause
+	 *
+	 * @param having the constraint
+	 */
+	public void addHaving(final Filter having){
+		this.havings.add(having);
+		this.addAggregations(having);
+	}
+
+	private void addAggregations(final Filter filter){
+		this.compiledAggregationArguments = null;
+		if(filter.aggregationFunctions!=null){
+			for(final List<Node> list: filter.aggregationFunctions){
+				for(final Node node: list){
+					if(node instanceof ASTAggregation && !this.aggregations.contains(node)){
+						this.aggregations.add((ASTAggregation) node);
+						this.evaluationVisitors.add(filter.getUsedEvaluationVisitor());
+					}
+				}
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Message preProcessMessage(final BoundVariablesMessage msg) {
+		for(final Variable var: this.groupVariables){
+			if(var!=null){
+				msg.getVariables().add(var);
+			}
+		}
+		for(final AddComputedBinding acb: this.projections){
+			msg.getVariables().addAll(acb.getProjections().keySet());
+		}
+		this.intersectionVariables = new LinkedList<Variable>(msg.getVariables());
+		this.unionVariables = new LinkedList<Variable>(this.intersectionVariables);
+		return msg;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Message preProcessMessage(final BindingsFactoryMessage msg) {
+		this.bindingsFactory = msg.getBindingsFactory();
+		return msg;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * aggregates the bindings into a local hash table, which is merged into the global one in blocks
+	 */
+	@Override
+	public QueryResult process(final QueryResult queryResult, final int operandID) {
+		HashMap<GroupKey, GroupState> partialAggregates = new HashMap<GroupKey, GroupState>();
+		final Iterator<Bindings> it = queryResult.oneTimeIterator();
+		final int numberOfGroupExpressions = this.groupExpressions.length;
+		this.compileExpressions();
+		while(it.hasNext()){
+			final Bindings bindings = it.next();
+			if(this.bindingsTemplate==null){
+				this.bindingsTemplate = bindings;
+			}
+			final Object[] values = new Object[numberOfGroupExpressions];
+			final Object[] keyComponents = new Object[numberOfGroupExpressions];
+			for(int i=0; i<numberOfGroupExpressions; i++){
+				try {
+					values[i] = this.compiledGroupExpressions[i].evaluate(bindings, null);
+				} catch (final NotBoundException e) {
+					values[i] = null;
+				} catch (final TypeErrorException e) {
+					values[i] = null;
+				}
+				keyComponents[i] = HashGroup.getKeyComponent(values[i]);
+			}
+			final GroupKey key = new GroupKey(keyComponents);
+			GroupState state = partialAggregates.get(key);
+			if(state==null){
+				state = new GroupState(values, this.aggregations.size());
+				partialAggregates.put(key, state);
+			}
+			this.aggregate(state, bindings);
+			if(partialAggregates.size() >= HashGroup.partialAggregationBlockSize){
+				this.merge(partialAggregates);
+				partialAggregates = new HashMap<GroupKey, GroupState>();
+			}
+		}
+		if(!partialAggregates.isEmpty()){
+			this.merge(partialAggregates);
+		}
+		return null;
+	}
+
+	/**
+	 * determines the component of a group key for a value of a group expression:
+	 * all values are represented by the string representations of their literals,
+	 * such that a term bound as lazy literal (e.g., by an index scan) and the same term computed by an expression fall into the same group
+	 *
+	 * @param value the value of the group expression
+	 * @return the component of the group key
+	 */
+	protected static Object getKeyComponent(final Object value){
+		if(value==null){
+			return null;
+		}
+		final Literal literal = ComparatorAST.getLiteral(value);
+		return (literal==null)? value.toString() : literal.toString();
+	}
+
+	/**
+	 * compiles the group expressions and the arguments of the aggregation functions if not done so far
+	 */
+	private void compileExpressions(){
+		if(this.compiledGroupExpressions==null){
+			final CompiledExpression[] compiled = new CompiledExpression[this.groupExpressions.length];
+			final EvaluationVisitor<Map<Node, Object>, Object> evaluationVisitor = Filter.getEvaluationVisitor();
+			for(int i=0; i<compiled.length; i++){
+				compiled[i] = ExpressionCompiler.compile(this.groupExpressions[i], evaluationVisitor);
+			}
+			this.compiledGroupExpressions = compiled;
+		}
+		if(this.compiledAggregationArguments==null){
+			final CompiledExpression[] compiled = new CompiledExpression[this.aggregations.size()];
+			for(int i=0; i<compiled.length; i++){
+				final ASTAggregation aggregation = this.aggregations.get(i);
+				compiled[i] = (aggregation.jjtGetNumChildren()==0)? null : ExpressionCompiler.compile(aggregation.jjtGetChild(0), this.evaluationVisitors.get(i));
+			}
+			this.compiledAggregationArguments = compiled;
+		}
+	}
+
+	private void aggregate(final GroupState state, final Bindings bindings){
+		final Map<Node, Object> noResultsOfAggregationFunctions = Collections.emptyMap();
+		for(int i=0; i<state.states.length; i++){
+			final ASTAggregation aggregation = this.aggregations.get(i);
+			final EvaluationVisitor<Map<Node, Object>, Object> evaluationVisitor = this.evaluationVisitors.get(i);
+			final CompiledExpression argument = this.compiledAggregationArguments[i];
+			final Object value;
+			if(argument==null){
+				value = bindings;
+			} else {
+				try {
+					value = argument.evaluate(bindings, noResultsOfAggregationFunctions);
+				} catch (final Exception e) {
+					// just ignore bindings with error!
+					continue;
+				}
+			}
+			if(value!=null){
+				state.states[i].add(aggregation, value, evaluationVisitor);
+			}
+		}
+	}
+
+	/**
+	 * merges partial aggregates into the global hash table or spills them to disk if the global hash table is full
+	 *
+	 * @param partialAggregates the partial aggregates
+	 */
+	protected synchronized void merge(final HashMap<GroupKey, GroupState> partialAggregates){
+		for(final Map.Entry<GroupKey, GroupState> entry: partialAggregates.entrySet()){
+			final GroupState state = this.groups.get(entry.getKey());
+			if(state!=null){
+				state.merge(entry.getValue(), this.aggregations, this.evaluationVisitors);
+			} else if(this.groups.size() < HashGroup.maxGroupsInMemory){
+				this.groups.put(entry.getKey(), entry.getValue());
+			} else {
+				if(this.spillPartitions==null){
+					this.spillPartitions = new SpillPartition[HashGroup.numberOfSpillPartitions];
+				}
+				HashGroup.spill(this.spillPartitions, 0, entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	private static void spill(final SpillPartition[] partitions, final int level, final GroupKey key, final GroupState state){
+		// use different bits of the hash value in each level of partitioning
+		final int hash = Integer.rotateLeft(key.hashCode() * 0x9E3779B1, 7 * level);
+		final int index = (hash & 0x7FFFFFFF) % partitions.length;
+		try {
+			if(partitions[index]==null){
+				partitions[index] = new SpillPartition();
+			}
+			partitions[index].write(key, state);
+		} catch (final IOException e) {
+			System.err.println(e);
+			e.printStackTrace();
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * emits the results of all groups to the succeeding operators
+	 *
+	 * @param debugstep the debug step or null if not in debug mode
+	 * @param release whether or not the groups are released after emitting them (at the end of evaluation)
+	 */
+	protected void computeResult(final DebugStep debugstep, final boolean release){
+		final HashMap<GroupKey, GroupState> groupsInMemory;
+		final SpillPartition[] partitions;
+		synchronized(this){
+			groupsInMemory = this.groups;
+			partitions = this.spillPartitions;
+			if(release){
+				this.groups = new HashMap<GroupKey, GroupState>();
+				this.spillPartitions = null;
+			}
+		}
+		this.emit(groupsInMemory, debugstep, !release);
+		if(partitions!=null){
+			for(final SpillPartition partition: partitions){
+				if(partition!=null){
+					this.computeResult(partition, 1, debugstep, release);
+				}
+			}
+		}
+	}
+
+	private void computeResult(final SpillPartition partition, final int level, final DebugStep debugstep, final boolean release){
+		final HashMap<GroupKey, GroupState> groupsOfPartition = new HashMap<GroupKey, GroupState>();
+		final SpillPartition[] overflow = new SpillPartition[HashGroup.numberOfSpillPartitions];
+		boolean overflowUsed = false;
+		try {
+			final ObjectInputStream in = partition.openForReading();
+			try {
+				for(long i=0; i<partition.size; i++){
+					final GroupKey key = (GroupKey) in.readObject();
+					final GroupState state = (GroupState) in.readObject();
+					final GroupState existingState = groupsOfPartition.get(key);
+					if(existingState!=null){
+						existingState.merge(state, this.aggregations, this.evaluationVisitors);
+					} else if(groupsOfPartition.size() < HashGroup.maxGroupsInMemory){
+						groupsOfPartition.put(key, state);
+					} else {
+						HashGroup.spill(overflow, level, key, state);
+						overflowUsed = true;
+					}
+				}
+			} finally {
+				in.close();
+			}
+		} catch (final IOException e) {
+			System.err.println(e);
+			e.printStackTrace();
+			throw new RuntimeException(e);
+		} catch (final ClassNotFoundException e) {
+			System.err.println(e);
+			e.printStackTrace();
+			throw new RuntimeException(e);
+		}
+		if(release){
+			partition.release();
+		}
+		this.emit(groupsOfPartition, debugstep, !release);
+		if(overflowUsed){
+			for(final SpillPartition overflowPartition: overflow){
+				if(overflowPartition!=null){
+					// overflow partitions are always temporary
+					this.computeResult(overflowPartition, level + 1, debugstep, true);
+				}
+			}
+		}
+	}
+
+	private void emit(final HashMap<GroupKey, GroupState> groupsToEmit, final DebugStep debugstep, final boolean materialize){
+		if(groupsToEmit.isEmpty()){
+			return;
+		}
+		final Iterator<GroupState> groupIterator = groupsToEmit.values().iterator();
+		final Iterator<Bindings> resultIterator = new ImmutableIterator<Bindings>() {
+			Bindings next = this.computeNext();
+
+			@Override
+			public boolean hasNext() {
+				return (this.next != null);
+			}
+
+			@Override
+			public Bindings next() {
+				final Bindings zNext = this.next;
+				this.next = this.computeNext();
+				return zNext;
+			}
+
+			private Bindings computeNext() {
+				while(groupIterator.hasNext()){
+					final Bindings result = HashGroup.this.computeResultOfGroup(groupIterator.next());
+					if(result!=null){
+						return result;
+					}
+				}
+				return null;
+			}
+		};
+		if(!resultIterator.hasNext()){
+			return;
+		}
+		final QueryResult qr = QueryResult.createInstance(resultIterator);
+		if(materialize || this.succeedingOperators.size() > 1){
+			qr.materialize();
+		}
+		for (final OperatorIDTuple opId: this.succeedingOperators) {
+			if(debugstep==null){
+				opId.processAll(qr);
+			} else {
+				final QueryResultDebug qrDebug = new QueryResultDebug(qr, debugstep, this, opId.getOperator(), true);
+				((Operator) opId.getOperator()).processAllDebug(qrDebug, opId.getId(), debugstep);
+			}
+		}
+	}
+
+	/**
+	 * computes the solution of a group
+	 *
+	 * @param state the state of the group
+	 * @return the solution of the group or null if the group does not fulfill the HAVING clause
+	 */
+	protected Bindings computeResultOfGroup(final GroupState state){
+		final Bindings bindings = (this.bindingsFactory!=null)? this.bindingsFactory.createInstance() : this.bindingsTemplate.createInstance();
+		for(int i=0; i<this.groupVariables.length; i++){
+			if(this.groupVariables[i]!=null && state.values[i]!=null){
+				bindings.add(this.groupVariables[i], Helper.getLiteral(state.values[i]));
+			}
+		}
+		final HashMap<Node, Object> resultsOfAggregationFunctions = new HashMap<Node, Object>();
+		for(int i=0; i<state.states.length; i++){
+			final Object result = state.states[i].getResult(this.aggregations.get(i), this.evaluationVisitors.get(i));
+			if(result!=null){
+				resultsOfAggregationFunctions.put(this.aggregations.get(i), result);
+			}
+		}
+		for(final Filter having: this.havings){
+			try {
+				if(!Helper.booleanEffectiveValue(having.getCompiledFilterExpression().evaluate(bindings, resultsOfAggregationFunctions))){
+					return null;
+				}
+			} catch (final NotBoundException e) {
+				return null;
+			} catch (final TypeErrorException e) {
+				return null;
+			}
+		}
+		for(final AddComputedBinding acb: this.projections){
+			for(final Map.Entry<Variable, Filter> entry: acb.getProjections().entrySet()){
+				try {
+					bindings.add(entry.getKey(), Helper.getLiteral(entry.getValue().getCompiledExpression().evaluate(bindings, resultsOfAggregationFunctions)));
+				} catch (final NotBoundException e) {
+					// leave the variable unbound
+				} catch (final TypeErrorException e) {
+					// leave the variable unbound
+				}
+			}
+		}
+		return bindings;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Message preProcessMessage(final EndOfEvaluationMessage msg) {
+		this.computeResult(null, true);
+		return msg;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Message preProcessMessage(final ComputeIntermediateResultMessage msg) {
+		this.deleteAllAtSucceedingOperators();
+		this.computeResult(null, false);
+		return msg;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Message preProcessMessageDebug(final ComputeIntermediateResultMessage msg, final DebugStep debugstep) {
+		this.computeResult(debugstep, false);
+		return msg;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Message preProcessMessageDebug(final EndOfEvaluationMessage msg, final DebugStep debugstep) {
+		this.computeResult(debugstep, true);
+		return msg;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Deleting single solutions is not supported by running aggregates (which is why this operator is not used for stream queries).
+	 */
+	@Override
+	public QueryResult deleteQueryResult(final QueryResult queryResult, final int operandID) {
+		System.err.println("HashGroup: Deleting single solutions is not supported!");
+		return null;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized void deleteQueryResult(final int operandID) {
+		this.groups = new HashMap<GroupKey, GroupState>();
+		if(this.spillPartitions!=null){
+			for(final SpillPartition partition: this.spillPartitions){
+				if(partition!=null){
+					partition.release();
+				}
+			}
+			this.spillPartitions = null;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString() {
+		return super.toString() + " " + Arrays.toString(this.groupVariables) + " " + this.aggregations.size() + " aggregation functions";
+	}
+
+	/**
+	 * The key of a group
+	 */
+	public static class GroupKey implements Serializable {
+
+		private static final long serialVersionUID = -1950465530735420946L;
+
+		protected final Object[] components;
+		protected final int hashCode;
+
+		public GroupKey(final Object[] components){
+			this.components = components;
+			this.hashCode = Arrays.hashCode(components);
+		}
+
+		@Override
+		public int hashCode(){
+			return this.hashCode;
+		}
+
+		@Override
+		public boolean equals(final Object other){
+			if(other instanceof GroupKey){
+				final GroupKey otherKey = (GroupKey) other;
+				return this.hashCode == otherKey.hashCode && Arrays.equals(this.components, otherKey.components);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The state of a group consisting of the values of the group expressions and the states of the aggregation functions
+	 */
+	public static class GroupState implements Serializable {
+
+		private static final long serialVersionUID = 5946163718734085306L;
+
+		protected final Object[] values;
+		protected final AggregationState[] states;
+
+		public GroupState(final Object[] values, final int numberOfAggregations){
+			this.values = values;
+			this.states = new AggregationState[numberOfAggregations];
+			for(int i=0; i<numberOfAggregations; i++){
+				this.states[i] = new AggregationState();
+			}
+		}
+
+		public void merge(final GroupState other, final List<ASTAggregation> aggregations, final List<EvaluationVisitor<Map<Node, Object>, Object>> evaluationVisitors){
+			for(int i=0; i<this.states.length; i++){
+				this.states[i].merge(other.states[i], aggregations.get(i), evaluationVisitors.get(i));
+			}
+		}
+	}
+
+	/**
+	 * The running state of an aggregation function.
+	 * SUM, MIN and MAX are folded by the evaluation visitor, such that their semantics is the same as for the sort-based evaluation.
+	 * For DISTINCT aggregation functions, the distinct values are collected and aggregated at the end.
+	 */
+	public static class AggregationState implements Serializable {
+
+		private static final long serialVersionUID = -3470417547633108225L;
+
+		protected long count = 0;
+		protected Object value = null;
+		protected StringBuilder concat = null;
+		protected boolean error = false;
+		protected LinkedHashSet<Object> distinctValues = null;
+
+		public void add(final ASTAggregation aggregation, final Object next, final EvaluationVisitor<Map<Node, Object>, Object> evaluationVisitor){
+			if(aggregation.isDistinct()){
+				if(this.distinctValues==null){
+					this.distinctValues = new LinkedHashSet<Object>();
+				}
+				this.distinctValues.add(next);
+				return;
+			}
+			switch(aggregation.getTYPE()){
+				case SUM:
+					this.value = evaluationVisitor.applyAggregationSUM(AggregationState.getValues(this.value, next));
+					break;
+				case MIN:
+					this.value = evaluationVisitor.applyAggregationMIN(AggregationState.getValues(this.value, next));
+					break;
+				case MAX:
+					this.value = evaluationVisitor.applyAggregationMAX(AggregationState.getValues(this.value, next));
+					break;
+				case AVG:
+					if(!this.error){
+						try {
+							this.value = Helper.addNumericValues((this.value==null)? BigInteger.ZERO : this.value, next);
+						} catch (final TypeErrorException e) {
+							this.error = true;
+						}
+					}
+					break;
+				case SAMPLE:
+					if(this.value==null){
+						this.value = next;
+					}
+					break;
+				case GROUP_CONCAT:
+					if(this.concat==null){
+						this.concat = new StringBuilder();
+					} else {
+						this.concat.append(AggregationState.getSeparator(aggregation));
+					}
+					this.concat.append(Helper.getString(next));
+					break;
+				default:
+				case COUNT:
+					break;
+			}
+			this.count++;
+		}
+
+		public void merge(final AggregationState other, final ASTAggregation aggregation, final EvaluationVisitor<Map<Node, Object>, Object> evaluationVisitor){
+			if(aggregation.isDistinct()){
+				if(other.distinctValues!=null){
+					if(this.distinctValues==null){
+						this.distinctValues = other.distinctValues;
+					} else {
+						this.distinctValues.addAll(other.distinctValues);
+					}
+				}
+				return;
+			}
+			if(other.count==0){
+				return;
+			}
+			if(this.count==0){
+				this.count = other.count;
+				this.value = other.value;
+				this.concat = other.concat;
+				this.error = other.error;
+				return;
+			}
+			switch(aggregation.getTYPE()){
+				case SUM:
+					this.value = evaluationVisitor.applyAggregationSUM(AggregationState.getValues(this.value, other.value));
+					break;
+				case MIN:
+					this.value = evaluationVisitor.applyAggregationMIN(AggregationState.getValues(this.value, other.value));
+					break;
+				case MAX:
+					this.value = evaluationVisitor.applyAggregationMAX(AggregationState.getValues(this.value, other.value));
+					break;
+				case AVG:
+					this.error |= other.error;
+					if(!this.error){
+						try {
+							this.value = Helper.addNumericValues(this.value, other.value);
+						} catch (final TypeErrorException e) {
+							this.error = true;
+						}
+					}
+					break;
+				case GROUP_CONCAT:
+					this.concat.append(AggregationState.getSeparator(aggregation)).append(other.concat);
+					break;
+				default:
+				case SAMPLE:
+				case COUNT:
+					break;
+			}
+			this.count += other.count;
+		}
+
+		public Object getResult(final ASTAggregation aggregation, final EvaluationVisitor<Map<Node, Object>, Object> evaluationVisitor){
+			if(aggregation.isDistinct()){
+				if(this.distinctValues==null){
+					return (aggregation.getTYPE()==ASTAggregation.TYPE.SAMPLE)? null : aggregation.applyAggregation(evaluationVisitor, Collections.emptyList().iterator());
+				}
+				return aggregation.applyAggregation(evaluationVisitor, this.distinctValues.iterator());
+			}
+			switch(aggregation.getTYPE()){
+				case SUM:
+					return (this.count==0)? evaluationVisitor.applyAggregationSUM(Collections.emptyList().iterator()) : this.value;
+				case MIN:
+				case MAX:
+				case SAMPLE:
+					return this.value;
+				case AVG:
+					if(this.error){
+						return null;
+					}
+					try {
+						return Helper.divideNumericValues((this.value==null)? BigInteger.ZERO : this.value, BigInteger.valueOf(this.count));
+					} catch (final TypeErrorException e) {
+						return null;
+					} catch (final ArithmeticException e) {
+						return null;
+					}
+				case GROUP_CONCAT:
+					return Helper.quote((this.concat==null)? "" : this.concat.toString());
+				default:
+				case COUNT:
+					return BigInteger.valueOf(this.count);
+			}
+		}
+
+		private static Iterator<Object> getValues(final Object value, final Object next){
+			if(value==null){
+				return Collections.singletonList(next).iterator();
+			}
+			return Arrays.asList(value, next).iterator();
+		}
+
+		private static String getSeparator(final ASTAggregation aggregation){
+			if(aggregation.jjtGetNumChildren()==1){
+				return " ";
+			}
+			final String s = ((ASTStringLiteral) aggregation.jjtGetChild(1)).getStringLiteral();
+			return s.substring(1, s.length()-1);
+		}
+	}
+
+	/**
+	 * A partition of spilled groups on disk
+	 */
+	protected static class SpillPartition {
+
+		protected final File file;
+		protected ObjectOutputStream out;
+		protected long size = 0;
+
+		public SpillPartition() throws IOException {
+			DiskCollection.makeFolders();
+			this.file = new File(DiskCollection.newBaseFilename("HashGroup"));
+			this.out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(this.file)));
+		}
+
+		public void write(final GroupKey key, final GroupState state) throws IOException {
+			this.out.writeObject(key);
+			this.out.writeObject(state);
+			this.size++;
+			if(this.size % 1024 == 0){
+				// avoid that the stream keeps references to all written objects
+				this.out.reset();
+			}
+		}
+
+		public ObjectInputStream openForReading() throws IOException {
+			this.out.flush();
+			return new ObjectInputStream(new BufferedInputStream(new FileInputStream(this.file)));
+		}
+
+		public void release(){
+			try {
+				this.out.close();
+			} catch (final IOException e) {
+				System.err.println(e);
+				e.printStackTrace();
+			}
+			this.file.delete();
+		}
+	}
+}
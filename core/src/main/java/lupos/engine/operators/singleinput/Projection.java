@@ -26,16 +26,20 @@ package lupos.engine.operators.singleinput;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 
 import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsBlock;
 import lupos.datastructures.bindings.BindingsFactory;
 import lupos.datastructures.items.Variable;
+import lupos.datastructures.queryresult.BlockQueryResult;
 import lupos.datastructures.queryresult.ParallelIterator;
 import lupos.datastructures.queryresult.QueryResult;
+import lupos.engine.operators.BlockOperator;
 import lupos.engine.operators.messages.BindingsFactoryMessage;
 import lupos.engine.operators.messages.BoundVariablesMessage;
 import lupos.engine.operators.messages.Message;
-public class Projection extends SingleInputOperator {
+public class Projection extends SingleInputOperator implements BlockOperator {
 	private final HashSet<Variable> s = new HashSet<Variable>();
 	protected BindingsFactory bindingsFactory;
 
@@ -146,6 +150,49 @@ public class Projection extends SingleInputOperator {
 		return QueryResult.createInstance(itb);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The projection of blocks just drops the columns of the variables, which
+	 * are not projected. The remaining columns are shared and not copied.
+	 */
+	@Override
+	public QueryResult processBlocks(final BlockQueryResult blocks, final int operandID) {
+		final LinkedList<Variable> projectedVariablesList = new LinkedList<Variable>();
+		for (final Variable var : blocks.getVariables()) {
+			if (this.s.contains(var)) {
+				projectedVariablesList.add(var);
+			}
+		}
+		final Variable[] projectedVariables = projectedVariablesList.toArray(new Variable[projectedVariablesList.size()]);
+		final Iterator<BindingsBlock> blocksIt = blocks.blockIterator();
+		final Iterator<BindingsBlock> projectedBlocks = new ParallelIterator<BindingsBlock>() {
+			@Override
+			public boolean hasNext() {
+				return blocksIt.hasNext();
+			}
+
+			@Override
+			public BindingsBlock next() {
+				final BindingsBlock block = blocksIt.next();
+				return (block == null) ? null : block.project(projectedVariables);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+				if (blocksIt instanceof ParallelIterator) {
+					((ParallelIterator<BindingsBlock>) blocksIt).close();
+				}
+			}
+		};
+		return new BlockQueryResult(projectedBlocks, projectedVariables, this.bindingsFactory);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public String toString() {
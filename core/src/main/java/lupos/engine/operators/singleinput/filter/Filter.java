@@ -33,12 +33,17 @@ import java.util.Map;
 import java.util.Set;
 
 import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsBlock;
+import lupos.datastructures.bindings.BindingsFactory;
 import lupos.datastructures.items.Variable;
 import lupos.datastructures.items.literal.LiteralFactory;
 import lupos.datastructures.items.literal.LiteralFactory.MapType;
+import lupos.datastructures.queryresult.BlockQueryResult;
+import lupos.datastructures.queryresult.ParallelIterator;
 import lupos.datastructures.queryresult.QueryResult;
 import lupos.datastructures.queryresult.QueryResultDebug;
 import lupos.engine.operators.BasicOperator;
+import lupos.engine.operators.BlockOperator;
 import lupos.engine.operators.Operator;
 import lupos.engine.operators.OperatorIDTuple;
 import lupos.engine.operators.index.Root;
@@ -49,8 +54,10 @@ import lupos.engine.operators.messages.StartOfEvaluationMessage;
 import lupos.engine.operators.singleinput.NotBoundException;
 import lupos.engine.operators.singleinput.SingleInputOperator;
 import lupos.engine.operators.singleinput.TypeErrorException;
+import lupos.engine.operators.singleinput.filter.expressionevaluation.CompiledExpression;
 import lupos.engine.operators.singleinput.filter.expressionevaluation.EvaluationVisitor;
 import lupos.engine.operators.singleinput.filter.expressionevaluation.EvaluationVisitorImplementation;
+import lupos.engine.operators.singleinput.filter.expressionevaluation.ExpressionCompiler;
 import lupos.engine.operators.singleinput.filter.expressionevaluation.Helper;
 import lupos.misc.debug.DebugStep;
 import lupos.misc.util.ImmutableIterator;
@@ -70,7 +77,7 @@ import lupos.sparql1_1.SimpleNode;
  * @author groppe
  * @version $Id: $Id
  */
-public class Filter extends SingleInputOperator {
+public class Filter extends SingleInputOperator implements BlockOperator {
 
 	private static final long serialVersionUID = 2118104495454058506L;
 	private int cardinality = -1;
@@ -83,6 +90,8 @@ public class Filter extends SingleInputOperator {
 	/** Constant <code>evaluationVisitorClass</code> */
 	public static Class<? extends EvaluationVisitor<Map<Node, Object>, Object>> evaluationVisitorClass = EvaluationVisitorImplementation.class;
 	private final EvaluationVisitor<Map<Node, Object>, Object> evaluationVisitor;
+	private transient CompiledExpression compiledFilterExpression = null;
+	private transient CompiledExpression compiledExpression = null;
 
 	/**
 	 * <p>Constructor for Filter.</p>
@@ -115,7 +124,12 @@ public class Filter extends SingleInputOperator {
 		this.setNodePointer(ASTfilter);
 	}
 
-	private static EvaluationVisitor<Map<Node, Object>, Object> getEvaluationVisitor() {
+	/**
+	 * <p>getEvaluationVisitor.</p>
+	 *
+	 * @return a new instance of the currently configured evaluation visitor class
+	 */
+	public static EvaluationVisitor<Map<Node, Object>, Object> getEvaluationVisitor() {
 		try {
 			return evaluationVisitorClass.newInstance();
 		} catch (final InstantiationException e) {
@@ -135,6 +149,8 @@ public class Filter extends SingleInputOperator {
 	 */
 	public void setNodePointer(final lupos.sparql1_1.Node node) {
 		this.np = node;
+		this.compiledFilterExpression = null;
+		this.compiledExpression = null;
 		this.usedVariables.clear();
 		this.computeUsedVariables(this.np);
 		this.aggregationFunctions = this.computeAggegrationFunctions(this.np);
@@ -227,6 +243,7 @@ public class Filter extends SingleInputOperator {
 	@Override
 	public QueryResult process(final QueryResult bindings, final int operandID) {
 		if (this.aggregationFunctions == null) {
+			final CompiledExpression compiledFilter = this.getCompiledFilterExpression();
 			final Iterator<Bindings> resultIterator = new ImmutableIterator<Bindings>() {
 				final Iterator<Bindings> bindIt = bindings.oneTimeIterator();
 				int number = 0;
@@ -249,9 +266,7 @@ public class Filter extends SingleInputOperator {
 						final Bindings bind = this.bindIt.next();
 						try {
 							if (bind != null) {
-								final Object o = Filter.this.evalTree(bind, Filter.this.np
-										.jjtGetChild(0),
-										null);
+								final Object o = compiledFilter.evaluate(bind, null);
 								if (Helper.booleanEffectiveValue(o)) {
 									this.number++;
 									return bind;
@@ -288,6 +303,75 @@ public class Filter extends SingleInputOperator {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The filter expression is evaluated for each solution of a block, and the
+	 * solutions fulfilling the filter expression are copied into a new block.
+	 * Filters with aggregation functions are processed as usual.
+	 */
+	@Override
+	public QueryResult processBlocks(final BlockQueryResult blocks, final int operandID) {
+		if (this.aggregationFunctions != null) {
+			return this.process(blocks, operandID);
+		}
+		final Iterator<BindingsBlock> blocksIt = blocks.blockIterator();
+		final Variable[] variables = blocks.getVariables();
+		final BindingsFactory bindingsFactory = blocks.getBindingsFactory();
+		final CompiledExpression compiledFilter = this.getCompiledFilterExpression();
+		final Iterator<BindingsBlock> resultIterator = BlockQueryResult.nonEmptyBlocks(new ParallelIterator<BindingsBlock>() {
+			int number = 0;
+
+			@Override
+			public boolean hasNext() {
+				final boolean result = blocksIt.hasNext();
+				if (!result) {
+					Filter.this.cardinality = this.number;
+				}
+				return result;
+			}
+
+			@Override
+			public BindingsBlock next() {
+				final BindingsBlock block = blocksIt.next();
+				if (block == null) {
+					return null;
+				}
+				final BindingsBlock result = new BindingsBlock(variables, block.size());
+				for (int row = 0; row < block.size(); row++) {
+					try {
+						final Object o = compiledFilter.evaluate(block.toBindings(row, bindingsFactory), null);
+						if (Helper.booleanEffectiveValue(o)) {
+							result.addRow(block, row);
+						}
+					} catch (final NotBoundException nbe) {
+						// solution does not fulfill the filter expression
+					} catch (final TypeErrorException tee) {
+						// solution does not fulfill the filter expression
+					}
+				}
+				this.number += result.size();
+				return result;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+				if (blocksIt instanceof ParallelIterator) {
+					((ParallelIterator<BindingsBlock>) blocksIt).close();
+				}
+			}
+		});
+		if (resultIterator == null) {
+			return null;
+		}
+		return new BlockQueryResult(resultIterator, variables, bindingsFactory);
+	}
+
 	private static boolean isConstant(final lupos.sparql1_1.Node n) {
 		if (n == null) {
 			return true;
@@ -515,6 +599,9 @@ public class Filter extends SingleInputOperator {
 	@Override
 	public Message preProcessMessage(final StartOfEvaluationMessage msg) {
 		this.evaluationVisitor.init();
+		// the operator graph might have been optimized since the last evaluation => compile again when needed
+		this.compiledFilterExpression = null;
+		this.compiledExpression = null;
 		return super.preProcessMessage(msg);
 	}
 
@@ -572,6 +659,30 @@ public class Filter extends SingleInputOperator {
 		return n.accept(this.evaluationVisitor, b, resultsOfAggregationFunctions);
 	}
 
+	/**
+	 * Returns the compiled filter expression (i.e., the child of the filter constraint), which is evaluated for each solution
+	 *
+	 * @return the compiled filter expression
+	 */
+	public CompiledExpression getCompiledFilterExpression() {
+		if (this.compiledFilterExpression == null) {
+			this.compiledFilterExpression = ExpressionCompiler.compile(this.np.jjtGetChild(0), this.evaluationVisitor);
+		}
+		return this.compiledFilterExpression;
+	}
+
+	/**
+	 * Returns the compiled expression of the whole node pointer, which is used for computing the values of projections and binds
+	 *
+	 * @return the compiled expression
+	 */
+	public CompiledExpression getCompiledExpression() {
+		if (this.compiledExpression == null) {
+			this.compiledExpression = ExpressionCompiler.compile(this.np, this.evaluationVisitor);
+		}
+		return this.compiledExpression;
+	}
+
 	/**
 	 * <p>staticEvalTree.</p>
 	 *
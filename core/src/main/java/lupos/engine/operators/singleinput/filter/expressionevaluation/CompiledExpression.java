@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.engine.operators.singleinput.filter.expressionevaluation;
+
+import java.util.Map;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.engine.operators.singleinput.NotBoundException;
+import lupos.engine.operators.singleinput.TypeErrorException;
+import lupos.sparql1_1.Node;
+
+/**
+ * A filter or bind expression, which has been compiled by the {@link ExpressionCompiler} into a tree of specialized evaluators.
+ * The result of evaluate is the same as the one of evaluating the original abstract syntax tree with the evaluation visitor.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public abstract class CompiledExpression {
+
+	/**
+	 * evaluates the expression for the given bindings
+	 *
+	 * @param b the bindings
+	 * @param d the results of aggregation functions (or null if there are none)
+	 * @return the result of the expression
+	 * @throws lupos.engine.operators.singleinput.NotBoundException if any.
+	 * @throws lupos.engine.operators.singleinput.TypeErrorException if any.
+	 */
+	public abstract Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException;
+
+	/**
+	 * <p>isConstant.</p>
+	 *
+	 * @return true if the expression does not depend on the bindings and has been folded into a constant
+	 */
+	public boolean isConstant() {
+		return false;
+	}
+}
@@ -0,0 +1,603 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.engine.operators.singleinput.filter.expressionevaluation;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.VariableInInferenceRule;
+import lupos.datastructures.items.literal.LazyLiteral;
+import lupos.datastructures.items.literal.Literal;
+import lupos.datastructures.items.literal.TypedLiteral;
+import lupos.datastructures.items.literal.URILiteral;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
+import lupos.engine.operators.singleinput.NotBoundException;
+import lupos.engine.operators.singleinput.TypeErrorException;
+import lupos.sparql1_1.ASTAdditionNode;
+import lupos.sparql1_1.ASTAndNode;
+import lupos.sparql1_1.ASTBooleanLiteral;
+import lupos.sparql1_1.ASTBoundFuncNode;
+import lupos.sparql1_1.ASTDivisionNode;
+import lupos.sparql1_1.ASTDoubleCircumflex;
+import lupos.sparql1_1.ASTEqualsNode;
+import lupos.sparql1_1.ASTFilterConstraint;
+import lupos.sparql1_1.ASTFloatingPoint;
+import lupos.sparql1_1.ASTGreaterThanEqualsNode;
+import lupos.sparql1_1.ASTGreaterThanNode;
+import lupos.sparql1_1.ASTInteger;
+import lupos.sparql1_1.ASTLangTag;
+import lupos.sparql1_1.ASTLessThanEqualsNode;
+import lupos.sparql1_1.ASTLessThanNode;
+import lupos.sparql1_1.ASTMinusNode;
+import lupos.sparql1_1.ASTMultiplicationNode;
+import lupos.sparql1_1.ASTNotEqualsNode;
+import lupos.sparql1_1.ASTNotNode;
+import lupos.sparql1_1.ASTOrNode;
+import lupos.sparql1_1.ASTPlusNode;
+import lupos.sparql1_1.ASTQuotedURIRef;
+import lupos.sparql1_1.ASTRDFLiteral;
+import lupos.sparql1_1.ASTStringLiteral;
+import lupos.sparql1_1.ASTSubtractionNode;
+import lupos.sparql1_1.ASTVar;
+import lupos.sparql1_1.Node;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiles filter and bind expressions into a tree of specialized evaluators (see {@link CompiledExpression}) instead of
+ * interpreting the abstract syntax tree with an evaluation visitor for each solution.
+ *
+ * During compilation, constant subexpressions are folded, variables are resolved to prebuilt variable objects,
+ * and comparisons with a constant operand are specialized for the type of the constant:
+ * equality with an IRI is decided by comparing the codes of lazy literals, and comparisons with numeric
+ * constants use the already converted value of the constant.
+ * All other nodes (function calls, EXISTS, aggregations, ...) are evaluated by the evaluation visitor as before,
+ * such that the compiled expression always returns the same result as the interpreter.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public final class ExpressionCompiler {
+
+	private static final Logger log = LoggerFactory.getLogger(ExpressionCompiler.class);
+
+	/**
+	 * whether or not filter and bind expressions are compiled (otherwise they are only interpreted by the evaluation visitor)
+	 */
+	private static boolean useCompiledExpressions = true;
+
+	private final static int EQUALS = 0;
+	private final static int NOT_EQUALS = 1;
+	private final static int LESS = 2;
+	private final static int LESS_EQUALS = 3;
+	private final static int GREATER = 4;
+	private final static int GREATER_EQUALS = 5;
+
+	private ExpressionCompiler() {
+	}
+
+	/**
+	 * <p>isUseCompiledExpressions.</p>
+	 *
+	 * @return a boolean.
+	 */
+	public static boolean isUseCompiledExpressions() {
+		return useCompiledExpressions;
+	}
+
+	/**
+	 * <p>Setter for the field <code>useCompiledExpressions</code>.</p>
+	 *
+	 * @param useCompiledExpressions a boolean.
+	 */
+	public static void setUseCompiledExpressions(final boolean useCompiledExpressions) {
+		ExpressionCompiler.useCompiledExpressions = useCompiledExpressions;
+	}
+
+	/**
+	 * Compiles the given expression.
+	 * Only expressions interpreted by the standard evaluation visitor are compiled, as other evaluation visitors may
+	 * override the semantics of some nodes.
+	 * Otherwise (or if compilation is switched off), the returned expression just calls the evaluation visitor.
+	 *
+	 * @param node the root of the expression
+	 * @param evaluationVisitor the evaluation visitor to be used for the nodes, which are not compiled
+	 * @return the compiled expression
+	 */
+	public static CompiledExpression compile(final Node node, final EvaluationVisitor<Map<Node, Object>, Object> evaluationVisitor) {
+		if (!useCompiledExpressions || evaluationVisitor.getClass() != EvaluationVisitorImplementation.class) {
+			return interpreted(node, evaluationVisitor);
+		}
+		return compileNode(node, evaluationVisitor);
+	}
+
+	private static CompiledExpression interpreted(final Node node, final EvaluationVisitor<Map<Node, Object>, Object> evaluationVisitor) {
+		return new CompiledExpression() {
+			@Override
+			public Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException {
+				return node.accept(evaluationVisitor, b, d);
+			}
+		};
+	}
+
+	private static CompiledExpression compileNode(final Node node, final EvaluationVisitor<Map<Node, Object>, Object> evaluationVisitor) {
+		if (isConstant(node)) {
+			try {
+				return new Constant(node.accept(evaluationVisitor, null, null));
+			} catch (final NotBoundException e) {
+				// the error must occur for each solution => do not fold
+			} catch (final TypeErrorException e) {
+				// the error must occur for each solution => do not fold
+			} catch (final RuntimeException e) {
+				// the error must occur for each solution => do not fold
+			}
+		}
+		if (node instanceof ASTVar) {
+			return compileVar((ASTVar) node);
+		} else if (node instanceof ASTFilterConstraint || node instanceof ASTRDFLiteral || node instanceof ASTPlusNode) {
+			return compileNode(node.jjtGetChild(0), evaluationVisitor);
+		} else if (node instanceof ASTOrNode) {
+			return compileOr(compileNode(node.jjtGetChild(0), evaluationVisitor), compileNode(node.jjtGetChild(1), evaluationVisitor));
+		} else if (node instanceof ASTAndNode) {
+			return compileAnd(compileNode(node.jjtGetChild(0), evaluationVisitor), compileNode(node.jjtGetChild(1), evaluationVisitor));
+		} else if (node instanceof ASTNotNode) {
+			final CompiledExpression operand = compileNode(node.jjtGetChild(0), evaluationVisitor);
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException {
+					return !Helper.booleanEffectiveValue(operand.evaluate(b, d));
+				}
+			};
+		} else if (node instanceof ASTBoundFuncNode) {
+			final CompiledExpression operand = compileNode(node.jjtGetChild(0), evaluationVisitor);
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException {
+					try {
+						operand.evaluate(b, d);
+						return true;
+					} catch (final NotBoundException nbe) {
+						return false;
+					}
+				}
+			};
+		} else if (node instanceof ASTEqualsNode) {
+			return compileComparison(node, EQUALS, evaluationVisitor);
+		} else if (node instanceof ASTNotEqualsNode) {
+			return compileComparison(node, NOT_EQUALS, evaluationVisitor);
+		} else if (node instanceof ASTLessThanNode) {
+			return compileComparison(node, LESS, evaluationVisitor);
+		} else if (node instanceof ASTLessThanEqualsNode) {
+			return compileComparison(node, LESS_EQUALS, evaluationVisitor);
+		} else if (node instanceof ASTGreaterThanNode) {
+			return compileComparison(node, GREATER, evaluationVisitor);
+		} else if (node instanceof ASTGreaterThanEqualsNode) {
+			return compileComparison(node, GREATER_EQUALS, evaluationVisitor);
+		} else if (node instanceof ASTAdditionNode || node instanceof ASTSubtractionNode || node instanceof ASTMultiplicationNode || node instanceof ASTDivisionNode) {
+			return compileArithmetic(node, evaluationVisitor);
+		}
+		// not compiled => use the evaluation visitor for this subtree
+		return interpreted(node, evaluationVisitor);
+	}
+
+	/**
+	 * checks whether or not the given subtree is constant, i.e., does not contain any variables or functions, which
+	 * may return different results for each evaluation (like RAND() or NOW())
+	 */
+	private static boolean isConstant(final Node node) {
+		if (node instanceof ASTQuotedURIRef || node instanceof ASTInteger || node instanceof ASTFloatingPoint || node instanceof ASTStringLiteral
+				|| node instanceof ASTBooleanLiteral || node instanceof ASTDoubleCircumflex || node instanceof ASTLangTag) {
+			return true;
+		}
+		if (!(node instanceof ASTRDFLiteral || node instanceof ASTFilterConstraint || node instanceof ASTOrNode || node instanceof ASTAndNode
+				|| node instanceof ASTNotNode || node instanceof ASTEqualsNode || node instanceof ASTNotEqualsNode || node instanceof ASTLessThanNode
+				|| node instanceof ASTLessThanEqualsNode || node instanceof ASTGreaterThanNode || node instanceof ASTGreaterThanEqualsNode
+				|| node instanceof ASTAdditionNode || node instanceof ASTSubtractionNode || node instanceof ASTMultiplicationNode
+				|| node instanceof ASTDivisionNode || node instanceof ASTMinusNode || node instanceof ASTPlusNode)) {
+			return false;
+		}
+		if (node.jjtGetNumChildren() == 0) {
+			return false;
+		}
+		for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+			if (!isConstant(node.jjtGetChild(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static CompiledExpression compileVar(final ASTVar node) {
+		final String name = node.getName();
+		final Variable var = new Variable(name);
+		final Variable varInInferenceRule = new VariableInInferenceRule(name);
+		return new CompiledExpression() {
+			@Override
+			public Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException {
+				Literal l = b.get(var);
+				if (l == null) {
+					l = b.get(varInInferenceRule);
+				}
+				if (l == null) {
+					throw new NotBoundException("Variable " + name + " is not bound!");
+				}
+				return l;
+			}
+		};
+	}
+
+	private static CompiledExpression compileOr(final CompiledExpression left, final CompiledExpression right) {
+		return new CompiledExpression() {
+			@Override
+			public Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException {
+				NotBoundException _exceptionNB = null;
+				TypeErrorException _exceptionTE = null;
+				try {
+					if (Helper.booleanEffectiveValue(left.evaluate(b, d))) {
+						return true;
+					}
+				} catch (final NotBoundException nbe) {
+					_exceptionNB = nbe;
+				} catch (final TypeErrorException tee) {
+					_exceptionTE = tee;
+				}
+				try {
+					if (Helper.booleanEffectiveValue(right.evaluate(b, d))) {
+						return true;
+					}
+				} catch (final NotBoundException nbe) {
+					_exceptionNB = nbe;
+				} catch (final TypeErrorException tee) {
+					_exceptionTE = tee;
+				}
+				if (_exceptionNB != null) {
+					throw _exceptionNB;
+				} else if (_exceptionTE != null) {
+					throw _exceptionTE;
+				} else {
+					return false;
+				}
+			}
+		};
+	}
+
+	private static CompiledExpression compileAnd(final CompiledExpression left, final CompiledExpression right) {
+		return new CompiledExpression() {
+			@Override
+			public Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException {
+				try {
+					return (Helper.booleanEffectiveValue(left.evaluate(b, d)) && Helper.booleanEffectiveValue(right.evaluate(b, d)));
+				} catch (final RuntimeException e) {
+					// same as the interpreter: the conjunction evaluates to null, i.e., a filter does not accept the solution and a bind leaves its variable unbound
+					log.warn("Error during evaluating a conjunction: {}", e.toString());
+					return null;
+				}
+			}
+		};
+	}
+
+	private static CompiledExpression compileArithmetic(final Node node, final EvaluationVisitor<Map<Node, Object>, Object> evaluationVisitor) {
+		final CompiledExpression left = compileNode(node.jjtGetChild(0), evaluationVisitor);
+		final CompiledExpression right = compileNode(node.jjtGetChild(1), evaluationVisitor);
+		if (node instanceof ASTAdditionNode) {
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException {
+					return Helper.addNumericValues(left.evaluate(b, d), right.evaluate(b, d));
+				}
+			};
+		} else if (node instanceof ASTSubtractionNode) {
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException {
+					return Helper.subtractNumericValues(left.evaluate(b, d), right.evaluate(b, d));
+				}
+			};
+		} else if (node instanceof ASTMultiplicationNode) {
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException {
+					return Helper.multiplyNumericValues(left.evaluate(b, d), right.evaluate(b, d));
+				}
+			};
+		} else {
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException {
+					return Helper.divideNumericValues(left.evaluate(b, d), right.evaluate(b, d));
+				}
+			};
+		}
+	}
+
+	private static boolean compare(final int operator, final Object left, final Object right) throws TypeErrorException {
+		switch (operator) {
+			case EQUALS:
+				return Helper.equals(left, right);
+			case NOT_EQUALS:
+				return Helper.NOTequals(left, right);
+			case LESS:
+				return Helper.less(left, right);
+			case LESS_EQUALS:
+				return Helper.le(left, right);
+			case GREATER:
+				return Helper.greater(left, right);
+			default:
+				return Helper.ge(left, right);
+		}
+	}
+
+	private static CompiledExpression compileComparison(final Node node, final int operator, final EvaluationVisitor<Map<Node, Object>, Object> evaluationVisitor) {
+		final CompiledExpression left = compileNode(node.jjtGetChild(0), evaluationVisitor);
+		final CompiledExpression right = compileNode(node.jjtGetChild(1), evaluationVisitor);
+		if (left.isConstant() != right.isConstant()) {
+			final boolean constantIsLeft = left.isConstant();
+			final Object constant = ((Constant) (constantIsLeft ? left : right)).value;
+			final CompiledExpression operand = constantIsLeft ? right : left;
+			if (constant instanceof LazyLiteral && ((LazyLiteral) constant).getLiteral() instanceof URILiteral
+					&& (operator == EQUALS || operator == NOT_EQUALS)) {
+				return compileIRIComparison(operator, (LazyLiteral) constant, constantIsLeft, operand);
+			}
+			final NumericConstant numericConstant = NumericConstant.create(constant);
+			if (numericConstant != null && operator != NOT_EQUALS) {
+				// mirror the operator such that the operand is always the left one
+				final int mirroredOperator;
+				if (!constantIsLeft) {
+					mirroredOperator = operator;
+				} else if (operator == LESS) {
+					mirroredOperator = GREATER;
+				} else if (operator == LESS_EQUALS) {
+					mirroredOperator = GREATER_EQUALS;
+				} else if (operator == GREATER) {
+					mirroredOperator = LESS;
+				} else if (operator == GREATER_EQUALS) {
+					mirroredOperator = LESS_EQUALS;
+				} else {
+					mirroredOperator = operator;
+				}
+				return compileNumericComparison(operator, mirroredOperator, numericConstant, constantIsLeft, operand);
+			}
+		}
+		return new CompiledExpression() {
+			@Override
+			public Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException {
+				return compare(operator, left.evaluate(b, d), right.evaluate(b, d));
+			}
+		};
+	}
+
+	/**
+	 * (in-)equality with an IRI: As the dictionary contains each string representation only once, two lazy literals
+	 * with different codes have different string representations, which is never equal to an IRI.
+	 */
+	private static CompiledExpression compileIRIComparison(final int operator, final LazyLiteral constant, final boolean constantIsLeft, final CompiledExpression operand) {
+		final int code = constant.getCode();
+		return new CompiledExpression() {
+			@Override
+			public Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException {
+				final Object value = operand.evaluate(b, d);
+				if (value instanceof LazyLiteral) {
+					final boolean equal = (((LazyLiteral) value).getCode() == code);
+					return (operator == EQUALS) ? equal : !equal;
+				}
+				return constantIsLeft ? compare(operator, constant, value) : compare(operator, value, constant);
+			}
+		};
+	}
+
+	/**
+	 * comparison with a numeric constant, the value of which is converted only once
+	 */
+	private static CompiledExpression compileNumericComparison(final int operator, final int mirroredOperator, final NumericConstant constant, final boolean constantIsLeft, final CompiledExpression operand) {
+		return new CompiledExpression() {
+			@Override
+			public Object evaluate(final Bindings b, final Map<Node, Object> d) throws NotBoundException, TypeErrorException {
+				final Object value = operand.evaluate(b, d);
+				if (value instanceof LazyLiteral && OrderPreservingCodes.isInlinedInteger(((LazyLiteral) value).getCode())) {
+					// the value of an inlined xsd:integer literal is determined without materializing it
+					return evaluateComparison(mirroredOperator, constant.compareWithInteger(OrderPreservingCodes.decodeInteger(((LazyLiteral) value).getCode()), mirroredOperator));
+				}
+				final Object valueLiteral = (value instanceof LazyLiteral) ? ((LazyLiteral) value).getLiteral() : value;
+				if (valueLiteral instanceof TypedLiteral) {
+					try {
+						final int cmp = constant.compareWith(valueLiteral, mirroredOperator);
+						if (cmp != NumericConstant.NOT_COMPARABLE) {
+							return evaluateComparison(mirroredOperator, cmp);
+						}
+					} catch (final NumberFormatException e) {
+						// use the general comparison in the following
+					}
+				}
+				return constantIsLeft ? compare(operator, constant.value, value) : compare(operator, value, constant.value);
+			}
+		};
+	}
+
+	/**
+	 * @return the result of the comparison of the operand with the constant according to the (mirrored) operator
+	 */
+	private static boolean evaluateComparison(final int mirroredOperator, final int cmp) {
+		switch (mirroredOperator) {
+			case EQUALS:
+				return cmp == 0;
+			case LESS:
+				return cmp < 0;
+			case LESS_EQUALS:
+				return cmp <= 0;
+			case GREATER:
+				return cmp > 0;
+			default:
+				return cmp >= 0;
+		}
+	}
+
+	/**
+	 * a folded constant expression
+	 */
+	private static class Constant extends CompiledExpression {
+
+		private final Object value;
+
+		public Constant(final Object value) {
+			this.value = value;
+		}
+
+		@Override
+		public Object evaluate(final Bindings b, final Map<Node, Object> d) {
+			return this.value;
+		}
+
+		@Override
+		public boolean isConstant() {
+			return true;
+		}
+	}
+
+	/**
+	 * a numeric typed literal as constant, the values of which are precomputed for all possible coercion types
+	 */
+	private static class NumericConstant {
+
+		public final static int NOT_COMPARABLE = Integer.MIN_VALUE;
+
+		private final Object value;
+		private final Object type;
+		private final BigInteger integerValue;
+		private final BigDecimal decimalValue;
+		private final Float floatValue;
+		private final Double doubleValue;
+
+		private NumericConstant(final Object value, final Object type) throws TypeErrorException {
+			this.value = value;
+			this.type = type;
+			this.integerValue = (type == BigInteger.class) ? Helper.getInteger(value) : null;
+			this.decimalValue = (type == BigInteger.class || type == BigDecimal.class) ? Helper.getBigDecimal(value) : null;
+			this.floatValue = (type == Double.class) ? null : Helper.getFloat(value);
+			this.doubleValue = Helper.getDouble(value);
+		}
+
+		/**
+		 * @return the numeric constant or null if the given constant is not a numeric typed literal
+		 */
+		public static NumericConstant create(final Object constant) {
+			final Object literal = (constant instanceof LazyLiteral) ? ((LazyLiteral) constant).getLiteral() : constant;
+			if (!(literal instanceof TypedLiteral)) {
+				return null;
+			}
+			try {
+				return new NumericConstant(constant, Helper.getType(literal));
+			} catch (final TypeErrorException e) {
+				return null;
+			} catch (final NumberFormatException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * compares the given value with this constant as done by Helper.equals(...) and Helper.greater(...) for two numeric typed literals
+		 *
+		 * @return a negative number, zero or a positive number if the value is less, equal or greater than this constant,
+		 *         or NOT_COMPARABLE if the value is not numeric
+		 */
+		public int compareWith(final Object valueLiteral, final int operator) throws NumberFormatException {
+			final Object typeOfValue;
+			try {
+				typeOfValue = Helper.getType(valueLiteral);
+			} catch (final TypeErrorException e) {
+				return NOT_COMPARABLE;
+			}
+			final Object coercionType = getCoercionType(typeOfValue, this.type);
+			try {
+				if (coercionType == BigInteger.class) {
+					return Helper.getInteger(valueLiteral).compareTo(this.integerValue);
+				} else if (coercionType == BigDecimal.class) {
+					return Helper.getBigDecimal(valueLiteral).compareTo(this.decimalValue);
+				} else if (coercionType == Float.class) {
+					return compareFloatingPoint(Helper.getFloat(valueLiteral), this.floatValue, operator);
+				} else if (coercionType == Double.class) {
+					return compareFloatingPoint(Helper.getDouble(valueLiteral), this.doubleValue, operator);
+				}
+			} catch (final TypeErrorException e) {
+				// use the general comparison
+			}
+			return NOT_COMPARABLE;
+		}
+
+		/**
+		 * compares the given value of an xsd:integer literal with this constant as done by compareWith(...)
+		 *
+		 * @return a negative number, zero or a positive number if the value is less, equal or greater than this constant
+		 */
+		public int compareWithInteger(final long value, final int operator) {
+			final Object coercionType = getCoercionType(BigInteger.class, this.type);
+			if (coercionType == BigInteger.class) {
+				return BigInteger.valueOf(value).compareTo(this.integerValue);
+			} else if (coercionType == BigDecimal.class) {
+				return BigDecimal.valueOf(value).compareTo(this.decimalValue);
+			} else if (coercionType == Float.class) {
+				return compareFloatingPoint((float) value, this.floatValue, operator);
+			} else {
+				return compareFloatingPoint((double) value, this.doubleValue, operator);
+			}
+		}
+
+		/**
+		 * equality is checked with compareTo (as in Helper.equals), but the order with the primitive operators (as in Helper.greater)
+		 */
+		private static int compareFloatingPoint(final double a, final double b, final int operator) {
+			if (operator == EQUALS) {
+				return Double.compare(a, b) == 0 ? 0 : 1;
+			}
+			if (a > b) {
+				return 1;
+			}
+			if (a < b) {
+				return -1;
+			}
+			if (operator == LESS || operator == GREATER) {
+				// neither less nor greater (e.g. for NaN), but not necessarily equal
+				return NOT_COMPARABLE;
+			}
+			return (Double.compare(a, b) == 0) ? 0 : NOT_COMPARABLE;
+		}
+
+		private static Object getCoercionType(final Object typea, final Object typeb) {
+			if (typea == BigInteger.class && typeb == BigInteger.class) {
+				return BigInteger.class;
+			} else if ((typea == BigDecimal.class || typea == BigInteger.class)
+					&& (typeb == BigDecimal.class || typeb == BigInteger.class)) {
+				return BigDecimal.class;
+			} else if ((typea == Float.class || typea == BigInteger.class || typea == BigDecimal.class)
+					&& (typeb == Float.class || typeb == BigInteger.class || typeb == BigDecimal.class)) {
+				return Float.class;
+			} else {
+				return Double.class;
+			}
+		}
+	}
+}
@@ -37,6 +37,7 @@ import lupos.datastructures.items.literal.Literal;
 import lupos.datastructures.items.literal.LiteralFactory;
 import lupos.datastructures.items.literal.TypedLiteral;
 import lupos.datastructures.items.literal.codemap.CodeMapLiteral;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
 import lupos.datastructures.items.literal.string.StringLiteral;
 import lupos.engine.operators.singleinput.TypeErrorException;
 
@@ -549,6 +550,10 @@ public class Helper {
 		} catch (final Exception e) {
 			// if failed just try out the comparisons below!
 		}
+		if (haveOrderPreservingCodes(a, b)) {
+			// different inlined codes of the same type always represent different values
+			return false;
+		}
 		if (a instanceof LazyLiteral) {
 			a = ((LazyLiteral) a).getLiteral();
 		}
@@ -802,6 +807,9 @@ public class Helper {
 		} catch(final Exception e){
 			// in case of error try below...
 		}
+		if (haveOrderPreservingCodes(a, b)) {
+			return true;
+		}
 		if (a instanceof LazyLiteral) {
 			a = ((LazyLiteral) a).getLiteral();
 		}
@@ -864,6 +872,9 @@ public class Helper {
 	 */
 	public static boolean le(final Object a, final Object b)
 			throws TypeErrorException {
+		if (haveOrderPreservingCodes(a, b)) {
+			return ((LazyLiteral) a).getCode() <= ((LazyLiteral) b).getCode();
+		}
 		return equals(a, b) || less(a, b);
 	}
 
@@ -877,6 +888,9 @@ public class Helper {
 	 */
 	public static boolean ge(final Object a, final Object b)
 			throws TypeErrorException {
+		if (haveOrderPreservingCodes(a, b)) {
+			return ((LazyLiteral) a).getCode() >= ((LazyLiteral) b).getCode();
+		}
 		return equals(a, b) || greater(a, b);
 	}
 
@@ -902,6 +916,9 @@ public class Helper {
 	 * @throws lupos.engine.operators.singleinput.TypeErrorException if any.
 	 */
 	public static boolean greater(final Object aa, final Object bb) throws TypeErrorException {
+		if (haveOrderPreservingCodes(aa, bb)) {
+			return ((LazyLiteral) aa).getCode() > ((LazyLiteral) bb).getCode();
+		}
 		Object a = aa;
 		Object b = bb;
 		if (a instanceof LazyLiteral) {
@@ -949,7 +966,10 @@ public class Helper {
 							return getBigDecimal(a).compareTo(getBigDecimal(b)) > 0;
 						}
 					} catch (final TypeErrorException tee) {
-						// ignore...
+						if (isNumeric(a) || isNumeric(b)) {
+							// a numeric value cannot be compared with a non-numeric one (as in equals(...))
+							throw tee;
+						}
 					}
 				}
 				if (a instanceof Literal) {
@@ -1012,6 +1032,18 @@ public class Helper {
 		return false;
 	}
 
+	/**
+	 * Checks whether or not two values can be compared by their codes without materializing them
+	 *
+	 * @param a the first value
+	 * @param b the second value
+	 * @return true if both values are lazy literals with inlined codes of the same type, the order of which is the order of their values
+	 */
+	public static boolean haveOrderPreservingCodes(final Object a, final Object b) {
+		return (a instanceof LazyLiteral) && (b instanceof LazyLiteral)
+				&& OrderPreservingCodes.isOrderPreserving(((LazyLiteral) a).getCode(), ((LazyLiteral) b).getCode());
+	}
+
 	/**
 	 * <p>getString.</p>
 	 *
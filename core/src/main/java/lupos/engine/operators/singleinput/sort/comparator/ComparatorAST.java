@@ -202,6 +202,9 @@ public class ComparatorAST implements ComparatorBindings {
 				// if the two lazy literals are equal, then we can avoid to materialize them!
 				if(((LazyLiteral)l0).getCode() == ((LazyLiteral)l1).getCode())
 					return 0;
+				// inlined literals of the same type are ordered by their codes
+				if(Helper.haveOrderPreservingCodes(l0, l1))
+					return (((LazyLiteral)l0).getCode() < ((LazyLiteral)l1).getCode()) ? -1 : 1;
 			}
 			l0 = ((LazyLiteral) l0).getLiteral();
 		}
@@ -49,28 +49,32 @@ public class Clear extends MultipleURIOperator {
 	/** {@inheritDoc} */
 	@Override
 	public QueryResult process(final QueryResult bindings, final int operandID) {
-		if (cu == null) {
-			// clear default graphs
-			final Collection<Indices> ci = dataset.getDefaultGraphIndices();
-			for (final Indices indices : ci) {
-				indices.clear();
-			}
-		} else {
-			for(URILiteral uri: cu){
-				boolean deleted = false;
-				Indices indices = dataset.getNamedGraphIndices(uri);
-				if (indices != null){
+		try {
+			if (cu == null) {
+				// clear default graphs
+				final Collection<Indices> ci = dataset.getDefaultGraphIndices();
+				for (final Indices indices : ci) {
 					indices.clear();
-					deleted = true;
 				}
-				indices = dataset.getDefaultGraphIndices(uri);
-				if (indices != null){
-					indices.clear();
-					deleted = true;
+			} else {
+				for(URILiteral uri: cu){
+					boolean deleted = false;
+					Indices indices = dataset.getNamedGraphIndices(uri);
+					if (indices != null){
+						indices.clear();
+						deleted = true;
+					}
+					indices = dataset.getDefaultGraphIndices(uri);
+					if (indices != null){
+						indices.clear();
+						deleted = true;
+					}
+					if(!isSilent && !deleted)
+						throw new Error("Graph "+ uri + "to be deleted does not exist!");
 				}
-				if(!isSilent && !deleted)
-					throw new Error("Graph "+ uri + "to be deleted does not exist!");
 			}
+		} finally {
+			UpdateNotification.notifyGraphsModified();
 		}
 		return null;
 	}
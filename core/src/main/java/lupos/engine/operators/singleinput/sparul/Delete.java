@@ -24,6 +24,7 @@
 package lupos.engine.operators.singleinput.sparul;
 
 import java.util.Collection;
+import java.util.LinkedList;
 
 import lupos.datastructures.items.Triple;
 import lupos.datastructures.items.literal.URILiteral;
@@ -32,10 +33,16 @@ import lupos.datastructures.queryresult.QueryResult;
 import lupos.datastructures.queryresult.QueryResultDebug;
 import lupos.engine.operators.index.Dataset;
 import lupos.engine.operators.index.Indices;
+import lupos.engine.operators.index.adaptedRDF3X.DeltaStore;
+import lupos.engine.operators.messages.Message;
+import lupos.engine.operators.messages.StartOfEvaluationMessage;
 public class Delete extends MultipleURIOperator {
 
 	protected final Dataset dataset;
 
+	// the snapshot of the data seen by the query of this operation
+	protected volatile DeltaStore.Snapshot snapshot = null;
+
 	
 	/**
 	 * <p>Constructor for Delete.</p>
@@ -48,35 +55,64 @@ public class Delete extends MultipleURIOperator {
 		this.dataset=dataset;
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public Message preProcessMessage(final StartOfEvaluationMessage msg) {
+		this.snapshot = msg.getSnapshot();
+		return msg;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public QueryResult process(QueryResult bindings, final int operandID) {
 		if(bindings instanceof QueryResultDebug)
 			bindings=((QueryResultDebug)bindings).getOriginalQueryResult();
-		if (bindings instanceof GraphResult) {
-			final GraphResult gr = (GraphResult) bindings;
-			for (final Triple t : gr.getGraphResultTriples()) {
-				if (cu == null || cu.isEmpty()) {
-					final Collection<Indices> ci = dataset.getDefaultGraphIndices();
-					for (final Indices indices : ci) {
-						indices.remove(t);
-					}
-				} else {
-					for (final URILiteral uri : cu) {
-						Indices indices = dataset.getNamedGraphIndices(uri);
-						if (indices != null)
-							indices.remove(t);
-						indices = dataset.getDefaultGraphIndices(uri);
-						if (indices != null)
-							indices.remove(t);
+		final boolean notify = UpdateNotification.hasListeners();
+		final LinkedList<Triple> modifiedTriples = new LinkedList<Triple>();
+		// the updates are committed together after all updates of this operation are done
+		DeltaStore.beginUpdate();
+		try {
+			try {
+				if (bindings instanceof GraphResult) {
+					final GraphResult gr = (GraphResult) bindings;
+					for (final Triple t : gr.getGraphResultTriples()) {
+						if(notify){
+							modifiedTriples.add(t);
+						}
+						if (cu == null || cu.isEmpty()) {
+							final Collection<Indices> ci = dataset.getDefaultGraphIndices();
+							for (final Indices indices : ci) {
+								indices.remove(t);
+							}
+						} else {
+							for (final URILiteral uri : cu) {
+								Indices indices = dataset.getNamedGraphIndices(uri);
+								if (indices != null)
+									indices.remove(t);
+								indices = dataset.getDefaultGraphIndices(uri);
+								if (indices != null)
+									indices.remove(t);
 
+							}
+						}
 					}
+				} else {
+					System.err.println("GraphResult expected instead of " + bindings.getClass());
 				}
+			} finally {
+				DeltaStore.endUpdate();
+			}
+			this.dataset.buildCompletelyAllIndices();
+			if(this.snapshot!=null){
+				// the following operations of the same query see the updates of this operation
+				this.snapshot.advance();
+			}
+		} finally {
+			// notify also about the triples modified before a failure
+			if(!modifiedTriples.isEmpty()){
+				UpdateNotification.notifyTriplesModified(modifiedTriples);
 			}
-		} else {
-			System.err.println("GraphResult expected instead of " + bindings.getClass());
 		}
-		this.dataset.buildCompletelyAllIndices();
 		return null;
 	}
 }
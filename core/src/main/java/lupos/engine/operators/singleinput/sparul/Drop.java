@@ -45,17 +45,21 @@ public class Drop extends MultipleURIOperator {
 	
 	/** {@inheritDoc} */
 	public QueryResult process(QueryResult bindings, final int operandID) {
-		for(URILiteral uri: cu){
-			Indices indices = dataset.getNamedGraphIndices(uri);
-			if (indices == null){
-				indices = dataset.getDefaultGraphIndices(uri);
+		try {
+			for(URILiteral uri: cu){
+				Indices indices = dataset.getNamedGraphIndices(uri);
 				if (indices == null){
-					if(isSilent) return null;
-					else throw new Error("Graph "+uri+" does not exist");
+					indices = dataset.getDefaultGraphIndices(uri);
+					if (indices == null){
+						if(isSilent) return null;
+						else throw new Error("Graph "+uri+" does not exist");
+					}
 				}
+				dataset.removeNamedGraphIndices(uri);
+				dataset.removeDefaultGraphIndices(uri);
 			}
-			dataset.removeNamedGraphIndices(uri);
-			dataset.removeDefaultGraphIndices(uri);
+		} finally {
+			UpdateNotification.notifyGraphsModified();
 		}
 		return null;
 	}	
@@ -24,6 +24,7 @@
 package lupos.engine.operators.singleinput.sparul;
 
 import java.util.Collection;
+import java.util.LinkedList;
 
 import lupos.datastructures.items.Triple;
 import lupos.datastructures.items.literal.URILiteral;
@@ -33,10 +34,16 @@ import lupos.datastructures.queryresult.QueryResult;
 import lupos.datastructures.queryresult.QueryResultDebug;
 import lupos.engine.operators.index.Dataset;
 import lupos.engine.operators.index.Indices;
+import lupos.engine.operators.index.adaptedRDF3X.DeltaStore;
+import lupos.engine.operators.messages.Message;
+import lupos.engine.operators.messages.StartOfEvaluationMessage;
 public class Insert extends MultipleURIOperator {
 
 	protected final Dataset dataset;
 
+	// the snapshot of the data seen by the query of this operation
+	protected volatile DeltaStore.Snapshot snapshot = null;
+
 	/**
 	 * <p>Constructor for Insert.</p>
 	 *
@@ -48,46 +55,75 @@ public class Insert extends MultipleURIOperator {
 		this.dataset=dataset;
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public Message preProcessMessage(final StartOfEvaluationMessage msg) {
+		this.snapshot = msg.getSnapshot();
+		return msg;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public QueryResult process(QueryResult bindings, final int operandID) {
 		if(bindings instanceof QueryResultDebug)
 			bindings=((QueryResultDebug)bindings).getOriginalQueryResult();
-		if (bindings instanceof GraphResult) {
-			final GraphResult gr = (GraphResult) bindings;
-			for (final Triple t : gr.getGraphResultTriples()) {
-				if (cu == null || cu.isEmpty()) {
-					final Collection<Indices> ci = this.dataset.getDefaultGraphIndices();
-					for (final Indices indices : ci) {
-						indices.add(t);
-					}
-				} else {
-					for (final URILiteral uri : cu) {
-						boolean flag = false;
-						Indices indices = this.dataset.getNamedGraphIndices(uri);
-						if (indices != null){
-							flag = true;
-							indices.add(t);
-						}
-						indices = this.dataset.getDefaultGraphIndices(uri);
-						if (indices != null){
-							flag = true;
-							indices.add(t);
+		final boolean notify = UpdateNotification.hasListeners();
+		final LinkedList<Triple> modifiedTriples = new LinkedList<Triple>();
+		// the updates are committed together after all updates of this operation are done
+		DeltaStore.beginUpdate();
+		try {
+			try {
+				if (bindings instanceof GraphResult) {
+					final GraphResult gr = (GraphResult) bindings;
+					for (final Triple t : gr.getGraphResultTriples()) {
+						if(notify){
+							modifiedTriples.add(t);
 						}
-						if(!flag){
-							try {
-								this.dataset.addNamedGraph(uri, new StringURILiteral("<inlinedata:"+t.getSubject()+" "+t.getPredicate()+" "+t.getObject()+".>"), false, false);
-							} catch (Exception e) {
-								System.err.println(e);
-								e.printStackTrace();
+						if (cu == null || cu.isEmpty()) {
+							final Collection<Indices> ci = this.dataset.getDefaultGraphIndices();
+							for (final Indices indices : ci) {
+								indices.add(t);
+							}
+						} else {
+							for (final URILiteral uri : cu) {
+								boolean flag = false;
+								Indices indices = this.dataset.getNamedGraphIndices(uri);
+								if (indices != null){
+									flag = true;
+									indices.add(t);
+								}
+								indices = this.dataset.getDefaultGraphIndices(uri);
+								if (indices != null){
+									flag = true;
+									indices.add(t);
+								}
+								if(!flag){
+									try {
+										this.dataset.addNamedGraph(uri, new StringURILiteral("<inlinedata:"+t.getSubject()+" "+t.getPredicate()+" "+t.getObject()+".>"), false, false);
+									} catch (Exception e) {
+										System.err.println(e);
+										e.printStackTrace();
+									}
+								}
 							}
 						}
 					}
-				}
+				} else
+					System.err.println("GraphResult expected instead of " + bindings.getClass());
+			} finally {
+				DeltaStore.endUpdate();
+			}
+			this.dataset.buildCompletelyAllIndices();
+			if(this.snapshot!=null){
+				// the following operations of the same query see the updates of this operation
+				this.snapshot.advance();
+			}
+		} finally {
+			// notify also about the triples modified before a failure
+			if(!modifiedTriples.isEmpty()){
+				UpdateNotification.notifyTriplesModified(modifiedTriples);
 			}
-		} else
-			System.err.println("GraphResult expected instead of " + bindings.getClass());
-		this.dataset.buildCompletelyAllIndices();
+		}
 		return null;
 	}
 }
@@ -90,11 +90,14 @@ public class Load extends MultipleURIOperator {
 			} catch (final Exception e) {
 				e.printStackTrace();
 				System.err.println(e);
-				if(!isSilent)
+				if(!isSilent){
+					UpdateNotification.notifyGraphsModified();
 					throw new Error("Error while loading: "+e.getMessage());
+				}
 			}
 		}
 		this.dataset.buildCompletelyAllIndices();
+		UpdateNotification.notifyGraphsModified();
 		return null;
 	}
 
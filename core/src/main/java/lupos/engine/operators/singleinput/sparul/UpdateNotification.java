@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.engine.operators.singleinput.sparul;
+
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import lupos.datastructures.items.Triple;
+
+/**
+ * This class notifies registered listeners about modifications of the data by SPARUL operations
+ * (e.g., for invalidating cached query results).
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public final class UpdateNotification {
+
+	private UpdateNotification() {
+	}
+
+	/**
+	 * The interface for listeners to be notified about modifications of the data
+	 */
+	public static interface UpdateListener {
+		/**
+		 * This method is called after triples have been inserted or deleted.
+		 *
+		 * @param triples the inserted or deleted triples
+		 */
+		public void triplesModified(Collection<Triple> triples);
+
+		/**
+		 * This method is called after whole graphs have been modified (e.g. by LOAD, CLEAR or DROP),
+		 * i.e., the modified triples are not known.
+		 */
+		public void graphsModified();
+	}
+
+	private final static CopyOnWriteArrayList<UpdateListener> listeners = new CopyOnWriteArrayList<UpdateListener>();
+
+	/**
+	 * <p>addListener.</p>
+	 *
+	 * @param listener the listener to be notified about modifications of the data
+	 */
+	public static void addListener(final UpdateListener listener){
+		UpdateNotification.listeners.add(listener);
+	}
+
+	/**
+	 * <p>removeListener.</p>
+	 *
+	 * @param listener the listener, which should not be notified any more
+	 */
+	public static void removeListener(final UpdateListener listener){
+		UpdateNotification.listeners.remove(listener);
+	}
+
+	/**
+	 * <p>hasListeners.</p>
+	 *
+	 * @return true if there are registered listeners, i.e., if the modified triples need to be collected
+	 */
+	public static boolean hasListeners(){
+		return !UpdateNotification.listeners.isEmpty();
+	}
+
+	/**
+	 * notifies all listeners about inserted or deleted triples
+	 *
+	 * @param triples the inserted or deleted triples
+	 */
+	public static void notifyTriplesModified(final Collection<Triple> triples){
+		for(final UpdateListener listener: UpdateNotification.listeners){
+			listener.triplesModified(triples);
+		}
+	}
+
+	/**
+	 * notifies all listeners about modified graphs
+	 */
+	public static void notifyGraphsModified(){
+		for(final UpdateListener listener: UpdateNotification.listeners){
+			listener.graphsModified();
+		}
+	}
+}
@@ -30,6 +30,7 @@ import java.net.URISyntaxException;
 
 import lupos.datastructures.bindings.Bindings;
 import lupos.datastructures.bindings.BindingsArray;
+import lupos.datastructures.bindings.BindingsArrayCodes;
 import lupos.datastructures.bindings.BindingsArrayPresortingNumbers;
 import lupos.datastructures.bindings.BindingsArrayReadTriples;
 import lupos.datastructures.bindings.BindingsArrayVarMinMax;
@@ -60,7 +61,7 @@ public class BINDINGS extends DeSerializerConsideringSubClasses<Bindings> {
 		return new Class[] { Bindings.class, BindingsArray.class,
 				BindingsMap.class, BindingsArrayPresortingNumbers.class,
 				BindingsArrayVarMinMax.class,
-				BindingsArrayReadTriples.class };
+				BindingsArrayReadTriples.class, BindingsArrayCodes.class };
 	}
 
 	/** {@inheritDoc} */
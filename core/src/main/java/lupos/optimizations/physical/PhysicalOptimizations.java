@@ -792,6 +792,7 @@ public class PhysicalOptimizations {
 
 		if (basicOperator instanceof RDF3XIndexScan) {
 			((RDF3XIndexScan) basicOperator).setCollationOrder(sortCriterium);
+			((RDF3XIndexScan) basicOperator).setSortedResultRequired(true);
 			return true;
 		} else if (basicOperator.getClass() == Union.class) {
 			final LinkedList<BasicOperator> llbo = new LinkedList<BasicOperator>();
@@ -0,0 +1,541 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.optimizations.physical;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LazyLiteral;
+import lupos.datastructures.items.literal.Literal;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.items.literal.TypedLiteral;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
+import lupos.engine.operators.BasicOperator;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan.CollationOrder;
+import lupos.engine.operators.singleinput.filter.Filter;
+import lupos.engine.operators.singleinput.filter.expressionevaluation.Helper;
+import lupos.engine.operators.tripleoperator.TriplePattern;
+import lupos.optimizations.logical.rules.generated.runtime.Rule;
+import lupos.sparql1_1.ASTAndNode;
+import lupos.sparql1_1.ASTDoubleCircumflex;
+import lupos.sparql1_1.ASTEqualsNode;
+import lupos.sparql1_1.ASTFilterConstraint;
+import lupos.sparql1_1.ASTFloatingPoint;
+import lupos.sparql1_1.ASTGreaterThanEqualsNode;
+import lupos.sparql1_1.ASTGreaterThanNode;
+import lupos.sparql1_1.ASTInteger;
+import lupos.sparql1_1.ASTLangTag;
+import lupos.sparql1_1.ASTLessThanEqualsNode;
+import lupos.sparql1_1.ASTLessThanNode;
+import lupos.sparql1_1.ASTRDFLiteral;
+import lupos.sparql1_1.ASTRegexFuncNode;
+import lupos.sparql1_1.ASTStrFuncNode;
+import lupos.sparql1_1.ASTStringLiteral;
+import lupos.sparql1_1.ASTStrstartsFuncNode;
+import lupos.sparql1_1.ASTVar;
+import lupos.sparql1_1.Node;
+
+/**
+ * This rule translates filters directly succeeding an RDF3X index scan into minimum and maximum codes of the index scan.
+ * Considered are filters, which restrict a variable of the triple pattern
+ * <ul>
+ * <li>to string representations with a given prefix (STRSTARTS(?v, "prefix"), STRSTARTS(STR(?v), "prefix") and REGEX(?v, "^prefix")), or</li>
+ * <li>to numeric values in a given interval (comparisons like ?v &gt; 5 or ?v &lt;= 10.5 with xsd:integer or xsd:decimal constants).</li>
+ * </ul>
+ * The codes are determined by scanning the sorted dictionary and by computing the inlined codes of integers
+ * (see {@link lupos.datastructures.items.literal.codemap.OrderPreservingCodes}), such that the determined code range
+ * is always a superset of the codes of the values fulfilling the filter.
+ * The filters themselves remain in the operator graph and remove the remaining false positives.
+ * If the collation order of the index scan is not required by succeeding operators, the collation order is chosen such that the
+ * restricted variable is sorted directly after the constants of the triple pattern and the index scan becomes a range scan.
+ *
+ * This rule is applied after the physical optimization (see {@link lupos.engine.evaluators.BasicIndexQueryEvaluator#physicalOptimization()})
+ * if {@link lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan#pushDownRangeFilters} is set.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class PushRangeFilterIntoIndexScanRule extends Rule {
+
+	/**
+	 * the possible beginnings of the string representations in the dictionary (iris, literals with different quotes and blank nodes)
+	 */
+	private final static String[] BEGINNINGS = { "<", "\"", "'", "\"\"\"", "'''", "_" };
+
+	/**
+	 * the possible quotes of literals in the dictionary
+	 */
+	private final static String[] QUOTES = { "\"", "'", "\"\"\"", "'''" };
+
+	/**
+	 * the possible first characters of lexical representations of numeric literals (including INF and NaN and leading whitespaces)
+	 */
+	private final static String NUMERIC_BEGINNINGS = "0123456789+-.IN \t\n\r";
+
+	/**
+	 * the characters with special meaning in regular expressions
+	 */
+	private final static String REGEX_META_CHARACTERS = ".[]{}()*+?^$|\\";
+
+	private RDF3XIndexScan indexScan = null;
+	private Map<Variable, Literal> newMinima = null;
+	private Map<Variable, Literal> newMaxima = null;
+	private CollationOrder newCollationOrder = null;
+
+	/**
+	 * the already determined code ranges for prefixes (avoids scanning the dictionary several times during applying the rule)
+	 */
+	private final HashMap<String, int[]> codeRangesOfPrefixes = new HashMap<String, int[]>();
+
+	/**
+	 * true if the code range of the numeric literals in the dictionary is already determined
+	 */
+	private boolean numericLiteralsScanned = false;
+
+	/**
+	 * the code range of the numeric literals in the dictionary (an empty array if there are no numeric literals in the dictionary,
+	 * and null if there are too many of them)
+	 */
+	private int[] codeRangeOfNumericLiterals = null;
+
+	/**
+	 * <p>Constructor for PushRangeFilterIntoIndexScanRule.</p>
+	 */
+	public PushRangeFilterIntoIndexScanRule() {
+		this.startOpClass = lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan.class;
+		this.ruleName = "Push Range Filter Into Index Scan";
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected boolean check(final BasicOperator _op) {
+		if (!RDF3XIndexScan.pushDownRangeFilters || !(_op instanceof RDF3XIndexScan)) {
+			return false;
+		}
+		final LiteralFactory.MapType mapType = LiteralFactory.getMapType();
+		if (mapType != LiteralFactory.MapType.LAZYLITERAL && mapType != LiteralFactory.MapType.LAZYLITERALWITHOUTINITIALPREFIXCODEMAP) {
+			return false;
+		}
+		final RDF3XIndexScan scan = (RDF3XIndexScan) _op;
+		if (scan.getTriplePattern() == null || scan.getTriplePattern().size() != 1) {
+			return false;
+		}
+		final TriplePattern tp = scan.getTriplePattern().iterator().next();
+
+		// collect the range filters of the filters directly succeeding the index scan
+		final LinkedList<Object[]> prefixFilters = new LinkedList<Object[]>();
+		final HashMap<Variable, NumericRange> numericRanges = new HashMap<Variable, NumericRange>();
+		BasicOperator current = scan;
+		while (current.getSucceedingOperators().size() == 1) {
+			final BasicOperator next = current.getSucceedingOperators().get(0).getOperator();
+			if (next.getClass() != Filter.class || next.getPrecedingOperators().size() != 1) {
+				break;
+			}
+			PushRangeFilterIntoIndexScanRule.collectRangeFilters(((Filter) next).getNodePointer(), prefixFilters, numericRanges);
+			current = next;
+		}
+		if (prefixFilters.isEmpty() && numericRanges.isEmpty()) {
+			return false;
+		}
+
+		// determine the code ranges of the restricted variables
+		final HashMap<Variable, int[]> ranges = new HashMap<Variable, int[]>();
+		for (final Object[] prefixFilter : prefixFilters) {
+			final Variable var = (Variable) prefixFilter[0];
+			if (tp.getPos(var) >= 0) {
+				PushRangeFilterIntoIndexScanRule.intersect(ranges, var, this.getCodeRange((String) prefixFilter[1]));
+			}
+		}
+		for (final Map.Entry<Variable, NumericRange> entry : numericRanges.entrySet()) {
+			if (tp.getPos(entry.getKey()) >= 0) {
+				PushRangeFilterIntoIndexScanRule.intersect(ranges, entry.getKey(), this.getCodeRange(entry.getValue()));
+			}
+		}
+
+		// intersect with the already existing minima and maxima and check whether or not the index scan is further restricted
+		final Map<Variable, Literal> minima = (scan.getMinima() == null) ? new HashMap<Variable, Literal>() : new HashMap<Variable, Literal>(scan.getMinima());
+		final Map<Variable, Literal> maxima = (scan.getMaxima() == null) ? new HashMap<Variable, Literal>() : new HashMap<Variable, Literal>(scan.getMaxima());
+		boolean changed = false;
+		Variable narrowestVariable = null;
+		long narrowestRange = Long.MAX_VALUE;
+		for (final Map.Entry<Variable, int[]> entry : ranges.entrySet()) {
+			final Variable var = entry.getKey();
+			final int[] range = entry.getValue();
+			final Literal oldMin = minima.get(var);
+			final Literal oldMax = maxima.get(var);
+			if ((oldMin != null && !(oldMin instanceof LazyLiteral)) || (oldMax != null && !(oldMax instanceof LazyLiteral))) {
+				continue;
+			}
+			if (oldMin == null || ((LazyLiteral) oldMin).getCode() < range[0]) {
+				minima.put(var, new LazyLiteral(range[0]));
+				changed = true;
+			}
+			if (oldMax == null || ((LazyLiteral) oldMax).getCode() > range[1]) {
+				maxima.put(var, new LazyLiteral(range[1]));
+				changed = true;
+			}
+			final long width = (long) ((LazyLiteral) maxima.get(var)).getCode() - ((LazyLiteral) minima.get(var)).getCode();
+			if (width < narrowestRange) {
+				narrowestRange = width;
+				narrowestVariable = var;
+			}
+		}
+		if (!changed) {
+			return false;
+		}
+
+		// choose a collation order, for which the index scan becomes a range scan (if allowed)
+		this.newCollationOrder = scan.getCollationOrder();
+		if (!scan.isSortedResultRequired() && !PushRangeFilterIntoIndexScanRule.isRangeScan(tp, scan.getCollationOrder(), narrowestVariable)) {
+			final List<Variable> sortCriterium = new LinkedList<Variable>();
+			sortCriterium.add(narrowestVariable);
+			this.newCollationOrder = CollationOrder.getCollationOrder(tp, sortCriterium);
+		}
+		this.indexScan = scan;
+		this.newMinima = minima;
+		this.newMaxima = maxima;
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void replace(final HashMap<Class<?>, HashSet<BasicOperator>> _startNodes) {
+		this.indexScan.setMinimaMaxima(this.newMinima, this.newMaxima);
+		this.indexScan.setCollationOrder(this.newCollationOrder);
+	}
+
+	/**
+	 * Intersects the code range of a variable with another code range
+	 *
+	 * @param ranges the code ranges of the variables
+	 * @param var the variable
+	 * @param range the other code range, or null if it is unknown
+	 */
+	private static void intersect(final HashMap<Variable, int[]> ranges, final Variable var, final int[] range) {
+		if (range == null) {
+			return;
+		}
+		final int[] oldRange = ranges.get(var);
+		if (oldRange == null) {
+			ranges.put(var, range);
+		} else {
+			ranges.put(var, new int[] { Math.max(oldRange[0], range[0]), Math.min(oldRange[1], range[1]) });
+		}
+	}
+
+	/**
+	 * Checks whether or not the restricted variable directly follows the constants of the triple pattern in the given collation order,
+	 * i.e., whether or not the minimum and maximum of the variable restrict the scanned key range.
+	 *
+	 * @param tp the triple pattern of the index scan
+	 * @param collationOrder the collation order of the index scan
+	 * @param var the restricted variable
+	 * @return true if the index scan with the given collation order is a range scan for the variable
+	 */
+	private static boolean isRangeScan(final TriplePattern tp, final CollationOrder collationOrder, final Variable var) {
+		for (int i = 0; i < 3; i++) {
+			final int pos = collationOrder.getSortCriterium(i);
+			if (tp.getPos(pos).isVariable()) {
+				return tp.getPos(pos).equals(var);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines the code range of all string representations in the dictionary, which may fulfill a prefix filter.
+	 * The prefix filter is evaluated on the string representation without its first (and last) character(s),
+	 * such that all possible beginnings of iris, literals and blank nodes are considered.
+	 * The constant of the filter is not added to the dictionary (see {@link #getConstantWithoutDictionary(Node)}),
+	 * such that it is only in the dictionary if it is used in the data or in an update or in another expression.
+	 *
+	 * @param prefix the prefix of the filter
+	 * @return the code range { minimum, maximum } or null if it cannot be determined or no string representation matches
+	 */
+	private int[] getCodeRange(final String prefix) {
+		if (this.codeRangesOfPrefixes.containsKey(prefix)) {
+			return this.codeRangesOfPrefixes.get(prefix);
+		}
+		int[] result = null;
+		if (!OrderPreservingCodes.mayBeInlined(prefix)) {
+			// inlined literals are not contained in the dictionary, and thus only prefixes of non-inlined literals are supported
+			final int[] range = PushRangeFilterIntoIndexScanRule.getCodeRangeOfPrefixes(PushRangeFilterIntoIndexScanRule.BEGINNINGS, prefix);
+			if (range != null && range.length == 2) {
+				result = range;
+			}
+		}
+		this.codeRangesOfPrefixes.put(prefix, result);
+		return result;
+	}
+
+	/**
+	 * Determines the code range of all values, which may fulfill the numeric comparisons of a variable.
+	 * This is the union of the codes of the numeric literals in the dictionary and the inlined codes of the integers in the range.
+	 * Other values (like strings, dates or iris) do not fulfill numeric comparisons, as comparing them with a numeric value is a type error.
+	 *
+	 * @param numericRange the range of the numeric values
+	 * @return the code range { minimum, maximum } or null if it cannot be determined or no value matches
+	 */
+	private int[] getCodeRange(final NumericRange numericRange) {
+		if (!this.numericLiteralsScanned) {
+			this.numericLiteralsScanned = true;
+			int min = Integer.MAX_VALUE;
+			int max = Integer.MIN_VALUE;
+			for (int i = 0; i < PushRangeFilterIntoIndexScanRule.NUMERIC_BEGINNINGS.length(); i++) {
+				final int[] range = PushRangeFilterIntoIndexScanRule.getCodeRangeOfPrefixes(PushRangeFilterIntoIndexScanRule.QUOTES, PushRangeFilterIntoIndexScanRule.NUMERIC_BEGINNINGS.substring(i, i + 1));
+				if (range == null) {
+					this.codeRangeOfNumericLiterals = null;
+					return null;
+				}
+				if (range.length == 2) {
+					min = Math.min(min, range[0]);
+					max = Math.max(max, range[1]);
+				}
+			}
+			this.codeRangeOfNumericLiterals = (min > max) ? new int[0] : new int[] { min, max };
+		}
+		if (this.codeRangeOfNumericLiterals == null) {
+			// too many numeric literals in the dictionary
+			return null;
+		}
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		if (this.codeRangeOfNumericLiterals.length == 2) {
+			min = this.codeRangeOfNumericLiterals[0];
+			max = this.codeRangeOfNumericLiterals[1];
+		}
+		if (OrderPreservingCodes.INLINING) {
+			final BigDecimal smallestInlined = BigDecimal.valueOf(OrderPreservingCodes.MININTEGER);
+			final BigDecimal largestInlined = BigDecimal.valueOf(OrderPreservingCodes.MAXINTEGER);
+			BigDecimal lower = smallestInlined;
+			if (numericRange.min != null) {
+				lower = (numericRange.minIncluded) ? numericRange.min.setScale(0, RoundingMode.CEILING) : numericRange.min.setScale(0, RoundingMode.FLOOR).add(BigDecimal.ONE);
+				lower = lower.max(smallestInlined);
+			}
+			BigDecimal upper = largestInlined;
+			if (numericRange.max != null) {
+				upper = (numericRange.maxIncluded) ? numericRange.max.setScale(0, RoundingMode.FLOOR) : numericRange.max.setScale(0, RoundingMode.CEILING).subtract(BigDecimal.ONE);
+				upper = upper.min(largestInlined);
+			}
+			if (lower.compareTo(upper) <= 0) {
+				min = Math.min(min, OrderPreservingCodes.encodeInteger(lower.longValue()));
+				max = Math.max(max, OrderPreservingCodes.encodeInteger(upper.longValue()));
+			}
+		}
+		return (min > max) ? null : new int[] { min, max };
+	}
+
+	/**
+	 * Determines the code range of all string representations in the dictionary, which start with one of the given beginnings followed by a given string.
+	 *
+	 * @param beginnings the possible beginnings
+	 * @param string the string following the beginnings
+	 * @return the code range { minimum, maximum }, an empty array if no string representation matches,
+	 * or null if the range cannot be determined (see {@link lupos.datastructures.items.literal.LazyLiteral#getCodeRangeOfPrefix(String, int)})
+	 */
+	private static int[] getCodeRangeOfPrefixes(final String[] beginnings, final String string) {
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for (final String beginning : beginnings) {
+			final int[] range = LazyLiteral.getCodeRangeOfPrefix(beginning + string, RDF3XIndexScan.maxDictionaryEntriesForRangeFilters);
+			if (range == null) {
+				return null;
+			}
+			if (range.length == 2) {
+				min = Math.min(min, range[0]);
+				max = Math.max(max, range[1]);
+			}
+		}
+		return (min > max) ? new int[0] : new int[] { min, max };
+	}
+
+	/**
+	 * Collects the prefix filters and numeric comparisons of a filter expression, which are combined by conjunctions.
+	 *
+	 * @param node the filter expression
+	 * @param prefixFilters the list of found prefix filters, each of them stored as array { variable, prefix }
+	 * @param numericRanges the ranges of the numeric values of the variables according to the found numeric comparisons
+	 */
+	private static void collectRangeFilters(final Node node, final List<Object[]> prefixFilters, final Map<Variable, NumericRange> numericRanges) {
+		if (node instanceof ASTFilterConstraint) {
+			PushRangeFilterIntoIndexScanRule.collectRangeFilters(node.jjtGetChild(0), prefixFilters, numericRanges);
+		} else if (node instanceof ASTAndNode) {
+			for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+				PushRangeFilterIntoIndexScanRule.collectRangeFilters(node.jjtGetChild(i), prefixFilters, numericRanges);
+			}
+		} else if (node instanceof ASTStrstartsFuncNode || (node instanceof ASTRegexFuncNode && node.jjtGetNumChildren() == 2)) {
+			Node varNode = node.jjtGetChild(0);
+			if (varNode instanceof ASTStrFuncNode) {
+				varNode = varNode.jjtGetChild(0);
+			}
+			if (!(varNode instanceof ASTVar)) {
+				return;
+			}
+			try {
+				final Literal constant = PushRangeFilterIntoIndexScanRule.getConstantWithoutDictionary(node.jjtGetChild(1));
+				if (constant == null || Helper.isNumeric(constant)) {
+					return;
+				}
+				String prefix;
+				if (node instanceof ASTStrstartsFuncNode) {
+					prefix = Helper.unquote(Helper.getContent(constant));
+				} else {
+					String pattern = Helper.getString(constant);
+					String oldPattern;
+					do {
+						oldPattern = pattern;
+						pattern = pattern.replace("\\\\", "\\");
+					} while (oldPattern.compareTo(pattern) != 0);
+					if (!pattern.startsWith("^")) {
+						return;
+					}
+					prefix = pattern.substring(1);
+					for (int i = 0; i < prefix.length(); i++) {
+						if (PushRangeFilterIntoIndexScanRule.REGEX_META_CHARACTERS.indexOf(prefix.charAt(i)) >= 0) {
+							return;
+						}
+					}
+				}
+				if (prefix.length() == 0 || prefix.indexOf('\\') >= 0) {
+					return;
+				}
+				prefixFilters.add(new Object[] { new Variable(((ASTVar) varNode).getName()), prefix });
+			} catch (final Exception e) {
+				// the constant cannot be evaluated => no prefix filter
+			}
+		} else if (node instanceof ASTLessThanNode || node instanceof ASTLessThanEqualsNode || node instanceof ASTGreaterThanNode
+				|| node instanceof ASTGreaterThanEqualsNode || node instanceof ASTEqualsNode) {
+			final boolean varFirst = node.jjtGetChild(0) instanceof ASTVar;
+			final Node varNode = node.jjtGetChild(varFirst ? 0 : 1);
+			if (!(varNode instanceof ASTVar)) {
+				return;
+			}
+			final BigDecimal value = PushRangeFilterIntoIndexScanRule.getNumericConstant(node.jjtGetChild(varFirst ? 1 : 0));
+			if (value == null) {
+				return;
+			}
+			final Variable var = new Variable(((ASTVar) varNode).getName());
+			NumericRange range = numericRanges.get(var);
+			if (range == null) {
+				range = new NumericRange();
+				numericRanges.put(var, range);
+			}
+			if (node instanceof ASTEqualsNode) {
+				range.restrictMin(value, true);
+				range.restrictMax(value, true);
+			} else {
+				final boolean included = (node instanceof ASTLessThanEqualsNode || node instanceof ASTGreaterThanEqualsNode);
+				// ?v > c restricts the minimum of ?v, c > ?v its maximum
+				if ((node instanceof ASTGreaterThanNode || node instanceof ASTGreaterThanEqualsNode) == varFirst) {
+					range.restrictMin(value, included);
+				} else {
+					range.restrictMax(value, included);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determines the literal of a constant of a prefix filter without adding it to the dictionary.
+	 * The literal is stored in the node of the constant, such that also the evaluation of the filter does not add it to the dictionary.
+	 * Otherwise the code of the constant would widen the code ranges determined for later queries with the same prefix.
+	 *
+	 * @param node the node of the constant
+	 * @return the literal, or null if the node is not a string literal
+	 */
+	private static Literal getConstantWithoutDictionary(final Node node) {
+		final Node n = (node instanceof ASTRDFLiteral) ? node.jjtGetChild(0) : node;
+		if (n instanceof ASTStringLiteral) {
+			return ((ASTStringLiteral) n).getLiteral(false);
+		} else if (n instanceof ASTDoubleCircumflex) {
+			return ((ASTDoubleCircumflex) n).getLiteral(false);
+		} else if (n instanceof ASTLangTag) {
+			return ((ASTLangTag) n).getLiteral(false);
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Determines the value of a numeric constant of a comparison.
+	 * Comparisons of integers with float or double values are not exact (the integers are converted to float or double values),
+	 * such that only xsd:integer and xsd:decimal constants are supported.
+	 *
+	 * @param node the node of the constant
+	 * @return the value of the constant, or null if the node is not an xsd:integer or xsd:decimal constant
+	 */
+	private static BigDecimal getNumericConstant(final Node node) {
+		if (!(node instanceof ASTInteger || node instanceof ASTFloatingPoint || node instanceof ASTRDFLiteral)) {
+			return null;
+		}
+		try {
+			final Literal literal = LazyLiteral.getLiteral(node, false);
+			if (!(literal instanceof TypedLiteral)) {
+				return null;
+			}
+			final Object type = Helper.getType(literal);
+			if (type != BigInteger.class && type != BigDecimal.class) {
+				return null;
+			}
+			return Helper.getBigDecimal(literal);
+		} catch (final Exception e) {
+			// no numeric constant
+			return null;
+		}
+	}
+
+	/**
+	 * The range of the numeric values of a variable
+	 */
+	private static class NumericRange {
+		private BigDecimal min = null;
+		private boolean minIncluded = true;
+		private BigDecimal max = null;
+		private boolean maxIncluded = true;
+
+		private void restrictMin(final BigDecimal value, final boolean included) {
+			final int compare = (this.min == null) ? 1 : value.compareTo(this.min);
+			if (compare > 0 || (compare == 0 && !included)) {
+				this.min = value;
+				this.minIncluded = included;
+			}
+		}
+
+		private void restrictMax(final BigDecimal value, final boolean included) {
+			final int compare = (this.max == null) ? -1 : value.compareTo(this.max);
+			if (compare < 0 || (compare == 0 && !included)) {
+				this.max = value;
+				this.maxIncluded = included;
+			}
+		}
+	}
+}
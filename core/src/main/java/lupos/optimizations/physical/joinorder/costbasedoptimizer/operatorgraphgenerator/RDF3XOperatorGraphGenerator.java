@@ -234,9 +234,11 @@ public class RDF3XOperatorGraphGenerator extends OperatorGraphGenerator {
 			}
 			if (left instanceof RDF3XIndexScan) {
 				((RDF3XIndexScan) left).setCollationOrder(inp.getJoinPartner());
+				((RDF3XIndexScan) left).setSortedResultRequired(true);
 			}
 			if (right instanceof RDF3XIndexScan) {
 				((RDF3XIndexScan) right).setCollationOrder(inp.getJoinPartner());
+				((RDF3XIndexScan) right).setSortedResultRequired(true);
 			}
 		} else {
 			if (inp.getJoinType() == JoinType.MERGEJOIN) {
@@ -333,9 +335,11 @@ public class RDF3XOperatorGraphGenerator extends OperatorGraphGenerator {
 				last = join;
 				if (left instanceof RDF3XIndexScan) {
 					((RDF3XIndexScan) left).setCollationOrder(inp.getJoinPartner());
+					((RDF3XIndexScan) left).setSortedResultRequired(true);
 				}
 				if (right instanceof RDF3XIndexScan) {
 					((RDF3XIndexScan) right).setCollationOrder(inp.getJoinPartner());
+					((RDF3XIndexScan) right).setSortedResultRequired(true);
 				}
 			} else {
 				join = new Join();
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.optimizations.physical.joinorder.worstcaseoptimal;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import lupos.datastructures.items.Item;
+import lupos.datastructures.items.Variable;
+import lupos.engine.operators.OperatorIDTuple;
+import lupos.engine.operators.index.BasicIndexScan;
+import lupos.engine.operators.index.Root;
+import lupos.engine.operators.index.adaptedRDF3X.LeapfrogTriejoinIndexScan;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan;
+import lupos.engine.operators.tripleoperator.TriplePattern;
+import lupos.optimizations.physical.joinorder.RearrangeJoinOrder;
+
+/**
+ * This physical optimization replaces the joins of cyclic basic graph patterns (like triangles or cliques)
+ * by one worst-case optimal Leapfrog Triejoin operator (see {@link lupos.engine.operators.index.adaptedRDF3X.LeapfrogTriejoinIndexScan}).
+ * For acyclic basic graph patterns, binary or n-ary joins are not worse, such that the usual join order optimization should be applied for them.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class LeapfrogTriejoinOptimizer implements RearrangeJoinOrder {
+
+	/**
+	 * if true, cyclic basic graph patterns are evaluated by the Leapfrog Triejoin operator when using the RDF3X query evaluator
+	 */
+	public static boolean enabled = false;
+
+	/** {@inheritDoc} */
+	@Override
+	public void rearrangeJoinOrder(final Root newRoot, final BasicIndexScan indexScan) {
+		final LeapfrogTriejoinIndexScan leapfrogTriejoin = new LeapfrogTriejoinIndexScan(indexScan.getSucceedingOperators(), indexScan.getTriplePattern(), indexScan.getGraphConstraint(), indexScan.getRoot());
+		newRoot.addSucceedingOperator(new OperatorIDTuple(leapfrogTriejoin, 0));
+	}
+
+	/**
+	 * Static method to replace the joins of the triple patterns of an index scan operator by the Leapfrog Triejoin operator
+	 *
+	 * @param indexScan the IndexScan operator with the triple patterns to join, for which {@link #isApplicable(BasicIndexScan)} must return true
+	 * @return the root operator under which the Leapfrog Triejoin operator is inserted
+	 */
+	public static Root rearrangeJoinOrder(final BasicIndexScan indexScan){
+		final Root newRoot = indexScan.getRoot().newInstance(indexScan.getRoot().dataset);
+		new LeapfrogTriejoinOptimizer().rearrangeJoinOrder(newRoot, indexScan);
+		return newRoot;
+	}
+
+	/**
+	 * Checks whether or not the triple patterns of the given index scan operator should be joined by the Leapfrog Triejoin operator.
+	 * This is the case if this optimization is enabled, the basic graph pattern is cyclic,
+	 * each triple pattern contains at least one variable, but no variable twice,
+	 * and the triple patterns are not evaluated over several default graphs (which would require merging their indices).
+	 *
+	 * @param indexScan the index scan operator to be checked
+	 * @return true if the Leapfrog Triejoin operator should be used
+	 */
+	public static boolean isApplicable(final BasicIndexScan indexScan){
+		if(!LeapfrogTriejoinOptimizer.enabled || !(indexScan instanceof RDF3XIndexScan) || indexScan instanceof LeapfrogTriejoinIndexScan){
+			return false;
+		}
+		final Collection<TriplePattern> triplePatterns = indexScan.getTriplePattern();
+		if(triplePatterns == null || triplePatterns.size() < 3){
+			return false;
+		}
+		for(final TriplePattern tp: triplePatterns){
+			int numberOfVariables = 0;
+			for(final Item item: tp.getItems()){
+				if(item.isVariable()){
+					numberOfVariables++;
+				}
+			}
+			if(numberOfVariables == 0 || numberOfVariables != tp.getVariables().size()){
+				return false;
+			}
+		}
+		if(indexScan.getGraphConstraint() == null && LeapfrogTriejoinOptimizer.hasSeveralDefaultGraphs(indexScan.getRoot())){
+			return false;
+		}
+		return LeapfrogTriejoinOptimizer.isCyclic(triplePatterns);
+	}
+
+	private static boolean hasSeveralDefaultGraphs(final Root root){
+		if(root.defaultGraphs != null && !root.defaultGraphs.isEmpty()){
+			return root.defaultGraphs.size() > 1;
+		}
+		final Collection<?> defaultGraphIndices = (root.dataset == null) ? null : root.dataset.getDefaultGraphIndices();
+		return defaultGraphIndices != null && defaultGraphIndices.size() > 1;
+	}
+
+	/**
+	 * Checks whether or not the hypergraph of the given triple patterns (with the variables as nodes and the triple patterns as hyperedges) is cyclic.
+	 * This is done by the GYO reduction, which repeatedly removes variables occurring in only one triple pattern
+	 * and triple patterns the variables of which are contained in another triple pattern.
+	 * The hypergraph is acyclic if and only if the GYO reduction removes all triple patterns.
+	 *
+	 * @param triplePatterns the triple patterns to be checked
+	 * @return true if the basic graph pattern is cyclic
+	 */
+	public static boolean isCyclic(final Collection<TriplePattern> triplePatterns){
+		final List<Set<Variable>> hyperedges = new LinkedList<Set<Variable>>();
+		for(final TriplePattern tp: triplePatterns){
+			hyperedges.add(new HashSet<Variable>(tp.getVariables()));
+		}
+		boolean changed = true;
+		while(changed && !hyperedges.isEmpty()){
+			changed = false;
+			// remove variables occurring in only one hyperedge
+			for(final Set<Variable> hyperedge: hyperedges){
+				final Iterator<Variable> it = hyperedge.iterator();
+				while(it.hasNext()){
+					final Variable var = it.next();
+					boolean occursElsewhere = false;
+					for(final Set<Variable> other: hyperedges){
+						if(other != hyperedge && other.contains(var)){
+							occursElsewhere = true;
+							break;
+						}
+					}
+					if(!occursElsewhere){
+						it.remove();
+						changed = true;
+					}
+				}
+			}
+			// remove hyperedges contained in other hyperedges
+			final Iterator<Set<Variable>> it = hyperedges.iterator();
+			while(it.hasNext()){
+				final Set<Variable> hyperedge = it.next();
+				boolean contained = hyperedge.isEmpty();
+				if(!contained){
+					for(final Set<Variable> other: hyperedges){
+						if(other != hyperedge && other.containsAll(hyperedge)){
+							contained = true;
+							break;
+						}
+					}
+				}
+				if(contained){
+					it.remove();
+					changed = true;
+				}
+			}
+		}
+		return !hyperedges.isEmpty();
+	}
+}
@@ -0,0 +1,364 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.rdf.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lupos.compression.Compression;
+import lupos.datastructures.items.Triple;
+import lupos.datastructures.parallel.BoundedBuffer;
+import lupos.engine.evaluators.CommonCoreQueryEvaluator;
+import lupos.engine.operators.tripleoperator.TripleConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class parses line-based RDF data (like N-Triples or N-Quads) in parallel:
+ * The input is split into chunks at line boundaries, which are parsed by several threads with the parser of the given format.
+ * Each thread collects its triples in an own batch, which is handed over as a whole to the triple consumer, i.e.,
+ * the order of the triples is not preserved.
+ *
+ * As the chunks are parsed independently of each other, prefix declarations and statements spanning several lines
+ * are not supported, and the encoding must represent a line break by a single '\n' byte (like UTF-8 or ISO-8859-1).
+ *
+ * Files are memory-mapped chunk by chunk, other input streams are read into chunks by one thread.
+ * If a chunk cannot be parsed, the remaining chunks are not parsed any more and the error is thrown to the caller.
+ * The same applies if the calling thread is interrupted, in which case an InterruptedIOException is thrown and the interrupt flag is kept.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class ChunkedParallelParser {
+
+	private static final Logger log = LoggerFactory.getLogger(ChunkedParallelParser.class);
+
+	// the (minimum) size of a chunk in bytes (a chunk is extended until the next line break)
+	/** Constant <code>CHUNK_SIZE=4 * 1024 * 1024</code> */
+	public static int CHUNK_SIZE = 4 * 1024 * 1024;
+
+	// the number of threads parsing the chunks
+	/** Constant <code>NUMBER_OF_THREADS=Runtime.getRuntime().availableProcessors()</code> */
+	public static int NUMBER_OF_THREADS = Runtime.getRuntime().availableProcessors();
+
+	// the number of triples collected by a thread before they are handed over to the triple consumer
+	/** Constant <code>BATCH_SIZE=1000</code> */
+	public static int BATCH_SIZE = 1000;
+
+	private ChunkedParallelParser() {
+	}
+
+	/**
+	 * Parses the given file in parallel, the chunks of the file are memory-mapped.
+	 *
+	 * @param type the format of the data (e.g. N3 or SIMPLENQUADS), compressed files are not supported
+	 * @param file the file to be parsed
+	 * @param tc the triple consumer, which consumes the parsed triples batch by batch
+	 * @param encoding the encoding of the data
+	 * @return the number of parsed triples
+	 * @throws java.io.IOException if any.
+	 */
+	public static int parseRDFData(final String type, final File file, final TripleConsumer tc, final String encoding) throws IOException {
+		final BoundedBuffer<InputStream> chunks = new BoundedBuffer<InputStream>(2 * ChunkedParallelParser.NUMBER_OF_THREADS);
+		final Parsers parsers = new Parsers(type, chunks, tc, encoding);
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			final long size = channel.size();
+			long start = 0;
+			while (start < size && !parsers.failed()) {
+				// determine the end of the chunk: the next line break after the minimum size of a chunk
+				long end = Math.min(start + ChunkedParallelParser.CHUNK_SIZE, size);
+				if (end < size) {
+					raf.seek(end);
+					int next = raf.read();
+					while (next != -1 && next != '\n') {
+						next = raf.read();
+					}
+					end = raf.getFilePointer();
+				}
+				chunks.put(new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+				start = end;
+			}
+		} catch (final InterruptedException e) {
+			parsers.interrupted(e);
+		} finally {
+			chunks.endOfData();
+			parsers.join();
+			raf.close();
+		}
+		parsers.throwError();
+		return parsers.getNumberOfTriples();
+	}
+
+	/**
+	 * Parses the given input stream in parallel: The input stream is read chunk by chunk, and the chunks are parsed in parallel.
+	 *
+	 * @param type the format of the data (e.g. N3 or SIMPLENQUADS), optionally preceded by the compression (BZIP2, GZIP or HUFFMAN)
+	 * @param in the input stream to be parsed
+	 * @param tc the triple consumer, which consumes the parsed triples batch by batch
+	 * @param encoding the encoding of the data
+	 * @return the number of parsed triples
+	 * @throws java.io.IOException if any.
+	 */
+	public static int parseRDFData(final String type, final InputStream in, final TripleConsumer tc, final String encoding) throws IOException {
+		if (type.startsWith("BZIP2")) {
+			return ChunkedParallelParser.parseRDFData(type.substring(5), Compression.BZIP2.createInputStream(in), tc, encoding);
+		} else if (type.startsWith("GZIP")) {
+			return ChunkedParallelParser.parseRDFData(type.substring(4), Compression.GZIP.createInputStream(in), tc, encoding);
+		} else if (type.startsWith("HUFFMAN")) {
+			return ChunkedParallelParser.parseRDFData(type.substring(7), Compression.HUFFMAN.createInputStream(in), tc, encoding);
+		}
+		final BoundedBuffer<InputStream> chunks = new BoundedBuffer<InputStream>(2 * ChunkedParallelParser.NUMBER_OF_THREADS);
+		final Parsers parsers = new Parsers(type, chunks, tc, encoding);
+		try {
+			byte[] chunk = new byte[ChunkedParallelParser.CHUNK_SIZE];
+			int length = 0;
+			int read;
+			while (!parsers.failed() && (read = in.read(chunk, length, chunk.length - length)) != -1) {
+				length += read;
+				if (length == chunk.length) {
+					// the chunk is full: hand over all complete lines and keep the remaining bytes for the next chunk
+					int lastLineBreak = length - 1;
+					while (lastLineBreak >= 0 && chunk[lastLineBreak] != '\n') {
+						lastLineBreak--;
+					}
+					final byte[] nextChunk;
+					if (lastLineBreak < 0) {
+						// a single line is longer than the chunk: enlarge the chunk
+						nextChunk = new byte[2 * chunk.length];
+						System.arraycopy(chunk, 0, nextChunk, 0, length);
+					} else {
+						chunks.put(new ByteArrayInputStream(chunk, 0, lastLineBreak + 1));
+						nextChunk = new byte[Math.max(ChunkedParallelParser.CHUNK_SIZE, 2 * (length - lastLineBreak - 1))];
+						length = length - lastLineBreak - 1;
+						System.arraycopy(chunk, lastLineBreak + 1, nextChunk, 0, length);
+					}
+					chunk = nextChunk;
+				}
+			}
+			if (length > 0 && !parsers.failed()) {
+				chunks.put(new ByteArrayInputStream(chunk, 0, length));
+			}
+		} catch (final InterruptedException e) {
+			parsers.interrupted(e);
+		} finally {
+			chunks.endOfData();
+			parsers.join();
+			in.close();
+		}
+		parsers.throwError();
+		return parsers.getNumberOfTriples();
+	}
+
+	/**
+	 * The threads parsing the chunks...
+	 */
+	private static class Parsers {
+
+		private final Thread[] threads = new Thread[ChunkedParallelParser.NUMBER_OF_THREADS];
+		private final AtomicInteger numberOfTriples = new AtomicInteger();
+		// the first error during parsing a chunk
+		private final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		private final BoundedBuffer<InputStream> chunks;
+
+		public Parsers(final String type, final BoundedBuffer<InputStream> chunks, final TripleConsumer tc, final String encoding) {
+			this.chunks = chunks;
+			for (int i = 0; i < this.threads.length; i++) {
+				this.threads[i] = new Thread() {
+					@Override
+					public void run() {
+						final BatchingTripleConsumer batchingTC = new BatchingTripleConsumer(tc);
+						try {
+							InputStream chunk;
+							while ((chunk = chunks.get()) != null) {
+								CommonCoreQueryEvaluator.readTriplesWithoutMultipleFilesUncompressed(type, chunk, batchingTC, encoding);
+							}
+							batchingTC.flush();
+						} catch (final Throwable e) {
+							// stop parsing the other chunks (stopping the buffer also avoids that the thread reading the chunks waits forever)
+							Parsers.this.error.compareAndSet(null, e);
+							chunks.stopIt();
+						}
+						Parsers.this.numberOfTriples.addAndGet(batchingTC.getNumberOfTriples());
+					}
+				};
+				this.threads[i].start();
+			}
+		}
+
+		/**
+		 * Waits for the threads parsing the chunks.
+		 * If the calling thread is interrupted meanwhile, the remaining chunks are not parsed any more,
+		 * but the threads are still waited for (such that the triple consumer is not used any more after returning).
+		 */
+		public void join() {
+			boolean interrupted = false;
+			for (final Thread thread : this.threads) {
+				while (true) {
+					try {
+						thread.join();
+						break;
+					} catch (final InterruptedException e) {
+						if (!interrupted) {
+							interrupted = true;
+							this.interrupted(e);
+							// the interrupt flag is restored after all threads have finished
+							Thread.interrupted();
+						}
+					}
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Stops parsing after the calling thread has been interrupted: The remaining chunks are not parsed any more,
+		 * the interrupt flag is restored and an InterruptedIOException is thrown by throwError().
+		 *
+		 * @param e the caught exception
+		 */
+		public void interrupted(final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			final InterruptedIOException interruptedIOException = new InterruptedIOException("Interrupted while parsing in parallel!");
+			interruptedIOException.initCause(e);
+			this.error.compareAndSet(null, interruptedIOException);
+			this.chunks.stopIt();
+		}
+
+		public int getNumberOfTriples() {
+			return this.numberOfTriples.get();
+		}
+
+		/**
+		 * @return true if parsing a chunk failed
+		 */
+		public boolean failed() {
+			return this.error.get() != null;
+		}
+
+		/**
+		 * Throws the first error during parsing a chunk (if any)
+		 *
+		 * @throws IOException if parsing a chunk failed
+		 */
+		public void throwError() throws IOException {
+			final Throwable e = this.error.get();
+			if (e instanceof IOException) {
+				throw (IOException) e;
+			} else if (e != null) {
+				throw new IOException("Parsing a chunk failed: " + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Collects the triples of one thread and hands them over batch by batch to the underlying triple consumer.
+	 * The underlying triple consumer is synchronized during handing over a batch.
+	 */
+	private static class BatchingTripleConsumer implements TripleConsumer {
+
+		private final TripleConsumer tc;
+		private final Triple[] batch = new Triple[ChunkedParallelParser.BATCH_SIZE];
+		private int index = 0;
+		private int numberOfTriples = 0;
+
+		public BatchingTripleConsumer(final TripleConsumer tc) {
+			this.tc = tc;
+		}
+
+		@Override
+		public void consume(final Triple triple) {
+			this.batch[this.index] = triple;
+			this.index++;
+			if (this.index == this.batch.length) {
+				this.flush();
+			}
+		}
+
+		public void flush() {
+			synchronized (this.tc) {
+				for (int i = 0; i < this.index; i++) {
+					this.tc.consume(this.batch[i]);
+					this.batch[i] = null;
+				}
+			}
+			this.numberOfTriples += this.index;
+			this.index = 0;
+		}
+
+		public int getNumberOfTriples() {
+			return this.numberOfTriples;
+		}
+	}
+
+	/**
+	 * Input stream reading from a (memory-mapped) byte buffer
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		public ByteBufferInputStream(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			return this.buffer.get() & 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			final int length = Math.min(len, this.buffer.remaining());
+			this.buffer.get(b, off, length);
+			return length;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return this.buffer.remaining();
+		}
+	}
+}
@@ -55,6 +55,7 @@ import lupos.engine.operators.singleinput.ComputeBindings;
 import lupos.engine.operators.singleinput.Construct;
 import lupos.engine.operators.singleinput.Group;
 import lupos.engine.operators.singleinput.GroupByAddComputedBinding;
+import lupos.engine.operators.singleinput.HashGroup;
 import lupos.engine.operators.singleinput.Having;
 import lupos.engine.operators.singleinput.MakeBooleanResult;
 import lupos.engine.operators.singleinput.Projection;
@@ -1229,11 +1230,16 @@ public abstract class SPARQLCoreParserVisitorImplementation implements
 
 		LinkedList<AddComputedBinding> listOACB = new LinkedList<AddComputedBinding>();
 		boolean group = false;
+		HashGroup hashGroup = null;
 
 		for (int i = 0; i < numberChildren; i++) {
 			final Node childi = node.jjtGetChild(i);
 			if (childi instanceof ASTGroup) {
 				group = true;
+				// evaluate the group clause by hash aggregation if possible
+				if (HashGroup.isApplicable(node)) {
+					hashGroup = new HashGroup((ASTGroup) childi);
+				}
 			}
 		}
 
@@ -1275,6 +1281,15 @@ public abstract class SPARQLCoreParserVisitorImplementation implements
 				connection.connectAndSetAsNewOperatorConnection(new Distinct());
 			}
 			listOACB = this.topologicalSorting(listOfAddComputedBindings);
+			if (hashGroup != null) {
+				// the computed bindings are evaluated for each group by the hash aggregation
+				// (in the order of the data flow, i.e., in reverse order of connecting them)
+				final Iterator<AddComputedBinding> acbIterator = listOACB.descendingIterator();
+				while (acbIterator.hasNext()) {
+					hashGroup.addProjection(acbIterator.next());
+				}
+				listOACB = new LinkedList<AddComputedBinding>();
+			}
 			connection.connectAndSetAsNewOperatorConnection(p);
 		}
 
@@ -1299,7 +1314,11 @@ public abstract class SPARQLCoreParserVisitorImplementation implements
 								.jjtGetChild(k));
 						this.processExistChildren(node, graphConstraint, filter);
 						filter.setEvaluator(this.evaluator);
-						connection.connectAndSetAsNewOperatorConnection(filter);
+						if (hashGroup != null) {
+							hashGroup.addHaving(filter);
+						} else {
+							connection.connectAndSetAsNewOperatorConnection(filter);
+						}
 					}
 				}
 
@@ -1313,7 +1332,10 @@ public abstract class SPARQLCoreParserVisitorImplementation implements
 			ASTVar variable = null;
 			final Node childi = node.jjtGetChild(j);
 			onlyAggregations = true;
-			if (childi instanceof ASTGroup) {
+			if (childi instanceof ASTGroup && hashGroup != null) {
+				// the hash aggregation replaces sorting, grouping and computing the bindings of the group clause
+				connection.connectAndSetAsNewOperatorConnection(hashGroup, 0);
+			} else if (childi instanceof ASTGroup) {
 				for (int i = 0; i < childi.jjtGetNumChildren(); i++) {
 					if (childi.jjtGetChild(i) instanceof ASTAdditionNode
 							|| childi.jjtGetChild(i) instanceof ASTSubtractionNode
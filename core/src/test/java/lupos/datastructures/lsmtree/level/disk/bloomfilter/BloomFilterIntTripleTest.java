@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.datastructures.lsmtree.level.disk.bloomfilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan.CollationOrder;
+
+import org.junit.Test;
+
+/**
+ * Checks that bloom filters are read in with the number of hash functions with which they have been written
+ * and that bloom filters of another format are rejected.
+ *
+ * @author groppe
+ */
+public class BloomFilterIntTripleTest {
+
+	private static final int NUMBEROFTRIPLES = 10000;
+
+	private static BloomFilterIntTriple createFilter(final long maximumRunLength) {
+		final BloomFilterIntTriple filter = new BloomFilterIntTriple(CollationOrder.SPO, maximumRunLength);
+		for (int i = 1; i <= BloomFilterIntTripleTest.NUMBEROFTRIPLES; i++) {
+			filter.set(new int[] { i, i % 10 + 1, i % 100 + 1 });
+		}
+		return filter;
+	}
+
+	private static void assertContainsAll(final BloomFilterIntTriple filter) {
+		for (int i = 1; i <= BloomFilterIntTripleTest.NUMBEROFTRIPLES; i++) {
+			assertTrue(filter.get(new int[] { i, i % 10 + 1, i % 100 + 1 }));
+			assertTrue(filter.getPrefix(new int[] { i, -1, -1 }));
+			assertTrue(filter.getPrefix(new int[] { i, i % 10 + 1, -1 }));
+		}
+	}
+
+	@Test
+	public void testNumberOfHashFunctionsIsPersisted() throws IOException {
+		// both bloom filters have the maximum size, but use a different number of hash functions
+		final BloomFilterIntTriple written = BloomFilterIntTripleTest.createFilter(10000000);
+		final BloomFilterIntTriple reading = new BloomFilterIntTriple(CollationOrder.SPO, 1000000);
+		assertEquals(written.size, reading.size);
+		assertTrue(written.numberOfHashFunctions < reading.numberOfHashFunctions);
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		written.writeLuposObject(out);
+		reading.readLuposObject(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(written.numberOfHashFunctions, reading.numberOfHashFunctions);
+		BloomFilterIntTripleTest.assertContainsAll(reading);
+	}
+
+	@Test
+	public void testOldFormatIsRejected() throws IOException {
+		final BloomFilterIntTriple written = BloomFilterIntTripleTest.createFilter(BloomFilterIntTripleTest.NUMBEROFTRIPLES);
+		// bloom filters were written without header before
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		written.bitvectorAll.writeWithoutSize(out);
+		written.bitvectorFirst.writeWithoutSize(out);
+		written.bitvectorFirstSecond.writeWithoutSize(out);
+		try {
+			new BloomFilterIntTriple(CollationOrder.SPO, BloomFilterIntTripleTest.NUMBEROFTRIPLES).readLuposObject(new ByteArrayInputStream(out.toByteArray()));
+			fail("bloom filter in old format is not rejected");
+		} catch (final IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testOtherSizeIsRejected() throws IOException {
+		final BloomFilterIntTriple written = BloomFilterIntTripleTest.createFilter(BloomFilterIntTripleTest.NUMBEROFTRIPLES);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		written.writeLuposObject(out);
+		try {
+			new BloomFilterIntTriple(CollationOrder.SPO, 2 * BloomFilterIntTripleTest.NUMBEROFTRIPLES).readLuposObject(new ByteArrayInputStream(out.toByteArray()));
+			fail("bloom filter of another size is not rejected");
+		} catch (final IOException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsArray;
+import lupos.datastructures.bindings.BindingsArrayCodes;
+import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.items.BindingsComparator;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.items.literal.URILiteral;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.engine.evaluators.RDF3XQueryEvaluator;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that queries return the same solutions with intermediate solutions storing the codes of the literals
+ * (option --codebindings) and with intermediate solutions storing literal objects.
+ *
+ * @author groppe
+ */
+public class TestBindingsArrayCodes {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private final static int PERSONS = 200;
+
+	private final static String prefix = "PREFIX foaf: <http://xmlns.com/foaf/0.1/> PREFIX ex: <http://example.org/> ";
+
+	private final static String[] queries = {
+		// joins
+		"SELECT * WHERE { ?a foaf:knows ?b . ?a foaf:name ?n . }",
+		"SELECT * WHERE { ?a foaf:knows ?b . ?b foaf:knows ?c . ?c ex:basedNear ?city . }",
+		// optional, union and minus (partially bound solutions)
+		"SELECT * WHERE { ?a foaf:knows ?b . OPTIONAL { ?b ex:basedNear ?c . } }",
+		"SELECT * WHERE { { ?a ex:basedNear ?c . } UNION { ?a foaf:knows ?c . } }",
+		"SELECT * WHERE { ?a foaf:knows ?b . MINUS { ?b ex:basedNear ?c . } }",
+		// duplicate elimination, grouping and sorting
+		"SELECT DISTINCT ?b WHERE { ?a foaf:knows ?b . }",
+		"SELECT ?c (COUNT(?a) AS ?n) WHERE { ?a ex:basedNear ?c . ?a foaf:knows ?b . } GROUP BY ?c",
+		"SELECT * WHERE { ?a foaf:name ?n . } ORDER BY DESC(?n) LIMIT 20",
+		// literals, which are not stored as codes
+		"SELECT * WHERE { ?a foaf:name ?n . BIND(STRLEN(?n) AS ?l) ?a foaf:knows ?b . FILTER(?l > 8) }",
+		"SELECT DISTINCT ?l WHERE { ?a foaf:name ?n . BIND(STRLEN(?n) AS ?l) }"
+	};
+
+	private static RDF3XQueryEvaluator evaluator;
+
+	private static Class<? extends Bindings> instanceClassAfterInit;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		final StringBuilder data = new StringBuilder();
+		for(int i=0; i<PERSONS; i++){
+			final String person = "<http://example.org/person/" + i + ">";
+			data.append(person + " <http://xmlns.com/foaf/0.1/knows> <http://example.org/person/" + ((i * 7 + 1) % PERSONS) + "> .\n");
+			data.append(person + " <http://xmlns.com/foaf/0.1/knows> <http://example.org/person/" + ((i * 13 + 5) % PERSONS) + "> .\n");
+			data.append(person + " <http://xmlns.com/foaf/0.1/name> \"Person " + i + "\" .\n");
+			if(i % 3 == 0){
+				data.append(person + " <http://example.org/basedNear> <http://example.org/city/" + (i % 4) + "> .\n");
+			}
+		}
+		final File file = TestBindingsArrayCodes.folder.newFile("persons.n3");
+		Files.write(file.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+
+		TestBindingsArrayCodes.evaluator = new RDF3XQueryEvaluator(new String[]{ "--codebindings", "--codemap", "LAZYLITERALWITHOUTINITIALPREFIXCODEMAP", "--tmpdir", TestBindingsArrayCodes.folder.newFolder().getAbsolutePath() });
+		TestBindingsArrayCodes.instanceClassAfterInit = Bindings.instanceClass;
+		final LinkedList<URILiteral> defaultGraphs = new LinkedList<URILiteral>();
+		defaultGraphs.add(LiteralFactory.createURILiteralWithoutLazyLiteral("<file:" + file.getAbsolutePath() + ">"));
+		TestBindingsArrayCodes.evaluator.prepareInputData(defaultGraphs, new LinkedList<URILiteral>());
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		Bindings.instanceClass = BindingsArray.class;
+	}
+
+	private static List<String> evaluate(final String query, final Class<? extends Bindings> instanceClass) throws Exception {
+		Bindings.instanceClass = instanceClass;
+		TestBindingsArrayCodes.evaluator.setBindingsFactory(BindingsFactory.createBindingsFactory());
+		final QueryResult queryResult = TestBindingsArrayCodes.evaluator.getResult(TestBindingsArrayCodes.prefix + query);
+		final List<String> result = new ArrayList<String>();
+		for(final Bindings bindings: queryResult){
+			assertEquals(instanceClass, bindings.getClass());
+			final StringBuilder solution = new StringBuilder();
+			for(final Variable var: new TreeSet<Variable>(bindings.getVariableSet())){
+				solution.append(var).append('=').append(bindings.get(var)).append(' ');
+			}
+			result.add(solution.toString());
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	@Test
+	public void testEvaluatorOption() {
+		assertEquals(BindingsArrayCodes.class, TestBindingsArrayCodes.instanceClassAfterInit);
+	}
+
+	@Test
+	public void testSameResults() throws Exception {
+		for(final String query: TestBindingsArrayCodes.queries){
+			final List<String> expected = TestBindingsArrayCodes.evaluate(query, BindingsArray.class);
+			assertTrue(query, !expected.isEmpty());
+			assertEquals(query, expected, TestBindingsArrayCodes.evaluate(query, BindingsArrayCodes.class));
+		}
+	}
+
+	@Test
+	public void testCompareCodesWithoutOverflow() {
+		Bindings.instanceClass = BindingsArrayCodes.class;
+		final Variable x = new Variable("x");
+		final BindingsFactory bindingsFactory = BindingsFactory.createBindingsFactory(new Variable[]{ x });
+		final BindingsComparator comparator = new BindingsComparator();
+		comparator.setVariables(Arrays.asList(x));
+		final Bindings small = new BindingsArrayCodes(bindingsFactory, new int[]{ Integer.MIN_VALUE + 1 });
+		final Bindings large = new BindingsArrayCodes(bindingsFactory, new int[]{ Integer.MAX_VALUE });
+		assertTrue(comparator.compare(small, large) < 0);
+		assertTrue(comparator.compare(large, small) > 0);
+		assertEquals(0, comparator.compare(large, new BindingsArrayCodes(bindingsFactory, new int[]{ Integer.MAX_VALUE })));
+	}
+}
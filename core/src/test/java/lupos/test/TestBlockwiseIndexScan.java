@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsBlock;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.items.literal.URILiteral;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.engine.evaluators.RDF3XQueryEvaluator;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that queries return the same solutions with and without delivering the solutions of
+ * RDF3X index scans in blocks of codes (option --blockwiseindexscans).
+ * The blocks are made small such that the solutions of each triple pattern span many blocks.
+ *
+ * @author groppe
+ */
+public class TestBlockwiseIndexScan {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private final static int PERSONS = 300;
+
+	private final static String prefix = "PREFIX foaf: <http://xmlns.com/foaf/0.1/> PREFIX ex: <http://example.org/> ";
+
+	private final static String[] queries = {
+		// merge join of two index scans on the same sort order (joins the blocks)
+		"SELECT * WHERE { ?a foaf:knows ?b . ?a foaf:name ?n . }",
+		// filter and projection on blocks
+		"SELECT ?a ?b WHERE { ?a foaf:knows ?b . ?a ex:basedNear ?c . FILTER(?b != <http://example.org/person/7>) }",
+		// join on a variable, which is not the first in the sort order of one of the operands
+		"SELECT * WHERE { ?a foaf:knows ?b . ?b ex:basedNear ?c . }",
+		// operators, which do not consume blocks
+		"SELECT * WHERE { ?a foaf:knows ?b . OPTIONAL { ?b ex:basedNear ?c . } }",
+		"SELECT * WHERE { { ?a ex:basedNear ?c . } UNION { ?a foaf:knows ?c . } }",
+		"SELECT ?c (COUNT(?a) AS ?n) WHERE { ?a ex:basedNear ?c . ?a foaf:knows ?b . } GROUP BY ?c",
+		"SELECT DISTINCT ?b WHERE { ?a foaf:knows ?b . }",
+		// the same variable twice in a triple pattern
+		"SELECT * WHERE { ?a foaf:knows ?a . }"
+	};
+
+	private static RDF3XQueryEvaluator evaluator;
+
+	private static boolean blockwiseAfterInit;
+
+	private static int blockSize;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		final StringBuilder data = new StringBuilder();
+		for(int i=0; i<PERSONS; i++){
+			final String person = "<http://example.org/person/" + i + ">";
+			data.append(person + " <http://xmlns.com/foaf/0.1/knows> <http://example.org/person/" + ((i * 7 + 1) % PERSONS) + "> .\n");
+			data.append(person + " <http://xmlns.com/foaf/0.1/knows> <http://example.org/person/" + ((i * 13 + 5) % PERSONS) + "> .\n");
+			data.append(person + " <http://xmlns.com/foaf/0.1/name> \"Person " + i + "\" .\n");
+			if(i % 3 == 0){
+				data.append(person + " <http://example.org/basedNear> <http://example.org/city/" + (i % 4) + "> .\n");
+			}
+		}
+		// a person knowing itself
+		data.append("<http://example.org/person/0> <http://xmlns.com/foaf/0.1/knows> <http://example.org/person/0> .\n");
+		final File file = TestBlockwiseIndexScan.folder.newFile("persons.n3");
+		Files.write(file.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+
+		TestBlockwiseIndexScan.blockSize = BindingsBlock.BLOCKSIZE;
+		BindingsBlock.BLOCKSIZE = 16;
+		TestBlockwiseIndexScan.evaluator = new RDF3XQueryEvaluator(new String[]{ "--blockwiseindexscans", "--optimization", "MERGEJOIN", "--codemap", "LAZYLITERALWITHOUTINITIALPREFIXCODEMAP", "--tmpdir", TestBlockwiseIndexScan.folder.newFolder().getAbsolutePath() });
+		TestBlockwiseIndexScan.blockwiseAfterInit = RDF3XIndexScan.blockwise;
+		final LinkedList<URILiteral> defaultGraphs = new LinkedList<URILiteral>();
+		defaultGraphs.add(LiteralFactory.createURILiteralWithoutLazyLiteral("<file:" + file.getAbsolutePath() + ">"));
+		TestBlockwiseIndexScan.evaluator.prepareInputData(defaultGraphs, new LinkedList<URILiteral>());
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		BindingsBlock.BLOCKSIZE = TestBlockwiseIndexScan.blockSize;
+		RDF3XIndexScan.blockwise = false;
+	}
+
+	private static List<String> evaluate(final String query, final boolean blockwise) throws Exception {
+		RDF3XIndexScan.blockwise = blockwise;
+		final QueryResult queryResult = TestBlockwiseIndexScan.evaluator.getResult(TestBlockwiseIndexScan.prefix + query);
+		final List<String> result = new ArrayList<String>();
+		for(final Bindings bindings: queryResult){
+			final StringBuilder solution = new StringBuilder();
+			for(final Variable var: new TreeSet<Variable>(bindings.getVariableSet())){
+				solution.append(var).append('=').append(bindings.get(var)).append(' ');
+			}
+			result.add(solution.toString());
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	@Test
+	public void testEvaluatorOption() {
+		assertTrue(TestBlockwiseIndexScan.blockwiseAfterInit);
+	}
+
+	@Test
+	public void testSameResults() throws Exception {
+		for(final String query: TestBlockwiseIndexScan.queries){
+			final List<String> expected = TestBlockwiseIndexScan.evaluate(query, false);
+			assertEquals(query, expected, TestBlockwiseIndexScan.evaluate(query, true));
+		}
+	}
+
+	@Test
+	public void testResultsSpanSeveralBlocks() throws Exception {
+		assertEquals(2 * PERSONS + 1, TestBlockwiseIndexScan.evaluate(TestBlockwiseIndexScan.queries[0], true).size());
+		assertEquals(1, TestBlockwiseIndexScan.evaluate(TestBlockwiseIndexScan.queries[7], true).size());
+	}
+
+	@Test
+	public void testLimitStopsReadingBlocks() throws Exception {
+		// the index scan is closed before all of its blocks have been read
+		assertEquals(5, TestBlockwiseIndexScan.evaluate("SELECT * WHERE { ?a foaf:knows ?b . ?a foaf:name ?n . } LIMIT 5", true).size());
+		assertEquals(TestBlockwiseIndexScan.evaluate(TestBlockwiseIndexScan.queries[0], false), TestBlockwiseIndexScan.evaluate(TestBlockwiseIndexScan.queries[0], true));
+	}
+}
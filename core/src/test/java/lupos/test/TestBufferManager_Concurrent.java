@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lupos.datastructures.buffermanager.BufferManager.PageAddress;
+import lupos.datastructures.buffermanager.BufferManager_Concurrent;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that pinned pages are not evicted by the concurrent buffer manager
+ * and that concurrent readers and writers always see the latest content of the pages while pages are evicted.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class TestBufferManager_Concurrent {
+
+	private static final int PAGESIZE = 128;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private long oldMaxBytesInBuffer;
+
+	private String filename;
+
+	/**
+	 * counts the pages read from disk
+	 */
+	private static class CountingBufferManager extends BufferManager_Concurrent {
+
+		private final ConcurrentHashMap<PageAddress, AtomicInteger> reads = new ConcurrentHashMap<PageAddress, AtomicInteger>();
+
+		@Override
+		protected void readPage(final int pagesize, final PageAddress pageaddress, final byte[] pageContent) throws IOException {
+			this.reads.putIfAbsent(pageaddress, new AtomicInteger());
+			this.reads.get(pageaddress).incrementAndGet();
+			super.readPage(pagesize, pageaddress, pageContent);
+		}
+
+		public int getReads(final PageAddress pageaddress){
+			final AtomicInteger reads = this.reads.get(pageaddress);
+			return (reads == null)? 0 : reads.get();
+		}
+	}
+
+	@Before
+	public void setUp() {
+		this.oldMaxBytesInBuffer = BufferManager_Concurrent.getMaxBytesInBuffer();
+		this.filename = new File(this.folder.getRoot(), "pages").getAbsolutePath();
+	}
+
+	@After
+	public void tearDown() {
+		BufferManager_Concurrent.setMaxBytesInBuffer(this.oldMaxBytesInBuffer);
+	}
+
+	private static byte[] content(final int pagenumber, final int version){
+		final byte[] page = new byte[PAGESIZE];
+		for(int i=0; i<PAGESIZE; i++){
+			page[i] = (byte) (pagenumber * 31 + version * 7 + i);
+		}
+		return page;
+	}
+
+	private void scan(final BufferManager_Concurrent bufferManager, final int from, final int to) throws IOException {
+		for(int i=from; i<to; i++){
+			Assert.assertArrayEquals(content(i, 0), bufferManager.getPage(PAGESIZE, new PageAddress(i, this.filename)));
+		}
+	}
+
+	@Test
+	public void testPinnedPagesAreNotEvicted() throws Exception {
+		BufferManager_Concurrent.setMaxBytesInBuffer(4 * PAGESIZE);
+		final CountingBufferManager bufferManager = new CountingBufferManager();
+		try {
+			final int numberOfPages = 100;
+			for(int i=0; i<numberOfPages; i++){
+				bufferManager.modifyPage(PAGESIZE, new PageAddress(i, this.filename), content(i, 0));
+			}
+			final PageAddress pinned = new PageAddress(0, this.filename);
+			Assert.assertArrayEquals(content(0, 0), bufferManager.pinPage(PAGESIZE, pinned));
+			final int reads = bufferManager.getReads(pinned);
+			this.scan(bufferManager, 1, numberOfPages);
+			// the pinned page is still in the buffer...
+			Assert.assertArrayEquals(content(0, 0), bufferManager.getPage(PAGESIZE, pinned));
+			Assert.assertEquals(reads, bufferManager.getReads(pinned));
+			// ... but evicted after unpinning it
+			bufferManager.unpinPage(pinned);
+			this.scan(bufferManager, 1, numberOfPages);
+			Assert.assertArrayEquals(content(0, 0), bufferManager.getPage(PAGESIZE, pinned));
+			Assert.assertEquals(reads + 1, bufferManager.getReads(pinned));
+			// more pinned pages than fitting into the buffer
+			for(int i=0; i<10; i++){
+				bufferManager.pinPage(PAGESIZE, new PageAddress(i, this.filename));
+			}
+			this.scan(bufferManager, 0, numberOfPages);
+			for(int i=0; i<10; i++){
+				bufferManager.unpinPage(new PageAddress(i, this.filename));
+			}
+			this.scan(bufferManager, 0, numberOfPages);
+		} finally {
+			bufferManager.close();
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void testConcurrentReadersAndWriters() throws Exception {
+		// much less pages fit into the buffer than are accessed
+		BufferManager_Concurrent.setMaxBytesInBuffer(16 * PAGESIZE);
+		final BufferManager_Concurrent bufferManager = new BufferManager_Concurrent(4);
+		try {
+			final int numberOfThreads = 8;
+			final int pagesPerThread = 20;
+			final int sharedPages = 50;
+			final int firstSharedPage = numberOfThreads * pagesPerThread;
+			for(int i=0; i<sharedPages; i++){
+				bufferManager.modifyPage(PAGESIZE, new PageAddress(firstSharedPage + i, this.filename), content(firstSharedPage + i, 0));
+			}
+			final int[][] versions = new int[numberOfThreads][pagesPerThread];
+			final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+			final Thread[] threads = new Thread[numberOfThreads];
+			for(int t=0; t<numberOfThreads; t++){
+				final int thread = t;
+				threads[t] = new Thread() {
+					@Override
+					public void run() {
+						final Random random = new Random(thread);
+						try {
+							for(int i=0; i<5000; i++){
+								final int ownPage = random.nextInt(pagesPerThread);
+								final int ownPageNumber = thread * pagesPerThread + ownPage;
+								final PageAddress ownAddress = new PageAddress(ownPageNumber, TestBufferManager_Concurrent.this.filename);
+								final int sharedPageNumber = firstSharedPage + random.nextInt(sharedPages);
+								final PageAddress sharedAddress = new PageAddress(sharedPageNumber, TestBufferManager_Concurrent.this.filename);
+								switch(random.nextInt(4)){
+									case 0:
+										versions[thread][ownPage]++;
+										bufferManager.modifyPage(PAGESIZE, ownAddress, content(ownPageNumber, versions[thread][ownPage]));
+										break;
+									case 1:
+										if(versions[thread][ownPage] > 0){
+											Assert.assertArrayEquals(content(ownPageNumber, versions[thread][ownPage]), bufferManager.getPage(PAGESIZE, ownAddress));
+										}
+										break;
+									case 2:
+										Assert.assertArrayEquals(content(sharedPageNumber, 0), bufferManager.getPage(PAGESIZE, sharedAddress));
+										break;
+									default:
+										Assert.assertArrayEquals(content(sharedPageNumber, 0), bufferManager.pinPage(PAGESIZE, sharedAddress));
+										Assert.assertArrayEquals(content(sharedPageNumber, 0), bufferManager.getPage(PAGESIZE, sharedAddress));
+										bufferManager.unpinPage(sharedAddress);
+										break;
+								}
+							}
+						} catch(final Throwable e) {
+							errors.add(e);
+						}
+					}
+				};
+				threads[t].start();
+			}
+			for(final Thread thread: threads){
+				thread.join();
+			}
+			Assert.assertTrue(errors.toString(), errors.isEmpty());
+			// all modifications have been stored on disk
+			bufferManager.writeAllModifiedPages();
+			bufferManager.releaseAllPages();
+			for(int t=0; t<numberOfThreads; t++){
+				for(int p=0; p<pagesPerThread; p++){
+					if(versions[t][p] > 0){
+						final int pageNumber = t * pagesPerThread + p;
+						Assert.assertArrayEquals(content(pageNumber, versions[t][p]), bufferManager.getPage(PAGESIZE, new PageAddress(pageNumber, this.filename)));
+					}
+				}
+			}
+			this.scan(bufferManager, firstSharedPage, firstSharedPage + sharedPages);
+		} finally {
+			bufferManager.close();
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import lupos.datastructures.buffermanager.BufferManager.PageAddress;
+import lupos.datastructures.buffermanager.BufferManager_MemoryMapped;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that pages written by the memory mapped buffer manager are read back correctly
+ * when the pages are spread over several mapped regions, which grow while pages are appended.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class TestBufferManager_MemoryMapped {
+
+	private static final int PAGESIZE = 128;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static byte[] content(final int pagenumber){
+		final byte[] page = new byte[PAGESIZE];
+		for(int i=0; i<PAGESIZE; i++){
+			page[i] = (byte) (pagenumber * 31 + i);
+		}
+		return page;
+	}
+
+	private void testAppendAndRead(final int regionSize) throws Exception {
+		final int oldRegionSize = BufferManager_MemoryMapped.REGIONSIZE_IN_BYTES;
+		BufferManager_MemoryMapped.REGIONSIZE_IN_BYTES = regionSize;
+		final BufferManager_MemoryMapped bufferManager = new BufferManager_MemoryMapped();
+		try {
+			final String filename = new File(this.folder.getRoot(), "pages" + regionSize).getAbsolutePath();
+			final int numberOfPages = 100;
+			for(int i=0; i<numberOfPages; i++){
+				bufferManager.modifyPage(PAGESIZE, new PageAddress(i, filename), content(i));
+			}
+			for(int i=numberOfPages-1; i>=0; i--){
+				Assert.assertArrayEquals(content(i), bufferManager.getPage(PAGESIZE, new PageAddress(i, filename)));
+				final ByteBuffer page = bufferManager.getPageAsByteBuffer(PAGESIZE, new PageAddress(i, filename));
+				Assert.assertEquals(PAGESIZE, page.remaining());
+				Assert.assertEquals(content(i)[0], page.get(0));
+			}
+			bufferManager.close();
+			// read again from the file after dropping all mappings
+			for(int i=0; i<numberOfPages; i++){
+				Assert.assertArrayEquals(content(i), bufferManager.getPage(PAGESIZE, new PageAddress(i, filename)));
+			}
+		} finally {
+			bufferManager.close();
+			BufferManager_MemoryMapped.REGIONSIZE_IN_BYTES = oldRegionSize;
+		}
+	}
+
+	@Test
+	public void testRegionsOfMultiplePages() throws Exception {
+		this.testAppendAndRead(8 * PAGESIZE);
+	}
+
+	@Test
+	public void testRegionSizeNoMultipleOfPageSize() throws Exception {
+		this.testAppendAndRead(3 * PAGESIZE + PAGESIZE / 2);
+	}
+
+	@Test
+	public void testDefaultRegionSize() throws Exception {
+		this.testAppendAndRead(BufferManager_MemoryMapped.REGIONSIZE_IN_BYTES);
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lupos.datastructures.items.Triple;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.engine.operators.tripleoperator.TripleConsumer;
+import lupos.rdf.parser.ChunkedParallelParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that chunks of line-based data are parsed completely and that errors during parsing a chunk are thrown to the caller.
+ *
+ * @author groppe
+ */
+public class TestChunkedParallelParser {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private int oldChunkSize;
+	private int oldBatchSize;
+
+	@Before
+	public void setUp() {
+		LiteralFactory.setType(LiteralFactory.MapType.NOCODEMAP);
+		this.oldChunkSize = ChunkedParallelParser.CHUNK_SIZE;
+		this.oldBatchSize = ChunkedParallelParser.BATCH_SIZE;
+		// many small chunks
+		ChunkedParallelParser.CHUNK_SIZE = 256;
+	}
+
+	@After
+	public void tearDown() {
+		ChunkedParallelParser.CHUNK_SIZE = this.oldChunkSize;
+		ChunkedParallelParser.BATCH_SIZE = this.oldBatchSize;
+	}
+
+	private static byte[] getData(final int numberOfTriples) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < numberOfTriples; i++) {
+			sb.append("<http://ex/s" + i + "> <http://ex/p> \"" + i + "\" .\n");
+		}
+		return sb.toString().getBytes();
+	}
+
+	/**
+	 * counts the consumed triples and fails for the triple with the given subject (like a failing parser or a failing succeeding stage)
+	 */
+	private static class CountingTripleConsumer implements TripleConsumer {
+		private final AtomicInteger number = new AtomicInteger();
+		private final String erroneousSubject;
+
+		public CountingTripleConsumer(final String erroneousSubject) {
+			this.erroneousSubject = erroneousSubject;
+		}
+
+		@Override
+		public void consume(final Triple triple) {
+			if (triple.getSubject().toString().equals(this.erroneousSubject)) {
+				throw new RuntimeException("Erroneous triple " + triple);
+			}
+			this.number.incrementAndGet();
+		}
+	}
+
+	private File writeFile(final byte[] data) throws IOException {
+		final File file = this.folder.newFile("data.n3");
+		final FileOutputStream out = new FileOutputStream(file);
+		out.write(data);
+		out.close();
+		return file;
+	}
+
+	@Test
+	public void testAllTriplesParsed() throws Exception {
+		final byte[] data = TestChunkedParallelParser.getData(1000);
+		final CountingTripleConsumer fromFile = new CountingTripleConsumer(null);
+		assertEquals(1000, ChunkedParallelParser.parseRDFData("N3", this.writeFile(data), fromFile, "UTF-8"));
+		assertEquals(1000, fromFile.number.get());
+		final CountingTripleConsumer fromStream = new CountingTripleConsumer(null);
+		assertEquals(1000, ChunkedParallelParser.parseRDFData("N3", new ByteArrayInputStream(data), fromStream, "UTF-8"));
+		assertEquals(1000, fromStream.number.get());
+	}
+
+	@Test
+	public void testErrorIsThrown() throws Exception {
+		final byte[] data = TestChunkedParallelParser.getData(1000);
+		try {
+			ChunkedParallelParser.parseRDFData("N3", this.writeFile(data), new CountingTripleConsumer("<http://ex/s500>"), "UTF-8");
+			fail("error in a chunk of a file is not thrown");
+		} catch (final IOException e) {
+			// expected
+		}
+		try {
+			ChunkedParallelParser.parseRDFData("N3", new ByteArrayInputStream(data), new CountingTripleConsumer("<http://ex/s500>"), "UTF-8");
+			fail("error in a chunk of a stream is not thrown");
+		} catch (final IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testEncodingIsUsed() throws Exception {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append("<http://ex/s" + i + "> <http://ex/p> \"caf\u00e9\" .\n");
+		}
+		// the encoding given to the parser differs from the default encoding CommonCoreQueryEvaluator.encoding
+		final byte[] data = sb.toString().getBytes("ISO-8859-1");
+		final Set<String> objects = Collections.synchronizedSet(new HashSet<String>());
+		final TripleConsumer tc = new TripleConsumer() {
+			@Override
+			public void consume(final Triple triple) {
+				objects.add(triple.getObject().toString());
+			}
+		};
+		assertEquals(100, ChunkedParallelParser.parseRDFData("N3", this.writeFile(data), tc, "ISO-8859-1"));
+		assertEquals(Collections.singleton("\"caf\u00e9\""), objects);
+		objects.clear();
+		assertEquals(100, ChunkedParallelParser.parseRDFData("N3", new ByteArrayInputStream(data), tc, "ISO-8859-1"));
+		assertEquals(Collections.singleton("\"caf\u00e9\""), objects);
+	}
+
+	@Test
+	public void testInterruptIsThrown() throws Exception {
+		final byte[] data = TestChunkedParallelParser.getData(1000);
+		// the parsing threads are blocked such that the buffer of chunks becomes full and the caller must wait...
+		ChunkedParallelParser.BATCH_SIZE = 1;
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountingTripleConsumer tc = new CountingTripleConsumer(null) {
+			@Override
+			public void consume(final Triple triple) {
+				while (blocked.getCount() > 0) {
+					try {
+						blocked.await();
+					} catch (final InterruptedException e) {
+						// wait until released
+					}
+				}
+				super.consume(triple);
+			}
+		};
+		final Thread release = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(500);
+				} catch (final InterruptedException e) {
+					// release anyway
+				}
+				blocked.countDown();
+			}
+		};
+		release.start();
+		// ... which is interrupted
+		Thread.currentThread().interrupt();
+		try {
+			ChunkedParallelParser.parseRDFData("N3", new ByteArrayInputStream(data), tc, "UTF-8");
+			fail("interrupt is not thrown");
+		} catch (final InterruptedIOException e) {
+			// expected
+		} finally {
+			assertTrue("interrupt flag is not kept", Thread.interrupted());
+			release.join();
+		}
+		assertTrue("remaining chunks are parsed after the interrupt", tc.number.get() < 1000);
+	}
+}
@@ -0,0 +1,295 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import lupos.datastructures.buffermanager.BufferManager;
+import lupos.datastructures.items.Triple;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.items.literal.URILiteral;
+import lupos.datastructures.paged_dbbptree.DBBPTree;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.engine.evaluators.RDF3XQueryEvaluator;
+import lupos.engine.operators.BasicOperator;
+import lupos.engine.operators.SimpleOperatorGraphVisitor;
+import lupos.engine.operators.index.adaptedRDF3X.DeltaStore;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan.CollationOrder;
+import lupos.engine.operators.index.adaptedRDF3X.SixIndices;
+import lupos.engine.operators.messages.StartOfEvaluationMessage;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the snapshot isolation of the delta store of the RDF3X evaluation indices:
+ * a pinned snapshot does not see later updates, also not in threads of a pool, which have been started before
+ * pinning the snapshot, and also not after the delta store has been merged into the evaluation indices.
+ *
+ * @author groppe
+ */
+public class TestDeltaStore {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private final static String prefix = "PREFIX lib: <http://example.org/library/> ";
+
+	private static RDF3XQueryEvaluator evaluator;
+
+	private static SixIndices sixIndices;
+
+	// the threads of the pool are started before any snapshot is pinned
+	private static ExecutorService pool;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		final StringBuilder data = new StringBuilder();
+		for(int i=0; i<40; i++){
+			data.append("<http://example.org/library/book" + i + "> <http://example.org/library/writtenBy> <http://example.org/library/author" + (i % 7) + "> .\n");
+			data.append("<http://example.org/library/book" + i + "> <http://example.org/library/title> \"Book " + i + "\" .\n");
+		}
+		final File file = TestDeltaStore.folder.newFile("library.n3");
+		Files.write(file.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+
+		TestDeltaStore.evaluator = new RDF3XQueryEvaluator(new String[]{ "--datastructure", "DBBPTREE", "--codemap", "LAZYLITERALWITHOUTINITIALPREFIXCODEMAP", "--tmpdir", TestDeltaStore.folder.newFolder().getAbsolutePath() });
+		final LinkedList<URILiteral> defaultGraphs = new LinkedList<URILiteral>();
+		defaultGraphs.add(LiteralFactory.createURILiteralWithoutLazyLiteral("<file:" + file.getAbsolutePath() + ">"));
+		TestDeltaStore.evaluator.prepareInputData(defaultGraphs, new LinkedList<URILiteral>());
+		TestDeltaStore.sixIndices = (SixIndices) TestDeltaStore.evaluator.getDataset().getDefaultGraphIndices().iterator().next();
+
+		TestDeltaStore.pool = Executors.newFixedThreadPool(1);
+		TestDeltaStore.pool.submit(new Runnable() {
+			@Override
+			public void run() {
+				// start the thread
+			}
+		}).get();
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		TestDeltaStore.pool.shutdown();
+	}
+
+	private static void update(final String update) throws Exception {
+		TestDeltaStore.evaluator.getResult(TestDeltaStore.prefix + update);
+	}
+
+	private static int loansInPool(final String reader, final DeltaStore.Snapshot snapshot) throws Exception {
+		return TestDeltaStore.pool.submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws URISyntaxException {
+				// the evaluation indices contain lazy literals
+				final Triple key = new Triple(LiteralFactory.createURILiteral("<http://example.org/library/" + reader + ">"), null, null);
+				final Iterator<Triple> it = TestDeltaStore.sixIndices.getDeltaStore().getIterator(key, CollationOrder.SPO, null, null, snapshot);
+				int number = 0;
+				while(it.hasNext()){
+					it.next();
+					number++;
+				}
+				return number;
+			}
+		}).get();
+	}
+
+	private static int loans(final String reader) throws Exception {
+		final QueryResult queryResult = TestDeltaStore.evaluator.getResult(TestDeltaStore.prefix + "SELECT * WHERE { lib:" + reader + " lib:borrowed ?book . }");
+		return (queryResult == null) ? 0 : queryResult.size();
+	}
+
+	@Test
+	public void testSnapshotIsolation() throws Exception {
+		final DeltaStore.Snapshot snapshot = DeltaStore.pinSnapshot();
+		try {
+			TestDeltaStore.update("INSERT DATA { lib:alice lib:borrowed lib:book1 . lib:alice lib:borrowed lib:book2 . }");
+			assertNotNull(TestDeltaStore.sixIndices.getDeltaStore());
+			assertEquals(0, TestDeltaStore.loansInPool("alice", snapshot));
+			assertEquals(2, TestDeltaStore.loansInPool("alice", null));
+			assertEquals(2, TestDeltaStore.loans("alice"));
+
+			TestDeltaStore.update("DELETE DATA { lib:alice lib:borrowed lib:book1 . }");
+			assertEquals(0, TestDeltaStore.loansInPool("alice", snapshot));
+			assertEquals(1, TestDeltaStore.loansInPool("alice", null));
+			assertEquals(1, TestDeltaStore.loans("alice"));
+
+			// an update operation moves its snapshot forward
+			snapshot.advance();
+			assertEquals(1, TestDeltaStore.loansInPool("alice", snapshot));
+		} finally {
+			snapshot.release();
+		}
+	}
+
+	@Test
+	public void testOverlappingUpdatesCommitOnTheirOwn() throws Exception {
+		final ExecutorService updaters = Executors.newFixedThreadPool(2);
+		try {
+			final CountDownLatch written = new CountDownLatch(1);
+			final CountDownLatch finish = new CountDownLatch(1);
+			// the first update operation inserts a triple and does not finish before being told so
+			final Future<?> first = updaters.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					DeltaStore.beginUpdate();
+					try {
+						TestDeltaStore.sixIndices.add(new Triple(LiteralFactory.createURILiteral("<http://example.org/library/dave>"), LiteralFactory.createURILiteral("<http://example.org/library/borrowed>"), LiteralFactory.createURILiteral("<http://example.org/library/book6>")));
+						written.countDown();
+						finish.await();
+					} finally {
+						DeltaStore.endUpdate();
+					}
+					return null;
+				}
+			});
+			assertTrue(written.await(10, TimeUnit.SECONDS));
+			assertEquals(0, TestDeltaStore.loansInPool("dave", null));
+
+			// the second update operation must see its own insertions when deleting
+			final Future<?> second = updaters.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					TestDeltaStore.update("INSERT DATA { lib:frank lib:borrowed lib:book8 . lib:frank lib:borrowed lib:book9 . } ; DELETE { ?reader lib:borrowed lib:book8 . } WHERE { ?reader lib:borrowed lib:book8 . }");
+					return null;
+				}
+			});
+			Thread.sleep(200);
+			assertFalse(second.isDone());
+			assertEquals(0, TestDeltaStore.loansInPool("frank", null));
+
+			// finishing the first update operation commits its insertion independent of the second one
+			finish.countDown();
+			first.get(10, TimeUnit.SECONDS);
+			second.get(10, TimeUnit.SECONDS);
+			assertEquals(1, TestDeltaStore.loans("dave"));
+			assertEquals(1, TestDeltaStore.loans("frank"));
+		} finally {
+			updaters.shutdown();
+		}
+	}
+
+	@Test
+	public void testSnapshotSurvivesMerging() throws Exception {
+		TestDeltaStore.update("INSERT DATA { lib:bob lib:borrowed lib:book3 . }");
+		final DeltaStore.Snapshot snapshot = DeltaStore.pinSnapshot();
+		try {
+			final DeltaStore deltaStore = TestDeltaStore.sixIndices.getDeltaStore();
+			TestDeltaStore.update("INSERT DATA { lib:bob lib:borrowed lib:book4 . }");
+			deltaStore.mergeCompletely();
+			// the evaluation indices have been replaced, but the snapshot still reads the old version
+			assertSame(TestDeltaStore.sixIndices.getIndex(CollationOrder.SPO), deltaStore.getIndex(CollationOrder.SPO, null));
+			assertNotSame(TestDeltaStore.sixIndices.getIndex(CollationOrder.SPO), deltaStore.getIndex(CollationOrder.SPO, snapshot));
+			assertEquals(1, TestDeltaStore.loansInPool("bob", snapshot));
+			assertEquals(2, TestDeltaStore.loansInPool("bob", null));
+			assertEquals(2, TestDeltaStore.loans("bob"));
+		} finally {
+			snapshot.release();
+		}
+	}
+
+	private static Set<String> getFilesOfBPTrees() {
+		final String[] files = new File(DBBPTree.getMainFolder()).list();
+		return new HashSet<String>(Arrays.asList(files));
+	}
+
+	@Test
+	public void testMergingFreesReplacedIndices() throws Exception {
+		TestDeltaStore.update("INSERT DATA { lib:grace lib:borrowed lib:book10 . }");
+		final DeltaStore deltaStore = TestDeltaStore.sixIndices.getDeltaStore();
+		deltaStore.mergeCompletely();
+		// the pages of the B+-trees are written into their files
+		BufferManager.getBufferManager().writeAllModifiedPages();
+		final Set<String> filesAfterFirstMerge = TestDeltaStore.getFilesOfBPTrees();
+
+		// no snapshot is pinned, such that the evaluation indices created by the first merge are not needed any more after the second merge
+		TestDeltaStore.update("INSERT DATA { lib:grace lib:borrowed lib:book11 . }");
+		deltaStore.mergeCompletely();
+		final Set<String> deleted = new HashSet<String>(filesAfterFirstMerge);
+		deleted.removeAll(TestDeltaStore.getFilesOfBPTrees());
+		assertTrue(deleted.toString(), deleted.size() >= CollationOrder.values().length);
+		assertEquals(2, TestDeltaStore.loans("grace"));
+	}
+
+	@Test
+	public void testIndexScanReadsSnapshotOfRoot() throws Exception {
+		final DeltaStore.Snapshot snapshot = DeltaStore.pinSnapshot();
+		try {
+			TestDeltaStore.update("INSERT DATA { lib:carol lib:borrowed lib:book5 . }");
+			TestDeltaStore.evaluator.compileQuery(TestDeltaStore.prefix + "SELECT * WHERE { lib:carol lib:borrowed ?book . }");
+			TestDeltaStore.evaluator.logicalOptimization();
+			TestDeltaStore.evaluator.physicalOptimization();
+			final RDF3XIndexScan[] scan = { null };
+			TestDeltaStore.evaluator.getRootNode().visit(new SimpleOperatorGraphVisitor() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public Object visit(final BasicOperator basicOperator) {
+					if(basicOperator instanceof RDF3XIndexScan){
+						scan[0] = (RDF3XIndexScan) basicOperator;
+					}
+					return null;
+				}
+			});
+			assertNotNull(scan[0]);
+			// the evaluator passes the snapshot with the start message to the root
+			TestDeltaStore.evaluator.getRootNode().sendMessage(new StartOfEvaluationMessage(snapshot));
+			final int inSnapshot = TestDeltaStore.pool.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					final QueryResult queryResult = scan[0].join(TestDeltaStore.evaluator.getDataset());
+					return (queryResult == null) ? 0 : queryResult.size();
+				}
+			}).get();
+			assertEquals(0, inSnapshot);
+		} finally {
+			snapshot.release();
+		}
+		assertEquals(1, TestDeltaStore.loans("carol"));
+	}
+}
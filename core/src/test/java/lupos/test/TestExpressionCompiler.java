@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.items.literal.URILiteral;
+import lupos.engine.evaluators.RDF3XQueryEvaluator;
+import lupos.engine.operators.singleinput.filter.expressionevaluation.ExpressionCompiler;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that compiled FILTER, BIND and projection expressions return the same results as interpreting them
+ * with the evaluation visitor, especially for type errors, unbound variables and errors in conjunctions and disjunctions.
+ * The persons of the test data have ages and heights of different numeric types, some ages are strings and some
+ * attributes are missing.
+ *
+ * @author groppe
+ */
+public class TestExpressionCompiler {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private final static String prefix = "PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> PREFIX ex: <http://example.org/> ";
+
+	private final static String[] queries = {
+		// comparisons with constants of different types
+		"SELECT * WHERE { ?p ex:knows ?q . FILTER(?q = ex:person3) }",
+		"SELECT * WHERE { ?p ?attr ?v . FILTER(?attr != ex:knows && ?attr != ex:name) }",
+		"SELECT * WHERE { ?p ex:age ?age . FILTER(?age < 40.5 && ?age >= 18) }",
+		"SELECT * WHERE { ?p ex:height ?h . FILTER(?h = 1.80 || ?h = \"1.65\"^^xsd:decimal || 1.9e0 <= ?h) }",
+		"SELECT * WHERE { ?p ex:born ?b . FILTER(?b > \"1990-01-01T00:00:00Z\"^^xsd:dateTime) }",
+		// type errors (some ages are strings)
+		"SELECT * WHERE { ?p ex:age ?age . FILTER(?age > 30) }",
+		"SELECT * WHERE { ?p ex:age ?age . FILTER(!(?age > 30)) }",
+		"SELECT * WHERE { ?p ex:name ?name . FILTER(?name > 5) }",
+		// errors in conjunctions and disjunctions
+		"SELECT * WHERE { ?p ex:name ?name . ?p ex:age ?age . FILTER(?name > 5 || ?age > 30) }",
+		"SELECT * WHERE { ?p ex:name ?name . ?p ex:age ?age . FILTER(?age > 30 || ?name > 5) }",
+		"SELECT * WHERE { ?p ex:name ?name . ?p ex:age ?age . FILTER(?name > 5 && ?age > 30) }",
+		"SELECT * WHERE { ?p ex:name ?name . ?p ex:age ?age . FILTER(!(?age > 30 && ?name > 5)) }",
+		// unbound variables
+		"SELECT * WHERE { ?p ex:name ?name . OPTIONAL { ?p ex:height ?h . } FILTER(!BOUND(?h) || ?h > 1.7) }",
+		"SELECT * WHERE { ?p ex:name ?name . OPTIONAL { ?p ex:knows ?q . } FILTER(?q != ex:person1) }",
+		"SELECT * WHERE { ?p ex:name ?name . OPTIONAL { ?p ex:knows ?q . } FILTER(?q != ex:person1 || ?name = \"Bob\") }",
+		// BIND with type errors and unbound variables (the variable stays unbound)
+		"SELECT * WHERE { ?p ex:name ?name . OPTIONAL { ?p ex:height ?h . } BIND(?h * 100 AS ?cm) }",
+		"SELECT * WHERE { ?p ex:name ?name . BIND(?name + 1 AS ?w) }",
+		"SELECT * WHERE { ?p ex:name ?name . ?p ex:age ?age . BIND(?age + 1 > 30 || ?name > 5 AS ?old) }",
+		// expressions in the projection
+		"SELECT ?p (?age / 2 AS ?half) (?age - 18 AS ?adult) WHERE { ?p ex:age ?age . }",
+		"SELECT ?p (?age > 30 && ?name > 5 AS ?b) (?name = \"Alice\" || ?age < 20 AS ?c) WHERE { ?p ex:name ?name . ?p ex:age ?age . }"
+	};
+
+	private static RDF3XQueryEvaluator evaluator;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		final String[] names = { "Alice", "Bob", "Carol", "Dave", "Eve" };
+		final StringBuilder data = new StringBuilder();
+		for(int i=0; i<60; i++){
+			final String person = "<http://example.org/person" + i + ">";
+			data.append(person + " <http://example.org/name> \"" + names[i % names.length] + "\" .\n");
+			if(i % 10 == 9){
+				data.append(person + " <http://example.org/age> \"unknown\" .\n");
+			} else {
+				data.append(person + " <http://example.org/age> \"" + (12 + (i * 7) % 50) + "\"^^<http://www.w3.org/2001/XMLSchema#integer> .\n");
+			}
+			if(i % 4 != 0){
+				data.append(person + " <http://example.org/height> \"1." + (50 + (i * 3) % 45) + "\"^^<http://www.w3.org/2001/XMLSchema#decimal> .\n");
+			}
+			if(i % 3 != 0){
+				data.append(person + " <http://example.org/knows> <http://example.org/person" + ((i + 1) % 5) + "> .\n");
+			}
+			data.append(person + " <http://example.org/born> \"19" + (60 + i % 40) + "-0" + (1 + i % 9) + "-15T12:00:00Z\"^^<http://www.w3.org/2001/XMLSchema#dateTime> .\n");
+		}
+		final File file = TestExpressionCompiler.folder.newFile("persons.n3");
+		Files.write(file.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+
+		TestExpressionCompiler.evaluator = new RDF3XQueryEvaluator(new String[]{ "--codemap", "LAZYLITERALWITHOUTINITIALPREFIXCODEMAP", "--tmpdir", TestExpressionCompiler.folder.newFolder().getAbsolutePath() });
+		final LinkedList<URILiteral> defaultGraphs = new LinkedList<URILiteral>();
+		defaultGraphs.add(LiteralFactory.createURILiteralWithoutLazyLiteral("<file:" + file.getAbsolutePath() + ">"));
+		TestExpressionCompiler.evaluator.prepareInputData(defaultGraphs, new LinkedList<URILiteral>());
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		ExpressionCompiler.setUseCompiledExpressions(true);
+	}
+
+	private static List<String> evaluate(final String query, final boolean compiled) throws Exception {
+		ExpressionCompiler.setUseCompiledExpressions(compiled);
+		final List<String> result = new ArrayList<String>();
+		for(final Bindings bindings: TestExpressionCompiler.evaluator.getResult(TestExpressionCompiler.prefix + query)){
+			final List<String> solution = new ArrayList<String>();
+			for(final Variable var: bindings.getVariableSet()){
+				solution.add(var + "=" + bindings.get(var));
+			}
+			Collections.sort(solution);
+			result.add(solution.toString());
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	@Test
+	public void testSameResultsAsInterpreter() throws Exception {
+		for(final String query: TestExpressionCompiler.queries){
+			final List<String> expected = TestExpressionCompiler.evaluate(query, false);
+			assertEquals(query, expected, TestExpressionCompiler.evaluate(query, true));
+		}
+	}
+
+	@Test
+	public void testTypeErrors() throws Exception {
+		// the string ages neither pass a comparison nor its negation
+		final int numberOfAges = TestExpressionCompiler.evaluate("SELECT * WHERE { ?p ex:age ?age . }", true).size();
+		final int greater = TestExpressionCompiler.evaluate(TestExpressionCompiler.queries[5], true).size();
+		final int notGreater = TestExpressionCompiler.evaluate(TestExpressionCompiler.queries[6], true).size();
+		assertEquals(numberOfAges - 6, greater + notGreater);
+		assertTrue(TestExpressionCompiler.evaluate(TestExpressionCompiler.queries[7], true).isEmpty());
+	}
+
+	@Test
+	public void testErrorsInConjunctionsAndDisjunctions() throws Exception {
+		// error || true is true
+		final List<String> disjunction = TestExpressionCompiler.evaluate(TestExpressionCompiler.queries[8], true);
+		assertFalse(disjunction.isEmpty());
+		assertEquals(TestExpressionCompiler.evaluate("SELECT * WHERE { ?p ex:name ?name . ?p ex:age ?age . FILTER(?age > 30) }", true), disjunction);
+		assertEquals(disjunction, TestExpressionCompiler.evaluate(TestExpressionCompiler.queries[9], true));
+		// error && x does not accept any solution, but !(false && error) is true
+		assertTrue(TestExpressionCompiler.evaluate(TestExpressionCompiler.queries[10], true).isEmpty());
+		assertFalse(TestExpressionCompiler.evaluate(TestExpressionCompiler.queries[11], true).isEmpty());
+	}
+
+	@Test
+	public void testTypeErrorInBindLeavesVariableUnbound() throws Exception {
+		for(final String solution: TestExpressionCompiler.evaluate(TestExpressionCompiler.queries[16], true)){
+			assertFalse(solution, solution.contains("?w="));
+		}
+		int withHeight = 0;
+		for(final String solution: TestExpressionCompiler.evaluate(TestExpressionCompiler.queries[15], true)){
+			if(solution.contains("?cm=")){
+				withHeight++;
+			}
+		}
+		assertEquals(45, withHeight);
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.buffermanager.BufferManager;
+import lupos.datastructures.parallel.BoundedBuffer;
+import lupos.engine.evaluators.RDF3XQueryEvaluator;
+import lupos.engine.indexconstruction.FastRDF3XIndexConstruction;
+import lupos.engine.indexconstruction.FastRDF3XIndexConstruction.IteratorFromBatches;
+import lupos.engine.operators.index.Indices.DATA_STRUCT;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that the pipelined index construction of FastRDF3XIndexConstruction constructs the same indices as the non-pipelined one,
+ * and that an interrupted stage of the pipeline fails the index construction.
+ *
+ * @author groppe
+ */
+public class TestFastRDF3XIndexConstruction {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final static int PERSONS = 1000;
+
+	private final static String[] queries = {
+		"SELECT * WHERE { ?s ?p ?o . }",
+		"SELECT ?s ?name WHERE { ?s <http://example.org/name> ?name . ?s <http://example.org/knows> <http://example.org/person7> . }",
+		"SELECT ?a ?c WHERE { ?a <http://example.org/knows> ?b . ?b <http://example.org/knows> ?c . ?c <http://example.org/age> \"42\" . }",
+		"SELECT ?p (COUNT(?o) AS ?n) WHERE { ?s ?p ?o . } GROUP BY ?p"
+	};
+
+	private boolean pipelined;
+
+	private int batchSize;
+
+	@Before
+	public void setUp() {
+		this.pipelined = FastRDF3XIndexConstruction.PIPELINED;
+		this.batchSize = FastRDF3XIndexConstruction.PIPELINE_BATCH_SIZE;
+		// several batches are handed over between the stages of the pipeline
+		FastRDF3XIndexConstruction.PIPELINE_BATCH_SIZE = 100;
+	}
+
+	@After
+	public void tearDown() {
+		FastRDF3XIndexConstruction.PIPELINED = this.pipelined;
+		FastRDF3XIndexConstruction.PIPELINE_BATCH_SIZE = this.batchSize;
+	}
+
+	private File writeData() throws Exception {
+		final StringBuilder persons = new StringBuilder();
+		for(int i=0; i<PERSONS; i++){
+			final String person = "<http://example.org/person" + i + ">";
+			persons.append(person + " <http://example.org/name> \"Person " + i + "\" .\n");
+			persons.append(person + " <http://example.org/age> \"" + (i % 80) + "\" .\n");
+			persons.append(person + " <http://example.org/knows> <http://example.org/person" + ((i * 7 + 1) % PERSONS) + "> .\n");
+			persons.append(person + " <http://example.org/knows> <http://example.org/person" + ((i * 7 + 2) % PERSONS) + "> .\n");
+		}
+		final File data = this.folder.newFile("persons.n3");
+		Files.write(data.toPath(), persons.toString().getBytes(StandardCharsets.UTF_8));
+		return data;
+	}
+
+	private List<List<String>> constructAndEvaluate(final File data, final boolean pipelined) throws Exception {
+		FastRDF3XIndexConstruction.PIPELINED = pipelined;
+		BufferManager.getBufferManager().releaseAllPages();
+		final File indexDir = new File(this.folder.newFolder(), "index");
+		// at most 500 triples in main memory such that several initial runs are written and merged
+		FastRDF3XIndexConstruction.main(new String[]{ data.getAbsolutePath(), "N3", "UTF-8", "NONE", indexDir.getAbsolutePath(), "500" });
+		final RDF3XQueryEvaluator evaluator = new RDF3XQueryEvaluator();
+		evaluator.loadLargeScaleIndices(indexDir.getAbsolutePath(), DATA_STRUCT.DBBPTREE);
+		final List<List<String>> result = new ArrayList<List<String>>();
+		for(final String query: TestFastRDF3XIndexConstruction.queries){
+			final List<String> solutions = new ArrayList<String>();
+			for(final Bindings bindings: evaluator.getResult(query)){
+				solutions.add(bindings.toString());
+			}
+			Collections.sort(solutions);
+			result.add(solutions);
+		}
+		return result;
+	}
+
+	@Test
+	public void testPipelinedAndNonPipelinedIndicesAreEqual() throws Exception {
+		final File data = this.writeData();
+		final List<List<String>> pipelinedResults = this.constructAndEvaluate(data, true);
+		final List<List<String>> nonPipelinedResults = this.constructAndEvaluate(data, false);
+		assertEquals(4 * PERSONS, pipelinedResults.get(0).size());
+		assertEquals(3, pipelinedResults.get(3).size());
+		for(int i=0; i<TestFastRDF3XIndexConstruction.queries.length; i++){
+			assertFalse(TestFastRDF3XIndexConstruction.queries[i], pipelinedResults.get(i).isEmpty());
+			assertEquals(TestFastRDF3XIndexConstruction.queries[i], nonPipelinedResults.get(i), pipelinedResults.get(i));
+		}
+	}
+
+	@Test
+	public void testInterruptedStageFails() {
+		final BoundedBuffer<String[]> batches = new BoundedBuffer<String[]>(1);
+		Thread.currentThread().interrupt();
+		try {
+			new IteratorFromBatches(batches).hasNext();
+			fail("an interrupted stage must not be treated as the end of the data");
+		} catch (final RuntimeException e) {
+			assertTrue(e.getCause() instanceof InterruptedIOException);
+			// the interrupt flag is restored (and cleared here)
+			assertTrue(Thread.interrupted());
+		}
+	}
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.items.literal.URILiteral;
+import lupos.engine.evaluators.RDF3XQueryEvaluator;
+import lupos.engine.operators.BasicOperator;
+import lupos.engine.operators.SimpleOperatorGraphVisitor;
+import lupos.engine.operators.singleinput.HashGroup;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that GROUP BY evaluated by hash aggregation (option --hashgroup) returns the same groups and aggregates
+ * as the sort-based operators.
+ *
+ * @author groppe
+ */
+public class TestHashGroup {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private final static String prefix = "PREFIX ex: <http://example.org/> ";
+
+	private final static String[] queries = {
+		// aggregation functions over groups of lazy literals
+		"SELECT ?product (COUNT(?amount) AS ?c) (SUM(?amount) AS ?s) (MIN(?amount) AS ?min) (MAX(?amount) AS ?max) (AVG(?amount) AS ?avg) WHERE { ?sale ex:product ?product . ?sale ex:amount ?amount . } GROUP BY ?product",
+		// several group variables
+		"SELECT ?product ?region (SUM(?amount) AS ?s) WHERE { ?sale ex:product ?product . ?sale ex:region ?region . ?sale ex:amount ?amount . } GROUP BY ?product ?region",
+		// group keys computed by expressions
+		"SELECT ?r (COUNT(?sale) AS ?c) WHERE { ?sale ex:region ?region . } GROUP BY (STR(?region) AS ?r)",
+		"SELECT ?large (COUNT(?sale) AS ?c) (MAX(?amount) AS ?max) WHERE { ?sale ex:amount ?amount . } GROUP BY (?amount > 50 AS ?large)",
+		// group keys being lazy literals for some solutions and computed literals for others
+		"SELECT ?r (COUNT(?sale) AS ?c) WHERE { ?sale ex:amount ?amount . OPTIONAL { ?sale ex:region ?region . FILTER(?amount > 20) } } GROUP BY (COALESCE(?region, \"north\") AS ?r)",
+		// HAVING
+		"SELECT ?product (SUM(?amount) AS ?s) WHERE { ?sale ex:product ?product . ?sale ex:amount ?amount . } GROUP BY ?product HAVING (SUM(?amount) > 1000)",
+		"SELECT ?region (COUNT(?sale) AS ?c) WHERE { ?sale ex:region ?region . } GROUP BY ?region HAVING (COUNT(?sale) > 1000)",
+		// DISTINCT aggregates
+		"SELECT ?product (COUNT(DISTINCT ?region) AS ?c) (SUM(DISTINCT ?amount) AS ?s) (AVG(DISTINCT ?amount) AS ?avg) WHERE { ?sale ex:product ?product . ?sale ex:amount ?amount . OPTIONAL { ?sale ex:region ?region . } } GROUP BY ?product",
+		// SAMPLE and GROUP_CONCAT with only one value per group
+		"SELECT ?region (SAMPLE(?region) AS ?s) (GROUP_CONCAT(DISTINCT ?region; SEPARATOR=\",\") AS ?g) (COUNT(?sale) AS ?c) WHERE { ?sale ex:region ?region . } GROUP BY ?region"
+	};
+
+	/** the GROUP_CONCAT of the (distinct) regions of each product, the order of which depends on the order of the solutions */
+	private final static String[] groupConcat = {
+		"SELECT ?product (GROUP_CONCAT(DISTINCT ?region; SEPARATOR=\" \") AS ?g) WHERE { ?sale ex:product ?product . ?sale ex:region ?region . } GROUP BY ?product",
+		"SELECT ?product (GROUP_CONCAT(?region; SEPARATOR=\" \") AS ?g) WHERE { ?sale ex:product ?product . ?sale ex:region ?region . } GROUP BY ?product"
+	};
+
+	private static RDF3XQueryEvaluator evaluator;
+
+	private static boolean hashGroupAfterInit;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		final String[] regions = { "north", "east", "south", "west", "centre" };
+		final StringBuilder data = new StringBuilder();
+		for(int i=0; i<500; i++){
+			final String sale = "<http://example.org/sale/" + i + ">";
+			data.append(sale + " <http://example.org/product> <http://example.org/product/" + (i % 13) + "> .\n");
+			data.append(sale + " <http://example.org/amount> \"" + ((i * 31) % 97) + "\"^^<http://www.w3.org/2001/XMLSchema#integer> .\n");
+			if(i % 7 != 0){
+				data.append(sale + " <http://example.org/region> \"" + regions[i % regions.length] + "\" .\n");
+			}
+		}
+		final File file = TestHashGroup.folder.newFile("sales.n3");
+		Files.write(file.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+
+		TestHashGroup.evaluator = new RDF3XQueryEvaluator(new String[]{ "--hashgroup", "--codemap", "LAZYLITERALWITHOUTINITIALPREFIXCODEMAP", "--tmpdir", TestHashGroup.folder.newFolder().getAbsolutePath() });
+		TestHashGroup.hashGroupAfterInit = HashGroup.isUseHashAggregation();
+		final LinkedList<URILiteral> defaultGraphs = new LinkedList<URILiteral>();
+		defaultGraphs.add(LiteralFactory.createURILiteralWithoutLazyLiteral("<file:" + file.getAbsolutePath() + ">"));
+		TestHashGroup.evaluator.prepareInputData(defaultGraphs, new LinkedList<URILiteral>());
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		HashGroup.setUseHashAggregation(false);
+	}
+
+	@After
+	public void resetSettings() {
+		HashGroup.setMaxGroupsInMemory(1000000);
+		HashGroup.setPartialAggregationBlockSize(4096);
+		HashGroup.setNumberOfSpillPartitions(16);
+	}
+
+	private static List<String> evaluate(final String query, final boolean hashGroup) throws Exception {
+		HashGroup.setUseHashAggregation(hashGroup);
+		final List<String> result = new ArrayList<String>();
+		for(final Bindings bindings: TestHashGroup.evaluator.getResult(TestHashGroup.prefix + query)){
+			final StringBuilder group = new StringBuilder();
+			for(final Variable var: new TreeSet<Variable>(bindings.getVariableSet())){
+				group.append(var).append('=').append(bindings.get(var)).append(' ');
+			}
+			result.add(group.toString());
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	private static boolean usesHashGroup(final String query) throws Exception {
+		TestHashGroup.evaluator.compileQuery(TestHashGroup.prefix + query);
+		final boolean[] found = { false };
+		TestHashGroup.evaluator.getRootNode().visit(new SimpleOperatorGraphVisitor() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Object visit(final BasicOperator basicOperator) {
+				if(basicOperator instanceof HashGroup){
+					found[0] = true;
+				}
+				return null;
+			}
+		});
+		return found[0];
+	}
+
+	@Test
+	public void testEvaluatorOption() {
+		assertTrue(TestHashGroup.hashGroupAfterInit);
+	}
+
+	@Test
+	public void testSameResults() throws Exception {
+		for(final String query: TestHashGroup.queries){
+			final List<String> expected = TestHashGroup.evaluate(query, false);
+			HashGroup.setUseHashAggregation(true);
+			assertTrue(query, TestHashGroup.usesHashGroup(query));
+			assertEquals(query, expected, TestHashGroup.evaluate(query, true));
+		}
+	}
+
+	@Test
+	public void testNumberOfGroups() throws Exception {
+		assertEquals(13, TestHashGroup.evaluate(TestHashGroup.queries[0], true).size());
+		assertEquals(13 * 5, TestHashGroup.evaluate(TestHashGroup.queries[1], true).size());
+		assertTrue(TestHashGroup.evaluate(TestHashGroup.queries[6], true).isEmpty());
+	}
+
+	@Test
+	public void testNoGroupsForEmptyInput() throws Exception {
+		// an explicit GROUP BY on an empty input results in no groups (see SPARQL 1.1 test agg-empty-group-count-2)
+		final String query = "SELECT ?product (COUNT(?x) AS ?c) WHERE { ?sale ex:product ?product . ?sale ex:nonexisting ?x . } GROUP BY ?product";
+		HashGroup.setUseHashAggregation(true);
+		assertTrue(TestHashGroup.usesHashGroup(query));
+		assertTrue(TestHashGroup.evaluate(query, true).isEmpty());
+	}
+
+	@Test
+	public void testLazyAndComputedLiteralsInSameGroup() throws Exception {
+		// the group "north" contains solutions with the region read from the index and with the computed default value
+		int groupsOfNorth = 0;
+		for(final String group: TestHashGroup.evaluate(TestHashGroup.queries[4], true)){
+			if(group.contains("?r=\"north\"")){
+				groupsOfNorth++;
+			}
+		}
+		assertEquals(1, groupsOfNorth);
+	}
+
+	@Test
+	public void testSpilling() throws Exception {
+		// only a few groups are kept in main memory, the others are spilled to the partitions on disk
+		HashGroup.setMaxGroupsInMemory(2);
+		HashGroup.setNumberOfSpillPartitions(3);
+		for(final String query: TestHashGroup.queries){
+			assertEquals(query, TestHashGroup.evaluate(query, false), TestHashGroup.evaluate(query, true));
+		}
+		for(final String query: TestHashGroup.groupConcat){
+			assertEquals(query, TestHashGroup.evaluateGroupConcat(query, false), TestHashGroup.evaluateGroupConcat(query, true));
+		}
+	}
+
+	@Test
+	public void testPartialAggregatesMergedInSmallBlocks() throws Exception {
+		// the local hash tables are merged into the global one after each solution or each second group
+		for(final int blockSize: new int[]{ 1, 2 }){
+			HashGroup.setPartialAggregationBlockSize(blockSize);
+			for(final String query: TestHashGroup.queries){
+				assertEquals(query, TestHashGroup.evaluate(query, false), TestHashGroup.evaluate(query, true));
+			}
+			for(final String query: TestHashGroup.groupConcat){
+				assertEquals(query, TestHashGroup.evaluateGroupConcat(query, false), TestHashGroup.evaluateGroupConcat(query, true));
+			}
+		}
+	}
+
+	@Test
+	public void testGroupConcat() throws Exception {
+		for(final String query: TestHashGroup.groupConcat){
+			HashGroup.setUseHashAggregation(true);
+			assertTrue(query, TestHashGroup.usesHashGroup(query));
+			final Map<String, List<String>> result = TestHashGroup.evaluateGroupConcat(query, true);
+			assertEquals(13, result.size());
+			assertEquals(query, TestHashGroup.evaluateGroupConcat(query, false), result);
+		}
+		// each product is sold in all regions
+		for(final List<String> regions: TestHashGroup.evaluateGroupConcat(TestHashGroup.groupConcat[0], true).values()){
+			assertEquals(Arrays.asList("centre", "east", "north", "south", "west"), regions);
+		}
+	}
+
+	@Test
+	public void testSample() throws Exception {
+		// the sample of a group must be a value of the group
+		final String query = "SELECT ?product (SAMPLE(?region) AS ?s) WHERE { ?sale ex:product ?product . ?sale ex:region ?region . } GROUP BY ?product";
+		HashGroup.setUseHashAggregation(true);
+		assertTrue(TestHashGroup.usesHashGroup(query));
+		final List<String> regions = Arrays.asList("\"north\"", "\"east\"", "\"south\"", "\"west\"", "\"centre\"");
+		int groups = 0;
+		for(final Bindings bindings: TestHashGroup.evaluator.getResult(TestHashGroup.prefix + query)){
+			assertTrue(bindings.toString(), regions.contains(bindings.get(new Variable("s")).toString()));
+			groups++;
+		}
+		assertEquals(13, groups);
+	}
+
+	/**
+	 * evaluates a GROUP_CONCAT query and returns for each product the sorted concatenated values (independent of the order of the solutions)
+	 */
+	private static Map<String, List<String>> evaluateGroupConcat(final String query, final boolean hashGroup) throws Exception {
+		HashGroup.setUseHashAggregation(hashGroup);
+		final Map<String, List<String>> result = new HashMap<String, List<String>>();
+		for(final Bindings bindings: TestHashGroup.evaluator.getResult(TestHashGroup.prefix + query)){
+			final String concatenated = bindings.get(new Variable("g")).toString();
+			final List<String> values = Arrays.asList(concatenated.substring(concatenated.indexOf('"') + 1, concatenated.lastIndexOf('"')).split(" "));
+			Collections.sort(values);
+			result.put(bindings.get(new Variable("product")).toString(), values);
+		}
+		return result;
+	}
+}
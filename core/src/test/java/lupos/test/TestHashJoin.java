@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.engine.evaluators.MemoryIndexQueryEvaluator;
+import lupos.engine.operators.multiinput.join.HashJoin;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for computing hash joins in parallel in main memory
+ *
+ * @author groppe
+ */
+public class TestHashJoin {
+
+	private final Variable x = new Variable("x");
+	private final Variable y = new Variable("y");
+	private final Variable z = new Variable("z");
+
+	private BindingsFactory bindingsFactory;
+
+	@Before
+	public void setUp() {
+		LiteralFactory.setType(LiteralFactory.MapType.NOCODEMAP);
+		final List<Variable> variables = new ArrayList<Variable>();
+		variables.add(this.x);
+		variables.add(this.y);
+		variables.add(this.z);
+		this.bindingsFactory = BindingsFactory.createBindingsFactory(variables);
+		HashJoin.parallel = true;
+	}
+
+	@After
+	public void tearDown() {
+		HashJoin.parallel = false;
+		HashJoin.setPool(null);
+	}
+
+	private QueryResult createOperand(final Variable other, final int size, final int joinValues) {
+		final QueryResult result = QueryResult.createInstance();
+		for (int i = 0; i < size; i++) {
+			final Bindings b = this.bindingsFactory.createInstance();
+			b.add(this.x, LiteralFactory.createLiteral("\"" + (i % joinValues) + "\""));
+			b.add(other, LiteralFactory.createLiteral("\"" + i + "\""));
+			result.add(b);
+		}
+		return result;
+	}
+
+	private HashJoin createJoin(final HashJoin join) {
+		join.setIntersectionVariables(Collections.singletonList(this.x));
+		return join;
+	}
+
+	private static int count(final QueryResult result) {
+		int number = 0;
+		if (result != null) {
+			for (final Bindings b : result) {
+				assertNotNull(b);
+				number++;
+			}
+		}
+		return number;
+	}
+
+	@Test
+	public void testSameResultAsSequentialJoin() {
+		final QueryResult left = this.createOperand(this.y, 3000, 100);
+		final QueryResult right = this.createOperand(this.z, 500, 150);
+		final int parallelResult = TestHashJoin.count(this.createJoin(new HashJoin()).join(left, right));
+		HashJoin.parallel = false;
+		final int sequentialResult = TestHashJoin.count(this.createJoin(new HashJoin()).join(left, right));
+		// each of the 100 join values occurs 30 times on the left, the values 0 to 49 occur 4 times and the values 50 to 99 3 times on the right
+		assertEquals(30 * (50 * 4 + 50 * 3), sequentialResult);
+		assertEquals(sequentialResult, parallelResult);
+	}
+
+	@Test
+	public void testBlockingTasksDoNotStarveThePool() {
+		// only one thread, and the join result is much larger than the buffer between the tasks and the consumer
+		HashJoin.setPool(new ForkJoinPool(1));
+		final QueryResult left = this.createOperand(this.y, 4000, 10);
+		final QueryResult right = this.createOperand(this.z, 400, 10);
+		assertEquals(4000 * 40, TestHashJoin.count(this.createJoin(new HashJoin()).join(left, right)));
+	}
+
+	@Test
+	public void testFailureIsPropagated() {
+		final QueryResult left = this.createOperand(this.y, 3000, 100);
+		final QueryResult right = this.createOperand(this.z, 500, 100);
+		final HashJoin join = this.createJoin(new HashJoin() {
+			@Override
+			protected int hashOfJoinVariables(final Bindings b) {
+				if (b.get(TestHashJoin.this.y) != null && b.get(TestHashJoin.this.y).toString().equals("\"2999\"")) {
+					throw new IllegalStateException("test failure");
+				}
+				return super.hashOfJoinVariables(b);
+			}
+		});
+		try {
+			TestHashJoin.count(join.join(left, right));
+			fail("The join result must not be silently truncated");
+		} catch (final IllegalStateException e) {
+			assertEquals("test failure", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testInterruptIsPropagated() throws Exception {
+		final QueryResult left = this.createOperand(this.y, 3000, 100);
+		final QueryResult right = this.createOperand(this.z, 500, 100);
+		final CountDownLatch partitioning = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		// the partitioning is blocked until the consumer waiting for the join result has been interrupted
+		final HashJoin join = this.createJoin(new HashJoin() {
+			@Override
+			protected int hashOfJoinVariables(final Bindings b) {
+				if (b.get(TestHashJoin.this.y) != null && b.get(TestHashJoin.this.y).toString().equals("\"2999\"")) {
+					partitioning.countDown();
+					try {
+						release.await(10, TimeUnit.SECONDS);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return super.hashOfJoinVariables(b);
+			}
+		});
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final AtomicBoolean interruptFlag = new AtomicBoolean(false);
+		final Thread consumer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					TestHashJoin.count(join.join(left, right));
+				} catch (final Throwable e) {
+					error.set(e);
+				}
+				interruptFlag.set(Thread.currentThread().isInterrupted());
+			}
+		};
+		consumer.start();
+		assertTrue(partitioning.await(10, TimeUnit.SECONDS));
+		consumer.interrupt();
+		consumer.join(10000);
+		release.countDown();
+		assertFalse(consumer.isAlive());
+		assertNotNull("The interrupt must not silently truncate the join result", error.get());
+		assertTrue(error.get().getCause() instanceof InterruptedException);
+		assertTrue(interruptFlag.get());
+	}
+
+	@Test
+	public void testEvaluatorOption() throws Exception {
+		new MemoryIndexQueryEvaluator(new String[] { "--paralleljoin" });
+		assertTrue(HashJoin.parallel);
+		new MemoryIndexQueryEvaluator(new String[] {});
+		assertFalse(HashJoin.parallel);
+	}
+}
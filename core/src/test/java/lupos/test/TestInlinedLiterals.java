@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.buffermanager.BufferManager;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LazyLiteral;
+import lupos.datastructures.items.literal.Literal;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.items.literal.URILiteral;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
+import lupos.engine.evaluators.RDF3XQueryEvaluator;
+import lupos.engine.indexconstruction.FastRDF3XIndexConstruction;
+import lupos.engine.operators.index.Indices.DATA_STRUCT;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that xsd:integer and xsd:dateTime literals inlined into order-preserving codes by the bulk loaders
+ * are compared, joined, sorted and materialized in the same way as dictionary-encoded literals.
+ * The test data consists of weather stations with integer temperatures and the dateTime of their last measurement.
+ *
+ * @author groppe
+ */
+public class TestInlinedLiterals {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private final static int STATIONS = 200;
+
+	private final static long dateTimeEpoch = OrderPreservingCodes.DATETIMEEPOCH;
+
+	private final static String prefix = "PREFIX ex: <http://example.org/> PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> ";
+
+	private final static String[] queries = {
+		// round trip
+		"SELECT ?s ?temp ?time WHERE { ?s ex:temperature ?temp . ?s ex:measuredAt ?time . }",
+		// comparisons of two inlined literals
+		"SELECT ?s ?n WHERE { ?s ex:nextTo ?n . ?s ex:temperature ?t1 . ?n ex:temperature ?t2 . FILTER(?t1 < ?t2) }",
+		"SELECT ?s ?n WHERE { ?s ex:nextTo ?n . ?s ex:temperature ?t1 . ?n ex:temperature ?t2 . FILTER(?t1 <= ?t2) }",
+		"SELECT ?s ?n WHERE { ?s ex:nextTo ?n . ?s ex:temperature ?t1 . ?n ex:temperature ?t2 . FILTER(?t1 > ?t2) }",
+		"SELECT ?s ?n WHERE { ?s ex:nextTo ?n . ?s ex:temperature ?t1 . ?n ex:temperature ?t2 . FILTER(?t1 >= ?t2) }",
+		"SELECT ?s ?n WHERE { ?s ex:nextTo ?n . ?s ex:temperature ?t1 . ?n ex:temperature ?t2 . FILTER(?t1 = ?t2 || ?t1 != ?t2) }",
+		"SELECT ?s ?n WHERE { ?s ex:nextTo ?n . ?s ex:measuredAt ?m1 . ?n ex:measuredAt ?m2 . FILTER(?m1 < ?m2) }",
+		"SELECT ?s ?n WHERE { ?s ex:nextTo ?n . ?s ex:measuredAt ?m1 . ?n ex:measuredAt ?m2 . FILTER(?m1 >= ?m2) }",
+		// joins over inlined literals
+		"SELECT ?s ?n WHERE { ?s ex:temperature ?t . ?n ex:temperature ?t . }",
+		// comparisons with constants of different numeric types
+		"SELECT ?s WHERE { ?s ex:temperature ?t . FILTER(?t < 0) }",
+		"SELECT ?s WHERE { ?s ex:temperature ?t . FILTER(?t <= -25) }",
+		"SELECT ?s WHERE { ?s ex:temperature ?t . FILTER(?t > 12.5) }",
+		"SELECT ?s WHERE { ?s ex:temperature ?t . FILTER(?t >= 2e1) }",
+		"SELECT ?s WHERE { ?s ex:temperature ?t . FILTER(?t = 17 || ?t != -3) }",
+		"SELECT ?s WHERE { ?s ex:temperature ?t . FILTER(0 < ?t && ?t < 10) }",
+		"SELECT ?s WHERE { ?s ex:measuredAt ?m . FILTER(?m > \"2015-06-01T00:00:00Z\"^^xsd:dateTime) }",
+		// mixing inlined and not inlined literals
+		"SELECT ?s WHERE { ?s ex:temperature ?t . FILTER(?t > \"5\"^^xsd:int) }",
+		"SELECT ?s (?t + 1 AS ?u) WHERE { ?s ex:temperature ?t . FILTER(STR(?t) < \"1\") }"
+	};
+
+	private final static String[] orderedQueries = {
+		"SELECT ?t WHERE { ?s ex:temperature ?t . } ORDER BY ?t",
+		"SELECT ?m WHERE { ?s ex:measuredAt ?m . } ORDER BY DESC(?m)"
+	};
+
+	private static File data;
+
+	private static List<List<String>> expected;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		final StringBuilder stations = new StringBuilder();
+		for(int i=0; i<STATIONS; i++){
+			final String station = "<http://example.org/station" + i + ">";
+			stations.append(station + " <http://example.org/nextTo> <http://example.org/station" + ((i * 17 + 3) % STATIONS) + "> .\n");
+			stations.append(station + " <http://example.org/temperature> \"" + ((i * 11) % 71 - 30) + "\"^^<http://www.w3.org/2001/XMLSchema#integer> .\n");
+			stations.append(station + " <http://example.org/measuredAt> \"2015-" + (10 + i % 3) + "-0" + (1 + i % 9) + "T0" + (i % 10) + ":30:00Z\"^^<http://www.w3.org/2001/XMLSchema#dateTime> .\n");
+		}
+		TestInlinedLiterals.data = TestInlinedLiterals.folder.newFile("stations.n3");
+		Files.write(TestInlinedLiterals.data.toPath(), stations.toString().getBytes(StandardCharsets.UTF_8));
+
+		// such that also the measurement times of the test data can be inlined
+		OrderPreservingCodes.DATETIMEEPOCH = 1420070400L; // 2015-01-01T00:00:00Z
+		BufferManager.getBufferManager().releaseAllPages();
+		TestInlinedLiterals.expected = TestInlinedLiterals.evaluateAll(TestInlinedLiterals.loadDataset(false));
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		OrderPreservingCodes.DATETIMEEPOCH = TestInlinedLiterals.dateTimeEpoch;
+		OrderPreservingCodes.INLINING = false;
+	}
+
+	@Before
+	public void setUp() {
+		BufferManager.getBufferManager().releaseAllPages();
+	}
+
+	private static RDF3XQueryEvaluator loadDataset(final boolean inlining) throws Exception {
+		final String tmpDir = TestInlinedLiterals.folder.newFolder().getAbsolutePath();
+		final RDF3XQueryEvaluator evaluator = new RDF3XQueryEvaluator((inlining)?
+				new String[]{ "--inlining", "--codemap", "LAZYLITERALWITHOUTINITIALPREFIXCODEMAP", "--tmpdir", tmpDir } :
+				new String[]{ "--codemap", "LAZYLITERALWITHOUTINITIALPREFIXCODEMAP", "--tmpdir", tmpDir });
+		final LinkedList<URILiteral> defaultGraphs = new LinkedList<URILiteral>();
+		defaultGraphs.add(LiteralFactory.createURILiteralWithoutLazyLiteral("<file:" + TestInlinedLiterals.data.getAbsolutePath() + ">"));
+		evaluator.prepareInputData(defaultGraphs, new LinkedList<URILiteral>());
+		return evaluator;
+	}
+
+	private static List<List<String>> evaluateAll(final RDF3XQueryEvaluator evaluator) throws Exception {
+		final List<List<String>> result = new ArrayList<List<String>>();
+		for(final String query: TestInlinedLiterals.queries){
+			final List<String> solutions = TestInlinedLiterals.evaluateInOrder(evaluator, query);
+			Collections.sort(solutions);
+			result.add(solutions);
+		}
+		for(final String query: TestInlinedLiterals.orderedQueries){
+			result.add(TestInlinedLiterals.evaluateInOrder(evaluator, query));
+		}
+		return result;
+	}
+
+	private static List<String> evaluateInOrder(final RDF3XQueryEvaluator evaluator, final String query) throws Exception {
+		final List<String> result = new ArrayList<String>();
+		for(final Bindings bindings: evaluator.getResult(TestInlinedLiterals.prefix + query)){
+			result.add(bindings.toString());
+		}
+		return result;
+	}
+
+	private static void check(final RDF3XQueryEvaluator evaluator) throws Exception {
+		// the literals are inlined...
+		int inlined = 0;
+		for(final Bindings bindings: evaluator.getResult(TestInlinedLiterals.prefix + TestInlinedLiterals.queries[0])){
+			for(final String var: new String[]{ "temp", "time" }){
+				final Literal literal = bindings.get(new Variable(var));
+				assertTrue(literal.toString(), literal instanceof LazyLiteral && OrderPreservingCodes.isInlined(((LazyLiteral) literal).getCode()));
+				inlined++;
+			}
+		}
+		assertEquals("number of inlined literals", 2 * STATIONS, inlined);
+		// ... and are not stored in the dictionary
+		assertNull(LazyLiteral.getHm().get("\"2015-10-01T00:30:00Z\"^^<http://www.w3.org/2001/XMLSchema#dateTime>"));
+		// the results are the same as for dictionary-encoded literals
+		final List<List<String>> actual = TestInlinedLiterals.evaluateAll(evaluator);
+		for(int i=0; i<TestInlinedLiterals.queries.length; i++){
+			assertEquals(TestInlinedLiterals.queries[i], TestInlinedLiterals.expected.get(i), actual.get(i));
+		}
+		for(int i=0; i<TestInlinedLiterals.orderedQueries.length; i++){
+			assertEquals(TestInlinedLiterals.orderedQueries[i], TestInlinedLiterals.expected.get(TestInlinedLiterals.queries.length + i), actual.get(TestInlinedLiterals.queries.length + i));
+		}
+	}
+
+	@Test
+	public void testExpectedResults() {
+		assertEquals(STATIONS, TestInlinedLiterals.expected.get(0).size());
+		assertEquals(STATIONS, TestInlinedLiterals.expected.get(TestInlinedLiterals.queries.length).size());
+	}
+
+	@Test
+	public void testInliningIsOptIn() throws Exception {
+		final RDF3XQueryEvaluator evaluator = TestInlinedLiterals.loadDataset(false);
+		assertFalse(OrderPreservingCodes.INLINING);
+		for(final Bindings bindings: evaluator.getResult(TestInlinedLiterals.prefix + TestInlinedLiterals.queries[0])){
+			final Literal literal = bindings.get(new Variable("temp"));
+			assertFalse(literal.toString(), literal instanceof LazyLiteral && OrderPreservingCodes.isInlined(((LazyLiteral) literal).getCode()));
+		}
+	}
+
+	@Test
+	public void testDataset() throws Exception {
+		TestInlinedLiterals.check(TestInlinedLiterals.loadDataset(true));
+	}
+
+	@Test
+	public void testFastRDF3XIndexConstruction() throws Exception {
+		OrderPreservingCodes.INLINING = true;
+		final File indexDir = new File(TestInlinedLiterals.folder.newFolder(), "index");
+		FastRDF3XIndexConstruction.main(new String[]{ TestInlinedLiterals.data.getAbsolutePath(), "N3", "UTF-8", "NONE", indexDir.getAbsolutePath() });
+		final RDF3XQueryEvaluator evaluator = new RDF3XQueryEvaluator(new String[]{ "--inlining" });
+		evaluator.loadLargeScaleIndices(indexDir.getAbsolutePath(), DATA_STRUCT.DBBPTREE);
+		TestInlinedLiterals.check(evaluator);
+	}
+}
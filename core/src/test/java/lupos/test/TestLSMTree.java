@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lupos.datastructures.items.Triple;
+import lupos.datastructures.items.TripleKey;
+import lupos.datastructures.items.literal.LazyLiteral;
+import lupos.datastructures.lsmtree.CompactionScheduler;
+import lupos.datastructures.lsmtree.LSMTree;
+import lupos.datastructures.lsmtree.PrefixSearchFromLSMTree;
+import lupos.datastructures.lsmtree.level.Container;
+import lupos.datastructures.lsmtree.level.ILevel;
+import lupos.datastructures.lsmtree.level.collector.RunCollector;
+import lupos.datastructures.lsmtree.level.collector.RunCollector.CompactionPolicy;
+import lupos.datastructures.lsmtree.level.factory.MemoryLevelFactory;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan.CollationOrder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the compaction of LSM trees in the background, i.e., the compaction policies, the rate limit and the handling of failed flushes.
+ *
+ * @author groppe
+ */
+public class TestLSMTree {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private int memorySize;
+
+	private CompactionPolicy compactionPolicy;
+
+	private long maxEntriesPerSecond;
+
+	@Before
+	public void setUp() {
+		this.memorySize = PrefixSearchFromLSMTree.MEMORYSIZE;
+		this.compactionPolicy = RunCollector.COMPACTIONPOLICY;
+		this.maxEntriesPerSecond = CompactionScheduler.MAXENTRIESPERSECOND;
+	}
+
+	@After
+	public void tearDown() {
+		PrefixSearchFromLSMTree.MEMORYSIZE = this.memorySize;
+		RunCollector.COMPACTIONPOLICY = this.compactionPolicy;
+		CompactionScheduler.MAXENTRIESPERSECOND = this.maxEntriesPerSecond;
+	}
+
+	private PrefixSearchFromLSMTree createIndex() {
+		return new PrefixSearchFromLSMTree(CollationOrder.SPO, this.folder.getRoot().getAbsolutePath() + File.separator);
+	}
+
+	private static void insert(final PrefixSearchFromLSMTree index, final int from, final int to) {
+		for (int s = from; s <= to; s++) {
+			final Triple t = new Triple(new LazyLiteral(s), new LazyLiteral(1), new LazyLiteral(s % 7));
+			index.put(new TripleKey(t, CollationOrder.SPO), t);
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void testLeveledCompaction() throws IOException {
+		RunCollector.COMPACTIONPOLICY = CompactionPolicy.LEVELED;
+		PrefixSearchFromLSMTree.MEMORYSIZE = 1000;
+		final PrefixSearchFromLSMTree index = this.createIndex();
+		// many more flushed memory levels than disk runs for each level, such that the runs of several levels are merged
+		final int subjects = 100000;
+		TestLSMTree.insert(index, 1, subjects);
+		index.getLSMTree().waitForCompaction();
+
+		// each disk level consists of at most one run
+		final Matcher matcher = Pattern.compile("#runs=(\\d+)").matcher(index.getLSMTree().getStructureInfo());
+		int levels = 0;
+		while (matcher.find()) {
+			assertTrue(matcher.group(), Integer.parseInt(matcher.group(1)) <= 1);
+			levels++;
+		}
+		assertTrue(levels >= 2);
+
+		// no triple is lost or duplicated during merging
+		final Iterator<Map.Entry<int[], int[]>> it = index.getLSMTree().iterator();
+		int expected = 1;
+		while (it.hasNext()) {
+			assertEquals(expected, it.next().getKey()[0]);
+			expected++;
+		}
+		assertEquals(subjects + 1, expected);
+	}
+
+	@Test(timeout = 60000)
+	public void testRateLimit() throws IOException {
+		PrefixSearchFromLSMTree.MEMORYSIZE = 10240;
+		final PrefixSearchFromLSMTree index = this.createIndex();
+		CompactionScheduler.MAXENTRIESPERSECOND = 10240;
+		final long start = System.currentTimeMillis();
+		// the last insertion starts flushing the full memory level in the background
+		TestLSMTree.insert(index, 1, 10241);
+		index.getLSMTree().waitForCompaction();
+		final long duration = System.currentTimeMillis() - start;
+		// writing 10240 entries at a rate of 10240 entries per second (checked every 1024 entries) takes at least 0.9 seconds
+		assertTrue("duration " + duration, duration >= 850);
+		assertEquals(10241, index.size());
+		final Iterator<Map.Entry<int[], int[]>> it = index.getLSMTree().iterator();
+		int number = 0;
+		while (it.hasNext()) {
+			it.next();
+			number++;
+		}
+		assertEquals(10241, number);
+	}
+
+	@Test(timeout = 60000)
+	public void testFailedFlushIsRethrown() throws Exception {
+		final MemoryLevelFactory<Integer, Integer> levelFactory = new MemoryLevelFactory<Integer, Integer>(10) {
+			@Override
+			public ILevel<Integer, Integer, Iterator<Map.Entry<Integer, Container<Integer>>>> createRun(final int level, final int number) {
+				throw new IllegalStateException("no space left for run " + number + " of level " + level);
+			}
+		};
+		final LSMTree<Integer, Integer, Iterator<Map.Entry<Integer, Container<Integer>>>> tree = new LSMTree<Integer, Integer, Iterator<Map.Entry<Integer, Container<Integer>>>>(levelFactory);
+		// the 11th insertion starts flushing the full memory level in the background, which fails
+		for (int i = 0; i <= 10; i++) {
+			tree.put(i, i);
+		}
+		try {
+			tree.waitForCompaction();
+			fail("the failed flush has not been reported");
+		} catch (final IOException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		// the LSM tree cannot be modified anymore...
+		try {
+			tree.put(11, 11);
+			fail("the failed flush has not been reported");
+		} catch (final IOException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		try {
+			tree.remove(0);
+			fail("the failed flush has not been reported");
+		} catch (final IOException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		// ... but the entries of the memory level, which could not be flushed, are still found
+		for (int i = 0; i <= 10; i++) {
+			assertEquals(Integer.valueOf(i), tree.get(i));
+		}
+	}
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.items.Item;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.items.literal.URILiteral;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.engine.evaluators.RDF3XQueryEvaluator;
+import lupos.engine.operators.BasicOperator;
+import lupos.engine.operators.SimpleOperatorGraphVisitor;
+import lupos.engine.operators.index.adaptedRDF3X.LeapfrogTriejoinIndexScan;
+import lupos.engine.operators.tripleoperator.TriplePattern;
+import lupos.optimizations.physical.joinorder.worstcaseoptimal.LeapfrogTriejoinOptimizer;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the detection of cyclic basic graph patterns and that the Leapfrog Triejoin operator
+ * (option --leapfrogtriejoin) returns the same solutions as the default plan.
+ *
+ * @author groppe
+ */
+public class TestLeapfrogTriejoin {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private final static int PERSONS = 60;
+
+	private final static String prefix = "PREFIX foaf: <http://xmlns.com/foaf/0.1/> PREFIX ex: <http://example.org/> ";
+
+	private final static String[] cyclicQueries = {
+		// triangle
+		"SELECT * WHERE { ?a foaf:knows ?b . ?b foaf:knows ?c . ?a foaf:knows ?c . }",
+		// triangle with different predicates
+		"SELECT * WHERE { ?a foaf:knows ?b . ?b ex:likes ?c . ?c foaf:knows ?a . }",
+		// cycle of length 4
+		"SELECT * WHERE { ?a foaf:knows ?b . ?b foaf:knows ?c . ?c foaf:knows ?d . ?d ex:likes ?a . }",
+		// triangle with a variable predicate
+		"SELECT * WHERE { ?a ?p ?b . ?b foaf:knows ?c . ?a foaf:knows ?c . }",
+		// triangle with a constant
+		"SELECT * WHERE { ?a foaf:knows ?b . ?b foaf:knows ?c . ?a foaf:knows ?c . ?c ex:basedNear ex:city1 . }"
+	};
+
+	private final static String[] defaultPlanQueries = {
+		// chain
+		"SELECT * WHERE { ?a foaf:knows ?b . ?b foaf:knows ?c . ?c ex:likes ?d . }",
+		// star
+		"SELECT * WHERE { ?a foaf:knows ?b . ?a ex:likes ?c . ?a ex:basedNear ?d . }",
+		// cyclic, but with a triple pattern containing a variable twice
+		"SELECT * WHERE { ?a foaf:knows ?b . ?b foaf:knows ?c . ?a foaf:knows ?c . ?c ex:basedNear ?city . ?city ex:locatedIn ?city . }"
+	};
+
+	private static RDF3XQueryEvaluator evaluator;
+
+	private static boolean enabledAfterInit;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		final StringBuilder data = new StringBuilder();
+		for(int i=0; i<PERSONS; i++){
+			final String person = "<http://example.org/person/" + i + ">";
+			data.append(person + " <http://xmlns.com/foaf/0.1/knows> <http://example.org/person/" + ((i + 1) % PERSONS) + "> .\n");
+			data.append(person + " <http://xmlns.com/foaf/0.1/knows> <http://example.org/person/" + ((i + 2) % PERSONS) + "> .\n");
+			data.append(person + " <http://xmlns.com/foaf/0.1/knows> <http://example.org/person/" + ((i * 7 + 3) % PERSONS) + "> .\n");
+			data.append(person + " <http://example.org/likes> <http://example.org/person/" + ((i + PERSONS - 3) % PERSONS) + "> .\n");
+			data.append(person + " <http://example.org/basedNear> <http://example.org/city" + (i % 3) + "> .\n");
+		}
+		data.append("<http://example.org/city1> <http://example.org/locatedIn> <http://example.org/city1> .\n");
+		final File file = TestLeapfrogTriejoin.folder.newFile("persons.n3");
+		Files.write(file.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+
+		TestLeapfrogTriejoin.evaluator = new RDF3XQueryEvaluator(new String[]{ "--leapfrogtriejoin", "--tmpdir", TestLeapfrogTriejoin.folder.newFolder().getAbsolutePath() });
+		TestLeapfrogTriejoin.enabledAfterInit = LeapfrogTriejoinOptimizer.enabled;
+		final LinkedList<URILiteral> defaultGraphs = new LinkedList<URILiteral>();
+		defaultGraphs.add(LiteralFactory.createURILiteralWithoutLazyLiteral("<file:" + file.getAbsolutePath() + ">"));
+		TestLeapfrogTriejoin.evaluator.prepareInputData(defaultGraphs, new LinkedList<URILiteral>());
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		LeapfrogTriejoinOptimizer.enabled = false;
+	}
+
+	/**
+	 * evaluates the given query and checks whether or not its operator graph contains the Leapfrog Triejoin operator
+	 */
+	private static List<String> evaluate(final String query, final boolean leapfrogTriejoin) throws Exception {
+		LeapfrogTriejoinOptimizer.enabled = leapfrogTriejoin;
+		TestLeapfrogTriejoin.evaluator.compileQuery(TestLeapfrogTriejoin.prefix + query);
+		TestLeapfrogTriejoin.evaluator.logicalOptimization();
+		TestLeapfrogTriejoin.evaluator.physicalOptimization();
+		final boolean[] found = { false };
+		TestLeapfrogTriejoin.evaluator.getRootNode().visit(new SimpleOperatorGraphVisitor() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Object visit(final BasicOperator basicOperator) {
+				if(basicOperator instanceof LeapfrogTriejoinIndexScan){
+					found[0] = true;
+				}
+				return null;
+			}
+		});
+		assertEquals(query, leapfrogTriejoin && TestLeapfrogTriejoin.isCyclic(query), found[0]);
+		final QueryResult queryResult = TestLeapfrogTriejoin.evaluator.getResult();
+		final List<String> result = new ArrayList<String>();
+		for(final Bindings bindings: queryResult){
+			final StringBuilder solution = new StringBuilder();
+			for(final Variable var: new TreeSet<Variable>(bindings.getVariableSet())){
+				solution.append(var).append('=').append(bindings.get(var)).append(' ');
+			}
+			result.add(solution.toString());
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	private static boolean isCyclic(final String query){
+		return Arrays.asList(TestLeapfrogTriejoin.cyclicQueries).contains(query);
+	}
+
+	private static TriplePattern tp(final Item subject, final Item predicate, final Item object){
+		return new TriplePattern(subject, predicate, object);
+	}
+
+	@Test
+	public void testEvaluatorOption() {
+		assertTrue(TestLeapfrogTriejoin.enabledAfterInit);
+	}
+
+	@Test
+	public void testIsCyclic() throws Exception {
+		final Variable a = new Variable("a");
+		final Variable b = new Variable("b");
+		final Variable c = new Variable("c");
+		final Variable d = new Variable("d");
+		final Variable p = new Variable("p");
+		final URILiteral knows = LiteralFactory.createURILiteralWithoutLazyLiteral("<http://xmlns.com/foaf/0.1/knows>");
+		// triangle
+		assertTrue(LeapfrogTriejoinOptimizer.isCyclic(Arrays.asList(tp(a, knows, b), tp(b, knows, c), tp(a, knows, c))));
+		// cycle of length 4
+		assertTrue(LeapfrogTriejoinOptimizer.isCyclic(Arrays.asList(tp(a, knows, b), tp(b, knows, c), tp(c, knows, d), tp(d, knows, a))));
+		// 4-clique
+		assertTrue(LeapfrogTriejoinOptimizer.isCyclic(Arrays.asList(tp(a, knows, b), tp(a, knows, c), tp(a, knows, d), tp(b, knows, c), tp(b, knows, d), tp(c, knows, d))));
+		// chain
+		assertFalse(LeapfrogTriejoinOptimizer.isCyclic(Arrays.asList(tp(a, knows, b), tp(b, knows, c), tp(c, knows, d))));
+		// star
+		assertFalse(LeapfrogTriejoinOptimizer.isCyclic(Arrays.asList(tp(a, knows, b), tp(a, knows, c), tp(a, knows, d))));
+		// the triangle is covered by a triple pattern containing all of its variables
+		assertFalse(LeapfrogTriejoinOptimizer.isCyclic(Arrays.asList(tp(a, knows, b), tp(b, knows, c), tp(a, knows, c), tp(a, b, c))));
+		// the variable predicate closes the cycle
+		assertTrue(LeapfrogTriejoinOptimizer.isCyclic(Arrays.asList(tp(a, p, b), tp(b, knows, c), tp(c, knows, d), tp(d, p, a))));
+		// single triple pattern
+		assertFalse(LeapfrogTriejoinOptimizer.isCyclic(Arrays.asList(tp(a, p, b))));
+	}
+
+	@Test
+	public void testCyclicQueries() throws Exception {
+		for(final String query: TestLeapfrogTriejoin.cyclicQueries){
+			final List<String> expected = TestLeapfrogTriejoin.evaluate(query, false);
+			assertFalse(query, expected.isEmpty());
+			assertEquals(query, expected, TestLeapfrogTriejoin.evaluate(query, true));
+		}
+	}
+
+	@Test
+	public void testCyclicQueryWithoutResult() throws Exception {
+		final String query = "SELECT * WHERE { ?a foaf:knows ?b . ?b foaf:knows ?c . ?a ex:likes ?c . }";
+		assertTrue(TestLeapfrogTriejoin.evaluate(query, false).isEmpty());
+		TestLeapfrogTriejoin.evaluator.compileQuery(TestLeapfrogTriejoin.prefix + query);
+		LeapfrogTriejoinOptimizer.enabled = true;
+		TestLeapfrogTriejoin.evaluator.logicalOptimization();
+		TestLeapfrogTriejoin.evaluator.physicalOptimization();
+		assertFalse(TestLeapfrogTriejoin.evaluator.getResult().iterator().hasNext());
+	}
+
+	@Test
+	public void testDefaultPlan() throws Exception {
+		for(final String query: TestLeapfrogTriejoin.defaultPlanQueries){
+			final List<String> expected = TestLeapfrogTriejoin.evaluate(query, false);
+			assertFalse(query, expected.isEmpty());
+			assertEquals(query, expected, TestLeapfrogTriejoin.evaluate(query, true));
+		}
+	}
+}
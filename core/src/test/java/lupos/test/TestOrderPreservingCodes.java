@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that literals are inlined into order-preserving codes only in their canonical representation and are decoded to the same literals.
+ *
+ * @author groppe
+ */
+public class TestOrderPreservingCodes {
+
+	private final static String INTEGER = "^^<http://www.w3.org/2001/XMLSchema#integer>";
+
+	private final static String DATETIME = "^^<http://www.w3.org/2001/XMLSchema#dateTime>";
+
+	private final long dateTimeEpoch = OrderPreservingCodes.DATETIMEEPOCH;
+
+	@Before
+	public void setUp() {
+		OrderPreservingCodes.INLINING = true;
+	}
+
+	@After
+	public void tearDown() {
+		OrderPreservingCodes.INLINING = false;
+		OrderPreservingCodes.DATETIMEEPOCH = this.dateTimeEpoch;
+	}
+
+	private static String integer(final long value) {
+		return "\"" + value + "\"" + TestOrderPreservingCodes.INTEGER;
+	}
+
+	@Test
+	public void testIntegers() {
+		final long[] values = { OrderPreservingCodes.MININTEGER, -1000, -1, 0, 1, 42, 1000, OrderPreservingCodes.MAXINTEGER };
+		int previousCode = 0;
+		for (final long value : values) {
+			final String rdfTerm = TestOrderPreservingCodes.integer(value);
+			final int code = OrderPreservingCodes.encode(rdfTerm);
+			assertTrue(rdfTerm, OrderPreservingCodes.isInlinedInteger(code));
+			assertEquals(rdfTerm, OrderPreservingCodes.decode(code));
+			assertEquals(value, OrderPreservingCodes.decodeInteger(code));
+			assertEquals(code, OrderPreservingCodes.encodeInteger(value));
+			// the order of the codes is the order of the values
+			assertTrue(rdfTerm, previousCode < code);
+			assertTrue(previousCode == 0 || OrderPreservingCodes.isOrderPreserving(previousCode, code));
+			previousCode = code;
+		}
+	}
+
+	@Test
+	public void testNotInlinedIntegers() {
+		// out of range
+		assertEquals(0, OrderPreservingCodes.encode(TestOrderPreservingCodes.integer(OrderPreservingCodes.MININTEGER - 1L)));
+		assertEquals(0, OrderPreservingCodes.encode(TestOrderPreservingCodes.integer(OrderPreservingCodes.MAXINTEGER + 1L)));
+		// not canonical
+		for (final String lexical : new String[] { "+5", "05", "-0", "", "1.0", "1e3" }) {
+			assertEquals(lexical, 0, OrderPreservingCodes.encode("\"" + lexical + "\"" + TestOrderPreservingCodes.INTEGER));
+		}
+		// other types and plain literals
+		assertEquals(0, OrderPreservingCodes.encode("\"5\"^^<http://www.w3.org/2001/XMLSchema#int>"));
+		assertEquals(0, OrderPreservingCodes.encode("\"5\""));
+		assertEquals(0, OrderPreservingCodes.encode("<http://ex/5>"));
+		OrderPreservingCodes.INLINING = false;
+		assertEquals(0, OrderPreservingCodes.encode(TestOrderPreservingCodes.integer(5)));
+		assertFalse(OrderPreservingCodes.isInlined(OrderPreservingCodes.FIRSTINLINEDCODE));
+	}
+
+	@Test
+	public void testDictionaryCodeOverflow() {
+		OrderPreservingCodes.checkDictionaryCode(1);
+		OrderPreservingCodes.checkDictionaryCode(OrderPreservingCodes.FIRSTINLINEDCODE - 1);
+		OrderPreservingCodes.checkDictionarySize(0);
+		for (final int code : new int[] { 0, OrderPreservingCodes.FIRSTINLINEDCODE, Integer.MAX_VALUE }) {
+			try {
+				OrderPreservingCodes.checkDictionaryCode(code);
+				fail("code " + code);
+			} catch (final IllegalStateException e) {
+				// expected
+			}
+		}
+		try {
+			OrderPreservingCodes.checkDictionarySize(OrderPreservingCodes.FIRSTINLINEDCODE);
+			fail("size " + OrderPreservingCodes.FIRSTINLINEDCODE);
+		} catch (final IllegalStateException e) {
+			// expected
+		}
+		// without inlining, the whole code space can be used by the dictionary
+		OrderPreservingCodes.INLINING = false;
+		OrderPreservingCodes.checkDictionaryCode(OrderPreservingCodes.FIRSTINLINEDCODE);
+		assertFalse(OrderPreservingCodes.isValidDictionaryCode(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testDateTimes() {
+		final String[] dateTimes = { "2020-01-01T00:00:00Z", "2020-02-29T23:59:59Z", "2021-03-01T00:00:00Z", "2030-12-31T12:00:00Z" };
+		int previousCode = 0;
+		for (final String dateTime : dateTimes) {
+			final String rdfTerm = "\"" + dateTime + "\"" + TestOrderPreservingCodes.DATETIME;
+			final int code = OrderPreservingCodes.encode(rdfTerm);
+			assertTrue(rdfTerm, OrderPreservingCodes.isInlined(code));
+			assertFalse(rdfTerm, OrderPreservingCodes.isInlinedInteger(code));
+			assertEquals(rdfTerm, OrderPreservingCodes.decode(code));
+			assertTrue(rdfTerm, previousCode < code);
+			previousCode = code;
+		}
+		// integers and date times are not compared by their codes
+		assertFalse(OrderPreservingCodes.isOrderPreserving(OrderPreservingCodes.encodeInteger(5), previousCode));
+		// invalid dates, time zones, fractional seconds and dates before the epoch are not inlined
+		for (final String dateTime : new String[] { "2021-02-29T00:00:00Z", "2021-01-01T24:00:00Z", "2021-01-01T00:00:00+01:00", "2021-01-01T00:00:00.5Z", "2019-12-31T23:59:59Z" }) {
+			assertEquals(dateTime, 0, OrderPreservingCodes.encode("\"" + dateTime + "\"" + TestOrderPreservingCodes.DATETIME));
+		}
+		OrderPreservingCodes.DATETIMEEPOCH = 1420070400L; // 2015-01-01T00:00:00Z
+		final String rdfTerm = "\"2015-06-15T10:30:00Z\"" + TestOrderPreservingCodes.DATETIME;
+		assertEquals(rdfTerm, OrderPreservingCodes.decode(OrderPreservingCodes.encode(rdfTerm)));
+	}
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lupos.datastructures.items.Triple;
+import lupos.datastructures.items.TripleKey;
+import lupos.datastructures.items.literal.LazyLiteral;
+import lupos.datastructures.lsmtree.LSMTree;
+import lupos.datastructures.lsmtree.PrefixSearchFromLSMTree;
+import lupos.datastructures.lsmtree.level.Container;
+import lupos.datastructures.lsmtree.level.ILevel;
+import lupos.datastructures.lsmtree.level.disk.store.StoreIntTriple;
+import lupos.datastructures.lsmtree.level.disk.store.StoreIntTriple.IntTripleComparator;
+import lupos.datastructures.lsmtree.level.factory.DiskLevelFactory;
+import lupos.datastructures.lsmtree.level.factory.IMemoryLevelFactory;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan.CollationOrder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the ingestion into and the prefix search in an evaluation index stored in an LSM tree.
+ *
+ * @author groppe
+ */
+public class TestPrefixSearchFromLSMTree {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private int memorySize;
+
+	private PrefixSearchFromLSMTree index;
+
+	@Before
+	public void setUp() {
+		this.memorySize = PrefixSearchFromLSMTree.MEMORYSIZE;
+		// several memory levels are flushed into disk runs
+		PrefixSearchFromLSMTree.MEMORYSIZE = 10000;
+		this.index = new PrefixSearchFromLSMTree(CollationOrder.SPO, this.folder.getRoot().getAbsolutePath() + File.separator);
+	}
+
+	@After
+	public void tearDown() {
+		PrefixSearchFromLSMTree.MEMORYSIZE = this.memorySize;
+	}
+
+	private static Triple getTriple(final int s, final int p, final int o) {
+		return new Triple(new LazyLiteral(s), new LazyLiteral(p), new LazyLiteral(o));
+	}
+
+	private static TripleKey getKey(final Triple triple) {
+		return new TripleKey(triple, CollationOrder.SPO);
+	}
+
+	private int countSubject(final int s) {
+		final Iterator<Triple> it = this.index.prefixSearch(TestPrefixSearchFromLSMTree.getKey(new Triple(new LazyLiteral(s), null, null)));
+		int number = 0;
+		while (it.hasNext()) {
+			final Triple t = it.next();
+			assertEquals(s, ((LazyLiteral) t.getSubject()).getCode());
+			number++;
+		}
+		return number;
+	}
+
+	@Test(timeout = 60000)
+	public void testIngestion() {
+		// the insertions must not look up the triples before (which would sort the memory level again and again)
+		final int subjects = 20000;
+		for (int s = 1; s <= subjects; s++) {
+			for (int o = 1; o <= 10; o++) {
+				final Triple t = TestPrefixSearchFromLSMTree.getTriple(s, 1, o);
+				assertNull(this.index.put(TestPrefixSearchFromLSMTree.getKey(t), t));
+			}
+		}
+		assertEquals(subjects * 10, this.index.size());
+		assertFalse(this.index.isEmpty());
+		assertEquals(10, this.countSubject(1));
+		assertEquals(10, this.countSubject(subjects / 2));
+		assertEquals(10, this.countSubject(subjects));
+		assertEquals(0, this.countSubject(subjects + 1));
+		final Triple t = TestPrefixSearchFromLSMTree.getTriple(subjects / 2, 1, 5);
+		assertEquals(5, ((LazyLiteral) this.index.get(TestPrefixSearchFromLSMTree.getKey(t)).getObject()).getCode());
+	}
+
+	@Test(timeout = 60000)
+	public void testConcurrentInsertionsAndQueries() throws Exception {
+		final int preloaded = 5000;
+		final int subjects = 20000;
+		for (int s = 1; s <= preloaded; s++) {
+			for (int o = 1; o <= 10; o++) {
+				final Triple t = TestPrefixSearchFromLSMTree.getTriple(s, 1, o);
+				this.index.put(TestPrefixSearchFromLSMTree.getKey(t), t);
+			}
+		}
+		final AtomicInteger inserted = new AtomicInteger(preloaded);
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for (int s = preloaded + 1; s <= subjects; s++) {
+						for (int o = 1; o <= 10; o++) {
+							final Triple t = TestPrefixSearchFromLSMTree.getTriple(s, 1, o);
+							TestPrefixSearchFromLSMTree.this.index.put(TestPrefixSearchFromLSMTree.getKey(t), t);
+						}
+						inserted.set(s);
+					}
+				} catch (final Throwable e) {
+					error.set(e);
+				}
+			}
+		};
+		// this iterator is opened before and consumed during the insertions, such that memory levels are flushed and disk runs are merged meanwhile
+		final Iterator<Entry<int[], int[]>> it = this.index.getLSMTree().iterator();
+		writer.start();
+		final Random random = new Random(42);
+		int[] lastKey = null;
+		int numberOfPreloaded = 0;
+		while (writer.isAlive() || it.hasNext()) {
+			if (writer.isAlive()) {
+				// all triples of already inserted subjects are found
+				final int s = 1 + random.nextInt(inserted.get());
+				assertEquals("subject " + s, 10, this.countSubject(s));
+			}
+			if (it.hasNext()) {
+				final int[] key = it.next().getKey();
+				if (lastKey != null) {
+					assertTrue(TestPrefixSearchFromLSMTree.compare(lastKey, key) < 0);
+				}
+				if (key[0] <= preloaded) {
+					numberOfPreloaded++;
+				}
+				lastKey = key;
+			}
+		}
+		writer.join();
+		assertNull(error.get());
+		assertEquals(preloaded * 10, numberOfPreloaded);
+		assertEquals(10, this.countSubject(subjects));
+	}
+
+	private static int compare(final int[] key1, final int[] key2) {
+		for (int i = 0; i < key1.length; i++) {
+			if (key1[i] != key2[i]) {
+				return (key1[i] < key2[i]) ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	@Test
+	public void testBlindUpdates() {
+		for (int o = 1; o <= 10; o++) {
+			final Triple t = TestPrefixSearchFromLSMTree.getTriple(1, 1, o);
+			this.index.put(TestPrefixSearchFromLSMTree.getKey(t), t);
+		}
+		// inserting an already contained triple does not duplicate it (but the size is just estimated)
+		final Triple contained = TestPrefixSearchFromLSMTree.getTriple(1, 1, 1);
+		assertNull(this.index.put(TestPrefixSearchFromLSMTree.getKey(contained), contained));
+		assertEquals(10, this.countSubject(1));
+		assertTrue(this.index.size() >= 10);
+
+		for (int o = 1; o <= 5; o++) {
+			assertNull(this.index.remove(TestPrefixSearchFromLSMTree.getKey(TestPrefixSearchFromLSMTree.getTriple(1, 1, o))));
+		}
+		// deleting a not contained triple
+		this.index.remove(TestPrefixSearchFromLSMTree.getKey(TestPrefixSearchFromLSMTree.getTriple(2, 1, 1)));
+		assertEquals(5, this.countSubject(1));
+		assertNull(this.index.get(TestPrefixSearchFromLSMTree.getKey(contained)));
+
+		for (int o = 6; o <= 10; o++) {
+			this.index.remove(TestPrefixSearchFromLSMTree.getKey(TestPrefixSearchFromLSMTree.getTriple(1, 1, o)));
+		}
+		assertTrue(this.index.isEmpty());
+	}
+
+	@Test(timeout = 60000)
+	public void testFailedFlushIsThrown() throws Exception {
+		final DiskLevelFactory<int[], int[]> levelFactory = new DiskLevelFactory<int[], int[]>(new IntTripleComparator(CollationOrder.SPO), new StoreIntTriple(CollationOrder.SPO), this.folder.getRoot().getAbsolutePath() + File.separator, 10, 2, IMemoryLevelFactory.<int[], int[]>createMemoryLevelLazySortingFactory()) {
+			@Override
+			public ILevel<int[], int[], Iterator<Map.Entry<int[], Container<int[]>>>> createRun(final int level, final int number) throws IOException {
+				throw new IOException("no space left for run " + number + " of level " + level);
+			}
+		};
+		final PrefixSearchFromLSMTree failingIndex = new PrefixSearchFromLSMTree(CollationOrder.SPO, new LSMTree<int[], int[], Iterator<Map.Entry<int[], Container<int[]>>>>("SPO", levelFactory), 0);
+		try {
+			// flushing the first full memory level fails in the background, which must be reported by one of the succeeding insertions
+			for (int s = 1; s <= 100; s++) {
+				final Triple t = TestPrefixSearchFromLSMTree.getTriple(s, 1, 1);
+				failingIndex.put(TestPrefixSearchFromLSMTree.getKey(t), t);
+			}
+			fail("the failed flush has not been reported");
+		} catch (final RuntimeException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		try {
+			failingIndex.remove(TestPrefixSearchFromLSMTree.getKey(TestPrefixSearchFromLSMTree.getTriple(1, 1, 1)));
+			fail("the failed flush has not been reported");
+		} catch (final RuntimeException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LazyLiteral;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.items.literal.URILiteral;
+import lupos.datastructures.items.literal.codemap.OrderPreservingCodes;
+import lupos.engine.evaluators.RDF3XQueryEvaluator;
+import lupos.engine.operators.BasicOperator;
+import lupos.engine.operators.SimpleOperatorGraphVisitor;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that prefix filters and numeric comparisons pushed into RDF3X index scans
+ * restrict the ranges of the index scans without changing the results.
+ * The products of the test data have labels with three different prefixes,
+ * integer prices and release dates (which are not numeric).
+ *
+ * @author groppe
+ */
+public class TestPushRangeFilterIntoIndexScan {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private final static String prefix = "PREFIX ex: <http://example.org/> PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> ";
+
+	private final static String[] queries = {
+		// prefix filters
+		"SELECT ?p ?label WHERE { ?p ex:label ?label . FILTER(STRSTARTS(?label, \"Widget\")) }",
+		"SELECT ?p ?label WHERE { ?p ex:label ?label . FILTER(STRSTARTS(STR(?label), \"Gadget\") && STRSTARTS(?label, \"Gadget 1\")) }",
+		"SELECT ?p ?label WHERE { ?p ex:label ?label . FILTER(REGEX(?label, \"^Gizmo\")) }",
+		"SELECT ?p ?c WHERE { ?p ex:category ?c . FILTER(STRSTARTS(STR(?c), \"http://example.org/category/1\")) }",
+		"SELECT ?p ?label WHERE { ?p ex:label ?label . FILTER(STRSTARTS(?label, \"Doohickey\")) }",
+		// numeric comparisons
+		"SELECT ?p ?price WHERE { ?p ex:price ?price . FILTER(?price > 400) }",
+		"SELECT ?p ?price WHERE { ?p ex:price ?price . FILTER(?price >= -20 && ?price < 20.5) }",
+		"SELECT ?p ?price WHERE { ?p ex:price ?price . FILTER(100 >= ?price && -100 < ?price) }",
+		"SELECT ?p ?price WHERE { ?p ex:price ?price . FILTER(?price <= \"-450\"^^xsd:integer) }",
+		"SELECT ?p ?price WHERE { ?p ex:price ?price . FILTER(?price < -499.5 || ?price > 490) }",
+		"SELECT ?p ?price WHERE { ?p ex:price ?price . FILTER(?price > 1e2) }",
+		"SELECT ?p ?price WHERE { ?p ex:price ?price . FILTER(?price > 5000000000) }",
+		// numeric comparisons with values, which are not numeric, are type errors
+		"SELECT ?p ?d WHERE { ?p ex:released ?d . FILTER(?d < 5) }",
+		"SELECT ?p ?d WHERE { ?p ex:released ?d . FILTER(?d > 5) }",
+		// combination with a join
+		"SELECT ?p ?label ?price WHERE { ?p ex:label ?label . ?p ex:price ?price . FILTER(STRSTARTS(?label, \"Gizmo\") && ?price < 0) }"
+	};
+
+	private static RDF3XQueryEvaluator evaluator;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		final String[] labels = { "Widget", "Gadget", "Gizmo" };
+		final StringBuilder data = new StringBuilder();
+		for(int i=0; i<150; i++){
+			final String product = "<http://example.org/product" + i + ">";
+			data.append(product + " <http://example.org/label> \"" + labels[i % labels.length] + " " + i + "\" .\n");
+			data.append(product + " <http://example.org/price> \"" + ((i * 37) % 1000 - 500) + "\"^^<http://www.w3.org/2001/XMLSchema#integer> .\n");
+			data.append(product + " <http://example.org/category> <http://example.org/category/" + (i % 6) + "> .\n");
+			data.append(product + " <http://example.org/released> \"2014-0" + (1 + i % 9) + "-01T00:00:00Z\"^^<http://www.w3.org/2001/XMLSchema#dateTime> .\n");
+		}
+		final File file = TestPushRangeFilterIntoIndexScan.folder.newFile("products.n3");
+		Files.write(file.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+
+		TestPushRangeFilterIntoIndexScan.evaluator = new RDF3XQueryEvaluator(new String[]{ "--inlining", "--pushdownrangefilters", "--codemap", "LAZYLITERALWITHOUTINITIALPREFIXCODEMAP", "--tmpdir", TestPushRangeFilterIntoIndexScan.folder.newFolder().getAbsolutePath() });
+		final LinkedList<URILiteral> defaultGraphs = new LinkedList<URILiteral>();
+		defaultGraphs.add(LiteralFactory.createURILiteralWithoutLazyLiteral("<file:" + file.getAbsolutePath() + ">"));
+		TestPushRangeFilterIntoIndexScan.evaluator.prepareInputData(defaultGraphs, new LinkedList<URILiteral>());
+	}
+
+	@After
+	public void reset() {
+		// as set by the option of the evaluator
+		RDF3XIndexScan.pushDownRangeFilters = true;
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		RDF3XIndexScan.pushDownRangeFilters = false;
+	}
+
+	private static List<String> evaluate(final String query) throws Exception {
+		final List<String> result = new ArrayList<String>();
+		for(final Bindings bindings: TestPushRangeFilterIntoIndexScan.evaluator.getResult(TestPushRangeFilterIntoIndexScan.prefix + query)){
+			result.add(bindings.toString());
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	private static List<RDF3XIndexScan> getRestrictedIndexScans(final String query) throws Exception {
+		TestPushRangeFilterIntoIndexScan.evaluator.compileQuery(TestPushRangeFilterIntoIndexScan.prefix + query);
+		TestPushRangeFilterIntoIndexScan.evaluator.logicalOptimization();
+		TestPushRangeFilterIntoIndexScan.evaluator.physicalOptimization();
+		final List<RDF3XIndexScan> result = new LinkedList<RDF3XIndexScan>();
+		TestPushRangeFilterIntoIndexScan.evaluator.getRootNode().visit(new SimpleOperatorGraphVisitor() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Object visit(final BasicOperator basicOperator) {
+				if(basicOperator instanceof RDF3XIndexScan){
+					final RDF3XIndexScan indexScan = (RDF3XIndexScan) basicOperator;
+					if(indexScan.getMinima() != null && !indexScan.getMinima().isEmpty()){
+						result.add(indexScan);
+					}
+				}
+				return null;
+			}
+		});
+		return result;
+	}
+
+	@Test
+	public void testSameResults() throws Exception {
+		for(final String query: TestPushRangeFilterIntoIndexScan.queries){
+			RDF3XIndexScan.pushDownRangeFilters = false;
+			final List<String> expected = TestPushRangeFilterIntoIndexScan.evaluate(query);
+			RDF3XIndexScan.pushDownRangeFilters = true;
+			assertEquals(query, expected, TestPushRangeFilterIntoIndexScan.evaluate(query));
+		}
+	}
+
+	@Test
+	public void testPrefixFilterRestrictsIndexScan() throws Exception {
+		final List<RDF3XIndexScan> scans = TestPushRangeFilterIntoIndexScan.getRestrictedIndexScans(TestPushRangeFilterIntoIndexScan.queries[0]);
+		assertEquals(1, scans.size());
+		final Variable label = new Variable("label");
+		final LazyLiteral min = (LazyLiteral) scans.get(0).getMinima().get(label);
+		final LazyLiteral max = (LazyLiteral) scans.get(0).getMaxima().get(label);
+		assertNotNull(min);
+		assertNotNull(max);
+		assertTrue(min.getCode() <= max.getCode());
+		// the labels with other prefixes are outside the range
+		for(final String other: new String[]{ "\"Gadget 1\"", "\"Gizmo 2\"" }){
+			final int code = LazyLiteral.getHm().get(other);
+			assertTrue(other, code < min.getCode() || code > max.getCode());
+		}
+		assertEquals(50, TestPushRangeFilterIntoIndexScan.evaluate(TestPushRangeFilterIntoIndexScan.queries[0]).size());
+	}
+
+	@Test
+	public void testNumericComparisonRestrictsIndexScan() throws Exception {
+		final List<RDF3XIndexScan> scans = TestPushRangeFilterIntoIndexScan.getRestrictedIndexScans(TestPushRangeFilterIntoIndexScan.queries[6]);
+		assertEquals(1, scans.size());
+		final Variable price = new Variable("price");
+		final LazyLiteral min = (LazyLiteral) scans.get(0).getMinima().get(price);
+		final LazyLiteral max = (LazyLiteral) scans.get(0).getMaxima().get(price);
+		// the range contains the inlined integers in [-20, 20] and the literals in the dictionary, which may be numeric (here the release dates)
+		assertEquals(OrderPreservingCodes.encodeInteger(20), max.getCode());
+		assertTrue(min.getCode() < OrderPreservingCodes.FIRSTINLINEDCODE);
+	}
+
+	@Test
+	public void testUnsupportedComparisonsAreNotPushedDown() throws Exception {
+		// comparisons with double values are not exact
+		assertTrue(TestPushRangeFilterIntoIndexScan.getRestrictedIndexScans(TestPushRangeFilterIntoIndexScan.queries[10]).isEmpty());
+		// comparisons with variables and inequality
+		assertTrue(TestPushRangeFilterIntoIndexScan.getRestrictedIndexScans("SELECT ?p ?price WHERE { ?p ex:price ?price . FILTER(?price != 5 && ?price > ?p) }").isEmpty());
+		RDF3XIndexScan.pushDownRangeFilters = false;
+		assertTrue(TestPushRangeFilterIntoIndexScan.getRestrictedIndexScans(TestPushRangeFilterIntoIndexScan.queries[0]).isEmpty());
+	}
+
+	@Test
+	public void testConstantsAreNotAddedToDictionary() throws Exception {
+		// the prefix of this query is not used in any other query
+		assertTrue(TestPushRangeFilterIntoIndexScan.evaluate("SELECT ?p WHERE { ?p ex:label ?label . FILTER(STRSTARTS(?label, \"Thingamajig\")) }").isEmpty());
+		assertNull(LazyLiteral.getHm().get("\"Thingamajig\""));
+		assertFalse(TestPushRangeFilterIntoIndexScan.evaluate(TestPushRangeFilterIntoIndexScan.queries[0]).isEmpty());
+	}
+}
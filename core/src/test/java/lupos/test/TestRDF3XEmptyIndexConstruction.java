@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.buffermanager.BufferManager;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.engine.evaluators.RDF3XQueryEvaluator;
+import lupos.engine.indexconstruction.RDF3XEmptyIndexConstruction;
+import lupos.engine.operators.index.Indices;
+import lupos.engine.operators.index.Indices.DATA_STRUCT;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that an empty index with evaluation indices stored in LSM trees can be constructed, loaded, updated,
+ * written out and loaded again.
+ *
+ * @author groppe
+ */
+public class TestRDF3XEmptyIndexConstruction {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void setUp() {
+		// the buffered pages of previous tests (the files of which may already be deleted) must not be written out when constructing the index
+		BufferManager.getBufferManager().releaseAllPages();
+	}
+
+	@After
+	public void tearDown() {
+		Indices.setUsedDatastructure(DATA_STRUCT.DBBPTREE);
+	}
+
+	private static RDF3XQueryEvaluator load(final File dir) throws Exception {
+		final RDF3XQueryEvaluator evaluator = new RDF3XQueryEvaluator();
+		evaluator.loadLargeScaleIndices(dir.getAbsolutePath(), DATA_STRUCT.LSMTREE);
+		return evaluator;
+	}
+
+	private static List<String> getObjects(final RDF3XQueryEvaluator evaluator, final String subject) throws Exception {
+		final QueryResult queryResult = evaluator.getResult("SELECT * WHERE { " + subject + " ?p ?o . }");
+		final List<String> result = new ArrayList<String>();
+		if(queryResult != null){
+			for(final Bindings bindings: queryResult){
+				result.add(bindings.toString());
+			}
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	private static int size(final RDF3XQueryEvaluator evaluator, final String query) throws Exception {
+		final QueryResult queryResult = evaluator.getResult(query);
+		return (queryResult == null) ? 0 : queryResult.size();
+	}
+
+	@Test
+	public void testRoundTripWithLSMTrees() throws Exception {
+		final File dir = this.folder.newFolder();
+		RDF3XEmptyIndexConstruction.main(new String[] { dir.getAbsolutePath(), "LSMTREE" });
+
+		RDF3XQueryEvaluator evaluator = TestRDF3XEmptyIndexConstruction.load(dir);
+		assertEquals(0, TestRDF3XEmptyIndexConstruction.getObjects(evaluator, "<http://ex/a>").size());
+
+		evaluator.getResult("INSERT DATA { <http://ex/a> <http://ex/p> <http://ex/b> . <http://ex/a> <http://ex/p> <http://ex/c> . <http://ex/a> <http://ex/q> \"name\" . <http://ex/b> <http://ex/p> <http://ex/c> . }");
+		assertEquals(3, TestRDF3XEmptyIndexConstruction.getObjects(evaluator, "<http://ex/a>").size());
+		assertEquals(2, TestRDF3XEmptyIndexConstruction.size(evaluator, "SELECT * WHERE { ?s <http://ex/p> <http://ex/c> . }"));
+		// join over two triple patterns
+		assertEquals(1, TestRDF3XEmptyIndexConstruction.size(evaluator, "SELECT * WHERE { <http://ex/a> <http://ex/p> ?x . ?x <http://ex/p> ?y . }"));
+
+		evaluator.getResult("DELETE DATA { <http://ex/a> <http://ex/p> <http://ex/c> . }");
+		final List<String> expected = TestRDF3XEmptyIndexConstruction.getObjects(evaluator, "<http://ex/a>");
+		assertEquals(expected.toString(), 2, expected.size());
+
+		evaluator.writeOutAllModifiedPagesInRDFDataIndices(dir.getAbsolutePath());
+
+		evaluator = TestRDF3XEmptyIndexConstruction.load(dir);
+		assertEquals(expected, TestRDF3XEmptyIndexConstruction.getObjects(evaluator, "<http://ex/a>"));
+	}
+}
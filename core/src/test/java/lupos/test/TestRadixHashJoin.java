@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LazyLiteral;
+import lupos.datastructures.items.literal.Literal;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.engine.operators.multiinput.join.HashJoin;
+import lupos.engine.operators.multiinput.join.RadixHashJoin;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the radix hash join on dictionary codes returns the same solutions as the hash join
+ *
+ * @author groppe
+ */
+public class TestRadixHashJoin {
+
+	private final Variable x = new Variable("x");
+	private final Variable y = new Variable("y");
+	private final Variable z = new Variable("z");
+	private final Variable w = new Variable("w");
+
+	private BindingsFactory bindingsFactory;
+
+	private int maxSolutionsPerPartition;
+
+	@Before
+	public void setUp() {
+		LiteralFactory.setType(LiteralFactory.MapType.LAZYLITERAL);
+		this.bindingsFactory = BindingsFactory.createBindingsFactory(Arrays.asList(this.x, this.y, this.z, this.w));
+		this.maxSolutionsPerPartition = RadixHashJoin.maxSolutionsPerPartition;
+		// use many small partitions
+		RadixHashJoin.maxSolutionsPerPartition = 16;
+	}
+
+	@After
+	public void tearDown() {
+		RadixHashJoin.maxSolutionsPerPartition = this.maxSolutionsPerPartition;
+	}
+
+	/**
+	 * creates an operand, the i-th solution of which binds x to i % joinValues, y to i % (2 * joinValues) and other to i
+	 * (the codes of the literals are distinct for the variables)
+	 */
+	private QueryResult createOperand(final Variable other, final int size, final int joinValues) {
+		final QueryResult result = QueryResult.createInstance();
+		for (int i = 0; i < size; i++) {
+			final Bindings b = this.bindingsFactory.createInstance();
+			b.add(this.x, new LazyLiteral(1 + i % joinValues));
+			b.add(this.y, new LazyLiteral(100001 + i % (2 * joinValues)));
+			b.add(other, new LazyLiteral(200001 + i));
+			result.add(b);
+		}
+		return result;
+	}
+
+	private static List<String> join(final HashJoin join, final QueryResult left, final QueryResult right, final Variable... joinVariables) {
+		join.setIntersectionVariables(Arrays.asList(joinVariables));
+		final List<String> result = new ArrayList<String>();
+		final QueryResult joined = join.join(left, right);
+		if (joined != null) {
+			for (final Bindings b : joined) {
+				final StringBuilder solution = new StringBuilder();
+				for (final String name : new String[] { "w", "x", "y", "z" }) {
+					final Variable var = new Variable(name);
+					final Literal literal = b.get(var);
+					solution.append(var).append('=').append((literal == null) ? "-" : Integer.toString(((LazyLiteral) literal).getCode())).append(' ');
+				}
+				result.add(solution.toString());
+			}
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	@Test
+	public void testSameResultAsHashJoin() {
+		final QueryResult left = this.createOperand(this.z, 3000, 100);
+		final QueryResult right = this.createOperand(this.w, 500, 150);
+		final List<String> expected = TestRadixHashJoin.join(new HashJoin(), left, right, this.x);
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, TestRadixHashJoin.join(new RadixHashJoin(), left, right, this.x));
+		assertEquals(expected, TestRadixHashJoin.join(new RadixHashJoin(), right, left, this.x));
+	}
+
+	@Test
+	public void testSeveralJoinVariables() {
+		final QueryResult left = this.createOperand(this.z, 2000, 70);
+		final QueryResult right = this.createOperand(this.w, 1000, 35);
+		final List<String> expected = TestRadixHashJoin.join(new HashJoin(), left, right, this.x, this.y);
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, TestRadixHashJoin.join(new RadixHashJoin(), left, right, this.x, this.y));
+	}
+
+	@Test
+	public void testFallbackForUnboundJoinVariable() {
+		final QueryResult left = this.createOperand(this.z, 1000, 50);
+		final QueryResult right = this.createOperand(this.w, 300, 50);
+		// the join variable of the last solution of the larger operand is unbound, such that it is joined with all solutions of the other operand
+		final Bindings unbound = this.bindingsFactory.createInstance();
+		unbound.add(this.y, new LazyLiteral(100001));
+		unbound.add(this.z, new LazyLiteral(300000));
+		left.add(unbound);
+		final List<String> expected = TestRadixHashJoin.join(new HashJoin(), left, right, this.x);
+		final List<String> result = TestRadixHashJoin.join(new RadixHashJoin(), left, right, this.x);
+		assertEquals(expected, result);
+		int joinedWithUnbound = 0;
+		for (final String solution : result) {
+			if (solution.contains("z=300000 ")) {
+				joinedWithUnbound++;
+			}
+		}
+		// the solutions of the smaller operand with y bound to the code 100001
+		assertEquals(3, joinedWithUnbound);
+	}
+}
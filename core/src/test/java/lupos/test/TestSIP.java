@@ -0,0 +1,273 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsBlock;
+import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.buffermanager.BufferManager;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LazyLiteral;
+import lupos.datastructures.paged_dbbptree.DBBPTree;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.datastructures.queryresult.SIPParallelIterator;
+import lupos.engine.evaluators.RDF3XQueryEvaluator;
+import lupos.engine.indexconstruction.FastRDF3XIndexConstruction;
+import lupos.engine.operators.index.Indices.DATA_STRUCT;
+import lupos.engine.operators.index.adaptedRDF3X.RDF3XIndexScan;
+import lupos.engine.operators.multiinput.join.MergeJoin;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that merge joins return the same solutions with and without sideways information passing,
+ * i.e., with and without skipping the solutions of the operands by jumping to the leaves of the indices containing the current join key.
+ * The indices are B+-trees on disk, which contain so many triples that the skipped solutions span several leaves.
+ *
+ * @author groppe
+ */
+public class TestSIP {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private final static int PERSONS = 3000;
+
+	private final static String prefix = "PREFIX foaf: <http://xmlns.com/foaf/0.1/> PREFIX ex: <http://example.org/> ";
+
+	private final static String[] queries = {
+		// a selective triple pattern joined with a large one
+		"SELECT * WHERE { ?a ex:rare ?r . ?a foaf:knows ?b . }",
+		"SELECT * WHERE { ?a foaf:knows ?b . ?a ex:rare ?r . ?a foaf:name ?n . }",
+		// join on the objects of the large triple pattern
+		"SELECT * WHERE { ?a foaf:knows ?b . ?b ex:rare ?r . }",
+		// two selective triple patterns, the join keys of which are far apart
+		"SELECT * WHERE { ?a ex:rare ?r . ?a ex:veryRare ?v . ?a foaf:knows ?b . }",
+		// the join keys of the selective triple pattern are behind the last key of the large one
+		"SELECT * WHERE { ?a ex:basedNear ?c . ?a foaf:name ?n . }"
+	};
+
+	private static RDF3XQueryEvaluator evaluator;
+
+	private static boolean enableSIP;
+
+	private static int blockSize;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		final StringBuilder data = new StringBuilder();
+		for(int i=0; i<PERSONS; i++){
+			final String person = "<http://example.org/person/" + i + ">";
+			data.append(person + " <http://xmlns.com/foaf/0.1/knows> <http://example.org/person/" + ((i * 7 + 1) % PERSONS) + "> .\n");
+			data.append(person + " <http://xmlns.com/foaf/0.1/knows> <http://example.org/person/" + ((i * 13 + 5) % PERSONS) + "> .\n");
+			data.append(person + " <http://xmlns.com/foaf/0.1/name> \"Person " + i + "\" .\n");
+			if(i % 97 == 0){
+				data.append(person + " <http://example.org/rare> \"" + i + "\" .\n");
+			}
+			if(i % 291 == 0){
+				data.append(person + " <http://example.org/veryRare> \"" + i + "\" .\n");
+			}
+		}
+		// subjects without names
+		data.append("<http://example.org/zzz/1> <http://example.org/basedNear> <http://example.org/city/1> .\n");
+		data.append("<http://example.org/person/5> <http://example.org/basedNear> <http://example.org/city/2> .\n");
+		final File file = TestSIP.folder.newFile("persons.n3");
+		Files.write(file.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+
+		TestSIP.enableSIP = DBBPTree.enableSIP;
+		TestSIP.blockSize = BindingsBlock.BLOCKSIZE;
+		BindingsBlock.BLOCKSIZE = 16;
+		BufferManager.getBufferManager().releaseAllPages();
+		final File indexDir = new File(TestSIP.folder.newFolder(), "index");
+		FastRDF3XIndexConstruction.main(new String[]{ file.getAbsolutePath(), "N3", "UTF-8", "NONE", indexDir.getAbsolutePath() });
+		TestSIP.evaluator = new RDF3XQueryEvaluator(new String[]{ "--optimization", "MERGEJOIN" });
+		TestSIP.evaluator.loadLargeScaleIndices(indexDir.getAbsolutePath(), DATA_STRUCT.DBBPTREE);
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		BindingsBlock.BLOCKSIZE = TestSIP.blockSize;
+	}
+
+	@After
+	public void resetSettings() {
+		DBBPTree.enableSIP = TestSIP.enableSIP;
+		RDF3XIndexScan.blockwise = false;
+	}
+
+	private static List<String> evaluate(final String query, final boolean sip, final boolean blockwise) throws Exception {
+		DBBPTree.enableSIP = sip;
+		RDF3XIndexScan.blockwise = blockwise;
+		final QueryResult queryResult = TestSIP.evaluator.getResult(TestSIP.prefix + query);
+		final List<String> result = new ArrayList<String>();
+		for(final Bindings bindings: queryResult){
+			final StringBuilder solution = new StringBuilder();
+			for(final Variable var: new TreeSet<Variable>(bindings.getVariableSet())){
+				solution.append(var).append('=').append(bindings.get(var)).append(' ');
+			}
+			result.add(solution.toString());
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	@Test
+	public void testSameResultsWithAndWithoutSIP() throws Exception {
+		for(final String query: TestSIP.queries){
+			final List<String> expected = TestSIP.evaluate(query, false, false);
+			assertFalse(query, expected.isEmpty());
+			assertEquals(query, expected, TestSIP.evaluate(query, true, false));
+		}
+	}
+
+	@Test
+	public void testSameResultsWithAndWithoutSIPInBlocks() throws Exception {
+		for(final String query: TestSIP.queries){
+			final List<String> expected = TestSIP.evaluate(query, false, false);
+			assertEquals(query, expected, TestSIP.evaluate(query, false, true));
+			assertEquals(query, expected, TestSIP.evaluate(query, true, true));
+		}
+	}
+
+	@Test
+	public void testNumberOfResults() throws Exception {
+		// every 97th person has two acquaintances
+		assertEquals(2 * ((PERSONS + 96) / 97), TestSIP.evaluate(TestSIP.queries[0], true, false).size());
+		// only person/5 has a name
+		assertEquals(1, TestSIP.evaluate(TestSIP.queries[4], true, false).size());
+	}
+
+	/**
+	 * iterator over given solutions, which records the keys passed by sideways information passing
+	 */
+	private static class RecordingIterator implements SIPParallelIterator<Bindings, Bindings> {
+
+		private final Iterator<Bindings> it;
+		private final Comparator<Bindings> comp;
+		private final List<Bindings> keys = new LinkedList<Bindings>();
+
+		public RecordingIterator(final List<Bindings> solutions, final Comparator<Bindings> comp) {
+			this.it = solutions.iterator();
+			this.comp = comp;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.it.hasNext();
+		}
+
+		@Override
+		public Bindings next() {
+			return this.it.next();
+		}
+
+		@Override
+		public Bindings next(final Bindings k) {
+			this.keys.add(k);
+			while (this.it.hasNext()) {
+				final Bindings b = this.it.next();
+				if (this.comp.compare(b, k) >= 0) {
+					return b;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() {
+			// nothing to close
+		}
+	}
+
+	@Test
+	public void testSkipTo() {
+		final Variable x = new Variable("x");
+		final BindingsFactory bindingsFactory = BindingsFactory.createBindingsFactory(Arrays.asList(x));
+		final List<Bindings> solutions = new ArrayList<Bindings>();
+		for (int i = 1; i <= 10; i++) {
+			final Bindings b = bindingsFactory.createInstance();
+			b.add(x, new LazyLiteral(i * 10));
+			solutions.add(b);
+		}
+		final Comparator<Bindings> comp = new Comparator<Bindings>() {
+			@Override
+			public int compare(final Bindings o1, final Bindings o2) {
+				return Integer.compare(((LazyLiteral) o1.get(x)).getCode(), ((LazyLiteral) o2.get(x)).getCode());
+			}
+		};
+		final Bindings k = bindingsFactory.createInstance();
+		k.add(x, new LazyLiteral(55));
+
+		// the key is passed to an operand supporting sideways information passing
+		final RecordingIterator sipIt = new RecordingIterator(solutions, comp);
+		final Bindings first = sipIt.next();
+		assertSame(solutions.get(5), MergeJoin.skipTo(sipIt, first, k, comp));
+		assertEquals(Arrays.asList(k), sipIt.keys);
+
+		// the solutions of other operands are read one by one
+		final Iterator<Bindings> it = solutions.iterator();
+		assertSame(solutions.get(5), MergeJoin.skipTo(it, it.next(), k, comp));
+		assertSame(solutions.get(6), it.next());
+
+		// the current solution is not smaller than the key
+		final RecordingIterator notSkipping = new RecordingIterator(solutions, comp);
+		notSkipping.next();
+		assertSame(solutions.get(7), MergeJoin.skipTo(notSkipping, solutions.get(7), k, comp));
+		assertEquals(0, notSkipping.keys.size());
+
+		// no solution greater than or equal to the key
+		final Bindings largeKey = bindingsFactory.createInstance();
+		largeKey.add(x, new LazyLiteral(1000));
+		final RecordingIterator exhausted = new RecordingIterator(solutions, comp);
+		assertNull(MergeJoin.skipTo(exhausted, exhausted.next(), largeKey, comp));
+		assertNull(MergeJoin.skipTo(exhausted, null, largeKey, comp));
+	}
+}
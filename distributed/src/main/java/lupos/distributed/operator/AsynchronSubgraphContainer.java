@@ -24,9 +24,6 @@
 package lupos.distributed.operator;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import lupos.datastructures.queryresult.QueryResult;
 import lupos.distributed.operator.format.SubgraphContainerFormatter;
@@ -107,7 +104,6 @@ public class AsynchronSubgraphContainer<K> extends SubgraphContainer<K> {
 	 * Object which waits for QueryResult of processing
 	 */
 	private Future<QueryResult> waitForResult;
-	private ExecutorService executor;
 
 	/** {@inheritDoc} */
 	@Override
@@ -144,10 +140,13 @@ public class AsynchronSubgraphContainer<K> extends SubgraphContainer<K> {
 			}
 		};
 		/*
-		 * start processing in a new thread
+		 * start processing in the threads shared by all subgraph containers
 		 */
-		executor = Executors.newSingleThreadExecutor();
-		waitForResult = executor.submit(c);
+		final Future<QueryResult> future = SubgraphDispatcher.submit(c);
+		synchronized (this) {
+			waitForResult = future;
+			this.notifyAll();
+		}
 		return null;
 	}
 
@@ -157,34 +156,32 @@ public class AsynchronSubgraphContainer<K> extends SubgraphContainer<K> {
 		/*
 		 * if the message arrives before or immediatly after the
 		 * process()-method, the variable is maybe not set, so wait until the
-		 * Future is set!
+		 * Future is set (process() notifies us)!
 		 */
-		while (waitForResult == null) {
-			try {
-				Thread.sleep(100);
-			} catch (InterruptedException e) {
+		final Future<QueryResult> future;
+		synchronized (this) {
+			while (waitForResult == null) {
+				try {
+					this.wait();
+				} catch (InterruptedException e) {
+					System.err.println(e);
+					e.printStackTrace();
+				}
 			}
+			future = waitForResult;
+			waitForResult = null;
 		}
 		/*
-		 * now we want to wait for the result of the subgraph
+		 * now we want to wait for the result of the subgraph (but at most
+		 * SubgraphDispatcher.TIMEOUT milliseconds)
 		 */
-		QueryResult result;
-		try {
-			result = waitForResult.get();
-		} catch (InterruptedException e) {
-			result = null;
-			e.printStackTrace();
-		} catch (ExecutionException e) {
-			result = null;
-			e.printStackTrace();
-		}
+		QueryResult result = SubgraphDispatcher.get(future);
 		// for now, forward the result to all succeeding's ....
 		if (result != null) result.materialize();
 		for (final OperatorIDTuple opId : this.succeedingOperators) {
 			if (result != null) 
 				opId.processAll(result);
 		}
-		if (executor != null) executor.shutdown();
 		return super.preProcessMessage(msg);
 	}
 }
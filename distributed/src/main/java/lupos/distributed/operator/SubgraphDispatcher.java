@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.distributed.operator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.engine.operators.multiinput.join.parallel.ResultCollector;
+
+/**
+ * Dispatcher for sending subgraphs, queries and histogram requests to the nodes of a distributed query evaluation.
+ * All requests share the same pool of threads instead of creating new threads (or executors) for each request.
+ * The results of the nodes are delivered as soon as they are available (without polling).
+ * A node not answering within TIMEOUT milliseconds causes a {@link NodeTimeoutException} (or is skipped if SKIP_TIMED_OUT_NODES is set).
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class SubgraphDispatcher {
+
+	/**
+	 * The number of threads kept alive for processing requests to the nodes.
+	 * Further threads are created on demand up to MAX_NUMBER_OF_THREADS (and terminated after being idle for a minute).
+	 */
+	public static int NUMBER_OF_THREADS = 32;
+
+	/**
+	 * The max. number of threads processing requests to the nodes.
+	 * If all threads are busy, a further request is processed by the thread submitting it,
+	 * such that subgraphs dispatching again subgraphs (e.g. when evaluating the nodes in the same process) never wait for each other.
+	 * Note that the timeout is not applied to a request processed by the thread submitting it.
+	 */
+	public static int MAX_NUMBER_OF_THREADS = 256;
+
+	/**
+	 * The time in milliseconds (measured from dispatching the request) after which a node not having answered is cancelled (0 for no timeout)
+	 */
+	public static long TIMEOUT = 0;
+
+	/**
+	 * Whether or not the results of nodes not having answered within TIMEOUT milliseconds are skipped (such that the result may be incomplete).
+	 * Otherwise a {@link NodeTimeoutException} is thrown.
+	 */
+	public static boolean SKIP_TIMED_OUT_NODES = false;
+
+	/**
+	 * the executor processing the requests (lazily created)
+	 */
+	private static ExecutorService executor = null;
+
+	/**
+	 * the timer for skipping nodes after the timeout (lazily created)
+	 */
+	private static ScheduledThreadPoolExecutor timer = null;
+
+	/**
+	 * Submits a request to a node to be processed asynchronously
+	 *
+	 * @param request the request to a node
+	 * @return the future of the result of the request
+	 */
+	public static<T> Future<T> submit(final Callable<T> request){
+		return SubgraphDispatcher.getExecutor().submit(request);
+	}
+
+	/**
+	 * Waits for the result of a request submitted by {@link #submit(Callable)}, but at most TIMEOUT milliseconds.
+	 * If the node does not answer in time, the request is cancelled.
+	 *
+	 * @param future the future of the request
+	 * @return the result of the request or null if the request failed or the node did not answer in time (and SKIP_TIMED_OUT_NODES is set)
+	 * @throws NodeTimeoutException if the node did not answer in time (and SKIP_TIMED_OUT_NODES is not set)
+	 */
+	public static<T> T get(final Future<T> future){
+		return SubgraphDispatcher.get(future, (SubgraphDispatcher.TIMEOUT>0)? System.currentTimeMillis() + SubgraphDispatcher.TIMEOUT : 0);
+	}
+
+	/**
+	 * Submits requests to several nodes in parallel and waits for all of their results
+	 *
+	 * @param requests the requests to the nodes
+	 * @return the results of the requests in the same order as the requests (null for failed requests and, if SKIP_TIMED_OUT_NODES is set, for nodes not having answered within TIMEOUT milliseconds)
+	 * @throws NodeTimeoutException if a node did not answer in time (and SKIP_TIMED_OUT_NODES is not set), the requests to the other nodes are cancelled then
+	 */
+	public static<T> List<T> invokeAll(final List<? extends Callable<T>> requests){
+		final long deadline = (SubgraphDispatcher.TIMEOUT>0)? System.currentTimeMillis() + SubgraphDispatcher.TIMEOUT : 0;
+		final List<Future<T>> futures = new ArrayList<Future<T>>(requests.size());
+		for(final Callable<T> request: requests){
+			futures.add(SubgraphDispatcher.submit(request));
+		}
+		final List<T> result = new ArrayList<T>(requests.size());
+		try {
+			for(final Future<T> future: futures){
+				result.add(SubgraphDispatcher.get(future, deadline));
+			}
+		} catch(final NodeTimeoutException e){
+			for(final Future<T> future: futures){
+				future.cancel(true);
+			}
+			throw e;
+		}
+		return result;
+	}
+
+	/**
+	 * Submits queries to several nodes in parallel and merges their results.
+	 * The result of a node is handed over to the returned query result as soon as the node answers,
+	 * such that the bindings of the nodes having already answered can be consumed while waiting for the other nodes.
+	 * If a node does not answer within TIMEOUT milliseconds, consuming the merged result throws a {@link NodeTimeoutException}
+	 * (or the result of the node is skipped if SKIP_TIMED_OUT_NODES is set).
+	 *
+	 * @param requests the queries to the nodes
+	 * @return the merged result of all nodes
+	 */
+	public static QueryResult merge(final List<? extends Callable<QueryResult>> requests){
+		// the timeout of a node (if any), which is thrown when consuming the merged result
+		final AtomicReference<NodeTimeoutException> failure = new AtomicReference<NodeTimeoutException>();
+		final ResultCollector resultCollector = new ResultCollector(){
+			private static final long serialVersionUID = -1207334526409151306L;
+
+			@Override
+			public boolean hasNext() {
+				if(failure.get()!=null){
+					throw failure.get();
+				}
+				final boolean hasNext = super.hasNext();
+				if(!hasNext && failure.get()!=null){
+					throw failure.get();
+				}
+				return hasNext;
+			}
+		};
+		resultCollector.setNumberOfThreads(requests.size());
+		for(final Callable<QueryResult> request: requests){
+			// whoever comes first (the answer of the node or the timeout) finishes the node
+			final AtomicBoolean finished = new AtomicBoolean(false);
+			final ScheduledFuture<?>[] timeout = new ScheduledFuture<?>[1];
+			final Future<?> future = SubgraphDispatcher.getExecutor().submit(new Runnable(){
+				@Override
+				public void run() {
+					QueryResult result = null;
+					try {
+						result = request.call();
+					} catch (final Exception e) {
+						System.err.println(e);
+						e.printStackTrace();
+					}
+					if(finished.compareAndSet(false, true)){
+						if(result!=null){
+							resultCollector.process(result, 0);
+						}
+						resultCollector.incNumberOfThreads();
+						synchronized(timeout){
+							if(timeout[0]!=null){
+								timeout[0].cancel(false);
+							}
+						}
+					}
+				}
+			});
+			if(SubgraphDispatcher.TIMEOUT>0){
+				synchronized(timeout){
+					timeout[0] = SubgraphDispatcher.getTimer().schedule(new Runnable(){
+						@Override
+						public void run() {
+							if(finished.compareAndSet(false, true)){
+								future.cancel(true);
+								if(SubgraphDispatcher.SKIP_TIMED_OUT_NODES){
+									System.err.println("Node did not answer within " + SubgraphDispatcher.TIMEOUT + " milliseconds, its result is skipped!");
+								} else {
+									failure.compareAndSet(null, new NodeTimeoutException(SubgraphDispatcher.TIMEOUT));
+								}
+								resultCollector.incNumberOfThreads();
+							}
+						}
+					}, SubgraphDispatcher.TIMEOUT, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+		return resultCollector.getResult();
+	}
+
+	/**
+	 * Waits for the result of a request until the given deadline
+	 *
+	 * @param future the future of the request
+	 * @param deadline the point in time (in milliseconds) until which is waited for the result (0 for waiting without timeout)
+	 * @return the result of the request or null if the request failed or the node did not answer in time (and SKIP_TIMED_OUT_NODES is set)
+	 * @throws NodeTimeoutException if the node did not answer in time (and SKIP_TIMED_OUT_NODES is not set)
+	 */
+	private static<T> T get(final Future<T> future, final long deadline){
+		try {
+			if(deadline<=0){
+				return future.get();
+			}
+			return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+		} catch (final TimeoutException e) {
+			future.cancel(true);
+			if(!SubgraphDispatcher.SKIP_TIMED_OUT_NODES){
+				throw new NodeTimeoutException(SubgraphDispatcher.TIMEOUT);
+			}
+			System.err.println("Node did not answer within " + SubgraphDispatcher.TIMEOUT + " milliseconds, its result is skipped!");
+		} catch (final ExecutionException e) {
+			System.err.println(e.getCause());
+			e.getCause().printStackTrace();
+		} catch (final InterruptedException | CancellationException e) {
+			System.err.println(e);
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	private static synchronized ExecutorService getExecutor(){
+		if(SubgraphDispatcher.executor==null){
+			final int numberOfThreads = Math.max(1, SubgraphDispatcher.NUMBER_OF_THREADS);
+			SubgraphDispatcher.executor = new ThreadPoolExecutor(numberOfThreads, Math.max(numberOfThreads, SubgraphDispatcher.MAX_NUMBER_OF_THREADS), 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory(){
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "Subgraph dispatcher");
+					// do not prevent the program from exiting
+					thread.setDaemon(true);
+					return thread;
+				}
+			}, new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		return SubgraphDispatcher.executor;
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor getTimer(){
+		if(SubgraphDispatcher.timer==null){
+			SubgraphDispatcher.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory(){
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "Subgraph dispatcher timeout");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			// do not keep timeouts of already answered nodes
+			SubgraphDispatcher.timer.setRemoveOnCancelPolicy(true);
+		}
+		return SubgraphDispatcher.timer;
+	}
+}
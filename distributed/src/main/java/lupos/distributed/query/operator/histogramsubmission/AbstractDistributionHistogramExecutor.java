@@ -23,6 +23,11 @@
  */
 package lupos.distributed.query.operator.histogramsubmission;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import lupos.distributed.operator.SubgraphDispatcher;
 import lupos.distributed.storage.distributionstrategy.IDistribution;
 import lupos.distributed.storage.distributionstrategy.TriplePatternNotSupportedError;
 import lupos.engine.operators.tripleoperator.TriplePattern;
@@ -44,31 +49,18 @@ public abstract class AbstractDistributionHistogramExecutor<K> extends AbstractH
 	public String[] sendJSONRequests(final String request, final TriplePattern triplePattern) {
 		try {
 			final K[] keys = this.distribution.getKeysForQuerying(triplePattern);
-			final String[] result = new String[keys.length];
-			final Thread[] threads = new Thread[keys.length];
-			int i=0;
+			final List<Callable<String>> requests = new ArrayList<Callable<String>>(keys.length);
 			for(final K key: keys){
-				final int index = i;
 				// ask all nodes asynchronously
-				threads[index] = new Thread(){
+				requests.add(new Callable<String>(){
 					@Override
-					public void run(){
-						result[index] = AbstractDistributionHistogramExecutor.this.sendJSONRequest(request, key);
+					public String call(){
+						return AbstractDistributionHistogramExecutor.this.sendJSONRequest(request, key);
 					}
-				};
-				threads[index].start();
-				i++;
+				});
 			}
 			// wait for all nodes
-			for(final Thread thread: threads){
-				try {
-					thread.join();
-				} catch (final InterruptedException e) {
-					System.err.println(e);
-					e.printStackTrace();
-				}
-			}
-			return result;
+			return SubgraphDispatcher.invokeAll(requests).toArray(new String[keys.length]);
 		} catch(final TriplePatternNotSupportedError e){
 			// in case that the triple pattern type is not supported  try out if it has been implemented to broadcast the request
 			final String[] result = this.sendJSONRequest(request);
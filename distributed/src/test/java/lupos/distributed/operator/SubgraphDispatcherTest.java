@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.distributed.operator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.queryresult.QueryResult;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks the merging of the results of nodes, the timeouts of nodes and the bounded pool of threads of the subgraph dispatcher.
+ *
+ * @author groppe
+ */
+public class SubgraphDispatcherTest {
+
+	private final static Variable x = new Variable("x");
+
+	private static BindingsFactory bindingsFactory;
+
+	@BeforeClass
+	public static void setUp() {
+		LiteralFactory.setType(LiteralFactory.MapType.NOCODEMAP);
+		SubgraphDispatcherTest.bindingsFactory = BindingsFactory.createBindingsFactory(new Variable[]{ SubgraphDispatcherTest.x });
+		// the executor is created with these values when it is used the first time
+		SubgraphDispatcher.NUMBER_OF_THREADS = 2;
+		SubgraphDispatcher.MAX_NUMBER_OF_THREADS = 2;
+	}
+
+	@After
+	public void tearDown() {
+		SubgraphDispatcher.TIMEOUT = 0;
+		SubgraphDispatcher.SKIP_TIMED_OUT_NODES = false;
+	}
+
+	/**
+	 * @param size the number of solutions of the node
+	 * @param delay the time in milliseconds the node needs to answer
+	 * @return a node answering a query
+	 */
+	private static Callable<QueryResult> node(final int size, final long delay) {
+		return new Callable<QueryResult>() {
+			@Override
+			public QueryResult call() throws Exception {
+				Thread.sleep(delay);
+				final QueryResult result = QueryResult.createInstance();
+				for(int i=0; i<size; i++){
+					final Bindings b = SubgraphDispatcherTest.bindingsFactory.createInstance();
+					b.add(SubgraphDispatcherTest.x, LiteralFactory.createLiteral("\"" + i + "\""));
+					result.add(b);
+				}
+				return result;
+			}
+		};
+	}
+
+	private static int count(final QueryResult result) {
+		int number = 0;
+		for(final Bindings b: result){
+			if(b!=null){
+				number++;
+			}
+		}
+		return number;
+	}
+
+	@Test
+	public void testMergeDeliversResultsOfAllNodes() {
+		final List<Callable<QueryResult>> requests = new ArrayList<Callable<QueryResult>>();
+		for(int i=0; i<5; i++){
+			requests.add(SubgraphDispatcherTest.node(i + 1, 50 * (5 - i)));
+		}
+		assertEquals(1 + 2 + 3 + 4 + 5, SubgraphDispatcherTest.count(SubgraphDispatcher.merge(requests)));
+	}
+
+	@Test
+	public void testMergeThrowsTimeout() {
+		SubgraphDispatcher.TIMEOUT = 300;
+		final List<Callable<QueryResult>> requests = new ArrayList<Callable<QueryResult>>();
+		requests.add(SubgraphDispatcherTest.node(10, 10000));
+		requests.add(SubgraphDispatcherTest.node(10, 0));
+		final long start = System.currentTimeMillis();
+		try {
+			SubgraphDispatcherTest.count(SubgraphDispatcher.merge(requests));
+			fail("The merged result must not be silently incomplete");
+		} catch(final NodeTimeoutException e){
+			// expected
+		}
+		assertTrue(System.currentTimeMillis() - start < 5000);
+	}
+
+	@Test
+	public void testMergeSkipsTimedOutNode() {
+		SubgraphDispatcher.TIMEOUT = 300;
+		SubgraphDispatcher.SKIP_TIMED_OUT_NODES = true;
+		final List<Callable<QueryResult>> requests = new ArrayList<Callable<QueryResult>>();
+		requests.add(SubgraphDispatcherTest.node(10, 10000));
+		requests.add(SubgraphDispatcherTest.node(7, 0));
+		final long start = System.currentTimeMillis();
+		assertEquals(7, SubgraphDispatcherTest.count(SubgraphDispatcher.merge(requests)));
+		assertTrue(System.currentTimeMillis() - start < 5000);
+	}
+
+	@Test
+	public void testGetThrowsTimeout() {
+		SubgraphDispatcher.TIMEOUT = 300;
+		try {
+			SubgraphDispatcher.get(SubgraphDispatcher.submit(SubgraphDispatcherTest.node(1, 10000)));
+			fail("The timeout must be thrown");
+		} catch(final NodeTimeoutException e){
+			// expected
+		}
+		SubgraphDispatcher.SKIP_TIMED_OUT_NODES = true;
+		assertNull(SubgraphDispatcher.get(SubgraphDispatcher.submit(SubgraphDispatcherTest.node(1, 10000))));
+	}
+
+	@Test
+	public void testInvokeAllWithTimeout() {
+		SubgraphDispatcher.TIMEOUT = 300;
+		final List<Callable<QueryResult>> requests = new ArrayList<Callable<QueryResult>>();
+		requests.add(SubgraphDispatcherTest.node(1, 10000));
+		requests.add(SubgraphDispatcherTest.node(3, 0));
+		try {
+			SubgraphDispatcher.invokeAll(requests);
+			fail("The timeout must be thrown");
+		} catch(final NodeTimeoutException e){
+			// expected
+		}
+		SubgraphDispatcher.SKIP_TIMED_OUT_NODES = true;
+		final List<QueryResult> results = SubgraphDispatcher.invokeAll(requests);
+		assertNull(results.get(0));
+		assertEquals(3, SubgraphDispatcherTest.count(results.get(1)));
+	}
+
+	@Test(timeout = 20000)
+	public void testBoundedNumberOfThreads() {
+		final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+		final List<Callable<Integer>> requests = new ArrayList<Callable<Integer>>();
+		for(int i=0; i<6; i++){
+			final int number = i;
+			requests.add(new Callable<Integer>(){
+				@Override
+				public Integer call() throws Exception {
+					threads.add(Thread.currentThread());
+					Thread.sleep(100);
+					return number;
+				}
+			});
+		}
+		final List<Integer> results = SubgraphDispatcher.invokeAll(requests);
+		for(int i=0; i<6; i++){
+			assertEquals(Integer.valueOf(i), results.get(i));
+		}
+		// the requests not getting a thread of the pool are processed by the thread submitting them
+		assertTrue(threads.remove(Thread.currentThread()));
+		assertTrue(threads.size() <= SubgraphDispatcher.MAX_NUMBER_OF_THREADS);
+	}
+
+	@Test(timeout = 20000)
+	public void testNestedRequestsDoNotWaitForEachOther() {
+		final List<Callable<Integer>> requests = new ArrayList<Callable<Integer>>();
+		for(int i=0; i<4; i++){
+			requests.add(new Callable<Integer>(){
+				@Override
+				public Integer call() throws Exception {
+					// a node dispatching again requests while all threads of the pool are busy
+					final List<Callable<Integer>> subrequests = new ArrayList<Callable<Integer>>();
+					for(int j=0; j<4; j++){
+						subrequests.add(new Callable<Integer>(){
+							@Override
+							public Integer call() throws Exception {
+								Thread.sleep(20);
+								return 1;
+							}
+						});
+					}
+					int sum = 0;
+					for(final Integer result: SubgraphDispatcher.invokeAll(subrequests)){
+						sum += result;
+					}
+					return sum;
+				}
+			});
+		}
+		for(final Integer result: SubgraphDispatcher.invokeAll(requests)){
+			assertEquals(Integer.valueOf(4), result);
+		}
+	}
+}
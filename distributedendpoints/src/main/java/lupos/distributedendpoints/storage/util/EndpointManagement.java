@@ -27,15 +27,19 @@ import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import lupos.datastructures.bindings.BindingsFactory;
 import lupos.datastructures.queryresult.QueryResult;
+import lupos.distributed.operator.SubgraphDispatcher;
 import lupos.distributed.storage.distributionstrategy.tripleproperties.KeyContainer;
 import lupos.endpoint.client.Client;
-import lupos.engine.operators.multiinput.join.parallel.ResultCollector;
 import lupos.misc.FileHelper;
 import lupos.misc.Tuple;
 public class EndpointManagement {
@@ -45,7 +49,10 @@ public class EndpointManagement {
 	 */
 	protected String[] urlsOfEndpoints;
 
-	protected ExecutorService threadpool = Executors.newCachedThreadPool();
+	/**
+	 * the asynchronously submitted SPARUL queries, which have not been waited for yet
+	 */
+	protected final Queue<Future<?>> pendingUpdates = new ConcurrentLinkedQueue<Future<?>>();
 
 	/**
 	 * Reads in the registered SPARQL endpoints from the configuration file /endpoints.txt.
@@ -130,33 +137,34 @@ public class EndpointManagement {
 	 * @param bindingsFactory a {@link lupos.datastructures.bindings.BindingsFactory} object.
 	 */
 	protected void submitSPARULQuery(final String query, final String url, final BindingsFactory bindingsFactory){
-		final Thread thread = new Thread(){
+		this.pendingUpdates.add(SubgraphDispatcher.submit(new Callable<Object>(){
 			@Override
-			public void run() {
+			public Object call() {
 				try {
 					EndpointManagement.submitSPARQLQuery(url, query, bindingsFactory);
 				} catch (final IOException e) {
 					System.err.println(e);
 					e.printStackTrace();
 				}
+				return null;
 			}
-		};
-		this.threadpool.submit(thread);
+		}));
 	}
 
 	/**
-	 * Waits for the thread pool to terminate.
+	 * Waits for all asynchronously submitted SPARUL queries to be processed.
 	 * This method is to ensure that all the data is inserted at the different endpoints before being queried...
 	 */
 	public void waitForThreadPool() {
-		this.threadpool.shutdown();
-		try {
-			// just use an extremely high timeout...
-			this.threadpool.awaitTermination(7, TimeUnit.DAYS);
-			this.threadpool = Executors.newCachedThreadPool();
-		} catch (final InterruptedException e) {
-			System.err.println(e);
-			e.printStackTrace();
+		Future<?> future;
+		while((future = this.pendingUpdates.poll())!=null){
+			try {
+				// no timeout here, as otherwise data may be missing...
+				future.get();
+			} catch (final InterruptedException | ExecutionException e) {
+				System.err.println(e);
+				e.printStackTrace();
+			}
 		}
 	}
 
@@ -287,24 +295,17 @@ public class EndpointManagement {
 	 * @param bindingsFactory a {@link lupos.datastructures.bindings.BindingsFactory} object.
 	 */
 	protected static QueryResult submitSPARQLQuery(final String query, final String[] urlsOfEndpoints, final BindingsFactory bindingsFactory){
-		final ResultCollector resultCollector = new ResultCollector();
-		resultCollector.setNumberOfThreads(urlsOfEndpoints.length);
+		final List<Callable<QueryResult>> requests = new ArrayList<Callable<QueryResult>>(urlsOfEndpoints.length);
 		for(final String url: urlsOfEndpoints){
-			final Thread thread = new Thread(){
+			requests.add(new Callable<QueryResult>(){
 				@Override
-				public void run() {
-					try {
-						resultCollector.process(EndpointManagement.submitSPARQLQuery(url, query, bindingsFactory) ,0);
-					} catch (final IOException e) {
-						System.err.println(e);
-						e.printStackTrace();
-					}
-					resultCollector.incNumberOfThreads();
+				public QueryResult call() throws IOException {
+					return EndpointManagement.submitSPARQLQuery(url, query, bindingsFactory);
 				}
-			};
-			thread.start();
+			});
 		}
-		return resultCollector.getResult();
+		// the results of the endpoints are merged as soon as they arrive
+		return SubgraphDispatcher.merge(requests);
 	}
 
 	/**
@@ -329,30 +330,17 @@ public class EndpointManagement {
 	 * @return the result of all the endpoints
 	 */
 	protected static String[] submitHistogramRequest(final String histogram, final String[] urlsOfEndpoints){
-		final Thread[] threads = new Thread[urlsOfEndpoints.length];
-		final String[] result = new String[urlsOfEndpoints.length];
+		final List<Callable<String>> requests = new ArrayList<Callable<String>>(urlsOfEndpoints.length);
 		// ask nodes in parallel for their histograms
-		for(int i=0; i<urlsOfEndpoints.length; i++){
-			final int index = i;
-
-			threads[index] = new Thread(){
+		for(final String url: urlsOfEndpoints){
+			requests.add(new Callable<String>(){
 				@Override
-				public void run(){
-					result[index] = EndpointManagement.submitHistogramRequest(histogram, urlsOfEndpoints[index]);
+				public String call(){
+					return EndpointManagement.submitHistogramRequest(histogram, url);
 				}
-			};
-
-			threads[index].start();
-		}
-		for(final Thread thread: threads){
-			try {
-				thread.join();
-			} catch (final InterruptedException e) {
-				System.err.println(e);
-				e.printStackTrace();
-			}
+			});
 		}
-		return result;
+		return SubgraphDispatcher.invokeAll(requests).toArray(new String[urlsOfEndpoints.length]);
 	}
 
 	/**
@@ -0,0 +1,402 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.endpoint.caching;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import lupos.datastructures.items.Item;
+import lupos.datastructures.items.Triple;
+import lupos.engine.operators.singleinput.sparul.UpdateNotification;
+import lupos.engine.operators.tripleoperator.TriplePattern;
+import lupos.optimizations.sparql2core_sparql.SPARQL2CoreSPARQLParserVisitorImplementationDumper;
+import lupos.sparql1_1.ASTBnodeFuncNode;
+import lupos.sparql1_1.ASTNowFuncNode;
+import lupos.sparql1_1.ASTRandFuncNode;
+import lupos.sparql1_1.ASTSTRUUIDFuncNode;
+import lupos.sparql1_1.ASTUUIDFuncNode;
+import lupos.sparql1_1.Node;
+import lupos.sparql1_1.SPARQL1_1Parser;
+import lupos.sparql1_1.SimpleNode;
+
+/**
+ * This class caches the serialized results of queries for the endpoint.
+ * The results are cached per normalized query (i.e., the query transformed into core SPARQL)
+ * and per formatter.
+ * Each cached result remembers the triple patterns of its query, such that it is invalidated
+ * whenever a SPARUL operation inserts or deletes a triple matching one of these triple patterns.
+ * Results of queries without known triple patterns as well as all results after LOAD, CLEAR
+ * or DROP operations are invalidated conservatively.
+ * Results of queries using non-deterministic functions like RAND() or NOW() are not cached at all.
+ * The least recently used results are removed if the cache exceeds its limits.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class QueryResultCache implements UpdateNotification.UpdateListener {
+
+	/**
+	 * the max. number of cached results
+	 */
+	protected final int maxEntries;
+
+	/**
+	 * the max. size in bytes of a single cached result (larger results are not cached)
+	 */
+	protected final int maxBytesPerEntry;
+
+	/**
+	 * the max. size in bytes of all cached results
+	 */
+	protected final long maxBytes;
+
+	/**
+	 * the current size in bytes of all cached results
+	 */
+	protected long currentBytes = 0;
+
+	/**
+	 * the version of the data, which is incremented by each modification of the data.
+	 * A result is only cached if the data has not been modified during the evaluation of its query.
+	 */
+	protected long version = 0;
+
+	protected long hits = 0;
+
+	protected long misses = 0;
+
+	/**
+	 * the cached results in access order
+	 */
+	protected final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	/**
+	 * Constructor
+	 *
+	 * @param maxEntries the max. number of cached results
+	 * @param maxBytesPerEntry the max. size in bytes of a single cached result
+	 * @param maxBytes the max. size in bytes of all cached results
+	 */
+	public QueryResultCache(final int maxEntries, final int maxBytesPerEntry, final long maxBytes){
+		this.maxEntries = maxEntries;
+		this.maxBytesPerEntry = maxBytesPerEntry;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * A cached result
+	 */
+	public static class Entry {
+		protected final String mimeType;
+		protected final byte[] content;
+		/**
+		 * the items of the triple patterns of the query (null for variables), null if the result depends on all triples
+		 */
+		protected final Item[][] patterns;
+
+		public Entry(final String mimeType, final byte[] content, final Item[][] patterns){
+			this.mimeType = mimeType;
+			this.content = content;
+			this.patterns = patterns;
+		}
+
+		/**
+		 * <p>Getter for the field <code>mimeType</code>.</p>
+		 *
+		 * @return the MIME type of the cached result
+		 */
+		public String getMimeType() {
+			return this.mimeType;
+		}
+
+		/**
+		 * <p>Getter for the field <code>content</code>.</p>
+		 *
+		 * @return the serialized result
+		 */
+		public byte[] getContent() {
+			return this.content;
+		}
+
+		/**
+		 * checks whether or not the cached result may be affected by the insertion or deletion of the given triple
+		 *
+		 * @param triple the inserted or deleted triple
+		 * @return true if a triple pattern of the query matches the given triple
+		 */
+		public boolean isAffectedBy(final Triple triple){
+			if(this.patterns==null){
+				return true;
+			}
+			for(final Item[] pattern: this.patterns){
+				boolean matches = true;
+				for(int i=0; i<3 && matches; i++){
+					matches = (pattern[i]==null) || pattern[i].equals(triple.getPos(i)) || pattern[i].toString().equals(triple.getPos(i).toString());
+				}
+				if(matches){
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * determines the key for the given query and format: the query is normalized by transforming it into core SPARQL
+	 *
+	 * @param query the query
+	 * @param formatKey the key of the format of the result
+	 * @return the key in the cache or null if the result of the query must not be cached, as it uses a non-deterministic function
+	 */
+	public static String getKey(final String query, final String formatKey){
+		String normalizedQuery;
+		try {
+			final SimpleNode root = SPARQL1_1Parser.parse(query);
+			if(root!=null && QueryResultCache.containsNonDeterministicFunction(root)){
+				return null;
+			}
+			normalizedQuery = (root==null)? "" : (String) SPARQL2CoreSPARQLParserVisitorImplementationDumper.createInstance().visit(root);
+		} catch(final Throwable e) {
+			// just use the original query
+			normalizedQuery = query;
+		}
+		return formatKey + "\n" + normalizedQuery;
+	}
+
+	/**
+	 * checks whether or not the given query uses a function, which returns different results for each evaluation (RAND, NOW, UUID, STRUUID and BNODE)
+	 *
+	 * @param node the root node of the query
+	 * @return true if the query uses a non-deterministic function
+	 */
+	public static boolean containsNonDeterministicFunction(final Node node){
+		if(node instanceof ASTRandFuncNode || node instanceof ASTNowFuncNode || node instanceof ASTUUIDFuncNode || node instanceof ASTSTRUUIDFuncNode || node instanceof ASTBnodeFuncNode){
+			return true;
+		}
+		for(int i=0; i<node.jjtGetNumChildren(); i++){
+			if(QueryResultCache.containsNonDeterministicFunction(node.jjtGetChild(i))){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * <p>get.</p>
+	 *
+	 * @param key the key of the result as determined by {@link #getKey(String, String)}
+	 * @return the cached result or null if the result is not cached
+	 */
+	public synchronized Entry get(final String key){
+		final Entry entry = this.entries.get(key);
+		if(entry==null){
+			this.misses++;
+		} else {
+			this.hits++;
+		}
+		return entry;
+	}
+
+	/**
+	 * <p>Getter for the field <code>version</code>.</p>
+	 *
+	 * @return the current version of the data, which must be determined before evaluating a query whose result should be cached
+	 */
+	public synchronized long getVersion(){
+		return this.version;
+	}
+
+	/**
+	 * caches a result
+	 *
+	 * @param key the key of the result as determined by {@link #getKey(String, String)}
+	 * @param mimeType the MIME type of the result
+	 * @param content the serialized result
+	 * @param triplePatterns the triple patterns of the query, null if unknown
+	 * @param versionBeforeEvaluation the version of the data determined before the query has been evaluated
+	 */
+	public synchronized void put(final String key, final String mimeType, final byte[] content, final Collection<TriplePattern> triplePatterns, final long versionBeforeEvaluation){
+		if(versionBeforeEvaluation != this.version || content.length > this.maxBytesPerEntry || content.length > this.maxBytes){
+			// the data has been modified in the meantime or the result is too large...
+			return;
+		}
+		Item[][] patterns = null;
+		if(triplePatterns!=null && !triplePatterns.isEmpty()){
+			patterns = new Item[triplePatterns.size()][];
+			int i=0;
+			for(final TriplePattern tp: triplePatterns){
+				final Item[] pattern = new Item[3];
+				for(int pos=0; pos<3; pos++){
+					final Item item = tp.getPos(pos);
+					pattern[pos] = item.isVariable()? null : item;
+				}
+				patterns[i++] = pattern;
+			}
+		}
+		final Entry old = this.entries.put(key, new Entry(mimeType, content, patterns));
+		if(old!=null){
+			this.currentBytes -= old.content.length;
+		}
+		this.currentBytes += content.length;
+		final Iterator<Entry> it = this.entries.values().iterator();
+		while((this.entries.size() > this.maxEntries || this.currentBytes > this.maxBytes) && it.hasNext()){
+			this.currentBytes -= it.next().content.length;
+			it.remove();
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized void triplesModified(final Collection<Triple> triples) {
+		this.version++;
+		final Iterator<Entry> it = this.entries.values().iterator();
+		while(it.hasNext()){
+			final Entry entry = it.next();
+			for(final Triple triple: triples){
+				if(entry.isAffectedBy(triple)){
+					this.currentBytes -= entry.content.length;
+					it.remove();
+					break;
+				}
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public synchronized void graphsModified() {
+		this.version++;
+		this.clear();
+	}
+
+	/**
+	 * removes all cached results
+	 */
+	public synchronized void clear(){
+		this.entries.clear();
+		this.currentBytes = 0;
+	}
+
+	/**
+	 * <p>size.</p>
+	 *
+	 * @return the number of cached results
+	 */
+	public synchronized int size(){
+		return this.entries.size();
+	}
+
+	/**
+	 * <p>Getter for the field <code>hits</code>.</p>
+	 *
+	 * @return the number of cache hits
+	 */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * <p>Getter for the field <code>misses</code>.</p>
+	 *
+	 * @return the number of cache misses
+	 */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * This output stream writes into the underlying output stream and
+	 * additionally records the written bytes up to a maximum size for caching the result.
+	 */
+	public static class RecordingOutputStream extends OutputStream {
+
+		protected final OutputStream os;
+		protected final String mimeType;
+		protected final int maxBytes;
+		protected ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+
+		public RecordingOutputStream(final OutputStream os, final String mimeType, final int maxBytes){
+			this.os = os;
+			this.mimeType = mimeType;
+			this.maxBytes = maxBytes;
+		}
+
+		/**
+		 * <p>Getter for the field <code>mimeType</code>.</p>
+		 *
+		 * @return the MIME type of the written result
+		 */
+		public String getMimeType() {
+			return this.mimeType;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			this.os.write(b);
+			if(this.recorded!=null){
+				this.recorded.write(b);
+				this.checkSize();
+			}
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			this.os.write(b, off, len);
+			if(this.recorded!=null){
+				this.recorded.write(b, off, len);
+				this.checkSize();
+			}
+		}
+
+		private void checkSize(){
+			if(this.recorded.size() > this.maxBytes){
+				// too large for caching => stop recording
+				this.recorded = null;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			this.os.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.os.close();
+		}
+
+		/**
+		 * <p>getRecordedBytes.</p>
+		 *
+		 * @return the written bytes or null if too many bytes have been written
+		 */
+		public byte[] getRecordedBytes(){
+			return (this.recorded==null)? null : this.recorded.toByteArray();
+		}
+	}
+}
@@ -24,13 +24,21 @@
 package lupos.endpoint.client;
 
 import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.net.SocketException;
 import java.net.URLEncoder;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import lupos.datastructures.bindings.BindingsFactory;
 import lupos.datastructures.queryresult.QueryResult;
@@ -44,15 +52,23 @@ import lupos.misc.FileHelper;
 import lupos.misc.Tuple;
 
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
+import org.apache.http.NoHttpResponseException;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.entity.InputStreamEntity;
-import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 public class Client {
 
@@ -69,6 +85,43 @@ public class Client {
 	public static long sentBytes = 0;
 	public static long receivedBytes = 0;
 
+	/**
+	 * whether or not the connections to the SPARQL endpoints are kept alive and reused for succeeding requests
+	 */
+	public static boolean USE_CONNECTION_POOL = true;
+
+	/**
+	 * the maximum number of pooled connections to one SPARQL endpoint
+	 */
+	public static int MAX_CONNECTIONS_PER_ENDPOINT = 8;
+
+	/**
+	 * the maximum number of pooled connections to all SPARQL endpoints together
+	 */
+	public static int MAX_CONNECTIONS = 64;
+
+	/**
+	 * the maximum time in milliseconds to wait for a free pooled connection, before a new (not pooled) connection is opened instead.
+	 * Connections are returned to the pool only after their response has been read completely,
+	 * such that this avoids waiting forever for connections of query results which are never consumed completely.
+	 */
+	public static int CONNECTION_REQUEST_TIMEOUT = 1000;
+
+	/**
+	 * the maximum number of requests submitted asynchronously (see {@link #submitQueryAsync(String, String, String, BindingsFactory)}) being processed at the same time
+	 */
+	public static int MAX_CONCURRENT_REQUESTS = 16;
+
+	/**
+	 * the http client with pooled keep-alive connections shared by all requests (lazily created)
+	 */
+	private static HttpClient pooledHttpClient = null;
+
+	/**
+	 * the executor processing the asynchronously submitted requests (lazily created)
+	 */
+	private static ExecutorService executor = null;
+
 	/** Constant <code>registeredFormatReaders</code> */
 	protected static HashMap<String, MIMEFormatReader> registeredFormatReaders;
 
@@ -111,7 +164,9 @@ public class Client {
 	}
 
 	/**
-	 * <p>submitQuery.</p>
+	 * Submits a query to a SPARQL endpoint.
+	 * The query result is materialized and the response is closed before returning,
+	 * such that the connection is returned to the pool even if the query result is never consumed completely.
 	 *
 	 * @param url a {@link java.lang.String} object.
 	 * @param query a {@link java.lang.String} object.
@@ -122,35 +177,240 @@ public class Client {
 	 */
 	public static QueryResult submitQuery(final String url, final String query, final String formatKey, final BindingsFactory bindingsFactory) throws IOException {
 		final Tuple<String, InputStream> response = submitQueryAndRetrieveStream(url, query, formatKey);
-		final String contentType = response.getFirst();
-		if(contentType==null){
-			System.err.println("Content type missing in response of SPARQL endpoint!");
-			Thread.dumpStack();
-			return null;
+		final InputStream in = response.getSecond();
+		try {
+			final QueryResult result = Client.parseQueryResult(response.getFirst(), in, query, bindingsFactory);
+			if(result!=null){
+				result.materialize();
+			}
+			return result;
+		} finally {
+			in.close();
 		}
-		MIMEFormatReader reader = Client.registeredFormatReaders.get(contentType);
+	}
+
+	/**
+	 * Determines the format reader registered for a content type
+	 *
+	 * @param contentType the content type of a response
+	 * @return the format reader for the content type or null if the content type is not supported
+	 */
+	public static MIMEFormatReader getFormatReader(final String contentType) {
+		final MIMEFormatReader reader = Client.registeredFormatReaders.get(contentType);
 		if(reader==null){
 			final String[] contentTypeParts=contentType.split(";");
 			for(final String contentTypeSecondTry: contentTypeParts){
-				reader = Client.registeredFormatReaders.get(contentTypeSecondTry);
-				if(reader!=null){
-					return reader.getQueryResult(response.getSecond(), query, bindingsFactory);
+				final MIMEFormatReader readerSecondTry = Client.registeredFormatReaders.get(contentTypeSecondTry);
+				if(readerSecondTry!=null){
+					return readerSecondTry;
 				}
 			}
+		}
+		return reader;
+	}
+
+	/**
+	 * Parses the response of a SPARQL endpoint with the format reader registered for its content type
+	 *
+	 * @param contentType the content type of the response
+	 * @param in the content of the response
+	 * @param query the submitted query
+	 * @param bindingsFactory the factory for creating the bindings of the query result
+	 * @return the query result (or null if the content type is missing)
+	 * @throws java.io.IOException if the content type is not supported
+	 */
+	public static QueryResult parseQueryResult(final String contentType, final InputStream in, final String query, final BindingsFactory bindingsFactory) throws IOException {
+		if(contentType==null){
+			System.err.println("Content type missing in response of SPARQL endpoint!");
+			Thread.dumpStack();
+			return null;
+		}
+		final MIMEFormatReader reader = Client.getFormatReader(contentType);
+		if(reader==null){
 			if(contentType.compareTo("text/plain")==0){
-				final String errorMessage = "Error message received:\n" + FileHelper.readInputStreamToString(response.getSecond());
+				final String errorMessage = "Error message received:\n" + FileHelper.readInputStreamToString(in);
 				System.err.println(errorMessage);
 				throw new RuntimeException(errorMessage);
 			}
 			final String errorText = "Content type "+contentType+" is not supported!";
 			System.err.println(errorText);
-			throw new IOException(errorText + "Content:\n" + FileHelper.readInputStreamToString(response.getSecond()));
+			throw new IOException(errorText + "Content:\n" + FileHelper.readInputStreamToString(in));
+		}
+		return reader.getQueryResult(in, query, bindingsFactory);
+	}
+
+	/**
+	 * Submits a query asynchronously to a SPARQL endpoint using the default format.
+	 *
+	 * @param url the url of the SPARQL endpoint
+	 * @param query the query to be submitted
+	 * @param bindingsFactory the factory for creating the bindings of the query result
+	 * @return the future of the (already materialized) query result
+	 * @see #submitQueryAsync(String, String, String, BindingsFactory)
+	 */
+	public static Future<QueryResult> submitQueryAsync(final String url, final String query, final BindingsFactory bindingsFactory) {
+		return Client.submitQueryAsync(url, query, DEFAULT_FORMAT, bindingsFactory);
+	}
+
+	/**
+	 * Submits a query asynchronously to a SPARQL endpoint.
+	 * At most MAX_CONCURRENT_REQUESTS requests are processed at the same time, further requests are queued.
+	 * The response is parsed while it is received by the registered format readers and the query result is materialized
+	 * (see {@link #submitQuery(String, String, String, BindingsFactory)}) before the future is completed.
+	 * Hence several requests (e.g. for different blocks of bindings or different endpoints) can be pipelined by
+	 * first submitting all of them and afterwards retrieving their results with {@link #getQueryResult(Future)}.
+	 *
+	 * @param url the url of the SPARQL endpoint
+	 * @param query the query to be submitted
+	 * @param formatKey the requested format of the query result
+	 * @param bindingsFactory the factory for creating the bindings of the query result
+	 * @return the future of the (already materialized) query result
+	 */
+	public static Future<QueryResult> submitQueryAsync(final String url, final String query, final String formatKey, final BindingsFactory bindingsFactory) {
+		return Client.submitAsync(new Callable<QueryResult>(){
+			@Override
+			public QueryResult call() throws Exception {
+				return Client.submitQuery(url, query, formatKey, bindingsFactory);
+			}
+		});
+	}
+
+	/**
+	 * Executes a task processing a request in the background.
+	 * At most MAX_CONCURRENT_REQUESTS tasks are executed at the same time, further tasks are queued.
+	 *
+	 * @param task the task to be executed
+	 * @return the future of the result of the task
+	 */
+	public static<T> Future<T> submitAsync(final Callable<T> task) {
+		return Client.getExecutor().submit(task);
+	}
+
+	/**
+	 * Waits for the query result of an asynchronously submitted query
+	 *
+	 * @param future the future as returned by {@link #submitQueryAsync(String, String, String, BindingsFactory)}
+	 * @return the query result
+	 * @throws java.io.IOException if the request failed
+	 */
+	public static QueryResult getQueryResult(final Future<QueryResult> future) throws IOException {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			throw new IOException(e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if(cause instanceof IOException){
+				throw (IOException) cause;
+			}
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private static synchronized ExecutorService getExecutor(){
+		if(Client.executor==null){
+			Client.executor = Executors.newFixedThreadPool(Math.max(1, Client.MAX_CONCURRENT_REQUESTS), new ThreadFactory(){
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "SPARQL endpoint request");
+					// do not prevent the program from exiting
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return Client.executor;
+	}
+
+	private static synchronized HttpClient getPooledHttpClient(){
+		if(Client.pooledHttpClient==null){
+			final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+			connectionManager.setDefaultMaxPerRoute(Math.max(1, Client.MAX_CONNECTIONS_PER_ENDPOINT));
+			connectionManager.setMaxTotal(Math.max(1, Client.MAX_CONNECTIONS));
+			Client.pooledHttpClient = HttpClients.custom()
+					.setConnectionManager(connectionManager)
+					.setDefaultRequestConfig(RequestConfig.custom().setConnectionRequestTimeout(Client.CONNECTION_REQUEST_TIMEOUT).build())
+					.build();
+		}
+		return Client.pooledHttpClient;
+	}
+
+	/**
+	 * Executes a request using a pooled keep-alive connection if USE_CONNECTION_POOL is set, otherwise using a new connection.
+	 * The connection is released when the content of the response is closed (or read completely).
+	 *
+	 * @param httpurirequest the request to be executed
+	 * @return the response
+	 * @throws java.io.IOException if any.
+	 */
+	private static HttpResponse execute(final HttpUriRequest httpurirequest) throws IOException {
+		if(Client.USE_CONNECTION_POOL){
+			try {
+				return Client.getPooledHttpClient().execute(httpurirequest);
+			} catch(final ConnectionPoolTimeoutException e){
+				// all pooled connections to this endpoint are still in use => fall back to a new connection
+			} catch(final NoHttpResponseException | SocketException e){
+				// the endpoint has closed the kept-alive connection => send the request again over a new connection (if possible)
+				if(!Client.isRepeatable(httpurirequest)){
+					throw e;
+				}
+			}
+		}
+		return Client.executeWithNewConnection(httpurirequest);
+	}
+
+	/**
+	 * Executes a request using a new http client, which is closed together with the content of the response
+	 *
+	 * @param httpurirequest the request to be executed
+	 * @return the response
+	 * @throws java.io.IOException if any.
+	 */
+	private static HttpResponse executeWithNewConnection(final HttpUriRequest httpurirequest) throws IOException {
+		final CloseableHttpClient httpClient = HttpClients.createMinimal();
+		try {
+			final CloseableHttpResponse response = httpClient.execute(httpurirequest);
+			final HttpEntity entity = response.getEntity();
+			if(entity==null){
+				httpClient.close();
+				return response;
+			}
+			response.setEntity(new HttpEntityWrapper(entity){
+				@Override
+				public InputStream getContent() throws IOException {
+					return new FilterInputStream(super.getContent()){
+						@Override
+						public void close() throws IOException {
+							try {
+								super.close();
+							} finally {
+								httpClient.close();
+							}
+						}
+					};
+				}
+			});
+			return response;
+		} catch(final IOException | RuntimeException e){
+			httpClient.close();
+			throw e;
+		}
+	}
+
+	private static boolean isRepeatable(final HttpUriRequest httpurirequest){
+		if(httpurirequest instanceof HttpEntityEnclosingRequest){
+			final HttpEntity entity = ((HttpEntityEnclosingRequest) httpurirequest).getEntity();
+			return entity==null || entity.isRepeatable();
 		}
-		return reader.getQueryResult(response.getSecond(), query, bindingsFactory);
+		return true;
 	}
 
 	/**
-	 * <p>submitQueryAndRetrieveStream.</p>
+	 * Submits a query and returns the content type and content of the response.
+	 * The caller must close the content, otherwise the connection is not released.
 	 *
 	 * @param url a {@link java.lang.String} object.
 	 * @param query a {@link java.lang.String} object.
@@ -194,7 +454,6 @@ public class Client {
 	 * @throws java.io.IOException if any.
 	 */
 	public static Tuple<String, InputStream> doSubmit(final String url, final List<NameValuePair> content, final String requestHeader, final boolean useMethodGET) throws IOException {
-		final HttpClient httpclient = new DefaultHttpClient();
 		final HttpUriRequest httpurirequest;
 		if(useMethodGET){
 			// first build uri with get parameters...
@@ -216,7 +475,7 @@ public class Client {
 			httppost.setEntity(new UrlEncodedFormEntity(content, org.apache.commons.lang.CharEncoding.UTF_8));
 			httpurirequest = httppost;
 		}
-		final HttpResponse response = httpclient.execute(httpurirequest);
+		final HttpResponse response = Client.execute(httpurirequest);
 		final HttpEntity entity = response.getEntity();
 		InputStream in = entity.getContent();
 		if(Client.log){
@@ -259,7 +518,6 @@ public class Client {
 	 * @throws java.io.IOException if any.
 	 */
 	public static Tuple<String, InputStream> doSubmitStream(final String url, InputStream stream, final String requestHeader) throws IOException {
-		final HttpClient httpclient = new DefaultHttpClient();
 		final HttpUriRequest httpurirequest;
 
 		final HttpPost httppost = new HttpPost(url);
@@ -273,7 +531,7 @@ public class Client {
 		httppost.setEntity(ise);
 		httpurirequest = httppost;
 
-		final HttpResponse response = httpclient.execute(httpurirequest);
+		final HttpResponse response = Client.execute(httpurirequest);
 		final HttpEntity entity = response.getEntity();
 		InputStream in = entity.getContent();
 
@@ -0,0 +1,644 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.endpoint.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.misc.Tuple;
+
+/**
+ * Process-wide cache for the results of SERVICE calls, which is shared by all queries.
+ * The responses of the SPARQL endpoints are cached as received (i.e., as bytes together with their content type),
+ * such that they can be parsed again with the bindings factory of the query requesting them.
+ * The key of a cached response consists of the url of the endpoint, the requested format and the submitted (sub-)query.
+ *
+ * The main memory used by the cached responses is limited to MAX_MEMORY_BYTES.
+ * If this limit is exceeded, the least recently used responses are evicted or (if SPILL_TO_DISK is set) written into files,
+ * the size of which is limited by MAX_DISK_BYTES.
+ * Cached responses expire after TIME_TO_LIVE milliseconds.
+ * Concurrent requests for the same key wait for the response of the first one instead of asking the endpoint again.
+ *
+ * Cached responses are immutable, such that they can be used without holding the lock of this class.
+ * Files are written and read without holding this lock, too.
+ *
+ * @author groppe
+ *
+ */
+public class ServiceResultCache {
+
+	/**
+	 * whether or not the results of SERVICE calls are cached
+	 */
+	public static boolean ENABLED = true;
+
+	/**
+	 * the maximum number of bytes of all cached responses kept in main memory
+	 */
+	public static long MAX_MEMORY_BYTES = 64 * 1024 * 1024;
+
+	/**
+	 * the maximum number of bytes of one cached response (larger responses are not cached)
+	 */
+	public static long MAX_ENTRY_BYTES = 8 * 1024 * 1024;
+
+	/**
+	 * the time in milliseconds after which a cached response expires (0 for never expiring cached responses)
+	 */
+	public static long TIME_TO_LIVE = 10 * 60 * 1000;
+
+	/**
+	 * whether or not responses evicted from main memory are written to disk
+	 */
+	public static boolean SPILL_TO_DISK = false;
+
+	/**
+	 * the directory for the files of responses written to disk (null for the default temporary directory)
+	 */
+	public static String SPILL_DIRECTORY = null;
+
+	/**
+	 * the maximum number of bytes of all cached responses written to disk
+	 */
+	public static long MAX_DISK_BYTES = 1024 * 1024 * 1024;
+
+	// statistics about the usage of the cache:
+	public static long hits = 0;
+	public static long misses = 0;
+	public static long evictions = 0;
+	public static long expirations = 0;
+	public static long spills = 0;
+
+	/**
+	 * the cached responses in main memory in least recently used order
+	 */
+	private final static LinkedHashMap<Key, CachedResponse> memory = new LinkedHashMap<Key, CachedResponse>(16, 0.75f, true);
+
+	/**
+	 * the cached responses written to disk in least recently used order
+	 */
+	private final static LinkedHashMap<Key, CachedResponse> disk = new LinkedHashMap<Key, CachedResponse>(16, 0.75f, true);
+
+	/**
+	 * the responses evicted from main memory, which are currently written to disk (and can still be used meanwhile)
+	 */
+	private final static HashMap<Key, CachedResponse> spilling = new HashMap<Key, CachedResponse>();
+
+	/**
+	 * the requests currently submitted to the endpoints or reading responses from disk
+	 */
+	private final static HashMap<Key, Future<CachedResponse>> inFlight = new HashMap<Key, Future<CachedResponse>>();
+
+	private static long memoryBytes = 0;
+	private static long diskBytes = 0;
+
+	/**
+	 * whether or not the hook deleting the files of the cached responses at shutdown is registered
+	 */
+	private static boolean shutdownHookRegistered = false;
+
+	/**
+	 * set at shutdown, afterwards no responses are written to disk anymore
+	 */
+	private static boolean shutdown = false;
+
+	private ServiceResultCache() {
+	}
+
+	/**
+	 * Submits a query to a SPARQL endpoint using the default format, or retrieves its result from the cache.
+	 *
+	 * @param url the url of the SPARQL endpoint
+	 * @param query the query to be submitted
+	 * @param bindingsFactory the factory for creating the bindings of the query result
+	 * @return the query result
+	 * @throws java.io.IOException if the request failed
+	 */
+	public static QueryResult submitQuery(final String url, final String query, final BindingsFactory bindingsFactory) throws IOException {
+		return ServiceResultCache.submitQuery(url, query, Client.DEFAULT_FORMAT, bindingsFactory);
+	}
+
+	/**
+	 * Submits a query to a SPARQL endpoint, or retrieves its result from the cache.
+	 *
+	 * @param url the url of the SPARQL endpoint
+	 * @param query the query to be submitted
+	 * @param formatKey the requested format of the query result
+	 * @param bindingsFactory the factory for creating the bindings of the query result
+	 * @return the query result
+	 * @throws java.io.IOException if the request failed
+	 */
+	public static QueryResult submitQuery(final String url, final String query, final String formatKey, final BindingsFactory bindingsFactory) throws IOException {
+		if(!ServiceResultCache.ENABLED){
+			return Client.submitQuery(url, query, formatKey, bindingsFactory);
+		}
+		final CachedResponse response = ServiceResultCache.getResponse(new Key(url, formatKey, query));
+		return Client.parseQueryResult(response.contentType, new ByteArrayInputStream(response.content), query, bindingsFactory);
+	}
+
+	/**
+	 * Submits a query asynchronously to a SPARQL endpoint using the default format, or retrieves its result from the cache.
+	 *
+	 * @param url the url of the SPARQL endpoint
+	 * @param query the query to be submitted
+	 * @param bindingsFactory the factory for creating the bindings of the query result
+	 * @return the future of the (already materialized) query result
+	 * @see Client#submitQueryAsync(String, String, String, BindingsFactory)
+	 */
+	public static Future<QueryResult> submitQueryAsync(final String url, final String query, final BindingsFactory bindingsFactory) {
+		return ServiceResultCache.submitQueryAsync(url, query, Client.DEFAULT_FORMAT, bindingsFactory);
+	}
+
+	/**
+	 * Submits a query asynchronously to a SPARQL endpoint, or retrieves its result from the cache.
+	 * Results cached in main memory are returned immediately without waiting for other submitted requests
+	 * (results written to disk are read asynchronously).
+	 *
+	 * @param url the url of the SPARQL endpoint
+	 * @param query the query to be submitted
+	 * @param formatKey the requested format of the query result
+	 * @param bindingsFactory the factory for creating the bindings of the query result
+	 * @return the future of the (already materialized) query result
+	 * @see Client#submitQueryAsync(String, String, String, BindingsFactory)
+	 */
+	public static Future<QueryResult> submitQueryAsync(final String url, final String query, final String formatKey, final BindingsFactory bindingsFactory) {
+		if(!ServiceResultCache.ENABLED){
+			return Client.submitQueryAsync(url, query, formatKey, bindingsFactory);
+		}
+		final CachedResponse cached;
+		synchronized(ServiceResultCache.class){
+			cached = ServiceResultCache.lookup(new Key(url, formatKey, query));
+		}
+		if(cached!=null){
+			try {
+				final QueryResult result = Client.parseQueryResult(cached.contentType, new ByteArrayInputStream(cached.content), query, bindingsFactory);
+				if(result!=null){
+					result.materialize();
+				}
+				return CompletableFuture.completedFuture(result);
+			} catch (final IOException e) {
+				final CompletableFuture<QueryResult> failed = new CompletableFuture<QueryResult>();
+				failed.completeExceptionally(e);
+				return failed;
+			}
+		}
+		return Client.submitAsync(new Callable<QueryResult>(){
+			@Override
+			public QueryResult call() throws Exception {
+				final QueryResult result = ServiceResultCache.submitQuery(url, query, formatKey, bindingsFactory);
+				if(result!=null){
+					result.materialize();
+				}
+				return result;
+			}
+		});
+	}
+
+	/**
+	 * Determines the response for a key either from the cache, from a request currently submitted for the same key or by submitting a new request
+	 *
+	 * @param key the key
+	 * @return the response
+	 * @throws IOException if the request failed
+	 */
+	private static CachedResponse getResponse(final Key key) throws IOException {
+		final FutureTask<CachedResponse> request;
+		final Future<CachedResponse> otherRequest;
+		File expiredFile = null;
+		synchronized(ServiceResultCache.class){
+			final CachedResponse cached = ServiceResultCache.lookup(key);
+			if(cached!=null){
+				return cached;
+			}
+			otherRequest = ServiceResultCache.inFlight.get(key);
+			if(otherRequest==null){
+				CachedResponse spilled = ServiceResultCache.disk.remove(key);
+				if(spilled!=null){
+					ServiceResultCache.diskBytes -= spilled.size;
+					if(spilled.isExpired()){
+						ServiceResultCache.expirations++;
+						expiredFile = spilled.file;
+						spilled = null;
+					}
+				}
+				final CachedResponse onDisk = spilled;
+				request = new FutureTask<CachedResponse>(new Callable<CachedResponse>(){
+					@Override
+					public CachedResponse call() throws Exception {
+						return ServiceResultCache.readFromDiskOrRetrieve(key, onDisk);
+					}
+				});
+				ServiceResultCache.inFlight.put(key, request);
+			} else {
+				ServiceResultCache.hits++;
+				request = null;
+			}
+		}
+		ServiceResultCache.deleteFile(expiredFile);
+		if(request!=null){
+			try {
+				request.run();
+				return ServiceResultCache.getResponse(request);
+			} finally {
+				synchronized(ServiceResultCache.class){
+					ServiceResultCache.inFlight.remove(key);
+				}
+			}
+		} else {
+			return ServiceResultCache.getResponse(otherRequest);
+		}
+	}
+
+	private static CachedResponse getResponse(final Future<CachedResponse> request) throws IOException {
+		try {
+			return request.get();
+		} catch (final InterruptedException e) {
+			throw new IOException(e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if(cause instanceof IOException){
+				throw (IOException) cause;
+			}
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Reads a response written to disk or (if it is not on disk or cannot be read) submits the request to the endpoint
+	 *
+	 * @param key the key of the request
+	 * @param onDisk the response written to disk, or null
+	 * @return the response
+	 * @throws IOException if the request failed
+	 */
+	private static CachedResponse readFromDiskOrRetrieve(final Key key, final CachedResponse onDisk) throws IOException {
+		if(onDisk!=null){
+			final CachedResponse read = onDisk.readFromDisk();
+			ServiceResultCache.deleteFile(onDisk.file);
+			if(read!=null){
+				synchronized(ServiceResultCache.class){
+					ServiceResultCache.hits++;
+				}
+				// the response is again used => keep it in main memory
+				ServiceResultCache.put(key, read);
+				return read;
+			}
+		}
+		synchronized(ServiceResultCache.class){
+			ServiceResultCache.misses++;
+		}
+		return ServiceResultCache.retrieve(key);
+	}
+
+	/**
+	 * Submits the request to the endpoint, reads its response completely and caches it (if it can be parsed later)
+	 *
+	 * @param key the key of the request
+	 * @return the response
+	 * @throws IOException if the request failed
+	 */
+	private static CachedResponse retrieve(final Key key) throws IOException {
+		final Tuple<String, InputStream> response = Client.submitQueryAndRetrieveStream(key.url, key.query, key.formatKey);
+		final InputStream in = response.getSecond();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			final byte[] buffer = new byte[8192];
+			int read;
+			while((read = in.read(buffer))>=0){
+				out.write(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		final CachedResponse result = new CachedResponse(response.getFirst(), out.toByteArray(), key);
+		// error messages and responses in unsupported formats are not cached
+		if(result.contentType!=null && Client.getFormatReader(result.contentType)!=null){
+			ServiceResultCache.put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Looks up a cached response in main memory (the caller must synchronize on this class).
+	 * Responses written to disk are read by getResponse(...) without holding the lock of this class.
+	 *
+	 * @param key the key of the response
+	 * @return the cached response, or null if there is no (not expired) cached response for the key in main memory
+	 */
+	private static CachedResponse lookup(final Key key) {
+		CachedResponse result = ServiceResultCache.memory.get(key);
+		if(result!=null){
+			if(result.isExpired()){
+				ServiceResultCache.memory.remove(key);
+				ServiceResultCache.memoryBytes -= result.size;
+				ServiceResultCache.expirations++;
+				return null;
+			}
+			ServiceResultCache.hits++;
+			return result;
+		}
+		result = ServiceResultCache.spilling.get(key);
+		if(result!=null && !result.isExpired()){
+			ServiceResultCache.hits++;
+			return result;
+		}
+		return null;
+	}
+
+	/**
+	 * Caches a response and evicts the least recently used responses if the cache is full.
+	 * The evicted responses are written to disk after releasing the lock of this class.
+	 *
+	 * @param key the key of the response
+	 * @param response the response to be cached
+	 */
+	private static void put(final Key key, final CachedResponse response) {
+		if(response.size>ServiceResultCache.MAX_ENTRY_BYTES){
+			return;
+		}
+		final List<Map.Entry<Key, CachedResponse>> toSpill = new LinkedList<Map.Entry<Key, CachedResponse>>();
+		final List<File> toDelete = new LinkedList<File>();
+		synchronized(ServiceResultCache.class){
+			final CachedResponse oldInMemory = ServiceResultCache.memory.put(key, response);
+			if(oldInMemory!=null){
+				ServiceResultCache.memoryBytes -= oldInMemory.size;
+			}
+			ServiceResultCache.memoryBytes += response.size;
+			final CachedResponse oldOnDisk = ServiceResultCache.disk.remove(key);
+			if(oldOnDisk!=null){
+				ServiceResultCache.diskBytes -= oldOnDisk.size;
+				toDelete.add(oldOnDisk.file);
+			}
+			final Iterator<Map.Entry<Key, CachedResponse>> memoryIterator = ServiceResultCache.memory.entrySet().iterator();
+			while(ServiceResultCache.memoryBytes>ServiceResultCache.MAX_MEMORY_BYTES && memoryIterator.hasNext()){
+				final Map.Entry<Key, CachedResponse> eldest = memoryIterator.next();
+				memoryIterator.remove();
+				final CachedResponse evicted = eldest.getValue();
+				ServiceResultCache.memoryBytes -= evicted.size;
+				if(ServiceResultCache.SPILL_TO_DISK && !ServiceResultCache.shutdown && !evicted.isExpired() && !ServiceResultCache.spilling.containsKey(eldest.getKey())){
+					ServiceResultCache.spilling.put(eldest.getKey(), evicted);
+					toSpill.add(eldest);
+				} else {
+					ServiceResultCache.evictions++;
+				}
+			}
+		}
+		ServiceResultCache.deleteFiles(toDelete);
+		for(final Map.Entry<Key, CachedResponse> entry: toSpill){
+			ServiceResultCache.spill(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Writes a response evicted from main memory to disk and afterwards registers it as cached on disk
+	 *
+	 * @param key the key of the response
+	 * @param evicted the evicted response
+	 */
+	private static void spill(final Key key, final CachedResponse evicted) {
+		final CachedResponse onDisk = evicted.writeToDisk();
+		final List<File> toDelete = new LinkedList<File>();
+		synchronized(ServiceResultCache.class){
+			ServiceResultCache.spilling.remove(key);
+			if(onDisk==null){
+				ServiceResultCache.evictions++;
+				return;
+			}
+			if(ServiceResultCache.shutdown || ServiceResultCache.memory.containsKey(key) || ServiceResultCache.disk.containsKey(key) || ServiceResultCache.inFlight.containsKey(key)){
+				// the response has been cached or requested again meanwhile
+				toDelete.add(onDisk.file);
+			} else {
+				if(!ServiceResultCache.shutdownHookRegistered){
+					Runtime.getRuntime().addShutdownHook(new Thread(){
+						@Override
+						public void run(){
+							ServiceResultCache.deleteAllFiles();
+						}
+					});
+					ServiceResultCache.shutdownHookRegistered = true;
+				}
+				ServiceResultCache.disk.put(key, onDisk);
+				ServiceResultCache.diskBytes += onDisk.size;
+				ServiceResultCache.spills++;
+				final Iterator<CachedResponse> diskIterator = ServiceResultCache.disk.values().iterator();
+				while(ServiceResultCache.diskBytes>ServiceResultCache.MAX_DISK_BYTES && diskIterator.hasNext()){
+					final CachedResponse diskEvicted = diskIterator.next();
+					diskIterator.remove();
+					ServiceResultCache.diskBytes -= diskEvicted.size;
+					toDelete.add(diskEvicted.file);
+					ServiceResultCache.evictions++;
+				}
+			}
+		}
+		ServiceResultCache.deleteFiles(toDelete);
+	}
+
+	/**
+	 * Deletes the files of all responses written to disk at shutdown (instead of registering each file by File.deleteOnExit(), which would keep all file names until shutdown)
+	 */
+	private static void deleteAllFiles() {
+		final List<File> toDelete = new LinkedList<File>();
+		synchronized(ServiceResultCache.class){
+			ServiceResultCache.shutdown = true;
+			for(final CachedResponse response: ServiceResultCache.disk.values()){
+				toDelete.add(response.file);
+			}
+			ServiceResultCache.disk.clear();
+			ServiceResultCache.diskBytes = 0;
+		}
+		ServiceResultCache.deleteFiles(toDelete);
+	}
+
+	private static void deleteFiles(final List<File> files) {
+		for(final File file: files){
+			ServiceResultCache.deleteFile(file);
+		}
+	}
+
+	private static void deleteFile(final File file) {
+		if(file!=null){
+			file.delete();
+		}
+	}
+
+	/**
+	 * Removes all cached responses
+	 */
+	public static void clear() {
+		final List<File> toDelete = new LinkedList<File>();
+		synchronized(ServiceResultCache.class){
+			ServiceResultCache.memory.clear();
+			ServiceResultCache.memoryBytes = 0;
+			for(final CachedResponse response: ServiceResultCache.disk.values()){
+				toDelete.add(response.file);
+			}
+			ServiceResultCache.disk.clear();
+			ServiceResultCache.diskBytes = 0;
+		}
+		ServiceResultCache.deleteFiles(toDelete);
+	}
+
+	/**
+	 * @return a string containing the statistics about the usage of the cache
+	 */
+	public static synchronized String getStatistics() {
+		return "Service result cache: " + ServiceResultCache.hits + " hits, " + ServiceResultCache.misses + " misses, "
+				+ ServiceResultCache.evictions + " evictions, " + ServiceResultCache.expirations + " expirations, " + ServiceResultCache.spills + " spills, "
+				+ ServiceResultCache.memory.size() + " responses with " + ServiceResultCache.memoryBytes + " bytes in main memory, "
+				+ ServiceResultCache.disk.size() + " responses with " + ServiceResultCache.diskBytes + " bytes on disk";
+	}
+
+	/**
+	 * The key of a cached response
+	 */
+	private static class Key {
+		private final String url;
+		private final String formatKey;
+		private final String query;
+
+		public Key(final String url, final String formatKey, final String query){
+			this.url = url;
+			this.formatKey = formatKey;
+			this.query = query;
+		}
+
+		@Override
+		public boolean equals(final Object object){
+			if(object instanceof Key){
+				final Key other = (Key) object;
+				return this.url.equals(other.url) && this.formatKey.equals(other.formatKey) && this.query.equals(other.query);
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode(){
+			return (31 * this.url.hashCode() + this.formatKey.hashCode()) * 31 + this.query.hashCode();
+		}
+	}
+
+	/**
+	 * A cached response, the content of which is either kept in main memory or in a file.
+	 * Cached responses are immutable: Writing a response to disk or reading it back creates a new cached response.
+	 */
+	private static class CachedResponse {
+		private final String contentType;
+		private final byte[] content;
+		private final File file;
+		private final long size;
+		private final long expires;
+
+		public CachedResponse(final String contentType, final byte[] content, final Key key){
+			this.contentType = contentType;
+			this.content = content;
+			this.file = null;
+			// the key is kept in main memory, too
+			this.size = content.length + 2 * (key.url.length() + key.formatKey.length() + key.query.length());
+			this.expires = (ServiceResultCache.TIME_TO_LIVE>0)? System.currentTimeMillis() + ServiceResultCache.TIME_TO_LIVE : Long.MAX_VALUE;
+		}
+
+		private CachedResponse(final CachedResponse response, final byte[] content, final File file){
+			this.contentType = response.contentType;
+			this.content = content;
+			this.file = file;
+			this.size = response.size;
+			this.expires = response.expires;
+		}
+
+		public boolean isExpired(){
+			return System.currentTimeMillis()>this.expires;
+		}
+
+		/**
+		 * @return the response with its content in a file, or null if the content could not be written
+		 */
+		public CachedResponse writeToDisk(){
+			File spillFile = null;
+			try {
+				spillFile = File.createTempFile("service", ".cache", (ServiceResultCache.SPILL_DIRECTORY==null)? null : new File(ServiceResultCache.SPILL_DIRECTORY));
+				final OutputStream out = new FileOutputStream(spillFile);
+				try {
+					out.write(this.content);
+				} finally {
+					out.close();
+				}
+				return new CachedResponse(this, null, spillFile);
+			} catch (final IOException e) {
+				System.err.println(e);
+				e.printStackTrace();
+				ServiceResultCache.deleteFile(spillFile);
+				return null;
+			}
+		}
+
+		/**
+		 * @return the response with its content read from its file, or null if the file could not be read
+		 */
+		public CachedResponse readFromDisk(){
+			try {
+				final byte[] bytes = new byte[(int) this.file.length()];
+				final InputStream in = new FileInputStream(this.file);
+				try {
+					int offset = 0;
+					while(offset<bytes.length){
+						final int read = in.read(bytes, offset, bytes.length - offset);
+						if(read<0){
+							return null;
+						}
+						offset += read;
+					}
+				} finally {
+					in.close();
+				}
+				return new CachedResponse(this, bytes, null);
+			} catch (final IOException e) {
+				System.err.println(e);
+				e.printStackTrace();
+				return null;
+			}
+		}
+	}
+}
@@ -37,22 +37,39 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.URLDecoder;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import lupos.datastructures.bindings.Bindings;
 import lupos.datastructures.bindings.BindingsArrayReadTriples;
+import lupos.datastructures.buffermanager.BufferManager;
+import lupos.datastructures.buffermanager.BufferManager_Concurrent;
+import lupos.datastructures.items.Variable;
 import lupos.datastructures.items.literal.LiteralFactory;
 import lupos.datastructures.queryresult.QueryResult;
+import lupos.endpoint.caching.QueryResultCache;
 import lupos.endpoint.server.format.CSVFormatter;
 import lupos.endpoint.server.format.Formatter;
 import lupos.endpoint.server.format.HTMLFormatter;
+import lupos.endpoint.server.format.HeadBodyFormatter;
 import lupos.endpoint.server.format.JSONFormatter;
 import lupos.endpoint.server.format.PlainFormatter;
 import lupos.endpoint.server.format.QueryTriplesFormatter;
+import lupos.endpoint.server.format.StreamingResultWriter;
 import lupos.endpoint.server.format.TSVFormatter;
 import lupos.endpoint.server.format.XMLFormatter;
 import lupos.engine.evaluators.BasicIndexQueryEvaluator;
@@ -60,6 +77,7 @@ import lupos.engine.evaluators.CommonCoreQueryEvaluator;
 import lupos.engine.evaluators.MemoryIndexQueryEvaluator;
 import lupos.engine.evaluators.RDF3XQueryEvaluator;
 import lupos.engine.operators.singleinput.federated.BitVectorFilterFunction;
+import lupos.engine.operators.singleinput.sparul.UpdateNotification;
 import lupos.sparql1_1.ASTAskQuery;
 import lupos.sparql1_1.ASTConstructQuery;
 import lupos.sparql1_1.ASTDefaultGraph;
@@ -94,6 +112,53 @@ public class Endpoint {
 
 	private static HTMLForm htmlForm = new StandardHTMLForm();
 
+	/**
+	 * the max. number of queries processed in parallel (default: number of available processors).
+	 * The queries of the same evaluator are evaluated one after the other, but for example cached results are sent in parallel.
+	 */
+	public static int workerThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * the max. number of queries waiting for a free worker, further queries are rejected with HTTP status 503
+	 */
+	public static int maxQueuedQueries = 64;
+
+	/**
+	 * the timeout in seconds for evaluating a query and sending its result (0 means no timeout)
+	 */
+	public static int queryTimeoutInSeconds = 0;
+
+	/**
+	 * whether or not results of select queries are written as soon as they are determined by the evaluator
+	 * (only for formatters extending HeadBodyFormatter and evaluators extending CommonCoreQueryEvaluator)
+	 */
+	public static boolean streaming = true;
+
+	/**
+	 * the max. size in bytes of a single cached query result
+	 */
+	public static int maxBytesPerCachedResult = 1024 * 1024;
+
+	/**
+	 * the max. size in bytes of all cached query results
+	 */
+	public static long maxBytesOfResultCache = 64 * 1024 * 1024;
+
+	/**
+	 * the cache for query results (null if query results are not cached)
+	 */
+	private static QueryResultCache resultCache = null;
+
+	/**
+	 * the admission controller for queries of the SPARQL handlers
+	 */
+	private static AdmissionController admissionController = null;
+
+	/**
+	 * the scheduler for query timeouts
+	 */
+	private static ScheduledExecutorService timeoutScheduler = null;
+
 	private static final int delayForStoppingInSeconds = 30; // the time the server gets for stopping to finish its work
 	public static final int portForStopping = 4242; // the port on which the server listens for stop signal
 
@@ -191,6 +256,30 @@ public class Endpoint {
 		Endpoint.htmlForm = htmlForm;
 	}
 
+	/**
+	 * <p>Getter for the field <code>resultCache</code>.</p>
+	 *
+	 * @return the cache for query results or null if query results are not cached
+	 */
+	public static QueryResultCache getResultCache(){
+		return Endpoint.resultCache;
+	}
+
+	/**
+	 * sets the cache for query results, which is invalidated by SPARUL operations modifying the data
+	 *
+	 * @param resultCache the cache for query results or null for not caching query results
+	 */
+	public static void setResultCache(final QueryResultCache resultCache){
+		if(Endpoint.resultCache!=null){
+			UpdateNotification.removeListener(Endpoint.resultCache);
+		}
+		Endpoint.resultCache = resultCache;
+		if(resultCache!=null){
+			UpdateNotification.addListener(resultCache);
+		}
+	}
+
 	/**
 	 * <p>Getter for the field <code>defaultBindingsClass</code>.</p>
 	 *
@@ -233,12 +322,18 @@ public class Endpoint {
 	 */
 	public static int init(final String[] args){
 		if (args.length < 1) {
-			System.err.println("Usage:\njava -Xmx768M lupos.endpoint.server.Endpoint <directory for indices> [portX] [output] [size] [MEMORY] [TRIEMAP|HASHMAP|DBBPTREE|SMALLERINHASHMAPLARGERINDBBPTREE|NOCODEMAP|PREFIXCODEMAP|URICODEMAP|LAZYLITERAL|LAZYLITERALWITHOUTINITIALPREFIXCODEMAP]");
+			System.err.println("Usage:\njava -Xmx768M lupos.endpoint.server.Endpoint <directory for indices> [portX] [output] [size] [MEMORY] [workersX] [queueX] [timeoutX] [nostreaming] [concurrentbuffer] [cacheX] [TRIEMAP|HASHMAP|DBBPTREE|SMALLERINHASHMAPLARGERINDBBPTREE|NOCODEMAP|PREFIXCODEMAP|URICODEMAP|LAZYLITERAL|LAZYLITERALWITHOUTINITIALPREFIXCODEMAP]");
 			System.err.println("(The indices can be constructed using lupos.engine.indexconstruction.FastRDF3XIndexConstruction)");
 			System.err.println("If \"portX\" is given, the port X (default 8080) is used, X must be a non-negative number.");
 			System.err.println("If \"output\" is given, the response is written to console.");
 			System.err.println("If \"size\" is given, the size of the received query and the size of the response is written to console.");
 			System.err.println("If \"MEMORY\" is given, the MEMORY query evaluator (instead of RDF3X) is used.");
+			System.err.println("If \"workersX\" is given, at most X queries are evaluated in parallel (default: number of processors).");
+			System.err.println("If \"queueX\" is given, at most X queries wait for a free worker, further queries are rejected with HTTP status 503 (default 64).");
+			System.err.println("If \"timeoutX\" is given, the evaluation of a query is cancelled after X seconds (default: no timeout).");
+			System.err.println("If \"nostreaming\" is given, the results are collected before being written (otherwise they are written as soon as they are determined).");
+			System.err.println("If \"concurrentbuffer\" is given, the lock-striped buffer manager with 2Q page replacement is used, which scales better for many concurrent queries.");
+			System.err.println("If \"cacheX\" is given, the serialized results of at most X queries are cached until the data is modified by SPARUL operations (default: no caching).");
 			System.err.println("Only in case of MEMORY query evaluator: Sets the map type for literals for one of the following values: TRIEMAP, HASHMAP, DBBPTREE, SMALLERINHASHMAPLARGERINDBBPTREE, NOCODEMAP, PREFIXCODEMAP, URICODEMAP, LAZYLITERAL, LAZYLITERALWITHOUTINITIALPREFIXCODEMAP");
 			System.exit(0);
 		}
@@ -252,6 +347,18 @@ public class Endpoint {
 				port = Integer.parseInt(args[i].substring("port".length()));
 			} else if(args[i].compareTo("MEMORY")==0){
 				evaluator = EVALUATOR.MEMORY;
+			} else if(args[i].startsWith("workers")){
+				Endpoint.workerThreads = Integer.parseInt(args[i].substring("workers".length()));
+			} else if(args[i].startsWith("queue")){
+				Endpoint.maxQueuedQueries = Integer.parseInt(args[i].substring("queue".length()));
+			} else if(args[i].startsWith("timeout")){
+				Endpoint.queryTimeoutInSeconds = Integer.parseInt(args[i].substring("timeout".length()));
+			} else if(args[i].compareTo("nostreaming")==0){
+				Endpoint.streaming = false;
+			} else if(args[i].compareTo("concurrentbuffer")==0){
+				BufferManager.setBufferManager(new BufferManager_Concurrent());
+			} else if(args[i].startsWith("cache")){
+				Endpoint.setResultCache(new QueryResultCache(Integer.parseInt(args[i].substring("cache".length())), Endpoint.maxBytesPerCachedResult, Endpoint.maxBytesOfResultCache));
 			} else {
 				try {
 					final LiteralFactory.MapType mapType = LiteralFactory.MapType.valueOf(args[i]);
@@ -361,7 +468,7 @@ public class Endpoint {
 				server.createContext(entry.getKey(), entry.getValue());
 			}
 
-			server.setExecutor(null);
+			server.setExecutor(Endpoint.createExecutor());
 			server.start();
 		} catch (final Exception e) {
 			System.err.println(e);
@@ -369,6 +476,209 @@ public class Endpoint {
 		}
 	}
 
+	/**
+	 * Creates the executor for handling the http requests.
+	 * Virtual threads are used if available (Java 21+), otherwise a thread pool.
+	 * The number of requests being processed is limited by the admission controller of the SPARQL handlers
+	 * (see getAdmissionController()), such that only up to workerThreads + maxQueuedQueries threads are busy with queries.
+	 *
+	 * @return the executor for handling the http requests
+	 */
+	public static Executor createExecutor(){
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch(final Exception e){
+			// no virtual threads available => use thread pool
+		}
+		return Executors.newCachedThreadPool(new ThreadFactory(){
+			private final AtomicInteger number = new AtomicInteger(0);
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread thread = new Thread(r, "Endpoint-Worker-" + this.number.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * <p>Getter for the field <code>admissionController</code>.</p>
+	 * The admission controller is created with the current values of workerThreads and maxQueuedQueries when it is requested the first time.
+	 *
+	 * @return the admission controller for queries
+	 */
+	public static synchronized AdmissionController getAdmissionController(){
+		if(Endpoint.admissionController==null){
+			Endpoint.admissionController = new AdmissionController(Endpoint.workerThreads, Endpoint.maxQueuedQueries);
+		}
+		return Endpoint.admissionController;
+	}
+
+	/**
+	 * <p>getTimeoutScheduler.</p>
+	 *
+	 * @return the scheduler for query timeouts
+	 */
+	protected static synchronized ScheduledExecutorService getTimeoutScheduler(){
+		if(Endpoint.timeoutScheduler==null){
+			Endpoint.timeoutScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+				@Override
+				public Thread newThread(final Runnable r) {
+					final Thread thread = new Thread(r, "Endpoint-Query-Timeout");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return Endpoint.timeoutScheduler;
+	}
+
+	/**
+	 * This class limits the number of queries being evaluated in parallel as well as the number of queries waiting for being evaluated.
+	 * Queries exceeding the limit of waiting queries are rejected immediately instead of piling up.
+	 */
+	public static class AdmissionController {
+
+		private final Semaphore workers;
+		private final AtomicInteger admitted = new AtomicInteger(0);
+		private final int maxAdmitted;
+
+		/**
+		 * @param workerThreads the max. number of queries evaluated in parallel
+		 * @param maxQueuedQueries the max. number of queries waiting for a free worker
+		 */
+		public AdmissionController(final int workerThreads, final int maxQueuedQueries){
+			this.workers = new Semaphore(Math.max(1, workerThreads), true);
+			this.maxAdmitted = Math.max(1, workerThreads) + Math.max(0, maxQueuedQueries);
+		}
+
+		/**
+		 * Admits a query if the queue of waiting queries is not full. If the query is admitted, the caller waits until a worker is free.
+		 * An admitted query must call release() after its evaluation.
+		 *
+		 * @return true if the query has been admitted and a worker is assigned to it, false if it is rejected
+		 * @throws InterruptedException if interrupted while waiting for a free worker
+		 */
+		public boolean admit() throws InterruptedException {
+			if(this.admitted.incrementAndGet() > this.maxAdmitted){
+				this.admitted.decrementAndGet();
+				return false;
+			}
+			try {
+				this.workers.acquire();
+			} catch(final InterruptedException e){
+				this.admitted.decrementAndGet();
+				throw e;
+			}
+			return true;
+		}
+
+		/**
+		 * releases the worker of an admitted query
+		 */
+		public void release(){
+			this.workers.release();
+			this.admitted.decrementAndGet();
+		}
+
+		/**
+		 * @return the number of currently admitted (running and waiting) queries
+		 */
+		public int getNumberOfAdmittedQueries(){
+			return this.admitted.get();
+		}
+	}
+
+	/**
+	 * This class handles the timeout of a query:
+	 * If the timeout occurs before the response is started, the response is an error message with HTTP status 503.
+	 * If the timeout occurs while sending the result, the connection is closed, such that the formatter stops writing the result.
+	 * In both cases the thread evaluating the query is interrupted.
+	 */
+	public static class QueryCancellation implements Runnable {
+
+		private final HttpExchange t;
+		private final Thread worker;
+		private boolean responding = false;
+		private boolean cancelled = false;
+		private boolean finished = false;
+		private ScheduledFuture<?> future = null;
+
+		/**
+		 * @param t the http exchange of the query
+		 * @param timeoutInSeconds the timeout in seconds, no timeout if it is <=0
+		 */
+		public QueryCancellation(final HttpExchange t, final int timeoutInSeconds){
+			this.t = t;
+			this.worker = Thread.currentThread();
+			if(timeoutInSeconds>0){
+				this.future = Endpoint.getTimeoutScheduler().schedule(this, timeoutInSeconds, TimeUnit.SECONDS);
+			}
+		}
+
+		@Override
+		public void run() {
+			final boolean respondingWhenCancelled;
+			synchronized(this){
+				if(this.cancelled || this.finished){
+					return;
+				}
+				this.cancelled = true;
+				respondingWhenCancelled = this.responding;
+			}
+			// the worker does not start the response any more, such that the i/o can be done outside the monitor
+			// (the worker is not blocked by a slow client when calling startResponse(), isResponding() or finish())
+			System.err.println("Query timed out!");
+			try {
+				if(respondingWhenCancelled){
+					this.t.close();
+				} else {
+					Endpoint.sendString(this.t, 503, "Error:\nQuery timed out!");
+				}
+			} catch(final Exception e){
+				System.err.println(e);
+				e.printStackTrace();
+			}
+			this.worker.interrupt();
+		}
+
+		/**
+		 * must be called before the response is started
+		 *
+		 * @return false if the query has been cancelled (and the response has already been sent), otherwise true
+		 */
+		public synchronized boolean startResponse(){
+			this.responding = true;
+			return !this.cancelled;
+		}
+
+		/**
+		 * @return whether or not the response has been started
+		 */
+		public synchronized boolean isResponding(){
+			return this.responding;
+		}
+
+		/**
+		 * @return whether or not the query has been cancelled because of its timeout
+		 */
+		public synchronized boolean isCancelled(){
+			return this.cancelled;
+		}
+
+		/**
+		 * must be called after the query has been processed (also in the case of errors)
+		 */
+		public synchronized void finish(){
+			if(this.future!=null){
+				this.future.cancel(false);
+			}
+			this.finished = true;
+			// clear interrupted flag possibly set by the timeout
+			Thread.interrupted();
+		}
+	}
+
 	/**
 	 * To stop the server
 	 * @param delay the delay the server waits for currently busy handler to finish their work. After the delay, the handlers are stopped by stopping their thread...
@@ -507,6 +817,12 @@ public class Endpoint {
 
 	public static class SPARQLExecutionImplementation implements SPARQLExecution {
 
+		/**
+		 * the lock for changing Bindings.instanceClass, which is a global setting:
+		 * queries needing another Bindings class are evaluated exclusively
+		 */
+		protected static final ReentrantReadWriteLock bindingsClassLock = new ReentrantReadWriteLock();
+
 		protected final BasicIndexQueryEvaluator evaluator;
 		protected final String dir;
 
@@ -520,66 +836,186 @@ public class Endpoint {
 			if(Endpoint.sizelog){
 				System.out.println("Size of the received query (number of characters): "+queryParameter.length());
 			}
+			final QueryCancellation cancellation = new QueryCancellation(t, Endpoint.queryTimeoutInSeconds);
 			try {
-				synchronized(this.evaluator){ // avoid any inference of several queries in parallel!
-					if(Endpoint.log){
-						System.out.println("Evaluating query:\n"+queryParameter);
-					}
-					if(!Endpoint.validQuery(queryParameter, false)){
-						throw new Exception("Only SELECT, ASK, CONSTRUCT and DESCRIBE queries allowed!");
+				if(Endpoint.log){
+					System.out.println("Evaluating query:\n"+queryParameter);
+				}
+				if(!Endpoint.validQuery(queryParameter, false)){
+					throw new Exception("Only SELECT, ASK, CONSTRUCT and DESCRIBE queries allowed!");
+				}
+				final QueryResultCache resultCache = Endpoint.resultCache;
+				// the key is null for queries, the results of which must not be cached (e.g., using RAND() or NOW())
+				final String cacheKey = (resultCache==null)? null : QueryResultCache.getKey(queryParameter, formatter.getKey());
+				final QueryResultCache cache = (cacheKey==null)? null : resultCache;
+				long cacheVersion = 0;
+				if(cache!=null){
+					final QueryResultCache.Entry entry = cache.get(cacheKey);
+					if(entry!=null){
+						if(!cancellation.startResponse()){
+							return;
+						}
+						final OutputStream os = Endpoint.startResponse(t, entry.getMimeType());
+						os.write(entry.getContent());
+						os.close();
+						return;
 					}
-
-					if((this.evaluator instanceof CommonCoreQueryEvaluator) && formatter.isWriteQueryTriples()){
-						// log query-triples by using BindingsArrayReadTriples as class for storing the query solutions!
-						Bindings.instanceClass = BindingsArrayReadTriples.class;
+					// remember the version of the data before evaluating the query
+					cacheVersion = cache.getVersion();
+				}
+				// the recorder of the response for caching it
+				final QueryResultCache.RecordingOutputStream[] recorder = new QueryResultCache.RecordingOutputStream[1];
+				// avoid any inference of several queries in parallel!
+				// (the evaluators share static data like the dictionary and the buffer manager, such that only one evaluator is used, the queries of which are evaluated one after the other)
+				final BasicIndexQueryEvaluator currentEvaluator = this.evaluator;
+				synchronized(currentEvaluator){
+					final boolean writeQueryTriples = (currentEvaluator instanceof CommonCoreQueryEvaluator) && formatter.isWriteQueryTriples();
+					final ReentrantReadWriteLock.ReadLock readLock = SPARQLExecutionImplementation.bindingsClassLock.readLock();
+					final ReentrantReadWriteLock.WriteLock writeLock = SPARQLExecutionImplementation.bindingsClassLock.writeLock();
+					if(writeQueryTriples){
+						writeLock.lock();
 					} else {
-						Bindings.instanceClass = Endpoint.defaultBindingsClass;
-					}
-					final QueryResult queryResult = (this.evaluator instanceof CommonCoreQueryEvaluator)?((CommonCoreQueryEvaluator)this.evaluator).getResult(queryParameter, true):this.evaluator.getResult(queryParameter);
-					final String mimeType = formatter.getMIMEType(queryResult);
-					if(Endpoint.log){
-						System.out.println("Done, sending response using MIME type "+mimeType);
+						readLock.lock();
 					}
-					t.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-					t.getResponseHeaders().add("Content-type", mimeType);
-					t.getResponseHeaders().add("Transfer-encoding", "chunked");
-					t.sendResponseHeaders(200, 0);
-					OutputStream os = t.getResponseBody();
-					if(Endpoint.log){
-						os = new OutputStreamLogger(os);
-					}
-					if(Endpoint.sizelog){
-						os = new OutputStreamSizeLogger(os);
-					}
-					formatter.writeResult(os, this.evaluator.getVariablesOfQuery(), queryResult);
-					os.close();
-					if(this.evaluator instanceof RDF3XQueryEvaluator){
-						this.evaluator.writeOutAllModifiedPages();
+					try {
+						if(writeQueryTriples){
+							// log query-triples by using BindingsArrayReadTriples as class for storing the query solutions!
+							Bindings.instanceClass = BindingsArrayReadTriples.class;
+						} else {
+							Bindings.instanceClass = Endpoint.defaultBindingsClass;
+						}
+						if(Endpoint.streaming && (formatter instanceof HeadBodyFormatter) && (currentEvaluator instanceof CommonCoreQueryEvaluator)){
+							// push the results to the formatter as soon as they are determined
+							((CommonCoreQueryEvaluator)currentEvaluator).evaluateQuery(queryParameter, new StreamingResultWriter((HeadBodyFormatter) formatter){
+								@Override
+								protected OutputStream openResponse(final String mimeType) throws IOException {
+									if(!cancellation.startResponse()){
+										throw new IOException("Query timed out!");
+									}
+									return Endpoint.startResponse(t, mimeType, cache, recorder);
+								}
+
+								@Override
+								protected Collection<Variable> getVariables() {
+									return currentEvaluator.getVariablesOfQuery();
+								}
+							});
+						} else {
+							final QueryResult queryResult = (currentEvaluator instanceof CommonCoreQueryEvaluator)?((CommonCoreQueryEvaluator)currentEvaluator).getResult(queryParameter, true):currentEvaluator.getResult(queryParameter);
+							final String mimeType = formatter.getMIMEType(queryResult);
+							if(!cancellation.startResponse()){
+								return;
+							}
+							final OutputStream os = Endpoint.startResponse(t, mimeType, cache, recorder);
+							formatter.writeResult(os, currentEvaluator.getVariablesOfQuery(), queryResult);
+							os.close();
+						}
+						if(recorder[0]!=null && !cancellation.isCancelled()){
+							final byte[] content = recorder[0].getRecordedBytes();
+							if(content!=null){
+								cache.put(cacheKey, recorder[0].getMimeType(), content, (currentEvaluator instanceof CommonCoreQueryEvaluator)? ((CommonCoreQueryEvaluator)currentEvaluator).getTriplePatternsOfQuery() : null, cacheVersion);
+							}
+						}
+						if(currentEvaluator instanceof RDF3XQueryEvaluator){
+							currentEvaluator.writeOutAllModifiedPages();
+						}
+					} finally {
+						if(writeQueryTriples){
+							Bindings.instanceClass = Endpoint.defaultBindingsClass;
+							writeLock.unlock();
+						} else {
+							readLock.unlock();
+						}
 					}
 				}
 				return;
 			} catch (final Error e) {
-				System.err.println(e);
-				e.printStackTrace();
-				t.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-				t.getResponseHeaders().add("Content-type", "text/plain");
-				final String answer = "Error:\n"+e.getMessage();
-				System.out.println(answer);
-				Endpoint.sendString(t, answer);
+				Endpoint.handleQueryError(t, cancellation, e);
 				return;
 			} catch (final Exception e){
-				System.err.println(e);
-				e.printStackTrace();
-				t.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-				t.getResponseHeaders().add("Content-type", "text/plain");
-				final String answer = "Error:\n"+e.getMessage();
-				System.out.println(answer);
-				Endpoint.sendString(t, answer);
+				Endpoint.handleQueryError(t, cancellation, e);
 				return;
+			} finally {
+				cancellation.finish();
 			}
 		}
 	}
 
+	/**
+	 * sends the headers of a successful response with chunked transfer encoding and returns the stream for writing the response body
+	 *
+	 * @param t the http exchange
+	 * @param mimeType the MIME type of the response
+	 * @return the stream for writing the response body
+	 * @throws IOException
+	 */
+	private static OutputStream startResponse(final HttpExchange t, final String mimeType) throws IOException {
+		if(Endpoint.log){
+			System.out.println("Done, sending response using MIME type "+mimeType);
+		}
+		t.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+		t.getResponseHeaders().add("Content-type", mimeType);
+		t.getResponseHeaders().add("Transfer-encoding", "chunked");
+		t.sendResponseHeaders(200, 0);
+		OutputStream os = t.getResponseBody();
+		if(Endpoint.log){
+			os = new OutputStreamLogger(os);
+		}
+		if(Endpoint.sizelog){
+			os = new OutputStreamSizeLogger(os);
+		}
+		return os;
+	}
+
+	/**
+	 * starts the response and records it for caching if a result cache is given
+	 *
+	 * @param t the http exchange
+	 * @param mimeType the MIME type of the response
+	 * @param cache the result cache or null if the response should not be cached
+	 * @param recorder the array for returning the recorder of the response
+	 * @return the stream for writing the response body
+	 * @throws IOException
+	 */
+	private static OutputStream startResponse(final HttpExchange t, final String mimeType, final QueryResultCache cache, final QueryResultCache.RecordingOutputStream[] recorder) throws IOException {
+		final OutputStream os = Endpoint.startResponse(t, mimeType);
+		if(cache==null){
+			return os;
+		}
+		recorder[0] = new QueryResultCache.RecordingOutputStream(os, mimeType, Endpoint.maxBytesPerCachedResult);
+		return recorder[0];
+	}
+
+	/**
+	 * sends an error message as response to a failed query (if the query has not been cancelled because of its timeout)
+	 *
+	 * @param t the http exchange
+	 * @param cancellation the cancellation object of the query
+	 * @param e the error
+	 * @throws IOException
+	 */
+	private static void handleQueryError(final HttpExchange t, final QueryCancellation cancellation, final Throwable e) throws IOException {
+		if(cancellation.isCancelled()){
+			// response has already been sent or connection is closed...
+			return;
+		}
+		System.err.println(e);
+		e.printStackTrace();
+		if(cancellation.isResponding()){
+			// the response has already been started => abort it
+			t.close();
+			return;
+		}
+		if(!cancellation.startResponse()){
+			return;
+		}
+		t.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+		t.getResponseHeaders().add("Content-type", "text/plain");
+		final String answer = "Error:\n"+e.getMessage();
+		System.out.println(answer);
+		Endpoint.sendString(t, answer);
+	}
+
 	public static class SPARQLHandler implements HttpHandler {
 
 		private final SPARQLExecution sparqlExecution;
@@ -614,7 +1050,26 @@ public class Endpoint {
 				// now look for a query parameter
 				final String queryParameter = getParameter(responseParts, query);
 				if(queryParameter!=null){
-					this.sparqlExecution.execute(queryParameter, formatter, t);
+					final AdmissionController admission = Endpoint.getAdmissionController();
+					try {
+						if(!admission.admit()){
+							t.getResponseHeaders().add("Content-type", "text/plain");
+							t.getResponseHeaders().add("Retry-After", "1");
+							final String answer = "Service Unavailable: too many queries, try again later";
+							System.out.println(answer);
+							Endpoint.sendString(t, 503, answer);
+							return;
+						}
+					} catch (final InterruptedException e) {
+						System.err.println(e);
+						e.printStackTrace();
+						return;
+					}
+					try {
+						this.sparqlExecution.execute(queryParameter, formatter, t);
+					} finally {
+						admission.release();
+					}
 				} else {
 					t.getResponseHeaders().add("Content-type", "text/plain");
 					final String answer = "Bad Request: query parameter missing";
@@ -677,9 +1132,22 @@ public class Endpoint {
 	 * @throws java.io.IOException if any.
 	 */
 	public static void sendString(final HttpExchange t, final String toSend) throws IOException{
-		t.sendResponseHeaders(200, toSend.length());
+		Endpoint.sendString(t, 200, toSend);
+	}
+
+	/**
+	 * <p>sendString.</p>
+	 *
+	 * @param t a {@link com.sun.net.httpserver.HttpExchange} object.
+	 * @param status the HTTP status code of the response
+	 * @param toSend a {@link java.lang.String} object.
+	 * @throws java.io.IOException if any.
+	 */
+	public static void sendString(final HttpExchange t, final int status, final String toSend) throws IOException{
+		final byte[] bytes = toSend.getBytes();
+		t.sendResponseHeaders(status, bytes.length);
 		final OutputStream os = t.getResponseBody();
-		os.write(toSend.getBytes());
+		os.write(bytes);
 		os.close();
 	}
 
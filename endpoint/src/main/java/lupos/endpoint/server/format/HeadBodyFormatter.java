@@ -532,56 +532,79 @@ public abstract class HeadBodyFormatter extends Formatter {
 		} else if(queryResult instanceof BooleanResult){
 			this.writeBooleanResult(os, ((BooleanResult) queryResult).isTrue());
 		} else {
-			this.writeStartHead(os);
+			this.writeHead(os, variables);
 			boolean firstTime = true;
-			final Iterator<Variable> it_v = variables.iterator();
-			while(it_v.hasNext()){
-				final Variable v = it_v.next();
-				if(firstTime){
-					this.writeFirstVariableInHead(os, v);
-					firstTime = false;
-				} else {
-					this.writeVariableInHead(os, v);
-				}
-			}
-			if(this.writeQueryTriples){
-				this.writeQueryTriplesHead(os);
-			}
-			this.writeEndHead(os);
-			firstTime = true;
 			final Iterator<Bindings> it = queryResult.oneTimeIterator();
 			while(it.hasNext()){
-				if(firstTime){
-					this.writeFirstStartResult(os);
-					firstTime = false;
-				} else {
-					this.writeStartResult(os);
-				}
-				final Bindings bindings = it.next();
-				boolean firstTimeBinding = true;
-				final Iterator<Variable> it_v2 = this.getVariablesToIterateOnForOneBindings(variables, bindings);
-				while(it_v2.hasNext()){
-					final Variable v = it_v2.next();
-					if(firstTimeBinding){
-						this.writeFirstStartBinding(os, v);
-						firstTimeBinding = false;
-					} else {
-						this.writeStartBinding(os, v);
-					}
+				this.writeBindings(os, variables, it.next(), firstTime);
+				firstTime = false;
+			}
+			this.writeEpilogue(os);
+		}
+	}
+
+	/**
+	 * writes the head of a result of a select query
+	 *
+	 * @param os a {@link java.io.OutputStream} object.
+	 * @param variables the variables of the query
+	 * @throws java.io.IOException if any.
+	 */
+	public void writeHead(final OutputStream os, final Collection<Variable> variables) throws IOException {
+		this.writeStartHead(os);
+		boolean firstTime = true;
+		final Iterator<Variable> it_v = variables.iterator();
+		while(it_v.hasNext()){
+			final Variable v = it_v.next();
+			if(firstTime){
+				this.writeFirstVariableInHead(os, v);
+				firstTime = false;
+			} else {
+				this.writeVariableInHead(os, v);
+			}
+		}
+		if(this.writeQueryTriples){
+			this.writeQueryTriplesHead(os);
+		}
+		this.writeEndHead(os);
+	}
 
-					this.writeLiteral(os, bindings.get(v));
+	/**
+	 * writes one result (solution) of a select query
+	 *
+	 * @param os a {@link java.io.OutputStream} object.
+	 * @param variables the variables of the query
+	 * @param bindings the result to be written
+	 * @param firstTime whether or not it is the first result
+	 * @throws java.io.IOException if any.
+	 */
+	public void writeBindings(final OutputStream os, final Collection<Variable> variables, final Bindings bindings, final boolean firstTime) throws IOException {
+		if(firstTime){
+			this.writeFirstStartResult(os);
+		} else {
+			this.writeStartResult(os);
+		}
+		boolean firstTimeBinding = true;
+		final Iterator<Variable> it_v2 = this.getVariablesToIterateOnForOneBindings(variables, bindings);
+		while(it_v2.hasNext()){
+			final Variable v = it_v2.next();
+			if(firstTimeBinding){
+				this.writeFirstStartBinding(os, v);
+				firstTimeBinding = false;
+			} else {
+				this.writeStartBinding(os, v);
+			}
 
-					this.writeEndBinding(os);
-				}
+			this.writeLiteral(os, bindings.get(v));
 
-				if(this.writeQueryTriples && bindings instanceof BindingsArrayReadTriples){
-					this.writeQueryTriples(os, bindings.getTriples());
-				}
+			this.writeEndBinding(os);
+		}
 
-				this.writeEndResult(os);
-			}
-			this.writeEpilogue(os);
+		if(this.writeQueryTriples && bindings instanceof BindingsArrayReadTriples){
+			this.writeQueryTriples(os, bindings.getTriples());
 		}
+
+		this.writeEndResult(os);
 	}
 
 	/**
@@ -0,0 +1,252 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.endpoint.server.format;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Iterator;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.queryresult.BooleanResult;
+import lupos.datastructures.queryresult.GraphResult;
+import lupos.datastructures.queryresult.ParallelIterator;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.engine.operators.application.Application;
+
+/**
+ * This application writes the results of a select query by a formatter as soon as they are pushed by the evaluator,
+ * i.e., the results are not collected before. The response is opened when the first result is available
+ * (or at the end of evaluation if there is no result).
+ * The output is buffered in a buffer of bounded size, which is flushed after the first result and whenever it is full,
+ * such that the first bytes are sent independent of the size of the result and memory consumption remains constant.
+ *
+ * Results of ask, construct and describe queries are small or must be written as a whole by the formatter,
+ * and are hence collected and written at the end of the evaluation.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public abstract class StreamingResultWriter implements Application {
+
+	/**
+	 * the default size of the buffer for the output
+	 */
+	public static int DEFAULTBUFFERSIZE = 64 * 1024;
+
+	protected final HeadBodyFormatter formatter;
+	protected final int bufferSize;
+
+	protected Application.Type type;
+	protected OutputStream os = null;
+	protected Collection<Variable> variables;
+	protected boolean firstResult = true;
+	protected long numberOfResults = 0;
+	protected GraphResult gr = null;
+	protected BooleanResult br = null;
+
+	/**
+	 * <p>Constructor for StreamingResultWriter.</p>
+	 *
+	 * @param formatter the formatter for writing the results
+	 */
+	public StreamingResultWriter(final HeadBodyFormatter formatter){
+		this(formatter, StreamingResultWriter.DEFAULTBUFFERSIZE);
+	}
+
+	/**
+	 * <p>Constructor for StreamingResultWriter.</p>
+	 *
+	 * @param formatter the formatter for writing the results
+	 * @param bufferSize the size of the buffer for the output
+	 */
+	public StreamingResultWriter(final HeadBodyFormatter formatter, final int bufferSize){
+		this.formatter = formatter;
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * This method is called to open the response before the first bytes are written.
+	 *
+	 * @param mimeType the MIME type of the response
+	 * @return the output stream to which the response is written
+	 * @throws java.io.IOException if any.
+	 */
+	protected abstract OutputStream openResponse(final String mimeType) throws IOException;
+
+	/**
+	 * <p>getVariables.</p>
+	 *
+	 * @return the variables of the query (called after the query has been compiled)
+	 */
+	protected abstract Collection<Variable> getVariables();
+
+	/** {@inheritDoc} */
+	@Override
+	public void start(final Type type) {
+		this.type = type;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void call(final QueryResult res) {
+		if(res==null){
+			return;
+		}
+		if(res instanceof GraphResult){
+			if(this.gr==null){
+				this.gr = (GraphResult) res;
+			} else {
+				this.gr.addAll((GraphResult) res);
+			}
+		} else if(res instanceof BooleanResult){
+			if(this.br==null){
+				this.br = (BooleanResult) res;
+			}
+		} else {
+			final Iterator<Bindings> it = res.oneTimeIterator();
+			try {
+				while(it.hasNext()){
+					final Bindings bindings = it.next();
+					if(this.os==null){
+						this.open(res);
+						this.variables = this.getVariables();
+						this.formatter.writeHead(this.os, this.variables);
+					}
+					this.formatter.writeBindings(this.os, this.variables, bindings, this.firstResult);
+					if(this.firstResult){
+						this.firstResult = false;
+						// the first result should be sent as soon as possible
+						this.os.flush();
+					}
+					this.numberOfResults++;
+				}
+			} catch (final IOException e) {
+				// abort the evaluation, e.g., if the client closed the connection
+				throw new UncheckedIOException("Writing the results of the query failed!", e);
+			} finally {
+				if(it instanceof ParallelIterator){
+					((ParallelIterator<Bindings>) it).close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * opens the response
+	 *
+	 * @param res the first query result (to determine the MIME type)
+	 * @throws IOException
+	 */
+	protected void open(final QueryResult res) throws IOException {
+		this.os = new BufferedOutputStream(this.openResponse(this.formatter.getMIMEType(res)), this.bufferSize);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void stop() {
+		try {
+			if(this.os!=null){
+				this.formatter.writeEpilogue(this.os);
+			} else {
+				// no streamed result => collected result or empty result
+				QueryResult res;
+				if(this.gr!=null){
+					res = this.gr;
+				} else if(this.br!=null){
+					res = this.br;
+				} else if(this.type==Application.Type.ASK){
+					res = new BooleanResult();
+				} else if(this.type==Application.Type.CONSTRUCT){
+					res = new GraphResult();
+				} else {
+					res = QueryResult.createInstance();
+				}
+				this.open(res);
+				this.formatter.writeResult(this.os, this.getVariables(), res);
+			}
+			this.os.close();
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Writing the results of the query failed!", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Collected results of construct, describe and ask queries are removed.
+	 * Results of select queries have already been written and cannot be taken back,
+	 * such that an UnsupportedOperationException is thrown in order to abort the response instead of sending wrong results.
+	 */
+	@Override
+	public void deleteResult(final QueryResult res) {
+		if(res==null){
+			return;
+		}
+		if(res instanceof GraphResult){
+			if(this.gr!=null){
+				this.gr.removeAll(res);
+			}
+		} else if(res instanceof BooleanResult){
+			if(this.br!=null){
+				this.br.removeAll(res);
+			}
+		} else if(!res.isEmpty()){
+			throw new UnsupportedOperationException("Results of a select query cannot be deleted after they have been written!");
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Collected results of construct, describe and ask queries are removed.
+	 * If results of a select query have already been written, an UnsupportedOperationException is thrown (see {@link #deleteResult(QueryResult)}).
+	 */
+	@Override
+	public void deleteResult() {
+		if(this.numberOfResults>0){
+			throw new UnsupportedOperationException("Results of a select query cannot be deleted after they have been written!");
+		}
+		if(this.gr!=null){
+			this.gr.release();
+			this.gr = null;
+		}
+		if(this.br!=null){
+			this.br.release();
+			this.br = null;
+		}
+	}
+
+	/**
+	 * <p>Getter for the field <code>numberOfResults</code>.</p>
+	 *
+	 * @return the number of written results of a select query
+	 */
+	public long getNumberOfResults() {
+		return this.numberOfResults;
+	}
+}
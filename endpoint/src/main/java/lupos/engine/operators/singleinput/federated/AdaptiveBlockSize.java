@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.engine.operators.singleinput.federated;
+
+import java.util.HashMap;
+
+/**
+ * Determines the number of bindings sent in one request to a SPARQL endpoint (i.e., the block size) by the vectored fetch-as-needed approach.
+ * The block size is adapted at runtime for each endpoint according to the observed latencies, response sizes and errors:
+ * It grows multiplicatively as long as the requests are answered faster than TARGET_LATENCY and with less than MAX_RESULTS_PER_REQUEST results,
+ * is reduced proportionally if one of these limits is exceeded and is halved if the endpoint fails to answer (e.g. because the query is too long).
+ * The observations are shared by all queries, such that succeeding queries start with the block size already adapted to the endpoint.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class AdaptiveBlockSize {
+
+	/**
+	 * whether or not the block size is adapted (otherwise FederatedQuery.MAX_BINDINGS_IN_ENDPOINT_REQUEST is used).
+	 * Note that with adaptation, the requests to an endpoint without any observations start with INITIAL_BLOCK_SIZE (50) bindings
+	 * instead of the 300 bindings of FederatedQuery.MAX_BINDINGS_IN_ENDPOINT_REQUEST.
+	 */
+	public static boolean ADAPTIVE = true;
+
+	/**
+	 * the block size for endpoints without any observations (smaller than FederatedQuery.MAX_BINDINGS_IN_ENDPOINT_REQUEST, such that a slow or restricted endpoint is not overloaded by the first requests)
+	 */
+	public static int INITIAL_BLOCK_SIZE = 50;
+
+	/**
+	 * the minimum block size
+	 */
+	public static int MIN_BLOCK_SIZE = 1;
+
+	/**
+	 * the maximum block size
+	 */
+	public static int MAX_BLOCK_SIZE = 1000;
+
+	/**
+	 * the latency in milliseconds, which a request should not exceed
+	 */
+	public static long TARGET_LATENCY = 1000;
+
+	/**
+	 * the number of results, which the response to a request should not exceed
+	 */
+	public static int MAX_RESULTS_PER_REQUEST = 10000;
+
+	/**
+	 * the maximum number of requests sent to the same endpoint at the same time
+	 */
+	public static int MAX_CONCURRENT_REQUESTS_PER_ENDPOINT = 4;
+
+	/**
+	 * the maximum number of times a failed block is split into two halves and submitted again
+	 */
+	public static int MAX_RETRIES = 2;
+
+	private final static HashMap<String, AdaptiveBlockSize> endpoints = new HashMap<String, AdaptiveBlockSize>();
+
+	private double blockSize = AdaptiveBlockSize.INITIAL_BLOCK_SIZE;
+
+	private AdaptiveBlockSize(){
+	}
+
+	/**
+	 * @param url the url of the SPARQL endpoint
+	 * @return the block size of the given endpoint
+	 */
+	public static synchronized AdaptiveBlockSize get(final String url){
+		AdaptiveBlockSize result = AdaptiveBlockSize.endpoints.get(url);
+		if(result==null){
+			result = new AdaptiveBlockSize();
+			AdaptiveBlockSize.endpoints.put(url, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Forgets the observations about all endpoints
+	 */
+	public static synchronized void clear(){
+		AdaptiveBlockSize.endpoints.clear();
+	}
+
+	/**
+	 * @return the number of bindings to be sent in the next request to the endpoint
+	 */
+	public synchronized int getBlockSize(){
+		if(!AdaptiveBlockSize.ADAPTIVE){
+			return FederatedQuery.MAX_BINDINGS_IN_ENDPOINT_REQUEST;
+		}
+		return (int) this.blockSize;
+	}
+
+	/**
+	 * Adapts the block size after a successful request
+	 *
+	 * @param bindings the number of bindings sent in the request
+	 * @param latency the latency of the request in milliseconds
+	 * @param results the number of results of the request
+	 */
+	public synchronized void success(final int bindings, final long latency, final int results){
+		final double factor = Math.min((double) AdaptiveBlockSize.TARGET_LATENCY / Math.max(1, latency), (double) AdaptiveBlockSize.MAX_RESULTS_PER_REQUEST / Math.max(1, results));
+		if(factor<1){
+			// a limit is exceeded => reduce the block size such that the limits will be met
+			this.setBlockSize(Math.min(this.blockSize, bindings * factor));
+		} else if(bindings>=(int) this.blockSize){
+			// grow only if a block with full size has been sent (and not e.g. the rest of the bindings)
+			this.setBlockSize(Math.max(this.blockSize + 1, this.blockSize * Math.min(2, factor)));
+		}
+	}
+
+	/**
+	 * Adapts the block size after a failed request
+	 *
+	 * @param bindings the number of bindings sent in the request
+	 */
+	public synchronized void failure(final int bindings){
+		this.setBlockSize(Math.min(this.blockSize, bindings) / 2);
+	}
+
+	private void setBlockSize(final double blockSize){
+		this.blockSize = Math.max(AdaptiveBlockSize.MIN_BLOCK_SIZE, Math.min(AdaptiveBlockSize.MAX_BLOCK_SIZE, blockSize));
+	}
+}
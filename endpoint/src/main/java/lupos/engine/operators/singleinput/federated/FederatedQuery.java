@@ -62,6 +62,11 @@ public abstract class FederatedQuery  extends SingleInputOperator {
 
 	public static final int MAX_BINDINGS_IN_ENDPOINT_REQUEST = 300;
 
+	/**
+	 * the maximum number of requests an operator submits to the endpoints in advance, i.e., before the result of the first of these requests is consumed
+	 */
+	public static int MAX_PIPELINED_REQUESTS = 8;
+
 	/** {@inheritDoc} */
 	@Override
 	public Message preProcessMessage(final BindingsFactoryMessage msg){
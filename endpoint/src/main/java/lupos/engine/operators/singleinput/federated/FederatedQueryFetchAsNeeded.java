@@ -25,6 +25,8 @@ package lupos.engine.operators.singleinput.federated;
 
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Future;
 
 import lupos.datastructures.bindings.Bindings;
 import lupos.datastructures.items.Variable;
@@ -34,6 +36,7 @@ import lupos.datastructures.items.literal.URILiteral;
 import lupos.datastructures.queryresult.ParallelIterator;
 import lupos.datastructures.queryresult.QueryResult;
 import lupos.endpoint.client.Client;
+import lupos.misc.Tuple;
 import lupos.misc.util.ImmutableIterator;
 import lupos.optimizations.sparql2core_sparql.SPARQLParserVisitorImplementationDumper;
 import lupos.sparql1_1.ASTSelectQuery;
@@ -56,6 +59,10 @@ public class FederatedQueryFetchAsNeeded extends FederatedQueryWithoutSucceeding
 		return QueryResult.createInstance(new ImmutableIterator<Bindings>(){
 
 			private final Iterator<Bindings> bindingsIterator = bindings.iterator();
+			/**
+			 * the requests already submitted to the endpoints (in the order of the bindings), the results of which are not consumed yet
+			 */
+			private final LinkedList<Tuple<Future<QueryResult>, Bindings>> pipeline = new LinkedList<Tuple<Future<QueryResult>, Bindings>>();
 			private Iterator<Bindings> currentIteratorQueryResult = this.nextIteratorQueryResult();
 
 			@Override
@@ -80,36 +87,65 @@ public class FederatedQueryFetchAsNeeded extends FederatedQueryWithoutSucceeding
 					return null;
 				}
 			}
-			private Iterator<Bindings> nextIteratorQueryResult(){
-				try {
-					if(!this.bindingsIterator.hasNext()){
-						return null;
-					}
+
+			/**
+			 * submits the requests for the next bindings such that up to MAX_PIPELINED_REQUESTS requests are on the way
+			 */
+			private void fillPipeline(){
+				while(this.pipeline.size()<FederatedQuery.MAX_PIPELINED_REQUESTS && this.bindingsIterator.hasNext()){
 					final Bindings bindingsTemp = this.bindingsIterator.next();
 					final String fQuery = FederatedQueryFetchAsNeeded.this.toStringQuery(bindingsTemp);
 					if (!FederatedQueryFetchAsNeeded.this.endpoint.isVariable()) {
-						return new IteratorQueryResultAndOneBindings(Client.submitQuery(((URILiteral)FederatedQueryFetchAsNeeded.this.endpoint).getString(), fQuery, FederatedQueryFetchAsNeeded.this.bindingsFactory), bindingsTemp);
+						this.pipeline.add(new Tuple<Future<QueryResult>, Bindings>(FederatedQueryFetchAsNeeded.this.submitQueryAsync(((URILiteral)FederatedQueryFetchAsNeeded.this.endpoint).getString(), fQuery), bindingsTemp));
 					} else {
 						Literal endpointURI = bindingsTemp.get((Variable) FederatedQueryFetchAsNeeded.this.endpoint);
 						if (endpointURI instanceof LazyLiteral) {
 							endpointURI = ((LazyLiteral) endpointURI).getLiteral();
 						}
 						if (endpointURI instanceof URILiteral) {
-							return new IteratorQueryResultAndOneBindings(Client.submitQuery(((URILiteral) endpointURI).getString(), fQuery, FederatedQueryFetchAsNeeded.this.bindingsFactory), bindingsTemp);
+							this.pipeline.add(new Tuple<Future<QueryResult>, Bindings>(FederatedQueryFetchAsNeeded.this.submitQueryAsync(((URILiteral) endpointURI).getString(), fQuery), bindingsTemp));
 						} else {
 							// ignore or error message?
 						}
 					}
-				} catch(final IOException e){
-					System.err.println(e);
-					e.printStackTrace();
 				}
-				// in case of error try next one:
-				return this.nextIteratorQueryResult();
+			}
+
+			private Iterator<Bindings> nextIteratorQueryResult(){
+				while(true){
+					this.fillPipeline();
+					if(this.pipeline.isEmpty()){
+						return null;
+					}
+					final Tuple<Future<QueryResult>, Bindings> request = this.pipeline.removeFirst();
+					// already submit the request for the next bindings before waiting for the current result
+					this.fillPipeline();
+					try {
+						final QueryResult queryResult = Client.getQueryResult(request.getFirst());
+						if(queryResult!=null){
+							return new IteratorQueryResultAndOneBindings(queryResult, request.getSecond());
+						}
+					} catch(final IOException e){
+						System.err.println(e);
+						e.printStackTrace();
+					}
+					// in case of error try next one
+				}
 			}
 		});
 	}
 
+	/**
+	 * Submits a query asynchronously to a SPARQL endpoint
+	 *
+	 * @param url the url of the SPARQL endpoint
+	 * @param fQuery the query to be submitted
+	 * @return the future of the query result
+	 */
+	public Future<QueryResult> submitQueryAsync(final String url, final String fQuery) { // to be overwritten by variant with using cache...
+		return Client.submitQueryAsync(url, fQuery, this.bindingsFactory);
+	}
+
 	/**
 	 * <p>toStringQuery.</p>
 	 *
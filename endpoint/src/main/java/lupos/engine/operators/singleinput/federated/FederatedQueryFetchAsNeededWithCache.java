@@ -23,23 +23,20 @@
  */
 package lupos.engine.operators.singleinput.federated;
 
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.concurrent.Future;
 
-import lupos.datastructures.bindings.Bindings;
-import lupos.datastructures.items.Variable;
-import lupos.datastructures.items.literal.LazyLiteral;
-import lupos.datastructures.items.literal.Literal;
-import lupos.datastructures.items.literal.URILiteral;
 import lupos.datastructures.queryresult.QueryResult;
-import lupos.endpoint.client.Client;
-import lupos.misc.util.ImmutableIterator;
+import lupos.endpoint.client.ServiceResultCache;
 import lupos.sparql1_1.Node;
-public class FederatedQueryFetchAsNeededWithCache extends FederatedQueryFetchAsNeeded {
 
-	public HashMap<Bindings, QueryResult> cache = new HashMap<Bindings, QueryResult>();
+/**
+ * Variant of the fetch-as-needed approach, which retrieves the results of already submitted subqueries
+ * from the process-wide {@link lupos.endpoint.client.ServiceResultCache} (shared by all queries).
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class FederatedQueryFetchAsNeededWithCache extends FederatedQueryFetchAsNeeded {
 
 	/**
 	 * <p>Constructor for FederatedQueryFetchAsNeededWithCache.</p>
@@ -52,84 +49,7 @@ public class FederatedQueryFetchAsNeededWithCache extends FederatedQueryFetchAsN
 
 	/** {@inheritDoc} */
 	@Override
-	public QueryResult process(final QueryResult bindings, final int operandID) {
-		return QueryResult.createInstance(new ImmutableIterator<Bindings>(){
-
-			private final Iterator<Bindings> bindingsIterator = bindings.iterator();
-			private Iterator<Bindings> currentIteratorQueryResult = this.nextIteratorQueryResult();
-
-			@Override
-			public boolean hasNext() {
-				if(this.currentIteratorQueryResult==null){
-					return false;
-				}
-				while(!this.currentIteratorQueryResult.hasNext()){
-					this.currentIteratorQueryResult = this.nextIteratorQueryResult();
-					if(this.currentIteratorQueryResult==null){
-						return false;
-					}
-				}
-				return true;
-			}
-
-			@Override
-			public Bindings next() {
-				if(this.hasNext()){
-					return this.currentIteratorQueryResult.next();
-				} else {
-					return null;
-				}
-			}
-
-			private Iterator<Bindings> nextIteratorQueryResult(){
-				try {
-					if(!this.bindingsIterator.hasNext()){
-						return null;
-					}
-					final Bindings bindingsTemp = this.bindingsIterator.next();
-
-					final Bindings bindingsKey = bindingsTemp.clone();
-					final Set<Variable> otherVars = bindingsKey.getVariableSet();
-					otherVars.removeAll(FederatedQueryFetchAsNeededWithCache.this.variablesInServiceCall);
-					otherVars.remove(FederatedQueryFetchAsNeededWithCache.this.endpoint);
-					for(final Variable var: otherVars){
-						bindingsKey.add(var, null);
-					}
-
-					final QueryResult cached = FederatedQueryFetchAsNeededWithCache.this.cache.get(bindingsKey);
-					if(cached!=null){
-						return cached.iterator();
-					}
-
-					final String fQuery = FederatedQueryFetchAsNeededWithCache.this.toStringQuery(bindingsTemp);
-					if (!FederatedQueryFetchAsNeededWithCache.this.endpoint.isVariable()) {
-						final QueryResult queryResult = QueryResult.createInstance(new IteratorQueryResultAndOneBindings(Client.submitQuery(((URILiteral)FederatedQueryFetchAsNeededWithCache.this.endpoint).getString(), fQuery, FederatedQueryFetchAsNeededWithCache.this.bindingsFactory), bindingsTemp));
-						queryResult.materialize();
-						FederatedQueryFetchAsNeededWithCache.this.cache.put(bindingsKey, queryResult);
-						return queryResult.iterator();
-					} else {
-						Literal endpointURI = bindingsTemp.get((Variable) FederatedQueryFetchAsNeededWithCache.this.endpoint);
-						if (endpointURI instanceof LazyLiteral) {
-							endpointURI = ((LazyLiteral) endpointURI).getLiteral();
-						}
-						if (endpointURI instanceof URILiteral) {
-							final QueryResult queryResult = QueryResult.createInstance(new IteratorQueryResultAndOneBindings(Client.submitQuery(((URILiteral) endpointURI).getString(), fQuery, FederatedQueryFetchAsNeededWithCache.this.bindingsFactory), bindingsTemp));
-							queryResult.materialize();
-							FederatedQueryFetchAsNeededWithCache.this.cache.put(bindingsKey, queryResult);
-							return queryResult.iterator();
-						} else {
-							// ignore or error message?
-						}
-					}
-				} catch(final IOException e){
-					System.err.println(e);
-					e.printStackTrace();
-				}
-				// in case of error try next one:
-				return this.nextIteratorQueryResult();
-			}
-		});
+	public Future<QueryResult> submitQueryAsync(final String url, final String fQuery) {
+		return ServiceResultCache.submitQueryAsync(url, fQuery, this.bindingsFactory);
 	}
-
-
 }
@@ -23,8 +23,11 @@
  */
 package lupos.engine.operators.singleinput.federated;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Future;
 
 import lupos.datastructures.bindings.Bindings;
 import lupos.datastructures.items.Variable;
@@ -32,6 +35,7 @@ import lupos.datastructures.items.literal.Literal;
 import lupos.datastructures.queryresult.ParallelIteratorMultipleQueryResults;
 import lupos.datastructures.queryresult.QueryResult;
 import lupos.datastructures.queryresult.QueryResult.TYPE;
+import lupos.endpoint.client.Client;
 import lupos.optimizations.sparql2core_sparql.SPARQLParserVisitorImplementationDumper;
 import lupos.sparql1_1.Node;
 public class FederatedQueryJoinAtEndpoint extends FederatedQueryWithoutSucceedingJoin {
@@ -50,6 +54,8 @@ public class FederatedQueryJoinAtEndpoint extends FederatedQueryWithoutSucceedin
 	public QueryResult process(final QueryResult queryResult, final int operandID) {
 		final ParallelIteratorMultipleQueryResults pimqr = new ParallelIteratorMultipleQueryResults();
 		final Iterator<Bindings> it = queryResult.oneTimeIterator();
+		// first submit the requests for all blocks of bindings such that they are processed concurrently...
+		final LinkedList<Future<QueryResult>> requests = new LinkedList<Future<QueryResult>>();
 		while(it.hasNext()){
 			final QueryResult qr = QueryResult.createInstance(TYPE.MEMORY);
 			int i=0;
@@ -57,9 +63,20 @@ public class FederatedQueryJoinAtEndpoint extends FederatedQueryWithoutSucceedin
 				qr.add(it.next());
 				i++;
 			}
-			final QueryResult resultOfEndpoint = FederatedQueryWithSucceedingJoin.process(qr, this.endpoint, this.toStringQuery(qr), this.bindingsFactory);
-			resultOfEndpoint.materialize(); // otherwise it may be blocking!
-			pimqr.addQueryResult(resultOfEndpoint);
+			requests.add(FederatedQueryWithSucceedingJoin.processAsync(qr, this.endpoint, this.toStringQuery(qr), this.bindingsFactory));
+		}
+		// ... and then collect their results
+		for(final Future<QueryResult> request: requests){
+			try {
+				final QueryResult resultOfEndpoint = Client.getQueryResult(request);
+				if(resultOfEndpoint!=null){
+					resultOfEndpoint.materialize(); // otherwise it may be blocking!
+					pimqr.addQueryResult(resultOfEndpoint);
+				}
+			} catch (final IOException e) {
+				System.err.println(e);
+				e.printStackTrace();
+			}
 		}
 		return QueryResult.createInstance(pimqr);
 	}
@@ -26,8 +26,11 @@ package lupos.engine.operators.singleinput.federated;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import lupos.datastructures.bindings.Bindings;
 import lupos.datastructures.bindings.BindingsFactory;
@@ -56,87 +59,150 @@ public class FederatedQueryVectoredFetchAsNeeded extends FederatedQueryWithoutSu
 		super(federatedQuery);
 	}
 
+	/**
+	 * the factory for the bindings retrieved from the endpoints, the variables of which are renamed according to the index of the bindings in the block
+	 */
+	protected final static BindingsFactory bindingsMapFactory = new BindingsFactory(){
+		@Override
+		public Bindings createInstance(){
+			return new BindingsMap();
+		}
+	};
+
 	@Override
 	public QueryResult process(final QueryResult queryresult, final int operandID) {
 		final ParallelIteratorMultipleQueryResults pimqr = new ParallelIteratorMultipleQueryResults();
+		// the bindings collected for the next request to each endpoint
+		final HashMap<URILiteral, QueryResult> blocks = new HashMap<URILiteral, QueryResult>();
+		// the requests submitted to each endpoint, the results of which are not joined yet
+		final HashMap<URILiteral, LinkedList<VectoredRequest>> requests = new HashMap<URILiteral, LinkedList<VectoredRequest>>();
 		final Iterator<Bindings> it = queryresult.oneTimeIterator();
 		while(it.hasNext()){
-			final QueryResult qr = QueryResult.createInstance(TYPE.MEMORY);
-			int i=0;
-			while(i<FederatedQuery.MAX_BINDINGS_IN_ENDPOINT_REQUEST && it.hasNext()){
-				qr.add(it.next());
-				i++;
+			final Bindings bindings = it.next();
+			final URILiteral endpointURI = this.getEndpointURI(bindings);
+			if(endpointURI!=null){
+				QueryResult block = blocks.get(endpointURI);
+				if(block==null){
+					block = QueryResult.createInstance(TYPE.MEMORY);
+					blocks.put(endpointURI, block);
+				}
+				block.add(bindings);
+				if(block.size()>=AdaptiveBlockSize.get(endpointURI.getString()).getBlockSize()){
+					blocks.remove(endpointURI);
+					this.dispatch(endpointURI, block, 0, requests, pimqr);
+				}
+			} else {
+				// ignore or error message?
+			}
+		}
+		// submit the remaining bindings...
+		for(final Entry<URILiteral, QueryResult> entry: blocks.entrySet()){
+			this.dispatch(entry.getKey(), entry.getValue(), 0, requests, pimqr);
+		}
+		// ... and collect the results of all requests
+		for(final LinkedList<VectoredRequest> requestsToOneSPARQLEndpoint: requests.values()){
+			while(!requestsToOneSPARQLEndpoint.isEmpty()){
+				this.collect(requestsToOneSPARQLEndpoint.removeFirst(), requests, pimqr);
 			}
-			pimqr.addQueryResult(this.process(qr));
 		}
 		return QueryResult.createInstance(pimqr);
 	}
 
-	private QueryResult process(final QueryResult queryresult) {
-		if(queryresult.isEmpty()){
-			return null;
-		}
-
+	private URILiteral getEndpointURI(final Bindings bindings){
 		if (!this.endpoint.isVariable()) {
-			try {
-				return this.getQueryResultFromEndpoint((URILiteral)FederatedQueryVectoredFetchAsNeeded.this.endpoint, queryresult);
-			} catch (final IOException e) {
-				System.err.println(e);
-				e.printStackTrace();
-				return null;
-			}
-		} else {
+			return (URILiteral) this.endpoint;
+		}
+		Literal endpointURILit = bindings.get((Variable) this.endpoint);
+		if (endpointURILit instanceof LazyLiteral) {
+			endpointURILit = ((LazyLiteral) endpointURILit).getLiteral();
+		}
+		if (endpointURILit instanceof URILiteral) {
+			return (URILiteral) endpointURILit;
+		}
+		return null;
+	}
 
-			// first collect the requests to one sparql endpoint
-			final HashMap<URILiteral, QueryResult> requestToOneSPARQLEndpoint = new HashMap<URILiteral, QueryResult>();
-			final Iterator<Bindings> it = queryresult.iterator();
-			while(it.hasNext()){
-				final Bindings bindings = it.next();
-				Literal endpointURILit = bindings.get((Variable) FederatedQueryVectoredFetchAsNeeded.this.endpoint);
-				if (endpointURILit instanceof LazyLiteral) {
-					endpointURILit = ((LazyLiteral) endpointURILit).getLiteral();
-				}
-				if (endpointURILit instanceof URILiteral) {
-					final URILiteral endpointURI = (URILiteral) endpointURILit;
-					QueryResult qr = requestToOneSPARQLEndpoint.get(endpointURI);
-					if(qr==null){
-						qr = QueryResult.createInstance();
+	/**
+	 * Submits a request for a block of bindings to an endpoint.
+	 * If already MAX_CONCURRENT_REQUESTS_PER_ENDPOINT requests to this endpoint are on the way, the result of the oldest one is collected before.
+	 */
+	private void dispatch(final URILiteral endpointURI, final QueryResult block, final int retries, final HashMap<URILiteral, LinkedList<VectoredRequest>> requests, final ParallelIteratorMultipleQueryResults pimqr){
+		LinkedList<VectoredRequest> requestsToOneSPARQLEndpoint = requests.get(endpointURI);
+		if(requestsToOneSPARQLEndpoint==null){
+			requestsToOneSPARQLEndpoint = new LinkedList<VectoredRequest>();
+			requests.put(endpointURI, requestsToOneSPARQLEndpoint);
+		}
+		while(requestsToOneSPARQLEndpoint.size()>=Math.max(1, AdaptiveBlockSize.MAX_CONCURRENT_REQUESTS_PER_ENDPOINT)){
+			this.collect(requestsToOneSPARQLEndpoint.removeFirst(), requests, pimqr);
+		}
+		final HashMap<Integer, Integer> duplicates = this.getDuplicates(block);
+		final String query = this.toStringQuery(block, duplicates);
+		final String url = endpointURI.getString();
+		final int bindings = block.size();
+		final Future<QueryResult> future = Client.submitAsync(new Callable<QueryResult>(){
+			@Override
+			public QueryResult call() throws Exception {
+				final AdaptiveBlockSize blockSize = AdaptiveBlockSize.get(url);
+				final long start = System.currentTimeMillis();
+				try {
+					final QueryResult result = FederatedQueryVectoredFetchAsNeeded.this.submitQuery(url, query, FederatedQueryVectoredFetchAsNeeded.bindingsMapFactory);
+					if(result!=null){
+						result.materialize();
 					}
-					qr.add(bindings);
-					requestToOneSPARQLEndpoint.put(endpointURI, qr);
-				} else {
-					// ignore or error message?
+					blockSize.success(bindings, System.currentTimeMillis() - start, (result==null)? 0 : result.size());
+					return result;
+				} catch(final IOException | RuntimeException e){
+					blockSize.failure(bindings);
+					throw e;
 				}
 			}
-			// for each sparql endpoint submit query...
-			final ParallelIteratorMultipleQueryResults pimqr = new ParallelIteratorMultipleQueryResults();
-			for(final Entry<URILiteral, QueryResult> entry: requestToOneSPARQLEndpoint.entrySet()){
-				try {
-					pimqr.addQueryResult(this.getQueryResultFromEndpoint(entry.getKey(), entry.getValue()));
-				} catch (final IOException e) {
-					System.err.println(e);
-					e.printStackTrace();
+		});
+		requestsToOneSPARQLEndpoint.add(new VectoredRequest(endpointURI, block, duplicates, retries, future));
+	}
+
+	/**
+	 * Waits for the result of a request and joins it with the block of bindings.
+	 * If the request failed, the block is split into two halves, which are submitted again.
+	 */
+	private void collect(final VectoredRequest request, final HashMap<URILiteral, LinkedList<VectoredRequest>> requests, final ParallelIteratorMultipleQueryResults pimqr){
+		try {
+			final QueryResult resultFromEndpoint = Client.getQueryResult(request.future);
+			pimqr.addQueryResult(this.joinWithResultFromEndpoint(request.block, request.duplicates, resultFromEndpoint));
+		} catch (final IOException | RuntimeException e) {
+			final int size = request.block.size();
+			if(size>1 && request.retries<AdaptiveBlockSize.MAX_RETRIES){
+				// maybe the query is too long for the endpoint => try again with smaller blocks
+				final QueryResult firstHalf = QueryResult.createInstance(TYPE.MEMORY);
+				final QueryResult secondHalf = QueryResult.createInstance(TYPE.MEMORY);
+				final Iterator<Bindings> it = request.block.iterator();
+				for(int i=0; it.hasNext(); i++){
+					((i<size/2)? firstHalf : secondHalf).add(it.next());
 				}
+				this.dispatch(request.endpointURI, firstHalf, request.retries + 1, requests, pimqr);
+				this.dispatch(request.endpointURI, secondHalf, request.retries + 1, requests, pimqr);
+			} else {
+				System.err.println(e);
+				e.printStackTrace();
 			}
-			return QueryResult.createInstance(pimqr);
 		}
 	}
 
-	public QueryResult getQueryResultFromEndpoint(final URILiteral endpointURI, final QueryResult queryresult) throws IOException{
+	/**
+	 * Joins the bindings of a block with the result of the endpoint for this block
+	 *
+	 * @param queryresult the block of bindings
+	 * @param duplicates the indices of bindings, which have not been sent to the endpoint, mapped to the indices of the bindings with the same values for the variables of the service call
+	 * @param resultFromEndpoint the result of the endpoint
+	 * @return the joined result
+	 */
+	public QueryResult joinWithResultFromEndpoint(final QueryResult queryresult, final HashMap<Integer, Integer> duplicates, final QueryResult resultFromEndpoint){
 		final QueryResult result = QueryResult.createInstance();
-
-		final Class<? extends Bindings> iBindingsInstanceClass = BindingsMap.class;
-		Bindings.instanceClass = BindingsMap.class;
-		final BindingsFactory iBindingsFactory = BindingsFactory.createBindingsFactory();
-
-		final QueryResult resultFromEndpoint = Client.submitQuery(endpointURI.getString(), this.toStringQuery(queryresult), iBindingsFactory);
+		if(resultFromEndpoint==null){
+			return result;
+		}
 		// prepare retrieved result to quickly access the result concerning the index
 		final HashMap<Integer, QueryResult> mapBindingsToIndex = new HashMap<Integer, QueryResult>();
 		final Iterator<Bindings> resultFromEndpoint_it = resultFromEndpoint.iterator();
-
-		// Because iterator() and not oneTimeItreator() is used, all bindings should already be created...
-		Bindings.instanceClass = iBindingsInstanceClass;
-
 		while(resultFromEndpoint_it.hasNext()){
 			final Bindings bindingsFromEndpoint = resultFromEndpoint_it.next();
 			final Set<Variable> vs = bindingsFromEndpoint.getVariableSet();
@@ -156,15 +222,35 @@ public class FederatedQueryVectoredFetchAsNeeded extends FederatedQueryWithoutSu
 		int index = 0;
 		while(it.hasNext()){
 			final Bindings bindings = it.next();
-			final QueryResult qrToJoin = this.getQueryResultToJoin(mapBindingsToIndex, index);
+			final Integer alternativeIndex = (duplicates==null)? null : duplicates.get(index);
+			final QueryResult qrToJoin = mapBindingsToIndex.get((alternativeIndex==null)? index : alternativeIndex);
 			FederatedQueryVectoredFetchAsNeeded.joinBindingsWithQueryResult(result, bindings, qrToJoin);
 			index++;
 		}
 		return result;
 	}
 
-	public QueryResult getQueryResultToJoin(final HashMap<Integer, QueryResult> mapBindingsToIndex, final int index){ // to be overwritten by variant with using cache...
-		return mapBindingsToIndex.get(index);
+	/**
+	 * Submits a query to a SPARQL endpoint
+	 *
+	 * @param url the url of the SPARQL endpoint
+	 * @param query the query to be submitted
+	 * @param iBindingsFactory the factory for creating the bindings of the query result
+	 * @return the query result
+	 * @throws java.io.IOException if any.
+	 */
+	public QueryResult submitQuery(final String url, final String query, final BindingsFactory iBindingsFactory) throws IOException { // to be overwritten by variant with using cache...
+		return Client.submitQuery(url, query, iBindingsFactory);
+	}
+
+	/**
+	 * Determines the bindings of a block, which need not to be sent to the endpoint
+	 *
+	 * @param queryresult the block of bindings
+	 * @return the indices of bindings, which need not to be sent to the endpoint, mapped to the indices of the bindings the result of which can be used instead (or null if all bindings are sent)
+	 */
+	public HashMap<Integer, Integer> getDuplicates(final QueryResult queryresult){ // to be overwritten by the variant with using cache...
+		return null;
 	}
 
 	public Bindings removeIndex(final Bindings bindings, final int index){
@@ -194,12 +280,23 @@ public class FederatedQueryVectoredFetchAsNeeded extends FederatedQueryWithoutSu
 	 * @return a {@link java.lang.String} object.
 	 */
 	public String toStringQuery(final QueryResult queryresult) {
+		return this.toStringQuery(queryresult, this.getDuplicates(queryresult));
+	}
+
+	/**
+	 * <p>toStringQuery.</p>
+	 *
+	 * @param queryresult contains the query result with which the result needs to be joined.
+	 * @param duplicates the indices of the bindings not to be considered (as determined by {@link #getDuplicates(QueryResult)})
+	 * @return a {@link java.lang.String} object.
+	 */
+	public String toStringQuery(final QueryResult queryresult, final HashMap<Integer, Integer> duplicates) {
 		final StringBuilder query = new StringBuilder();
 		final Iterator<Bindings> it = queryresult.iterator();
 		int index = 0;
 		while(it.hasNext()){
 			final Bindings bindings = it.next();
-			if(this.bindingsToBeConsidered(bindings, index)){
+			if(duplicates==null || !duplicates.containsKey(index)){
 				final SPARQLParserVisitorImplementationDumper dumper = new VectoredFetchAsNeededDumper(bindings, index);
 				if(query.length()>0){
 					query.append("\nUNION\n");
@@ -213,8 +310,23 @@ public class FederatedQueryVectoredFetchAsNeeded extends FederatedQueryWithoutSu
 		return query.toString();
 	}
 
-	public boolean bindingsToBeConsidered(final Bindings bindings, final int index){ // to be overwritten by the variant with using cache...
-		return true;
+	/**
+	 * A request submitted to an endpoint for a block of bindings
+	 */
+	private static class VectoredRequest {
+		private final URILiteral endpointURI;
+		private final QueryResult block;
+		private final HashMap<Integer, Integer> duplicates;
+		private final int retries;
+		private final Future<QueryResult> future;
+
+		public VectoredRequest(final URILiteral endpointURI, final QueryResult block, final HashMap<Integer, Integer> duplicates, final int retries, final Future<QueryResult> future){
+			this.endpointURI = endpointURI;
+			this.block = block;
+			this.duplicates = duplicates;
+			this.retries = retries;
+			this.future = future;
+		}
 	}
 
 	public static class VectoredFetchAsNeededDumper extends FetchAsNeededDumper {
@@ -25,17 +25,24 @@ package lupos.engine.operators.singleinput.federated;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Iterator;
 
 import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsFactory;
 import lupos.datastructures.items.Variable;
-import lupos.datastructures.items.literal.URILiteral;
 import lupos.datastructures.queryresult.QueryResult;
+import lupos.endpoint.client.ServiceResultCache;
 import lupos.sparql1_1.Node;
 
+/**
+ * Variant of the vectored fetch-as-needed approach, which asks the endpoint only once for bindings occurring several times in the same block
+ * and retrieves the results of already submitted subqueries from the process-wide {@link lupos.endpoint.client.ServiceResultCache} (shared by all queries).
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
 public class FederatedQueryVectoredFetchAsNeededWithCache extends FederatedQueryVectoredFetchAsNeeded {
 
-	protected HashMap<Integer, Integer> cachedResults = new HashMap<Integer, Integer>();
-	protected HashMap<Bindings, Integer> previousBindings = new HashMap<Bindings, Integer>();
 	/**
 	 * <p>Constructor for FederatedQueryFetchAsNeeded.</p>
 	 *
@@ -46,45 +53,30 @@ public class FederatedQueryVectoredFetchAsNeededWithCache extends FederatedQuery
 	}
 
 	@Override
-	public QueryResult getQueryResultFromEndpoint(final URILiteral endpointURI, final QueryResult queryresult) throws IOException{
-		final QueryResult result = super.getQueryResultFromEndpoint(endpointURI, queryresult);
-		this.cachedResults.clear();
-		return result;
+	public QueryResult submitQuery(final String url, final String query, final BindingsFactory iBindingsFactory) throws IOException {
+		return ServiceResultCache.submitQuery(url, query, iBindingsFactory);
 	}
 
 	@Override
-	public QueryResult getQueryResultToJoin(final HashMap<Integer, QueryResult> mapBindingsToIndex, final int index){
-		QueryResult result = mapBindingsToIndex.get(index);
-		if(result==null){
-			final Integer alternativeIndex = this.cachedResults.get(index);
-			if(alternativeIndex != null){
-				result = mapBindingsToIndex.get(alternativeIndex);
+	public HashMap<Integer, Integer> getDuplicates(final QueryResult queryresult){
+		final HashMap<Integer, Integer> duplicates = new HashMap<Integer, Integer>();
+		final HashMap<Bindings, Integer> previousBindings = new HashMap<Bindings, Integer>();
+		final Iterator<Bindings> it = queryresult.iterator();
+		int index = 0;
+		while(it.hasNext()){
+			final Bindings bindings = it.next();
+			final Bindings keyBindings = this.bindingsFactory.createInstance();
+			for(final Variable v: this.variablesInServiceCall){
+				keyBindings.add(v, bindings.get(v));
 			}
+			final Integer previousIndex = previousBindings.get(keyBindings);
+			if(previousIndex == null){
+				previousBindings.put(keyBindings, index);
+			} else {
+				duplicates.put(index, previousIndex);
+			}
+			index++;
 		}
-		return result;
-	}
-
-	@Override
-	public String toStringQuery(final QueryResult queryresult) {
-		final String result = super.toStringQuery(queryresult);
-		this.previousBindings.clear();
-		return result;
-	}
-
-
-	@Override
-	public boolean bindingsToBeConsidered(final Bindings bindings, final int index){
-		final Bindings keyBindings = this.bindingsFactory.createInstance();
-		for(final Variable v: this.variablesInServiceCall){
-			keyBindings.add(v, bindings.get(v));
-		}
-		final Integer previousIndex = this.previousBindings.get(keyBindings);
-		if(previousIndex == null){
-			this.previousBindings.put(keyBindings, index);
-			return true;
-		} else {
-			this.cachedResults.put(index, previousIndex);
-			return false;
-		}
+		return duplicates;
 	}
 }
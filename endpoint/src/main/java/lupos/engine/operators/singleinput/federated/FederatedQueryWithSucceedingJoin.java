@@ -26,6 +26,9 @@ package lupos.engine.operators.singleinput.federated;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 
 import lupos.datastructures.bindings.Bindings;
 import lupos.datastructures.bindings.BindingsFactory;
@@ -41,6 +44,7 @@ import lupos.datastructures.queryresult.QueryResult.TYPE;
 import lupos.endpoint.client.Client;
 import lupos.engine.operators.messages.BoundVariablesMessage;
 import lupos.engine.operators.messages.Message;
+import lupos.misc.Tuple;
 import lupos.sparql1_1.Node;
 
 /**
@@ -77,6 +81,8 @@ public abstract class FederatedQueryWithSucceedingJoin extends FederatedQuery {
 	public QueryResult process(final QueryResult bindings, final int operandID) {
 		final ParallelIteratorMultipleQueryResults pimqr = new ParallelIteratorMultipleQueryResults();
 		final Iterator<Bindings> it = bindings.oneTimeIterator();
+		// first submit the requests for all blocks of bindings such that they are processed concurrently...
+		final LinkedList<Future<QueryResult>> requests = new LinkedList<Future<QueryResult>>();
 		while(it.hasNext()){
 			final QueryResult qr = QueryResult.createInstance(TYPE.MEMORY);
 			int i=0;
@@ -84,13 +90,42 @@ public abstract class FederatedQueryWithSucceedingJoin extends FederatedQuery {
 				qr.add(it.next());
 				i++;
 			}
-			final QueryResult resultOfEndpoint = FederatedQueryWithSucceedingJoin.process(qr, this.endpoint, this.toStringQuery(qr), this.bindingsFactory);
-			resultOfEndpoint.materialize(); // otherwise it may be blocking!
-			pimqr.addQueryResult(resultOfEndpoint);
+			requests.add(FederatedQueryWithSucceedingJoin.processAsync(qr, this.endpoint, this.toStringQuery(qr), this.bindingsFactory));
+		}
+		// ... and then collect their results
+		for(final Future<QueryResult> request: requests){
+			try {
+				final QueryResult resultOfEndpoint = Client.getQueryResult(request);
+				if(resultOfEndpoint!=null){
+					resultOfEndpoint.materialize(); // otherwise it may be blocking!
+					pimqr.addQueryResult(resultOfEndpoint);
+				}
+			} catch (final IOException e) {
+				System.err.println(e);
+				e.printStackTrace();
+			}
 		}
 		return QueryResult.createInstance(pimqr);
 	}
 
+	/**
+	 * Submits the request to the endpoint asynchronously, such that several requests can be pipelined.
+	 *
+	 * @param bindings a {@link lupos.datastructures.queryresult.QueryResult} object.
+	 * @param endpoint a {@link lupos.datastructures.items.Item} object.
+	 * @param fQuery a {@link java.lang.String} object.
+	 * @param bindingsFactory a {@link lupos.datastructures.bindings.BindingsFactory} object.
+	 * @return the future of the result of the endpoint (which is null in case of errors)
+	 */
+	public static Future<QueryResult> processAsync(final QueryResult bindings, final Item endpoint, final String fQuery, final BindingsFactory bindingsFactory){
+		if (!endpoint.isVariable()) {
+			return Client.submitQueryAsync(((URILiteral)endpoint).getString(), fQuery, bindingsFactory);
+		} else {
+			// the requests to the different endpoints are already submitted asynchronously
+			return CompletableFuture.completedFuture(FederatedQueryWithSucceedingJoin.process(bindings, endpoint, fQuery, bindingsFactory));
+		}
+	}
+
 	/**
 	 * <p>process.</p>
 	 *
@@ -110,12 +145,31 @@ public abstract class FederatedQueryWithSucceedingJoin extends FederatedQuery {
 			}
 		} else {
 			// service call with variable
-			// it could be that several endpoints are asked, which we succeedingly ask for results...
+			// it could be that several endpoints are asked, which we ask concurrently for results...
 			// the same endpoints are not asked again!
+			final LinkedList<Tuple<URILiteral, Future<QueryResult>>> requests = new LinkedList<Tuple<URILiteral, Future<QueryResult>>>();
+			final HashSet<URILiteral> alreadyAskedEndpoints = new HashSet<URILiteral>();
+			final Iterator<Bindings> it = bindings.oneTimeIterator();
+			while(it.hasNext()){
+				final Bindings service = it.next();
+				Literal endpointURI = service.get((Variable) endpoint);
+				if (endpointURI instanceof LazyLiteral) {
+					endpointURI = ((LazyLiteral) endpointURI).getLiteral();
+				}
+				if (endpointURI instanceof URILiteral) {
+					final URILiteral uri = (URILiteral) endpointURI;
+					if(alreadyAskedEndpoints.add(uri)){ // do not ask endpoints several times!
+						requests.add(new Tuple<URILiteral, Future<QueryResult>>(uri, Client.submitQueryAsync(uri.getString(), fQuery, bindingsFactory)));
+					}
+				} else {
+					// error message or maybe ignore?
+				}
+			}
+			if(it instanceof ParallelIterator){
+				((ParallelIterator<Bindings>)it).close();
+			}
 			return QueryResult.createInstance(new ParallelIterator<Bindings>(){
 
-				private final Iterator<Bindings> it = bindings.oneTimeIterator();
-				private final HashSet<URILiteral> alreadyAskedEndpoints = new HashSet<URILiteral>();
 				private Iterator<Bindings> currentIteratorQueryResult = this.getNextIteratorQueryResult();
 
 				@Override
@@ -143,46 +197,25 @@ public abstract class FederatedQueryWithSucceedingJoin extends FederatedQuery {
 
 				@Override
 				public void remove() {
-					this.it.remove();
+					throw new UnsupportedOperationException();
 				}
 
 				@Override
 				public void close() {
-					if(this.it instanceof ParallelIterator){
-						((ParallelIterator<Bindings>)this.it).close();
-					}
+					requests.clear();
 				}
 
 				private Iterator<Bindings> getNextIteratorQueryResult(){
-					final URILiteral endpointURI = this.nextEndpoint();
-					if(endpointURI==null){
-						return null;
-					}
-					final String uri = endpointURI.getString();
-					try {
-						return FederatedQueryWithSucceedingJoin.addEndpointVariable((Variable)endpoint, endpointURI, Client.submitQuery(uri, fQuery, bindingsFactory)).oneTimeIterator();
-					} catch (final IOException e) {
-						System.err.println(e);
-						e.printStackTrace();
-					}
-					return null;
-				}
-
-				private URILiteral nextEndpoint(){
-					while(this.it.hasNext()){
-						final Bindings service = this.it.next();
-						Literal endpointURI = service.get((Variable) endpoint);
-						if (endpointURI instanceof LazyLiteral) {
-							endpointURI = ((LazyLiteral) endpointURI).getLiteral();
-						}
-						if (endpointURI instanceof URILiteral) {
-							final URILiteral result = (URILiteral) endpointURI;
-							if(!this.alreadyAskedEndpoints.contains(result)){ // do not ask endpoints several times!
-								this.alreadyAskedEndpoints.add(result);
-								return result;
+					while(!requests.isEmpty()){
+						final Tuple<URILiteral, Future<QueryResult>> request = requests.removeFirst();
+						try {
+							final QueryResult result = Client.getQueryResult(request.getSecond());
+							if(result!=null){
+								return FederatedQueryWithSucceedingJoin.addEndpointVariable((Variable)endpoint, request.getFirst(), result).oneTimeIterator();
 							}
-						} else {
-							// error message or maybe ignore?
+						} catch (final IOException e) {
+							System.err.println(e);
+							e.printStackTrace();
 						}
 					}
 					return null;
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.endpoint.caching;
+
+import java.util.Collections;
+
+import lupos.datastructures.items.Triple;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.engine.evaluators.MemoryIndexQueryEvaluator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests which queries are cached by the query result cache.
+ *
+ * @author groppe
+ * @version $Id: $Id
+ */
+public class QueryResultCacheTest {
+
+	@Test
+	public void testDeterministicQueriesAreCached() {
+		Assert.assertNotNull(QueryResultCache.getKey("SELECT * WHERE { ?s ?p ?o . FILTER(?o > 5) }", "XML"));
+		Assert.assertEquals(QueryResultCache.getKey("SELECT * WHERE { ?s ?p ?o }", "XML"), QueryResultCache.getKey("SELECT *   WHERE {?s ?p ?o}", "XML"));
+		Assert.assertNotEquals(QueryResultCache.getKey("SELECT * WHERE { ?s ?p ?o }", "XML"), QueryResultCache.getKey("SELECT * WHERE { ?s ?p ?o }", "JSON"));
+	}
+
+	@Test
+	public void testNonDeterministicQueriesAreNotCached() {
+		final String[] queries = {
+				"SELECT * WHERE { ?s ?p ?o . FILTER(RAND() < 0.5) }",
+				"SELECT ?s (NOW() AS ?t) WHERE { ?s ?p ?o }",
+				"SELECT * WHERE { ?s ?p ?o . BIND(UUID() AS ?u) }",
+				"SELECT * WHERE { ?s ?p ?o . BIND(STRUUID() AS ?u) }",
+				"CONSTRUCT { ?b <http://ex/p> ?o } WHERE { ?s ?p ?o . BIND(BNODE() AS ?b) }",
+				"SELECT * WHERE { { ?s ?p ?o } UNION { ?s ?p ?o . FILTER(STR(?o) = STR(NOW())) } }"
+		};
+		for(final String query: queries){
+			Assert.assertNull(query, QueryResultCache.getKey(query, "XML"));
+		}
+	}
+
+	@Test
+	public void testResultComputedDuringUpdateIsNotCached() {
+		final QueryResultCache cache = new QueryResultCache(10, 1000, 10000);
+		final String key = QueryResultCache.getKey("SELECT * WHERE { ?s ?p ?o }", "XML");
+		final long version = cache.getVersion();
+		cache.graphsModified();
+		cache.put(key, "text/plain", new byte[]{1}, null, version);
+		Assert.assertNull(cache.get(key));
+		cache.put(key, "text/plain", new byte[]{1}, null, cache.getVersion());
+		Assert.assertNotNull(cache.get(key));
+	}
+
+	@Test
+	public void testTriplePatternsOfExistsFilterInvalidateResult() throws Exception {
+		final MemoryIndexQueryEvaluator evaluator = new MemoryIndexQueryEvaluator();
+		evaluator.compileQuery("SELECT * WHERE { ?s <http://ex/p> ?o . FILTER NOT EXISTS { ?o <http://ex/q> ?x . FILTER EXISTS { ?x <http://ex/r> ?y } } }");
+		evaluator.logicalOptimization();
+		evaluator.physicalOptimization();
+
+		final QueryResultCache cache = new QueryResultCache(10, 1000, 10000);
+		final String key = QueryResultCache.getKey("SELECT * WHERE { ?s <http://ex/p> ?o . FILTER NOT EXISTS { ?o <http://ex/q> ?x . FILTER EXISTS { ?x <http://ex/r> ?y } } }", "XML");
+		cache.put(key, "text/plain", new byte[]{1}, evaluator.getTriplePatternsOfQuery(), cache.getVersion());
+		Assert.assertNotNull(cache.get(key));
+
+		// a triple not matching any triple pattern of the query does not invalidate the result
+		cache.triplesModified(Collections.singletonList(QueryResultCacheTest.createTriple("<http://ex/a>", "<http://ex/other>", "<http://ex/b>")));
+		Assert.assertNotNull(cache.get(key));
+
+		// a triple only matching the triple pattern of the nested FILTER EXISTS invalidates the result
+		cache.triplesModified(Collections.singletonList(QueryResultCacheTest.createTriple("<http://ex/a>", "<http://ex/r>", "<http://ex/b>")));
+		Assert.assertNull(cache.get(key));
+
+		// the same for a triple only matching the triple pattern of FILTER NOT EXISTS
+		cache.put(key, "text/plain", new byte[]{1}, evaluator.getTriplePatternsOfQuery(), cache.getVersion());
+		Assert.assertNotNull(cache.get(key));
+		cache.triplesModified(Collections.singletonList(QueryResultCacheTest.createTriple("<http://ex/a>", "<http://ex/q>", "<http://ex/b>")));
+		Assert.assertNull(cache.get(key));
+	}
+
+	private static Triple createTriple(final String subject, final String predicate, final String object) throws Exception {
+		return new Triple(LiteralFactory.createURILiteral(subject), LiteralFactory.createURILiteral(predicate), LiteralFactory.createURILiteral(object));
+	}
+}
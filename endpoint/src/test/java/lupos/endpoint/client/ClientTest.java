@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.endpoint.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.endpoint.client.formatreader.XMLFormatReader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks that synchronous and asynchronous requests return the correct results and release their pooled connections.
+ *
+ * @author groppe
+ */
+public class ClientTest {
+
+	private HttpServer server;
+
+	private String url;
+
+	/**
+	 * the client ports of the connections to the endpoint
+	 */
+	private final Set<Integer> connections = Collections.synchronizedSet(new HashSet<Integer>());
+
+	private final BindingsFactory bindingsFactory = BindingsFactory.createBindingsFactory(new Variable[]{ new Variable("x") });
+
+	@Before
+	public void setUp() throws IOException {
+		// a SPARQL endpoint returning the number contained in the query as many times as requested
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.createContext("/sparql", new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				ClientTest.this.connections.add(exchange.getRemoteAddress().getPort());
+				final String query = exchange.getRequestURI().getRawQuery();
+				final Matcher value = Pattern.compile("value(\\d+)").matcher(query);
+				value.find();
+				final Matcher rows = Pattern.compile("rows(\\d+)").matcher(query);
+				final int numberOfRows = rows.find() ? Integer.parseInt(rows.group(1)) : 1;
+				final StringBuilder sb = new StringBuilder("<?xml version=\"1.0\"?><sparql xmlns=\"http://www.w3.org/2005/sparql-results#\"><head><variable name=\"x\"/></head><results>");
+				for(int i=0; i<numberOfRows; i++){
+					sb.append("<result><binding name=\"x\"><literal>" + value.group(1) + "</literal></binding></result>");
+				}
+				sb.append("</results></sparql>");
+				ClientTest.send(exchange, XMLFormatReader.MIMETYPE, sb.toString());
+			}
+		});
+		this.server.createContext("/unsupported", new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				ClientTest.send(exchange, "application/x-unsupported", "unsupported");
+			}
+		});
+		this.server.setExecutor(Executors.newCachedThreadPool());
+		this.server.start();
+		this.url = "http://localhost:" + this.server.getAddress().getPort();
+	}
+
+	private static void send(final HttpExchange exchange, final String contentType, final String content) throws IOException {
+		final byte[] response = content.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(200, response.length);
+		final OutputStream out = exchange.getResponseBody();
+		out.write(response);
+		out.close();
+	}
+
+	@After
+	public void tearDown() {
+		this.server.stop(0);
+	}
+
+	private static List<String> getValues(final QueryResult result) {
+		final List<String> values = new ArrayList<String>();
+		for(final Bindings bindings: result){
+			values.add(bindings.get(new Variable("x")).toString());
+		}
+		return values;
+	}
+
+	@Test
+	public void testSynchronousResultsReleaseConnections() throws Exception {
+		// the responses are larger than the buffer of the xml format reader and their query results are not consumed
+		final int requests = 3 * Client.MAX_CONNECTIONS_PER_ENDPOINT;
+		final List<QueryResult> results = new ArrayList<QueryResult>();
+		final long start = System.currentTimeMillis();
+		for(int i=0; i<requests; i++){
+			results.add(Client.submitQuery(this.url + "/sparql", "SELECT * WHERE { ?s <http://ex/value" + i + "> <http://ex/rows1000> . }", this.bindingsFactory));
+		}
+		// no request waited for a free pooled connection and no new connections have been opened
+		assertTrue("too many connections: " + this.connections.size(), this.connections.size() <= Client.MAX_CONNECTIONS_PER_ENDPOINT);
+		assertTrue(System.currentTimeMillis() - start < requests * Client.CONNECTION_REQUEST_TIMEOUT / 2);
+		for(final QueryResult result: results){
+			assertEquals(1000, result.size());
+		}
+	}
+
+	@Test
+	public void testSubmitQueryAsync() throws Exception {
+		final List<Future<QueryResult>> futures = new ArrayList<Future<QueryResult>>();
+		for(int i=0; i<50; i++){
+			futures.add(Client.submitQueryAsync(this.url + "/sparql", "SELECT * WHERE { ?s <http://ex/value" + i + "> ?x . }", this.bindingsFactory));
+		}
+		for(int i=0; i<futures.size(); i++){
+			assertEquals(Collections.singletonList("\"" + i + "\""), ClientTest.getValues(Client.getQueryResult(futures.get(i))));
+		}
+		assertTrue("too many connections: " + this.connections.size(), this.connections.size() <= Client.MAX_CONNECTIONS_PER_ENDPOINT);
+	}
+
+	@Test
+	public void testErrorOfAsyncRequestIsThrown() throws Exception {
+		final Future<QueryResult> future = Client.submitQueryAsync(this.url + "/unsupported", "SELECT * WHERE { ?s ?p ?x . }", this.bindingsFactory);
+		try {
+			Client.getQueryResult(future);
+			fail("unsupported content type is not reported");
+		} catch(final IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("application/x-unsupported"));
+		}
+	}
+}
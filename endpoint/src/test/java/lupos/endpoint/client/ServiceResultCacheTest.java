@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.endpoint.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.endpoint.client.formatreader.XMLFormatReader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks that cached SERVICE results can be used concurrently while other responses are written to disk and read back.
+ *
+ * @author groppe
+ */
+public class ServiceResultCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer server;
+
+	private String url;
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	private final long maxMemoryBytes = ServiceResultCache.MAX_MEMORY_BYTES;
+	private final boolean spillToDisk = ServiceResultCache.SPILL_TO_DISK;
+	private final String spillDirectory = ServiceResultCache.SPILL_DIRECTORY;
+
+	@Before
+	public void setUp() throws IOException {
+		// a SPARQL endpoint returning the number contained in the query
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.createContext("/sparql", new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				ServiceResultCacheTest.this.requests.incrementAndGet();
+				final Matcher matcher = Pattern.compile("value(\\d+)").matcher(exchange.getRequestURI().getRawQuery());
+				matcher.find();
+				final byte[] response = ("<?xml version=\"1.0\"?><sparql xmlns=\"http://www.w3.org/2005/sparql-results#\"><head><variable name=\"x\"/></head>"
+						+ "<results><result><binding name=\"x\"><literal>" + matcher.group(1) + "</literal></binding></result></results></sparql>").getBytes("UTF-8");
+				exchange.getResponseHeaders().set("Content-Type", XMLFormatReader.MIMETYPE);
+				exchange.sendResponseHeaders(200, response.length);
+				final OutputStream out = exchange.getResponseBody();
+				out.write(response);
+				out.close();
+			}
+		});
+		this.server.start();
+		this.url = "http://localhost:" + this.server.getAddress().getPort() + "/sparql";
+		ServiceResultCache.clear();
+		// only a few responses fit into main memory, all others are written to disk
+		ServiceResultCache.MAX_MEMORY_BYTES = 2000;
+		ServiceResultCache.SPILL_TO_DISK = true;
+		ServiceResultCache.SPILL_DIRECTORY = this.folder.getRoot().getAbsolutePath();
+	}
+
+	@After
+	public void tearDown() {
+		this.server.stop(0);
+		ServiceResultCache.clear();
+		ServiceResultCache.MAX_MEMORY_BYTES = this.maxMemoryBytes;
+		ServiceResultCache.SPILL_TO_DISK = this.spillToDisk;
+		ServiceResultCache.SPILL_DIRECTORY = this.spillDirectory;
+	}
+
+	private static String getValue(final QueryResult result) {
+		final List<String> values = new ArrayList<String>();
+		for(final Bindings bindings: result){
+			values.add(bindings.get(new Variable("x")).toString());
+		}
+		return values.toString();
+	}
+
+	@Test
+	public void testConcurrentSpilling() throws Exception {
+		final long spillsBefore = ServiceResultCache.spills;
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		final Thread[] threads = new Thread[8];
+		for(int i=0; i<threads.length; i++){
+			final Random random = new Random(i);
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for(int j=0; j<200; j++){
+							final int value = random.nextInt(20);
+							final String query = "SELECT * WHERE { ?s <http://ex/value" + value + "> ?x . }";
+							final BindingsFactory bindingsFactory = BindingsFactory.createBindingsFactory(new Variable[]{ new Variable("x") });
+							final QueryResult result = (j % 2 == 0) ?
+									ServiceResultCache.submitQuery(ServiceResultCacheTest.this.url, query, bindingsFactory) :
+									ServiceResultCache.submitQueryAsync(ServiceResultCacheTest.this.url, query, bindingsFactory).get();
+							assertEquals(query, "[\"" + value + "\"]", ServiceResultCacheTest.getValue(result));
+						}
+					} catch (final Throwable e) {
+						errors.add(e);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for(final Thread thread: threads){
+			thread.join();
+		}
+		assertTrue(errors.toString(), errors.isEmpty());
+		assertTrue(ServiceResultCache.getStatistics(), ServiceResultCache.spills > spillsBefore);
+		// most responses are read from the cache
+		assertTrue(ServiceResultCache.getStatistics(), this.requests.get() < 800);
+		ServiceResultCache.clear();
+		final File[] files = this.folder.getRoot().listFiles();
+		assertEquals(0, files.length);
+	}
+}
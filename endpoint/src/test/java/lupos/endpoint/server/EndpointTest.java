@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.endpoint.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lupos.endpoint.server.Endpoint.AdmissionController;
+import lupos.endpoint.server.Endpoint.QueryCancellation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks the admission control and the timeouts of queries of the endpoint.
+ *
+ * @author groppe
+ */
+public class EndpointTest {
+
+	private HttpServer server;
+
+	private String url;
+
+	/**
+	 * the query evaluation simulated by the handler of the server
+	 */
+	private final AtomicReference<HttpHandler> query = new AtomicReference<HttpHandler>();
+
+	@Before
+	public void setUp() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.createContext("/sparql", new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange t) throws IOException {
+				EndpointTest.this.query.get().handle(t);
+			}
+		});
+		this.server.setExecutor(Executors.newCachedThreadPool());
+		this.server.start();
+		this.url = "http://localhost:" + this.server.getAddress().getPort() + "/sparql";
+	}
+
+	@After
+	public void tearDown() {
+		this.server.stop(0);
+	}
+
+	private static String read(final InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[1024];
+		int read;
+		while((read = in.read(buffer)) >= 0){
+			out.write(buffer, 0, read);
+		}
+		in.close();
+		return new String(out.toByteArray(), "UTF-8");
+	}
+
+	private static Thread admitAndRelease(final AdmissionController admission, final AtomicReference<Object> outcome, final CountDownLatch release) {
+		final Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					outcome.set(admission.admit());
+					release.await();
+					admission.release();
+				} catch (final InterruptedException e) {
+					outcome.set(e);
+				}
+			}
+		};
+		thread.start();
+		return thread;
+	}
+
+	private static void waitForAdmittedQueries(final AdmissionController admission, final int number) throws InterruptedException {
+		final long end = System.currentTimeMillis() + 10000;
+		while(admission.getNumberOfAdmittedQueries() != number && System.currentTimeMillis() < end){
+			Thread.sleep(10);
+		}
+		assertEquals(number, admission.getNumberOfAdmittedQueries());
+	}
+
+	@Test
+	public void testAdmissionControllerRejectsQueriesIfQueueIsFull() throws Exception {
+		final AdmissionController admission = new AdmissionController(1, 1);
+		assertTrue(admission.admit());
+		// the second query waits for the worker of the first query
+		final AtomicReference<Object> outcome = new AtomicReference<Object>();
+		final CountDownLatch release = new CountDownLatch(1);
+		final Thread waiting = EndpointTest.admitAndRelease(admission, outcome, release);
+		EndpointTest.waitForAdmittedQueries(admission, 2);
+		assertEquals(null, outcome.get());
+		// the third query is rejected immediately
+		assertFalse(admission.admit());
+		assertEquals(2, admission.getNumberOfAdmittedQueries());
+		// the waiting query gets the worker of the first query
+		admission.release();
+		release.countDown();
+		waiting.join(10000);
+		assertEquals(Boolean.TRUE, outcome.get());
+		assertEquals(0, admission.getNumberOfAdmittedQueries());
+		assertTrue(admission.admit());
+		admission.release();
+	}
+
+	@Test
+	public void testAdmissionControllerWithInterruptedWaitingQuery() throws Exception {
+		final AdmissionController admission = new AdmissionController(1, 1);
+		assertTrue(admission.admit());
+		final AtomicReference<Object> outcome = new AtomicReference<Object>();
+		final Thread waiting = EndpointTest.admitAndRelease(admission, outcome, new CountDownLatch(0));
+		EndpointTest.waitForAdmittedQueries(admission, 2);
+		waiting.interrupt();
+		waiting.join(10000);
+		assertTrue(outcome.get() instanceof InterruptedException);
+		// the interrupted query does not occupy a place in the queue any more
+		assertEquals(1, admission.getNumberOfAdmittedQueries());
+		admission.release();
+		assertEquals(0, admission.getNumberOfAdmittedQueries());
+	}
+
+	@Test
+	public void testTimeoutBeforeResponse() throws Exception {
+		final AtomicBoolean interrupted = new AtomicBoolean(false);
+		this.query.set(new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange t) throws IOException {
+				final QueryCancellation cancellation = new QueryCancellation(t, 1);
+				try {
+					// a long running query
+					Thread.sleep(10000);
+					if(cancellation.startResponse()){
+						Endpoint.sendString(t, "too late");
+					}
+				} catch (final InterruptedException e) {
+					interrupted.set(true);
+				} finally {
+					cancellation.finish();
+				}
+			}
+		});
+		final long start = System.currentTimeMillis();
+		final HttpURLConnection connection = (HttpURLConnection) new URL(this.url).openConnection();
+		assertEquals(503, connection.getResponseCode());
+		assertTrue(EndpointTest.read(connection.getErrorStream()).contains("Query timed out!"));
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		final long end = System.currentTimeMillis() + 5000;
+		while(!interrupted.get() && System.currentTimeMillis() < end){
+			Thread.sleep(10);
+		}
+		assertTrue("The thread evaluating the query must be interrupted", interrupted.get());
+	}
+
+	@Test
+	public void testTimeoutWhileResponding() throws Exception {
+		final CountDownLatch stopped = new CountDownLatch(1);
+		final AtomicBoolean cancelled = new AtomicBoolean(false);
+		this.query.set(new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange t) throws IOException {
+				final QueryCancellation cancellation = new QueryCancellation(t, 1);
+				try {
+					cancellation.startResponse();
+					t.sendResponseHeaders(200, 0);
+					final OutputStream os = t.getResponseBody();
+					// a never ending result
+					while(!Thread.currentThread().isInterrupted()){
+						os.write("<result/>\n".getBytes("UTF-8"));
+						os.flush();
+						Thread.sleep(5);
+					}
+				} catch (final IOException e) {
+					// the connection has been closed
+				} catch (final InterruptedException e) {
+					// the query has been cancelled
+				} finally {
+					cancelled.set(cancellation.isCancelled());
+					cancellation.finish();
+					stopped.countDown();
+				}
+			}
+		});
+		final long start = System.currentTimeMillis();
+		final HttpURLConnection connection = (HttpURLConnection) new URL(this.url).openConnection();
+		assertEquals(200, connection.getResponseCode());
+		try {
+			EndpointTest.read(connection.getInputStream());
+		} catch (final IOException e) {
+			// the connection has been closed
+		}
+		// the response ends although the result is never ending
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertTrue(stopped.await(5, TimeUnit.SECONDS));
+		assertTrue(cancelled.get());
+	}
+
+	@Test
+	public void testFinishedQueryIsNotCancelled() throws Exception {
+		final QueryCancellation cancellation = new QueryCancellation(null, 1);
+		assertTrue(cancellation.startResponse());
+		cancellation.finish();
+		Thread.sleep(1500);
+		assertFalse(cancellation.isCancelled());
+		assertFalse(Thread.currentThread().isInterrupted());
+	}
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.endpoint.server.format;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.queryresult.BooleanResult;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.engine.operators.application.Application;
+
+import org.junit.Test;
+
+/**
+ * Checks that the streamed output of the formatters is the same as the one of writing the collected results.
+ *
+ * @author groppe
+ */
+public class StreamingResultWriterTest {
+
+	private final Variable x = new Variable("x");
+	private final Variable y = new Variable("y");
+	private final List<Variable> variables = Arrays.asList(this.x, this.y);
+	private final BindingsFactory bindingsFactory = BindingsFactory.createBindingsFactory(this.variables);
+
+	/**
+	 * writer into a byte array, which records the number of opened responses
+	 */
+	private class ByteArrayWriter extends StreamingResultWriter {
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int openedResponses = 0;
+
+		public ByteArrayWriter(final HeadBodyFormatter formatter, final int bufferSize) {
+			super(formatter, bufferSize);
+		}
+
+		@Override
+		protected OutputStream openResponse(final String mimeType) throws IOException {
+			this.openedResponses++;
+			return this.out;
+		}
+
+		@Override
+		protected Collection<Variable> getVariables() {
+			return StreamingResultWriterTest.this.variables;
+		}
+	}
+
+	private QueryResult createResult(final int from, final int to) throws Exception {
+		final QueryResult result = QueryResult.createInstance();
+		for(int i=from; i<to; i++){
+			final Bindings b = this.bindingsFactory.createInstance();
+			b.add(this.x, LiteralFactory.createURILiteralWithoutLazyLiteral("<http://example.org/" + i + ">"));
+			if(i % 2 == 0){
+				// some solutions do not bind y
+				b.add(this.y, LiteralFactory.createLiteralWithoutLazyLiteral("\"value " + i + "\""));
+			}
+			result.add(b);
+		}
+		return result;
+	}
+
+	private String writeCollected(final HeadBodyFormatter formatter, final QueryResult result) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		formatter.writeResult(out, this.variables, result);
+		return out.toString("UTF-8");
+	}
+
+	@Test
+	public void testSameOutputAsCollectedResult() throws Exception {
+		for(final HeadBodyFormatter formatter: new HeadBodyFormatter[]{ new XMLFormatter(), new JSONFormatter(), new CSVFormatter(), new TSVFormatter() }){
+			final ByteArrayWriter writer = new ByteArrayWriter(formatter, 16);
+			writer.start(Application.Type.SELECT);
+			writer.call(this.createResult(0, 3));
+			writer.call(this.createResult(3, 4));
+			writer.call(this.createResult(4, 10));
+			writer.stop();
+			assertEquals(formatter.getName(), this.writeCollected(formatter, this.createResult(0, 10)), writer.out.toString("UTF-8"));
+			assertEquals(1, writer.openedResponses);
+			assertEquals(10, writer.getNumberOfResults());
+		}
+	}
+
+	@Test
+	public void testFirstResultIsSentImmediately() throws Exception {
+		final HeadBodyFormatter formatter = new JSONFormatter();
+		final ByteArrayWriter writer = new ByteArrayWriter(formatter, 64 * 1024);
+		writer.start(Application.Type.SELECT);
+		writer.call(this.createResult(0, 1));
+		// head and first result are flushed although the buffer is not full
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		formatter.writeHead(expected, this.variables);
+		formatter.writeBindings(expected, this.variables, this.createResult(0, 1).iterator().next(), true);
+		assertEquals(expected.toString("UTF-8"), writer.out.toString("UTF-8"));
+		// further results remain in the buffer
+		writer.call(this.createResult(1, 5));
+		assertEquals(expected.toString("UTF-8"), writer.out.toString("UTF-8"));
+		writer.stop();
+		assertEquals(this.writeCollected(formatter, this.createResult(0, 5)), writer.out.toString("UTF-8"));
+	}
+
+	@Test
+	public void testEmptyResult() throws Exception {
+		final HeadBodyFormatter formatter = new XMLFormatter();
+		final ByteArrayWriter writer = new ByteArrayWriter(formatter, 16);
+		writer.start(Application.Type.SELECT);
+		writer.call(QueryResult.createInstance());
+		assertEquals(0, writer.openedResponses);
+		writer.stop();
+		assertEquals(this.writeCollected(formatter, QueryResult.createInstance()), writer.out.toString("UTF-8"));
+	}
+
+	@Test
+	public void testWriteErrorIsPropagated() throws Exception {
+		final IOException closed = new IOException("connection closed");
+		final StreamingResultWriter writer = new ByteArrayWriter(new CSVFormatter(), 16){
+			@Override
+			protected OutputStream openResponse(final String mimeType) throws IOException {
+				return new OutputStream(){
+					@Override
+					public void write(final int b) throws IOException {
+						throw closed;
+					}
+				};
+			}
+		};
+		writer.start(Application.Type.SELECT);
+		try {
+			writer.call(this.createResult(0, 10));
+			fail("the evaluation must be aborted if the results cannot be written");
+		} catch(final UncheckedIOException e) {
+			assertEquals(closed, e.getCause());
+		}
+	}
+
+	@Test
+	public void testWrittenResultsCannotBeDeleted() throws Exception {
+		final ByteArrayWriter writer = new ByteArrayWriter(new CSVFormatter(), 16);
+		writer.start(Application.Type.SELECT);
+		// nothing written => nothing to delete
+		writer.deleteResult();
+		writer.call(this.createResult(0, 3));
+		// empty results can always be deleted
+		writer.deleteResult(QueryResult.createInstance());
+		try {
+			writer.deleteResult(this.createResult(1, 2));
+			fail("written results cannot be deleted");
+		} catch(final UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			writer.deleteResult();
+			fail("written results cannot be deleted");
+		} catch(final UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testDeleteCollectedResult() throws Exception {
+		final HeadBodyFormatter formatter = new JSONFormatter();
+		final ByteArrayWriter writer = new ByteArrayWriter(formatter, 16);
+		writer.start(Application.Type.ASK);
+		final BooleanResult br = new BooleanResult();
+		br.add(this.bindingsFactory.createInstance());
+		writer.call(br);
+		writer.deleteResult();
+		writer.stop();
+		final BooleanResult expected = new BooleanResult();
+		assertFalse(expected.isTrue());
+		assertEquals(this.writeCollected(formatter, expected), writer.out.toString("UTF-8"));
+	}
+}
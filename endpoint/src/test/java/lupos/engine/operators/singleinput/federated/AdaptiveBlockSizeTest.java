@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.engine.operators.singleinput.federated;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the adaptation of the block size of the vectored fetch-as-needed approach.
+ *
+ * @author groppe
+ */
+public class AdaptiveBlockSizeTest {
+
+	private boolean adaptive;
+
+	@Before
+	public void setUp() {
+		this.adaptive = AdaptiveBlockSize.ADAPTIVE;
+		AdaptiveBlockSize.ADAPTIVE = true;
+		AdaptiveBlockSize.clear();
+	}
+
+	@After
+	public void tearDown() {
+		AdaptiveBlockSize.ADAPTIVE = this.adaptive;
+		AdaptiveBlockSize.clear();
+	}
+
+	@Test
+	public void testInitialBlockSize() {
+		assertEquals(AdaptiveBlockSize.INITIAL_BLOCK_SIZE, AdaptiveBlockSize.get("http://a").getBlockSize());
+		AdaptiveBlockSize.ADAPTIVE = false;
+		assertEquals(FederatedQuery.MAX_BINDINGS_IN_ENDPOINT_REQUEST, AdaptiveBlockSize.get("http://a").getBlockSize());
+	}
+
+	@Test
+	public void testGrow() {
+		final AdaptiveBlockSize blockSize = AdaptiveBlockSize.get("http://a");
+		// fast and small responses => the block size is doubled
+		blockSize.success(50, 10, 10);
+		assertEquals(100, blockSize.getBlockSize());
+		// the rest of the bindings has been sent => no growing
+		blockSize.success(20, 10, 10);
+		assertEquals(100, blockSize.getBlockSize());
+		// response in 2/3 of the target latency => growing by factor 1.5
+		blockSize.success(100, 2 * AdaptiveBlockSize.TARGET_LATENCY / 3, 10);
+		assertEquals(150, blockSize.getBlockSize());
+		for(int i=0; i<10; i++){
+			blockSize.success(blockSize.getBlockSize(), 10, 10);
+		}
+		assertEquals(AdaptiveBlockSize.MAX_BLOCK_SIZE, blockSize.getBlockSize());
+	}
+
+	@Test
+	public void testShrink() {
+		final AdaptiveBlockSize blockSize = AdaptiveBlockSize.get("http://a");
+		// four times the target latency => a quarter of the bindings
+		blockSize.success(40, 4 * AdaptiveBlockSize.TARGET_LATENCY, 10);
+		assertEquals(10, blockSize.getBlockSize());
+		// twice the maximum number of results => half of the bindings
+		blockSize.success(10, 10, 2 * AdaptiveBlockSize.MAX_RESULTS_PER_REQUEST);
+		assertEquals(5, blockSize.getBlockSize());
+		// a slow request reduces the block size according to its number of bindings
+		blockSize.success(2, 2 * AdaptiveBlockSize.TARGET_LATENCY, 10);
+		assertEquals(1, blockSize.getBlockSize());
+		blockSize.success(1, 100 * AdaptiveBlockSize.TARGET_LATENCY, 10);
+		assertEquals(AdaptiveBlockSize.MIN_BLOCK_SIZE, blockSize.getBlockSize());
+	}
+
+	@Test
+	public void testHalveOnFailure() {
+		final AdaptiveBlockSize blockSize = AdaptiveBlockSize.get("http://a");
+		blockSize.failure(AdaptiveBlockSize.INITIAL_BLOCK_SIZE);
+		assertEquals(AdaptiveBlockSize.INITIAL_BLOCK_SIZE / 2, blockSize.getBlockSize());
+		// a failed smaller block halves its size
+		blockSize.failure(10);
+		assertEquals(5, blockSize.getBlockSize());
+		for(int i=0; i<5; i++){
+			blockSize.failure(blockSize.getBlockSize());
+		}
+		assertEquals(AdaptiveBlockSize.MIN_BLOCK_SIZE, blockSize.getBlockSize());
+	}
+
+	@Test
+	public void testObservationsPerEndpoint() {
+		final AdaptiveBlockSize a = AdaptiveBlockSize.get("http://a");
+		assertSame(a, AdaptiveBlockSize.get("http://a"));
+		assertNotSame(a, AdaptiveBlockSize.get("http://b"));
+		a.failure(AdaptiveBlockSize.INITIAL_BLOCK_SIZE);
+		assertEquals(AdaptiveBlockSize.INITIAL_BLOCK_SIZE, AdaptiveBlockSize.get("http://b").getBlockSize());
+		AdaptiveBlockSize.clear();
+		assertEquals(AdaptiveBlockSize.INITIAL_BLOCK_SIZE, AdaptiveBlockSize.get("http://a").getBlockSize());
+	}
+}
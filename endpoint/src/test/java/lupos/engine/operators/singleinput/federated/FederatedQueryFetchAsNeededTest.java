@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.engine.operators.singleinput.federated;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.endpoint.client.formatreader.XMLFormatReader;
+import lupos.engine.operators.messages.BindingsFactoryMessage;
+import lupos.sparql1_1.ASTService;
+import lupos.sparql1_1.Node;
+import lupos.sparql1_1.SPARQL1_1Parser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks that fetch as needed submits the requests for succeeding bindings while waiting for the current result
+ * and that the results are still returned in the order of the bindings.
+ *
+ * @author groppe
+ */
+public class FederatedQueryFetchAsNeededTest {
+
+	private HttpServer server;
+
+	private String url;
+
+	private final AtomicInteger requestsInProgress = new AtomicInteger();
+
+	private final AtomicInteger maxRequestsInProgress = new AtomicInteger();
+
+	@Before
+	public void setUp() throws IOException {
+		LiteralFactory.setType(LiteralFactory.MapType.NOCODEMAP);
+		// a slow SPARQL endpoint returning the number contained in the query
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.createContext("/sparql", new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				final FederatedQueryFetchAsNeededTest test = FederatedQueryFetchAsNeededTest.this;
+				final int inProgress = test.requestsInProgress.incrementAndGet();
+				synchronized(test.maxRequestsInProgress){
+					test.maxRequestsInProgress.set(Math.max(inProgress, test.maxRequestsInProgress.get()));
+				}
+				try {
+					Thread.sleep(100);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				final Matcher matcher = Pattern.compile("value(\\d+)").matcher(exchange.getRequestURI().getRawQuery());
+				matcher.find();
+				final byte[] response = ("<?xml version=\"1.0\"?><sparql xmlns=\"http://www.w3.org/2005/sparql-results#\"><head><variable name=\"x\"/></head>"
+						+ "<results><result><binding name=\"x\"><literal>" + matcher.group(1) + "</literal></binding></result></results></sparql>").getBytes("UTF-8");
+				test.requestsInProgress.decrementAndGet();
+				exchange.getResponseHeaders().set("Content-Type", XMLFormatReader.MIMETYPE);
+				exchange.sendResponseHeaders(200, response.length);
+				final OutputStream out = exchange.getResponseBody();
+				out.write(response);
+				out.close();
+			}
+		});
+		this.server.setExecutor(Executors.newCachedThreadPool());
+		this.server.start();
+		this.url = "http://localhost:" + this.server.getAddress().getPort() + "/sparql";
+	}
+
+	@After
+	public void tearDown() {
+		this.server.stop(0);
+	}
+
+	private static ASTService getServiceNode(final Node node) {
+		if(node instanceof ASTService){
+			return (ASTService) node;
+		}
+		for(int i=0; i<node.jjtGetNumChildren(); i++){
+			final ASTService result = FederatedQueryFetchAsNeededTest.getServiceNode(node.jjtGetChild(i));
+			if(result!=null){
+				return result;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testPipelinedRequests() throws Exception {
+		final Variable v = new Variable("v");
+		final Variable x = new Variable("x");
+		final Node service = FederatedQueryFetchAsNeededTest.getServiceNode(SPARQL1_1Parser.parse("SELECT * WHERE { ?s <http://ex/p> ?v . SERVICE <" + this.url + "> { ?v <http://ex/q> ?x . } }"));
+		final FederatedQueryFetchAsNeeded fetchAsNeeded = new FederatedQueryFetchAsNeeded(service);
+		final BindingsFactory bindingsFactory = BindingsFactory.createBindingsFactory(new Variable[]{ v, x });
+		fetchAsNeeded.preProcessMessage(new BindingsFactoryMessage(bindingsFactory));
+		final int numberOfBindings = 5 * FederatedQuery.MAX_PIPELINED_REQUESTS;
+		final QueryResult input = QueryResult.createInstance();
+		for(int i=0; i<numberOfBindings; i++){
+			final Bindings bindings = bindingsFactory.createInstance();
+			bindings.add(v, LiteralFactory.createURILiteralWithoutLazyLiteralWithoutException("<http://ex/value" + i + ">"));
+			input.add(bindings);
+		}
+		final long start = System.currentTimeMillis();
+		final List<String> values = new ArrayList<String>();
+		for(final Bindings bindings: fetchAsNeeded.process(input, 0)){
+			assertEquals("<http://ex/value" + values.size() + ">", bindings.get(v).toString());
+			values.add(bindings.get(x).toString());
+		}
+		final long duration = System.currentTimeMillis() - start;
+		assertEquals(numberOfBindings, values.size());
+		for(int i=0; i<numberOfBindings; i++){
+			assertEquals("\"" + i + "\"", values.get(i));
+		}
+		// the requests are processed concurrently, but not more than allowed
+		assertTrue("maximum number of requests in progress: " + this.maxRequestsInProgress.get(), this.maxRequestsInProgress.get() > 1);
+		assertTrue("maximum number of requests in progress: " + this.maxRequestsInProgress.get(), this.maxRequestsInProgress.get() <= FederatedQuery.MAX_PIPELINED_REQUESTS + 1);
+		assertTrue("duration " + duration, duration < numberOfBindings * 100);
+	}
+}
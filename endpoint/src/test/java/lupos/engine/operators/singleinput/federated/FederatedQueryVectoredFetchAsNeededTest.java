@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2007-2015, Institute of Information Systems (Sven Groppe and contributors of LUPOSDATE), University of Luebeck
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 	- Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * 	  disclaimer.
+ * 	- Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * 	  following disclaimer in the documentation and/or other materials provided with the distribution.
+ * 	- Neither the name of the University of Luebeck nor the names of its contributors may be used to endorse or promote
+ * 	  products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE
+ * GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package lupos.engine.operators.singleinput.federated;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lupos.datastructures.bindings.Bindings;
+import lupos.datastructures.bindings.BindingsFactory;
+import lupos.datastructures.items.Variable;
+import lupos.datastructures.items.literal.LiteralFactory;
+import lupos.datastructures.queryresult.QueryResult;
+import lupos.engine.operators.messages.BindingsFactoryMessage;
+import lupos.sparql1_1.ASTService;
+import lupos.sparql1_1.Node;
+import lupos.sparql1_1.SPARQL1_1Parser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the vectored fetch-as-needed approach splits blocks, which an endpoint fails to answer, and submits them again.
+ *
+ * @author groppe
+ */
+public class FederatedQueryVectoredFetchAsNeededTest {
+
+	private final static String url = "http://localhost/sparql";
+
+	private final Variable v = new Variable("v");
+	private final Variable x = new Variable("x");
+
+	private int initialBlockSize;
+	private int maxRetries;
+
+	/**
+	 * the sizes of the blocks submitted to the endpoint
+	 */
+	private final List<Integer> requests = Collections.synchronizedList(new ArrayList<Integer>());
+
+	@Before
+	public void setUp() {
+		LiteralFactory.setType(LiteralFactory.MapType.NOCODEMAP);
+		this.initialBlockSize = AdaptiveBlockSize.INITIAL_BLOCK_SIZE;
+		this.maxRetries = AdaptiveBlockSize.MAX_RETRIES;
+		AdaptiveBlockSize.clear();
+	}
+
+	@After
+	public void tearDown() {
+		AdaptiveBlockSize.INITIAL_BLOCK_SIZE = this.initialBlockSize;
+		AdaptiveBlockSize.MAX_RETRIES = this.maxRetries;
+		AdaptiveBlockSize.clear();
+	}
+
+	private static ASTService getServiceNode(final Node node) {
+		if(node instanceof ASTService){
+			return (ASTService) node;
+		}
+		for(int i=0; i<node.jjtGetNumChildren(); i++){
+			final ASTService result = FederatedQueryVectoredFetchAsNeededTest.getServiceNode(node.jjtGetChild(i));
+			if(result!=null){
+				return result;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Evaluates the service call for the given number of bindings at an endpoint, which fails to answer requests with more than maxBindings bindings
+	 * and otherwise binds ?x to the number of the value of ?v.
+	 *
+	 * @return the values of ?x in the order of the values of ?v
+	 */
+	private List<String> evaluate(final int numberOfBindings, final int maxBindings) throws Exception {
+		final Node service = FederatedQueryVectoredFetchAsNeededTest.getServiceNode(SPARQL1_1Parser.parse("SELECT * WHERE { ?s <http://ex/p> ?v . SERVICE <" + url + "> { ?v <http://ex/q> ?x . } }"));
+		final FederatedQueryVectoredFetchAsNeeded vectored = new FederatedQueryVectoredFetchAsNeeded(service){
+			@Override
+			public QueryResult submitQuery(final String endpoint, final String query, final BindingsFactory iBindingsFactory) throws IOException {
+				final String[] branches = query.split("\nUNION\n");
+				FederatedQueryVectoredFetchAsNeededTest.this.requests.add(branches.length);
+				if(branches.length > maxBindings){
+					throw new IOException("Query too long");
+				}
+				final QueryResult result = QueryResult.createInstance();
+				for(final String branch: branches){
+					final Matcher value = Pattern.compile("value(\\d+)").matcher(branch);
+					final Matcher index = Pattern.compile("\\?x_(\\d+)").matcher(branch);
+					assertTrue(value.find() && index.find());
+					final Bindings bindings = iBindingsFactory.createInstance();
+					bindings.add(new Variable("x_" + index.group(1)), LiteralFactory.createLiteralWithoutLazyLiteral("\"" + value.group(1) + "\""));
+					result.add(bindings);
+				}
+				return result;
+			}
+		};
+		final BindingsFactory bindingsFactory = BindingsFactory.createBindingsFactory(new Variable[]{ this.v, this.x });
+		vectored.preProcessMessage(new BindingsFactoryMessage(bindingsFactory));
+		final QueryResult input = QueryResult.createInstance();
+		for(int i=0; i<numberOfBindings; i++){
+			final Bindings bindings = bindingsFactory.createInstance();
+			bindings.add(this.v, LiteralFactory.createURILiteralWithoutLazyLiteralWithoutException("<http://ex/value" + i + ">"));
+			input.add(bindings);
+		}
+		final List<String> values = new ArrayList<String>();
+		for(final Bindings bindings: vectored.process(input, 0)){
+			final String value = bindings.get(this.v).toString();
+			assertEquals("\"" + value.substring("<http://ex/value".length(), value.length() - 1) + "\"", bindings.get(this.x).toString());
+			values.add(bindings.get(this.x).toString());
+		}
+		Collections.sort(values);
+		return values;
+	}
+
+	@Test
+	public void testSplitAndRetry() throws Exception {
+		AdaptiveBlockSize.INITIAL_BLOCK_SIZE = 20;
+		AdaptiveBlockSize.MAX_RETRIES = 2;
+		// blocks of 20 bindings are split into blocks of 10 and 5 bindings, the latter of which are answered
+		final List<String> values = this.evaluate(60, 5);
+		assertEquals(60, values.size());
+		assertEquals(60, new TreeSet<String>(values).size());
+		assertEquals(Integer.valueOf(20), this.requests.get(0));
+		for(final int blockSize: this.requests){
+			assertTrue("block size " + blockSize, blockSize <= 20);
+		}
+		// the failures reduced the block size of the endpoint
+		assertTrue(AdaptiveBlockSize.get(url).getBlockSize() <= 10);
+	}
+
+	@Test
+	public void testRetriesAreBounded() throws Exception {
+		AdaptiveBlockSize.INITIAL_BLOCK_SIZE = 20;
+		AdaptiveBlockSize.MAX_RETRIES = 2;
+		// the endpoint fails to answer any request => the block of 4 bindings is split into 2 blocks of 2 bindings and 4 blocks of 1 binding
+		assertTrue(this.evaluate(4, 0).isEmpty());
+		assertEquals(7, this.requests.size());
+		Collections.sort(this.requests);
+		assertEquals("[1, 1, 1, 1, 2, 2, 4]", this.requests.toString());
+	}
+
+	@Test
+	public void testNoRetries() throws Exception {
+		AdaptiveBlockSize.INITIAL_BLOCK_SIZE = 20;
+		AdaptiveBlockSize.MAX_RETRIES = 0;
+		assertTrue(this.evaluate(4, 2).isEmpty());
+		assertEquals(1, this.requests.size());
+	}
+}